@@ -0,0 +1,122 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package benchmarks.com.microsoft.azure.sdk.iot.deps.serializer;
+
+import com.microsoft.azure.sdk.iot.deps.serializer.TwinParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of updating the desired properties of a TwinParser with a full copy of the properties, for twins of 1KB,
+ * 32KB and 1MB: with no change at all, and with a single leaf changed in the middle of the tree.
+ *
+ * <p> Run with {@code mvn -P benchmarks test-compile exec:java -Dexec.args="TwinParserUpdateBenchmark"}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TwinParserUpdateBenchmark
+{
+    // each group serializes to about 256 bytes
+    private static final int GROUP_SIZE = 256;
+    private static final int LEAVES_PER_GROUP = 8;
+
+    @Param({"1024", "32768", "1048576"})
+    public int twinSize;
+
+    private TwinParser twinParser;
+    private Map<String, Object> unchanged;
+    private Map<String, Object> changedA;
+    private Map<String, Object> changedB;
+    private boolean flip;
+
+    @Setup
+    public void setup()
+    {
+        int groups = Math.max(1, this.twinSize / GROUP_SIZE);
+        this.unchanged = buildProperties(groups, null);
+        this.changedA = buildProperties(groups, "A");
+        this.changedB = buildProperties(groups, "B");
+
+        this.twinParser = new TwinParser();
+        this.twinParser.updateDesiredProperty(buildProperties(groups, null));
+    }
+
+    @Benchmark
+    public String updateDesiredUnchanged()
+    {
+        return this.twinParser.updateDesiredProperty(this.unchanged);
+    }
+
+    @Benchmark
+    public String updateDesiredOneLeafChanged()
+    {
+        this.flip = !this.flip;
+        return this.twinParser.updateDesiredProperty(this.flip ? this.changedA : this.changedB);
+    }
+
+    @Benchmark
+    public String updateTwinOneLeafChanged() throws IOException
+    {
+        this.flip = !this.flip;
+        return this.twinParser.updateTwin(this.flip ? this.changedA : this.changedB, null, null);
+    }
+
+    /**
+     * Build the desired properties as groups of nested objects. If {@code marker} is not null, one leaf of the
+     * middle group contains it.
+     */
+    private static Map<String, Object> buildProperties(int groups, String marker)
+    {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        for (int group = 0; group < groups; group++)
+        {
+            Map<String, Object> leaves = new LinkedHashMap<>();
+            for (int leaf = 0; leaf < LEAVES_PER_GROUP; leaf++)
+            {
+                leaves.put("leaf" + leaf, "value-" + group + "-" + leaf);
+            }
+            if ((marker != null) && (group == groups / 2))
+            {
+                leaves.put("leaf0", "value-" + marker);
+            }
+
+            Map<String, Object> settings = new LinkedHashMap<>();
+            settings.put("enabled", (group % 2) == 0);
+            settings.put("interval", group);
+            settings.put("leaves", leaves);
+            properties.put("group" + group, settings);
+        }
+        return properties;
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .include(TwinParserUpdateBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,227 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package benchmarks.com.microsoft.azure.sdk.iot.deps.ws;
+
+import com.microsoft.azure.sdk.iot.deps.ws.WebSocketHeader;
+import com.microsoft.azure.sdk.iot.deps.ws.impl.WebSocketHandlerImpl;
+import com.microsoft.azure.sdk.iot.deps.ws.impl.WebSocketImpl;
+import org.apache.qpid.proton.engine.impl.TransportInput;
+import org.apache.qpid.proton.engine.impl.TransportOutput;
+import org.apache.qpid.proton.engine.impl.TransportWrapper;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the WebSocket frame decoder for AMQP messages of 1KB and 256KB. Each message is sent by the service
+ * as frames of at most 4KB of payload, and arrives in reads of at most 16KB, the size of a TLS record. The decoder
+ * forwards the payload to an AMQP transport input that discards it.
+ *
+ * <p> {@code copyOnly} copies the same reads to the same transport input without decoding them, as a floor to
+ * compare {@code decode} with. The {@code bytes} counter reports the bytes decoded per second. Allocations are
+ * reported by the gc profiler.
+ *
+ * <p> Run with {@code mvn -P benchmarks test-compile exec:java -Dexec.args="WebSocketDecoderBenchmark -prof gc"}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebSocketDecoderBenchmark
+{
+    private static final int MAX_FRAME_PAYLOAD = 4 * 1024;
+    private static final int READ_SIZE = 16 * 1024;
+
+    @Param({"1024", "262144"})
+    public int messageSize;
+
+    private byte[] stream;
+    private DiscardingTransportInput transportInput;
+    private TransportWrapper transportWrapper;
+
+    /**
+     * Bytes of messages handled, reported per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters
+    {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset()
+        {
+            this.bytes = 0;
+        }
+    }
+
+    @Setup
+    public void setup()
+    {
+        byte[] message = new byte[this.messageSize];
+        new Random(42).nextBytes(message);
+        this.stream = frame(message);
+
+        this.transportInput = new DiscardingTransportInput();
+        WebSocketImpl webSocket = new WebSocketImpl();
+        webSocket.configure("localhost", "/$iothub/websocket", 443, "AMQPWSB10", null, new WebSocketHandlerImpl()
+        {
+            @Override
+            public Boolean validateUpgradeReply(ByteBuffer buffer)
+            {
+                buffer.position(buffer.limit());
+                return true;
+            }
+        });
+
+        this.transportWrapper = webSocket.wrap(this.transportInput, new IdleTransportOutput());
+        this.transportWrapper.pending();
+        this.transportWrapper.process();
+    }
+
+    @Benchmark
+    public long decode(Counters counters)
+    {
+        for (int offset = 0; offset < this.stream.length; )
+        {
+            int length = Math.min(Math.min(READ_SIZE, this.transportWrapper.capacity()), this.stream.length - offset);
+            this.transportWrapper.tail().put(this.stream, offset, length);
+            this.transportWrapper.process();
+            offset += length;
+        }
+
+        counters.bytes += this.messageSize;
+        return this.transportInput.received;
+    }
+
+    @Benchmark
+    public long copyOnly(Counters counters)
+    {
+        for (int offset = 0; offset < this.stream.length; )
+        {
+            int length = Math.min(Math.min(READ_SIZE, this.transportInput.capacity()), this.stream.length - offset);
+            this.transportInput.tail().put(this.stream, offset, length);
+            this.transportInput.process();
+            offset += length;
+        }
+
+        counters.bytes += this.messageSize;
+        return this.transportInput.received;
+    }
+
+    private static byte[] frame(byte[] message)
+    {
+        int frames = (message.length + MAX_FRAME_PAYLOAD - 1) / MAX_FRAME_PAYLOAD;
+        ByteBuffer stream = ByteBuffer.allocate(message.length + frames * WebSocketHeader.MED_HEADER_LENGTH_NOMASK);
+        for (int offset = 0; offset < message.length; offset += MAX_FRAME_PAYLOAD)
+        {
+            int length = Math.min(MAX_FRAME_PAYLOAD, message.length - offset);
+            stream.put((byte) (WebSocketHeader.FINBIT_MASK | WebSocketHeader.OPCODE_BINARY));
+            if (length <= WebSocketHeader.PAYLOAD_SHORT_MAX)
+            {
+                stream.put((byte) length);
+            }
+            else
+            {
+                stream.put(WebSocketHeader.PAYLOAD_EXTENDED_16);
+                stream.putShort((short) length);
+            }
+            stream.put(message, offset, length);
+        }
+
+        byte[] framed = new byte[stream.position()];
+        stream.flip();
+        stream.get(framed);
+        return framed;
+    }
+
+    private static class DiscardingTransportInput implements TransportInput
+    {
+        private final ByteBuffer tail = ByteBuffer.allocate(READ_SIZE);
+        private long received;
+
+        @Override
+        public int capacity()
+        {
+            return this.tail.remaining();
+        }
+
+        @Override
+        public int position()
+        {
+            return this.tail.position();
+        }
+
+        @Override
+        public ByteBuffer tail()
+        {
+            return this.tail;
+        }
+
+        @Override
+        public void process()
+        {
+            this.received += this.tail.position();
+            this.tail.clear();
+        }
+
+        @Override
+        public void close_tail()
+        {
+        }
+    }
+
+    private static class IdleTransportOutput implements TransportOutput
+    {
+        @Override
+        public int pending()
+        {
+            return 0;
+        }
+
+        @Override
+        public ByteBuffer head()
+        {
+            return ByteBuffer.allocate(0);
+        }
+
+        @Override
+        public void pop(int bytes)
+        {
+        }
+
+        @Override
+        public void close_head()
+        {
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .include(WebSocketDecoderBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -15,6 +15,7 @@ import org.bouncycastle.util.io.pem.PemReader;
 
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -168,6 +169,57 @@ public class IotHubSSLContext
         generateSSLContextWithKeys(publicKeyCertificateString, privateKeyString, new IotHubCertificateManager());
     }
 
+    /**
+     * Creates an SSLContext for the IotHub that trusts the provided trust managers, which may be shared with other
+     * SSLContexts.
+     *
+     * @param trustManagers the trust managers built by {@link #generateTrustManagers(IotHubCertificateManager)}.
+     * @throws KeyManagementException if the SSLContext could not be initialized
+     * @throws NoSuchAlgorithmException if the SSLContext cannot be created
+     */
+    IotHubSSLContext(TrustManager[] trustManagers) throws KeyManagementException, NoSuchAlgorithmException
+    {
+        //Codes_SRS_IOTHUBSSLCONTEXT_44_001: [The constructor shall create an SSL context for TLSv1.2 initialized with the provided trust managers and a new secure random.]
+        this.sslContext = SSLContext.getInstance(SSL_CONTEXT_INSTANCE);
+        this.sslContext.init(null, trustManagers, new SecureRandom());
+    }
+
+    /**
+     * Creates an SSLContext for the IotHub from a public key certificate and private key pair, that trusts the provided
+     * trust managers, which may be shared with other SSLContexts.
+     *
+     * @param publicKeyCertificateString The PEM formatted public key certificate string
+     * @param privateKeyString The PEM formatted private key string
+     * @param trustManagers the trust managers built by {@link #generateTrustManagers(IotHubCertificateManager)}.
+     * @throws KeyManagementException If the SSLContext could not be initialized
+     * @throws IOException If an IO exception occurs
+     * @throws CertificateException If a certificate cannot be loaded
+     * @throws KeyStoreException If the provided certificates cannot be loaded into the JVM keystore
+     * @throws UnrecoverableKeyException if accessing the passphrase protected keystore fails due to the key
+     * @throws NoSuchAlgorithmException if the SSLContext cannot be created
+     */
+    IotHubSSLContext(String publicKeyCertificateString, String privateKeyString, TrustManager[] trustManagers)
+            throws KeyManagementException, IOException, CertificateException, KeyStoreException, NoSuchAlgorithmException, UnrecoverableKeyException
+    {
+        Key privateKey = IotHubSSLContext.parsePrivateKey(privateKeyString);
+        Collection<X509Certificate> certChain = IotHubSSLContext.parsePublicKeyCertificate(publicKeyCertificateString);
+        X509Certificate[] certs = certChain.toArray(new X509Certificate[certChain.size()]);
+
+        //Codes_SRS_IOTHUBSSLCONTEXT_44_002: [The constructor shall create a keystore containing the public key certificate and the private key, protected by a temporary password.]
+        char[] temporaryPassword = generateTemporaryPassword();
+        KeyStore keystore = KeyStore.getInstance(KeyStore.getDefaultType());
+        keystore.load(null);
+        keystore.setKeyEntry(PRIVATE_KEY_ALIAS, privateKey, temporaryPassword, certs);
+
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keystore, temporaryPassword);
+        Arrays.fill(temporaryPassword, 0, temporaryPassword.length, '0');
+
+        //Codes_SRS_IOTHUBSSLCONTEXT_44_003: [The constructor shall create an SSL context for TLSv1.2 initialized with the keystore, the provided trust managers and a new secure random.]
+        this.sslContext = SSLContext.getInstance(SSL_CONTEXT_INSTANCE);
+        this.sslContext.init(kmf.getKeyManagers(), trustManagers, new SecureRandom());
+    }
+
     /**
      * Getter for the IotHubSSLContext
      * @return SSLContext defined for the IotHub.
@@ -278,6 +330,34 @@ public class IotHubSSLContext
         return trustManagerFactory;
     }
 
+    /**
+     * Generate the trust managers that trust the certificates of the provided certificate manager. Trust managers
+     * are immutable once built, so they can be shared by any number of SSLContexts.
+     * @param certificateManager the certificate manager holding the trusted certificates
+     * @return the trust managers
+     * @throws NoSuchAlgorithmException if the trust manager factory cannot be created
+     * @throws KeyStoreException if the trust key store cannot be created
+     * @throws IOException If a valid certificate could not be defined.
+     * @throws CertificateException If a certificate cannot be created by a certificate factory
+     */
+    static TrustManager[] generateTrustManagers(IotHubCertificateManager certificateManager)
+            throws NoSuchAlgorithmException, KeyStoreException, IOException, CertificateException
+    {
+        //Codes_SRS_IOTHUBSSLCONTEXT_44_004: [The function shall return the trust managers of a TrustManagerFactory initialized with a keystore holding the certificates of the certificate manager.]
+        KeyStore trustKeyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        trustKeyStore.load(null);
+
+        for (Certificate c : certificateManager.getCertificateCollection())
+        {
+            trustKeyStore.setCertificateEntry(TRUSTED_IOT_HUB_CERT_PREFIX + UUID.randomUUID(), c);
+        }
+
+        TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init(trustKeyStore);
+
+        return trustManagerFactory.getTrustManagers();
+    }
+
     private char[] generateTemporaryPassword()
     {
         byte[] randomBytes = new byte[256];
@@ -0,0 +1,269 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.deps.auth;
+
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.TrustManager;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide cache of the {@link IotHubSSLContext}s of the clients, so that clients with the same trusted
+ * certificates and the same client keys share one SSLContext instead of building their own.
+ *
+ * <p> Two levels are cached. The trust managers are keyed by the source of the trusted certificates, so the trusted
+ * certificates are parsed once even by clients with different keys. The SSLContexts are keyed by that source and by
+ * a digest of the client keys, so clients with the same keys also share the client session cache of the SSLContext,
+ * and a client that reconnects can resume its previous TLS session with an abbreviated handshake. A trusted
+ * certificate file is keyed by its path, its size and its modification time, so that a file that is replaced is read
+ * again. Keys are only kept as digests.
+ *
+ * <p> Both caches are bounded and evict their least recently used entry. An SSLContext is built once per key even if
+ * many clients ask for it at the same time, and a failure to build it is not cached.
+ */
+public final class IotHubSSLContextCache
+{
+    private static final int MAX_TRUST_MANAGERS = 16;
+    private static final int MAX_SSL_CONTEXTS = 256;
+
+    private static final int SESSION_CACHE_SIZE = 1000;
+    private static final int SESSION_TIMEOUT_SECONDS = 60 * 60;
+
+    private static final String DEFAULT_TRUST_SOURCE = "default";
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final Map<String, Entry<TrustManager[]>> trustManagers = newLruMap(MAX_TRUST_MANAGERS);
+    private static final Map<String, Entry<IotHubSSLContext>> sslContexts = newLruMap(MAX_SSL_CONTEXTS);
+
+    private IotHubSSLContextCache()
+    {
+    }
+
+    /**
+     * Get the shared SSLContext that trusts the provided certificate.
+     *
+     * @param trustedCert the certificate to be trusted, or the path to it. If {@code null}, the default certificates
+     *                    of {@link IotHubCertificateManager} are trusted.
+     * @param isPath if the trustedCert is a path to the trusted cert, or if it is the certificate itself
+     * @return the shared IotHubSSLContext.
+     * @throws IOException if the trusted certificate cannot be read.
+     * @throws GeneralSecurityException if the trusted certificate is invalid or the SSLContext cannot be created.
+     */
+    public static IotHubSSLContext getSSLContext(String trustedCert, boolean isPath) throws IOException, GeneralSecurityException
+    {
+        return getSSLContext(null, null, trustedCert, isPath);
+    }
+
+    /**
+     * Get the shared SSLContext that authenticates with the provided public key certificate and private key, and
+     * trusts the provided certificate.
+     *
+     * @param publicKeyCertificateString the PEM formatted public key certificate, or {@code null} to create an
+     *                                   SSLContext without client keys.
+     * @param privateKeyString the PEM formatted private key, or {@code null} to create an SSLContext without client
+     *                         keys.
+     * @param trustedCert the certificate to be trusted, or the path to it. If {@code null}, the default certificates
+     *                    of {@link IotHubCertificateManager} are trusted.
+     * @param isPath if the trustedCert is a path to the trusted cert, or if it is the certificate itself
+     * @return the shared IotHubSSLContext.
+     * @throws IOException if the trusted certificate cannot be read.
+     * @throws GeneralSecurityException if a certificate or the key is invalid or the SSLContext cannot be created.
+     */
+    public static IotHubSSLContext getSSLContext(
+            final String publicKeyCertificateString,
+            final String privateKeyString,
+            final String trustedCert,
+            final boolean isPath) throws IOException, GeneralSecurityException
+    {
+        if ((publicKeyCertificateString == null) != (privateKeyString == null))
+        {
+            //Codes_SRS_IOTHUBSSLCONTEXTCACHE_44_001: [If only one of the public key certificate and the private key is provided, the function shall throw an IllegalArgumentException.]
+            throw new IllegalArgumentException("The public key certificate and the private key must be provided together");
+        }
+
+        //Codes_SRS_IOTHUBSSLCONTEXTCACHE_44_002: [The function shall key the trust managers by the trusted certificate digest, by the path, size and modification time of the trusted certificate file, or by the default certificates.]
+        final String trustKey = trustKey(trustedCert, isPath);
+        String sslContextKey = publicKeyCertificateString == null
+                ? trustKey
+                : trustKey + "|" + digest(publicKeyCertificateString, privateKeyString);
+
+        //Codes_SRS_IOTHUBSSLCONTEXTCACHE_44_003: [The function shall return the SSLContext cached for the trust key and the digest of the client keys, and build it only if there is none.]
+        return getOrCreate(sslContexts, sslContextKey, new Factory<IotHubSSLContext>()
+        {
+            @Override
+            public IotHubSSLContext create() throws IOException, GeneralSecurityException
+            {
+                TrustManager[] sharedTrustManagers = getTrustManagers(trustKey, trustedCert, isPath);
+
+                //Codes_SRS_IOTHUBSSLCONTEXTCACHE_44_004: [The function shall build the SSLContext from the client keys, if any, and the shared trust managers.]
+                IotHubSSLContext iotHubSSLContext = publicKeyCertificateString == null
+                        ? new IotHubSSLContext(sharedTrustManagers)
+                        : new IotHubSSLContext(publicKeyCertificateString, privateKeyString, sharedTrustManagers);
+
+                //Codes_SRS_IOTHUBSSLCONTEXTCACHE_44_005: [The function shall enable the client session cache of the SSLContext so that TLS sessions can be resumed.]
+                SSLSessionContext sessionContext = iotHubSSLContext.getSSLContext().getClientSessionContext();
+                if (sessionContext != null)
+                {
+                    sessionContext.setSessionCacheSize(SESSION_CACHE_SIZE);
+                    sessionContext.setSessionTimeout(SESSION_TIMEOUT_SECONDS);
+                }
+
+                return iotHubSSLContext;
+            }
+        });
+    }
+
+    /**
+     * Remove every cached trust manager and SSLContext. Clients keep the SSLContexts they already hold, and the next
+     * clients build new ones.
+     */
+    public static void clear()
+    {
+        //Codes_SRS_IOTHUBSSLCONTEXTCACHE_44_006: [The function shall remove every cached trust manager and SSLContext.]
+        synchronized (trustManagers)
+        {
+            trustManagers.clear();
+        }
+
+        synchronized (sslContexts)
+        {
+            sslContexts.clear();
+        }
+    }
+
+    private static TrustManager[] getTrustManagers(String trustKey, final String trustedCert, final boolean isPath)
+            throws IOException, GeneralSecurityException
+    {
+        return getOrCreate(trustManagers, trustKey, new Factory<TrustManager[]>()
+        {
+            @Override
+            public TrustManager[] create() throws IOException, GeneralSecurityException
+            {
+                IotHubCertificateManager certificateManager = new IotHubCertificateManager();
+                if (trustedCert != null)
+                {
+                    if (isPath)
+                    {
+                        certificateManager.setCertificatesPath(trustedCert);
+                    }
+                    else
+                    {
+                        certificateManager.setCertificates(trustedCert);
+                    }
+                }
+
+                return IotHubSSLContext.generateTrustManagers(certificateManager);
+            }
+        });
+    }
+
+    private static String trustKey(String trustedCert, boolean isPath) throws GeneralSecurityException
+    {
+        if (trustedCert == null)
+        {
+            return DEFAULT_TRUST_SOURCE;
+        }
+
+        if (isPath)
+        {
+            File file = new File(trustedCert);
+            return "path:" + file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
+        }
+
+        return "cert:" + digest(trustedCert);
+    }
+
+    private static String digest(String... values) throws GeneralSecurityException
+    {
+        MessageDigest messageDigest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        for (String value : values)
+        {
+            messageDigest.update(value.getBytes(StandardCharsets.UTF_8));
+            messageDigest.update((byte) 0);
+        }
+
+        byte[] hash = messageDigest.digest();
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++)
+        {
+            hex[2 * i] = HEX_DIGITS[(hash[i] >> 4) & 0xF];
+            hex[2 * i + 1] = HEX_DIGITS[hash[i] & 0xF];
+        }
+
+        return new String(hex);
+    }
+
+    private static <T> T getOrCreate(Map<String, Entry<T>> entries, String key, Factory<T> factory)
+            throws IOException, GeneralSecurityException
+    {
+        Entry<T> entry;
+        synchronized (entries)
+        {
+            entry = entries.get(key);
+            if (entry == null)
+            {
+                entry = new Entry<>();
+                entries.put(key, entry);
+            }
+        }
+
+        // Only the callers of the same key wait for the value to be built, and the lock of the map is never taken
+        // while building it.
+        synchronized (entry)
+        {
+            if (entry.value == null)
+            {
+                try
+                {
+                    entry.value = factory.create();
+                }
+                finally
+                {
+                    if (entry.value == null)
+                    {
+                        synchronized (entries)
+                        {
+                            if (entries.get(key) == entry)
+                            {
+                                entries.remove(key);
+                            }
+                        }
+                    }
+                }
+            }
+
+            return entry.value;
+        }
+    }
+
+    private static <T> Map<String, Entry<T>> newLruMap(final int maxEntries)
+    {
+        return new LinkedHashMap<String, Entry<T>>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<T>> eldest)
+            {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    private interface Factory<T>
+    {
+        T create() throws IOException, GeneralSecurityException;
+    }
+
+    private static final class Entry<T>
+    {
+        private T value;
+    }
+}
@@ -0,0 +1,135 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.deps.serializer;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Representation of the response body of a bulk device registry operation.
+ */
+public class BulkRegistryOperationResultParser
+{
+    private transient static Gson gson = new Gson();
+
+    private static final String IS_SUCCESSFUL_NAME = "isSuccessful";
+    @Expose(serialize = true, deserialize = true)
+    @SerializedName(IS_SUCCESSFUL_NAME)
+    private boolean isSuccessful;
+
+    private static final String ERRORS_NAME = "errors";
+    @Expose(serialize = true, deserialize = true)
+    @SerializedName(ERRORS_NAME)
+    private List<DeviceRegistryOperationErrorParser> errors;
+
+    /**
+     * Empty constructor
+     */
+    public BulkRegistryOperationResultParser()
+    {
+        this.errors = new ArrayList<>();
+    }
+
+    /**
+     * Constructor for a BulkRegistryOperationResultParser that is constructed from Json.
+     * @param json the json to build from.
+     */
+    public BulkRegistryOperationResultParser(String json)
+    {
+        if (json == null || json.isEmpty())
+        {
+            //Codes_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_44_002: [If the provided json is null, empty, or cannot be parsed into a BulkRegistryOperationResultParser object, an IllegalArgumentException shall be thrown.]
+            throw new IllegalArgumentException("The provided json cannot be null or empty");
+        }
+
+        BulkRegistryOperationResultParser parser;
+        try
+        {
+            //Codes_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_44_001: [This constructor shall create and return an instance of a BulkRegistryOperationResultParser object based off the provided json.]
+            parser = gson.fromJson(json, BulkRegistryOperationResultParser.class);
+        }
+        catch (JsonSyntaxException e)
+        {
+            //Codes_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_44_002: [If the provided json is null, empty, or cannot be parsed into a BulkRegistryOperationResultParser object, an IllegalArgumentException shall be thrown.]
+            throw new IllegalArgumentException("The provided json could not be parsed");
+        }
+
+        if (parser == null)
+        {
+            //Codes_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_44_002: [If the provided json is null, empty, or cannot be parsed into a BulkRegistryOperationResultParser object, an IllegalArgumentException shall be thrown.]
+            throw new IllegalArgumentException("The provided json could not be parsed");
+        }
+
+        this.isSuccessful = parser.isSuccessful;
+
+        //Codes_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_44_003: [If the provided json has no errors array, this object's errors shall be an empty list.]
+        this.errors = parser.errors == null ? new ArrayList<DeviceRegistryOperationErrorParser>() : parser.errors;
+    }
+
+    /**
+     * Converts this into a json string.
+     * @return the json representation of this.
+     */
+    public String toJson()
+    {
+        //Codes_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_44_004: [This method shall return a json representation of this.]
+        return gson.toJson(this);
+    }
+
+    /**
+     * Getter for isSuccessful
+     *
+     * @return The value of isSuccessful
+     */
+    public boolean getIsSuccessful()
+    {
+        //Codes_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_44_005: [This method shall return the value of this object's isSuccessful.]
+        return isSuccessful;
+    }
+
+    /**
+     * Setter for isSuccessful
+     *
+     * @param isSuccessful the value to set isSuccessful to
+     */
+    public void setIsSuccessful(boolean isSuccessful)
+    {
+        //Codes_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_44_006: [This method shall set the value of this object's isSuccessful equal to the provided value.]
+        this.isSuccessful = isSuccessful;
+    }
+
+    /**
+     * Getter for errors
+     *
+     * @return The list of per device errors
+     */
+    public List<DeviceRegistryOperationErrorParser> getErrors()
+    {
+        //Codes_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_44_007: [This method shall return the value of this object's errors.]
+        return errors;
+    }
+
+    /**
+     * Setter for errors
+     *
+     * @param errors the value to set errors to
+     * @throws IllegalArgumentException if the provided errors list is null
+     */
+    public void setErrors(List<DeviceRegistryOperationErrorParser> errors) throws IllegalArgumentException
+    {
+        if (errors == null)
+        {
+            //Codes_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_44_009: [If the provided errors list is null, an IllegalArgumentException shall be thrown.]
+            throw new IllegalArgumentException("errors cannot be null");
+        }
+
+        //Codes_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_44_008: [This method shall set the value of this object's errors equal to the provided value.]
+        this.errors = errors;
+    }
+}
@@ -0,0 +1,101 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.deps.serializer;
+
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Representation of a single device error returned by a bulk registry operation.
+ */
+public class DeviceRegistryOperationErrorParser
+{
+    private static final String DEVICE_ID_NAME = "deviceId";
+    @Expose(serialize = true, deserialize = true)
+    @SerializedName(DEVICE_ID_NAME)
+    private String deviceId;
+
+    private static final String ERROR_CODE_NAME = "errorCode";
+    @Expose(serialize = true, deserialize = true)
+    @SerializedName(ERROR_CODE_NAME)
+    private String errorCode;
+
+    private static final String ERROR_STATUS_NAME = "errorStatus";
+    @Expose(serialize = true, deserialize = true)
+    @SerializedName(ERROR_STATUS_NAME)
+    private String errorStatus;
+
+    /**
+     * Empty constructor
+     */
+    public DeviceRegistryOperationErrorParser()
+    {
+    }
+
+    /**
+     * Getter for deviceId
+     *
+     * @return The value of deviceId
+     */
+    public String getDeviceId()
+    {
+        //Codes_SRS_DEVICE_REGISTRY_OPERATION_ERROR_PARSER_44_001: [This method shall return the value of this object's deviceId.]
+        return deviceId;
+    }
+
+    /**
+     * Setter for deviceId
+     *
+     * @param deviceId the value to set deviceId to
+     */
+    public void setDeviceId(String deviceId)
+    {
+        //Codes_SRS_DEVICE_REGISTRY_OPERATION_ERROR_PARSER_44_002: [This method shall set the value of this object's deviceId equal to the provided value.]
+        this.deviceId = deviceId;
+    }
+
+    /**
+     * Getter for errorCode
+     *
+     * @return The value of errorCode
+     */
+    public String getErrorCode()
+    {
+        //Codes_SRS_DEVICE_REGISTRY_OPERATION_ERROR_PARSER_44_003: [This method shall return the value of this object's errorCode.]
+        return errorCode;
+    }
+
+    /**
+     * Setter for errorCode
+     *
+     * @param errorCode the value to set errorCode to
+     */
+    public void setErrorCode(String errorCode)
+    {
+        //Codes_SRS_DEVICE_REGISTRY_OPERATION_ERROR_PARSER_44_004: [This method shall set the value of this object's errorCode equal to the provided value.]
+        this.errorCode = errorCode;
+    }
+
+    /**
+     * Getter for errorStatus
+     *
+     * @return The value of errorStatus
+     */
+    public String getErrorStatus()
+    {
+        //Codes_SRS_DEVICE_REGISTRY_OPERATION_ERROR_PARSER_44_005: [This method shall return the value of this object's errorStatus.]
+        return errorStatus;
+    }
+
+    /**
+     * Setter for errorStatus
+     *
+     * @param errorStatus the value to set errorStatus to
+     */
+    public void setErrorStatus(String errorStatus)
+    {
+        //Codes_SRS_DEVICE_REGISTRY_OPERATION_ERROR_PARSER_44_006: [This method shall set the value of this object's errorStatus equal to the provided value.]
+        this.errorStatus = errorStatus;
+    }
+}
@@ -0,0 +1,300 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.deps.serializer;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * INNER TWINPARSER CLASS
+ *
+ * Single pass diff between the properties stored in a {@link TwinProperty} and the properties provided by the user.
+ *
+ * <p> The new and the previous trees are walked together, and the JSON merge patch that turns the previous tree in
+ *     the new one is written while walking: an object is only opened in the patch when the first difference inside
+ *     it is found, and a key that disappeared from an object is written as {@code null}.
+ *
+ * <p> The previous tree was validated when it was stored, so only the keys and values that differ from it are
+ *     validated. The stored subtrees are unmodifiable copies, so a subtree provided again as is, for instance one
+ *     taken from {@link TwinProperty#getPropertyMap()}, is known to be unchanged without walking it.
+ *
+ * <p> The diff does not change the {@link TwinProperty}; the changes are only applied by {@link TwinProperty#commit(TwinDiff)},
+ *     so a validation failure leaves the collection as is.
+ */
+final class TwinDiff
+{
+    private static final int MAX_PROPERTY_LEVEL = 5;
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    private final StringWriter buffer = new StringWriter();
+    private final JsonWriter writer = new JsonWriter(this.buffer);
+
+    // names of the objects on the current path; the ones past `opened` are not written in the patch yet
+    private final List<String> path = new ArrayList<>();
+    private int opened;
+
+    private final Map<String, Object> changes = new LinkedHashMap<>();
+
+    TwinDiff()
+    {
+        this.writer.setSerializeNulls(true);
+        // the root object of the patch
+        this.path.add(null);
+    }
+
+    /**
+     * Compare one top level property.
+     *
+     * @param key the key of the property.
+     * @param previous the stored value, or {@code null} if there is none.
+     * @param next the value provided by the user, or {@code null} to delete the property.
+     * @param alwaysReport if the property shall be reported even if it did not change.
+     * @throws IllegalArgumentException if the key or the new value is not valid.
+     */
+    void diffProperty(String key, Object previous, Object next, boolean alwaysReport) throws IllegalArgumentException
+    {
+        ParserUtility.validateKey(key, false);
+        try
+        {
+            if (next == null)
+            {
+                // deletions are always reported, even of unknown keys
+                writeName(key);
+                this.writer.nullValue();
+                this.changes.put(key, null);
+            }
+            else if (!alwaysReport && (previous instanceof Map) && (next instanceof Map))
+            {
+                if (diffObject(key, (Map<String, Object>) previous, (Map<String, Object>) next, 1))
+                {
+                    this.changes.put(key, copy(next));
+                }
+            }
+            else if (alwaysReport || !next.equals(previous))
+            {
+                validateValue(next, 1);
+                writeName(key);
+                writeValue(next);
+                this.changes.put(key, copy(next));
+            }
+        }
+        catch (IOException e)
+        {
+            // a StringWriter does not throw
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the JSON merge patch, or {@code null} if nothing changed.
+     */
+    String getPatch()
+    {
+        if (this.opened == 0)
+        {
+            return null;
+        }
+
+        try
+        {
+            this.writer.endObject();
+            this.writer.flush();
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        this.opened = 0;
+        return this.buffer.toString();
+    }
+
+    /**
+     * @return the changed top level properties and their new values, {@code null} for the deleted ones.
+     */
+    Map<String, Object> getChanges()
+    {
+        return this.changes;
+    }
+
+    private boolean diffObject(String key, Map<String, Object> previous, Map<String, Object> next, int level) throws IOException
+    {
+        if (previous == next)
+        {
+            return false;
+        }
+
+        this.path.add(key);
+        int depth = this.path.size();
+        boolean changed = false;
+
+        for (Map.Entry<String, Object> entry : next.entrySet())
+        {
+            String childKey = entry.getKey();
+            Object value = entry.getValue();
+            Object previousValue = previous.get(childKey);
+            boolean existed = (previousValue != null);
+            if (!existed)
+            {
+                ParserUtility.validateKey(childKey, false);
+            }
+
+            if (value == null)
+            {
+                if (existed)
+                {
+                    writeName(childKey);
+                    this.writer.nullValue();
+                    changed = true;
+                }
+            }
+            else if ((previousValue instanceof Map) && (value instanceof Map))
+            {
+                if (level >= MAX_PROPERTY_LEVEL)
+                {
+                    throw new IllegalArgumentException("Malformed Json: exceed " + MAX_PROPERTY_LEVEL + " levels");
+                }
+                changed |= diffObject(childKey, (Map<String, Object>) previousValue, (Map<String, Object>) value, level + 1);
+            }
+            else if (!value.equals(previousValue))
+            {
+                validateValue(value, level + 1);
+                writeName(childKey);
+                writeValue(value);
+                changed = true;
+            }
+        }
+
+        for (String previousKey : previous.keySet())
+        {
+            if (!next.containsKey(previousKey))
+            {
+                writeName(previousKey);
+                this.writer.nullValue();
+                changed = true;
+            }
+        }
+
+        if (this.opened >= depth)
+        {
+            this.writer.endObject();
+            this.opened = depth - 1;
+        }
+        this.path.remove(depth - 1);
+
+        return changed;
+    }
+
+    /**
+     * Open the objects on the path that are not in the patch yet, then write the name.
+     */
+    private void writeName(String key) throws IOException
+    {
+        while (this.opened < this.path.size())
+        {
+            String name = this.path.get(this.opened);
+            if (name != null)
+            {
+                this.writer.name(name);
+            }
+            this.writer.beginObject();
+            this.opened++;
+        }
+        this.writer.name(key);
+    }
+
+    private void writeValue(Object value) throws IOException
+    {
+        if (value instanceof Map)
+        {
+            this.writer.beginObject();
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet())
+            {
+                if (entry.getValue() != null)
+                {
+                    this.writer.name(entry.getKey());
+                    writeValue(entry.getValue());
+                }
+            }
+            this.writer.endObject();
+        }
+        else if (value instanceof String)
+        {
+            this.writer.value((String) value);
+        }
+        else if (value instanceof Boolean)
+        {
+            this.writer.value((Boolean) value);
+        }
+        else if (value instanceof Number)
+        {
+            this.writer.value((Number) value);
+        }
+        else
+        {
+            GSON.toJson(value, value.getClass(), this.writer);
+        }
+    }
+
+    /**
+     * Validate a new value, as TwinParser.validateMap does.
+     *
+     * @param level the level of the value; the properties are at level 1.
+     */
+    private static void validateValue(Object value, int level) throws IllegalArgumentException
+    {
+        /* Codes_SRS_TWINPARSER_21_156: [A valid `value` shall contains types of boolean, number, string, or object.] */
+        if (value.getClass().isArray() || value.getClass().isLocalClass())
+        {
+            throw new IllegalArgumentException("Malformed Json: illegal value type");
+        }
+
+        if (value instanceof Map)
+        {
+            /* Codes_TWIN_21_158: [A valid `value` shall contains less than 5 levels of sub-maps.] */
+            if (level > MAX_PROPERTY_LEVEL)
+            {
+                throw new IllegalArgumentException("Malformed Json: exceed " + MAX_PROPERTY_LEVEL + " levels");
+            }
+
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet())
+            {
+                ParserUtility.validateKey(entry.getKey(), false);
+                if (entry.getValue() != null)
+                {
+                    validateValue(entry.getValue(), level + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Unmodifiable deep copy of a value, without the {@code null} entries of the nested objects.
+     */
+    static Object copy(Object value)
+    {
+        if (!(value instanceof Map))
+        {
+            return value;
+        }
+
+        Map<String, Object> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet())
+        {
+            if (entry.getValue() != null)
+            {
+                copy.put(entry.getKey(), copy(entry.getValue()));
+            }
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+}
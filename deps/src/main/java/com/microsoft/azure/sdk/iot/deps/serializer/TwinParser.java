@@ -4,8 +4,10 @@
 package com.microsoft.azure.sdk.iot.deps.serializer;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonWriter;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -27,6 +29,7 @@ public class TwinParser
     private static final String REPORTED_TAG = "reported";
 
     private static final int MAX_MAP_LEVEL = 5;
+    private static final String EMPTY_JSON = "{}";
 
     protected TwinTags tags = null;
     protected TwinProperties properties = new TwinProperties();
@@ -199,6 +202,9 @@ public class TwinParser
      * Update properties and tags information in the collection, and return a string with a json that contains a
      * sub-collection of added properties, properties with new value, added tags, and tags with new values.
      *
+     * Nested objects are compared with the stored ones, so the json only contains their changed entries, and `null`
+     * for the entries they do not have anymore.
+     *
      * @param desiredPropertyMap - Map of `desired` property to change the collection.
      * @param reportedPropertyMap - Map of `reported` property to change the collection.
      * @param tagsMap - Map of `tags` to change the collection.
@@ -211,17 +217,9 @@ public class TwinParser
                              Map<String, Object> tagsMap)
             throws IllegalArgumentException, IOException
     {
-        JsonObject jsonProperty = new JsonObject();
-        JsonObject jsonTwin;
-
         /* Codes_SRS_TWINPARSER_21_080: [If one of the maps is invalid, the updateTwin shall not change the collection and throw IllegalArgumentException.] */
-        validateMap(desiredPropertyMap);
-        validateMap(reportedPropertyMap);
         validateMap(tagsMap);
 
-        Gson gson = new GsonBuilder().disableHtmlEscaping().create();
-        jsonTwin = gson.toJsonTree(manager).getAsJsonObject();
-
         /* Codes_SRS_TWINPARSER_21_075: [If Tags is not enable and `tagsMap` is not null, the updateTwin shall throw IOException.] */
         if((tags == null) && (tagsMap != null))
         {
@@ -234,80 +232,69 @@ public class TwinParser
             throw new IllegalArgumentException("Null maps");
         }
 
-        /* Codes_SRS_TWINPARSER_21_116: [The updateTwin shall add all provided properties and tags to the collection.] */
-        /* Codes_SRS_TWINPARSER_21_118: [If one of the provided map is null, the updateTwin shall not change that part of the collection.] */
-        /* Codes_SRS_TWINPARSER_21_126: [The updateTwin shall only change properties and tags in the map, keep the others as is.] */
+        /* Codes_SRS_TWINPARSER_21_080: [If one of the maps is invalid, the updateTwin shall not change the collection and throw IllegalArgumentException.] */
         /* Codes_SRS_TWINPARSER_21_127: [The `key` and `value` in the maps shall be case sensitive.] */
-        /* Codes_SRS_TWINPARSER_21_128: [If one of the provided map is empty, the updateTwin shall not change its the collection.] */
-        /* Codes_SRS_TWINPARSER_21_081: [If any `key` already exists, the updateTwin shall replace the existed value by the new one.] */
-        /* Codes_SRS_TWINPARSER_21_082: [If any `value` is null, the updateTwin shall delete it from the collection and report on Json.] */
-        JsonElement jsonDesiredProperty = innerUpdateDesiredProperty(desiredPropertyMap);
-        if(jsonDesiredProperty != null)
-        {
-            jsonProperty.add(DESIRED_TAG, jsonDesiredProperty);
-        }
-        else
-        {
-            jsonProperty.add(DESIRED_TAG, new JsonObject());
-        }
+        // both diffs are computed, and so validated, before the collection is changed
+        TwinDiff desiredDiff = (desiredPropertyMap == null) ? null : properties.diffDesired(desiredPropertyMap);
+        TwinDiff reportedDiff = (reportedPropertyMap == null) ? null : properties.diffReported(reportedPropertyMap);
 
         /* Codes_SRS_TWINPARSER_21_116: [The updateTwin shall add all provided properties and tags to the collection.] */
         /* Codes_SRS_TWINPARSER_21_118: [If one of the provided map is null, the updateTwin shall not change that part of the collection.] */
         /* Codes_SRS_TWINPARSER_21_126: [The updateTwin shall only change properties and tags in the map, keep the others as is.] */
-        /* Codes_SRS_TWINPARSER_21_127: [The `key` and `value` in the maps shall be case sensitive.] */
         /* Codes_SRS_TWINPARSER_21_128: [If one of the provided map is empty, the updateTwin shall not change its the collection.] */
         /* Codes_SRS_TWINPARSER_21_081: [If any `key` already exists, the updateTwin shall replace the existed value by the new one.] */
         /* Codes_SRS_TWINPARSER_21_082: [If any `value` is null, the updateTwin shall delete it from the collection and report on Json.] */
-        JsonElement jsonReportedProperty = innerUpdateReportedProperty(reportedPropertyMap);
-        if(jsonReportedProperty != null)
+        String desiredPatch = null;
+        if(desiredDiff != null)
         {
-            jsonProperty.add(REPORTED_TAG, jsonReportedProperty);
+            properties.commitDesired(desiredDiff);
+            desiredPatch = desiredDiff.getPatch();
         }
-        else
+
+        String reportedPatch = null;
+        if(reportedDiff != null)
         {
-            jsonProperty.add(REPORTED_TAG,  new JsonObject());
+            properties.commitReported(reportedDiff);
+            reportedPatch = reportedDiff.getPatch();
         }
 
         JsonElement jsonTags = null;
-        if(tags != null)
+        if((tags != null) && (tagsMap != null))
         {
-            /* Codes_SRS_TWINPARSER_21_116: [The updateTwin shall add all provided properties and tags to the collection.] */
-            /* Codes_SRS_TWINPARSER_21_118: [If one of the provided map is null, the updateTwin shall not change that part of the collection.] */
-            /* Codes_SRS_TWINPARSER_21_126: [The updateTwin shall only change properties and tags in the map, keep the others as is.] */
-            /* Codes_SRS_TWINPARSER_21_127: [The `key` and `value` in the maps shall be case sensitive.] */
-            /* Codes_SRS_TWINPARSER_21_128: [If one of the provided map is empty, the updateTwin shall not change its the collection.] */
-            /* Codes_SRS_TWINPARSER_21_081: [If any `key` already exists, the updateTwin shall replace the existed value by the new one.] */
-            /* Codes_SRS_TWINPARSER_21_082: [If any `value` is null, the updateTwin shall delete it from the collection and report on Json.] */
-            if(tagsMap == null)
-            {
-                jsonTwin.add(TAGS_TAG, new JsonObject());
-            }
-            else
-            {
-                jsonTags = innerUpdateTags(tagsMap);
-                if (jsonTags != null)
-                {
-                    jsonTwin.add(TAGS_TAG, jsonTags);
-                }
-                else
-                {
-                    jsonTwin.add(TAGS_TAG, new JsonObject());
-                }
-            }
+            jsonTags = innerUpdateTags(tagsMap);
         }
 
-        if((jsonDesiredProperty!=null) || (jsonReportedProperty!=null) || (jsonTags!=null))
-        {
-            jsonTwin.add(PROPERTIES_TAG, jsonProperty);
-        }
-        else
+        if((desiredPatch == null) && (reportedPatch == null) && (jsonTags == null))
         {
             /* Codes_SRS_TWINPARSER_21_119: [If no property or tags changed its value, the updateTwin shall return null.] */
             return null;
         }
 
         /* Codes_SRS_TWINPARSER_21_117: [The updateTwin shall return a string with json representing the properties and tags with changes.] */
-        return jsonTwin.toString();
+        Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+        StringWriter twinJson = new StringWriter();
+        JsonWriter writer = new JsonWriter(twinJson);
+        writer.beginObject();
+        for (Map.Entry<String, JsonElement> entry : gson.toJsonTree(manager).getAsJsonObject().entrySet())
+        {
+            writer.name(entry.getKey());
+            gson.toJson(entry.getValue(), writer);
+        }
+
+        if(tags != null)
+        {
+            writer.name(TAGS_TAG);
+            gson.toJson((jsonTags == null) ? new JsonObject() : jsonTags, writer);
+        }
+
+        writer.name(PROPERTIES_TAG).beginObject();
+        writer.name(DESIRED_TAG).jsonValue((desiredPatch == null) ? EMPTY_JSON : desiredPatch);
+        writer.name(REPORTED_TAG).jsonValue((reportedPatch == null) ? EMPTY_JSON : reportedPatch);
+        writer.endObject();
+        writer.endObject();
+        writer.flush();
+
+        return twinJson.toString();
     }
 
 
@@ -315,6 +302,9 @@ public class TwinParser
      * Update the `desired` properties information in the collection, and return a string with a json that contains a
      * sub-collection of added properties, or properties with new value.
      *
+     * Nested objects are compared with the stored ones, so the json only contains their changed entries, and `null`
+     * for the entries they do not have anymore.
+     *
      * @param propertyMap - Map of `desired` property to change the collection.
      * @return Json with added or changed properties
      * @throws IllegalArgumentException This exception is thrown if the properties in the map do not fits the requirements.
@@ -327,45 +317,27 @@ public class TwinParser
             throw new IllegalArgumentException("Null desired property map.");
         }
 
-        JsonElement jsonElement = innerUpdateDesiredProperty(propertyMap);
-        if(jsonElement == null)
-        {
-            /* Codes_SRS_TWINPARSER_21_024: [If no Desired property changed its value, the updateDesiredProperty shall return null.] */
-            /* Codes_SRS_TWINPARSER_21_063: [If the provided `property` map is empty, the updateDesiredProperty shall not change the collection and return null.] */
-            return null;
-        }
-        return jsonElement.toString();
-    }
-
-    private JsonElement innerUpdateDesiredProperty(Map<String, Object> propertyMap) throws IllegalArgumentException
-    {
-        JsonElement updatedElements;
-
-        if(propertyMap != null)
-        {
-            /* Codes_SRS_TWINPARSER_21_073: [If the map is invalid, the updateDesiredProperty shall throw IllegalArgumentException.] */
-            validateMap(propertyMap);
-
-            /* Codes_SRS_TWINPARSER_21_021: [The updateDesiredProperty shall add all provided properties to the Desired property.] */
-            /* Codes_SRS_TWINPARSER_21_059: [The updateDesiredProperty shall only change properties in the map, keep the others as is.] */
-            /* Codes_SRS_TWINPARSER_21_061: [All `key` and `value` in property shall be case sensitive.] */
-            /* Codes_SRS_TWINPARSER_21_077: [If any `key` already exists, the updateDesiredProperty shall replace the existed value by the new one.] */
-            /* Codes_SRS_TWINPARSER_21_078: [If any `value` is null, the updateDesiredProperty shall delete it from the collection and report on Json.] */
-            updatedElements = properties.updateDesired(propertyMap);
-        }
-        else
-        {
-            /* Codes_SRS_TWINPARSER_21_023: [If the provided `property` map is null, the updateDesiredProperty shall not change the collection and return null.] */
-            updatedElements = null;
-        }
-
-        return updatedElements;
+        /* Codes_SRS_TWINPARSER_21_073: [If the map is invalid, the updateDesiredProperty shall throw IllegalArgumentException.] */
+        /* Codes_SRS_TWINPARSER_21_021: [The updateDesiredProperty shall add all provided properties to the Desired property.] */
+        /* Codes_SRS_TWINPARSER_21_059: [The updateDesiredProperty shall only change properties in the map, keep the others as is.] */
+        /* Codes_SRS_TWINPARSER_21_061: [All `key` and `value` in property shall be case sensitive.] */
+        /* Codes_SRS_TWINPARSER_21_077: [If any `key` already exists, the updateDesiredProperty shall replace the existed value by the new one.] */
+        /* Codes_SRS_TWINPARSER_21_078: [If any `value` is null, the updateDesiredProperty shall delete it from the collection and report on Json.] */
+        TwinDiff diff = properties.diffDesired(propertyMap);
+        properties.commitDesired(diff);
+
+        /* Codes_SRS_TWINPARSER_21_024: [If no Desired property changed its value, the updateDesiredProperty shall return null.] */
+        /* Codes_SRS_TWINPARSER_21_063: [If the provided `property` map is empty, the updateDesiredProperty shall not change the collection and return null.] */
+        return diff.getPatch();
     }
 
     /**
      * Update the `reported` properties information in the collection, and return a string with a json that contains a
      * sub-collection of added properties, or properties with new value.
      *
+     * Nested objects are compared with the stored ones, so the json only contains their changed entries, and `null`
+     * for the entries they do not have anymore.
+     *
      * @param propertyMap - Map of `reported` property to change the collection.
      * @return Json with added or changed properties
      * @throws IllegalArgumentException This exception is thrown if the properties in the map do not fits the requirements.
@@ -378,40 +350,19 @@ public class TwinParser
             throw new IllegalArgumentException("Null reported property map.");
         }
 
-        JsonElement jsonElement = innerUpdateReportedProperty(propertyMap);
-        if(jsonElement == null)
-        {
-            /* Codes_SRS_TWINPARSER_21_028: [If no Reported property changed its value, the updateReportedProperty shall return null.] */
-            return null;
-        }
-        return jsonElement.toString();
+        /* Codes_SRS_TWINPARSER_21_079: [If the map is invalid, the updateReportedProperty shall throw IllegalArgumentException.] */
+        /* Codes_SRS_TWINPARSER_21_025: [The updateReportedProperty shall add all provided properties to the Reported property.] */
+        /* Codes_SRS_TWINPARSER_21_060: [The updateReportedProperty shall only change properties in the map, keep the others as is.] */
+        /* Codes_SRS_TWINPARSER_21_062: [All `key` and `value` in property shall be case sensitive.] */
+        /* Codes_SRS_TWINPARSER_21_083: [If any `key` already exists, the updateReportedProperty shall replace the existed value by the new one.] */
+        /* Codes_SRS_TWINPARSER_21_084: [If any `value` is null, the updateReportedProperty shall delete it from the collection and report on Json.] */
+        TwinDiff diff = properties.diffReported(propertyMap);
+        properties.commitReported(diff);
+
+        /* Codes_SRS_TWINPARSER_21_028: [If no Reported property changed its value, the updateReportedProperty shall return null.] */
+        return diff.getPatch();
     }
 
-    private JsonElement innerUpdateReportedProperty(Map<String, Object> propertyMap) throws IllegalArgumentException
-    {
-        JsonElement updatedElements;
-
-        if(propertyMap != null)
-        {
-            /* Codes_SRS_TWINPARSER_21_079: [If the map is invalid, the updateReportedProperty shall throw IllegalArgumentException.] */
-            validateMap(propertyMap);
-
-            /* Codes_SRS_TWINPARSER_21_025: [The updateReportedProperty shall add all provided properties to the Reported property.] */
-            /* Codes_SRS_TWINPARSER_21_060: [The updateReportedProperty shall only change properties in the map, keep the others as is.] */
-            /* Codes_SRS_TWINPARSER_21_062: [All `key` and `value` in property shall be case sensitive.] */
-            /* Codes_SRS_TWINPARSER_21_083: [If any `key` already exists, the updateReportedProperty shall replace the existed value by the new one.] */
-            /* Codes_SRS_TWINPARSER_21_084: [If any `value` is null, the updateReportedProperty shall delete it from the collection and report on Json.] */
-            updatedElements = properties.updateReported(propertyMap);
-        }
-        else
-        {
-            /* Codes_SRS_TWINPARSER_21_027: [If the provided `property` map is null, the updateReportedProperty shall not change the collection and return null.] */
-            updatedElements = null;
-        }
-
-        return updatedElements;
-    }
-    
     /**
      * Update the `tags` information in the collection, and return a string with a json that contains a
      * sub-collection of added tags, or tags with new value.
@@ -48,6 +48,26 @@ public class TwinProperties
         return this.reported.update(property);
     }
 
+    protected TwinDiff diffDesired(Map<String, Object> property) throws IllegalArgumentException
+    {
+        return this.desired.diff(property);
+    }
+
+    protected TwinDiff diffReported(Map<String, Object> property) throws IllegalArgumentException
+    {
+        return this.reported.diff(property);
+    }
+
+    protected void commitDesired(TwinDiff diff)
+    {
+        this.desired.commit(diff);
+    }
+
+    protected void commitReported(TwinDiff diff)
+    {
+        this.reported.commit(diff);
+    }
+
     protected JsonElement resetDesired(Map<String, Object> property)
     {
         /* Codes_SRS_TWINPARSER_21_120: [The resetDesiredProperty shall shall cleanup the desired collection and add all provided properties to the Desired property.] */
@@ -156,6 +156,49 @@ public class TwinProperty
         return updatedJsonElement;
     }
 
+    protected TwinDiff diff(Map<String, Object> property) throws IllegalArgumentException
+    {
+        /* Codes_SRS_TWINPARSER_21_073: [If the map is invalid, the updateDesiredProperty shall throw IllegalArgumentException.] */
+        /* Codes_SRS_TWINPARSER_21_079: [If the map is invalid, the updateReportedProperty shall throw IllegalArgumentException.] */
+        TwinDiff diff = new TwinDiff();
+
+        synchronized (lock)
+        {
+            for (Map.Entry<String, Object> entry : property.entrySet())
+            {
+                if (entry.getKey() == null)
+                {
+                    throw new IllegalArgumentException("Property key shall not be null");
+                }
+
+                Property previous = this.property.get(entry.getKey());
+                diff.diffProperty(entry.getKey(), previous == null ? null : previous.value, entry.getValue(), reportMetadata);
+            }
+        }
+
+        return diff;
+    }
+
+    protected void commit(TwinDiff diff)
+    {
+        synchronized (lock)
+        {
+            for (Map.Entry<String, Object> entry : diff.getChanges().entrySet())
+            {
+                /* Codes_SRS_TWINPARSER_21_077: [If any `key` already exists, the updateDesiredProperty shall replace the existed value by the new one.] */
+                /* Codes_SRS_TWINPARSER_21_078: [If any `value` is null, the updateDesiredProperty shall delete it from the collection and report on Json.] */
+                if (entry.getValue() == null)
+                {
+                    this.property.remove(entry.getKey());
+                }
+                else
+                {
+                    this.property.put(entry.getKey(), new Property(entry.getValue(), null));
+                }
+            }
+        }
+    }
+
     protected void validate(Map<String, Object> property) throws IllegalArgumentException
     {
         if(property == null)
@@ -449,13 +492,13 @@ public class TwinProperty
                         }
                         else if (!property.get(entry.getKey()).value.equals(entry.getValue()))
                         {
-                            property.put(entry.getKey(), new Property(entry.getValue(), null));
+                            property.put(entry.getKey(), new Property(TwinDiff.copy(entry.getValue()), null));
                             diff.put(entry.getKey(), entry.getValue());
                         }
                     }
                     else if (entry.getValue() != null)
                     {
-                        property.put(entry.getKey(), new Property(entry.getValue(), null));
+                        property.put(entry.getKey(), new Property(TwinDiff.copy(entry.getValue()), null));
                         diff.put(entry.getKey(), entry.getValue());
                     }
                 }
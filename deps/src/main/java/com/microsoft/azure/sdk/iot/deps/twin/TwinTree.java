@@ -0,0 +1,375 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.deps.twin;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compact and immutable representation of a Twin collection.
+ *
+ * <p> The {@link TwinCollection} is a {@code HashMap} with a second {@code HashMap} of {@link TwinMetadata} for
+ *     every level, and goes through a Gson tree for every serialization. This is fine for a single twin, but it
+ *     is heavy for the gateways that keep the twins of thousands of devices. The TwinTree stores the same
+ *     information in a fraction of the heap:
+ * <ul>
+ *     <li>the keys are interned, so the property names are shared by every twin in the process;</li>
+ *     <li>numbers and booleans are stored as primitives instead of boxed objects;</li>
+ *     <li>the metadata is kept as received, and a {@link TwinMetadata} is only created when requested;</li>
+ *     <li>{@link #applyPatch(TwinTree)} shares every untouched object with the previous version.</li>
+ * </ul>
+ *
+ * <p> The TwinTree is read from and written to a stream directly, without an intermediate JSON tree. Its content
+ *     is exposed through an unmodifiable {@code Map} adapter, {@link #getProperties()}, or converted to a
+ *     {@link TwinCollection} by {@link #toTwinCollection()}. Integer numbers are exposed as {@code Long} and
+ *     the other numbers as {@code Double}.
+ *
+ * <p> For instance, the following code keeps the desired properties of a device up to date:
+ * <pre>
+ * {@code
+ *      TwinTree desired = TwinTree.parse(fullDesiredPropertiesJson);
+ *      desired = desired.applyPatch(TwinTree.parse(patchJson));
+ *      Object color = desired.getProperties().get("Color");
+ *      TwinMetadata colorMetadata = desired.getTwinMetadata("Color");
+ * }
+ * </pre>
+ */
+public final class TwinTree
+{
+    // By definition, Twin maps cannot contain more than 5 levels.
+    private static final int MAX_NESTED_LEVELS = 5;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String VERSION_TAG = "$version";
+    private static final String METADATA_TAG = "$metadata";
+    private static final String PATH_SEPARATOR_REGEX = "\\.";
+
+    private final TwinTreeNode properties;
+    private final TwinTreeNode metadata;
+    private final Integer version;
+
+    private TwinTree(TwinTreeNode properties, TwinTreeNode metadata, Integer version)
+    {
+        this.properties = properties;
+        this.metadata = metadata;
+        this.version = version;
+    }
+
+    /**
+     * Parser
+     *
+     * <p> Creates a TwinTree from the JSON of a Twin collection, with or without {@code $version} and
+     *     {@code $metadata}. A {@code null} value is kept as an entry, so patches can be parsed as well.
+     *
+     * @param json the {@code String} with the JSON. It cannot be {@code null} or empty.
+     * @return The new TwinTree.
+     * @throws IllegalArgumentException If the JSON is {@code null}, empty, invalid, or is not a valid Twin collection.
+     */
+    public static TwinTree parse(String json) throws IllegalArgumentException
+    {
+        /* Codes_SRS_TWIN_TREE_44_001: [The parse shall throw IllegalArgumentException if the provided JSON is null or empty.] */
+        if (json == null || json.isEmpty())
+        {
+            throw new IllegalArgumentException("json cannot be null or empty");
+        }
+
+        try
+        {
+            return read(new StringReader(json));
+        }
+        catch (IOException e)
+        {
+            // a StringReader does not throw
+            throw new IllegalArgumentException("Malformed json", e);
+        }
+    }
+
+    /**
+     * Parser
+     *
+     * <p> Creates a TwinTree from the UTF-8 JSON of a Twin collection read from the provided stream. The stream
+     *     is not closed.
+     *
+     * @param inputStream the {@code InputStream} with the JSON. It cannot be {@code null}.
+     * @return The new TwinTree.
+     * @throws IllegalArgumentException If the stream is {@code null}, or its content is not a valid Twin collection.
+     * @throws IOException If the stream cannot be read.
+     */
+    public static TwinTree parse(InputStream inputStream) throws IllegalArgumentException, IOException
+    {
+        /* Codes_SRS_TWIN_TREE_44_002: [The parse shall throw IllegalArgumentException if the provided stream is null.] */
+        if (inputStream == null)
+        {
+            throw new IllegalArgumentException("inputStream cannot be null");
+        }
+
+        return read(new InputStreamReader(inputStream, UTF8));
+    }
+
+    private static TwinTree read(Reader source) throws IOException
+    {
+        JsonReader reader = new JsonReader(source);
+        Map<String, Object> tags = new HashMap<>();
+        TwinTreeNode properties;
+        try
+        {
+            /* Codes_SRS_TWIN_TREE_44_003: [The parse shall throw IllegalArgumentException if the JSON is malformed, contains arrays, invalid keys, or more than 5 levels of nested objects.] */
+            properties = TwinTreeNode.read(reader, MAX_NESTED_LEVELS, false, tags);
+        }
+        catch (MalformedJsonException | EOFException | JsonParseException | IllegalStateException | NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Malformed json", e);
+        }
+
+        /* Codes_SRS_TWIN_TREE_44_004: [The parse shall store the `$version` and `$metadata` of the root object apart from the properties.] */
+        Object version = tags.get(VERSION_TAG);
+        Object metadata = tags.get(METADATA_TAG);
+        return new TwinTree(properties,
+                metadata instanceof TwinTreeNode ? (TwinTreeNode) metadata : null,
+                version instanceof Long ? ((Long) version).intValue() : null);
+    }
+
+    /**
+     * Creates a TwinTree with the content, version and metadata of a TwinCollection.
+     *
+     * @param twinCollection the {@link TwinCollection} to copy. It cannot be {@code null}.
+     * @return The new TwinTree.
+     * @throws IllegalArgumentException If the provided TwinCollection is {@code null}.
+     */
+    public static TwinTree fromTwinCollection(TwinCollection twinCollection) throws IllegalArgumentException
+    {
+        /* Codes_SRS_TWIN_TREE_44_005: [The fromTwinCollection shall throw IllegalArgumentException if the provided TwinCollection is null.] */
+        if (twinCollection == null)
+        {
+            throw new IllegalArgumentException("twinCollection cannot be null");
+        }
+
+        /* Codes_SRS_TWIN_TREE_44_006: [The fromTwinCollection shall copy the properties, version and metadata of the TwinCollection.] */
+        return parse(twinCollection.toJsonElementWithMetadata().toString());
+    }
+
+    /**
+     * Apply a patch, as the desired properties patches sent by the IoT Hub.
+     *
+     * <p> A {@code null} value in the patch deletes the property and its metadata, nested objects are merged,
+     *     and any other value replaces the property. This TwinTree is not changed, and the returned one shares
+     *     every object untouched by the patch with it.
+     *
+     * @param patch the TwinTree with the patch. It cannot be {@code null}.
+     * @return The new TwinTree with the patch applied.
+     * @throws IllegalArgumentException If the patch is {@code null}.
+     */
+    public TwinTree applyPatch(TwinTree patch) throws IllegalArgumentException
+    {
+        /* Codes_SRS_TWIN_TREE_44_007: [The applyPatch shall throw IllegalArgumentException if the provided patch is null.] */
+        if (patch == null)
+        {
+            throw new IllegalArgumentException("patch cannot be null");
+        }
+
+        /* Codes_SRS_TWIN_TREE_44_008: [The applyPatch shall return a new TwinTree with the patch merged, deleting the properties and metadata set to null in the patch.] */
+        TwinTreeNode mergedMetadata = this.metadata;
+        if (mergedMetadata != null)
+        {
+            mergedMetadata = mergedMetadata.prune(patch.properties);
+        }
+        if (patch.metadata != null)
+        {
+            mergedMetadata = mergedMetadata == null ? patch.metadata : mergedMetadata.merge(patch.metadata);
+        }
+
+        /* Codes_SRS_TWIN_TREE_44_009: [The applyPatch shall use the version of the patch, if it has one.] */
+        return new TwinTree(this.properties.merge(patch.properties), mergedMetadata,
+                patch.version != null ? patch.version : this.version);
+    }
+
+    /**
+     * Getter for the properties.
+     *
+     * @return An unmodifiable {@code Map} view of the properties, where the nested objects are unmodifiable
+     *         {@code Map}s as well. It is never {@code null}.
+     */
+    public Map<String, Object> getProperties()
+    {
+        /* Codes_SRS_TWIN_TREE_44_010: [The getProperties shall return an unmodifiable Map adapter over the properties.] */
+        return this.properties.asMap();
+    }
+
+    /**
+     * Getter for the version.
+     *
+     * @return The {@code Integer} with the version content. It can be {@code null}.
+     */
+    public Integer getVersion()
+    {
+        /* Codes_SRS_TWIN_TREE_44_015: [The getVersion shall return the stored `$version`, or null if the JSON had none.] */
+        return this.version;
+    }
+
+    /**
+     * Getter for the metadata of the whole collection.
+     *
+     * @return the {@link TwinMetadata} of the whole collection. It can be {@code null}.
+     */
+    public TwinMetadata getTwinMetadata()
+    {
+        /* Codes_SRS_TWIN_TREE_44_016: [The getTwinMetadata shall return the metadata of the whole collection, or null if it has no `$lastUpdated` nor `$lastUpdatedVersion`.] */
+        return createTwinMetadata(this.metadata);
+    }
+
+    /**
+     * Getter for the metadata of a property.
+     *
+     * @param path the dotted path of the property, like {@code MaxSpeed.Value}. It cannot be {@code null} or empty.
+     * @return the {@link TwinMetadata} of the property. It can be {@code null}.
+     * @throws IllegalArgumentException If the path is {@code null} or empty.
+     */
+    public TwinMetadata getTwinMetadata(String path) throws IllegalArgumentException
+    {
+        if (path == null || path.isEmpty())
+        {
+            /* Codes_SRS_TWIN_TREE_44_017: [The getTwinMetadata shall throw IllegalArgumentException if the provided path is null or empty.] */
+            throw new IllegalArgumentException("path cannot be null or empty");
+        }
+
+        /* Codes_SRS_TWIN_TREE_44_011: [The getTwinMetadata shall create the TwinMetadata of the property only when requested.] */
+        /* Codes_SRS_TWIN_TREE_44_018: [The getTwinMetadata shall return null if the path does not match the metadata of a property.] */
+        TwinTreeNode node = this.metadata;
+        for (String segment : path.split(PATH_SEPARATOR_REGEX))
+        {
+            if (node == null)
+            {
+                return null;
+            }
+            int index = node.indexOf(segment);
+            node = index < 0 ? null : node.nodeAt(index);
+        }
+
+        return createTwinMetadata(node);
+    }
+
+    private static TwinMetadata createTwinMetadata(TwinTreeNode metadataNode)
+    {
+        if (metadataNode == null)
+        {
+            return null;
+        }
+
+        int lastUpdatedIndex = metadataNode.indexOf(TwinMetadata.LAST_UPDATE_TAG);
+        int lastUpdatedVersionIndex = metadataNode.indexOf(TwinMetadata.LAST_UPDATE_VERSION_TAG);
+        Object lastUpdated = lastUpdatedIndex < 0 ? null : metadataNode.valueAt(lastUpdatedIndex);
+        Object lastUpdatedVersion = lastUpdatedVersionIndex < 0 ? null : metadataNode.valueAt(lastUpdatedVersionIndex);
+        if (!(lastUpdated instanceof String) && !(lastUpdatedVersion instanceof Number))
+        {
+            return null;
+        }
+
+        return new TwinMetadata(lastUpdated instanceof String ? (String) lastUpdated : null,
+                lastUpdatedVersion instanceof Number ? ((Number) lastUpdatedVersion).intValue() : null);
+    }
+
+    /**
+     * Creates a TwinCollection with the content, version and metadata of this TwinTree.
+     *
+     * @return The new {@link TwinCollection}.
+     */
+    public TwinCollection toTwinCollection()
+    {
+        /* Codes_SRS_TWIN_TREE_44_012: [The toTwinCollection shall return a TwinCollection with the properties, version and metadata of this TwinTree.] */
+        Map<String, Object> rawCollection = new LinkedHashMap<>(this.properties.asMap());
+        if (this.version != null)
+        {
+            rawCollection.put(VERSION_TAG, this.version);
+        }
+        if (this.metadata != null)
+        {
+            rawCollection.put(METADATA_TAG, this.metadata.asMap());
+        }
+
+        return TwinCollection.createFromRawCollection(rawCollection);
+    }
+
+    /**
+     * Serializer
+     *
+     * <p> Writes the UTF-8 JSON of this TwinTree, including the version and metadata, directly to the provided
+     *     stream. The stream is flushed but not closed.
+     *
+     * @param outputStream the {@code OutputStream} to write to. It cannot be {@code null}.
+     * @param includeMetadata if the {@code $version} and {@code $metadata} shall be written.
+     * @throws IllegalArgumentException If the stream is {@code null}.
+     * @throws IOException If the stream cannot be written.
+     */
+    public void writeTo(OutputStream outputStream, boolean includeMetadata) throws IllegalArgumentException, IOException
+    {
+        /* Codes_SRS_TWIN_TREE_44_013: [The writeTo shall throw IllegalArgumentException if the provided stream is null.] */
+        if (outputStream == null)
+        {
+            throw new IllegalArgumentException("outputStream cannot be null");
+        }
+
+        /* Codes_SRS_TWIN_TREE_44_014: [The writeTo shall write the JSON of the properties, and if requested the $version and $metadata, to the stream.] */
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, UTF8));
+        JsonWriter jsonWriter = new JsonWriter(writer);
+        jsonWriter.setSerializeNulls(true);
+        jsonWriter.beginObject();
+        this.properties.writeEntries(jsonWriter);
+        if (includeMetadata)
+        {
+            if (this.metadata != null)
+            {
+                jsonWriter.name(METADATA_TAG);
+                jsonWriter.beginObject();
+                this.metadata.writeEntries(jsonWriter);
+                jsonWriter.endObject();
+            }
+            if (this.version != null)
+            {
+                jsonWriter.name(VERSION_TAG).value(this.version);
+            }
+        }
+        jsonWriter.endObject();
+        jsonWriter.flush();
+    }
+
+    /**
+     * Creates a JSON with the content of this TwinTree, including the version and metadata.
+     *
+     * @return The {@code String} with the JSON.
+     */
+    @Override
+    public String toString()
+    {
+        /* Codes_SRS_TWIN_TREE_44_019: [The toString shall return the JSON of the properties, version and metadata.] */
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try
+        {
+            writeTo(outputStream, true);
+        }
+        catch (IOException e)
+        {
+            // a ByteArrayOutputStream does not throw
+            throw new IllegalStateException(e);
+        }
+        return new String(outputStream.toByteArray(), UTF8);
+    }
+}
@@ -0,0 +1,594 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.deps.twin;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.microsoft.azure.sdk.iot.deps.serializer.ParserUtility;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable JSON object of a {@link TwinTree}.
+ *
+ * <p> The entries are stored in parallel arrays sorted by key. Numbers and booleans are stored in a {@code long}
+ *     array instead of boxed objects, strings and nested objects in an {@code Object} array, and each of these
+ *     arrays is only allocated if the node needs it. The keys are interned, so the same property names are shared
+ *     by every twin in the process.
+ */
+final class TwinTreeNode
+{
+    static final byte KIND_NULL = 0;
+    static final byte KIND_FALSE = 1;
+    static final byte KIND_TRUE = 2;
+    static final byte KIND_LONG = 3;
+    static final byte KIND_DOUBLE = 4;
+    static final byte KIND_STRING = 5;
+    static final byte KIND_NODE = 6;
+
+    static final TwinTreeNode EMPTY = new TwinTreeNode(new String[0], new byte[0], null, null, false);
+
+    private final String[] keys;
+    private final byte[] kinds;
+    private final long[] primitives;
+    private final Object[] references;
+
+    // true if this node, or any node below it, has a null entry
+    private final boolean containsNull;
+
+    private TwinTreeNode(String[] keys, byte[] kinds, long[] primitives, Object[] references, boolean containsNull)
+    {
+        this.keys = keys;
+        this.kinds = kinds;
+        this.primitives = primitives;
+        this.references = references;
+        this.containsNull = containsNull;
+    }
+
+    int size()
+    {
+        return this.keys.length;
+    }
+
+    int indexOf(String key)
+    {
+        return Arrays.binarySearch(this.keys, key);
+    }
+
+    String keyAt(int index)
+    {
+        return this.keys[index];
+    }
+
+    byte kindAt(int index)
+    {
+        return this.kinds[index];
+    }
+
+    TwinTreeNode nodeAt(int index)
+    {
+        return this.kinds[index] == KIND_NODE ? (TwinTreeNode) this.references[index] : null;
+    }
+
+    /**
+     * @return the boxed value of an entry; nested objects are returned as unmodifiable {@code Map} views.
+     */
+    Object valueAt(int index)
+    {
+        /* Codes_SRS_TWIN_TREE_NODE_44_015: [The valueAt shall return the integer numbers as Long, the other numbers as Double, and the nested objects as unmodifiable Map views.] */
+        switch (this.kinds[index])
+        {
+            case KIND_FALSE:
+                return Boolean.FALSE;
+            case KIND_TRUE:
+                return Boolean.TRUE;
+            case KIND_LONG:
+                return this.primitives[index];
+            case KIND_DOUBLE:
+                return Double.longBitsToDouble(this.primitives[index]);
+            case KIND_STRING:
+                return this.references[index];
+            case KIND_NODE:
+                return ((TwinTreeNode) this.references[index]).asMap();
+            default:
+                return null;
+        }
+    }
+
+    Map<String, Object> asMap()
+    {
+        /* Codes_SRS_TWIN_TREE_NODE_44_014: [The asMap shall return a read only Map adapter over the node, without copying its entries.] */
+        return new MapView(this);
+    }
+
+    /**
+     * Apply a JSON merge patch: a {@code null} entry deletes the key, nested objects are merged, anything else
+     * replaces the entry. Neither node is modified, and the entries untouched by the patch, including whole nested
+     * objects, are shared with the result.
+     */
+    TwinTreeNode merge(TwinTreeNode patch)
+    {
+        if (patch.keys.length == 0)
+        {
+            /* Codes_SRS_TWIN_TREE_NODE_44_008: [If the patch is empty, the merge shall return this node.] */
+            return this;
+        }
+
+        /* Codes_SRS_TWIN_TREE_NODE_44_009: [The merge shall return a new node where the null entries of the patch delete the key, the nested objects present in both nodes are merged, and the other entries of the patch replace the ones of this node. The untouched entries shall be shared with this node.] */
+        Builder builder = new Builder(this.keys.length + patch.keys.length);
+        int i = 0;
+        int j = 0;
+        while (i < this.keys.length || j < patch.keys.length)
+        {
+            int comparison;
+            if (i == this.keys.length)
+            {
+                comparison = 1;
+            }
+            else if (j == patch.keys.length)
+            {
+                comparison = -1;
+            }
+            else
+            {
+                comparison = this.keys[i].compareTo(patch.keys[j]);
+            }
+
+            if (comparison < 0)
+            {
+                builder.copy(this, i++);
+            }
+            else
+            {
+                byte patchKind = patch.kinds[j];
+                if (comparison == 0 && patchKind == KIND_NODE && this.kinds[i] == KIND_NODE)
+                {
+                    builder.addNode(this.keys[i], ((TwinTreeNode) this.references[i]).merge((TwinTreeNode) patch.references[j]));
+                }
+                else if (patchKind == KIND_NODE)
+                {
+                    /* Codes_SRS_TWIN_TREE_NODE_44_010: [The merge shall add the nested objects of the patch that are not in this node without their null entries.] */
+                    builder.addNode(patch.keys[j], ((TwinTreeNode) patch.references[j]).withoutNulls());
+                }
+                else if (patchKind != KIND_NULL)
+                {
+                    builder.copy(patch, j);
+                }
+
+                if (comparison == 0)
+                {
+                    i++;
+                }
+                j++;
+            }
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Remove the entries deleted by a patch, without adding anything. Used to drop the metadata of the deleted
+     * properties.
+     */
+    TwinTreeNode prune(TwinTreeNode patch)
+    {
+        if (!patch.containsNull)
+        {
+            /* Codes_SRS_TWIN_TREE_NODE_44_011: [If the patch does not delete anything, the prune shall return this node.] */
+            return this;
+        }
+
+        /* Codes_SRS_TWIN_TREE_NODE_44_012: [The prune shall return a new node without the entries set to null in the patch, pruning the nested objects present in both nodes in the same way.] */
+        Builder builder = null;
+        for (int j = 0; j < patch.keys.length; j++)
+        {
+            int i = indexOf(patch.keys[j]);
+            if (i < 0 || (patch.kinds[j] != KIND_NULL && (patch.kinds[j] != KIND_NODE || this.kinds[i] != KIND_NODE)))
+            {
+                continue;
+            }
+
+            if (builder == null)
+            {
+                builder = Builder.copyOf(this);
+            }
+
+            if (patch.kinds[j] == KIND_NULL)
+            {
+                builder.remove(patch.keys[j]);
+            }
+            else
+            {
+                builder.replaceNode(patch.keys[j], ((TwinTreeNode) this.references[i]).prune((TwinTreeNode) patch.references[j]));
+            }
+        }
+
+        return builder == null ? this : builder.build();
+    }
+
+    private TwinTreeNode withoutNulls()
+    {
+        return this.containsNull ? EMPTY.merge(this) : this;
+    }
+
+    /**
+     * Read a JSON object from the stream.
+     *
+     * @param maxLevels the number of nested objects allowed below this one.
+     * @param isMetadata if the keys can contain the character {@code $}.
+     * @param rootTags if not {@code null}, receives the entries of this object whose key starts with {@code $}
+     *                 instead of the node.
+     * @throws IllegalArgumentException if the JSON is not a valid twin.
+     */
+    static TwinTreeNode read(JsonReader reader, int maxLevels, boolean isMetadata, Map<String, Object> rootTags) throws IOException
+    {
+        Builder builder = new Builder(8);
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+            String key = reader.nextName();
+            if (rootTags != null && key.startsWith("$"))
+            {
+                /* Codes_SRS_TWIN_TREE_NODE_44_007: [If the root tags are requested, the read shall store the objects of the keys starting with `$` as metadata nodes and their numbers as Long in the root tags, and skip their other values.] */
+                JsonToken token = reader.peek();
+                if (token == JsonToken.BEGIN_OBJECT)
+                {
+                    rootTags.put(key, read(reader, Integer.MAX_VALUE, true, null));
+                }
+                else if (token == JsonToken.NUMBER)
+                {
+                    rootTags.put(key, reader.nextLong());
+                }
+                else
+                {
+                    reader.skipValue();
+                }
+                continue;
+            }
+
+            /* Codes_SRS_TWIN_TREE_NODE_44_003: [The read shall throw IllegalArgumentException if a key is not a valid twin key.] */
+            ParserUtility.validateKey(key, isMetadata);
+
+            /* Codes_SRS_TWIN_TREE_NODE_44_002: [The read shall intern the keys, so the property names are shared by every node in the process.] */
+            switch (reader.peek())
+            {
+                case NULL:
+                    reader.nextNull();
+                    builder.addNull(key);
+                    break;
+                case BOOLEAN:
+                    builder.addBoolean(key, reader.nextBoolean());
+                    break;
+                case NUMBER:
+                    builder.addNumber(key, reader.nextString());
+                    break;
+                case STRING:
+                    builder.addString(key, reader.nextString());
+                    break;
+                case BEGIN_OBJECT:
+                    if (maxLevels <= 0)
+                    {
+                        /* Codes_SRS_TWIN_TREE_NODE_44_005: [The read shall throw IllegalArgumentException if the nested objects exceed the provided number of levels.] */
+                        throw new IllegalArgumentException("Twin exceeds the maximum number of levels");
+                    }
+                    builder.addNode(key, read(reader, maxLevels - 1, isMetadata, null));
+                    break;
+                default:
+                    /* Codes_SRS_TWIN_TREE_NODE_44_006: [The read shall throw IllegalArgumentException if the object contains an array.] */
+                    throw new IllegalArgumentException("Twin cannot contain " + reader.peek() + " for the key " + key);
+            }
+        }
+        reader.endObject();
+
+        /* Codes_SRS_TWIN_TREE_NODE_44_001: [The read shall return a node with the entries sorted by key, keeping the last entry of a duplicated key.] */
+        return builder.buildSorted();
+    }
+
+    /**
+     * Write the entries of this node as JSON fields of an object already opened on the writer.
+     */
+    void writeEntries(JsonWriter writer) throws IOException
+    {
+        /* Codes_SRS_TWIN_TREE_NODE_44_013: [The writeEntries shall write every entry as a JSON field in key order, including the null entries.] */
+        for (int i = 0; i < this.keys.length; i++)
+        {
+            writer.name(this.keys[i]);
+            switch (this.kinds[i])
+            {
+                case KIND_FALSE:
+                    writer.value(false);
+                    break;
+                case KIND_TRUE:
+                    writer.value(true);
+                    break;
+                case KIND_LONG:
+                    writer.value(this.primitives[i]);
+                    break;
+                case KIND_DOUBLE:
+                    writer.value(Double.longBitsToDouble(this.primitives[i]));
+                    break;
+                case KIND_STRING:
+                    writer.value((String) this.references[i]);
+                    break;
+                case KIND_NODE:
+                    writer.beginObject();
+                    ((TwinTreeNode) this.references[i]).writeEntries(writer);
+                    writer.endObject();
+                    break;
+                default:
+                    writer.nullValue();
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Accumulates the entries of a node; {@link #build()} expects them in key order.
+     */
+    private static final class Builder
+    {
+        private String[] keys;
+        private byte[] kinds;
+        private long[] primitives;
+        private Object[] references;
+        private int count;
+        private boolean hasPrimitives;
+        private boolean hasReferences;
+
+        private Builder(int capacity)
+        {
+            this.keys = new String[capacity];
+            this.kinds = new byte[capacity];
+            this.primitives = new long[capacity];
+            this.references = new Object[capacity];
+        }
+
+        private static Builder copyOf(TwinTreeNode node)
+        {
+            Builder builder = new Builder(node.keys.length);
+            for (int i = 0; i < node.keys.length; i++)
+            {
+                builder.copy(node, i);
+            }
+            return builder;
+        }
+
+        private void add(String key, byte kind, long primitive, Object reference)
+        {
+            if (this.count == this.keys.length)
+            {
+                int capacity = Math.max(4, this.count * 2);
+                this.keys = Arrays.copyOf(this.keys, capacity);
+                this.kinds = Arrays.copyOf(this.kinds, capacity);
+                this.primitives = Arrays.copyOf(this.primitives, capacity);
+                this.references = Arrays.copyOf(this.references, capacity);
+            }
+
+            this.keys[this.count] = key;
+            this.kinds[this.count] = kind;
+            this.primitives[this.count] = primitive;
+            this.references[this.count] = reference;
+            this.hasPrimitives |= kind == KIND_LONG || kind == KIND_DOUBLE;
+            this.hasReferences |= kind == KIND_STRING || kind == KIND_NODE;
+            this.count++;
+        }
+
+        private void copy(TwinTreeNode node, int index)
+        {
+            add(node.keys[index], node.kinds[index],
+                    node.primitives == null ? 0 : node.primitives[index],
+                    node.references == null ? null : node.references[index]);
+        }
+
+        private void addNull(String key)
+        {
+            add(key.intern(), KIND_NULL, 0, null);
+        }
+
+        private void addBoolean(String key, boolean value)
+        {
+            add(key.intern(), value ? KIND_TRUE : KIND_FALSE, 0, null);
+        }
+
+        private void addNumber(String key, String number)
+        {
+            /* Codes_SRS_TWIN_TREE_NODE_44_004: [The read shall store the integer numbers that fit in a long as longs, and the other numbers as doubles.] */
+            if (number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0)
+            {
+                try
+                {
+                    add(key.intern(), KIND_LONG, Long.parseLong(number), null);
+                    return;
+                }
+                catch (NumberFormatException e)
+                {
+                    // too large for a long, keep it as a double
+                }
+            }
+
+            add(key.intern(), KIND_DOUBLE, Double.doubleToRawLongBits(Double.parseDouble(number)), null);
+        }
+
+        private void addString(String key, String value)
+        {
+            add(key.intern(), KIND_STRING, 0, value);
+        }
+
+        private void addNode(String key, TwinTreeNode node)
+        {
+            add(key.intern(), KIND_NODE, 0, node);
+        }
+
+        private int find(String key)
+        {
+            return Arrays.binarySearch(this.keys, 0, this.count, key);
+        }
+
+        private void remove(String key)
+        {
+            int index = find(key);
+            int moved = this.count - index - 1;
+            System.arraycopy(this.keys, index + 1, this.keys, index, moved);
+            System.arraycopy(this.kinds, index + 1, this.kinds, index, moved);
+            System.arraycopy(this.primitives, index + 1, this.primitives, index, moved);
+            System.arraycopy(this.references, index + 1, this.references, index, moved);
+            this.count--;
+        }
+
+        private void replaceNode(String key, TwinTreeNode node)
+        {
+            this.references[find(key)] = node;
+        }
+
+        /**
+         * Sort the entries read in document order; for duplicated keys, the last one wins.
+         */
+        private TwinTreeNode buildSorted()
+        {
+            Integer[] order = new Integer[this.count];
+            for (int i = 0; i < this.count; i++)
+            {
+                order[i] = i;
+            }
+
+            final String[] unsortedKeys = this.keys;
+            Arrays.sort(order, new Comparator<Integer>()
+            {
+                @Override
+                public int compare(Integer first, Integer second)
+                {
+                    int comparison = unsortedKeys[first].compareTo(unsortedKeys[second]);
+                    return comparison != 0 ? comparison : first.compareTo(second);
+                }
+            });
+
+            Builder sorted = new Builder(this.count);
+            for (int i = 0; i < this.count; i++)
+            {
+                int index = order[i];
+                if (i + 1 < this.count && unsortedKeys[index].equals(unsortedKeys[order[i + 1]]))
+                {
+                    continue;
+                }
+                sorted.add(this.keys[index], this.kinds[index], this.primitives[index], this.references[index]);
+            }
+
+            return sorted.build();
+        }
+
+        private TwinTreeNode build()
+        {
+            if (this.count == 0)
+            {
+                return EMPTY;
+            }
+
+            boolean containsNull = false;
+            for (int i = 0; i < this.count && !containsNull; i++)
+            {
+                containsNull = this.kinds[i] == KIND_NULL
+                        || (this.kinds[i] == KIND_NODE && ((TwinTreeNode) this.references[i]).containsNull);
+            }
+
+            return new TwinTreeNode(
+                    Arrays.copyOf(this.keys, this.count),
+                    Arrays.copyOf(this.kinds, this.count),
+                    this.hasPrimitives ? Arrays.copyOf(this.primitives, this.count) : null,
+                    this.hasReferences ? Arrays.copyOf(this.references, this.count) : null,
+                    containsNull);
+        }
+    }
+
+    /**
+     * Read only {@code Map} adapter over a node.
+     */
+    private static final class MapView extends AbstractMap<String, Object>
+    {
+        private final TwinTreeNode node;
+
+        private MapView(TwinTreeNode node)
+        {
+            this.node = node;
+        }
+
+        @Override
+        public int size()
+        {
+            return this.node.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key)
+        {
+            return (key instanceof String) && this.node.indexOf((String) key) >= 0;
+        }
+
+        @Override
+        public Object get(Object key)
+        {
+            if (!(key instanceof String))
+            {
+                return null;
+            }
+
+            int index = this.node.indexOf((String) key);
+            return index < 0 ? null : this.node.valueAt(index);
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet()
+        {
+            return new AbstractSet<Entry<String, Object>>()
+            {
+                @Override
+                public int size()
+                {
+                    return node.size();
+                }
+
+                @Override
+                public Iterator<Entry<String, Object>> iterator()
+                {
+                    return new Iterator<Entry<String, Object>>()
+                    {
+                        private int index;
+
+                        @Override
+                        public boolean hasNext()
+                        {
+                            return this.index < node.size();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next()
+                        {
+                            if (!hasNext())
+                            {
+                                throw new NoSuchElementException();
+                            }
+                            int current = this.index++;
+                            return new SimpleImmutableEntry<>(node.keyAt(current), node.valueAt(current));
+                        }
+
+                        @Override
+                        public void remove()
+                        {
+                            /* Codes_SRS_TWIN_TREE_NODE_44_014: [The asMap shall return a read only Map adapter over the node, without copying its entries.] */
+                            throw new UnsupportedOperationException("The twin tree is immutable");
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
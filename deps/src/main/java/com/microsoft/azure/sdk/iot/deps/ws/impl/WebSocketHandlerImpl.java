@@ -7,17 +7,25 @@ package com.microsoft.azure.sdk.iot.deps.ws.impl;
 import com.microsoft.azure.sdk.iot.deps.ws.WebSocketHandler;
 import com.microsoft.azure.sdk.iot.deps.ws.WebSocketHeader;
 
-import java.io.ByteArrayOutputStream;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.security.SecureRandom;
 import java.util.Map;
-import java.util.Random;
 
 public class WebSocketHandlerImpl implements WebSocketHandler
 {
+    private static final int MASKING_KEY_LENGTH = 4;
+    private static final int MASKING_KEY_POOL_SIZE = 64 * MASKING_KEY_LENGTH;
+
     private WebSocketUpgrade _webSocketUpgrade = null;
 
+    // Each connection has its own handler, and so its own source of masking keys. SecureRandom is seeded once, on
+    // the first frame, and does not block afterwards.
+    private SecureRandom _maskingKeySource = null;
+    private final byte[] _maskingKeyPool = new byte[MASKING_KEY_POOL_SIZE];
+    private int _maskingKeyPoolPosition = MASKING_KEY_POOL_SIZE;
+
     @Override
     public String createUpgradeRequest(String hostName, String webSocketPath, int webSocketPort, String webSocketProtocol, Map<String, String> additionalHeaders)
     {
@@ -83,23 +91,27 @@ public class WebSocketHandlerImpl implements WebSocketHandler
             throw new IllegalArgumentException("input parameter is null");
         }
 
+        dstBuffer.clear();
+
         if (srcBuffer.remaining() > 0)
         {
-            // We always send masked data
-            // RFC: "client MUST mask all frames that it sends to the server"
-            final byte[] MASKING_KEY = createRandomMaskingKey();
-
             // Get data length
             final int DATA_LENGTH = srcBuffer.remaining();
 
-            // Auto growing buffer for the WS frame, initialized to minimum size
-            ByteArrayOutputStream webSocketFrame = new ByteArrayOutputStream(WebSocketHeader.MIN_HEADER_LENGTH_MASKED + DATA_LENGTH);
+            // The frame is written straight into the destination buffer, so it must fit
+            if (dstBuffer.capacity() < calculateHeaderSize(DATA_LENGTH) + DATA_LENGTH)
+            {
+                throw new OutOfMemoryError("insufficient output buffer size");
+            }
+
+            // We always send masked data
+            // RFC: "client MUST mask all frames that it sends to the server"
+            final byte[] MASKING_KEY = createRandomMaskingKey();
 
             // Create the first byte
             // We always send final WebSocket frame
             // We always send binary message (AMQP)
-            byte firstByte = (byte) (WebSocketHeader.FINBIT_MASK | WebSocketHeader.OPCODE_BINARY);
-            webSocketFrame.write(firstByte);
+            dstBuffer.put((byte) (WebSocketHeader.FINBIT_MASK | WebSocketHeader.OPCODE_BINARY));
 
             // Create the second byte
             // RFC: "client MUST mask all frames that it sends to the server"
@@ -108,65 +120,62 @@ public class WebSocketHandlerImpl implements WebSocketHandler
             // RFC: The length of the "Payload data", in bytes: if 0-125, that is the payload length.
             if (DATA_LENGTH <= WebSocketHeader.PAYLOAD_SHORT_MAX)
             {
-                secondByte = (byte) (secondByte | DATA_LENGTH);
-                webSocketFrame.write(secondByte);
+                dstBuffer.put((byte) (secondByte | DATA_LENGTH));
             }
             // RFC: If 126, the following 2 bytes interpreted as a 16-bit unsigned integer are the payload length
             else if (DATA_LENGTH <= WebSocketHeader.PAYLOAD_MEDIUM_MAX)
             {
-                // Create payload byte
-                secondByte = (byte) (secondByte | WebSocketHeader.PAYLOAD_EXTENDED_16);
-                webSocketFrame.write(secondByte);
-
-                // Create extended length bytes
-                webSocketFrame.write((byte) (DATA_LENGTH >>> 8));
-                webSocketFrame.write((byte) (DATA_LENGTH));
+                dstBuffer.put((byte) (secondByte | WebSocketHeader.PAYLOAD_EXTENDED_16));
+                dstBuffer.put((byte) (DATA_LENGTH >>> 8));
+                dstBuffer.put((byte) (DATA_LENGTH));
             }
             // RFC: If 127, the following 8 bytes interpreted as a 64-bit unsigned integer (the most significant bit MUST be 0) are the payload length.
             // No need for "else if" because if it is longer than what 8 byte length can hold... all bets are off anyway
             else
             {
-                secondByte = (byte) (secondByte | WebSocketHeader.PAYLOAD_EXTENDED_64);
-                webSocketFrame.write(secondByte);
-
-                webSocketFrame.write((byte) (DATA_LENGTH >>> 56));
-                webSocketFrame.write((byte) (DATA_LENGTH >>> 48));
-                webSocketFrame.write((byte) (DATA_LENGTH >>> 40));
-                webSocketFrame.write((byte) (DATA_LENGTH >>> 32));
-                webSocketFrame.write((byte) (DATA_LENGTH >>> 24));
-                webSocketFrame.write((byte) (DATA_LENGTH >>> 16));
-                webSocketFrame.write((byte) (DATA_LENGTH >>> 8));
-                webSocketFrame.write((byte) (DATA_LENGTH));
+                dstBuffer.put((byte) (secondByte | WebSocketHeader.PAYLOAD_EXTENDED_64));
+
+                final long LONG_DATA_LENGTH = DATA_LENGTH;
+                for (int shift = 56; shift >= 0; shift -= 8)
+                {
+                    dstBuffer.put((byte) (LONG_DATA_LENGTH >>> shift));
+                }
             }
 
             // Write mask
-            webSocketFrame.write(MASKING_KEY[0]);
-            webSocketFrame.write(MASKING_KEY[1]);
-            webSocketFrame.write(MASKING_KEY[2]);
-            webSocketFrame.write(MASKING_KEY[3]);
+            dstBuffer.put(MASKING_KEY);
 
             // Write masked data
-            for (int i = 0; i < DATA_LENGTH; i++)
-            {
-                byte nextByte = srcBuffer.get();
-                nextByte ^= MASKING_KEY[i % 4];
-                webSocketFrame.write(nextByte);
-            }
+            maskPayload(srcBuffer, dstBuffer, MASKING_KEY, DATA_LENGTH);
+        }
+    }
 
-            // Copy frame to destination buffer
-            dstBuffer.clear();
-            if (dstBuffer.capacity() >= webSocketFrame.size())
+    /**
+     * Copy the payload from the source buffer to the destination buffer, masking it on the way. The payload is
+     * processed eight bytes at a time when both buffers use the same byte order: the masking key repeats every four
+     * bytes, so masking a long is a single xor with the key repeated twice.
+     */
+    private static void maskPayload(ByteBuffer srcBuffer, ByteBuffer dstBuffer, byte[] maskingKey, int length)
+    {
+        int i = 0;
+        if (srcBuffer.order() == dstBuffer.order())
+        {
+            long mask = 0;
+            for (int j = 0; j < Long.SIZE / Byte.SIZE; j++)
             {
-                dstBuffer.put(webSocketFrame.toByteArray());
+                int keyIndex = (srcBuffer.order() == ByteOrder.BIG_ENDIAN) ? (j % 4) : (3 - j % 4);
+                mask = (mask << 8) | (maskingKey[keyIndex] & 0xFF);
             }
-            else
+
+            for (; i + 8 <= length; i += 8)
             {
-                throw new OutOfMemoryError("insufficient output buffer size");
+                dstBuffer.putLong(srcBuffer.getLong() ^ mask);
             }
         }
-        else
+
+        for (; i < length; i++)
         {
-            dstBuffer.clear();
+            dstBuffer.put((byte) (srcBuffer.get() ^ maskingKey[i % 4]));
         }
     }
 
@@ -182,7 +191,7 @@ public class WebSocketHandlerImpl implements WebSocketHandler
 
         WebSocketMessageType retVal = WebSocketMessageType.WEB_SOCKET_MESSAGE_TYPE_UNKNOWN;
 
-        if (srcBuffer.remaining() > WebSocketHeader.MIN_HEADER_LENGTH)
+        if (srcBuffer.remaining() >= WebSocketHeader.MIN_HEADER_LENGTH)
         {
             // Read the first byte
             byte firstByte = srcBuffer.get();
@@ -265,9 +274,25 @@ public class WebSocketHandlerImpl implements WebSocketHandler
 
     protected byte[] createRandomMaskingKey()
     {
-        final byte[] maskingKey = new byte[4];
-        Random random = new SecureRandom();
-        random.nextBytes(maskingKey);
+        final byte[] maskingKey = new byte[MASKING_KEY_LENGTH];
+
+        synchronized (_maskingKeyPool)
+        {
+            // Draw the keys of several frames at once from the random source of this connection
+            if (_maskingKeyPoolPosition == _maskingKeyPool.length)
+            {
+                if (_maskingKeySource == null)
+                {
+                    _maskingKeySource = new SecureRandom();
+                }
+
+                _maskingKeySource.nextBytes(_maskingKeyPool);
+                _maskingKeyPoolPosition = 0;
+            }
+
+            System.arraycopy(_maskingKeyPool, _maskingKeyPoolPosition, maskingKey, 0, MASKING_KEY_LENGTH);
+            _maskingKeyPoolPosition += MASKING_KEY_LENGTH;
+        }
 
         return maskingKey;
     }
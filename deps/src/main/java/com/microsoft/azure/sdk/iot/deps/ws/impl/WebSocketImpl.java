@@ -17,7 +17,6 @@ import java.util.Map;
 import static com.microsoft.azure.sdk.iot.deps.ws.WebSocketHandler.WebSocketMessageType.WEB_SOCKET_MESSAGE_TYPE_HEADER_CHUNK;
 import static com.microsoft.azure.sdk.iot.deps.ws.WebSocketHandler.WebSocketMessageType.WEB_SOCKET_MESSAGE_TYPE_UNKNOWN;
 import static org.apache.qpid.proton.engine.impl.ByteBufferUtils.newWriteableBuffer;
-import static org.apache.qpid.proton.engine.impl.ByteBufferUtils.pourAll;
 
 public class WebSocketImpl implements WebSocket, TransportLayer
 {
@@ -27,8 +26,8 @@ public class WebSocketImpl implements WebSocket, TransportLayer
     private boolean _head_closed = false;
     private final ByteBuffer _outputBuffer;
     private ByteBuffer _pingBuffer;
-    private ByteBuffer _wsInputBuffer;
-    private ByteBuffer _temp;
+    private ByteBuffer _wsInputBuffer; // no longer used by the decoder, kept for getWsInputBuffer()
+    private ByteBuffer _temp; // header of the frame being decoded
 
     private int _underlyingOutputSize = 0;
     private int _webSocketHeaderSize = 0;
@@ -47,7 +46,7 @@ public class WebSocketImpl implements WebSocket, TransportLayer
     private WebSocketHandler.WebSocketMessageType _lastType;
     private long _lastLength;
     private long _bytesRead = 0;
-    private int _dataStart = 0;
+    private boolean _underlyingInputPending = false;
     private WebSocketFrameReadState _frameReadState = WebSocketFrameReadState.INIT_READ;
 
     public WebSocketImpl()
@@ -56,7 +55,7 @@ public class WebSocketImpl implements WebSocket, TransportLayer
         _outputBuffer = newWriteableBuffer(_maxFrameSize);
         _pingBuffer = newWriteableBuffer(_maxFrameSize);
         _wsInputBuffer = newWriteableBuffer(_maxFrameSize);
-        _temp = newWriteableBuffer(_maxFrameSize);
+        _temp = newWriteableBuffer(WebSocketHeader.MAX_HEADER_LENGTH_MASKED);
         _lastType = WEB_SOCKET_MESSAGE_TYPE_UNKNOWN;
         _lastLength = 0;
         _isWebSocketEnabled = false;
@@ -213,6 +212,21 @@ public class WebSocketImpl implements WebSocket, TransportLayer
         _outputBuffer.put(_pingBuffer);
     }
 
+    /**
+     * Copy up to {@code length} bytes from the source buffer to the destination buffer, without allocating.
+     *
+     * @return the number of bytes copied.
+     */
+    private static int pourSlice(ByteBuffer source, ByteBuffer destination, int length)
+    {
+        int count = Math.min(length, Math.min(source.remaining(), destination.remaining()));
+        int limit = source.limit();
+        source.limit(source.position() + count);
+        destination.put(source);
+        source.limit(limit);
+        return count;
+    }
+
     private class WebSocketTransportWrapper implements TransportWrapper
     {
         private final TransportInput _underlyingInput;
@@ -227,62 +241,13 @@ public class WebSocketImpl implements WebSocket, TransportLayer
             _head.limit(0);
         }
 
-        private void readInputBuffer()
-        {
-            ByteBufferUtils.pour(_inputBuffer, _temp);
-        }
-
-        private boolean sendToUnderlyingInput()
-        {
-            boolean _readComplete =  false;
-            switch (_lastType)
-            {
-                case WEB_SOCKET_MESSAGE_TYPE_UNKNOWN:
-                    _wsInputBuffer.position(_wsInputBuffer.limit());
-                    _wsInputBuffer.limit(_wsInputBuffer.capacity());
-                    break;
-                case WEB_SOCKET_MESSAGE_TYPE_CHUNK:
-                    _wsInputBuffer.position(_wsInputBuffer.limit());
-                    _wsInputBuffer.limit(_wsInputBuffer.capacity());
-                    break;
-                case WEB_SOCKET_MESSAGE_TYPE_AMQP:
-                    _wsInputBuffer.flip();
-
-                    int bytes2 = pourAll(_wsInputBuffer, _underlyingInput);
-                    if (bytes2 == Transport.END_OF_STREAM)
-                    {
-                        _tail_closed = true;
-                    }
-                    //_underlyingInput.process();
-
-                    _wsInputBuffer.compact();
-                    _wsInputBuffer.flip();
-                    _readComplete = true;
-                    break;
-                case WEB_SOCKET_MESSAGE_TYPE_CLOSE:
-                    _wsInputBuffer.flip();
-                    _pingBuffer.put(_wsInputBuffer);
-                    _state = WebSocketState.PN_WS_CONNECTED_CLOSING;
-
-                    _wsInputBuffer.compact();
-                    _wsInputBuffer.flip();
-                    _readComplete = true;
-                    break;
-                case WEB_SOCKET_MESSAGE_TYPE_PING:
-                    _wsInputBuffer.flip();
-                    _pingBuffer.put(_wsInputBuffer);
-                    _state = WebSocketState.PN_WS_CONNECTED_PONG;
-
-                    _wsInputBuffer.compact();
-                    _wsInputBuffer.flip();
-                    _readComplete = true;
-                    break;
-            }
-            _wsInputBuffer.position(_wsInputBuffer.limit());
-            _wsInputBuffer.limit(_wsInputBuffer.capacity());
-            return _readComplete;
-        }
-
+        /**
+         * Decode the frames in the input buffer. The decoder is a state machine that keeps its place across calls:
+         * the header of a frame is gathered in a small buffer until it is complete, even if it arrives in several
+         * reads, and then the payload is forwarded as slices of the input buffer. AMQP payload goes straight to the
+         * tail of the underlying input, which is processed once per call, and ping or close payload goes to the ping
+         * buffer.
+         */
         private void processInput() throws TransportException
         {
             switch (_state)
@@ -296,96 +261,79 @@ public class WebSocketImpl implements WebSocket, TransportLayer
                     break;
                 case PN_WS_CONNECTED_FLOW:
                 case PN_WS_CONNECTED_PONG:
-
-                    if (_inputBuffer.remaining() > 0)
+                    _underlyingInputPending = false;
+                    boolean progress = true;
+                    while (progress)
                     {
-                        boolean _readComplete = false;
-                        while(!_readComplete) {
-                            switch (_frameReadState)
-                            {
-                                //State 1: Init_Read
-                                case INIT_READ:
-                                    //Reset the bytes read count
-                                    _bytesRead = 0;
-                                    //Determine how much to grab from the input buffer and only take that
-                                    readInputBuffer();
-
-                                    _frameReadState = _temp.position() < 2 ? WebSocketFrameReadState.CHUNK_READ : WebSocketFrameReadState.HEADER_READ;
-                                    _readComplete = _frameReadState == WebSocketFrameReadState.CHUNK_READ;
-                                    break;
-
-                                //State 2: Chunk_Read
-                                case CHUNK_READ:
-                                    //Determine how much to grab from the input buffer and only take that
-                                    readInputBuffer();
-
-                                    _frameReadState = _temp.position() < 2 ? _frameReadState : WebSocketFrameReadState.HEADER_READ;
-                                    _readComplete = _frameReadState == WebSocketFrameReadState.CHUNK_READ;
-                                    break;
-
-                                //State 3: Header_Read
-                                case HEADER_READ:
-                                    //Determine how much to grab from the input buffer and only take that
-                                    readInputBuffer();
-
-                                    _temp.flip();
-                                    WebSocketHandler.WebsocketTuple unwrapResult = unwrapBuffer(_temp);
-                                    _lastType = unwrapResult.getType();
-                                    _lastLength = unwrapResult.getLength();
-
-                                    _frameReadState = _lastType == WEB_SOCKET_MESSAGE_TYPE_HEADER_CHUNK ? WebSocketFrameReadState.CHUNK_READ : WebSocketFrameReadState.CONTINUED_FRAME_READ;
-                                    _readComplete = _frameReadState == WebSocketFrameReadState.CHUNK_READ || _temp.position() == _temp.limit();
-
-                                    if(_frameReadState == WebSocketFrameReadState.CONTINUED_FRAME_READ)
-                                    {
-                                        _temp.compact();
-                                    }
-                                    else
-                                    {
-                                        //Unflip the buffer to continue writing to it
-                                        _temp.position(_temp.limit());
-                                        _temp.limit(_temp.capacity());
-                                    }
-
-                                    break;
-
-                                //State 4: Continued_Frame_Read (Similar to Chunk_Read but reading until we've read the number of bytes specified when unwrapping the buffer)
-                                case CONTINUED_FRAME_READ:
-                                    //Determine how much to grab from the input buffer and only take that
-                                    readInputBuffer();
-                                    _temp.flip();
-
-                                    final byte[] data;
-                                    if(_temp.remaining() >= _lastLength-_bytesRead)
-                                    {
-                                        data = new byte[(int)(_lastLength-_bytesRead)];
-                                        _temp.get(data, 0, (int)(_lastLength-_bytesRead));
-                                        _wsInputBuffer.put(data);
-                                        _bytesRead += _lastLength-_bytesRead;
-                                    }
-                                    //Otherwise the remaining bytes is < the rest that we need
-                                    else
-                                    {
-                                        data = new byte[_temp.remaining()];
-                                        _temp.get(data);
-                                        _wsInputBuffer.put(data);
-                                        _bytesRead += data.length;
-                                    }
-
-                                    //Send whatever we have
-                                    sendToUnderlyingInput();
-
-                                    _frameReadState = _bytesRead == _lastLength ? WebSocketFrameReadState.INIT_READ : WebSocketFrameReadState.CONTINUED_FRAME_READ;
-                                    _readComplete = _temp.remaining() == 0;
-                                    _temp.compact();
-                                    break;
-
-                                //State 5: Read_Error
-                                case READ_ERROR:
+                        switch (_frameReadState)
+                        {
+                            //State 1: Init_Read, a new frame starts
+                            case INIT_READ:
+                                _temp.clear();
+                                _bytesRead = 0;
+                                _frameReadState = WebSocketFrameReadState.CHUNK_READ;
+                                break;
+
+                            //State 2: Chunk_Read, gather the header until it is complete
+                            case CHUNK_READ:
+                                int missing = headerLength() - _temp.position();
+                                if (missing <= 0)
+                                {
+                                    _frameReadState = WebSocketFrameReadState.HEADER_READ;
+                                }
+                                else if (_inputBuffer.hasRemaining())
+                                {
+                                    pourSlice(_inputBuffer, _temp, missing);
+                                }
+                                else
+                                {
+                                    progress = false;
+                                }
+                                break;
+
+                            //State 3: Header_Read, decode the complete header
+                            case HEADER_READ:
+                                _temp.flip();
+                                WebSocketHandler.WebsocketTuple unwrapResult = unwrapBuffer(_temp);
+                                _lastType = unwrapResult.getType();
+                                _lastLength = unwrapResult.getLength();
+
+                                // Whatever the handler did not consume from the header buffer is payload
+                                _frameReadState = _lastType == WEB_SOCKET_MESSAGE_TYPE_HEADER_CHUNK || _lastLength < 0 ?
+                                        WebSocketFrameReadState.READ_ERROR : WebSocketFrameReadState.CONTINUED_FRAME_READ;
+                                break;
+
+                            //State 4: Continued_Frame_Read, forward the payload until the frame is complete
+                            case CONTINUED_FRAME_READ:
+                                if (_bytesRead == _lastLength)
+                                {
+                                    frameComplete();
+                                    _frameReadState = WebSocketFrameReadState.INIT_READ;
                                     break;
-                            }
+                                }
+
+                                ByteBuffer source = _temp.hasRemaining() ? _temp : _inputBuffer;
+                                int available = (int) Math.min(_lastLength - _bytesRead, source.remaining());
+                                int forwarded = available > 0 ? forwardPayload(source, available) : 0;
+                                _bytesRead += forwarded;
+                                progress = forwarded > 0;
+                                break;
+
+                            //State 5: Read_Error, the frames cannot be decoded anymore
+                            case READ_ERROR:
+                            default:
+                                _inputBuffer.position(_inputBuffer.limit());
+                                progress = false;
+                                break;
                         }
                     }
+
+                    if (_underlyingInputPending)
+                    {
+                        _underlyingInputPending = false;
+                        _underlyingInput.process();
+                    }
+
                     _inputBuffer.compact();
                     break;
                 case PN_WS_NOT_STARTED:
@@ -396,6 +344,88 @@ public class WebSocketImpl implements WebSocket, TransportLayer
             }
         }
 
+        /**
+         * @return the length of the header of the current frame, as far as it can be told from the bytes gathered.
+         */
+        private int headerLength()
+        {
+            if (_temp.position() < WebSocketHeader.MIN_HEADER_LENGTH)
+            {
+                return WebSocketHeader.MIN_HEADER_LENGTH;
+            }
+
+            byte payloadLength = (byte) (_temp.get(1) & WebSocketHeader.PAYLOAD_MASK);
+            if (payloadLength == WebSocketHeader.PAYLOAD_EXTENDED_16)
+            {
+                return WebSocketHeader.MED_HEADER_LENGTH_NOMASK;
+            }
+            else if (payloadLength == WebSocketHeader.PAYLOAD_EXTENDED_64)
+            {
+                return WebSocketHeader.MAX_HEADER_LENGTH_NOMASK;
+            }
+
+            return WebSocketHeader.MIN_HEADER_LENGTH;
+        }
+
+        /**
+         * Forward a slice of the payload of the current frame.
+         *
+         * @return the number of bytes forwarded, 0 if the destination cannot take more now.
+         */
+        private int forwardPayload(ByteBuffer source, int length) throws TransportException
+        {
+            switch (_lastType)
+            {
+                case WEB_SOCKET_MESSAGE_TYPE_AMQP:
+                case WEB_SOCKET_MESSAGE_TYPE_CHUNK:
+                    int capacity = _underlyingInput.capacity();
+                    if ((capacity == 0) && _underlyingInputPending)
+                    {
+                        // Let the underlying input consume what it was given so far, and try again
+                        _underlyingInputPending = false;
+                        _underlyingInput.process();
+                        capacity = _underlyingInput.capacity();
+                    }
+
+                    if (capacity == Transport.END_OF_STREAM)
+                    {
+                        _tail_closed = true;
+                        source.position(source.position() + length);
+                        return length;
+                    }
+
+                    int forwarded = pourSlice(source, _underlyingInput.tail(), Math.min(length, capacity));
+                    _underlyingInputPending |= forwarded > 0;
+                    return forwarded;
+                case WEB_SOCKET_MESSAGE_TYPE_PING:
+                case WEB_SOCKET_MESSAGE_TYPE_CLOSE:
+                    int copied = pourSlice(source, _pingBuffer, length);
+                    if (copied < length)
+                    {
+                        // The control frame does not fit in the ping buffer, drop the rest of it
+                        source.position(source.position() + length - copied);
+                    }
+                    return length;
+                case WEB_SOCKET_MESSAGE_TYPE_UNKNOWN:
+                default:
+                    // Skip the payload of the frames that are not understood
+                    source.position(source.position() + length);
+                    return length;
+            }
+        }
+
+        private void frameComplete()
+        {
+            if (_lastType == WebSocketHandler.WebSocketMessageType.WEB_SOCKET_MESSAGE_TYPE_PING)
+            {
+                _state = WebSocketState.PN_WS_CONNECTED_PONG;
+            }
+            else if (_lastType == WebSocketHandler.WebSocketMessageType.WEB_SOCKET_MESSAGE_TYPE_CLOSE)
+            {
+                _state = WebSocketState.PN_WS_CONNECTED_CLOSING;
+            }
+        }
+
         @Override
         public int capacity()
         {
@@ -0,0 +1,135 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.deps.auth;
+
+import com.microsoft.azure.sdk.iot.deps.auth.IotHubCertificateManager;
+import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContext;
+import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContextCache;
+import mockit.Deencapsulation;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.TrustManager;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for IotHubSSLContextCache.
+ */
+public class IotHubSSLContextCacheTest
+{
+    private static final String PUBLIC_KEY_CERTIFICATE = "somePublicKeyCertificate";
+    private static final String PRIVATE_KEY = "somePrivateKey";
+
+    @Before
+    public void clearCache()
+    {
+        IotHubSSLContextCache.clear();
+    }
+
+    // Tests_SRS_IOTHUBSSLCONTEXTCACHE_44_003: [The function shall return the SSLContext cached for the trust key and the digest of the client keys, and build it only if there is none.]
+    // Tests_SRS_IOTHUBSSLCONTEXTCACHE_44_005: [The function shall enable the client session cache of the SSLContext so that TLS sessions can be resumed.]
+    @Test
+    public void getSSLContextSharesTheContextOfTheSameTrustedCert() throws IOException, GeneralSecurityException
+    {
+        //act
+        IotHubSSLContext first = IotHubSSLContextCache.getSSLContext(null, false);
+        IotHubSSLContext second = IotHubSSLContextCache.getSSLContext(null, false);
+
+        //assert
+        assertSame(first, second);
+        SSLSessionContext sessionContext = first.getSSLContext().getClientSessionContext();
+        assertTrue(sessionContext.getSessionCacheSize() > 0);
+        assertTrue(sessionContext.getSessionTimeout() > 0);
+    }
+
+    // Tests_SRS_IOTHUBSSLCONTEXTCACHE_44_002: [The function shall key the trust managers by the trusted certificate digest, by the path, size and modification time of the trusted certificate file, or by the default certificates.]
+    @Test
+    public void getSSLContextSeparatesTheContextsOfDifferentTrustedCerts() throws IOException, GeneralSecurityException
+    {
+        //arrange
+        String defaultCert = Deencapsulation.getField(IotHubCertificateManager.class, "DEFAULT_CERT");
+
+        //act
+        IotHubSSLContext defaultContext = IotHubSSLContextCache.getSSLContext(null, false);
+        IotHubSSLContext explicitContext = IotHubSSLContextCache.getSSLContext(defaultCert, false);
+
+        //assert
+        assertNotSame(defaultContext, explicitContext);
+        assertSame(explicitContext, IotHubSSLContextCache.getSSLContext(new String(defaultCert), false));
+    }
+
+    // Tests_SRS_IOTHUBSSLCONTEXTCACHE_44_004: [The function shall build the SSLContext from the client keys, if any, and the shared trust managers.]
+    @Test
+    public void getSSLContextSharesTheTrustManagersBetweenDifferentKeys(@Mocked final IotHubSSLContext mockIotHubSSLContext) throws IOException, GeneralSecurityException
+    {
+        //act
+        IotHubSSLContext first = IotHubSSLContextCache.getSSLContext(PUBLIC_KEY_CERTIFICATE, PRIVATE_KEY, null, false);
+        IotHubSSLContext second = IotHubSSLContextCache.getSSLContext(PUBLIC_KEY_CERTIFICATE, PRIVATE_KEY, null, false);
+        IotHubSSLContextCache.getSSLContext("otherPublicKeyCertificate", "otherPrivateKey", null, false);
+
+        //assert
+        assertSame(first, second);
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(IotHubSSLContext.class, "generateTrustManagers", new Class[] {IotHubCertificateManager.class}, (IotHubCertificateManager) any);
+                times = 1;
+                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, String.class, TrustManager[].class}, PUBLIC_KEY_CERTIFICATE, PRIVATE_KEY, (TrustManager[]) any);
+                times = 1;
+                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, String.class, TrustManager[].class}, "otherPublicKeyCertificate", "otherPrivateKey", (TrustManager[]) any);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_IOTHUBSSLCONTEXTCACHE_44_001: [If only one of the public key certificate and the private key is provided, the function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void getSSLContextThrowsIfOnlyThePublicKeyCertificateIsProvided() throws IOException, GeneralSecurityException
+    {
+        IotHubSSLContextCache.getSSLContext(PUBLIC_KEY_CERTIFICATE, null, null, false);
+    }
+
+    // Tests_SRS_IOTHUBSSLCONTEXTCACHE_44_003: [The function shall return the SSLContext cached for the trust key and the digest of the client keys, and build it only if there is none.]
+    @Test
+    public void getSSLContextDoesNotCacheFailures() throws GeneralSecurityException
+    {
+        //act
+        try
+        {
+            IotHubSSLContextCache.getSSLContext("notAnExistingPath", true);
+            fail("Expected an IOException");
+        }
+        catch (IOException expected)
+        {
+            // expected
+        }
+
+        //assert
+        Map<?, ?> sslContexts = Deencapsulation.getField(IotHubSSLContextCache.class, "sslContexts");
+        Map<?, ?> trustManagers = Deencapsulation.getField(IotHubSSLContextCache.class, "trustManagers");
+        assertTrue(sslContexts.isEmpty());
+        assertTrue(trustManagers.isEmpty());
+    }
+
+    // Tests_SRS_IOTHUBSSLCONTEXTCACHE_44_006: [The function shall remove every cached trust manager and SSLContext.]
+    @Test
+    public void clearRemovesTheCachedContexts() throws IOException, GeneralSecurityException
+    {
+        //arrange
+        IotHubSSLContext first = IotHubSSLContextCache.getSSLContext(null, false);
+
+        //act
+        IotHubSSLContextCache.clear();
+
+        //assert
+        assertNotSame(first, IotHubSSLContextCache.getSSLContext(null, false));
+    }
+}
@@ -146,6 +146,66 @@ public class IotHubSSLContextTest
         testCollection.remove(mockedX509Certificate);
     }
 
+    //Tests_SRS_IOTHUBSSLCONTEXT_44_004: [The function shall return the trust managers of a TrustManagerFactory initialized with a keystore holding the certificates of the certificate manager.]
+    @Test
+    public void generateTrustManagersLoadsTheCertificates() throws NoSuchAlgorithmException, KeyStoreException, KeyManagementException, IOException, CertificateException
+    {
+        //arrange
+        testCollection.add(mockedX509Certificate);
+        new NonStrictExpectations()
+        {
+            {
+                mockedTrustManagerFactory.getInstance(anyString);
+                result = mockedTrustManagerFactory;
+                mockedKeyStore.getInstance(anyString);
+                result = mockedKeyStore;
+                Deencapsulation.invoke(mockedCertificateManager, "getCertificateCollection");
+                result = testCollection;
+            }
+        };
+
+        //act
+        Deencapsulation.invoke(IotHubSSLContext.class, "generateTrustManagers", mockedCertificateManager);
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockedKeyStore.load(null);
+                times = 1;
+                mockedKeyStore.setCertificateEntry(anyString, mockedX509Certificate);
+                times = 1;
+                mockedTrustManagerFactory.init(mockedKeyStore);
+                times = 1;
+                mockedTrustManagerFactory.getTrustManagers();
+                times = 1;
+            }
+        };
+        testCollection.remove(mockedX509Certificate);
+    }
+
+    //Tests_SRS_IOTHUBSSLCONTEXT_44_001: [The constructor shall create an SSL context for TLSv1.2 initialized with the provided trust managers and a new secure random.]
+    @Test
+    public void constructorWithTrustManagersCreatesSSLContext() throws NoSuchAlgorithmException, KeyStoreException, KeyManagementException, IOException, CertificateException
+    {
+        //arrange
+        final TrustManager[] trustManagers = new TrustManager[0];
+        generateSSLContextExpectations();
+
+        //act
+        IotHubSSLContext testContext = Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {TrustManager[].class}, (Object) trustManagers);
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockedSSLContext.init(null, trustManagers, mockedSecureRandom);
+                times = 1;
+            }
+        };
+        assertNotNull(Deencapsulation.invoke(testContext, "getSSLContext"));
+    }
+
     //Tests_SRS_IOTHUBSSLCONTEXT_34_018: [This constructor shall generate a temporary password to protect the created keystore holding the private key.]
     //Tests_SRS_IOTHUBSSLCONTEXT_34_019: [The constructor shall create default SSL context for TLSv1.2.]
     //Tests_SRS_IOTHUBSSLCONTEXT_34_020: [The constructor shall create a keystore containing the public key certificate and the private key.]
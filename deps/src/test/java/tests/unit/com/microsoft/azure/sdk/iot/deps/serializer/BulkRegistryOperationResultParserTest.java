@@ -0,0 +1,142 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.deps.serializer;
+
+import com.microsoft.azure.sdk.iot.deps.serializer.BulkRegistryOperationResultParser;
+import com.microsoft.azure.sdk.iot.deps.serializer.DeviceRegistryOperationErrorParser;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Code coverage:
+ * Methods: 100%
+ * Lines: 100%
+ */
+public class BulkRegistryOperationResultParserTest
+{
+    private static final String SAMPLE_JSON =
+            "{\"isSuccessful\":false,\"errors\":[" +
+                "{\"deviceId\":\"device1\",\"errorCode\":\"DeviceAlreadyExists\",\"errorStatus\":\"A device with ID 'device1' is already registered.\"}," +
+                "{\"deviceId\":\"device2\",\"errorCode\":\"PreconditionFailed\",\"errorStatus\":\"ETag mismatch\"}" +
+            "],\"warnings\":[]}";
+
+    //Tests_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_44_001: [This constructor shall create and return an instance of a BulkRegistryOperationResultParser object based off the provided json.]
+    @Test
+    public void constructorFromJsonParsesErrors()
+    {
+        //act
+        BulkRegistryOperationResultParser parser = new BulkRegistryOperationResultParser(SAMPLE_JSON);
+
+        //assert
+        assertFalse(parser.getIsSuccessful());
+        assertEquals(2, parser.getErrors().size());
+        assertEquals("device1", parser.getErrors().get(0).getDeviceId());
+        assertEquals("DeviceAlreadyExists", parser.getErrors().get(0).getErrorCode());
+        assertEquals("A device with ID 'device1' is already registered.", parser.getErrors().get(0).getErrorStatus());
+        assertEquals("device2", parser.getErrors().get(1).getDeviceId());
+        assertEquals("PreconditionFailed", parser.getErrors().get(1).getErrorCode());
+    }
+
+    //Tests_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_44_003: [If the provided json has no errors array, this object's errors shall be an empty list.]
+    @Test
+    public void constructorFromJsonWithoutErrorsCreatesEmptyList()
+    {
+        //act
+        BulkRegistryOperationResultParser parser = new BulkRegistryOperationResultParser("{\"isSuccessful\":true}");
+
+        //assert
+        assertTrue(parser.getIsSuccessful());
+        assertNotNull(parser.getErrors());
+        assertTrue(parser.getErrors().isEmpty());
+    }
+
+    //Tests_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_44_004: [This method shall return a json representation of this.]
+    @Test
+    public void toJsonRoundTrips()
+    {
+        //arrange
+        BulkRegistryOperationResultParser parser = new BulkRegistryOperationResultParser(SAMPLE_JSON);
+
+        //act
+        BulkRegistryOperationResultParser processedParser = new BulkRegistryOperationResultParser(parser.toJson());
+
+        //assert
+        assertEquals(parser.getIsSuccessful(), processedParser.getIsSuccessful());
+        assertEquals(parser.getErrors().size(), processedParser.getErrors().size());
+        assertEquals(parser.getErrors().get(1).getErrorStatus(), processedParser.getErrors().get(1).getErrorStatus());
+    }
+
+    //Tests_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_44_002: [If the provided json is null, empty, or cannot be parsed into a BulkRegistryOperationResultParser object, an IllegalArgumentException shall be thrown.]
+    @Test (expected = IllegalArgumentException.class)
+    public void nullJsonForConstructorThrows()
+    {
+        //act
+        new BulkRegistryOperationResultParser(null);
+    }
+
+    //Tests_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_44_002: [If the provided json is null, empty, or cannot be parsed into a BulkRegistryOperationResultParser object, an IllegalArgumentException shall be thrown.]
+    @Test (expected = IllegalArgumentException.class)
+    public void emptyJsonForConstructorThrows()
+    {
+        //act
+        new BulkRegistryOperationResultParser("");
+    }
+
+    //Tests_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_44_002: [If the provided json is null, empty, or cannot be parsed into a BulkRegistryOperationResultParser object, an IllegalArgumentException shall be thrown.]
+    @Test (expected = IllegalArgumentException.class)
+    public void invalidJsonForConstructorThrows()
+    {
+        //act
+        new BulkRegistryOperationResultParser("}");
+    }
+
+    //Tests_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_44_005: [This method shall return the value of this object's isSuccessful.]
+    //Tests_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_44_006: [This method shall set the value of this object's isSuccessful equal to the provided value.]
+    //Tests_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_44_007: [This method shall return the value of this object's errors.]
+    //Tests_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_44_008: [This method shall set the value of this object's errors equal to the provided value.]
+    //Tests_SRS_DEVICE_REGISTRY_OPERATION_ERROR_PARSER_44_001: [This method shall return the value of this object's deviceId.]
+    //Tests_SRS_DEVICE_REGISTRY_OPERATION_ERROR_PARSER_44_002: [This method shall set the value of this object's deviceId equal to the provided value.]
+    //Tests_SRS_DEVICE_REGISTRY_OPERATION_ERROR_PARSER_44_003: [This method shall return the value of this object's errorCode.]
+    //Tests_SRS_DEVICE_REGISTRY_OPERATION_ERROR_PARSER_44_004: [This method shall set the value of this object's errorCode equal to the provided value.]
+    //Tests_SRS_DEVICE_REGISTRY_OPERATION_ERROR_PARSER_44_005: [This method shall return the value of this object's errorStatus.]
+    //Tests_SRS_DEVICE_REGISTRY_OPERATION_ERROR_PARSER_44_006: [This method shall set the value of this object's errorStatus equal to the provided value.]
+    @Test
+    public void testGettersAndSetters()
+    {
+        //arrange
+        BulkRegistryOperationResultParser parser = new BulkRegistryOperationResultParser();
+        DeviceRegistryOperationErrorParser error = new DeviceRegistryOperationErrorParser();
+        List<DeviceRegistryOperationErrorParser> errors = new ArrayList<>();
+        errors.add(error);
+
+        //act
+        error.setDeviceId("someDevice");
+        error.setErrorCode("DeviceNotFound");
+        error.setErrorStatus("not found");
+        parser.setIsSuccessful(true);
+        parser.setErrors(errors);
+
+        //assert
+        assertTrue(parser.getIsSuccessful());
+        assertEquals(errors, parser.getErrors());
+        assertEquals("someDevice", parser.getErrors().get(0).getDeviceId());
+        assertEquals("DeviceNotFound", parser.getErrors().get(0).getErrorCode());
+        assertEquals("not found", parser.getErrors().get(0).getErrorStatus());
+    }
+
+    //Tests_SRS_BULK_REGISTRY_OPERATION_RESULT_PARSER_44_009: [If the provided errors list is null, an IllegalArgumentException shall be thrown.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setErrorsNullThrows()
+    {
+        //act
+        new BulkRegistryOperationResultParser().setErrors(null);
+    }
+}
@@ -0,0 +1,177 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.deps.serializer;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.microsoft.azure.sdk.iot.deps.serializer.TwinParser;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the incremental updates of the TwinParser.
+ */
+public class TwinParserTest
+{
+    private static Map<String, Object> map(Object... keysAndValues)
+    {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2)
+        {
+            map.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+
+    private static Map<String, Object> baseProperties()
+    {
+        return map(
+                "brand", "NiceCar",
+                "maxSpeed", map("value", 500, "newValue", 300, "inner", map("color", "white")));
+    }
+
+    private static JsonElement json(String json)
+    {
+        return new JsonParser().parse(json);
+    }
+
+    /* Codes_SRS_TWINPARSER_21_021: [The updateDesiredProperty shall add all provided properties to the Desired property.] */
+    /* Codes_SRS_TWINPARSER_21_024: [If no Desired property changed its value, the updateDesiredProperty shall return null.] */
+    @Test
+    public void updateDesiredPropertyReturnsNullWhenNothingChanged()
+    {
+        // arrange
+        TwinParser twinParser = new TwinParser();
+        String first = twinParser.updateDesiredProperty(baseProperties());
+
+        // act
+        String second = twinParser.updateDesiredProperty(baseProperties());
+
+        // assert
+        assertEquals(json("{\"brand\":\"NiceCar\",\"maxSpeed\":{\"value\":500,\"newValue\":300,\"inner\":{\"color\":\"white\"}}}"), json(first));
+        assertNull(second);
+    }
+
+    /* Codes_SRS_TWINPARSER_21_077: [If any `key` already exists, the updateDesiredProperty shall replace the existed value by the new one.] */
+    @Test
+    public void updateDesiredPropertyReturnsMinimalMergePatchForNestedChanges()
+    {
+        // arrange
+        TwinParser twinParser = new TwinParser();
+        twinParser.updateDesiredProperty(baseProperties());
+
+        // act
+        String patch = twinParser.updateDesiredProperty(map(
+                "brand", "NiceCar",
+                "maxSpeed", map("value", 500, "inner", map("color", "black"))));
+
+        // assert
+        assertEquals(json("{\"maxSpeed\":{\"inner\":{\"color\":\"black\"},\"newValue\":null}}"), json(patch));
+        Map<String, Object> maxSpeed = (Map<String, Object>) twinParser.getDesiredPropertyMap().get("maxSpeed");
+        assertFalse(maxSpeed.containsKey("newValue"));
+        assertEquals("black", ((Map<String, Object>) maxSpeed.get("inner")).get("color"));
+    }
+
+    /* Codes_SRS_TWINPARSER_21_078: [If any `value` is null, the updateDesiredProperty shall delete it from the collection and report on Json.] */
+    @Test
+    public void updateReportedPropertyReportsDeletions()
+    {
+        // arrange
+        TwinParser twinParser = new TwinParser();
+        twinParser.updateReportedProperty(baseProperties());
+
+        // act
+        String patch = twinParser.updateReportedProperty(map("brand", null));
+
+        // assert
+        assertEquals(json("{\"brand\":null}"), json(patch));
+        assertFalse(twinParser.getReportedPropertyMap().containsKey("brand"));
+    }
+
+    @Test
+    public void updateDesiredPropertyAcceptsTheStoredMapsUnchanged()
+    {
+        // arrange
+        TwinParser twinParser = new TwinParser();
+        twinParser.updateDesiredProperty(baseProperties());
+
+        // act
+        String patch = twinParser.updateDesiredProperty(twinParser.getDesiredPropertyMap());
+
+        // assert
+        assertNull(patch);
+    }
+
+    /* Codes_TWIN_21_158: [A valid `value` shall contains less than 5 levels of sub-maps.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void updateDesiredPropertyThrowsOnTooManyLevels()
+    {
+        // arrange
+        TwinParser twinParser = new TwinParser();
+
+        // act
+        twinParser.updateDesiredProperty(map("l1", map("l2", map("l3", map("l4", map("l5", map("l6", map("l7", 1))))))));
+    }
+
+    /* Codes_SRS_TWINPARSER_21_155: [A valid `key` shall not have an illegal character (`$`,`.`, space).] */
+    @Test (expected = IllegalArgumentException.class)
+    public void updateDesiredPropertyThrowsOnInvalidNestedKey()
+    {
+        // arrange
+        TwinParser twinParser = new TwinParser();
+        twinParser.updateDesiredProperty(baseProperties());
+
+        // act
+        twinParser.updateDesiredProperty(map("maxSpeed", map("value", 500, "new value", 1)));
+    }
+
+    /* Codes_SRS_TWINPARSER_21_080: [If one of the maps is invalid, the updateTwin shall not change the collection and throw IllegalArgumentException.] */
+    @Test
+    public void updateTwinDoesNotChangeTheCollectionIfOneMapIsInvalid() throws IOException
+    {
+        // arrange
+        TwinParser twinParser = new TwinParser();
+        twinParser.updateDesiredProperty(baseProperties());
+
+        // act
+        try
+        {
+            twinParser.updateTwin(map("brand", "OtherCar"), map("bad$key", 1), null);
+            fail("invalid reported properties shall be rejected");
+        }
+        catch (IllegalArgumentException expected)
+        {
+            // expected
+        }
+
+        // assert
+        assertEquals("NiceCar", twinParser.getDesiredPropertyMap().get("brand"));
+    }
+
+    /* Codes_SRS_TWINPARSER_21_117: [The updateTwin shall return a string with json representing the properties and tags with changes.] */
+    /* Codes_SRS_TWINPARSER_21_119: [If no property or tags changed its value, the updateTwin shall return null.] */
+    @Test
+    public void updateTwinReturnsTheChangedProperties() throws IOException
+    {
+        // arrange
+        TwinParser twinParser = new TwinParser();
+        twinParser.updateTwin(baseProperties(), null, null);
+
+        // act
+        String twin = twinParser.updateTwin(map("maxSpeed", map("value", 600, "newValue", 300, "inner", map("color", "white"))), null, null);
+        String unchanged = twinParser.updateTwin(map("brand", "NiceCar"), null, null);
+
+        // assert
+        JsonObject properties = json(twin).getAsJsonObject().get("properties").getAsJsonObject();
+        assertEquals(json("{\"maxSpeed\":{\"value\":600}}"), properties.get("desired"));
+        assertEquals(json("{}"), properties.get("reported"));
+        assertNull(unchanged);
+    }
+}
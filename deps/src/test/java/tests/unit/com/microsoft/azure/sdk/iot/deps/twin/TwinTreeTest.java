@@ -0,0 +1,399 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.deps.twin;
+
+import com.microsoft.azure.sdk.iot.deps.twin.TwinCollection;
+import com.microsoft.azure.sdk.iot.deps.twin.TwinMetadata;
+import com.microsoft.azure.sdk.iot.deps.twin.TwinTree;
+import mockit.Deencapsulation;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the TwinTree
+ */
+public class TwinTreeTest
+{
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final String JSON_SAMPLE =
+            "{" +
+            "  \"Brand\":\"NiceCar\"," +
+            "  \"Electric\":true," +
+            "  \"MaxSpeed\":{" +
+            "    \"Value\":500," +
+            "    \"NewValue\":300.5," +
+            "    \"Inner1\":{\"Inner2\":\"FinalInnerValue\"}" +
+            "  }," +
+            "  \"Wheels\":{\"Count\":4}," +
+            "  \"$metadata\":{" +
+            "    \"$lastUpdated\":\"2017-09-21T02:07:44.238Z\"," +
+            "    \"$lastUpdatedVersion\":4," +
+            "    \"Brand\":{\"$lastUpdated\":\"2017-09-21T02:07:44.238Z\",\"$lastUpdatedVersion\":4}," +
+            "    \"MaxSpeed\":{" +
+            "      \"$lastUpdated\":\"2017-09-21T02:07:44.238Z\",\"$lastUpdatedVersion\":3," +
+            "      \"Value\":{\"$lastUpdated\":\"2017-09-21T02:07:44.238Z\",\"$lastUpdatedVersion\":3}" +
+            "    }" +
+            "  }," +
+            "  \"$version\":4" +
+            "}";
+
+    /* Tests_SRS_TWIN_TREE_44_004: [The parse shall store the `$version` and `$metadata` of the root object apart from the properties.] */
+    /* Tests_SRS_TWIN_TREE_44_010: [The getProperties shall return an unmodifiable Map adapter over the properties.] */
+    /* Tests_SRS_TWIN_TREE_44_015: [The getVersion shall return the stored `$version`, or null if the JSON had none.] */
+    /* Tests_SRS_TWIN_TREE_NODE_44_004: [The read shall store the integer numbers that fit in a long as longs, and the other numbers as doubles.] */
+    /* Tests_SRS_TWIN_TREE_NODE_44_015: [The valueAt shall return the integer numbers as Long, the other numbers as Double, and the nested objects as unmodifiable Map views.] */
+    @Test
+    public void parseSucceedsWithPrimitiveLeavesAndNestedObjects()
+    {
+        // act
+        TwinTree tree = TwinTree.parse(JSON_SAMPLE);
+
+        // assert
+        Map<String, Object> properties = tree.getProperties();
+        assertEquals(4, properties.size());
+        assertEquals(4, (int) tree.getVersion());
+        assertEquals("NiceCar", properties.get("Brand"));
+        assertEquals(true, properties.get("Electric"));
+        assertFalse(properties.containsKey("$version"));
+        assertFalse(properties.containsKey("$metadata"));
+        Map<String, Object> maxSpeed = (Map<String, Object>) properties.get("MaxSpeed");
+        assertEquals(500L, maxSpeed.get("Value"));
+        assertEquals(300.5, maxSpeed.get("NewValue"));
+        assertEquals("FinalInnerValue", ((Map<String, Object>) maxSpeed.get("Inner1")).get("Inner2"));
+    }
+
+    /* Tests_SRS_TWIN_TREE_44_010: [The getProperties shall return an unmodifiable Map adapter over the properties.] */
+    /* Tests_SRS_TWIN_TREE_NODE_44_014: [The asMap shall return a read only Map adapter over the node, without copying its entries.] */
+    @Test (expected = UnsupportedOperationException.class)
+    public void getPropertiesIsUnmodifiable()
+    {
+        // arrange
+        TwinTree tree = TwinTree.parse(JSON_SAMPLE);
+
+        // act
+        tree.getProperties().put("Brand", "OtherCar");
+    }
+
+    /* Tests_SRS_TWIN_TREE_44_011: [The getTwinMetadata shall create the TwinMetadata of the property only when requested.] */
+    /* Tests_SRS_TWIN_TREE_44_016: [The getTwinMetadata shall return the metadata of the whole collection, or null if it has no `$lastUpdated` nor `$lastUpdatedVersion`.] */
+    /* Tests_SRS_TWIN_TREE_44_018: [The getTwinMetadata shall return null if the path does not match the metadata of a property.] */
+    @Test
+    public void getTwinMetadataReturnsTheMetadataOfThePath()
+    {
+        // arrange
+        TwinTree tree = TwinTree.parse(JSON_SAMPLE);
+
+        // act
+        TwinMetadata rootMetadata = tree.getTwinMetadata();
+        TwinMetadata valueMetadata = tree.getTwinMetadata("MaxSpeed.Value");
+
+        // assert
+        assertEquals(4, (int) rootMetadata.getLastUpdatedVersion());
+        assertEquals(3, (int) valueMetadata.getLastUpdatedVersion());
+        assertNotNull(valueMetadata.getLastUpdated());
+        assertNull(tree.getTwinMetadata("Electric"));
+        assertNull(tree.getTwinMetadata("MaxSpeed.Value.Unknown"));
+    }
+
+    /* Tests_SRS_TWIN_TREE_44_001: [The parse shall throw IllegalArgumentException if the provided JSON is null or empty.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void parseThrowsOnEmptyJson()
+    {
+        TwinTree.parse("");
+    }
+
+    /* Tests_SRS_TWIN_TREE_44_003: [The parse shall throw IllegalArgumentException if the JSON is malformed, contains arrays, invalid keys, or more than 5 levels of nested objects.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void parseThrowsOnMalformedJson()
+    {
+        TwinTree.parse("{\"Brand\":");
+    }
+
+    /* Tests_SRS_TWIN_TREE_44_003: [The parse shall throw IllegalArgumentException if the JSON is malformed, contains arrays, invalid keys, or more than 5 levels of nested objects.] */
+    /* Tests_SRS_TWIN_TREE_NODE_44_006: [The read shall throw IllegalArgumentException if the object contains an array.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void parseThrowsOnArrays()
+    {
+        TwinTree.parse("{\"Brand\":[1,2]}");
+    }
+
+    /* Tests_SRS_TWIN_TREE_44_003: [The parse shall throw IllegalArgumentException if the JSON is malformed, contains arrays, invalid keys, or more than 5 levels of nested objects.] */
+    /* Tests_SRS_TWIN_TREE_NODE_44_003: [The read shall throw IllegalArgumentException if a key is not a valid twin key.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void parseThrowsOnInvalidKey()
+    {
+        TwinTree.parse("{\"Inner\":{\"Br and\":1}}");
+    }
+
+    /* Tests_SRS_TWIN_TREE_44_003: [The parse shall throw IllegalArgumentException if the JSON is malformed, contains arrays, invalid keys, or more than 5 levels of nested objects.] */
+    /* Tests_SRS_TWIN_TREE_NODE_44_005: [The read shall throw IllegalArgumentException if the nested objects exceed the provided number of levels.] */
+    @Test
+    public void parseAcceptsFiveLevelsAndRejectsSix()
+    {
+        TwinTree.parse("{\"a\":{\"b\":{\"c\":{\"d\":{\"e\":{\"f\":1}}}}}}");
+
+        try
+        {
+            TwinTree.parse("{\"a\":{\"b\":{\"c\":{\"d\":{\"e\":{\"f\":{\"g\":1}}}}}}}");
+            fail("six nested levels shall be rejected");
+        }
+        catch (IllegalArgumentException expected)
+        {
+            // expected
+        }
+    }
+
+    /* Tests_SRS_TWIN_TREE_44_008: [The applyPatch shall return a new TwinTree with the patch merged, deleting the properties and metadata set to null in the patch.] */
+    /* Tests_SRS_TWIN_TREE_44_009: [The applyPatch shall use the version of the patch, if it has one.] */
+    /* Tests_SRS_TWIN_TREE_NODE_44_009: [The merge shall return a new node where the null entries of the patch delete the key, the nested objects present in both nodes are merged, and the other entries of the patch replace the ones of this node. The untouched entries shall be shared with this node.] */
+    /* Tests_SRS_TWIN_TREE_NODE_44_010: [The merge shall add the nested objects of the patch that are not in this node without their null entries.] */
+    /* Tests_SRS_TWIN_TREE_NODE_44_012: [The prune shall return a new node without the entries set to null in the patch, pruning the nested objects present in both nodes in the same way.] */
+    @Test
+    public void applyPatchMergesAndDeletes()
+    {
+        // arrange
+        TwinTree tree = TwinTree.parse(JSON_SAMPLE);
+        TwinTree patch = TwinTree.parse("{\"Brand\":null,\"MaxSpeed\":{\"Value\":600,\"Inner1\":null,\"Extra\":{\"x\":null,\"y\":1}},\"$version\":5}");
+
+        // act
+        TwinTree patched = tree.applyPatch(patch);
+
+        // assert
+        Map<String, Object> properties = patched.getProperties();
+        assertEquals(5, (int) patched.getVersion());
+        assertFalse(properties.containsKey("Brand"));
+        assertNull(patched.getTwinMetadata("Brand"));
+        Map<String, Object> maxSpeed = (Map<String, Object>) properties.get("MaxSpeed");
+        assertEquals(600L, maxSpeed.get("Value"));
+        assertEquals(300.5, maxSpeed.get("NewValue"));
+        assertFalse(maxSpeed.containsKey("Inner1"));
+        Map<String, Object> extra = (Map<String, Object>) maxSpeed.get("Extra");
+        assertEquals(1, extra.size());
+        assertEquals(1L, extra.get("y"));
+
+        // the previous version is untouched
+        assertEquals("NiceCar", tree.getProperties().get("Brand"));
+        assertEquals(4, (int) tree.getVersion());
+        assertNotNull(tree.getTwinMetadata("Brand"));
+    }
+
+    /* Tests_SRS_TWIN_TREE_44_008: [The applyPatch shall return a new TwinTree with the patch merged, deleting the properties and metadata set to null in the patch.] */
+    /* Tests_SRS_TWIN_TREE_NODE_44_009: [The merge shall return a new node where the null entries of the patch delete the key, the nested objects present in both nodes are merged, and the other entries of the patch replace the ones of this node. The untouched entries shall be shared with this node.] */
+    @Test
+    public void applyPatchSharesTheUntouchedObjects()
+    {
+        // arrange
+        TwinTree tree = TwinTree.parse(JSON_SAMPLE);
+        TwinTree patch = TwinTree.parse("{\"Brand\":\"OtherCar\"}");
+
+        // act
+        TwinTree patched = tree.applyPatch(patch);
+
+        // assert
+        Object before = childNode(tree, "MaxSpeed");
+        Object after = childNode(patched, "MaxSpeed");
+        assertSame(before, after);
+        assertSame(childNode(tree, "Wheels"), childNode(patched, "Wheels"));
+        assertEquals(4, (int) patched.getVersion());
+        assertEquals("OtherCar", patched.getProperties().get("Brand"));
+    }
+
+    /* Tests_SRS_TWIN_TREE_44_007: [The applyPatch shall throw IllegalArgumentException if the provided patch is null.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void applyPatchThrowsOnNullPatch()
+    {
+        TwinTree.parse(JSON_SAMPLE).applyPatch(null);
+    }
+
+    /* Tests_SRS_TWIN_TREE_44_014: [The writeTo shall write the JSON of the properties, and if requested the $version and $metadata, to the stream.] */
+    /* Tests_SRS_TWIN_TREE_44_002: [The parse shall throw IllegalArgumentException if the provided stream is null.] */
+    @Test
+    public void writeToAndParseRoundTrip() throws IOException
+    {
+        // arrange
+        TwinTree tree = TwinTree.parse(JSON_SAMPLE);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // act
+        tree.writeTo(outputStream, true);
+        TwinTree copy = TwinTree.parse(new ByteArrayInputStream(outputStream.toByteArray()));
+
+        // assert
+        assertEquals(tree.getProperties(), copy.getProperties());
+        assertEquals(tree.getVersion(), copy.getVersion());
+        assertEquals(3, (int) copy.getTwinMetadata("MaxSpeed").getLastUpdatedVersion());
+    }
+
+    /* Tests_SRS_TWIN_TREE_44_014: [The writeTo shall write the JSON of the properties, and if requested the $version and $metadata, to the stream.] */
+    /* Tests_SRS_TWIN_TREE_NODE_44_013: [The writeEntries shall write every entry as a JSON field in key order, including the null entries.] */
+    @Test
+    public void writeToWithoutMetadataOnlyWritesTheProperties() throws IOException
+    {
+        // arrange
+        TwinTree tree = TwinTree.parse("{\"b\":false,\"a\":{\"c\":2},\"$version\":7}");
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // act
+        tree.writeTo(outputStream, false);
+
+        // assert
+        assertEquals("{\"a\":{\"c\":2},\"b\":false}", new String(outputStream.toByteArray(), UTF8));
+    }
+
+    /* Tests_SRS_TWIN_TREE_44_013: [The writeTo shall throw IllegalArgumentException if the provided stream is null.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void writeToThrowsOnNullStream() throws IOException
+    {
+        TwinTree.parse(JSON_SAMPLE).writeTo(null, true);
+    }
+
+    /* Tests_SRS_TWIN_TREE_44_006: [The fromTwinCollection shall copy the properties, version and metadata of the TwinCollection.] */
+    /* Tests_SRS_TWIN_TREE_44_012: [The toTwinCollection shall return a TwinCollection with the properties, version and metadata of this TwinTree.] */
+    @Test
+    public void twinCollectionConversionsKeepContentVersionAndMetadata()
+    {
+        // arrange
+        TwinTree tree = TwinTree.parse(JSON_SAMPLE);
+
+        // act
+        TwinCollection collection = tree.toTwinCollection();
+        TwinTree copy = TwinTree.fromTwinCollection(collection);
+
+        // assert
+        assertEquals("NiceCar", collection.get("Brand"));
+        assertEquals(4, (int) collection.getVersionFinal());
+        assertEquals(3, (int) ((TwinCollection) collection.get("MaxSpeed")).getTwinMetadataFinal("Value").getLastUpdatedVersion());
+        assertEquals(4, (int) copy.getVersion());
+        assertEquals("FinalInnerValue", ((Map<String, Object>) ((Map<String, Object>) copy.getProperties().get("MaxSpeed")).get("Inner1")).get("Inner2"));
+        assertEquals(3, (int) copy.getTwinMetadata("MaxSpeed.Value").getLastUpdatedVersion());
+    }
+
+    /* Tests_SRS_TWIN_TREE_44_005: [The fromTwinCollection shall throw IllegalArgumentException if the provided TwinCollection is null.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void fromTwinCollectionThrowsOnNull()
+    {
+        TwinTree.fromTwinCollection(null);
+    }
+
+    /* Tests_SRS_TWIN_TREE_NODE_44_008: [If the patch is empty, the merge shall return this node.] */
+    /* Tests_SRS_TWIN_TREE_NODE_44_011: [If the patch does not delete anything, the prune shall return this node.] */
+    @Test
+    public void applyPatchWithoutChangesSharesTheNodes()
+    {
+        // arrange
+        TwinTree tree = TwinTree.parse(JSON_SAMPLE);
+
+        // act
+        TwinTree emptyPatched = tree.applyPatch(TwinTree.parse("{}"));
+        TwinTree patched = tree.applyPatch(TwinTree.parse("{\"Brand\":\"OtherCar\"}"));
+
+        // assert
+        assertSame(Deencapsulation.getField(tree, "properties"), Deencapsulation.getField(emptyPatched, "properties"));
+        assertSame(Deencapsulation.getField(tree, "metadata"), Deencapsulation.getField(patched, "metadata"));
+    }
+
+    /* Tests_SRS_TWIN_TREE_NODE_44_001: [The read shall return a node with the entries sorted by key, keeping the last entry of a duplicated key.] */
+    /* Tests_SRS_TWIN_TREE_NODE_44_002: [The read shall intern the keys, so the property names are shared by every node in the process.] */
+    @Test
+    public void parseSortsTheKeysAndKeepsTheLastDuplicate()
+    {
+        // act
+        TwinTree first = TwinTree.parse("{\"b\":1,\"a\":2,\"b\":3}");
+        TwinTree second = TwinTree.parse("{\"a\":4}");
+
+        // assert
+        String[] firstKeys = Deencapsulation.getField(Deencapsulation.getField(first, "properties"), "keys");
+        String[] secondKeys = Deencapsulation.getField(Deencapsulation.getField(second, "properties"), "keys");
+        assertEquals(2, firstKeys.length);
+        assertEquals("a", firstKeys[0]);
+        assertEquals("b", firstKeys[1]);
+        assertEquals(3L, first.getProperties().get("b"));
+        assertSame(firstKeys[0], secondKeys[0]);
+    }
+
+    /* Tests_SRS_TWIN_TREE_NODE_44_004: [The read shall store the integer numbers that fit in a long as longs, and the other numbers as doubles.] */
+    @Test
+    public void parseKeepsTheIntegersTooLargeForALongAsDoubles()
+    {
+        // act
+        TwinTree tree = TwinTree.parse("{\"Small\":-12,\"Large\":123456789012345678901234567890,\"Exponent\":1e3}");
+
+        // assert
+        assertEquals(-12L, tree.getProperties().get("Small"));
+        assertEquals(1.2345678901234568E29, tree.getProperties().get("Large"));
+        assertEquals(1000.0, tree.getProperties().get("Exponent"));
+    }
+
+    /* Tests_SRS_TWIN_TREE_NODE_44_007: [If the root tags are requested, the read shall store the objects of the keys starting with `$` as metadata nodes and their numbers as Long in the root tags, and skip their other values.] */
+    /* Tests_SRS_TWIN_TREE_44_016: [The getTwinMetadata shall return the metadata of the whole collection, or null if it has no `$lastUpdated` nor `$lastUpdatedVersion`.] */
+    @Test
+    public void parseSkipsTheOtherRootTags()
+    {
+        // act
+        TwinTree tree = TwinTree.parse("{\"a\":1,\"$iotedge\":\"unknown\",\"$version\":2}");
+
+        // assert
+        assertEquals(1, tree.getProperties().size());
+        assertEquals(2, (int) tree.getVersion());
+        assertNull(tree.getTwinMetadata());
+    }
+
+    /* Tests_SRS_TWIN_TREE_NODE_44_014: [The asMap shall return a read only Map adapter over the node, without copying its entries.] */
+    @Test (expected = UnsupportedOperationException.class)
+    public void getPropertiesIteratorIsReadOnly()
+    {
+        // arrange
+        Iterator<Map.Entry<String, Object>> iterator = TwinTree.parse(JSON_SAMPLE).getProperties().entrySet().iterator();
+        iterator.next();
+
+        // act
+        iterator.remove();
+    }
+
+    /* Tests_SRS_TWIN_TREE_44_017: [The getTwinMetadata shall throw IllegalArgumentException if the provided path is null or empty.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void getTwinMetadataThrowsOnEmptyPath()
+    {
+        TwinTree.parse(JSON_SAMPLE).getTwinMetadata("");
+    }
+
+    /* Tests_SRS_TWIN_TREE_44_019: [The toString shall return the JSON of the properties, version and metadata.] */
+    /* Tests_SRS_TWIN_TREE_NODE_44_013: [The writeEntries shall write every entry as a JSON field in key order, including the null entries.] */
+    @Test
+    public void toStringWritesThePropertiesVersionAndMetadata()
+    {
+        // arrange
+        TwinTree tree = TwinTree.parse("{\"b\":null,\"a\":\"x\",\"$metadata\":{\"$lastUpdatedVersion\":2},\"$version\":2}");
+
+        // act
+        String json = tree.toString();
+
+        // assert
+        assertEquals("{\"a\":\"x\",\"b\":null,\"$metadata\":{\"$lastUpdatedVersion\":2},\"$version\":2}", json);
+    }
+
+    private static Object childNode(TwinTree tree, String key)
+    {
+        Object node = Deencapsulation.getField(tree, "properties");
+        Object[] references = Deencapsulation.getField(node, "references");
+        String[] keys = Deencapsulation.getField(node, "keys");
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (keys[i].equals(key))
+            {
+                return references[i];
+            }
+        }
+        return null;
+    }
+}
@@ -27,6 +27,7 @@ import org.junit.Test;
 
 import com.microsoft.azure.sdk.iot.deps.util.Base64;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.security.SecureRandom;
 import java.util.*;
 
@@ -702,10 +703,10 @@ public class WebSocketHandlerImplTest
         expected[0] = (byte) (WebSocketHeader.FINBIT_MASK | WebSocketHeader.OPCODE_BINARY);
         expected[1] = (byte) (WebSocketHeader.MASKBIT_MASK | WebSocketHeader.PAYLOAD_EXTENDED_64);
 
-        expected[2] = (byte) (payloadLength >>> 56);
-        expected[3] = (byte) (payloadLength >>> 48);
-        expected[4] = (byte) (payloadLength >>> 40);
-        expected[5] = (byte) (payloadLength >>> 32);
+        expected[2] = (byte) ((long) payloadLength >>> 56);
+        expected[3] = (byte) ((long) payloadLength >>> 48);
+        expected[4] = (byte) ((long) payloadLength >>> 40);
+        expected[5] = (byte) ((long) payloadLength >>> 32);
         expected[6] = (byte) (payloadLength >>> 24);
         expected[7] = (byte) (payloadLength >>> 16);
         expected[8] = (byte) (payloadLength >>> 8);
@@ -778,10 +779,10 @@ public class WebSocketHandlerImplTest
         expected[0] = (byte) (WebSocketHeader.FINBIT_MASK | WebSocketHeader.OPCODE_BINARY);
         expected[1] = (byte) (WebSocketHeader.MASKBIT_MASK | WebSocketHeader.PAYLOAD_EXTENDED_64);
 
-        expected[2] = (byte) (payloadLength >>> 56);
-        expected[3] = (byte) (payloadLength >>> 48);
-        expected[4] = (byte) (payloadLength >>> 40);
-        expected[5] = (byte) (payloadLength >>> 32);
+        expected[2] = (byte) ((long) payloadLength >>> 56);
+        expected[3] = (byte) ((long) payloadLength >>> 48);
+        expected[4] = (byte) ((long) payloadLength >>> 40);
+        expected[5] = (byte) ((long) payloadLength >>> 32);
         expected[6] = (byte) (payloadLength >>> 24);
         expected[7] = (byte) (payloadLength >>> 16);
         expected[8] = (byte) (payloadLength >>> 8);
@@ -829,6 +830,59 @@ public class WebSocketHandlerImplTest
         assertTrue(Arrays.equals(expected, actual));
     }
 
+    @Test
+    public void testWrapBuffer_masks_payload_in_any_byte_order()
+    {
+        byte[] maskingKey = new byte[]{0x01, 0x02, 0x03, (byte) 0xF4};
+        int payloadLength = 21;
+        byte[] data = new byte[payloadLength];
+        new SecureRandom().nextBytes(data);
+
+        byte[] expected = new byte[payloadLength];
+        for (int i = 0; i < payloadLength; i++)
+        {
+            expected[i] = (byte) (data[i] ^ maskingKey[i % 4]);
+        }
+
+        ByteOrder[][] orders = {
+                {ByteOrder.BIG_ENDIAN, ByteOrder.BIG_ENDIAN},
+                {ByteOrder.LITTLE_ENDIAN, ByteOrder.LITTLE_ENDIAN},
+                {ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN}};
+        for (ByteOrder[] order : orders)
+        {
+            WebSocketHandlerImpl spyWebSocketHandler = spy(new WebSocketHandlerImpl());
+            doReturn(maskingKey).when(spyWebSocketHandler).createRandomMaskingKey();
+            ByteBuffer srcBuffer = ByteBuffer.wrap(data).order(order[0]);
+            ByteBuffer dstBuffer = ByteBuffer.allocateDirect(payloadLength + WebSocketHeader.MIN_HEADER_LENGTH_MASKED).order(order[1]);
+
+            spyWebSocketHandler.wrapBuffer(srcBuffer, dstBuffer);
+            dstBuffer.flip();
+
+            byte[] actual = new byte[payloadLength];
+            dstBuffer.position(WebSocketHeader.MIN_HEADER_LENGTH_MASKED);
+            dstBuffer.get(actual);
+            assertTrue(Arrays.equals(expected, actual));
+            assertEquals(0, srcBuffer.remaining());
+        }
+    }
+
+    @Test
+    public void testCreateRandomMaskingKey_returns_new_keys()
+    {
+        WebSocketHandlerImpl webSocketHandler = new WebSocketHandlerImpl();
+        Set<Integer> keys = new HashSet<Integer>();
+
+        for (int i = 0; i < 200; i++)
+        {
+            byte[] key = webSocketHandler.createRandomMaskingKey();
+            assertEquals(4, key.length);
+            keys.add(ByteBuffer.wrap(key).getInt());
+        }
+
+        // 200 keys drawn from 2^32 values are all distinct unless the source repeats itself
+        assertTrue(keys.size() > 190);
+    }
+
 //    @Test
 //    public void testWrapBuffer_large_payload_max()
 //    {
@@ -1279,6 +1279,163 @@ public class WebSocketImplTest
         verify(mockTransportInput, times(chunkCount-1)).process();
     }
 
+    /**
+     * Server frame: final, unmasked, with the shortest length encoding that fits the payload.
+     */
+    private static byte[] createServerFrame(byte opcode, byte[] payload)
+    {
+        ByteBuffer frame = ByteBuffer.allocate(WebSocketHeader.MAX_HEADER_LENGTH_NOMASK + payload.length);
+        frame.put((byte) (WebSocketHeader.FINBIT_MASK | opcode));
+        if (payload.length <= WebSocketHeader.PAYLOAD_SHORT_MAX)
+        {
+            frame.put((byte) payload.length);
+        }
+        else if (payload.length <= WebSocketHeader.PAYLOAD_MEDIUM_MAX)
+        {
+            frame.put(WebSocketHeader.PAYLOAD_EXTENDED_16);
+            frame.putShort((short) payload.length);
+        }
+        else
+        {
+            frame.put(WebSocketHeader.PAYLOAD_EXTENDED_64);
+            frame.putLong(payload.length);
+        }
+        frame.put(payload);
+        return Arrays.copyOf(frame.array(), frame.position());
+    }
+
+    private static TransportWrapper connectWithRealHandler(WebSocketImpl webSocketImpl, TransportInput transportInput)
+    {
+        WebSocketHandlerImpl webSocketHandler = spy(new WebSocketHandlerImpl());
+        doReturn(true).when(webSocketHandler).validateUpgradeReply((ByteBuffer) any());
+        webSocketImpl.configure("host", "path", 443, "AMQPWSB10", null, webSocketHandler);
+
+        TransportWrapper transportWrapper = webSocketImpl.wrap(transportInput, mock(TransportOutput.class));
+        transportWrapper.pending();
+        transportWrapper.process();
+        assertEquals(WebSocket.WebSocketState.PN_WS_CONNECTED_FLOW, webSocketImpl.getState());
+        return transportWrapper;
+    }
+
+    private static class CollectingTransportInput implements TransportInput
+    {
+        private final ByteBuffer tail;
+        private final ByteBuffer received = ByteBuffer.allocate(64 * 1024);
+        private int processCount = 0;
+
+        private CollectingTransportInput(int capacity)
+        {
+            tail = ByteBuffer.allocate(capacity);
+        }
+
+        @Override
+        public int capacity()
+        {
+            return tail.remaining();
+        }
+
+        @Override
+        public int position()
+        {
+            return tail.position();
+        }
+
+        @Override
+        public ByteBuffer tail()
+        {
+            return tail;
+        }
+
+        @Override
+        public void process()
+        {
+            processCount++;
+            tail.flip();
+            received.put(tail);
+            tail.clear();
+        }
+
+        @Override
+        public void close_tail()
+        {
+        }
+
+        private byte[] receivedBytes()
+        {
+            return Arrays.copyOf(received.array(), received.position());
+        }
+    }
+
+    @Test
+    public void testProcess_decodes_frames_split_at_every_byte()
+    {
+        byte[] payload1 = new byte[300];
+        byte[] payload2 = new byte[5];
+        new SecureRandom().nextBytes(payload1);
+        new SecureRandom().nextBytes(payload2);
+        byte[] frame1 = createServerFrame(WebSocketHeader.OPCODE_BINARY, payload1);
+        byte[] frame2 = createServerFrame(WebSocketHeader.OPCODE_BINARY, payload2);
+
+        WebSocketImpl webSocketImpl = new WebSocketImpl();
+        CollectingTransportInput transportInput = new CollectingTransportInput(4224);
+        TransportWrapper transportWrapper = connectWithRealHandler(webSocketImpl, transportInput);
+
+        ByteBuffer stream = ByteBuffer.allocate(frame1.length + frame2.length);
+        stream.put(frame1).put(frame2).flip();
+        while (stream.hasRemaining())
+        {
+            transportWrapper.tail().put(stream.get());
+            transportWrapper.process();
+        }
+
+        byte[] expected = new byte[payload1.length + payload2.length];
+        System.arraycopy(payload1, 0, expected, 0, payload1.length);
+        System.arraycopy(payload2, 0, expected, payload1.length, payload2.length);
+        assertTrue(Arrays.equals(expected, transportInput.receivedBytes()));
+        // one call per payload byte, none for the header bytes
+        assertEquals(expected.length, transportInput.processCount);
+    }
+
+    @Test
+    public void testProcess_forwards_several_frames_from_one_read_with_one_process_call()
+    {
+        byte[] payload = "amqp".getBytes();
+        byte[] ping = "ping".getBytes();
+        byte[] frame = createServerFrame(WebSocketHeader.OPCODE_BINARY, payload);
+        byte[] pingFrame = createServerFrame(WebSocketHeader.OPCODE_PING, ping);
+
+        WebSocketImpl webSocketImpl = new WebSocketImpl();
+        CollectingTransportInput transportInput = new CollectingTransportInput(4224);
+        TransportWrapper transportWrapper = connectWithRealHandler(webSocketImpl, transportInput);
+
+        transportWrapper.tail().put(frame).put(pingFrame).put(frame);
+        transportWrapper.process();
+
+        assertEquals("amqpamqp", new String(transportInput.receivedBytes()));
+        assertEquals(1, transportInput.processCount);
+        assertEquals(WebSocket.WebSocketState.PN_WS_CONNECTED_PONG, webSocketImpl.getState());
+        ByteBuffer pingBuffer = webSocketImpl.getPingBuffer();
+        assertEquals("ping", new String(pingBuffer.array(), 0, pingBuffer.position()));
+        assertEquals(0, transportWrapper.position());
+    }
+
+    @Test
+    public void testProcess_payload_larger_than_the_underlying_input_is_processed_in_slices()
+    {
+        byte[] payload = new byte[1000];
+        new SecureRandom().nextBytes(payload);
+
+        WebSocketImpl webSocketImpl = new WebSocketImpl();
+        CollectingTransportInput transportInput = new CollectingTransportInput(256);
+        TransportWrapper transportWrapper = connectWithRealHandler(webSocketImpl, transportInput);
+
+        transportWrapper.tail().put(createServerFrame(WebSocketHeader.OPCODE_BINARY, payload));
+        transportWrapper.process();
+
+        assertTrue(Arrays.equals(payload, transportInput.receivedBytes()));
+        assertEquals(4, transportInput.processCount);
+    }
+
     @Test
     public void testHead_websocket_not_enabled()
     {
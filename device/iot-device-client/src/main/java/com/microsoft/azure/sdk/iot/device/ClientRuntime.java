@@ -0,0 +1,464 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Threads shared by every client created with this runtime, so that the number of threads of a process stays about
+ * the same as its number of clients grows.
+ *
+ * <p> The send, receive and retry tasks of the clients run on a small pool of scheduler threads. The connection loops
+ *     (the AMQP reactor and the MQTT network threads) run on a pool of I/O threads that are reused from one connection
+ *     to the next. Closing a client only cancels the tasks of that client.
+ *
+ * <p> The runtime measures the queueing delay of the tasks, that is how long each task waited for a thread after it
+ *     was due. A growing queueing delay means that the scheduler threads cannot keep up with the clients.
+ *
+ * <p> A client created without a runtime creates its own threads.
+ */
+public final class ClientRuntime implements Closeable
+{
+    private static final long IO_THREAD_KEEP_ALIVE_SECONDS = 60;
+    private static final long TERMINATION_POLL_MILLISECONDS = 10;
+
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final ThreadPoolExecutor ioExecutor;
+
+    private final AtomicLong startedTaskCount = new AtomicLong();
+    private final AtomicLong totalQueueingDelayNanos = new AtomicLong();
+    private final AtomicLong maximumQueueingDelayNanos = new AtomicLong();
+
+    /**
+     * Create a runtime with a scheduler thread per processor, and at least two.
+     */
+    public ClientRuntime()
+    {
+        this(Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Create a runtime.
+     *
+     * @param schedulerThreadCount the number of threads running the send, receive and retry tasks of every client.
+     * @throws IllegalArgumentException if the number of scheduler threads is not positive.
+     */
+    public ClientRuntime(int schedulerThreadCount) throws IllegalArgumentException
+    {
+        if (schedulerThreadCount <= 0)
+        {
+            // Codes_SRS_CLIENTRUNTIME_44_001: [If the number of scheduler threads is not positive, the constructor shall throw an IllegalArgumentException.]
+            throw new IllegalArgumentException("The number of scheduler threads must be positive");
+        }
+
+        // Codes_SRS_CLIENTRUNTIME_44_002: [The constructor shall create a pool of the provided number of daemon
+        // scheduler threads, and a pool of daemon I/O threads that are kept for a minute after their last task.]
+        this.scheduler = new ScheduledThreadPoolExecutor(schedulerThreadCount, new DaemonThreadFactory("azure-iot-sdk-ClientRuntimeScheduler"));
+        this.scheduler.setRemoveOnCancelPolicy(true);
+
+        this.ioExecutor = new ThreadPoolExecutor(
+                0,
+                Integer.MAX_VALUE,
+                IO_THREAD_KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(),
+                new DaemonThreadFactory("azure-iot-sdk-ClientRuntimeIO"));
+    }
+
+    /**
+     * Create the executor of a client of this runtime. The delayed and periodic tasks of the executor run on the
+     * scheduler threads of the runtime, and its other tasks on the I/O threads of the runtime. Shutting the executor
+     * down only cancels its own tasks, and does not return the tasks that never started.
+     *
+     * @return an executor sharing the threads of this runtime.
+     */
+    public ScheduledExecutorService createExecutorService()
+    {
+        // Codes_SRS_CLIENTRUNTIME_44_003: [This function shall return an executor that runs the delayed and periodic
+        // tasks on the shared scheduler threads and the other tasks on the shared I/O threads.]
+        return new ClientExecutorService();
+    }
+
+    /**
+     * Getter for the number of tasks that started since the runtime was created, or since its statistics were reset.
+     *
+     * @return the number of started tasks.
+     */
+    public long getStartedTaskCount()
+    {
+        return this.startedTaskCount.get();
+    }
+
+    /**
+     * Getter for the average time the started tasks waited for a thread after they were due.
+     *
+     * @return the average queueing delay in milliseconds, or 0 if no task started.
+     */
+    public double getAverageQueueingDelayMillis()
+    {
+        // Codes_SRS_CLIENTRUNTIME_44_008: [This function shall return the average time between the moment a task was
+        // due and the moment it started, or 0 if no task started.]
+        long startedTaskCount = this.startedTaskCount.get();
+        if (startedTaskCount == 0)
+        {
+            return 0;
+        }
+
+        return (double) this.totalQueueingDelayNanos.get() / startedTaskCount / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Getter for the longest time a started task waited for a thread after it was due.
+     *
+     * @return the maximum queueing delay in milliseconds.
+     */
+    public long getMaximumQueueingDelayMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(this.maximumQueueingDelayNanos.get());
+    }
+
+    /**
+     * Reset the started task count and the queueing delays, to measure them over a new period.
+     */
+    public void resetStatistics()
+    {
+        this.startedTaskCount.set(0);
+        this.totalQueueingDelayNanos.set(0);
+        this.maximumQueueingDelayNanos.set(0);
+    }
+
+    /**
+     * Getter for the number of threads of the runtime.
+     *
+     * @return the number of scheduler and I/O threads currently alive.
+     */
+    public int getThreadCount()
+    {
+        return this.scheduler.getPoolSize() + this.ioExecutor.getPoolSize();
+    }
+
+    /**
+     * Stop the threads of the runtime. The clients of the runtime must be closed first.
+     */
+    @Override
+    public void close()
+    {
+        // Codes_SRS_CLIENTRUNTIME_44_009: [This function shall stop the scheduler and I/O threads.]
+        this.scheduler.shutdownNow();
+        this.ioExecutor.shutdownNow();
+    }
+
+    private void recordQueueingDelay(long queueingDelayNanos)
+    {
+        long delayNanos = Math.max(0, queueingDelayNanos);
+        this.startedTaskCount.incrementAndGet();
+        this.totalQueueingDelayNanos.addAndGet(delayNanos);
+
+        long maximumDelayNanos = this.maximumQueueingDelayNanos.get();
+        while (delayNanos > maximumDelayNanos && !this.maximumQueueingDelayNanos.compareAndSet(maximumDelayNanos, delayNanos))
+        {
+            maximumDelayNanos = this.maximumQueueingDelayNanos.get();
+        }
+    }
+
+    /**
+     * The executor of a single client, which keeps track of the tasks of that client on the shared threads
+     */
+    private final class ClientExecutorService extends AbstractExecutorService implements ScheduledExecutorService
+    {
+        private final Set<Future<?>> tasks = Collections.newSetFromMap(new ConcurrentHashMap<Future<?>, Boolean>());
+        private final AtomicInteger runningTaskCount = new AtomicInteger();
+        private final Object terminationLock = new Object();
+        private volatile boolean shutdown;
+        private volatile boolean stopped;
+
+        @Override
+        public void execute(Runnable command)
+        {
+            checkAccepting(command);
+
+            FutureTask<Void> task = new FutureTask<>(new TimedRunnable(command, new TaskTiming(System.nanoTime(), 0)), null);
+            track(task);
+            try
+            {
+                ioExecutor.execute(task);
+            }
+            catch (RejectedExecutionException e)
+            {
+                this.tasks.remove(task);
+                throw e;
+            }
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit)
+        {
+            checkAccepting(command);
+
+            long delayNanos = unit.toNanos(delay);
+            return track(scheduler.schedule(new TimedRunnable(command, new TaskTiming(System.nanoTime() + delayNanos, 0)), delayNanos, TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public <V> ScheduledFuture<V> schedule(final Callable<V> callable, long delay, TimeUnit unit)
+        {
+            checkAccepting(callable);
+
+            long delayNanos = unit.toNanos(delay);
+            final TaskTiming timing = new TaskTiming(System.nanoTime() + delayNanos, 0);
+            return track(scheduler.schedule(new Callable<V>()
+            {
+                @Override
+                public V call() throws Exception
+                {
+                    String threadName = timing.start();
+                    try
+                    {
+                        return callable.call();
+                    }
+                    finally
+                    {
+                        timing.end(threadName);
+                    }
+                }
+            }, delayNanos, TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit)
+        {
+            checkAccepting(command);
+            if (period <= 0)
+            {
+                throw new IllegalArgumentException("period must be positive");
+            }
+
+            long initialDelayNanos = unit.toNanos(initialDelay);
+            TaskTiming timing = new TaskTiming(System.nanoTime() + initialDelayNanos, unit.toNanos(period));
+            return track(scheduler.scheduleAtFixedRate(new TimedRunnable(command, timing), initialDelayNanos, unit.toNanos(period), TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit)
+        {
+            checkAccepting(command);
+            if (delay <= 0)
+            {
+                throw new IllegalArgumentException("delay must be positive");
+            }
+
+            long initialDelayNanos = unit.toNanos(initialDelay);
+            TaskTiming timing = new TaskTiming(System.nanoTime() + initialDelayNanos, -unit.toNanos(delay));
+            return track(scheduler.scheduleWithFixedDelay(new TimedRunnable(command, timing), initialDelayNanos, unit.toNanos(delay), TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public void shutdown()
+        {
+            // Codes_SRS_CLIENTRUNTIME_44_004: [Shutting down the executor of a client shall cancel its periodic tasks
+            // and reject its new tasks, and shall not stop the shared threads.]
+            this.shutdown = true;
+            for (Future<?> task : this.tasks)
+            {
+                if (task instanceof RunnableScheduledFuture && ((RunnableScheduledFuture<?>) task).isPeriodic())
+                {
+                    task.cancel(false);
+                }
+            }
+        }
+
+        @Override
+        public List<Runnable> shutdownNow()
+        {
+            // Codes_SRS_CLIENTRUNTIME_44_005: [Shutting down the executor of a client now shall also cancel its
+            // pending tasks and interrupt its running tasks.]
+            this.shutdown = true;
+            this.stopped = true;
+            for (Future<?> task : this.tasks)
+            {
+                task.cancel(true);
+            }
+
+            this.tasks.clear();
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown()
+        {
+            return this.shutdown;
+        }
+
+        @Override
+        public boolean isTerminated()
+        {
+            if (!this.shutdown || this.runningTaskCount.get() > 0)
+            {
+                return false;
+            }
+
+            removeDoneTasks();
+            return this.tasks.isEmpty();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+        {
+            // Codes_SRS_CLIENTRUNTIME_44_006: [Awaiting the termination of the executor of a client shall wait until
+            // the tasks of that client are done.]
+            long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+            synchronized (this.terminationLock)
+            {
+                while (!isTerminated())
+                {
+                    long remainingNanos = deadlineNanos - System.nanoTime();
+                    if (remainingNanos <= 0)
+                    {
+                        return false;
+                    }
+
+                    // the shared threads mark a future done after the task returns, so the wait is bounded
+                    this.terminationLock.wait(Math.max(1, Math.min(TimeUnit.NANOSECONDS.toMillis(remainingNanos), TERMINATION_POLL_MILLISECONDS)));
+                }
+
+                return true;
+            }
+        }
+
+        private void checkAccepting(Object task)
+        {
+            if (task == null)
+            {
+                throw new NullPointerException();
+            }
+
+            if (this.shutdown)
+            {
+                throw new RejectedExecutionException("The executor of this client was shut down");
+            }
+        }
+
+        private <F extends Future<?>> F track(F task)
+        {
+            removeDoneTasks();
+            this.tasks.add(task);
+            if (this.stopped)
+            {
+                task.cancel(true);
+            }
+
+            return task;
+        }
+
+        private void removeDoneTasks()
+        {
+            for (Future<?> task : this.tasks)
+            {
+                if (task.isDone())
+                {
+                    this.tasks.remove(task);
+                }
+            }
+        }
+
+        /**
+         * The time at which a task is due, following the convention of {@link ScheduledThreadPoolExecutor} for the
+         * period: positive for a fixed rate, negative for a fixed delay, and 0 for a task that runs once
+         */
+        private final class TaskTiming
+        {
+            private final long periodNanos;
+            private long dueNanos;
+
+            private TaskTiming(long dueNanos, long periodNanos)
+            {
+                this.dueNanos = dueNanos;
+                this.periodNanos = periodNanos;
+            }
+
+            private String start()
+            {
+                // Codes_SRS_CLIENTRUNTIME_44_007: [Each task shall record the time between the moment it was due and
+                // the moment it started.]
+                recordQueueingDelay(System.nanoTime() - this.dueNanos);
+                runningTaskCount.incrementAndGet();
+                return Thread.currentThread().getName();
+            }
+
+            private void end(String threadName)
+            {
+                // some tasks, like the network threads of paho, rename the thread they run on
+                Thread.currentThread().setName(threadName);
+
+                if (this.periodNanos > 0)
+                {
+                    this.dueNanos += this.periodNanos;
+                }
+                else if (this.periodNanos < 0)
+                {
+                    this.dueNanos = System.nanoTime() - this.periodNanos;
+                }
+
+                runningTaskCount.decrementAndGet();
+                if (shutdown)
+                {
+                    synchronized (terminationLock)
+                    {
+                        terminationLock.notifyAll();
+                    }
+                }
+            }
+        }
+
+        private final class TimedRunnable implements Runnable
+        {
+            private final Runnable command;
+            private final TaskTiming timing;
+
+            private TimedRunnable(Runnable command, TaskTiming timing)
+            {
+                this.command = command;
+                this.timing = timing;
+            }
+
+            @Override
+            public void run()
+            {
+                String threadName = this.timing.start();
+                try
+                {
+                    this.command.run();
+                }
+                finally
+                {
+                    this.timing.end(threadName);
+                }
+            }
+        }
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory
+    {
+        private final String threadName;
+
+        private DaemonThreadFactory(String threadName)
+        {
+            this.threadName = threadName;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+            Thread thread = new Thread(runnable, this.threadName);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
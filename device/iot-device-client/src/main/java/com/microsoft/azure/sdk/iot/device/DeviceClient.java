@@ -16,6 +16,8 @@ import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.Future;
 
 /**
  * <p>
@@ -183,6 +185,33 @@ public final class DeviceClient extends InternalClient implements Closeable
         commonConstructorSetup();
     }
 
+    /**
+     * Constructor that takes a connection string and a client runtime as arguments. The client runs on the threads of
+     * the runtime, which are shared with the other clients of that runtime, instead of creating its own threads.
+     *
+     * @param connString the connection string. The connection string is a set
+     * of key-value pairs that are separated by ';', with the keys and values
+     * separated by '='. It should contain values for the following keys:
+     * {@code HostName}, {@code DeviceId}, and {@code SharedAccessKey}.
+     * @param protocol the communication protocol used (i.e. HTTPS).
+     * @param clientRuntime the runtime providing the threads of the client.
+     *
+     * @throws IllegalArgumentException if any of {@code connString},
+     * {@code protocol} or {@code clientRuntime} are {@code null}; or if {@code connString} is missing
+     * one of the following attributes:{@code HostName}, {@code DeviceId}, or
+     * {@code SharedAccessKey} or if the IoT hub hostname does not conform to
+     * RFC 3986 or if the provided {@code connString} is for an x509 authenticated device
+     * @throws URISyntaxException if the hostname in the connection string is not a valid URI
+     */
+    public DeviceClient(String connString, IotHubClientProtocol protocol, ClientRuntime clientRuntime) throws URISyntaxException, IllegalArgumentException
+    {
+        this(connString, protocol);
+
+        // Codes_SRS_DEVICECLIENT_44_004: [If the client runtime is null, the function shall throw an IllegalArgumentException.]
+        // Codes_SRS_DEVICECLIENT_44_005: [The constructor shall save the client runtime in the config, so that the client runs on the threads of the runtime.]
+        this.setClientRuntime(clientRuntime);
+    }
+
     /**
      * Constructor that uses x509 authentication for communicating with IotHub
      *
@@ -434,6 +463,83 @@ public final class DeviceClient extends InternalClient implements Closeable
         this.fileUpload.uploadToBlobAsync(destinationBlobName, inputStream, streamLength, callback, callbackContext);
     }
 
+    /**
+     * Asynchronously upload a file to the IoT Hub. The blocks of the file are read into a few reusable direct
+     * buffers, so, unlike an upload from a stream, it is not copied into the heap whatever its size.
+     *
+     * NOTE: IotHub does not currently support CA signed devices using file upload. Please use SAS based authentication or
+     * self signed certificates.
+     *
+     * @param destinationBlobName is a string with the name of the file in the storage.
+     * @param file is the path of the file to upload in the blob.
+     * @param callback the callback to be invoked when a file is uploaded.
+     * @param callbackContext a context to be passed to the callback. Can be {@code null}.
+     *
+     * @throws IllegalArgumentException if the provided blob name, or the file path is {@code null},
+     *          empty or not valid, or if the callback is {@code null}.
+     * @throws IOException if the size of the file cannot be read, or the client cannot create a instance of the
+     *          FileUpload or the transport.
+     */
+    public void uploadToBlobAsync(String destinationBlobName, Path file,
+                                  IotHubEventCallback callback, Object callbackContext) throws IllegalArgumentException, IOException
+    {
+        /* Codes_SRS_DEVICECLIENT_44_001: [If the `callback` is null, the `file` is null, or the `destinationBlobName` is null, empty, or not valid, the uploadToBlobAsync shall throw IllegalArgumentException.] */
+        if (callback == null)
+        {
+            throw new IllegalArgumentException("Callback is null");
+        }
+
+        if (file == null)
+        {
+            throw new IllegalArgumentException("The file cannot be null.");
+        }
+
+        ParserUtility.validateBlobName(destinationBlobName);
+
+        if (this.fileUpload == null)
+        {
+            /* Codes_SRS_DEVICECLIENT_44_002: [If there is no instance of the FileUpload, the uploadToBlobAsync shall create a new instance of the FileUpload.] */
+            this.fileUpload = new FileUpload(this.config);
+        }
+
+        /* Codes_SRS_DEVICECLIENT_44_003: [The uploadToBlobAsync shall start the file upload process, by calling uploadToBlobAsync on the FileUpload class with the `file`.] */
+        this.fileUpload.uploadToBlobAsync(destinationBlobName, file, callback, callbackContext);
+    }
+
+    /**
+     * Sets the size of the blocks the uploaded streams are split into, and the number of blocks of an upload that are
+     * uploaded at the same time. An upload holds up to {@code blockSize * parallelism} bytes of its stream in memory.
+     * Applies to the uploads started after this call.
+     *
+     * @param blockSize the size of the blocks, in bytes, up to 4MB. The default is 4MB.
+     * @param parallelism the number of blocks of an upload uploaded at the same time. The default is 4.
+     *
+     * @throws IllegalArgumentException if the block size is not positive or larger than 4MB, or if the parallelism
+     *          is not positive.
+     */
+    public void setFileUploadBlockOptions(int blockSize, int parallelism) throws IllegalArgumentException
+    {
+        this.config.setFileUploadBlockOptions(blockSize, parallelism);
+    }
+
+    /**
+     * Makes the uploads started after this call resumable, by journaling their progress in the provided directory.
+     * An upload that fails, or is interrupted by a restart of the application, is resumed from the blocks already
+     * uploaded when {@link #uploadToBlobAsync(String, InputStream, long, IotHubEventCallback, Object)} is called
+     * again with the same blob name and a stream with the same content and length. A new blob is only requested to
+     * the IoT Hub if the SAS token of the journaled one is expired.
+     *
+     * <p> The journal holds SAS tokens with write access to the blobs until they expire, so the directory shall only
+     * be readable by the application.
+     *
+     * @param journalDirectory the path of the directory of the journal, created if it does not exist, or
+     *          {@code null} to make the uploads not resumable.
+     */
+    public void setFileUploadJournalDirectory(String journalDirectory)
+    {
+        this.config.setFileUploadJournalDirectory(journalDirectory);
+    }
+
     /**
      * Retrieves the twin's latest desired properties
      * @throws IOException if the iothub cannot be reached
@@ -443,6 +549,17 @@ public final class DeviceClient extends InternalClient implements Closeable
         this.getTwinInternal();
     }
 
+    /**
+     * Retrieves the twin's latest desired properties, and returns the future status of the request
+     * @return the future status of the request, completed when the twin is received, or with
+     * {@link IotHubStatusCode#MESSAGE_EXPIRED} if it is not received in time
+     * @throws IOException if the iothub cannot be reached
+     */
+    public Future<IotHubStatusCode> getDeviceTwinAsync() throws IOException
+    {
+        return this.getTwinInternal();
+    }
+
     /**
      * Starts the device twin.
      *
@@ -518,6 +635,26 @@ public final class DeviceClient extends InternalClient implements Closeable
         this.subscribeToMethodsInternal(deviceMethodCallback, deviceMethodCallbackContext, deviceMethodStatusCallback, deviceMethodStatusCallbackContext);
     }
 
+    /**
+     * Subscribes to device methods with a callback that can send its response after returning, by completing the
+     * {@link DeviceMethodResponse} it receives. Combined with {@link #setMethodDispatcher(DeviceMethodDispatcher)},
+     * slow methods do not delay the other invocations.
+     *
+     * @param methodCallback Callback on which methods shall be invoked. Cannot be {@code null}.
+     * @param methodCallbackContext Context for method callback. Can be {@code null}.
+     * @param methodStatusCallback Callback for providing IotHub status for methods. Cannot be {@code null}.
+     * @param methodStatusCallbackContext Context for method status callback. Can be {@code null}.
+     *
+     * @throws IOException if called when client is not opened.
+     * @throws IllegalArgumentException if either callback are null.
+     */
+    public void subscribeToDeviceMethod(AsyncDeviceMethodCallback methodCallback, Object methodCallbackContext,
+                                        IotHubEventCallback methodStatusCallback, Object methodStatusCallbackContext)
+            throws IOException, IllegalArgumentException
+    {
+        this.subscribeToMethodsInternal(methodCallback, methodCallbackContext, methodStatusCallback, methodStatusCallbackContext);
+    }
+
     /**
      * Sets a runtime option identified by parameter {@code optionName}
      * to {@code value}.
@@ -5,6 +5,7 @@ package com.microsoft.azure.sdk.iot.device;
 
 import com.microsoft.azure.sdk.iot.device.DeviceTwin.Pair;
 import com.microsoft.azure.sdk.iot.device.auth.*;
+import com.microsoft.azure.sdk.iot.device.fileupload.BlockBlobUploader;
 import com.microsoft.azure.sdk.iot.device.transport.ExponentialBackoffWithJitter;
 import com.microsoft.azure.sdk.iot.device.transport.RetryPolicy;
 import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProvider;
@@ -72,6 +73,12 @@ public final class DeviceClientConfig
     // Codes_SRS_DEVICECLIENTCONFIG_28_001: [The class shall have ExponentialBackOff as the default retryPolicy.]
     private RetryPolicy retryPolicy = new ExponentialBackoffWithJitter();
 
+    private int fileUploadBlockSize = BlockBlobUploader.DEFAULT_BLOCK_SIZE;
+    private int fileUploadParallelism = BlockBlobUploader.DEFAULT_PARALLELISM;
+    private String fileUploadJournalDirectory;
+
+    private ClientRuntime clientRuntime;
+
     /**
      * Constructor
      *
@@ -604,6 +611,91 @@ public final class DeviceClientConfig
         return this.operationTimeout;
     }
 
+    /**
+     * Setter for the size of the blocks file uploads are split into, and the number of blocks of a file upload that
+     * are uploaded at the same time. A file upload holds up to blockSize * parallelism bytes of its stream in memory.
+     * @param blockSize the size of the blocks, in bytes, up to {@link BlockBlobUploader#MAX_BLOCK_SIZE}
+     * @param parallelism the maximum number of blocks of a file upload uploaded at the same time
+     * @throws IllegalArgumentException if the block size is not positive or too large, or the parallelism is not positive
+     */
+    public void setFileUploadBlockOptions(int blockSize, int parallelism) throws IllegalArgumentException
+    {
+        if (blockSize <= 0 || blockSize > BlockBlobUploader.MAX_BLOCK_SIZE)
+        {
+            //Codes_SRS_DEVICECLIENTCONFIG_44_001: [If the block size is not positive or larger than the maximum block size, or the parallelism is not positive, this function shall throw IllegalArgumentException.]
+            throw new IllegalArgumentException("The block size must be positive and no larger than " + BlockBlobUploader.MAX_BLOCK_SIZE);
+        }
+
+        if (parallelism <= 0)
+        {
+            throw new IllegalArgumentException("The parallelism must be positive");
+        }
+
+        //Codes_SRS_DEVICECLIENTCONFIG_44_002: [This function shall save the provided block size and parallelism.]
+        this.fileUploadBlockSize = blockSize;
+        this.fileUploadParallelism = parallelism;
+    }
+
+    /**
+     * Getter for the size of the blocks file uploads are split into
+     * @return the size of the blocks, in bytes
+     */
+    public int getFileUploadBlockSize()
+    {
+        //Codes_SRS_DEVICECLIENTCONFIG_44_003: [This function shall return the saved block size, or 4MB by default.]
+        return this.fileUploadBlockSize;
+    }
+
+    /**
+     * Getter for the number of blocks of a file upload that are uploaded at the same time
+     * @return the maximum number of blocks of a file upload uploaded at the same time
+     */
+    public int getFileUploadParallelism()
+    {
+        //Codes_SRS_DEVICECLIENTCONFIG_44_004: [This function shall return the saved parallelism, or 4 by default.]
+        return this.fileUploadParallelism;
+    }
+
+    /**
+     * Setter for the directory of the journal of the file uploads. File uploads are only resumable if it is set.
+     * @param fileUploadJournalDirectory the path of the directory, or {@code null} to make the file uploads not resumable
+     */
+    public void setFileUploadJournalDirectory(String fileUploadJournalDirectory)
+    {
+        //Codes_SRS_DEVICECLIENTCONFIG_44_005: [This function shall save the provided journal directory.]
+        this.fileUploadJournalDirectory = fileUploadJournalDirectory;
+    }
+
+    /**
+     * Getter for the directory of the journal of the file uploads
+     * @return the path of the directory, or {@code null} if the file uploads are not resumable
+     */
+    public String getFileUploadJournalDirectory()
+    {
+        //Codes_SRS_DEVICECLIENTCONFIG_44_006: [This function shall return the saved journal directory, or null by default.]
+        return this.fileUploadJournalDirectory;
+    }
+
+    /**
+     * Setter for the runtime providing the threads of the client
+     * @param clientRuntime the runtime shared with other clients, or {@code null} for the client to create its own threads
+     */
+    public void setClientRuntime(ClientRuntime clientRuntime)
+    {
+        //Codes_SRS_DEVICECLIENTCONFIG_44_007: [This function shall save the provided client runtime.]
+        this.clientRuntime = clientRuntime;
+    }
+
+    /**
+     * Getter for the runtime providing the threads of the client
+     * @return the runtime shared with other clients, or {@code null} if the client creates its own threads
+     */
+    public ClientRuntime getClientRuntime()
+    {
+        //Codes_SRS_DEVICECLIENTCONFIG_44_008: [This function shall return the saved client runtime, or null by default.]
+        return this.clientRuntime;
+    }
+
     public ProductInfo getProductInfo()
     {
         //Codes_SRS_DEVICECLIENTCONFIG_34_040: [This function shall return the saved product info.]
@@ -7,11 +7,13 @@ import com.microsoft.azure.sdk.iot.device.exceptions.DeviceClientException;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubReceiveTask;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubSendTask;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransport;
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsAdaptiveReceivePolicy;
 
 import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -83,6 +85,7 @@ public final class DeviceIO
     private IotHubSendTask sendTask = null;
     private IotHubReceiveTask receiveTask = null;
     private IotHubClientProtocol protocol = null;
+    private HttpsAdaptiveReceivePolicy httpsAdaptiveReceivePolicy = null;
 
     private ScheduledExecutorService taskScheduler;
     private IotHubClientState state;
@@ -192,16 +195,35 @@ public final class DeviceIO
         this.sendTask = new IotHubSendTask(this.transport);
         this.receiveTask = new IotHubReceiveTask(this.transport);
 
-        this.taskScheduler = Executors.newScheduledThreadPool(2);
+        ClientRuntime clientRuntime = this.config.getClientRuntime();
+        if (clientRuntime != null)
+        {
+            /* Codes_SRS_DEVICE_IO_44_005: [If the config has a client runtime, the open shall schedule the send and receive tasks on the shared threads of the runtime instead of creating its own scheduler.] */
+            this.taskScheduler = clientRuntime.createExecutorService();
+        }
+        else
+        {
+            this.taskScheduler = Executors.newScheduledThreadPool(2);
+        }
+
         // the scheduler waits until each execution is finished before
         // scheduling the next one, so executions of a given task
         // will never overlap.
         /* Codes_SRS_DEVICE_IO_21_013: [The open shall schedule send tasks to run every SEND_PERIOD_MILLIS milliseconds.] */
         this.taskScheduler.scheduleAtFixedRate(this.sendTask, 0,
                 sendPeriodInMilliseconds, TimeUnit.MILLISECONDS);
-        /* Codes_SRS_DEVICE_IO_21_014: [The open shall schedule receive tasks to run every receivePeriodInMilliseconds milliseconds.] */
-        this.taskScheduler.scheduleAtFixedRate(this.receiveTask, 0,
-                receivePeriodInMilliseconds, TimeUnit.MILLISECONDS);
+        if (this.httpsAdaptiveReceivePolicy != null)
+        {
+            /* Codes_SRS_DEVICE_IO_44_003: [If an adaptive receive policy is set, the open shall run the receive task right away, then after each run schedule the next one with the delay computed by the policy.] */
+            this.httpsAdaptiveReceivePolicy.reset();
+            this.taskScheduler.schedule(new AdaptiveReceiveTask(this.taskScheduler, this.receiveTask, this.httpsAdaptiveReceivePolicy), 0, TimeUnit.MILLISECONDS);
+        }
+        else
+        {
+            /* Codes_SRS_DEVICE_IO_21_014: [The open shall schedule receive tasks to run every receivePeriodInMilliseconds milliseconds.] */
+            this.taskScheduler.scheduleAtFixedRate(this.receiveTask, 0,
+                    receivePeriodInMilliseconds, TimeUnit.MILLISECONDS);
+        }
 
         /* Codes_SRS_DEVICE_IO_21_016: [The open shall set the `state` as `CONNECTED`.] */
         this.state = IotHubClientState.OPEN;
@@ -339,6 +361,32 @@ public final class DeviceIO
         }
     }
 
+    /**
+     * Setter for the adaptive receive policy. With a policy, the receive task is not run at a fixed rate: each run
+     * fetches a batch of messages, and the policy computes the delay before the next run from the size of the batch.
+     *
+     * @param httpsAdaptiveReceivePolicy the polling schedule, or {@code null} to go back to the fixed receive period.
+     * @throws IllegalStateException if the client is open.
+     * @throws IllegalArgumentException if the protocol is not HTTPS and the policy is not {@code null}.
+     */
+    void setHttpsAdaptiveReceivePolicy(HttpsAdaptiveReceivePolicy httpsAdaptiveReceivePolicy)
+    {
+        /* Codes_SRS_DEVICE_IO_44_001: [If the client is open, the setHttpsAdaptiveReceivePolicy shall throw IllegalStateException.] */
+        if (this.state == IotHubClientState.OPEN)
+        {
+            throw new IllegalStateException("The adaptive receive policy can only be set when the client is closed");
+        }
+
+        /* Codes_SRS_DEVICE_IO_44_002: [If the protocol is not HTTPS and the policy is not null, the setHttpsAdaptiveReceivePolicy shall throw IllegalArgumentException.] */
+        if ((httpsAdaptiveReceivePolicy != null) && (this.protocol != IotHubClientProtocol.HTTPS))
+        {
+            throw new IllegalArgumentException("The adaptive receive policy is only supported over HTTPS");
+        }
+
+        this.httpsAdaptiveReceivePolicy = httpsAdaptiveReceivePolicy;
+        this.transport.setHttpsAdaptiveReceivePolicy(httpsAdaptiveReceivePolicy);
+    }
+
     /**
      * Getter for the send period in milliseconds.
      *
@@ -432,4 +480,42 @@ public final class DeviceIO
         //Codes_SRS_DEVICE_IO_34_020: [This function shall register the callback with the transport.]
         this.transport.registerConnectionStatusChangeCallback(statusChangeCallback, callbackContext);
     }
+
+    /**
+     * Runs the receive task, then schedules its next run with the delay computed by the adaptive receive policy.
+     * The task keeps the scheduler it was created for, so a task of a closed client never runs on the scheduler of
+     * a client opened again.
+     */
+    private static final class AdaptiveReceiveTask implements Runnable
+    {
+        private final ScheduledExecutorService scheduler;
+        private final IotHubReceiveTask receiveTask;
+        private final HttpsAdaptiveReceivePolicy policy;
+
+        AdaptiveReceiveTask(ScheduledExecutorService scheduler, IotHubReceiveTask receiveTask, HttpsAdaptiveReceivePolicy policy)
+        {
+            this.scheduler = scheduler;
+            this.receiveTask = receiveTask;
+            this.policy = policy;
+        }
+
+        @Override
+        public void run()
+        {
+            this.receiveTask.run();
+
+            /* Codes_SRS_DEVICE_IO_44_004: [After the client is closed, the adaptive receive task shall not be scheduled again.] */
+            if (!this.scheduler.isShutdown())
+            {
+                try
+                {
+                    this.scheduler.schedule(this, this.policy.getNextPollDelayMillis(), TimeUnit.MILLISECONDS);
+                }
+                catch (RejectedExecutionException e)
+                {
+                    // the client was closed while the task was running
+                }
+            }
+        }
+    }
 }
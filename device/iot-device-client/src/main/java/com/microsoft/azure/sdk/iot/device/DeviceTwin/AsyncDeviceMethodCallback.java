@@ -0,0 +1,21 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.DeviceTwin;
+
+/**
+ * Device method callback that can provide its result after returning, by completing the {@link DeviceMethodResponse}
+ * from any thread.
+ */
+public interface AsyncDeviceMethodCallback
+{
+    /**
+     * Called when the IoT Hub invokes a method on the device.
+     *
+     * @param methodName the name of the invoked method.
+     * @param methodData the payload of the invocation.
+     * @param response the response to complete with the result of the method, once it is known.
+     * @param context the context provided when subscribing.
+     */
+    void call(String methodName, Object methodData, DeviceMethodResponse response, Object context);
+}
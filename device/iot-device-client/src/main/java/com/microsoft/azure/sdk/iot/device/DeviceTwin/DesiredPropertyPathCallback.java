@@ -0,0 +1,22 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.DeviceTwin;
+
+/**
+ * Callback for the changes of a desired property identified by its dotted path, like {@code config.sampling.rate}.
+ */
+public interface DesiredPropertyPathCallback
+{
+    /**
+     * Called when the desired properties received from the IoT Hub set, change or delete the property at the
+     * subscribed path, or anything below it.
+     *
+     * @param path the subscribed path.
+     * @param value the value received for the path, a {@code Map} if only part of a nested object was received, or
+     *              {@code null} if the property was deleted.
+     * @param version the {@code $version} of the desired properties that carried the change, can be {@code null}.
+     * @param context the context provided when subscribing.
+     */
+    void onDesiredPropertyPathChanged(String path, Object value, Integer version, Object context);
+}
@@ -0,0 +1,244 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.DeviceTwin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of the {@link DesiredPropertyPathCallback}s, indexed by a trie over the segments of their dotted paths.
+ *
+ * <p> Dispatching a desired properties patch walks the patch and the trie together, so only the subscribed paths
+ *     present in the patch are visited, each in as many steps as it has segments.
+ *
+ * <p> The trie is immutable and replaced on every subscription change, so dispatching never locks and never sees
+ *     a half updated registry. Subscriptions are expected to change far less often than patches arrive.
+ */
+final class DesiredPropertyPathIndex
+{
+    private static final String PATH_SEPARATOR_REGEX = "\\.";
+    private static final Node EMPTY_ROOT = new Node("", Collections.<String, Node>emptyMap(), Collections.<Pair<DesiredPropertyPathCallback, Object>>emptyList());
+
+    private static final class Node
+    {
+        private final String path;
+        private final Map<String, Node> children;
+        private final List<Pair<DesiredPropertyPathCallback, Object>> handlers;
+
+        private Node(String path, Map<String, Node> children, List<Pair<DesiredPropertyPathCallback, Object>> handlers)
+        {
+            this.path = path;
+            this.children = children;
+            this.handlers = handlers;
+        }
+
+        private boolean isEmpty()
+        {
+            return this.children.isEmpty() && this.handlers.isEmpty();
+        }
+    }
+
+    private volatile Node root = EMPTY_ROOT;
+
+    /**
+     * Split and validate a dotted path.
+     *
+     * @throws IllegalArgumentException if the path is {@code null}, empty, or has an empty segment or a segment with
+     *                                  a character that cannot be used in a twin key.
+     */
+    static String[] parsePath(String path) throws IllegalArgumentException
+    {
+        if (path == null || path.isEmpty())
+        {
+            throw new IllegalArgumentException("Path cannot be null or empty");
+        }
+
+        String[] segments = path.split(PATH_SEPARATOR_REGEX, -1);
+        for (String segment : segments)
+        {
+            if (segment.isEmpty() || segment.contains(" ") || segment.contains("$"))
+            {
+                throw new IllegalArgumentException("Path " + path + " has an empty or invalid segment");
+            }
+        }
+
+        return segments;
+    }
+
+    /**
+     * Add a callback for a path. A callback already registered for the same path gets the new context.
+     */
+    synchronized void add(String path, DesiredPropertyPathCallback callback, Object context)
+    {
+        this.root = add(this.root, parsePath(path), 0, new Pair<>(callback, context));
+    }
+
+    /**
+     * Remove a callback from a path.
+     *
+     * @return {@code true} if the callback was registered for the path.
+     */
+    synchronized boolean remove(String path, DesiredPropertyPathCallback callback)
+    {
+        Node newRoot = remove(this.root, parsePath(path), 0, callback);
+        if (newRoot == this.root)
+        {
+            return false;
+        }
+
+        this.root = newRoot == null ? EMPTY_ROOT : newRoot;
+        return true;
+    }
+
+    boolean isEmpty()
+    {
+        return this.root.isEmpty();
+    }
+
+    /**
+     * Call the callbacks interested in a top level desired property received from the IoT Hub.
+     *
+     * @return {@code true} if at least one callback was called.
+     */
+    boolean dispatch(String key, Object value, Integer version)
+    {
+        Node node = this.root.children.get(key);
+        return node != null && dispatch(node, value, version);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean dispatch(Node node, Object value, Integer version)
+    {
+        boolean called = false;
+        for (Pair<DesiredPropertyPathCallback, Object> handler : node.handlers)
+        {
+            handler.getKey().onDesiredPropertyPathChanged(node.path, value, version, handler.getValue());
+            called = true;
+        }
+
+        if (node.children.isEmpty())
+        {
+            return called;
+        }
+
+        if (value instanceof Map)
+        {
+            // a partial object only touches the paths it contains; walk the smaller of the two sides
+            Map<String, Object> object = (Map<String, Object>) value;
+            if (object.size() <= node.children.size())
+            {
+                for (Map.Entry<String, Object> entry : object.entrySet())
+                {
+                    Node child = node.children.get(entry.getKey());
+                    if (child != null)
+                    {
+                        called |= dispatch(child, entry.getValue(), version);
+                    }
+                }
+            }
+            else
+            {
+                for (Map.Entry<String, Node> child : node.children.entrySet())
+                {
+                    if (object.containsKey(child.getKey()))
+                    {
+                        called |= dispatch(child.getValue(), object.get(child.getKey()), version);
+                    }
+                }
+            }
+        }
+        else
+        {
+            // a value or a deletion replaced the whole object, so every path below it is gone
+            for (Node child : node.children.values())
+            {
+                called |= dispatch(child, null, version);
+            }
+        }
+
+        return called;
+    }
+
+    private static Node add(Node node, String[] segments, int depth, Pair<DesiredPropertyPathCallback, Object> handler)
+    {
+        if (depth == segments.length)
+        {
+            List<Pair<DesiredPropertyPathCallback, Object>> handlers = new ArrayList<>(node.handlers.size() + 1);
+            for (Pair<DesiredPropertyPathCallback, Object> existing : node.handlers)
+            {
+                if (existing.getKey() != handler.getKey())
+                {
+                    handlers.add(existing);
+                }
+            }
+            handlers.add(handler);
+            return new Node(node.path, node.children, Collections.unmodifiableList(handlers));
+        }
+
+        Node child = node.children.get(segments[depth]);
+        if (child == null)
+        {
+            String childPath = depth == 0 ? segments[0] : node.path + "." + segments[depth];
+            child = new Node(childPath, Collections.<String, Node>emptyMap(), Collections.<Pair<DesiredPropertyPathCallback, Object>>emptyList());
+        }
+
+        Map<String, Node> children = new HashMap<>(node.children);
+        children.put(segments[depth], add(child, segments, depth + 1, handler));
+        return new Node(node.path, Collections.unmodifiableMap(children), node.handlers);
+    }
+
+    /**
+     * @return the same node if nothing was removed, the updated node otherwise, or {@code null} if it became empty.
+     */
+    private static Node remove(Node node, String[] segments, int depth, DesiredPropertyPathCallback callback)
+    {
+        if (depth == segments.length)
+        {
+            List<Pair<DesiredPropertyPathCallback, Object>> handlers = new ArrayList<>(node.handlers.size());
+            for (Pair<DesiredPropertyPathCallback, Object> existing : node.handlers)
+            {
+                if (existing.getKey() != callback)
+                {
+                    handlers.add(existing);
+                }
+            }
+
+            if (handlers.size() == node.handlers.size())
+            {
+                return node;
+            }
+
+            Node updated = new Node(node.path, node.children, Collections.unmodifiableList(handlers));
+            return updated.isEmpty() ? null : updated;
+        }
+
+        Node child = node.children.get(segments[depth]);
+        if (child == null)
+        {
+            return node;
+        }
+
+        Node updatedChild = remove(child, segments, depth + 1, callback);
+        if (updatedChild == child)
+        {
+            return node;
+        }
+
+        Map<String, Node> children = new HashMap<>(node.children);
+        if (updatedChild == null)
+        {
+            children.remove(segments[depth]);
+        }
+        else
+        {
+            children.put(segments[depth], updatedChild);
+        }
+
+        Node updated = new Node(node.path, Collections.unmodifiableMap(children), node.handlers);
+        return updated.isEmpty() ? null : updated;
+    }
+}
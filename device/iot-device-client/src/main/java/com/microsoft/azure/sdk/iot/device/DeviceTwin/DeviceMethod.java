@@ -7,10 +7,14 @@ import com.microsoft.azure.sdk.iot.deps.serializer.MethodParser;
 import com.microsoft.azure.sdk.iot.device.*;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
 
+import java.util.concurrent.RejectedExecutionException;
+
 public final class DeviceMethod
 {
     private DeviceMethodCallback deviceMethodCallback;
     private Object deviceMethodCallbackContext;
+    private volatile AsyncDeviceMethodCallback asyncDeviceMethodCallback;
+    private volatile DeviceMethodDispatcher methodDispatcher;
     private IotHubEventCallback deviceMethodStatusCallback;
     private Object deviceMethodStatusCallbackContext;
     private final ObjectLock DEVICE_METHOD_LOCK = new ObjectLock();
@@ -53,7 +57,16 @@ public final class DeviceMethod
                 {
                     case DEVICE_OPERATION_METHOD_RECEIVE_REQUEST:
 
-                        if (deviceMethodCallback != null)
+                        if (asyncDeviceMethodCallback != null || (deviceMethodCallback != null && methodDispatcher != null))
+                        {
+                            isSubscribed = true;
+
+                            /*
+                            **Codes_SRS_DEVICEMETHOD_44_001: [**If an asynchronous callback or a method dispatcher is set, the invocation shall be handed to the dispatcher, or run in place without one, and the message shall be marked as complete; the response shall be sent whenever the invocation completes it.**]**
+                             */
+                            result = dispatchInvocation(methodMessage);
+                        }
+                        else if (deviceMethodCallback != null)
                         {
                             if (!isSubscribed)
                             {
@@ -129,6 +142,116 @@ public final class DeviceMethod
         }
     }
 
+    /*
+        Sends the response of one method invocation run outside of the transport thread
+     */
+    private final class deviceMethodResponseSender implements DeviceMethodResponse.Sender
+    {
+        private final IotHubTransportMessage methodMessage;
+
+        private deviceMethodResponseSender(IotHubTransportMessage methodMessage)
+        {
+            this.methodMessage = methodMessage;
+        }
+
+        @Override
+        public void sendResponse(DeviceMethodData responseData)
+        {
+            /*
+            **Codes_SRS_DEVICEMETHOD_44_002: [**The response of a dispatched invocation shall be sent with the request id of the invoking message and the status provided by the user.**]**
+             */
+            MethodParser methodParserObject = new MethodParser(responseData.getResponseMessage());
+            IotHubTransportMessage responseMessage = new IotHubTransportMessage(methodParserObject.toJson().getBytes(), MessageType.DEVICE_METHODS);
+            responseMessage.setRequestId(this.methodMessage.getRequestId());
+            responseMessage.setConnectionDeviceId(config.getDeviceId());
+            responseMessage.setStatus(String.valueOf(responseData.getStatus()));
+            responseMessage.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_METHOD_SEND_RESPONSE);
+
+            deviceIO.sendEventAsync(responseMessage, new deviceMethodRequestMessageCallback(), null, config.getDeviceId());
+        }
+
+        @Override
+        public void sendFailure(Throwable failure)
+        {
+            /*
+            **Codes_SRS_DEVICEMETHOD_44_003: [**If a dispatched invocation fails or completes without response data, the user shall be notified on the status callback as ERROR.**]**
+             */
+            logger.LogInfo("User callback did not succeed");
+            deviceMethodStatusCallback.execute(IotHubStatusCode.ERROR, deviceMethodStatusCallbackContext);
+        }
+    }
+
+    /*
+        Calls the user callback for one method invocation
+     */
+    private static final class deviceMethodInvocation implements Runnable
+    {
+        private final IotHubTransportMessage methodMessage;
+        private final DeviceMethodCallback deviceMethodCallback;
+        private final AsyncDeviceMethodCallback asyncDeviceMethodCallback;
+        private final Object deviceMethodCallbackContext;
+        private final DeviceMethodResponse response;
+
+        private deviceMethodInvocation(IotHubTransportMessage methodMessage, DeviceMethodCallback deviceMethodCallback,
+                                       AsyncDeviceMethodCallback asyncDeviceMethodCallback, Object deviceMethodCallbackContext,
+                                       DeviceMethodResponse response)
+        {
+            this.methodMessage = methodMessage;
+            this.deviceMethodCallback = deviceMethodCallback;
+            this.asyncDeviceMethodCallback = asyncDeviceMethodCallback;
+            this.deviceMethodCallbackContext = deviceMethodCallbackContext;
+            this.response = response;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                if (this.asyncDeviceMethodCallback != null)
+                {
+                    this.asyncDeviceMethodCallback.call(this.methodMessage.getMethodName(), this.methodMessage.getBytes(), this.response, this.deviceMethodCallbackContext);
+                }
+                else
+                {
+                    this.response.complete(this.deviceMethodCallback.call(this.methodMessage.getMethodName(), this.methodMessage.getBytes(), this.deviceMethodCallbackContext));
+                }
+            }
+            catch (Exception e)
+            {
+                this.response.completeExceptionally(e);
+            }
+        }
+    }
+
+    private IotHubMessageResult dispatchInvocation(IotHubTransportMessage methodMessage)
+    {
+        DeviceMethodResponse response = new DeviceMethodResponse(new deviceMethodResponseSender(methodMessage));
+        Runnable invocation = new deviceMethodInvocation(methodMessage, this.deviceMethodCallback, this.asyncDeviceMethodCallback, this.deviceMethodCallbackContext, response);
+
+        DeviceMethodDispatcher dispatcher = this.methodDispatcher;
+        if (dispatcher == null)
+        {
+            invocation.run();
+            return IotHubMessageResult.COMPLETE;
+        }
+
+        try
+        {
+            dispatcher.dispatch(methodMessage.getMethodName(), invocation);
+            return IotHubMessageResult.COMPLETE;
+        }
+        catch (RejectedExecutionException e)
+        {
+            /*
+            **Codes_SRS_DEVICEMETHOD_44_004: [**If the dispatcher rejects the invocation, the user shall be notified on the status callback as ERROR and the message shall be marked as rejected.**]**
+             */
+            logger.LogError("The device method dispatcher rejected the invocation");
+            response.completeExceptionally(e);
+            return IotHubMessageResult.REJECT;
+        }
+    }
+
     private final class deviceMethodRequestMessageCallback implements IotHubEventCallback
     {
         @Override
@@ -202,7 +325,51 @@ public final class DeviceMethod
 
         this.deviceMethodCallback = deviceMethodCallback;
         this.deviceMethodCallbackContext = deviceMethodCallbackContext;
+        this.asyncDeviceMethodCallback = null;
+
+        subscribe();
+    }
+
+    /**
+     * A method which subscribes to receive device method invocation for the user with the IotHub, with a callback
+     * that can send its response after returning.
+     * @param asyncDeviceMethodCallback Callback where upon receiving the request the
+     *                                  invoke a method shall be triggered.
+     * @param deviceMethodCallbackContext Context to be passed on when invoking the
+     *                                    callback.
+     * @throws IllegalArgumentException This exception is thrown when asyncDeviceMethodCallback is provided null.
+     */
+    public void subscribeToDeviceMethod(AsyncDeviceMethodCallback asyncDeviceMethodCallback, Object deviceMethodCallbackContext) throws IllegalArgumentException
+    {
+        if (asyncDeviceMethodCallback == null)
+        {
+            /*
+            **Codes_SRS_DEVICEMETHOD_44_005: [**If asyncDeviceMethodCallback parameter is null then this method shall throw IllegalArgumentException**]**
+             */
+            throw new IllegalArgumentException("Callback cannot be null");
+        }
+
+        this.deviceMethodCallbackContext = deviceMethodCallbackContext;
+        this.asyncDeviceMethodCallback = asyncDeviceMethodCallback;
+        this.deviceMethodCallback = null;
 
+        subscribe();
+    }
+
+    /**
+     * Set the dispatcher running the device method callbacks.
+     * @param methodDispatcher the dispatcher, or {@code null} to run the callbacks on the transport thread.
+     */
+    public void setMethodDispatcher(DeviceMethodDispatcher methodDispatcher)
+    {
+        /*
+        **Codes_SRS_DEVICEMETHOD_44_006: [**The method shall save the dispatcher to be used by the following invocations.**]**
+         */
+        this.methodDispatcher = methodDispatcher;
+    }
+
+    private void subscribe()
+    {
         if (!isSubscribed)
         {
             /*
@@ -0,0 +1,175 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.DeviceTwin;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the device method callbacks on an {@link Executor} instead of the transport thread, so a slow method does not
+ * delay the other method invocations nor the cloud to device messages.
+ *
+ * <p> The number of concurrent invocations of each method name can be limited. The invocations past the limit wait
+ *     in a queue of their method, without holding a thread of the executor, and start as soon as a previous
+ *     invocation of the same method ends.
+ */
+public final class DeviceMethodDispatcher
+{
+    /**
+     * Concurrency limit meaning that the invocations of a method are not limited.
+     */
+    public static final int UNLIMITED = 0;
+
+    private final Executor executor;
+    private final int defaultConcurrencyLimit;
+    private final Map<String, Integer> concurrencyLimits = new HashMap<>();
+    private final Map<String, MethodState> methodStates = new HashMap<>();
+
+    private static final class MethodState
+    {
+        private int running;
+        private final Queue<Runnable> waiting = new ArrayDeque<>();
+    }
+
+    /**
+     * Create a dispatcher.
+     *
+     * @param executor the executor running the device method callbacks. Cannot be {@code null}.
+     * @param defaultConcurrencyLimit the largest number of concurrent invocations of a method without a specific
+     *                                limit, or {@link #UNLIMITED}.
+     * @throws IllegalArgumentException if the executor is {@code null} or the limit is negative.
+     */
+    public DeviceMethodDispatcher(Executor executor, int defaultConcurrencyLimit) throws IllegalArgumentException
+    {
+        if (executor == null)
+        {
+            throw new IllegalArgumentException("executor cannot be null");
+        }
+
+        if (defaultConcurrencyLimit < 0)
+        {
+            throw new IllegalArgumentException("The concurrency limit cannot be negative");
+        }
+
+        this.executor = executor;
+        this.defaultConcurrencyLimit = defaultConcurrencyLimit;
+    }
+
+    /**
+     * Set the largest number of concurrent invocations of a method.
+     *
+     * @param methodName the name of the method. Cannot be {@code null} or empty.
+     * @param concurrencyLimit the largest number of concurrent invocations, or {@link #UNLIMITED}.
+     * @throws IllegalArgumentException if the method name is {@code null} or empty, or the limit is negative.
+     */
+    public synchronized void setConcurrencyLimit(String methodName, int concurrencyLimit) throws IllegalArgumentException
+    {
+        if (methodName == null || methodName.isEmpty())
+        {
+            throw new IllegalArgumentException("methodName cannot be null or empty");
+        }
+
+        if (concurrencyLimit < 0)
+        {
+            throw new IllegalArgumentException("The concurrency limit cannot be negative");
+        }
+
+        this.concurrencyLimits.put(methodName, concurrencyLimit);
+    }
+
+    /**
+     * Run an invocation of a method, now or once an invocation of the same method ends.
+     *
+     * @throws RejectedExecutionException if the executor does not accept the invocation.
+     */
+    void dispatch(final String methodName, Runnable invocation) throws RejectedExecutionException
+    {
+        synchronized (this)
+        {
+            MethodState state = this.methodStates.get(methodName);
+            if (state == null)
+            {
+                state = new MethodState();
+                this.methodStates.put(methodName, state);
+            }
+
+            int limit = getConcurrencyLimit(methodName);
+            if (limit != UNLIMITED && state.running >= limit)
+            {
+                state.waiting.add(invocation);
+                return;
+            }
+
+            state.running++;
+        }
+
+        submit(methodName, invocation);
+    }
+
+    private void submit(final String methodName, final Runnable invocation)
+    {
+        try
+        {
+            this.executor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        invocation.run();
+                    }
+                    finally
+                    {
+                        onInvocationEnded(methodName);
+                    }
+                }
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            onInvocationEnded(methodName);
+            throw e;
+        }
+    }
+
+    private void onInvocationEnded(String methodName)
+    {
+        Runnable next;
+        synchronized (this)
+        {
+            MethodState state = this.methodStates.get(methodName);
+            next = state.waiting.poll();
+            if (next == null)
+            {
+                state.running--;
+                if (state.running == 0)
+                {
+                    this.methodStates.remove(methodName);
+                }
+                return;
+            }
+        }
+
+        // the slot of the invocation that ended goes to the next one waiting
+        try
+        {
+            submit(methodName, next);
+        }
+        catch (RejectedExecutionException e)
+        {
+            // the executor was shut down, the waiting invocations cannot run anymore
+        }
+    }
+
+    private int getConcurrencyLimit(String methodName)
+    {
+        Integer limit = this.concurrencyLimits.get(methodName);
+        return limit == null ? this.defaultConcurrencyLimit : limit;
+    }
+}
@@ -0,0 +1,82 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.DeviceTwin;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The pending response to a device method invocation. The response is sent to the IoT Hub as soon as it is
+ * completed, independently of the other invocations. Only the first completion is taken into account.
+ */
+public final class DeviceMethodResponse
+{
+    /**
+     * Sends the response of one invocation.
+     */
+    interface Sender
+    {
+        void sendResponse(DeviceMethodData responseData);
+        void sendFailure(Throwable failure);
+    }
+
+    private final Sender sender;
+    private final AtomicBoolean done = new AtomicBoolean(false);
+
+    DeviceMethodResponse(Sender sender)
+    {
+        this.sender = sender;
+    }
+
+    /**
+     * Send the result of the method to the IoT Hub.
+     *
+     * @param responseData the status and response message of the method. If {@code null}, no response is sent and
+     *                     the device method status callback is notified of the error.
+     * @return {@code true} if this call completed the response, {@code false} if it was already completed.
+     */
+    public boolean complete(DeviceMethodData responseData)
+    {
+        if (!this.done.compareAndSet(false, true))
+        {
+            return false;
+        }
+
+        if (responseData == null)
+        {
+            this.sender.sendFailure(null);
+        }
+        else
+        {
+            this.sender.sendResponse(responseData);
+        }
+
+        return true;
+    }
+
+    /**
+     * Report that the method failed. No response is sent, and the device method status callback is notified of
+     * the error.
+     *
+     * @param failure the reason of the failure.
+     * @return {@code true} if this call completed the response, {@code false} if it was already completed.
+     */
+    public boolean completeExceptionally(Throwable failure)
+    {
+        if (!this.done.compareAndSet(false, true))
+        {
+            return false;
+        }
+
+        this.sender.sendFailure(failure);
+        return true;
+    }
+
+    /**
+     * @return {@code true} if the response was completed.
+     */
+    public boolean isDone()
+    {
+        return this.done.get();
+    }
+}
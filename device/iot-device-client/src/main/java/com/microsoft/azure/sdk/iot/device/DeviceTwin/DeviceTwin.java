@@ -8,20 +8,25 @@ import com.microsoft.azure.sdk.iot.deps.twin.TwinMetadata;
 import com.microsoft.azure.sdk.iot.deps.twin.TwinState;
 import com.microsoft.azure.sdk.iot.device.*;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
+import com.microsoft.azure.sdk.iot.device.transport.TwinRequestTable;
 
 import java.io.IOException;
-import java.util.Date;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.microsoft.azure.sdk.iot.device.IotHubMessageResult.ABANDON;
 import static com.microsoft.azure.sdk.iot.device.IotHubMessageResult.COMPLETE;
 
 public class DeviceTwin
 {
-    private int requestId;
+    private final AtomicInteger requestId = new AtomicInteger();
     private DeviceIO deviceIO = null;
     private DeviceClientConfig config = null;
     private boolean isSubscribed = false;
@@ -47,6 +52,66 @@ public class DeviceTwin
     private ConcurrentSkipListMap<String, Pair<PropertyCallBack<String, Object>, Object>> onDesiredPropertyChangeMap;
     private ConcurrentSkipListMap<String, Pair<TwinPropertyCallBack, Object>> onDesiredTwinPropertyChangeMap;
 
+    /*
+        Twin requests waiting for their response, indexed by request id and correlation id, so that their outcome
+        can be delivered to each caller. Requests without response expire after the request timeout
+     */
+    private final TwinRequestTable<TwinRequest> pendingRequests = new TwinRequestTable<>();
+    private final AtomicBoolean requestExpirationScheduled = new AtomicBoolean(false);
+
+    /*
+        Merges the reported properties updates when coalescing is enabled, null otherwise
+     */
+    private volatile ReportedPropertiesCoalescer reportedPropertiesCoalescer;
+    private final Object COALESCER_LOCK = new Object();
+
+    /*
+        Local copy of the twin, updated by the full twins and the desired properties patches received
+     */
+    private final TwinCache twinCache = new TwinCache();
+
+    /*
+        Callbacks for the desired properties subscribed by dotted path
+     */
+    private final DesiredPropertyPathIndex desiredPropertyPathIndex = new DesiredPropertyPathIndex();
+
+    /*
+        A twin GET, or a reported properties PATCH sent on behalf of one or more callers
+     */
+    private static final class TwinRequest
+    {
+        private final String requestId;
+        private final String correlationId;
+        private final boolean fullTwin;
+        private final List<Pair<IotHubEventCallback, Object>> callbacks;
+        private final AtomicBoolean completed = new AtomicBoolean(false);
+
+        private TwinRequest(String requestId, String correlationId, boolean fullTwin, List<Pair<IotHubEventCallback, Object>> callbacks)
+        {
+            this.requestId = requestId;
+            this.correlationId = correlationId;
+            this.fullTwin = fullTwin;
+            this.callbacks = callbacks;
+        }
+    }
+
+    /*
+        Single thread shared by all the twins to expire their requests, created on first use
+     */
+    private static final class RequestExpirationTimer
+    {
+        private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "azure-iot-sdk-TwinRequestExpiration");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
     /*
         Callback invoked when a response to device twin operation is issued by iothub
      */
@@ -58,6 +123,9 @@ public class DeviceTwin
         @Override
         public IotHubMessageResult execute(Message message, Object callbackContext)
         {
+            TwinCollection desiredPropertiesToDispatch = null;
+            TwinCollection reportedPropertiesToDispatch = null;
+
             synchronized (DEVICE_TWIN_LOCK)
             {
                 /*
@@ -95,15 +163,33 @@ public class DeviceTwin
                              **Codes_SRS_DEVICETWIN_25_030: [**If the message is of type DEVICE_TWIN and DEVICE_OPERATION_TWIN_GET_RESPONSE then the payload is deserialized only if the status is ok.**]**
                              */
                             TwinState twinState = TwinState.createFromPropertiesJson(new String(dtMessage.getBytes(), Message.DEFAULT_IOTHUB_MESSAGE_CHARSET));
+
+                            /*
+                             **Codes_SRS_DEVICETWIN_44_009: [**If the message is of type DEVICE_TWIN and DEVICE_OPERATION_TWIN_GET_RESPONSE and the status is ok, the local twin shall be replaced by the received twin, then the buffered desired properties patches that follow it shall be applied.**]**
+                             */
+                            if (twinCache.onFullTwin(twinState.getDesiredProperty(), twinState.getReportedProperty()))
+                            {
+                                getDeviceTwin();
+                            }
+
                             if (twinState.getDesiredProperty() != null)
                             {
-                                OnDesiredPropertyChanged(twinState.getDesiredProperty());
+                                desiredPropertiesToDispatch = twinState.getDesiredProperty();
                             }
                             if (twinState.getReportedProperty() != null)
                             {
-                                OnReportedPropertyChanged(twinState.getReportedProperty());
+                                reportedPropertiesToDispatch = twinState.getReportedProperty();
                             }
                         }
+                        else
+                        {
+                            twinCache.onFullTwinFailed();
+                        }
+
+                        /*
+                         **Codes_SRS_DEVICETWIN_44_017: [**If the response matches a pending twin request, the request shall be completed with the response status.**]**
+                         */
+                        completeRequest(takeRequest(dtMessage), iotHubStatus);
                         break;
                     }
                     case DEVICE_OPERATION_TWIN_UPDATE_REPORTED_PROPERTIES_RESPONSE:
@@ -117,6 +203,12 @@ public class DeviceTwin
                          */
                         deviceTwinStatusCallback.execute(iotHubStatus, deviceTwinStatusCallbackContext);
 
+                        /*
+                         **Codes_SRS_DEVICETWIN_44_001: [**If the response matches a reported properties request sent with per caller callbacks, each of them shall be called with the response status.**]**
+                         **Codes_SRS_DEVICETWIN_44_017: [**If the response matches a pending twin request, the request shall be completed with the response status.**]**
+                         */
+                        completeRequest(takeRequest(dtMessage), iotHubStatus);
+
                         break;
                     }
                     case DEVICE_OPERATION_TWIN_SUBSCRIBE_DESIRED_PROPERTIES_RESPONSE:
@@ -129,7 +221,16 @@ public class DeviceTwin
 
                         if(twinState.getDesiredProperty() != null)
                         {
-                            OnDesiredPropertyChanged(twinState.getDesiredProperty());
+                            /*
+                             **Codes_SRS_DEVICETWIN_44_010: [**If the desired properties patch follows the version of the local twin, it shall be applied to the local twin; if it reveals a version gap, it shall be buffered and the full twin shall be requested, unless it already was.**]**
+                             */
+                            TwinCollection desiredProperty = twinState.getDesiredProperty();
+                            if (twinCache.onDesiredPatch(desiredProperty))
+                            {
+                                getDeviceTwin();
+                            }
+
+                            desiredPropertiesToDispatch = desiredProperty;
                         }
 
                         break;
@@ -137,58 +238,64 @@ public class DeviceTwin
                     default:
                         break;
                 }
-                return COMPLETE;
             }
+
+            /*
+             **Codes_SRS_DEVICETWIN_44_012: [**The property callbacks shall be called after the device twin lock is released.**]**
+             */
+            OnDesiredPropertyChanged(desiredPropertiesToDispatch);
+            OnReportedPropertyChanged(reportedPropertiesToDispatch);
+
+            return COMPLETE;
         }
     }
 
     private void OnDesiredPropertyChanged(TwinCollection desiredPropertyMap)
     {
-        synchronized (DEVICE_TWIN_LOCK)
+        if (desiredPropertyMap != null)
         {
-            if (desiredPropertyMap != null)
+            for (Iterator desiredPropertyIt = desiredPropertyMap.entrySet().iterator(); desiredPropertyIt.hasNext();)
             {
-                for (Iterator desiredPropertyIt = desiredPropertyMap.entrySet().iterator(); desiredPropertyIt.hasNext();)
-                {
-                    Map.Entry<String, String> desiredProperty = (Map.Entry<String, String>) desiredPropertyIt.next();
-                    Property property = this.getProperty(desiredPropertyMap, desiredProperty.getKey(), false);
+                Map.Entry<String, String> desiredProperty = (Map.Entry<String, String>) desiredPropertyIt.next();
+                Property property = this.getProperty(desiredPropertyMap, desiredProperty.getKey(), false);
 
+                /*
+                 **Codes_SRS_DEVICETWIN_44_013: [**OnDesiredPropertyChange callback shall call the callbacks subscribed to the paths present in the desiredPropertyMap, or below a property it replaced or deleted.**]**
+                 */
+                boolean reportedByPath = desiredPropertyPathIndex.dispatch(property.getKey(), property.getValue(), property.getVersion());
+
+                /*
+                 **Codes_SRS_DEVICETWIN_25_022: [**OnDesiredPropertyChange callback shall look for the user registered call back on the property that changed provided in desiredPropertyMap and call the user providing the desired property change key and value pair**]**
+                 */
+                if (!reportPropertyCallback(property) && !reportedByPath)
+                {
                     /*
-                     **Codes_SRS_DEVICETWIN_25_022: [**OnDesiredPropertyChange callback shall look for the user registered call back on the property that changed provided in desiredPropertyMap and call the user providing the desired property change key and value pair**]**
+                     **Codes_SRS_DEVICETWIN_25_023: [**OnDesiredPropertyChange callback shall look for the user registered call back on the property that changed and if no callback is registered or is null then OnDesiredPropertyChange shall call the user on generic callback providing with the desired property change key and value pair**]**
                      */
-                    if (!reportPropertyCallback(property))
-                    {
-                        /*
-                         **Codes_SRS_DEVICETWIN_25_023: [**OnDesiredPropertyChange callback shall look for the user registered call back on the property that changed and if no callback is registered or is null then OnDesiredPropertyChange shall call the user on generic callback providing with the desired property change key and value pair**]**
-                         */
-                        reportDeviceTwinGenericPropertyCallback(property);
-                    }
-                    desiredPropertyIt.remove();
+                    reportDeviceTwinGenericPropertyCallback(property);
                 }
+                desiredPropertyIt.remove();
             }
         }
     }
 
     private void OnReportedPropertyChanged(TwinCollection reportedPropertyMap)
     {
-        synchronized (DEVICE_TWIN_LOCK)
+        if (reportedPropertyMap != null)
         {
-            if (reportedPropertyMap != null)
+            for (Iterator reportedPropertyIt = reportedPropertyMap.entrySet().iterator(); reportedPropertyIt.hasNext();)
             {
-                for (Iterator reportedPropertyIt = reportedPropertyMap.entrySet().iterator(); reportedPropertyIt.hasNext();)
-                {
-                    Map.Entry<String, String> reportedProperty = (Map.Entry<String, String>) reportedPropertyIt.next();
-                    Property property = this.getProperty(reportedPropertyMap, reportedProperty.getKey(), true);
+                Map.Entry<String, String> reportedProperty = (Map.Entry<String, String>) reportedPropertyIt.next();
+                Property property = this.getProperty(reportedPropertyMap, reportedProperty.getKey(), true);
 
-                    /*
-                     **Codes_SRS_DEVICETWIN_25_023: [**OnReportedPropertyChanged callback shall look for the user registered call back on the property that changed and if no callback is registered or is null then OnDesiredPropertyChange shall call the user on generic callback providing with the desired property change key and value pair**]**
-                     */
-                    if(deviceTwinGenericTwinPropertyChangeCallback != null)
-                    {
-                        deviceTwinGenericTwinPropertyChangeCallback.TwinPropertyCallBack(property, deviceTwinGenericPropertyChangeCallbackContext);
-                    }
-                    reportedPropertyIt.remove();
+                /*
+                 **Codes_SRS_DEVICETWIN_25_023: [**OnReportedPropertyChanged callback shall look for the user registered call back on the property that changed and if no callback is registered or is null then OnDesiredPropertyChange shall call the user on generic callback providing with the desired property change key and value pair**]**
+                 */
+                if(deviceTwinGenericTwinPropertyChangeCallback != null)
+                {
+                    deviceTwinGenericTwinPropertyChangeCallback.TwinPropertyCallBack(property, deviceTwinGenericPropertyChangeCallbackContext);
                 }
+                reportedPropertyIt.remove();
             }
         }
     }
@@ -230,6 +337,14 @@ public class DeviceTwin
                 if((responseStatus != IotHubStatusCode.OK) && (responseStatus != IotHubStatusCode.OK_EMPTY))
                 {
                     deviceTwinStatusCallback.execute(responseStatus, deviceTwinStatusCallbackContext);
+
+                    /*
+                     **Codes_SRS_DEVICETWIN_44_002: [**If a reported properties request sent with per caller callbacks could not be delivered, each of them shall be called with the delivery status.**]**
+                     */
+                    if (callbackContext instanceof TwinRequest)
+                    {
+                        failRequest((TwinRequest) callbackContext, responseStatus);
+                    }
                 }
             }
         }
@@ -283,15 +398,40 @@ public class DeviceTwin
          **Codes_SRS_DEVICETWIN_25_002: [**The constructor shall save the device twin message callback by calling setDeviceTwinMessageCallback where any further messages for device twin shall be delivered.**]**
          */
         this.config.setDeviceTwinMessageCallback(new deviceTwinResponseMessageCallback(), null);
-        this.requestId = 0;
+        this.requestId.set(0);
 
         this.deviceTwinStatusCallback = deviceTwinCallback;
         this.deviceTwinStatusCallbackContext = deviceTwinCallbackContext;
 
         this.deviceTwinGenericPropertyChangeCallbackContext = genericPropertyCallbackContext;
+
+        this.pendingRequests.setExpirationListener(new TwinRequestTable.ExpirationListener<TwinRequest>()
+        {
+            @Override
+            public void onExpired(String requestId, TwinRequest request)
+            {
+                /*
+                 **Codes_SRS_DEVICETWIN_44_018: [**If no response to a twin request arrives within the request timeout, the request shall be completed with MESSAGE_EXPIRED.**]**
+                 */
+                failRequest(request, IotHubStatusCode.MESSAGE_EXPIRED);
+            }
+        });
     }
 
     public void getDeviceTwin()
+    {
+        this.getDeviceTwinAsync();
+    }
+
+    /**
+     * Request the full twin from the IoT Hub. The twin is delivered to the property callbacks, and the status of
+     * the response to the device twin status callback and to the returned future.
+     *
+     * @return the future status of the request. It completes with {@link IotHubStatusCode#THROTTLED} right away if
+     *         too many twin requests are waiting for their response, and with
+     *         {@link IotHubStatusCode#MESSAGE_EXPIRED} if the response does not arrive in time.
+     */
+    public Future<IotHubStatusCode> getDeviceTwinAsync()
     {
         /*
          **Codes_SRS_DEVICETWIN_25_005: [**The method shall create a device twin message with empty payload to be sent IotHub.**]**
@@ -301,25 +441,77 @@ public class DeviceTwin
         /*
          **Codes_SRS_DEVICETWIN_25_007: [**This method shall set the request id for the message by calling setRequestId .**]**
          */
-        getTwinRequestMessage.setRequestId(String.valueOf(requestId++));
+        String id = String.valueOf(requestId.getAndIncrement());
+        getTwinRequestMessage.setRequestId(id);
 
         /*
          **Codes_SRS_DEVICETWIN_25_006: [**This method shall set the message type as DEVICE_OPERATION_TWIN_GET_REQUEST by calling setDeviceOperationType.**]**
          */
         getTwinRequestMessage.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_TWIN_GET_REQUEST);
 
-        /*
-         **Codes_SRS_DEVICETWIN_25_008: [**This method shall send the message to the lower transport layers by calling sendEventAsync.**]**
-         */
-        this.deviceIO.sendEventAsync(getTwinRequestMessage, new deviceTwinRequestMessageCallback(), null, this.config.getDeviceId());
+        TwinRequestFuture future = new TwinRequestFuture();
+        List<Pair<IotHubEventCallback, Object>> callbacks = new ArrayList<>();
+        callbacks.add(new Pair<IotHubEventCallback, Object>(TwinRequestFuture.COMPLETION_CALLBACK, future));
+        TwinRequest request = new TwinRequest(id, getTwinRequestMessage.getCorrelationId(), true, callbacks);
+
+        if (trackRequest(request))
+        {
+            /*
+             **Codes_SRS_DEVICETWIN_25_008: [**This method shall send the message to the lower transport layers by calling sendEventAsync.**]**
+             */
+            this.deviceIO.sendEventAsync(getTwinRequestMessage, new deviceTwinRequestMessageCallback(), request, this.config.getDeviceId());
+        }
+
+        return future;
     }
 
-    public synchronized void updateReportedProperties(Set<Property> reportedProperties) throws IOException
+    public void updateReportedProperties(Set<Property> reportedProperties) throws IOException
     {
         this.updateReportedProperties(reportedProperties, null);
     }
 
-    public synchronized void updateReportedProperties(Set<Property> reportedProperties, Integer version) throws IOException
+    public void updateReportedProperties(Set<Property> reportedProperties, Integer version) throws IOException
+    {
+        this.updateReportedProperties(reportedProperties, version, null, null);
+    }
+
+    /**
+     * Update the reported properties, reporting the outcome to the provided callback in addition to the device twin
+     * status callback.
+     *
+     * <p> If reported properties coalescing is enabled and no version is provided, the properties are merged with
+     *     the other pending ones and sent by the next flush, and the callback is called with the outcome of that PATCH.
+     *     A versioned update flushes the pending properties, then is sent on its own.
+     *
+     * @param reportedProperties the reported properties to update. Cannot be {@code null}.
+     * @param version the version of the reported properties, can be {@code null}.
+     * @param reportedPropertiesCallback the callback to report the outcome of the update to, can be {@code null}.
+     * @param reportedPropertiesCallbackContext the context passed to the callback, can be {@code null}.
+     * @throws IOException if the set contains duplicated keys.
+     */
+    public void updateReportedProperties(Set<Property> reportedProperties, Integer version,
+                                         IotHubEventCallback reportedPropertiesCallback, Object reportedPropertiesCallbackContext) throws IOException
+    {
+        this.updateReportedPropertiesAsync(reportedProperties, version, reportedPropertiesCallback, reportedPropertiesCallbackContext);
+    }
+
+    /**
+     * Update the reported properties, reporting the outcome to the provided callback and to the returned future in
+     * addition to the device twin status callback.
+     *
+     * <p> If reported properties coalescing is enabled and no version is provided, the properties are merged with
+     *     the other pending ones and sent by the next flush, and the callback is called with the outcome of that PATCH.
+     *     A versioned update flushes the pending properties, then is sent on its own.
+     *
+     * @param reportedProperties the reported properties to update. Cannot be {@code null}.
+     * @param version the version of the reported properties, can be {@code null}.
+     * @param reportedPropertiesCallback the callback to report the outcome of the update to, can be {@code null}.
+     * @param reportedPropertiesCallbackContext the context passed to the callback, can be {@code null}.
+     * @return the future status of the update, completed along with the callback.
+     * @throws IOException if the set contains duplicated keys.
+     */
+    public Future<IotHubStatusCode> updateReportedPropertiesAsync(Set<Property> reportedProperties, Integer version,
+                                                                  IotHubEventCallback reportedPropertiesCallback, Object reportedPropertiesCallbackContext) throws IOException
     {
         if (reportedProperties == null)
         {
@@ -343,6 +535,132 @@ public class DeviceTwin
 
             reportedPropertiesMap.putFinal(p.getKey(), p.getValue());
         }
+
+        /*
+         **Codes_SRS_DEVICETWIN_44_019: [**The method shall return a future completed with the status reported to the callback.**]**
+         */
+        TwinRequestFuture future = new TwinRequestFuture();
+        List<Pair<IotHubEventCallback, Object>> callbacks = new ArrayList<>();
+        if (reportedPropertiesCallback != null)
+        {
+            callbacks.add(new Pair<>(reportedPropertiesCallback, reportedPropertiesCallbackContext));
+        }
+        callbacks.add(new Pair<IotHubEventCallback, Object>(TwinRequestFuture.COMPLETION_CALLBACK, future));
+
+        ReportedPropertiesCoalescer coalescer = this.reportedPropertiesCoalescer;
+        if (coalescer != null)
+        {
+            if (version == null)
+            {
+                /*
+                 **Codes_SRS_DEVICETWIN_44_003: [**If coalescing is enabled and the version is null, the method shall merge the properties with the pending ones instead of sending them.**]**
+                 */
+                coalescer.add(reportedPropertiesMap, callbacks);
+                return future;
+            }
+
+            /*
+             **Codes_SRS_DEVICETWIN_44_004: [**If coalescing is enabled and the version is not null, the method shall flush the pending properties before sending the versioned update.**]**
+             */
+            coalescer.flush();
+        }
+
+        sendReportedProperties(reportedPropertiesMap, version, callbacks);
+        return future;
+    }
+
+    /**
+     * Merge the following unversioned reported properties updates, and send them as a single PATCH when the flush
+     * interval elapses after the first pending update, when the number of pending properties reaches
+     * maxPendingProperties, or when {@link #flushReportedProperties()} is called. Pending updates are merged key by
+     * key: the last written value wins, nested maps are merged, and a {@code null} value deletes the property.
+     *
+     * @param flushIntervalMillis the longest time an update may stay pending, in milliseconds.
+     * @param maxPendingProperties the number of pending top level properties that triggers a flush.
+     * @throws IllegalArgumentException if flushIntervalMillis or maxPendingProperties is not positive.
+     */
+    public void enableReportedPropertiesCoalescing(long flushIntervalMillis, int maxPendingProperties) throws IllegalArgumentException
+    {
+        synchronized (COALESCER_LOCK)
+        {
+            /*
+             **Codes_SRS_DEVICETWIN_44_005: [**The method shall throw IllegalArgumentException if the flush interval or the maximum number of pending properties is not positive.**]**
+             */
+            ReportedPropertiesCoalescer coalescer = new ReportedPropertiesCoalescer(
+                    new ReportedPropertiesCoalescer.Sender()
+                    {
+                        @Override
+                        public void send(Map<String, Object> reportedProperties, List<Pair<IotHubEventCallback, Object>> callbacks)
+                        {
+                            sendReportedProperties(new TwinCollection(reportedProperties), null, callbacks);
+                        }
+                    },
+                    flushIntervalMillis,
+                    maxPendingProperties);
+
+            /*
+             **Codes_SRS_DEVICETWIN_44_006: [**If coalescing was already enabled, the method shall flush the pending properties before applying the new settings.**]**
+             */
+            if (this.reportedPropertiesCoalescer != null)
+            {
+                this.reportedPropertiesCoalescer.close();
+            }
+
+            this.reportedPropertiesCoalescer = coalescer;
+        }
+    }
+
+    /**
+     * Send the pending reported properties, and send the following updates one by one again.
+     */
+    public void disableReportedPropertiesCoalescing()
+    {
+        synchronized (COALESCER_LOCK)
+        {
+            /*
+             **Codes_SRS_DEVICETWIN_44_007: [**The method shall flush the pending properties and stop coalescing the following updates.**]**
+             */
+            ReportedPropertiesCoalescer coalescer = this.reportedPropertiesCoalescer;
+            this.reportedPropertiesCoalescer = null;
+            if (coalescer != null)
+            {
+                coalescer.close();
+            }
+        }
+    }
+
+    /**
+     * Send the pending reported properties now. Does nothing if coalescing is not enabled or nothing is pending.
+     */
+    public void flushReportedProperties()
+    {
+        /*
+         **Codes_SRS_DEVICETWIN_44_008: [**The method shall send the pending properties, if any, as a single PATCH.**]**
+         */
+        ReportedPropertiesCoalescer coalescer = this.reportedPropertiesCoalescer;
+        if (coalescer != null)
+        {
+            coalescer.flush();
+        }
+    }
+
+    /**
+     * Get the local copy of the twin, without contacting the IoT Hub. The copy is created by the first full twin
+     * received (see {@link #getDeviceTwin()}) and then follows every desired properties patch received. If a patch
+     * is missed, the full twin is requested again automatically.
+     *
+     * @return the latest snapshot of the twin, or {@code null} if no full twin was received yet.
+     */
+    public TwinSnapshot getTwinSnapshot()
+    {
+        /*
+         **Codes_SRS_DEVICETWIN_44_011: [**The method shall return the latest snapshot of the local twin without locking, or null if no full twin was received yet.**]**
+         */
+        return this.twinCache.getSnapshot();
+    }
+
+    private void sendReportedProperties(TwinCollection reportedPropertiesMap, Integer version, List<Pair<IotHubEventCallback, Object>> callbacks)
+    {
         String serializedReportedProperties = reportedPropertiesMap.toJsonElement().toString();
 
         if (serializedReportedProperties == null)
@@ -359,7 +677,8 @@ public class DeviceTwin
         /*
          **Codes_SRS_DEVICETWIN_25_014: [**This method shall set the request id for the message by calling setRequestId .**]**
          */
-        updateReportedPropertiesRequest.setRequestId(String.valueOf(requestId++));
+        String id = String.valueOf(requestId.getAndIncrement());
+        updateReportedPropertiesRequest.setRequestId(id);
 
         if(version != null)
         {
@@ -374,11 +693,93 @@ public class DeviceTwin
          */
         updateReportedPropertiesRequest.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_TWIN_UPDATE_REPORTED_PROPERTIES_REQUEST);
 
-        /*
-         **Codes_SRS_DEVICETWIN_25_015: [**This method shall send the message to the lower transport layers by calling sendEventAsync.**]**
-         */
-        this.deviceIO.sendEventAsync(updateReportedPropertiesRequest, new deviceTwinRequestMessageCallback(), null, this.config.getDeviceId());
+        TwinRequest request = new TwinRequest(id, updateReportedPropertiesRequest.getCorrelationId(), false, callbacks);
+        if (trackRequest(request))
+        {
+            /*
+             **Codes_SRS_DEVICETWIN_25_015: [**This method shall send the message to the lower transport layers by calling sendEventAsync.**]**
+             */
+            this.deviceIO.sendEventAsync(updateReportedPropertiesRequest, new deviceTwinRequestMessageCallback(), request, this.config.getDeviceId());
+        }
+    }
+
+    private boolean trackRequest(TwinRequest request)
+    {
+        boolean tracked = this.pendingRequests.put(request.requestId, request);
+        if (tracked && request.correlationId != null && !request.correlationId.equals(request.requestId))
+        {
+            tracked = this.pendingRequests.put(request.correlationId, request);
+        }
+
+        if (!tracked)
+        {
+            /*
+             **Codes_SRS_DEVICETWIN_44_020: [**If too many twin requests are waiting for their response, the request shall not be sent and shall be completed with THROTTLED.**]**
+             */
+            failRequest(request, IotHubStatusCode.THROTTLED);
+            return false;
+        }
 
+        scheduleRequestExpiration();
+        return true;
+    }
+
+    private TwinRequest takeRequest(IotHubTransportMessage response)
+    {
+        TwinRequest request = this.pendingRequests.remove(response.getRequestId());
+        if (request == null)
+        {
+            request = this.pendingRequests.remove(response.getCorrelationId());
+        }
+        return request;
+    }
+
+    private void scheduleRequestExpiration()
+    {
+        if (this.requestExpirationScheduled.compareAndSet(false, true))
+        {
+            RequestExpirationTimer.SCHEDULER.schedule(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    requestExpirationScheduled.set(false);
+                    pendingRequests.expire();
+                    if (!pendingRequests.isEmpty())
+                    {
+                        scheduleRequestExpiration();
+                    }
+                }
+            }, this.pendingRequests.getTickMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void failRequest(TwinRequest request, IotHubStatusCode status)
+    {
+        if (completeRequest(request, status) && request.fullTwin)
+        {
+            synchronized (DEVICE_TWIN_LOCK)
+            {
+                twinCache.onFullTwinFailed();
+            }
+        }
+    }
+
+    private boolean completeRequest(TwinRequest request, IotHubStatusCode status)
+    {
+        if (request == null || !request.completed.compareAndSet(false, true))
+        {
+            return false;
+        }
+
+        this.pendingRequests.remove(request.requestId);
+        this.pendingRequests.remove(request.correlationId);
+
+        for (Pair<IotHubEventCallback, Object> callback : request.callbacks)
+        {
+            callback.getKey().execute(status, callback.getValue());
+        }
+        return true;
     }
 
     public void subscribeDesiredPropertiesNotification(Map<Property, Pair<PropertyCallBack<String, Object>, Object>> onDesiredPropertyChange)
@@ -423,6 +824,51 @@ public class DeviceTwin
         checkSubscription();
     }
 
+    /**
+     * Subscribe to the changes of a desired property identified by its dotted path, like {@code config.sampling.rate}.
+     * The callback is called when a desired properties patch or full twin contains the path or part of it, and
+     * when it replaces or deletes one of the objects above the path. The top level property of a path with a
+     * callback is not reported to the generic property callback anymore.
+     *
+     * @param path the dotted path of the desired property. Cannot be {@code null} or empty.
+     * @param desiredPropertyPathCallback the callback to call. Cannot be {@code null}.
+     * @param desiredPropertyPathCallbackContext the context passed to the callback. Can be {@code null}.
+     * @throws IllegalArgumentException if the path is invalid or the callback is {@code null}.
+     */
+    public void subscribeDesiredPropertyPath(String path, DesiredPropertyPathCallback desiredPropertyPathCallback,
+                                             Object desiredPropertyPathCallbackContext) throws IllegalArgumentException
+    {
+        /*
+         **Codes_SRS_DEVICETWIN_44_014: [**The method shall throw IllegalArgumentException if the path is null, empty or has an empty or invalid segment, or if the callback is null.**]**
+         */
+        if (desiredPropertyPathCallback == null)
+        {
+            throw new IllegalArgumentException("Callback cannot be null");
+        }
+
+        /*
+         **Codes_SRS_DEVICETWIN_44_015: [**The method shall add the callback to the path index, replacing the context if the callback was already subscribed to the path, and subscribe to the desired properties notifications if not already subscribed.**]**
+         */
+        this.desiredPropertyPathIndex.add(path, desiredPropertyPathCallback, desiredPropertyPathCallbackContext);
+        checkSubscription();
+    }
+
+    /**
+     * Stop calling a callback for the changes of a desired property path.
+     *
+     * @param path the dotted path of the desired property, as provided to subscribe.
+     * @param desiredPropertyPathCallback the callback to remove.
+     * @return {@code true} if the callback was subscribed to the path.
+     * @throws IllegalArgumentException if the path is invalid.
+     */
+    public boolean unsubscribeDesiredPropertyPath(String path, DesiredPropertyPathCallback desiredPropertyPathCallback) throws IllegalArgumentException
+    {
+        /*
+         **Codes_SRS_DEVICETWIN_44_016: [**The method shall remove the callback from the path index and return true if it was subscribed to the path.**]**
+         */
+        return this.desiredPropertyPathIndex.remove(path, desiredPropertyPathCallback);
+    }
+
     private void checkSubscription()
     {
         if (!isSubscribed)
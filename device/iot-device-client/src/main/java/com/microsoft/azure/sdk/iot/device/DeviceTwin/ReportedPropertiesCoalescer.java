@@ -0,0 +1,191 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.DeviceTwin;
+
+import com.microsoft.azure.sdk.iot.device.IotHubEventCallback;
+import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges the reported properties updates of a {@link DeviceTwin} so that bursts of small updates are sent as a
+ * single PATCH.
+ * <p>
+ * Pending updates are merged key by key with the JSON merge patch semantics the IoT Hub applies to them: the last
+ * written value wins, nested maps are merged recursively, and a {@code null} value deletes the property. The pending
+ * updates are flushed when the flush interval elapses after the first of them, when the number of pending properties
+ * reaches the threshold, or when {@link #flush()} is called.
+ */
+final class ReportedPropertiesCoalescer
+{
+    /**
+     * Sends the merged reported properties, and reports the outcome to every callback.
+     */
+    interface Sender
+    {
+        void send(Map<String, Object> reportedProperties, List<Pair<IotHubEventCallback, Object>> callbacks);
+    }
+
+    private final Sender sender;
+    private final long flushIntervalMillis;
+    private final int maxPendingProperties;
+    private final ScheduledExecutorService scheduler;
+
+    private Map<String, Object> pendingProperties = new LinkedHashMap<>();
+    private List<Pair<IotHubEventCallback, Object>> pendingCallbacks = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean closed;
+
+    ReportedPropertiesCoalescer(Sender sender, long flushIntervalMillis, int maxPendingProperties)
+    {
+        if (sender == null)
+        {
+            throw new IllegalArgumentException("sender cannot be null");
+        }
+
+        if (flushIntervalMillis <= 0 || maxPendingProperties <= 0)
+        {
+            throw new IllegalArgumentException("The flush interval and the maximum number of pending properties must be positive");
+        }
+
+        this.sender = sender;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxPendingProperties = maxPendingProperties;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "azure-iot-sdk-ReportedPropertiesCoalescer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Merge the reported properties into the pending ones.
+     *
+     * @param reportedProperties the reported properties to merge, without duplicated keys
+     * @param callbacks the callbacks to report the outcome of the PATCH that includes these properties to, with
+     *                  their context
+     */
+    void add(Map<String, Object> reportedProperties, List<Pair<IotHubEventCallback, Object>> callbacks)
+    {
+        boolean flushNow;
+        synchronized (this)
+        {
+            if (this.closed)
+            {
+                throw new IllegalStateException("Reported properties coalescing was disabled");
+            }
+
+            for (Map.Entry<String, Object> property : reportedProperties.entrySet())
+            {
+                this.pendingProperties.put(property.getKey(), merge(this.pendingProperties.get(property.getKey()), property.getValue()));
+            }
+
+            this.pendingCallbacks.addAll(callbacks);
+
+            flushNow = this.pendingProperties.size() >= this.maxPendingProperties;
+            if (!flushNow && this.scheduledFlush == null)
+            {
+                this.scheduledFlush = this.scheduler.schedule(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        flush();
+                    }
+                }, this.flushIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (flushNow)
+        {
+            flush();
+        }
+    }
+
+    /**
+     * Send the pending reported properties now, if there are any.
+     */
+    void flush()
+    {
+        Map<String, Object> properties;
+        List<Pair<IotHubEventCallback, Object>> callbacks;
+        synchronized (this)
+        {
+            if (this.scheduledFlush != null)
+            {
+                this.scheduledFlush.cancel(false);
+                this.scheduledFlush = null;
+            }
+
+            if (this.pendingProperties.isEmpty())
+            {
+                return;
+            }
+
+            properties = this.pendingProperties;
+            callbacks = this.pendingCallbacks;
+            this.pendingProperties = new LinkedHashMap<>();
+            this.pendingCallbacks = new ArrayList<>();
+        }
+
+        try
+        {
+            this.sender.send(properties, callbacks);
+        }
+        catch (RuntimeException e)
+        {
+            for (Pair<IotHubEventCallback, Object> callback : callbacks)
+            {
+                callback.getKey().execute(IotHubStatusCode.ERROR, callback.getValue());
+            }
+        }
+    }
+
+    /**
+     * Flush the pending reported properties, and stop the flush timer.
+     */
+    void close()
+    {
+        synchronized (this)
+        {
+            this.closed = true;
+        }
+
+        flush();
+        this.scheduler.shutdownNow();
+    }
+
+    /**
+     * Compose two merge patches: applying the result is the same as applying the older one, then the newer one.
+     */
+    @SuppressWarnings("unchecked")
+    private static Object merge(Object olderValue, Object newerValue)
+    {
+        if (!(olderValue instanceof Map) || !(newerValue instanceof Map))
+        {
+            return newerValue;
+        }
+
+        Map<String, Object> merged = new LinkedHashMap<>((Map<String, Object>) olderValue);
+        for (Map.Entry<String, Object> entry : ((Map<String, Object>) newerValue).entrySet())
+        {
+            merged.put(entry.getKey(), merge(merged.get(entry.getKey()), entry.getValue()));
+        }
+
+        return merged;
+    }
+}
@@ -0,0 +1,202 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.DeviceTwin;
+
+import com.microsoft.azure.sdk.iot.deps.twin.TwinCollection;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Local copy of the device twin, kept up to date by applying the desired properties patches in {@code $version}
+ * order on top of the last full twin.
+ *
+ * <p> A patch that is not the successor of the current desired version reveals a gap: it is buffered, and the owner
+ *     is asked to get the full twin again. Once the full twin arrives, the buffered patches that follow it are applied.
+ *
+ * <p> The snapshots are immutable and published through a volatile field, so they can be read without locking.
+ *     Updates are expected from a single thread at a time, the one delivering the twin messages.
+ */
+final class TwinCache
+{
+    private static final int MAX_BUFFERED_PATCHES = 64;
+    private static final Map<String, Object> EMPTY = Collections.emptyMap();
+
+    private volatile TwinSnapshot snapshot;
+
+    // patches received past a version gap, by version
+    private final TreeMap<Integer, Map<String, Object>> bufferedPatches = new TreeMap<>();
+    private boolean resyncRequested;
+
+    /**
+     * @return the current snapshot, or {@code null} if no full twin was received yet.
+     */
+    TwinSnapshot getSnapshot()
+    {
+        return this.snapshot;
+    }
+
+    /**
+     * Replace the local twin with a full twin received from the IoT Hub.
+     *
+     * @return {@code true} if the buffered patches still have a gap and the full twin shall be requested again.
+     */
+    boolean onFullTwin(TwinCollection desiredProperties, TwinCollection reportedProperties)
+    {
+        this.resyncRequested = false;
+        TwinSnapshot current = new TwinSnapshot(
+                copy(desiredProperties), desiredProperties == null ? null : desiredProperties.getVersionFinal(),
+                copy(reportedProperties), reportedProperties == null ? null : reportedProperties.getVersionFinal());
+        current = applyBufferedPatches(current);
+        this.snapshot = current;
+
+        if (!this.bufferedPatches.isEmpty())
+        {
+            this.resyncRequested = true;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Apply a desired properties patch received from the IoT Hub.
+     *
+     * @return {@code true} if a version gap was found and the full twin shall be requested.
+     */
+    boolean onDesiredPatch(TwinCollection patch)
+    {
+        TwinSnapshot current = this.snapshot;
+        if (current == null || patch == null)
+        {
+            // nothing to apply the patch to until the full twin is received
+            return false;
+        }
+
+        Integer patchVersion = patch.getVersionFinal();
+        Integer currentVersion = current.getDesiredPropertiesVersion();
+        if (patchVersion == null || currentVersion == null)
+        {
+            // without versions, gaps cannot be detected; keep the twin as accurate as possible
+            this.snapshot = withDesired(current, applyPatch(current.getDesiredProperties(), copy(patch)), patchVersion);
+            return false;
+        }
+
+        if (patchVersion <= currentVersion)
+        {
+            // already included in the local twin
+            return false;
+        }
+
+        if (patchVersion == currentVersion + 1)
+        {
+            current = withDesired(current, applyPatch(current.getDesiredProperties(), copy(patch)), patchVersion);
+            this.snapshot = applyBufferedPatches(current);
+            return false;
+        }
+
+        this.bufferedPatches.put(patchVersion, copy(patch));
+        if (this.bufferedPatches.size() > MAX_BUFFERED_PATCHES)
+        {
+            // the full twin will include the oldest patches anyway
+            this.bufferedPatches.pollFirstEntry();
+        }
+
+        if (this.resyncRequested)
+        {
+            return false;
+        }
+
+        this.resyncRequested = true;
+        return true;
+    }
+
+    /**
+     * Allow a new resync after the full twin could not be received.
+     */
+    void onFullTwinFailed()
+    {
+        this.resyncRequested = false;
+    }
+
+    private TwinSnapshot applyBufferedPatches(TwinSnapshot current)
+    {
+        Integer version = current.getDesiredPropertiesVersion();
+        if (version == null)
+        {
+            this.bufferedPatches.clear();
+            return current;
+        }
+
+        this.bufferedPatches.headMap(version, true).clear();
+        Map<String, Object> next;
+        while ((next = this.bufferedPatches.remove(version + 1)) != null)
+        {
+            version = version + 1;
+            current = withDesired(current, applyPatch(current.getDesiredProperties(), next), version);
+        }
+
+        return current;
+    }
+
+    private static TwinSnapshot withDesired(TwinSnapshot current, Map<String, Object> desiredProperties, Integer version)
+    {
+        return new TwinSnapshot(desiredProperties, version,
+                current.getReportedProperties(), current.getReportedPropertiesVersion());
+    }
+
+    /**
+     * Apply a JSON merge patch to a document: a {@code null} value deletes the property, nested objects are merged,
+     * anything else replaces the property. The document is not modified, and the untouched nested objects are
+     * shared with the result.
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> applyPatch(Map<String, Object> document, Map<String, Object> patch)
+    {
+        Map<String, Object> result = new LinkedHashMap<>(document);
+        for (Map.Entry<String, Object> entry : patch.entrySet())
+        {
+            Object value = entry.getValue();
+            if (value == null)
+            {
+                result.remove(entry.getKey());
+            }
+            else if (value instanceof Map)
+            {
+                Object existing = result.get(entry.getKey());
+                Map<String, Object> base = existing instanceof Map ? (Map<String, Object>) existing : EMPTY;
+                result.put(entry.getKey(), applyPatch(base, (Map<String, Object>) value));
+            }
+            else
+            {
+                result.put(entry.getKey(), value);
+            }
+        }
+
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Deep copy of a twin collection into unmodifiable maps, without the versions and metadata.
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> copy(Map<String, Object> collection)
+    {
+        if (collection == null || collection.isEmpty())
+        {
+            return EMPTY;
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : collection.entrySet())
+        {
+            Object value = entry.getValue();
+            result.put(entry.getKey(), value instanceof Map ? copy((Map<String, Object>) value) : value);
+        }
+
+        return Collections.unmodifiableMap(result);
+    }
+}
@@ -0,0 +1,90 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.DeviceTwin;
+
+import com.microsoft.azure.sdk.iot.device.IotHubEventCallback;
+import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Outcome of a twin request, completed with the status of the response, with the delivery status if the request
+ * could not be sent, or with {@link IotHubStatusCode#MESSAGE_EXPIRED} if no response arrived in time.
+ *
+ * <p> A twin request cannot be withdrawn once it is queued, so the future cannot be cancelled.
+ */
+final class TwinRequestFuture implements Future<IotHubStatusCode>
+{
+    /**
+     * Completes the future passed as context with the status it is called with.
+     */
+    static final IotHubEventCallback COMPLETION_CALLBACK = new IotHubEventCallback()
+    {
+        @Override
+        public void execute(IotHubStatusCode responseStatus, Object callbackContext)
+        {
+            ((TwinRequestFuture) callbackContext).complete(responseStatus);
+        }
+    };
+
+    private final CountDownLatch completed = new CountDownLatch(1);
+    private volatile IotHubStatusCode status;
+
+    /**
+     * Complete the future. Does nothing if it is already completed.
+     *
+     * @param status the status of the request.
+     * @return {@code true} if this call completed the future.
+     */
+    synchronized boolean complete(IotHubStatusCode status)
+    {
+        if (this.completed.getCount() == 0)
+        {
+            return false;
+        }
+
+        this.status = status;
+        this.completed.countDown();
+        return true;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning)
+    {
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled()
+    {
+        return false;
+    }
+
+    @Override
+    public boolean isDone()
+    {
+        return this.completed.getCount() == 0;
+    }
+
+    @Override
+    public IotHubStatusCode get() throws InterruptedException
+    {
+        this.completed.await();
+        return this.status;
+    }
+
+    @Override
+    public IotHubStatusCode get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException
+    {
+        if (!this.completed.await(timeout, unit))
+        {
+            throw new TimeoutException("The twin request did not complete in time");
+        }
+
+        return this.status;
+    }
+}
@@ -0,0 +1,72 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.DeviceTwin;
+
+import java.util.Map;
+
+/**
+ * An immutable view of the device twin as known locally by the {@link DeviceTwin}.
+ *
+ * <p> The desired properties are those of the last full twin received from the IoT Hub, with every desired
+ *     properties patch received since then applied in {@code $version} order. The reported properties are those of
+ *     the last full twin received from the IoT Hub.
+ *
+ * <p> Nested objects are represented as unmodifiable {@code Map}s.
+ */
+public final class TwinSnapshot
+{
+    private final Map<String, Object> desiredProperties;
+    private final Integer desiredPropertiesVersion;
+    private final Map<String, Object> reportedProperties;
+    private final Integer reportedPropertiesVersion;
+
+    TwinSnapshot(Map<String, Object> desiredProperties, Integer desiredPropertiesVersion,
+                 Map<String, Object> reportedProperties, Integer reportedPropertiesVersion)
+    {
+        this.desiredProperties = desiredProperties;
+        this.desiredPropertiesVersion = desiredPropertiesVersion;
+        this.reportedProperties = reportedProperties;
+        this.reportedPropertiesVersion = reportedPropertiesVersion;
+    }
+
+    /**
+     * Getter for the desired properties.
+     *
+     * @return an unmodifiable {@code Map} with the desired properties. It is never {@code null}.
+     */
+    public Map<String, Object> getDesiredProperties()
+    {
+        return this.desiredProperties;
+    }
+
+    /**
+     * Getter for the {@code $version} of the desired properties.
+     *
+     * @return the version of the desired properties, or {@code null} if the IoT Hub did not provide it.
+     */
+    public Integer getDesiredPropertiesVersion()
+    {
+        return this.desiredPropertiesVersion;
+    }
+
+    /**
+     * Getter for the reported properties.
+     *
+     * @return an unmodifiable {@code Map} with the reported properties. It is never {@code null}.
+     */
+    public Map<String, Object> getReportedProperties()
+    {
+        return this.reportedProperties;
+    }
+
+    /**
+     * Getter for the {@code $version} of the reported properties.
+     *
+     * @return the version of the reported properties, or {@code null} if the IoT Hub did not provide it.
+     */
+    public Integer getReportedPropertiesVersion()
+    {
+        return this.reportedPropertiesVersion;
+    }
+}
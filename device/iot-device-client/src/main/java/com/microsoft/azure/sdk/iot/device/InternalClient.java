@@ -9,6 +9,7 @@ import com.microsoft.azure.sdk.iot.device.DeviceTwin.*;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubAuthenticationProvider;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 import com.microsoft.azure.sdk.iot.device.transport.RetryPolicy;
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsAdaptiveReceivePolicy;
 import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProvider;
 
 import java.io.IOError;
@@ -16,6 +17,7 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Future;
 
 import static com.microsoft.azure.sdk.iot.device.IotHubClientProtocol.*;
 
@@ -32,6 +34,7 @@ public class InternalClient
 
     private DeviceTwin twin;
     private DeviceMethod method;
+    private DeviceMethodDispatcher methodDispatcher;
 
     protected CustomLogger logger;
 
@@ -132,6 +135,12 @@ public class InternalClient
 
     public void close() throws IOException
     {
+        if (this.twin != null)
+        {
+            //Codes_SRS_INTERNALCLIENT_44_001: [The close shall send the pending coalesced reported properties before waiting for the pending messages.]
+            this.twin.flushReportedProperties();
+        }
+
         while (!this.deviceIO.isEmpty())
         {
             // Don't do anything, can be infinite.
@@ -219,6 +228,59 @@ public class InternalClient
         this.twin.subscribeDesiredPropertiesTwinPropertyNotification(onDesiredPropertyChange);
     }
 
+    /**
+     * Subscribes to the changes of a desired property identified by its dotted path, like {@code config.sampling.rate}.
+     * Only the callbacks subscribed to the paths present in a desired properties patch are called, and they are
+     * called without holding the twin lock.
+     *
+     * @param path the dotted path of the desired property. Cannot be {@code null} or empty.
+     * @param desiredPropertyPathCallback the callback to call when the property changes. Cannot be {@code null}.
+     * @param desiredPropertyPathCallbackContext a context to be passed to the callback. Can be {@code null}.
+     *
+     * @throws IOException if called when client is not opened or called before starting twin.
+     * @throws IllegalArgumentException if the path is invalid or the callback is {@code null}.
+     */
+    public void subscribeToDesiredPropertyPath(String path, DesiredPropertyPathCallback desiredPropertyPathCallback,
+                                               Object desiredPropertyPathCallbackContext) throws IOException, IllegalArgumentException
+    {
+        if (this.twin == null)
+        {
+            //Codes_SRS_INTERNALCLIENT_44_009: [If the client has not started twin before calling this method, the function shall throw an IOException.]
+            throw new IOException("Start twin before using it");
+        }
+
+        if (!this.deviceIO.isOpen())
+        {
+            //Codes_SRS_INTERNALCLIENT_44_010: [If the client has not been open, the function shall throw an IOException.]
+            throw new IOException("Open the client connection before using it.");
+        }
+
+        //Codes_SRS_INTERNALCLIENT_44_011: [This method shall subscribe to the path by calling subscribeDesiredPropertyPath on the twin object.]
+        this.twin.subscribeDesiredPropertyPath(path, desiredPropertyPathCallback, desiredPropertyPathCallbackContext);
+    }
+
+    /**
+     * Stops calling a callback for the changes of a desired property path.
+     *
+     * @param path the dotted path of the desired property, as provided to subscribe.
+     * @param desiredPropertyPathCallback the callback to remove.
+     * @return {@code true} if the callback was subscribed to the path.
+     *
+     * @throws IOException if called before starting twin.
+     * @throws IllegalArgumentException if the path is invalid.
+     */
+    public boolean unsubscribeFromDesiredPropertyPath(String path, DesiredPropertyPathCallback desiredPropertyPathCallback) throws IOException, IllegalArgumentException
+    {
+        if (this.twin == null)
+        {
+            //Codes_SRS_INTERNALCLIENT_44_009: [If the client has not started twin before calling this method, the function shall throw an IOException.]
+            throw new IOException("Start twin before using it");
+        }
+
+        //Codes_SRS_INTERNALCLIENT_44_012: [This method shall unsubscribe from the path by calling unsubscribeDesiredPropertyPath on the twin object.]
+        return this.twin.unsubscribeDesiredPropertyPath(path, desiredPropertyPathCallback);
+    }
+
     /**
      * Sends reported properties
      *
@@ -281,6 +343,203 @@ public class InternalClient
         this.twin.updateReportedProperties(reportedProperties, version);
     }
 
+    /**
+     * Sends reported properties, and reports the outcome of the update to the provided callback in addition to the
+     * device twin status callback.
+     *
+     * @param reportedProperties the Set of reported properties to update. Cannot be {@code null} or empty.
+     * @param reportedPropertiesCallback the callback to be invoked when the update is acknowledged. Can be {@code null}.
+     * @param reportedPropertiesCallbackContext a context to be passed to the callback. Can be {@code null}.
+     *
+     * @throws IOException if called when client is not opened or called before starting twin.
+     * @throws IllegalArgumentException if reportedProperties is null or empty.
+     */
+    public void sendReportedProperties(Set<Property> reportedProperties, IotHubEventCallback reportedPropertiesCallback,
+                                       Object reportedPropertiesCallbackContext) throws IOException, IllegalArgumentException
+    {
+        if (this.twin == null)
+        {
+            throw new IOException("Start twin before using it");
+        }
+
+        if (!this.deviceIO.isOpen())
+        {
+            throw new IOException("Open the client connection before using it.");
+        }
+
+        if (reportedProperties == null || reportedProperties.isEmpty())
+        {
+            throw new IllegalArgumentException("Reported properties set cannot be null or empty.");
+        }
+
+        //Codes_SRS_INTERNALCLIENT_44_002: [This method shall update the reported properties by calling updateReportedProperties on the twin object with the callback and its context.]
+        this.twin.updateReportedProperties(reportedProperties, null, reportedPropertiesCallback, reportedPropertiesCallbackContext);
+    }
+
+    /**
+     * Sends reported properties, and returns the future status of the update.
+     *
+     * @param reportedProperties the Set of reported properties to update. Cannot be {@code null} or empty.
+     * @return the future status of the update, completed when the IoT Hub acknowledges it, or with
+     * {@link IotHubStatusCode#MESSAGE_EXPIRED} if it does not in time.
+     *
+     * @throws IOException if called when client is not opened or called before starting twin.
+     * @throws IllegalArgumentException if reportedProperties is null or empty.
+     */
+    public Future<IotHubStatusCode> sendReportedPropertiesAsync(Set<Property> reportedProperties) throws IOException, IllegalArgumentException
+    {
+        return this.sendReportedPropertiesAsync(reportedProperties, null, null, null);
+    }
+
+    /**
+     * Sends reported properties with a version, and returns the future status of the update.
+     *
+     * @param reportedProperties the Set of reported properties to update. Cannot be {@code null} or empty.
+     * @param version the Reported property version. Cannot be negative.
+     * @return the future status of the update, completed when the IoT Hub acknowledges it, or with
+     * {@link IotHubStatusCode#MESSAGE_EXPIRED} if it does not in time.
+     *
+     * @throws IOException if called when client is not opened or called before starting twin.
+     * @throws IllegalArgumentException if reportedProperties is null or empty, or if version is negative.
+     */
+    public Future<IotHubStatusCode> sendReportedPropertiesAsync(Set<Property> reportedProperties, int version) throws IOException, IllegalArgumentException
+    {
+        if (version < 0)
+        {
+            //Codes_SRS_INTERNALCLIENT_44_023: [If the version is negative, the function shall throw an IllegalArgumentException.]
+            throw new IllegalArgumentException("Version cannot be negative.");
+        }
+
+        return this.sendReportedPropertiesAsync(reportedProperties, version, null, null);
+    }
+
+    /**
+     * Sends reported properties, reports the outcome of the update to the provided callback in addition to the
+     * device twin status callback, and returns the future status of the update.
+     *
+     * @param reportedProperties the Set of reported properties to update. Cannot be {@code null} or empty.
+     * @param reportedPropertiesCallback the callback to be invoked when the update is acknowledged. Can be {@code null}.
+     * @param reportedPropertiesCallbackContext a context to be passed to the callback. Can be {@code null}.
+     * @return the future status of the update, completed along with the callback.
+     *
+     * @throws IOException if called when client is not opened or called before starting twin.
+     * @throws IllegalArgumentException if reportedProperties is null or empty.
+     */
+    public Future<IotHubStatusCode> sendReportedPropertiesAsync(Set<Property> reportedProperties, IotHubEventCallback reportedPropertiesCallback,
+                                                                Object reportedPropertiesCallbackContext) throws IOException, IllegalArgumentException
+    {
+        return this.sendReportedPropertiesAsync(reportedProperties, null, reportedPropertiesCallback, reportedPropertiesCallbackContext);
+    }
+
+    private Future<IotHubStatusCode> sendReportedPropertiesAsync(Set<Property> reportedProperties, Integer version,
+                                                                 IotHubEventCallback reportedPropertiesCallback,
+                                                                 Object reportedPropertiesCallbackContext) throws IOException
+    {
+        if (this.twin == null)
+        {
+            //Codes_SRS_INTERNALCLIENT_44_020: [If the client has not started twin before calling this method, the function shall throw an IOException.]
+            throw new IOException("Start twin before using it");
+        }
+
+        if (!this.deviceIO.isOpen())
+        {
+            //Codes_SRS_INTERNALCLIENT_44_021: [If the client has not been open, the function shall throw an IOException.]
+            throw new IOException("Open the client connection before using it.");
+        }
+
+        if (reportedProperties == null || reportedProperties.isEmpty())
+        {
+            //Codes_SRS_INTERNALCLIENT_44_022: [If the reported properties are null or empty, the function shall throw an IllegalArgumentException.]
+            throw new IllegalArgumentException("Reported properties set cannot be null or empty.");
+        }
+
+        //Codes_SRS_INTERNALCLIENT_44_024: [The function shall update the reported properties by calling updateReportedPropertiesAsync on the twin object, and return its future.]
+        return this.twin.updateReportedPropertiesAsync(reportedProperties, version, reportedPropertiesCallback, reportedPropertiesCallbackContext);
+    }
+
+    /**
+     * Gets the local copy of the twin, without contacting the IoT Hub. The copy is created by the first full twin
+     * received after {@code getDeviceTwin} and then follows the desired properties patches received. If a patch is
+     * missed, the full twin is requested again automatically.
+     *
+     * @return the latest snapshot of the twin, or {@code null} if no full twin was received yet.
+     *
+     * @throws IOException if called before starting twin.
+     */
+    public TwinSnapshot getTwinSnapshot() throws IOException
+    {
+        if (this.twin == null)
+        {
+            //Codes_SRS_INTERNALCLIENT_44_007: [If the client has not started twin before calling this method, the function shall throw an IOException.]
+            throw new IOException("Start twin before using it");
+        }
+
+        //Codes_SRS_INTERNALCLIENT_44_008: [This method shall return the snapshot of the twin object.]
+        return this.twin.getTwinSnapshot();
+    }
+
+    /**
+     * Merges the following unversioned reported properties updates, and sends them as a single PATCH after
+     * flushIntervalMillis, as soon as maxPendingProperties distinct properties are pending, or when
+     * {@link #flushReportedProperties()} is called. The last written value of a property wins.
+     *
+     * @param flushIntervalMillis the longest time an update may stay pending, in milliseconds. Must be positive.
+     * @param maxPendingProperties the number of pending top level properties that triggers a flush. Must be positive.
+     *
+     * @throws IOException if called before starting twin.
+     * @throws IllegalArgumentException if flushIntervalMillis or maxPendingProperties is not positive.
+     */
+    public void enableReportedPropertiesCoalescing(long flushIntervalMillis, int maxPendingProperties) throws IOException, IllegalArgumentException
+    {
+        if (this.twin == null)
+        {
+            //Codes_SRS_INTERNALCLIENT_44_003: [If the client has not started twin before calling this method, the function shall throw an IOException.]
+            throw new IOException("Start twin before using it");
+        }
+
+        //Codes_SRS_INTERNALCLIENT_44_004: [This method shall enable the coalescing on the twin object.]
+        this.twin.enableReportedPropertiesCoalescing(flushIntervalMillis, maxPendingProperties);
+    }
+
+    /**
+     * Sends the pending reported properties, and sends the following updates one by one again.
+     *
+     * @throws IOException if called before starting twin.
+     */
+    public void disableReportedPropertiesCoalescing() throws IOException
+    {
+        if (this.twin == null)
+        {
+            //Codes_SRS_INTERNALCLIENT_44_003: [If the client has not started twin before calling this method, the function shall throw an IOException.]
+            throw new IOException("Start twin before using it");
+        }
+
+        //Codes_SRS_INTERNALCLIENT_44_005: [This method shall disable the coalescing on the twin object.]
+        this.twin.disableReportedPropertiesCoalescing();
+    }
+
+    /**
+     * Sends the pending coalesced reported properties now.
+     *
+     * @throws IOException if called when client is not opened or called before starting twin.
+     */
+    public void flushReportedProperties() throws IOException
+    {
+        if (this.twin == null)
+        {
+            //Codes_SRS_INTERNALCLIENT_44_003: [If the client has not started twin before calling this method, the function shall throw an IOException.]
+            throw new IOException("Start twin before using it");
+        }
+
+        if (!this.deviceIO.isOpen())
+        {
+            throw new IOException("Open the client connection before using it.");
+        }
+
+        //Codes_SRS_INTERNALCLIENT_44_006: [This method shall flush the pending reported properties of the twin object.]
+        this.twin.flushReportedProperties();
+    }
+
     /**
      * Registers a callback to be executed when the connection status of the device changes. The callback will be fired
      * with a status and a reason why the device's status changed. When the callback is fired, the provided context will
@@ -321,6 +580,26 @@ public class InternalClient
         this.config.setOperationTimeout(timeout);
     }
 
+    /**
+     * Receives the cloud to device messages over HTTPS with an adaptive polling interval instead of the fixed
+     * {@code SetMinimumPollingInterval}. Each poll fetches up to maxMessagesPerPoll messages and sends their results
+     * after all their callbacks ran. The next poll happens right away after a full poll, after minPollingIntervalMillis
+     * while messages are flowing, and the interval doubles after each empty poll up to maxPollingIntervalMillis.
+     *
+     * @param minPollingIntervalMillis the interval between polls while messages are flowing. Must be positive.
+     * @param maxPollingIntervalMillis the longest interval between polls when no message arrives. Cannot be smaller
+     *                                 than minPollingIntervalMillis.
+     * @param maxMessagesPerPoll the maximum number of messages fetched on each poll. Must be positive.
+     *
+     * @throws IllegalArgumentException if the protocol is not HTTPS or any of the parameters is out of range.
+     * @throws IllegalStateException if the client is open.
+     */
+    public void enableAdaptiveReceive(long minPollingIntervalMillis, long maxPollingIntervalMillis, int maxMessagesPerPoll) throws IllegalArgumentException, IllegalStateException
+    {
+        //Codes_SRS_INTERNALCLIENT_44_017: [This function shall set an adaptive receive policy with the provided parameters on its device IO instance.]
+        this.deviceIO.setHttpsAdaptiveReceivePolicy(new HttpsAdaptiveReceivePolicy(minPollingIntervalMillis, maxPollingIntervalMillis, maxMessagesPerPoll));
+    }
+
     public ProductInfo getProductInfo()
     {
         // Codes_SRS_INTERNALCLIENT_34_071: [This function shall return the product info saved in config.]
@@ -545,9 +824,10 @@ public class InternalClient
      * Get the current desired properties for this client
      * @throws IOException if the iot hub cannot be reached
      * @throws IOException if the twin has not been initialized yet
+     * @return the future status of the request
      * @throws IOException if the client has not been opened yet
      */
-    void getTwinInternal() throws IOException
+    Future<IotHubStatusCode> getTwinInternal() throws IOException
     {
         if (this.twin == null)
         {
@@ -562,8 +842,8 @@ public class InternalClient
             throw new IOException("Open the client connection before using it.");
         }
 
-        //Codes_SRS_INTERNALCLIENT_21_042: [The function shall get all desired properties by calling getDeviceTwin.]
-        this.twin.getDeviceTwin();
+        //Codes_SRS_INTERNALCLIENT_21_042: [The function shall get all desired properties by calling getDeviceTwinAsync.]
+        return this.twin.getDeviceTwinAsync();
     }
 
     /**
@@ -614,14 +894,78 @@ public class InternalClient
             throw new IllegalArgumentException("Callback cannot be null");
         }
 
-        if (this.method == null)
+        createDeviceMethod(methodStatusCallback, methodStatusCallbackContext);
+        this.method.subscribeToDeviceMethod(methodCallback, methodCallbackContext);
+    }
+
+    void subscribeToMethodsInternal(AsyncDeviceMethodCallback methodCallback, Object methodCallbackContext,
+                                    IotHubEventCallback methodStatusCallback, Object methodStatusCallbackContext)
+            throws IOException
+    {
+        if (!this.deviceIO.isOpen())
         {
-            this.method = new DeviceMethod(this.deviceIO, this.config, methodStatusCallback, methodStatusCallbackContext);
+            //Codes_SRS_INTERNALCLIENT_44_013: [If the client has not been open, the function shall throw an IOException.]
+            throw new IOException("Open the client connection before using it.");
         }
 
+        if (methodCallback == null || methodStatusCallback == null)
+        {
+            //Codes_SRS_INTERNALCLIENT_44_014: [If either callback is null, the function shall throw an IllegalArgumentException.]
+            throw new IllegalArgumentException("Callback cannot be null");
+        }
+
+        //Codes_SRS_INTERNALCLIENT_44_015: [This method shall subscribe to the methods with the asynchronous callback by calling subscribeToDeviceMethod on the method object.]
+        createDeviceMethod(methodStatusCallback, methodStatusCallbackContext);
         this.method.subscribeToDeviceMethod(methodCallback, methodCallbackContext);
     }
 
+    /**
+     * Sets the dispatcher running the method callbacks, so that slow methods neither block each other nor the
+     * reception of the other messages. Without a dispatcher, the callbacks run one at a time on the transport thread.
+     *
+     * @param methodDispatcher the dispatcher, with its executor and concurrency limits. Can be {@code null} to run
+     *                         the callbacks on the transport thread again.
+     */
+    public void setMethodDispatcher(DeviceMethodDispatcher methodDispatcher)
+    {
+        //Codes_SRS_INTERNALCLIENT_44_016: [This method shall save the dispatcher and set it on the method object, if it exists.]
+        this.methodDispatcher = methodDispatcher;
+        if (this.method != null)
+        {
+            this.method.setMethodDispatcher(methodDispatcher);
+        }
+    }
+
+    /**
+     * Sets the runtime providing the threads of this client, shared with the other clients of that runtime.
+     *
+     * @param clientRuntime the runtime. Cannot be {@code null}.
+     * @throws IllegalArgumentException if the runtime is {@code null}.
+     */
+    void setClientRuntime(ClientRuntime clientRuntime) throws IllegalArgumentException
+    {
+        if (clientRuntime == null)
+        {
+            //Codes_SRS_INTERNALCLIENT_44_018: [If the provided client runtime is null, this function shall throw an IllegalArgumentException.]
+            throw new IllegalArgumentException("clientRuntime cannot be null");
+        }
+
+        //Codes_SRS_INTERNALCLIENT_44_019: [This function shall save the client runtime in the config, so that the client runs on the threads of the runtime.]
+        this.config.setClientRuntime(clientRuntime);
+    }
+
+    private void createDeviceMethod(IotHubEventCallback methodStatusCallback, Object methodStatusCallbackContext)
+    {
+        if (this.method == null)
+        {
+            this.method = new DeviceMethod(this.deviceIO, this.config, methodStatusCallback, methodStatusCallbackContext);
+            if (this.methodDispatcher != null)
+            {
+                this.method.setMethodDispatcher(this.methodDispatcher);
+            }
+        }
+    }
+
     /**
      * Getter for the underlying DeviceIO for multiplexing scenarios.
      *
@@ -8,7 +8,6 @@ import java.io.ByteArrayOutputStream;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.UUID;
@@ -126,7 +125,7 @@ public class Message
     /**
      * User-defined properties.
      */
-    private ArrayList<MessageProperty> properties;
+    private MessagePropertyMap properties;
 
     /**
      * The message body
@@ -236,16 +235,7 @@ public class Message
      */
     public String getProperty(String name)
     {
-        MessageProperty messageProperty = null;
-
-        for (MessageProperty currentMessageProperty: this.properties)
-        {
-            if (currentMessageProperty.hasSameName(name))
-            {
-                messageProperty = currentMessageProperty;
-                break;
-            }
-        }
+        MessageProperty messageProperty = this.properties.get(name);
 
         // Codes_SRS_MESSAGE_11_034: [If no value associated with the property name is found, the function shall return null.]
         if (messageProperty == null) {
@@ -277,35 +267,20 @@ public class Message
         }
 
         // Codes_SRS_MESSAGE_11_026: [The function shall set the message property to the given value.]
-        MessageProperty messageProperty = null;
-
-        for (MessageProperty currentMessageProperty: this.properties)
-        {
-            if (currentMessageProperty.hasSameName(name))
-            {
-                messageProperty = currentMessageProperty;
-                break;
-            }
-        }
-
-        if (messageProperty != null)
-        {
-            this.properties.remove(messageProperty);
-        }
-
+        // Codes_SRS_MESSAGE_44_001: [If the message already has a property with the same name, compared in a case-insensitive manner, the function shall replace it and move it after the other properties.]
         logger.LogInfo("Setting message property, method name is %s ", logger.getMethodName());
-        this.properties.add(new MessageProperty(name, value));
+        this.properties.put(name, value);
     }
 
     /**
      * Returns a copy of the message properties.
      *
-     * @return a copy of the message properties.
+     * @return a copy of the message properties, in the order they were set.
      */
     public MessageProperty[] getProperties()
     {
         // Codes_SRS_MESSAGE_11_033: [The function shall return a copy of the message properties.]
-        return properties.toArray(new MessageProperty[this.properties.size()]);
+        return this.properties.toArray();
     }
 
     // ----- Private Methods -----
@@ -320,7 +295,7 @@ public class Message
         this.correlationId = UUID.randomUUID().toString();
         this.feedbackStatusCode = FeedbackStatusCodeEnum.none;
         this.ack = FeedbackStatusCodeEnum.none;
-        this.properties = new ArrayList<>();
+        this.properties = new MessagePropertyMap();
         this.logger = new CustomLogger(this.getClass());
     }
 
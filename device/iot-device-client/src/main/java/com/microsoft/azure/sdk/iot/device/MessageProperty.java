@@ -26,6 +26,8 @@ public final class MessageProperty {
 
     public static final String IOTHUB_CREATION_TIME_UTC = "iothub-creation-time-utc";
 
+    private static final char MAX_ASCII_CHAR = 0x7F;
+
     static {
         HashSet<String> reservedPropertyNames = new HashSet<>();
         reservedPropertyNames.add("iothub-enqueuedtime");
@@ -61,7 +63,7 @@ public final class MessageProperty {
     private String name;
     /** The property value. */
     private String value;
-    private CustomLogger logger;
+    private static final CustomLogger logger = new CustomLogger(MessageProperty.class);
 
     /**
      * Constructor.
@@ -74,7 +76,6 @@ public final class MessageProperty {
      * A message property name cannot be one of the reserved property names.
      */
     public MessageProperty(String name, String value) {
-        this.logger = new CustomLogger(this.getClass());
         if (name == null) {
             logger.LogError("Property argument 'name' cannot be null, method name is %s ", logger.getMethodName());
             throw new IllegalArgumentException("Property argument 'name' cannot be null.");
@@ -194,21 +195,23 @@ public final class MessageProperty {
     }
 
     /**
-     * Returns true if the string only uses US-ASCII 
+     * Returns true if the string only uses US-ASCII. Checks the characters one by one instead of matching a regular
+     * expression, so that validating the properties of a message allocates nothing.
      *
      * @param s the string.
      *
      * @return whether the string only uses US-ASCII 
      */
     private static boolean usesValidChars(String s) {
-        boolean isValid = false;
-
-        if (s.matches("\\p{ASCII}*"))
+        for (int i = 0; i < s.length(); i++)
         {
-            isValid = true;
+            if (s.charAt(i) > MAX_ASCII_CHAR)
+            {
+                return false;
+            }
         }
 
-        return isValid;
+        return true;
     }
 
     @SuppressWarnings("unused")
@@ -0,0 +1,164 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import java.util.Arrays;
+
+/**
+ * The user-defined properties of a {@link Message}, looked up by name in a case-insensitive manner.
+ *
+ * <p> The properties are kept in insertion order in an array, and indexed by an open-addressing hash table of
+ * positions in that array, so looking a property up does not scan the properties and does not allocate. A property
+ * that replaces another one with the same name moves to the end of the order. The arrays are only allocated when the
+ * first property is added.
+ *
+ * <p> This class is not thread safe, like {@link Message}.
+ */
+final class MessagePropertyMap
+{
+    private static final int INITIAL_CAPACITY = 8;
+    private static final MessageProperty[] NO_PROPERTIES = new MessageProperty[0];
+    private static final int[] NO_SLOTS = new int[0];
+
+    /** The properties in insertion order. */
+    private MessageProperty[] properties = NO_PROPERTIES;
+    /** The case-insensitive hash of the name of each property. */
+    private int[] hashes = NO_SLOTS;
+    /** The position of each property in the properties array plus one, or 0 for an empty slot. */
+    private int[] slots = NO_SLOTS;
+    private int size;
+
+    /**
+     * @param name the name of the property, compared in a case-insensitive manner.
+     * @return the property with this name, or {@code null} if there is none.
+     */
+    MessageProperty get(String name)
+    {
+        if (name == null)
+        {
+            // Codes_SRS_MESSAGEPROPERTYMAP_44_001: [If the name is null, the function shall return null.]
+            return null;
+        }
+
+        // Codes_SRS_MESSAGEPROPERTYMAP_44_002: [The function shall return the property whose name is equal to the provided one in a case-insensitive manner, or null if there is none.]
+        int index = indexOf(name, hashIgnoreCase(name));
+        return index < 0 ? null : this.properties[index];
+    }
+
+    /**
+     * Add a property at the end of the order, replacing the property with the same name if there is one.
+     *
+     * @param name the name of the property.
+     * @param value the value of the property.
+     * @throws IllegalArgumentException if the name and value constitute an invalid property.
+     */
+    void put(String name, String value) throws IllegalArgumentException
+    {
+        // Codes_SRS_MESSAGEPROPERTYMAP_44_003: [If the name and value constitute an invalid property, the function shall throw an IllegalArgumentException.]
+        MessageProperty property = new MessageProperty(name, value);
+        int hash = hashIgnoreCase(name);
+        int index = indexOf(name, hash);
+        if (index >= 0)
+        {
+            // Codes_SRS_MESSAGEPROPERTYMAP_44_004: [If there is a property with the same name in a case-insensitive manner, the function shall replace it and move it after the other properties.]
+            int moved = this.size - index - 1;
+            System.arraycopy(this.properties, index + 1, this.properties, index, moved);
+            System.arraycopy(this.hashes, index + 1, this.hashes, index, moved);
+            this.properties[this.size - 1] = property;
+            this.hashes[this.size - 1] = hash;
+            rebuildSlots();
+            return;
+        }
+
+        if (this.size == this.properties.length)
+        {
+            // Codes_SRS_MESSAGEPROPERTYMAP_44_006: [The function shall allocate the arrays of the map when the first property is added, and grow them when they are full.]
+            int capacity = this.size == 0 ? INITIAL_CAPACITY : this.size * 2;
+            this.properties = Arrays.copyOf(this.properties, capacity);
+            this.hashes = Arrays.copyOf(this.hashes, capacity);
+            this.slots = new int[capacity * 2];
+            rebuildSlots();
+        }
+
+        // Codes_SRS_MESSAGEPROPERTYMAP_44_005: [The function shall add the property after the other properties.]
+        this.properties[this.size] = property;
+        this.hashes[this.size] = hash;
+        this.size++;
+        insertSlot(this.size - 1);
+    }
+
+    /**
+     * @return the number of properties.
+     */
+    int size()
+    {
+        // Codes_SRS_MESSAGEPROPERTYMAP_44_007: [The function shall return the number of properties.]
+        return this.size;
+    }
+
+    /**
+     * @return a copy of the properties, in insertion order.
+     */
+    MessageProperty[] toArray()
+    {
+        // Codes_SRS_MESSAGEPROPERTYMAP_44_008: [The function shall return a copy of the properties in insertion order.]
+        return Arrays.copyOf(this.properties, this.size);
+    }
+
+    private int indexOf(String name, int hash)
+    {
+        if (this.size == 0)
+        {
+            return -1;
+        }
+
+        int mask = this.slots.length - 1;
+        for (int slot = hash & mask; this.slots[slot] != 0; slot = (slot + 1) & mask)
+        {
+            int index = this.slots[slot] - 1;
+            if (this.hashes[index] == hash && this.properties[index].hasSameName(name))
+            {
+                return index;
+            }
+        }
+
+        return -1;
+    }
+
+    private void rebuildSlots()
+    {
+        Arrays.fill(this.slots, 0);
+        for (int index = 0; index < this.size; index++)
+        {
+            insertSlot(index);
+        }
+    }
+
+    private void insertSlot(int index)
+    {
+        int mask = this.slots.length - 1;
+        int slot = this.hashes[index] & mask;
+        while (this.slots[slot] != 0)
+        {
+            slot = (slot + 1) & mask;
+        }
+
+        this.slots[slot] = index + 1;
+    }
+
+    /**
+     * Hash of a name that is consistent with {@link String#equalsIgnoreCase(String)}: names that are equal ignoring
+     * case have the same hash.
+     */
+    private static int hashIgnoreCase(String name)
+    {
+        int hash = 0;
+        for (int i = 0; i < name.length(); i++)
+        {
+            hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+        }
+
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -6,7 +6,10 @@
 package com.microsoft.azure.sdk.iot.device;
 
 
+import com.microsoft.azure.sdk.iot.device.DeviceTwin.AsyncDeviceMethodCallback;
 import com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceMethodCallback;
+import com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceMethodDispatcher;
+import com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceMethodResponse;
 import com.microsoft.azure.sdk.iot.device.DeviceTwin.PropertyCallBack;
 import com.microsoft.azure.sdk.iot.device.DeviceTwin.TwinPropertyCallBack;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubAuthenticationProvider;
@@ -26,6 +29,7 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.security.NoSuchAlgorithmException;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * Public API for communicating from Edge Modules. A ModuleClient can be used to send messages from an Edge module to an EdgeHub or an IotHub.
@@ -83,6 +87,35 @@ public class ModuleClient extends InternalClient
         commonConstructorVerifications(protocol, this.config);
     }
 
+    /**
+     * Constructor for a ModuleClient instance running on the threads of a client runtime, which are shared with the
+     * other clients of that runtime, instead of creating its own threads.
+     * @param connectionString The connection string for the edge module to connect to. Must be in format
+     *                         HostName=xxxx;deviceId=xxxx;SharedAccessKey=
+     *                         xxxx;moduleId=xxxx;
+     *
+     *                         or
+     *
+     *                         HostName=xxxx;DeviceId=xxxx;SharedAccessKey=
+     *                         xxxx;moduleId=xxxx;HostNameGateway=xxxx
+     * @param protocol The protocol to use when communicating with the module
+     * @param clientRuntime The runtime providing the threads of the module client
+     * @throws ModuleClientException if an exception is encountered when parsing the connection string
+     * @throws UnsupportedOperationException if using any protocol besides MQTT, if the connection string is missing
+     * the "moduleId" field, or if the connection string uses x509
+     * @throws IllegalArgumentException if the provided connection string is null or empty, or if the provided protocol
+     * or client runtime is null
+     * @throws URISyntaxException if the connection string cannot be parsed for a valid hostname
+     */
+    public ModuleClient(String connectionString, IotHubClientProtocol protocol, ClientRuntime clientRuntime) throws ModuleClientException, IllegalArgumentException, UnsupportedOperationException, URISyntaxException
+    {
+        this(connectionString, protocol);
+
+        //Codes_SRS_MODULECLIENT_44_001: [If the client runtime is null, this function shall throw an IllegalArgumentException.]
+        //Codes_SRS_MODULECLIENT_44_002: [This function shall save the client runtime in the config, so that the client runs on the threads of the runtime.]
+        this.setClientRuntime(clientRuntime);
+    }
+
     /**
      * Create a module client instance that uses x509 authentication.
      *
@@ -370,6 +403,17 @@ public class ModuleClient extends InternalClient
         this.getTwinInternal();
     }
 
+    /**
+     * Retrieves the twin's latest desired properties, and returns the future status of the request
+     * @return the future status of the request, completed when the twin is received, or with
+     * {@link IotHubStatusCode#MESSAGE_EXPIRED} if it is not received in time
+     * @throws IOException if the iothub cannot be reached
+     */
+    public Future<IotHubStatusCode> getTwinAsync() throws IOException
+    {
+        return this.getTwinInternal();
+    }
+
     /**
      * Starts the device twin.
      *
@@ -426,6 +470,26 @@ public class ModuleClient extends InternalClient
         this.subscribeToMethodsInternal(methodCallback, methodCallbackContext, methodStatusCallback, methodStatusCallbackContext);
     }
 
+    /**
+     * Subscribes to method invocations on this module with a callback that can send its response after returning, by completing the
+     * {@link DeviceMethodResponse} it receives. Combined with {@link #setMethodDispatcher(DeviceMethodDispatcher)},
+     * slow methods do not delay the other invocations.
+     *
+     * @param methodCallback Callback on which methods shall be invoked. Cannot be {@code null}.
+     * @param methodCallbackContext Context for method callback. Can be {@code null}.
+     * @param methodStatusCallback Callback for providing IotHub status for methods. Cannot be {@code null}.
+     * @param methodStatusCallbackContext Context for method status callback. Can be {@code null}.
+     *
+     * @throws IOException if called when client is not opened.
+     * @throws IllegalArgumentException if either callback are null.
+     */
+    public void subscribeToMethod(AsyncDeviceMethodCallback methodCallback, Object methodCallbackContext,
+                                  IotHubEventCallback methodStatusCallback, Object methodStatusCallbackContext)
+            throws IOException, IllegalArgumentException
+    {
+        this.subscribeToMethodsInternal(methodCallback, methodCallbackContext, methodStatusCallback, methodStatusCallbackContext);
+    }
+
     /**
      * Sets the message callback.
      *
@@ -6,14 +6,12 @@
 package com.microsoft.azure.sdk.iot.device.auth;
 
 import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContext;
+import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContextCache;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
-import java.security.KeyManagementException;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
-import java.security.cert.CertificateException;
+import java.security.GeneralSecurityException;
 
 /**
  * Base class for providing authentication for a Device Client or Module Client, including x509 and SAS based authentication.
@@ -44,7 +42,7 @@ public abstract class IotHubAuthenticationProvider
             //Codes_SRS_AUTHENTICATIONPROVIDER_34_011: [This function shall return the generated IotHubSSLContext.]
             return this.iotHubSSLContext.getSSLContext();
         }
-        catch (CertificateException | NoSuchAlgorithmException | KeyManagementException | KeyStoreException e)
+        catch (GeneralSecurityException e)
         {
             //Codes_SRS_AUTHENTICATIONPROVIDER_34_012: [If a CertificateException, NoSuchAlgorithmException, KeyManagementException, or KeyStoreException is thrown during this function, this function shall throw an IOException.]
             throw new IOException(e);
@@ -156,22 +154,22 @@ public abstract class IotHubAuthenticationProvider
         return this.pathToIotHubTrustedCert;
     }
 
-    private IotHubSSLContext generateSSLContext() throws IOException, CertificateException, NoSuchAlgorithmException, KeyStoreException, KeyManagementException
+    private IotHubSSLContext generateSSLContext() throws IOException, GeneralSecurityException
     {
         if (this.iotHubTrustedCert != null)
         {
-            // Codes_SRS_AUTHENTICATIONPROVIDER_34_019: [If this has a saved iotHubTrustedCert, this function shall generate a new IotHubSSLContext object with that saved cert as the trusted cert.]
-            return new IotHubSSLContext(this.iotHubTrustedCert, false);
+            // Codes_SRS_AUTHENTICATIONPROVIDER_34_019: [If this has a saved iotHubTrustedCert, this function shall get the shared IotHubSSLContext from the IotHubSSLContextCache with that saved cert as the trusted cert.]
+            return IotHubSSLContextCache.getSSLContext(this.iotHubTrustedCert, false);
         }
         else if (this.pathToIotHubTrustedCert != null)
         {
-            // Codes_SRS_AUTHENTICATIONPROVIDER_34_020: [If this has a saved path to a iotHubTrustedCert, this function shall generate a new IotHubSSLContext object with that saved cert path as the trusted cert.]
-            return new IotHubSSLContext(this.pathToIotHubTrustedCert, true);
+            // Codes_SRS_AUTHENTICATIONPROVIDER_34_020: [If this has a saved path to a iotHubTrustedCert, this function shall get the shared IotHubSSLContext from the IotHubSSLContextCache with that saved cert path as the trusted cert.]
+            return IotHubSSLContextCache.getSSLContext(this.pathToIotHubTrustedCert, true);
         }
         else
         {
-            // Codes_SRS_AUTHENTICATIONPROVIDER_34_021: [If this has no saved iotHubTrustedCert or path, This function shall create and save a new default IotHubSSLContext object.]
-            return new IotHubSSLContext();
+            // Codes_SRS_AUTHENTICATIONPROVIDER_34_021: [If this has no saved iotHubTrustedCert or path, This function shall get the shared default IotHubSSLContext from the IotHubSSLContextCache.]
+            return IotHubSSLContextCache.getSSLContext(null, false);
         }
     }
 }
@@ -227,6 +227,16 @@ public final class IotHubSasToken
         return (System.currentTimeMillis() / 1000) >= this.expiryTime ;
     }
 
+    /**
+     * Getter for the expiry time of this token.
+     *
+     * @return the time, as a UNIX timestamp in seconds, after which the token will become invalid
+     */
+    long getExpiryTime()
+    {
+        return this.expiryTime;
+    }
+
     /**
      * Return the expiry time for the provided sasToken in seconds.
      *
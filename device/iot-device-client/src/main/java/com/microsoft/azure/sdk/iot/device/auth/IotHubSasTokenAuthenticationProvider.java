@@ -6,11 +6,16 @@
 package com.microsoft.azure.sdk.iot.device.auth;
 
 import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContext;
+import com.microsoft.azure.sdk.iot.device.CustomLogger;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 public abstract class IotHubSasTokenAuthenticationProvider extends IotHubAuthenticationProvider
 {
@@ -34,6 +39,19 @@ public abstract class IotHubSasTokenAuthenticationProvider extends IotHubAuthent
 
     protected IotHubSasToken sasToken;
 
+    /**
+     * How long before the end of each renewal period the next sas token is prepared in the background, so that it is
+     * ready when the transport renews the token.
+     */
+    private static final long SAS_TOKEN_PREPARATION_LEAD_MILLIS = 10 * MILLISECONDS_PER_SECOND;
+    private static final long MINIMUM_SAS_TOKEN_PREPARATION_PERIOD_MILLIS = MILLISECONDS_PER_SECOND;
+
+    private static final CustomLogger logger = new CustomLogger(IotHubSasTokenAuthenticationProvider.class);
+
+    private final Object sasTokenPreparationLock = new Object();
+    private ScheduledFuture<?> sasTokenPreparation;
+    private IotHubSasToken preparedSasToken;
+
     public abstract boolean canRefreshToken();
     public abstract String getRenewedSasToken(boolean proactivelyRenew, boolean forceRenewal) throws IOException, TransportException;
 
@@ -124,9 +142,140 @@ public abstract class IotHubSasTokenAuthenticationProvider extends IotHubAuthent
         return this.tokenValidSecs;
     }
 
+    /**
+     * Starts preparing the next sas token in the background, shortly before the end of each renewal period, so that
+     * {@link #getRenewedSasToken(boolean, boolean)} returns a ready-made token instead of generating it on the
+     * calling transport thread. Does nothing if this provider cannot refresh its token, or already prepares it.
+     */
+    public void startSasTokenPreparation()
+    {
+        synchronized (this.sasTokenPreparationLock)
+        {
+            if (this.sasTokenPreparation != null || !this.canRefreshToken())
+            {
+                //Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_44_002: [If this provider cannot refresh its token, or already prepares it, this function shall do nothing.]
+                return;
+            }
+
+            //Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_44_001: [This function shall schedule the preparation of the next sas token on the scheduler shared by every provider, 10 seconds before the end of each renewal period.]
+            long periodMillis = Math.max(this.getMillisecondsBeforeProactiveRenewal() - SAS_TOKEN_PREPARATION_LEAD_MILLIS, MINIMUM_SAS_TOKEN_PREPARATION_PERIOD_MILLIS);
+            this.sasTokenPreparation = SasTokenPreparationScheduler.SCHEDULER.scheduleWithFixedDelay(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    prepareSasToken();
+                }
+            }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops preparing the next sas token in the background, and drops the prepared token, if any.
+     */
+    public void stopSasTokenPreparation()
+    {
+        synchronized (this.sasTokenPreparationLock)
+        {
+            //Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_44_005: [This function shall cancel the preparation of the sas token, and drop the prepared token.]
+            if (this.sasTokenPreparation != null)
+            {
+                this.sasTokenPreparation.cancel(false);
+                this.sasTokenPreparation = null;
+            }
+
+            this.preparedSasToken = null;
+        }
+    }
+
+    /**
+     * Generates a new sas token, without saving it. Called from the background thread that prepares the next token,
+     * so it shall not change the state of this provider.
+     *
+     * @return the new sas token, or {@code null} if this provider cannot generate one.
+     * @throws IOException if the sas token cannot be generated.
+     * @throws TransportException if the sas token cannot be generated.
+     */
+    protected IotHubSasToken generateSasToken() throws IOException, TransportException
+    {
+        return null;
+    }
+
+    /**
+     * Saves the sas token prepared in the background as the current token, if there is one that is newer than the
+     * current token and has not expired. The prepared token is used at most once.
+     *
+     * @return {@code true} if the prepared token is now the current token, {@code false} if the caller shall
+     * generate the new token itself.
+     */
+    protected boolean usePreparedSasToken()
+    {
+        synchronized (this.sasTokenPreparationLock)
+        {
+            IotHubSasToken prepared = this.preparedSasToken;
+            this.preparedSasToken = null;
+            if (prepared == null || prepared.isExpired()
+                    || (this.sasToken != null && prepared.getExpiryTime() < this.sasToken.getExpiryTime()))
+            {
+                //Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_44_004: [If there is no prepared token, or it has expired or is older than the saved token, this function shall return false.]
+                return false;
+            }
+
+            //Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_44_003: [This function shall save the prepared token as the current token, forget it, and return true.]
+            this.sasToken = prepared;
+            return true;
+        }
+    }
+
+    private void prepareSasToken()
+    {
+        try
+        {
+            IotHubSasToken prepared = this.generateSasToken();
+            synchronized (this.sasTokenPreparationLock)
+            {
+                if (this.sasTokenPreparation != null)
+                {
+                    this.preparedSasToken = prepared;
+                }
+            }
+        }
+        catch (IOException | TransportException | RuntimeException e)
+        {
+            // The token is then generated when it is renewed, as if it was not prepared. A scheduled task that throws
+            // is not run again, so nothing escapes.
+            logger.LogError("Failed to prepare the next sas token: %s", e.toString());
+        }
+    }
+
     long getExpiryTimeInSeconds()
     {
         //Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_34_001: [This function shall return the number of seconds from the UNIX Epoch that a sas token constructed now would expire.]
         return (System.currentTimeMillis() / MILLISECONDS_PER_SECOND) + this.tokenValidSecs + MINIMUM_EXPIRATION_TIME_OFFSET;
     }
+
+    /*
+        Single thread shared by all the providers of the process to prepare their sas tokens, created on first use
+     */
+    private static final class SasTokenPreparationScheduler
+    {
+        private static final ScheduledThreadPoolExecutor SCHEDULER = createScheduler();
+
+        private static ScheduledThreadPoolExecutor createScheduler()
+        {
+            ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable, "azure-iot-sdk-SasTokenPreparation");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            // Closed clients cancel their preparation, which shall not stay in the queue until its next run.
+            scheduler.setRemoveOnCancelPolicy(true);
+            return scheduler;
+        }
+    }
 }
@@ -78,14 +78,25 @@ public class IotHubSasTokenHardwareAuthenticationProvider extends IotHubSasToken
         {
             //Codes_SRS_IOTHUBSASTOKENHARDWAREAUTHENTICATION_34_035: [If the saved sas token has expired and there is a security provider, the saved sas token shall be refreshed with a new token from the security provider.]
             //Codes_SRS_IOTHUBSASTOKENHARDWAREAUTHENTICATION_34_036: [If the saved sas token has not expired and there is a security provider, but the sas token should be proactively renewed, the saved sas token shall be refreshed with a new token from the security provider.]
-            String sasTokenString = this.generateSasTokenSignatureFromSecurityProvider(this.tokenValidSecs);
-            this.sasToken = new IotHubSasToken(this.hostname, this.deviceId, null, sasTokenString, this.moduleId, 0);
+            //Codes_SRS_IOTHUBSASTOKENHARDWAREAUTHENTICATION_44_001: [If a sas token was prepared in the background, the saved sas token shall be refreshed with it instead of a new token from the security provider.]
+            if (!this.usePreparedSasToken())
+            {
+                this.sasToken = this.generateSasToken();
+            }
         }
 
         //Codes_SRS_IOTHUBSASTOKENHARDWAREAUTHENTICATION_34_005: [This function shall return the saved sas token.]
         return this.sasToken.toString();
     }
 
+    @Override
+    protected IotHubSasToken generateSasToken() throws IOException
+    {
+        //Codes_SRS_IOTHUBSASTOKENHARDWAREAUTHENTICATION_44_002: [The generateSasToken shall return a new sas token from the security provider.]
+        String sasTokenString = this.generateSasTokenSignatureFromSecurityProvider(this.tokenValidSecs);
+        return new IotHubSasToken(this.hostname, this.deviceId, null, sasTokenString, this.moduleId, 0);
+    }
+
     @Override
     public boolean canRefreshToken()
     {
@@ -87,6 +87,19 @@ public class IotHubSasTokenSoftwareAuthenticationProvider extends IotHubSasToken
         }
     }
 
+    @Override
+    protected IotHubSasToken generateSasToken()
+    {
+        if (this.deviceKey == null)
+        {
+            //Codes_SRS_IOTHUBSASTOKENSOFTWAREAUTHENTICATION_44_002: [If there is no device key, generateSasToken shall return null.]
+            return null;
+        }
+
+        //Codes_SRS_IOTHUBSASTOKENSOFTWAREAUTHENTICATION_44_003: [The generateSasToken shall return a new sas token signed with the device key.]
+        return new IotHubSasToken(this.hostname, this.deviceId, this.deviceKey, null, this.moduleId, getExpiryTimeInSeconds());
+    }
+
     @Override
     public boolean canRefreshToken()
     {
@@ -112,7 +125,11 @@ public class IotHubSasTokenSoftwareAuthenticationProvider extends IotHubSasToken
             {
                 //Codes_SRS_IOTHUBSASTOKENSOFTWAREAUTHENTICATION_34_004: [If the saved sas token has expired and there is a device key present, the saved sas token shall be renewed.]
                 //Codes_SRS_IOTHUBSASTOKENAUTHENTICATION_34_006: [If the saved sas token has not expired and there is a device key present, but this method is called to proactively renew and the token should renew, the saved sas token shall be renewed.]
-                this.sasToken = new IotHubSasToken(this.hostname, this.deviceId, this.deviceKey, null, this.moduleId, getExpiryTimeInSeconds());
+                //Codes_SRS_IOTHUBSASTOKENSOFTWAREAUTHENTICATION_44_001: [If a sas token was prepared in the background, the saved sas token shall be renewed with it instead of a new token.]
+                if (!this.usePreparedSasToken())
+                {
+                    this.sasToken = this.generateSasToken();
+                }
             }
         }
 
@@ -84,7 +84,11 @@ public abstract class IotHubSasTokenWithRefreshAuthenticationProvider extends Io
         if (this.shouldRefreshToken(proactivelyRenew) || forceRenewal)
         {
             // Codes_SRS_MODULEAUTHENTICATIONWITHTOKENREFRESH_34_004: [This function shall invoke shouldRefreshSasToken, and if it should refresh, this function shall refresh the sas token.]
-            this.refreshSasToken();
+            // Codes_SRS_MODULEAUTHENTICATIONWITHTOKENREFRESH_44_001: [If a sas token was prepared in the background, this function shall refresh the sas token with it instead of invoking refreshSasToken.]
+            if (!this.usePreparedSasToken())
+            {
+                this.refreshSasToken();
+            }
         }
 
         // Codes_SRS_MODULEAUTHENTICATIONWITHTOKENREFRESH_34_005: [This function shall return the saved sas token's string representation.]
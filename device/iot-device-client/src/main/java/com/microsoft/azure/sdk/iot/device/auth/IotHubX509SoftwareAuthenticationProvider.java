@@ -6,14 +6,11 @@
 package com.microsoft.azure.sdk.iot.device.auth;
 
 import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContext;
+import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContextCache;
 
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
-import java.security.KeyManagementException;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
-import java.security.UnrecoverableKeyException;
-import java.security.cert.CertificateException;
+import java.security.GeneralSecurityException;
 
 public class IotHubX509SoftwareAuthenticationProvider extends IotHubAuthenticationProvider
 {
@@ -60,7 +57,7 @@ public class IotHubX509SoftwareAuthenticationProvider extends IotHubAuthenticati
             //Codes_SRS_IOTHUBX509SOFTWAREAUTHENTICATION_34_005: [This function shall return the saved IotHubSSLContext.]
             return this.iotHubSSLContext.getSSLContext();
         }
-        catch (CertificateException | UnrecoverableKeyException | NoSuchAlgorithmException | KeyManagementException | KeyStoreException e)
+        catch (GeneralSecurityException e)
         {
             //Codes_SRS_IOTHUBX509SOFTWAREAUTHENTICATION_34_004: [If the security provider throws a SecurityProviderException while generating an SSLContext, this function shall throw an IOException.]
             throw new IOException(e);
@@ -68,32 +65,26 @@ public class IotHubX509SoftwareAuthenticationProvider extends IotHubAuthenticati
     }
 
     /**
-     * Creates the SSLContext for this object using the saved public and private keys
-     * @throws KeyStoreException  if no Provider supports a KeyStoreSpi implementation for the specified type or
-     *                            if the keystore has not been initialized,
-     *                            or the given alias already exists and does not identify an entry containing a trusted certificate,
-     *                            or this operation fails for some other reason.
-     * @throws KeyManagementException As per https://docs.oracle.com/javase/7/docs/api/java/security/KeyManagementException.html
-     * @throws IOException If the certificate provided was null or invalid
-     * @throws CertificateException As per https://docs.oracle.com/javase/7/docs/api/java/security/cert/CertificateException.html
-     * @throws NoSuchAlgorithmException if the default SSL Context cannot be created
+     * Gets the shared SSLContext for the saved public and private keys from the {@link IotHubSSLContextCache}
+     * @throws IOException If the trusted certificate cannot be read
+     * @throws GeneralSecurityException If a certificate or the private key is invalid, or the SSLContext cannot be created
      */
-    private IotHubSSLContext generateSSLContext() throws IOException, CertificateException, NoSuchAlgorithmException, KeyStoreException, KeyManagementException, UnrecoverableKeyException
+    private IotHubSSLContext generateSSLContext() throws IOException, GeneralSecurityException
     {
         if (this.iotHubTrustedCert != null)
         {
-            // Codes_SRS_IOTHUBX509AUTHENTICATION_34_019: [If this has a saved iotHubTrustedCert, this function shall generate a new IotHubSSLContext object with that saved cert as the trusted cert and with the saved public and private key combo.]
-            return new IotHubSSLContext(this.iotHubX509.getPublicKeyCertificate(), this.iotHubX509.getPrivateKey(), this.iotHubTrustedCert, false);
+            // Codes_SRS_IOTHUBX509AUTHENTICATION_34_019: [If this has a saved iotHubTrustedCert, this function shall get the shared IotHubSSLContext from the IotHubSSLContextCache with that saved cert as the trusted cert and with the saved public and private key combo.]
+            return IotHubSSLContextCache.getSSLContext(this.iotHubX509.getPublicKeyCertificate(), this.iotHubX509.getPrivateKey(), this.iotHubTrustedCert, false);
         }
         else if (this.pathToIotHubTrustedCert != null)
         {
-            // Codes_SRS_IOTHUBX509AUTHENTICATION_34_020: [If this has a saved path to a iotHubTrustedCert, this function shall generate a new IotHubSSLContext object with that saved cert path as the trusted cert and with the saved public and private key combo.]
-            return new IotHubSSLContext(this.iotHubX509.getPublicKeyCertificate(), this.iotHubX509.getPrivateKey(), this.pathToIotHubTrustedCert, true);
+            // Codes_SRS_IOTHUBX509AUTHENTICATION_34_020: [If this has a saved path to a iotHubTrustedCert, this function shall get the shared IotHubSSLContext from the IotHubSSLContextCache with that saved cert path as the trusted cert and with the saved public and private key combo.]
+            return IotHubSSLContextCache.getSSLContext(this.iotHubX509.getPublicKeyCertificate(), this.iotHubX509.getPrivateKey(), this.pathToIotHubTrustedCert, true);
         }
         else
         {
-            // Codes_SRS_IOTHUBX509AUTHENTICATION_34_021: [If this has no saved iotHubTrustedCert or path, This function shall create and save a new IotHubSSLContext object with the saved public and private key combo.]
-            return new IotHubSSLContext(this.iotHubX509.getPublicKeyCertificate(), this.iotHubX509.getPrivateKey());
+            // Codes_SRS_IOTHUBX509AUTHENTICATION_34_021: [If this has no saved iotHubTrustedCert or path, This function shall get the shared IotHubSSLContext from the IotHubSSLContextCache with the default trusted certs and with the saved public and private key combo.]
+            return IotHubSSLContextCache.getSSLContext(this.iotHubX509.getPublicKeyCertificate(), this.iotHubX509.getPrivateKey(), null, false);
         }
     }
 }
@@ -0,0 +1,614 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.fileupload;
+
+import com.microsoft.azure.sdk.iot.deps.util.Base64;
+import com.microsoft.azure.sdk.iot.device.CustomLogger;
+import com.microsoft.azure.storage.OperationContext;
+import com.microsoft.azure.storage.RetryNoRetry;
+import com.microsoft.azure.storage.SendingRequestEvent;
+import com.microsoft.azure.storage.StorageEvent;
+import com.microsoft.azure.storage.StorageException;
+import com.microsoft.azure.storage.blob.BlobRequestOptions;
+import com.microsoft.azure.storage.blob.BlockEntry;
+import com.microsoft.azure.storage.blob.BlockSearchMode;
+import com.microsoft.azure.storage.blob.CloudBlockBlob;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Uploads a stream to a block blob as blocks of a fixed size, several blocks at a time, and commits the block list
+ * once every block is uploaded.
+ *
+ * <p> The stream is read by the calling thread into at most {@code parallelism} block buffers, which are reused as
+ * soon as their block is uploaded, so an upload never holds more than {@code parallelism * blockSize} bytes of the
+ * stream in memory whatever its length. The blocks are uploaded by the provided executor. A block that fails with a
+ * network error, a timeout or a server error is uploaded again from its buffer, with an exponential backoff, before
+ * the upload is given up.
+ *
+ * <p> A file is read from its channel into at most {@code parallelism} direct block buffers, reused the same way, so
+ * a file upload holds no copy of the file in the heap. The file is not mapped: a mapping is only released when it is
+ * garbage collected, so the mappings of a large file would pile up, and keep the file locked on some platforms. Every
+ * block is sent with the MD5 of its content, computed from its buffer, so the storage rejects a block corrupted on the
+ * way.
+ *
+ * <p> The blob only becomes visible with the new content once the block list is committed, so a failed upload leaves
+ * the previous content of the blob, if any, untouched.
+ */
+public final class BlockBlobUploader
+{
+    /**
+     * The largest block accepted by the version of the storage service used by the storage SDK.
+     */
+    public static final int MAX_BLOCK_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * The largest number of blocks in a block blob.
+     */
+    public static final int MAX_BLOCKS = 50000;
+
+    public static final int DEFAULT_BLOCK_SIZE = MAX_BLOCK_SIZE;
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    private static final int MAX_BLOCK_ATTEMPTS = 4;
+    private static final long FIRST_RETRY_DELAY_MILLIS = 1000;
+    private static final String BLOCK_ID_FORMAT = "block-%06d";
+    private static final String CONTENT_MD5_HEADER = "Content-MD5";
+
+    private static final CustomLogger logger = new CustomLogger(BlockBlobUploader.class);
+
+    private final int blockSize;
+    private final int parallelism;
+    private final ExecutorService executor;
+    private long retryDelayMillis = FIRST_RETRY_DELAY_MILLIS;
+
+    /**
+     * Constructor
+     *
+     * @param blockSize the size of the blocks, up to {@link #MAX_BLOCK_SIZE}.
+     * @param parallelism the maximum number of blocks uploaded at the same time.
+     * @param executor the executor that uploads the blocks. Cannot be {@code null}.
+     * @throws IllegalArgumentException if one of the parameters is not valid.
+     */
+    BlockBlobUploader(int blockSize, int parallelism, ExecutorService executor) throws IllegalArgumentException
+    {
+        /* Codes_SRS_BLOCKBLOBUPLOADER_44_001: [If the block size is not positive or larger than MAX_BLOCK_SIZE, the parallelism is not positive, or the executor is null, the constructor shall throw IllegalArgumentException.] */
+        if (blockSize <= 0 || blockSize > MAX_BLOCK_SIZE)
+        {
+            throw new IllegalArgumentException("blockSize must be positive and no larger than " + MAX_BLOCK_SIZE);
+        }
+
+        if (parallelism <= 0)
+        {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+
+        if (executor == null)
+        {
+            throw new IllegalArgumentException("executor is null");
+        }
+
+        this.blockSize = blockSize;
+        this.parallelism = parallelism;
+        this.executor = executor;
+    }
+
+    /**
+     * Getter for the size of the blocks.
+     *
+     * @return the size of the blocks, in bytes.
+     */
+    int getBlockSize()
+    {
+        return this.blockSize;
+    }
+
+    /**
+     * Upload the stream to the blob, and commit it.
+     *
+     * @param blob the blob to upload the stream to.
+     * @param inputStream the stream to upload.
+     * @param streamLength the number of bytes of the stream to upload.
+     * @throws IllegalArgumentException if the stream needs more than {@link #MAX_BLOCKS} blocks.
+     * @throws IOException if the stream cannot be read, is shorter than streamLength, or the upload is interrupted.
+     * @throws StorageException if a block cannot be uploaded, or the block list cannot be committed.
+     */
+    void upload(CloudBlockBlob blob, InputStream inputStream, long streamLength)
+            throws IllegalArgumentException, IOException, StorageException
+    {
+        upload(blob, inputStream, streamLength, null);
+    }
+
+    /**
+     * Upload the stream to the blob, skipping the blocks already uploaded according to the checkpoint, and commit it.
+     *
+     * @param blob the blob to upload the stream to.
+     * @param inputStream the stream to upload, from its start, even if some of its blocks are already uploaded.
+     * @param streamLength the number of bytes of the stream to upload.
+     * @param checkpoint the record of the uploaded blocks, or {@code null} to upload every block.
+     * @throws IllegalArgumentException if the stream needs more than {@link #MAX_BLOCKS} blocks.
+     * @throws IOException if the stream cannot be read, is shorter than streamLength, or the upload is interrupted.
+     * @throws StorageException if a block cannot be uploaded, or the block list cannot be committed.
+     */
+    void upload(CloudBlockBlob blob, InputStream inputStream, long streamLength, Checkpoint checkpoint)
+            throws IllegalArgumentException, IOException, StorageException
+    {
+        upload(blob, new StreamBlockSource(inputStream, (int) Math.min(this.blockSize, streamLength)), streamLength, checkpoint);
+    }
+
+    /**
+     * Upload the file to the blob, skipping the blocks already uploaded according to the checkpoint, and commit it.
+     * The blocks are read from the file into direct buffers.
+     *
+     * @param blob the blob to upload the file to.
+     * @param path the file to upload.
+     * @param fileLength the number of bytes of the file to upload.
+     * @param checkpoint the record of the uploaded blocks, or {@code null} to upload every block.
+     * @throws IllegalArgumentException if the file needs more than {@link #MAX_BLOCKS} blocks.
+     * @throws IOException if the file cannot be read, is shorter than fileLength, or the upload is interrupted.
+     * @throws StorageException if a block cannot be uploaded, or the block list cannot be committed.
+     */
+    void upload(CloudBlockBlob blob, Path path, long fileLength, Checkpoint checkpoint)
+            throws IllegalArgumentException, IOException, StorageException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            if (channel.size() < fileLength)
+            {
+                /* Codes_SRS_BLOCKBLOBUPLOADER_44_011: [If the file is shorter than its length, the function shall throw EOFException.] */
+                throw new EOFException("The file is shorter than " + fileLength + " bytes");
+            }
+
+            upload(blob, new FileBlockSource(channel, (int) Math.min(this.blockSize, fileLength)), fileLength, checkpoint);
+        }
+    }
+
+    private void upload(CloudBlockBlob blob, BlockSource blockSource, long length, Checkpoint checkpoint)
+            throws IllegalArgumentException, IOException, StorageException
+    {
+        long blockCount = (length + this.blockSize - 1) / this.blockSize;
+        if (blockCount > MAX_BLOCKS)
+        {
+            /* Codes_SRS_BLOCKBLOBUPLOADER_44_002: [If the stream needs more than MAX_BLOCKS blocks, the function shall throw IllegalArgumentException.] */
+            throw new IllegalArgumentException("A stream of " + length + " bytes needs more than " + MAX_BLOCKS + " blocks of " + this.blockSize + " bytes");
+        }
+
+        CompletionService<ByteBuffer> completionService = new ExecutorCompletionService<>(this.executor);
+        List<Future<ByteBuffer>> uploads = new ArrayList<>();
+        List<BlockEntry> blocks = new ArrayList<>((int) blockCount);
+        int pending = 0;
+        boolean committed = false;
+
+        try
+        {
+            long offset = 0;
+            for (int index = 0; index < blockCount; index++)
+            {
+                int blockLength = (int) Math.min(this.blockSize, length - offset);
+                String blockId = blockId(index);
+                blocks.add(new BlockEntry(blockId, BlockSearchMode.UNCOMMITTED));
+                if (checkpoint != null && checkpoint.isUploaded(blockId))
+                {
+                    /* Codes_SRS_BLOCKBLOBUPLOADER_44_008: [If the checkpoint reports a block as uploaded, the function shall skip its bytes in the stream instead of uploading it again.] */
+                    blockSource.skip(blockLength);
+                    offset += blockLength;
+                    continue;
+                }
+
+                /* Codes_SRS_BLOCKBLOBUPLOADER_44_003: [The function shall read the stream into at most `parallelism` block buffers, and reuse the buffer of an uploaded block for the next block.] */
+                /* Codes_SRS_BLOCKBLOBUPLOADER_44_010: [The function shall read the blocks of a file into at most `parallelism` direct block buffers, and reuse the buffer of an uploaded block for the next block.] */
+                ByteBuffer buffer = null;
+                if (pending >= this.parallelism)
+                {
+                    buffer = awaitBlock(completionService);
+                    pending--;
+                }
+
+                ByteBuffer block = blockSource.read(blockLength, buffer);
+                offset += blockLength;
+
+                /* Codes_SRS_BLOCKBLOBUPLOADER_44_004: [The function shall upload each block with an id of the same length derived from its index, using the executor.] */
+                uploads.add(completionService.submit(new BlockUpload(blob, blockId, block, checkpoint)));
+                pending++;
+            }
+
+            while (pending > 0)
+            {
+                awaitBlock(completionService);
+                pending--;
+            }
+
+            /* Codes_SRS_BLOCKBLOBUPLOADER_44_006: [Once every block is uploaded, the function shall commit the list of blocks in the order of the stream.] */
+            blob.commitBlockList(blocks);
+            committed = true;
+        }
+        finally
+        {
+            if (!committed)
+            {
+                /* Codes_SRS_BLOCKBLOBUPLOADER_44_007: [If a block cannot be read or uploaded, the function shall cancel the uploads in progress, and shall not commit the block list.] */
+                for (Future<ByteBuffer> upload : uploads)
+                {
+                    upload.cancel(true);
+                }
+            }
+        }
+    }
+
+    private static ByteBuffer awaitBlock(CompletionService<ByteBuffer> completionService) throws IOException, StorageException
+    {
+        try
+        {
+            return completionService.take().get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("The upload was interrupted");
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof StorageException)
+            {
+                throw (StorageException) cause;
+            }
+            else if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            else if (cause instanceof InterruptedException)
+            {
+                throw new InterruptedIOException("The upload of a block was interrupted");
+            }
+            else if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+
+            throw new IOException(cause);
+        }
+    }
+
+    private static void readFully(InputStream inputStream, byte[] buffer, int length) throws IOException
+    {
+        int read = 0;
+        while (read < length)
+        {
+            int count = inputStream.read(buffer, read, length - read);
+            if (count < 0)
+            {
+                throw new EOFException("The stream ended before its length");
+            }
+
+            read += count;
+        }
+    }
+
+    private static void skipFully(InputStream inputStream, long length) throws IOException
+    {
+        long skipped = 0;
+        while (skipped < length)
+        {
+            long count = inputStream.skip(length - skipped);
+            if (count <= 0)
+            {
+                // skip may not be able to tell the end of the stream apart, so read to find it.
+                if (inputStream.read() < 0)
+                {
+                    throw new EOFException("The stream ended before its length");
+                }
+
+                count = 1;
+            }
+
+            skipped += count;
+        }
+    }
+
+    private static String contentMd5(ByteBuffer block)
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            digest.update(block);
+            return Base64.encodeBase64StringLocal(digest.digest());
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // Every Java platform is required to implement MD5.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String blockId(int index)
+    {
+        return Base64.encodeBase64StringLocal(String.format(BLOCK_ID_FORMAT, index).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean isRetryable(StorageException e)
+    {
+        int statusCode = e.getHttpStatusCode();
+        return statusCode <= 0
+                || statusCode == HttpURLConnection.HTTP_CLIENT_TIMEOUT
+                || statusCode >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+    }
+
+    /**
+     * Reads the blocks of the content to upload, in order.
+     */
+    private interface BlockSource
+    {
+        void skip(int length) throws IOException;
+
+        /**
+         * @param length the length of the block.
+         * @param buffer the buffer of an uploaded block that can be reused, or {@code null}.
+         * @return the content of the block, from its position to its limit.
+         */
+        ByteBuffer read(int length, ByteBuffer buffer) throws IOException;
+    }
+
+    private static final class StreamBlockSource implements BlockSource
+    {
+        private final InputStream inputStream;
+        private final int bufferSize;
+
+        private StreamBlockSource(InputStream inputStream, int bufferSize)
+        {
+            this.inputStream = inputStream;
+            this.bufferSize = bufferSize;
+        }
+
+        @Override
+        public void skip(int length) throws IOException
+        {
+            skipFully(this.inputStream, length);
+        }
+
+        @Override
+        public ByteBuffer read(int length, ByteBuffer buffer) throws IOException
+        {
+            byte[] bytes = buffer == null ? new byte[this.bufferSize] : buffer.array();
+            readFully(this.inputStream, bytes, length);
+            return ByteBuffer.wrap(bytes, 0, length);
+        }
+    }
+
+    private static final class FileBlockSource implements BlockSource
+    {
+        private final FileChannel channel;
+        private final int bufferSize;
+        private long position;
+
+        private FileBlockSource(FileChannel channel, int bufferSize)
+        {
+            this.channel = channel;
+            this.bufferSize = bufferSize;
+        }
+
+        @Override
+        public void skip(int length)
+        {
+            this.position += length;
+        }
+
+        @Override
+        public ByteBuffer read(int length, ByteBuffer buffer) throws IOException
+        {
+            ByteBuffer block = buffer == null ? ByteBuffer.allocateDirect(this.bufferSize) : buffer;
+            block.clear();
+            block.limit(length);
+            while (block.hasRemaining())
+            {
+                int count = this.channel.read(block, this.position);
+                if (count < 0)
+                {
+                    throw new EOFException("The file ended before its length");
+                }
+
+                this.position += count;
+            }
+
+            block.flip();
+            return block;
+        }
+    }
+
+    private final class BlockUpload implements Callable<ByteBuffer>
+    {
+        private final CloudBlockBlob blob;
+        private final String blockId;
+        private final ByteBuffer block;
+        private final Checkpoint checkpoint;
+
+        private BlockUpload(CloudBlockBlob blob, String blockId, ByteBuffer block, Checkpoint checkpoint)
+        {
+            this.blob = blob;
+            this.blockId = blockId;
+            this.block = block;
+            this.checkpoint = checkpoint;
+        }
+
+        @Override
+        public ByteBuffer call() throws IOException, StorageException, InterruptedException
+        {
+            // The block is retried here, from its buffer, so the retries of the storage SDK are turned off. Its MD5
+            // is computed here too, as the storage SDK would read the block an extra time to compute it.
+            BlobRequestOptions options = new BlobRequestOptions();
+            options.setRetryPolicyFactory(new RetryNoRetry());
+            options.setUseTransactionalContentMD5(false);
+
+            /* Codes_SRS_BLOCKBLOBUPLOADER_44_012: [The function shall upload each block with a Content-MD5 header computed from its buffer.] */
+            final String contentMd5 = contentMd5(this.block.duplicate());
+            OperationContext operationContext = new OperationContext();
+            operationContext.getSendingRequestEventHandler().addListener(new StorageEvent<SendingRequestEvent>()
+            {
+                @Override
+                public void eventOccurred(SendingRequestEvent eventArg)
+                {
+                    ((HttpURLConnection) eventArg.getConnectionObject()).setRequestProperty(CONTENT_MD5_HEADER, contentMd5);
+                }
+            });
+
+            for (int attempt = 1; ; attempt++)
+            {
+                try
+                {
+                    this.blob.uploadBlock(this.blockId, new ByteBufferInputStream(this.block.duplicate()), this.block.remaining(), null, options, operationContext);
+                    checkpoint();
+                    return this.block;
+                }
+                catch (StorageException e)
+                {
+                    /* Codes_SRS_BLOCKBLOBUPLOADER_44_005: [If a block fails with a network error, a timeout or a server error, the function shall upload it again after an exponential backoff, up to 4 attempts.] */
+                    if (attempt >= MAX_BLOCK_ATTEMPTS || !isRetryable(e))
+                    {
+                        throw e;
+                    }
+
+                    logger.LogInfo("Retrying block upload after status %d, method name is %s ", e.getHttpStatusCode(), logger.getMethodName());
+                }
+                catch (IOException e)
+                {
+                    if (attempt >= MAX_BLOCK_ATTEMPTS)
+                    {
+                        throw e;
+                    }
+
+                    logger.LogInfo("Retrying block upload after %s, method name is %s ", e.toString(), logger.getMethodName());
+                }
+
+                Thread.sleep(retryDelayMillis << (attempt - 1));
+            }
+        }
+
+        private void checkpoint()
+        {
+            if (this.checkpoint != null)
+            {
+                /* Codes_SRS_BLOCKBLOBUPLOADER_44_009: [The function shall report each uploaded block to the checkpoint, and only log a failure to record it.] */
+                // Failing to record a block only costs uploading it again on resume, so it does not fail the upload.
+                try
+                {
+                    this.checkpoint.uploaded(this.blockId);
+                }
+                catch (IOException e)
+                {
+                    logger.LogError("Failed to record the uploaded block %s: %s", this.blockId, e.toString());
+                }
+            }
+        }
+    }
+
+    /**
+     * Markable stream over a block, so the storage SDK sends the block from its buffer instead of copying
+     * it into a buffer of its own.
+     */
+    private static final class ByteBufferInputStream extends InputStream
+    {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read()
+        {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length)
+        {
+            if (length == 0)
+            {
+                return 0;
+            }
+
+            if (!this.buffer.hasRemaining())
+            {
+                return -1;
+            }
+
+            int count = Math.min(length, this.buffer.remaining());
+            this.buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long length)
+        {
+            int count = (int) Math.max(0, Math.min(length, this.buffer.remaining()));
+            this.buffer.position(this.buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available()
+        {
+            return this.buffer.remaining();
+        }
+
+        @Override
+        public boolean markSupported()
+        {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readLimit)
+        {
+            this.buffer.mark();
+        }
+
+        @Override
+        public synchronized void reset()
+        {
+            this.buffer.reset();
+        }
+    }
+
+    /**
+     * Record of the blocks of an upload already in the storage, so an interrupted upload can be resumed.
+     * {@link #uploaded(String)} is called from the threads of the executor.
+     */
+    public interface Checkpoint
+    {
+        /**
+         * @param blockId the id of a block.
+         * @return {@code true} if the block is already uploaded.
+         */
+        boolean isUploaded(String blockId);
+
+        /**
+         * Record that a block is uploaded.
+         *
+         * @param blockId the id of the uploaded block.
+         * @throws IOException if the block cannot be recorded.
+         */
+        void uploaded(String blockId) throws IOException;
+    }
+}
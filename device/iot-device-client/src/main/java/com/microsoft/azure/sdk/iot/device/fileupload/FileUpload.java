@@ -9,12 +9,17 @@ import com.microsoft.azure.sdk.iot.device.IotHubEventCallback;
 import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsTransportManager;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Queue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Provide means to upload file in the Azure Storage using the IoTHub.
@@ -22,10 +27,13 @@ import java.util.concurrent.ScheduledExecutorService;
 public final class FileUpload
 {
     private static final int MAX_UPLOAD_PARALLEL = 10;
+    private static final String BLOCK_UPLOAD_THREAD_NAME = "azure-iot-sdk-FileUploadBlock";
 
+    private DeviceClientConfig config;
     private HttpsTransportManager httpsTransportManager;
     private static CustomLogger logger;
     private ScheduledExecutorService taskScheduler;
+    private ExecutorService blockUploadExecutor;
     private FileUploadStatusCallBack fileUploadStatusCallBack;
     private static Queue<FileUploadInProgress> fileUploadInProgressesSet;
 
@@ -50,11 +58,23 @@ public final class FileUpload
         /* Codes_SRS_FILEUPLOAD_21_002: [The constructor shall create a new instance of `HttpsTransportManager` with the provided `config`.] */
         /* Codes_SRS_FILEUPLOAD_21_003: [If the constructor fail to create the new instance of the `HttpsTransportManager`, it shall throw IllegalArgumentException, threw by the HttpsTransportManager constructor.] */
         this.httpsTransportManager = new HttpsTransportManager(config);
+        this.config = config;
 
         try
         {
             /* Codes_SRS_FILEUPLOAD_21_012: [The constructor shall create an pool of 10 threads to execute the uploads in parallel.] */
             taskScheduler = Executors.newScheduledThreadPool(MAX_UPLOAD_PARALLEL);
+
+            /* Codes_SRS_FILEUPLOAD_44_001: [The constructor shall create a pool of threads that grows on demand to upload the blocks of the uploads.] */
+            // The number of blocks in flight is bounded by each upload, so the pool only needs to grow with them.
+            blockUploadExecutor = Executors.newCachedThreadPool(new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable runnable)
+                {
+                    return new Thread(runnable, BLOCK_UPLOAD_THREAD_NAME);
+                }
+            });
         }
         catch (IllegalArgumentException | NullPointerException e)
         {
@@ -125,12 +145,72 @@ public final class FileUpload
 
         /* Codes_SRS_FILEUPLOAD_21_004: [The uploadToBlobAsync shall asynchronously upload the InputStream `inputStream` to the blob in `blobName`.] */
         /* Codes_SRS_FILEUPLOAD_21_009: [The uploadToBlobAsync shall create a `FileUploadTask` to control this file upload.] */
-        FileUploadTask fileUploadTask = new FileUploadTask(blobName, inputStream, streamLength, httpsTransportManager, fileUploadStatusCallBack, newUpload);
+        FileUploadTask fileUploadTask = new FileUploadTask(blobName, inputStream, streamLength, httpsTransportManager,
+                createBlockBlobUploader(), createFileUploadJournal(), fileUploadStatusCallBack, newUpload);
 
         /* Codes_SRS_FILEUPLOAD_21_010: [The uploadToBlobAsync shall schedule the task `FileUploadTask` to immediately start.] */
         newUpload.setTask(taskScheduler.submit(fileUploadTask));
     }
 
+    /**
+     * Upload the file in the `path` to the `blobName` in the Azure Storage, reading its blocks into a few reusable
+     * direct buffers instead of copying it into the heap. This is the asynchronous version of the upload, it returns
+     * immediately and the status of the upload is reported with the `statusCallback`.
+     *
+     * @param blobName is the name of the file in the container.
+     * @param path is the path of the file to upload.
+     * @param statusCallback is the callback to notify that the upload is completed (with status).
+     * @param statusCallbackContext is the context of the callback, allowing multiple uploads in parallel.
+     * @throws IllegalArgumentException if one of the parameters is invalid.
+     *              blobName is {@code null} or empty,
+     *              path is {@code null},
+     *              statusCallback is {@code null}
+     * @throws IOException if the size of the file cannot be read.
+     */
+    public synchronized void uploadToBlobAsync(
+            String blobName, Path path, IotHubEventCallback statusCallback, Object statusCallbackContext)
+            throws IllegalArgumentException, IOException
+    {
+        /* Codes_SRS_FILEUPLOAD_44_005: [If the `blobName` is null or empty, the `path` is null, or the `userCallback` is null, the uploadToBlobAsync shall throw IllegalArgumentException.] */
+        if((blobName == null) || blobName.isEmpty())
+        {
+            throw new IllegalArgumentException("blobName is null or empty");
+        }
+
+        if(path == null)
+        {
+            throw new IllegalArgumentException("path is null");
+        }
+
+        if(statusCallback == null)
+        {
+            throw new IllegalArgumentException("statusCallback is null");
+        }
+
+        /* Codes_SRS_FILEUPLOAD_44_006: [If the size of the file cannot be read, the uploadToBlobAsync shall throw IOException.] */
+        long fileLength = Files.size(path);
+
+        /* Codes_SRS_FILEUPLOAD_44_007: [The uploadToBlobAsync shall schedule a `FileUploadTask` that uploads the file with its size, with the same options as the upload of a stream.] */
+        FileUploadInProgress newUpload = new FileUploadInProgress(statusCallback, statusCallbackContext);
+        fileUploadInProgressesSet.add(newUpload);
+        FileUploadTask fileUploadTask = new FileUploadTask(blobName, path, fileLength, httpsTransportManager,
+                createBlockBlobUploader(), createFileUploadJournal(), fileUploadStatusCallBack, newUpload);
+        newUpload.setTask(taskScheduler.submit(fileUploadTask));
+    }
+
+    private BlockBlobUploader createBlockBlobUploader()
+    {
+        /* Codes_SRS_FILEUPLOAD_44_002: [The uploadToBlobAsync shall upload the blocks with the block size and the parallelism of the config.] */
+        return new BlockBlobUploader(config.getFileUploadBlockSize(), config.getFileUploadParallelism(), blockUploadExecutor);
+    }
+
+    private FileUploadJournal createFileUploadJournal()
+    {
+        /* Codes_SRS_FILEUPLOAD_44_004: [If the config has a file upload journal directory, the uploadToBlobAsync shall make the upload resumable with a journal in that directory.] */
+        String journalDirectory = config.getFileUploadJournalDirectory();
+        return journalDirectory == null ? null : new FileUploadJournal(new File(journalDirectory));
+    }
+
     private final class FileUploadStatusCallBack implements IotHubEventCallback
     {
         @Override
@@ -170,6 +250,8 @@ public final class FileUpload
     {
         /* Codes_SRS_FILEUPLOAD_21_017: [The closeNow shall shutdown the thread pool by calling `shutdownNow`.] */
         taskScheduler.shutdownNow();
+        /* Codes_SRS_FILEUPLOAD_44_003: [The closeNow shall shutdown the pool of threads of the blocks by calling `shutdownNow`.] */
+        blockUploadExecutor.shutdownNow();
 
         /* Codes_SRS_FILEUPLOAD_21_018: [If there is pending file uploads, the closeNow shall cancel the upload, and call the `statusCallback` reporting ERROR.] */
         for (FileUploadInProgress uploadInProgress : fileUploadInProgressesSet)
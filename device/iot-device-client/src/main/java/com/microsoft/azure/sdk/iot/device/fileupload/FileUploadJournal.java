@@ -0,0 +1,435 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.fileupload;
+
+import com.microsoft.azure.sdk.iot.device.CustomLogger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.LinkedHashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * Local journal of the resumable file uploads in progress, so that an upload that failed, or was interrupted by a
+ * restart of the device, continues from the blocks already in the storage instead of from the start of the stream.
+ *
+ * <p> Each upload in progress has a small file in the journal directory, keyed by the blob name requested to the IoT
+ * Hub, with the blob URI and the expiry of its SAS token, the correlation id of the upload, the length of the stream
+ * and the block size, and whether the block list is committed. That file is written aside, synced to the storage and moved over the previous one, so a crash or
+ * a power loss leaves either the previous or the new one. The ids of the blocks already uploaded are appended, and
+ * synced, one per line to a second file, so recording a block does not rewrite the ids of the blocks before it; a line
+ * torn by a power loss is ignored. Both files are deleted once the upload is completed.
+ *
+ * <p> The journal holds SAS tokens that grant write access to the blobs until they expire, so the journal directory
+ * shall only be readable by the application.
+ */
+public final class FileUploadJournal
+{
+    private static final String JOURNAL_FILE_EXTENSION = ".upload";
+    private static final String BLOCKS_FILE_EXTENSION = ".blocks";
+    private static final String TEMPORARY_FILE_EXTENSION = ".tmp";
+
+    private static final String BLOB_NAME_KEY = "blobName";
+    private static final String STREAM_LENGTH_KEY = "streamLength";
+    private static final String BLOCK_SIZE_KEY = "blockSize";
+    private static final String BLOB_URI_KEY = "blobUri";
+    private static final String SAS_EXPIRY_KEY = "sasExpiry";
+    private static final String CORRELATION_ID_KEY = "correlationId";
+    private static final String COMMITTED_KEY = "committed";
+    private static final char BLOCK_ID_SEPARATOR = '\n';
+
+    private static final String SAS_EXPIRY_PARAMETER = "se=";
+    private static final String SAS_EXPIRY_DATE_TIME_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'";
+    private static final String SAS_EXPIRY_DATE_FORMAT = "yyyy-MM-dd";
+    // The SAS token shall be valid long enough to upload the remaining blocks and commit them.
+    private static final long SAS_EXPIRY_MARGIN_MILLIS = 5 * 60 * 1000;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final CustomLogger logger = new CustomLogger(FileUploadJournal.class);
+
+    private final File directory;
+
+    /**
+     * Constructor
+     *
+     * @param directory the directory of the journal. It is created with the first upload if it does not exist.
+     *                  Cannot be {@code null}.
+     * @throws IllegalArgumentException if the directory is {@code null}.
+     */
+    FileUploadJournal(File directory) throws IllegalArgumentException
+    {
+        /* Codes_SRS_FILEUPLOADJOURNAL_44_001: [If the directory is null, the constructor shall throw IllegalArgumentException.] */
+        if (directory == null)
+        {
+            throw new IllegalArgumentException("directory is null");
+        }
+
+        this.directory = directory;
+    }
+
+    /**
+     * Find the journaled upload of a blob.
+     *
+     * @param blobName the blob name requested to the IoT Hub.
+     * @param streamLength the length of the stream to upload.
+     * @param blockSize the size of the blocks the stream is uploaded in.
+     * @return the journaled upload, or {@code null} if there is none for the same stream length and block size.
+     * @throws IOException if the journal file cannot be read.
+     */
+    Entry find(String blobName, long streamLength, int blockSize) throws IOException
+    {
+        File file = journalFile(blobName);
+        if (!file.isFile())
+        {
+            return null;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream inputStream = new FileInputStream(file))
+        {
+            properties.load(inputStream);
+        }
+
+        Entry entry;
+        try
+        {
+            entry = new Entry(file, properties);
+        }
+        catch (IllegalArgumentException | URISyntaxException e)
+        {
+            entry = null;
+        }
+
+        if (entry == null || !blobName.equals(entry.blobName) || entry.streamLength != streamLength || entry.blockSize != blockSize)
+        {
+            /* Codes_SRS_FILEUPLOADJOURNAL_44_003: [If the journal file is not valid, or is for another stream length or block size, the find shall delete it and return null.] */
+            logger.LogInfo("Discarding the journal of the upload of %s, method name is %s ", blobName, logger.getMethodName());
+            Files.deleteIfExists(blocksFile(file).toPath());
+            Files.deleteIfExists(file.toPath());
+            return null;
+        }
+
+        /* Codes_SRS_FILEUPLOADJOURNAL_44_002: [The find shall return the journaled upload of the blob name, with its blob URI, correlation id and uploaded blocks.] */
+        return entry;
+    }
+
+    /**
+     * Start the journal of a new upload.
+     *
+     * @param blobName the blob name requested to the IoT Hub.
+     * @param streamLength the length of the stream to upload.
+     * @param blockSize the size of the blocks the stream is uploaded in.
+     * @param blobUri the blob URI, with its SAS token, provided by the IoT Hub.
+     * @param correlationId the correlation id of the upload provided by the IoT Hub.
+     * @return the journaled upload, without uploaded blocks.
+     * @throws IOException if the journal file cannot be written.
+     */
+    Entry create(String blobName, long streamLength, int blockSize, URI blobUri, String correlationId) throws IOException
+    {
+        /* Codes_SRS_FILEUPLOADJOURNAL_44_004: [The create shall save a journal of the upload without uploaded blocks, creating the directory if needed.] */
+        if (!this.directory.isDirectory() && !this.directory.mkdirs())
+        {
+            throw new IOException("Cannot create the file upload journal directory " + this.directory);
+        }
+
+        Entry entry = new Entry(journalFile(blobName), blobName, streamLength, blockSize, blobUri, correlationId);
+        Files.deleteIfExists(entry.blocksFile.toPath());
+        entry.save();
+        return entry;
+    }
+
+    private File journalFile(String blobName) throws IOException
+    {
+        // Blob names can contain characters that are not valid in file names, so the file is named by a digest.
+        try
+        {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(blobName.getBytes(StandardCharsets.UTF_8));
+            char[] hex = new char[hash.length * 2];
+            for (int i = 0; i < hash.length; i++)
+            {
+                hex[2 * i] = HEX_DIGITS[(hash[i] >> 4) & 0xF];
+                hex[2 * i + 1] = HEX_DIGITS[hash[i] & 0xF];
+            }
+
+            return new File(this.directory, new String(hex) + JOURNAL_FILE_EXTENSION);
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IOException(e);
+        }
+    }
+
+    private static File blocksFile(File journalFile)
+    {
+        String path = journalFile.getPath();
+        return new File(path.substring(0, path.length() - JOURNAL_FILE_EXTENSION.length()) + BLOCKS_FILE_EXTENSION);
+    }
+
+    /**
+     * Get the expiry of the SAS token of a blob URI.
+     *
+     * @param blobUri the blob URI with its SAS token.
+     * @return the expiry in milliseconds since the epoch, or 0 if the SAS token has no valid expiry.
+     */
+    static long sasExpiry(URI blobUri)
+    {
+        String query = blobUri.getRawQuery();
+        if (query == null)
+        {
+            return 0;
+        }
+
+        for (String parameter : query.split("&"))
+        {
+            if (parameter.startsWith(SAS_EXPIRY_PARAMETER))
+            {
+                try
+                {
+                    String expiry = URLDecoder.decode(parameter.substring(SAS_EXPIRY_PARAMETER.length()), StandardCharsets.UTF_8.name());
+                    SimpleDateFormat format = new SimpleDateFormat(
+                            expiry.length() > SAS_EXPIRY_DATE_FORMAT.length() ? SAS_EXPIRY_DATE_TIME_FORMAT : SAS_EXPIRY_DATE_FORMAT);
+                    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+                    return format.parse(expiry).getTime();
+                }
+                catch (ParseException | UnsupportedEncodingException | IllegalArgumentException e)
+                {
+                    return 0;
+                }
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * The journal of one upload. The uploaded blocks are saved as they are reported, from any thread.
+     */
+    public static final class Entry implements BlockBlobUploader.Checkpoint
+    {
+        private final File file;
+        private final File blocksFile;
+        private final String blobName;
+        private final long streamLength;
+        private final int blockSize;
+        private URI blobUri;
+        private long sasExpiry;
+        private String correlationId;
+        private boolean committed;
+        private final Set<String> uploadedBlocks = new LinkedHashSet<>();
+
+        private Entry(File file, String blobName, long streamLength, int blockSize, URI blobUri, String correlationId)
+        {
+            this.file = file;
+            this.blocksFile = blocksFile(file);
+            this.blobName = blobName;
+            this.streamLength = streamLength;
+            this.blockSize = blockSize;
+            this.blobUri = blobUri;
+            this.sasExpiry = sasExpiry(blobUri);
+            this.correlationId = correlationId;
+        }
+
+        private Entry(File file, Properties properties) throws IllegalArgumentException, URISyntaxException, IOException
+        {
+            this(file,
+                    required(properties, BLOB_NAME_KEY),
+                    Long.parseLong(required(properties, STREAM_LENGTH_KEY)),
+                    Integer.parseInt(required(properties, BLOCK_SIZE_KEY)),
+                    new URI(required(properties, BLOB_URI_KEY)),
+                    required(properties, CORRELATION_ID_KEY));
+            this.committed = Boolean.parseBoolean(properties.getProperty(COMMITTED_KEY));
+
+            if (this.blocksFile.isFile())
+            {
+                String uploadedBlocks = new String(Files.readAllBytes(this.blocksFile.toPath()), StandardCharsets.UTF_8);
+                // Only the ids followed by a separator were completely written.
+                int start = 0;
+                for (int end = uploadedBlocks.indexOf(BLOCK_ID_SEPARATOR); end >= 0; end = uploadedBlocks.indexOf(BLOCK_ID_SEPARATOR, start))
+                {
+                    if (end > start)
+                    {
+                        this.uploadedBlocks.add(uploadedBlocks.substring(start, end));
+                    }
+
+                    start = end + 1;
+                }
+            }
+        }
+
+        synchronized URI getBlobUri()
+        {
+            return this.blobUri;
+        }
+
+        synchronized String getCorrelationId()
+        {
+            return this.correlationId;
+        }
+
+        /**
+         * Check if the block list of the upload is committed, so only the notification of the IoT Hub is left.
+         *
+         * @return {@code true} if the block list is committed.
+         */
+        synchronized boolean isCommitted()
+        {
+            return this.committed;
+        }
+
+        /**
+         * Record that the block list of the upload is committed.
+         *
+         * @throws IOException if the journal file cannot be written.
+         */
+        synchronized void committed() throws IOException
+        {
+            /* Codes_SRS_FILEUPLOADJOURNAL_44_011: [The committed shall record that the block list is committed, and save the journal.] */
+            this.committed = true;
+            save();
+        }
+
+        /**
+         * Check if the SAS token of the blob URI is expired, or will expire too soon to complete the upload.
+         *
+         * @return {@code true} if a new SAS token shall be requested to the IoT Hub.
+         */
+        synchronized boolean isExpired()
+        {
+            /* Codes_SRS_FILEUPLOADJOURNAL_44_005: [The isExpired shall return true if the SAS token of the blob URI expires in less than 5 minutes, or has no valid expiry.] */
+            return this.sasExpiry - SAS_EXPIRY_MARGIN_MILLIS <= System.currentTimeMillis();
+        }
+
+        /**
+         * Replace the blob URI and the correlation id of the upload by new ones provided by the IoT Hub.
+         *
+         * @param blobUri the new blob URI, with its SAS token.
+         * @param correlationId the new correlation id.
+         * @throws IOException if the journal file cannot be written.
+         */
+        synchronized void renew(URI blobUri, String correlationId) throws IOException
+        {
+            /* Codes_SRS_FILEUPLOADJOURNAL_44_006: [If the new blob URI is for another blob, the renew shall forget the uploaded blocks.] */
+            if (!withoutQuery(blobUri).equals(withoutQuery(this.blobUri)))
+            {
+                this.uploadedBlocks.clear();
+                Files.deleteIfExists(this.blocksFile.toPath());
+            }
+
+            /* Codes_SRS_FILEUPLOADJOURNAL_44_007: [The renew shall save the new blob URI, its SAS expiry, and the new correlation id.] */
+            this.blobUri = blobUri;
+            this.sasExpiry = sasExpiry(blobUri);
+            this.correlationId = correlationId;
+            save();
+        }
+
+        @Override
+        public synchronized boolean isUploaded(String blockId)
+        {
+            return this.uploadedBlocks.contains(blockId);
+        }
+
+        @Override
+        public synchronized void uploaded(String blockId) throws IOException
+        {
+            /* Codes_SRS_FILEUPLOADJOURNAL_44_008: [The uploaded shall add the block id to the uploaded blocks, and append it to the journal of the uploaded blocks.] */
+            if (this.uploadedBlocks.add(blockId))
+            {
+                try (FileOutputStream outputStream = new FileOutputStream(this.blocksFile, true))
+                {
+                    outputStream.write((blockId + BLOCK_ID_SEPARATOR).getBytes(StandardCharsets.UTF_8));
+                    outputStream.getFD().sync();
+                }
+            }
+        }
+
+        /**
+         * Delete the journal of the upload, once it is completed.
+         */
+        synchronized void delete()
+        {
+            /* Codes_SRS_FILEUPLOADJOURNAL_44_009: [The delete shall delete the journal file, and only log a failure to delete it.] */
+            try
+            {
+                Files.deleteIfExists(this.file.toPath());
+                Files.deleteIfExists(this.blocksFile.toPath());
+            }
+            catch (IOException e)
+            {
+                logger.LogError("Failed to delete the journal of the upload of %s: %s", this.blobName, e.toString());
+            }
+        }
+
+        private void save() throws IOException
+        {
+            Properties properties = new Properties();
+            properties.setProperty(BLOB_NAME_KEY, this.blobName);
+            properties.setProperty(STREAM_LENGTH_KEY, Long.toString(this.streamLength));
+            properties.setProperty(BLOCK_SIZE_KEY, Integer.toString(this.blockSize));
+            properties.setProperty(BLOB_URI_KEY, this.blobUri.toString());
+            properties.setProperty(SAS_EXPIRY_KEY, Long.toString(this.sasExpiry));
+            properties.setProperty(CORRELATION_ID_KEY, this.correlationId);
+            properties.setProperty(COMMITTED_KEY, Boolean.toString(this.committed));
+
+            /* Codes_SRS_FILEUPLOADJOURNAL_44_010: [The journal shall be written to a temporary file, synced to the storage, and moved over the previous journal.] */
+            // The journal is synced before it is moved over the previous one, so neither a crash nor a power loss
+            // leaves a partial journal.
+            File temporaryFile = new File(this.file.getPath() + TEMPORARY_FILE_EXTENSION);
+            try (FileOutputStream outputStream = new FileOutputStream(temporaryFile))
+            {
+                properties.store(outputStream, null);
+                outputStream.getFD().sync();
+            }
+
+            try
+            {
+                Files.move(temporaryFile.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(temporaryFile.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private static String required(Properties properties, String key) throws IllegalArgumentException
+    {
+        String value = properties.getProperty(key);
+        if (value == null || value.isEmpty())
+        {
+            throw new IllegalArgumentException("The journal has no " + key);
+        }
+
+        return value;
+    }
+
+    private static URI withoutQuery(URI uri)
+    {
+        try
+        {
+            return new URI(uri.getScheme(), uri.getAuthority(), uri.getPath(), null, null);
+        }
+        catch (URISyntaxException e)
+        {
+            return uri;
+        }
+    }
+}
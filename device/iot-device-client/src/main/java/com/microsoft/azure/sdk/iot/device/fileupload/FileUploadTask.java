@@ -22,6 +22,7 @@ import java.net.URISyntaxException;
 import java.net.URLEncoder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 
 /**
  * Provide means to  asynchronous upload file in the Azure Storage using the IoTHub.
@@ -55,10 +56,13 @@ public final class FileUploadTask implements Runnable
     private static final String UTF_8_STRING = "UTF-8";
 
     private HttpsTransportManager httpsTransportManager;
+    private BlockBlobUploader blockBlobUploader;
+    private FileUploadJournal fileUploadJournal;
     private static CustomLogger logger;
 
     private String blobName;
     private InputStream inputStream;
+    private Path path;
     private long streamLength;
     private IotHubEventCallback userCallback;
     private Object userCallbackContext;
@@ -77,11 +81,41 @@ public final class FileUploadTask implements Runnable
      * @param inputStream is the byte stream with the information to store in the blob. Cannot be {@code null}.
      * @param streamLength is the number of bytes to upload. Cannot be negative.
      * @param httpsTransportManager is the https transport to connect to the IoT Hub. Cannot be {@code null}.
+     * @param blockBlobUploader is the uploader of the stream to the blob. Cannot be {@code null}.
+     * @param fileUploadJournal is the journal to resume the upload from, or {@code null} if the upload is not resumable.
      * @param userCallback is the callback to call when the upload is completed. Cannot be {@code null}.
      * @param userCallbackContext is the context for the callback. Can be any value.
      * @throws IllegalArgumentException if one of the parameters is not valid.
      */
     FileUploadTask(String blobName, InputStream inputStream, long streamLength, HttpsTransportManager httpsTransportManager,
+                    BlockBlobUploader blockBlobUploader, FileUploadJournal fileUploadJournal,
+                    IotHubEventCallback userCallback, Object userCallbackContext) throws IllegalArgumentException
+    {
+        this(blobName, inputStream, null, streamLength, httpsTransportManager, blockBlobUploader, fileUploadJournal, userCallback, userCallbackContext);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param blobName is the destination blob name in the storage. Cannot be {@code null}, or empty.
+     * @param path is the file with the information to store in the blob. Cannot be {@code null}.
+     * @param fileLength is the number of bytes of the file to upload. Cannot be negative.
+     * @param httpsTransportManager is the https transport to connect to the IoT Hub. Cannot be {@code null}.
+     * @param blockBlobUploader is the uploader of the file to the blob. Cannot be {@code null}.
+     * @param fileUploadJournal is the journal to resume the upload from, or {@code null} if the upload is not resumable.
+     * @param userCallback is the callback to call when the upload is completed. Cannot be {@code null}.
+     * @param userCallbackContext is the context for the callback. Can be any value.
+     * @throws IllegalArgumentException if one of the parameters is not valid.
+     */
+    FileUploadTask(String blobName, Path path, long fileLength, HttpsTransportManager httpsTransportManager,
+                    BlockBlobUploader blockBlobUploader, FileUploadJournal fileUploadJournal,
+                    IotHubEventCallback userCallback, Object userCallbackContext) throws IllegalArgumentException
+    {
+        this(blobName, null, path, fileLength, httpsTransportManager, blockBlobUploader, fileUploadJournal, userCallback, userCallbackContext);
+    }
+
+    private FileUploadTask(String blobName, InputStream inputStream, Path path, long streamLength, HttpsTransportManager httpsTransportManager,
+                    BlockBlobUploader blockBlobUploader, FileUploadJournal fileUploadJournal,
                     IotHubEventCallback userCallback, Object userCallbackContext) throws IllegalArgumentException
     {
         /* Codes_SRS_FILEUPLOADTASK_21_001: [If the `blobName` is null or empty, the constructor shall throw IllegalArgumentException.] */
@@ -91,9 +125,10 @@ public final class FileUploadTask implements Runnable
         }
 
         /* Codes_SRS_FILEUPLOADTASK_21_002: [If the `inputStream` is null, the constructor shall throw IllegalArgumentException.] */
-        if(inputStream == null)
+        /* Codes_SRS_FILEUPLOADTASK_44_009: [If the `path` is null, the constructor shall throw IllegalArgumentException.] */
+        if(inputStream == null && path == null)
         {
-            throw new IllegalArgumentException("inputStream is null or empty");
+            throw new IllegalArgumentException("inputStream or path is null");
         }
 
         /* Codes_SRS_FILEUPLOADTASK_21_003: [If the `streamLength` is negative, the constructor shall throw IllegalArgumentException.] */
@@ -108,6 +143,12 @@ public final class FileUploadTask implements Runnable
             throw new IllegalArgumentException("httpsTransportManager is null");
         }
 
+        /* Codes_SRS_FILEUPLOADTASK_44_001: [If the `blockBlobUploader` is null, the constructor shall throw IllegalArgumentException.] */
+        if(blockBlobUploader == null)
+        {
+            throw new IllegalArgumentException("blockBlobUploader is null");
+        }
+
         /* Codes_SRS_FILEUPLOADTASK_21_005: [If the `userCallback` is null, the constructor shall throw IllegalArgumentException.] */
         if(userCallback == null)
         {
@@ -117,10 +158,13 @@ public final class FileUploadTask implements Runnable
         /* Codes_SRS_FILEUPLOADTASK_21_006: [The constructor shall store all the provided parameters.] */
         this.blobName = blobName;
         this.inputStream = inputStream;
+        this.path = path;
         this.streamLength = streamLength;
         this.userCallback = userCallback;
         this.userCallbackContext = userCallbackContext;
         this.httpsTransportManager = httpsTransportManager;
+        this.blockBlobUploader = blockBlobUploader;
+        this.fileUploadJournal = fileUploadJournal;
 
         logger = new CustomLogger(this.getClass());
         logger.LogInfo("HttpsFileUpload object is created successfully, method name is %s ", logger.getMethodName());
@@ -136,10 +180,26 @@ public final class FileUploadTask implements Runnable
 
         FileUploadStatusParser fileUploadStatusParser = null;
         IotHubStatusCode resultStatus = IotHubStatusCode.OK;
+        String requestedBlobName = blobName;
+        FileUploadJournal.Entry journalEntry = findJournalEntry();
 
         try
         {
-            resultStatus = getContainer();
+            if (journalEntry != null && (journalEntry.isCommitted() || !journalEntry.isExpired()))
+            {
+                /* Codes_SRS_FILEUPLOADTASK_44_004: [If the upload is journaled with a SAS token that is not expired, or as committed, the run shall resume it with the journaled blob URI and correlationId, without requesting a new blob to the IoT Hub.] */
+                logger.LogInfo("Resuming the upload of %s, method name is %s ", requestedBlobName, logger.getMethodName());
+                blobURI = journalEntry.getBlobUri();
+                correlationId = journalEntry.getCorrelationId();
+            }
+            else
+            {
+                resultStatus = getContainer();
+                if (resultStatus == IotHubStatusCode.OK)
+                {
+                    journalEntry = updateJournalEntry(journalEntry, requestedBlobName);
+                }
+            }
         }
         catch (IOException | IllegalArgumentException | URISyntaxException | NullPointerException e) //Nobody will handel exception from this thread, so, convert it to an failed code in the user callback.
         {
@@ -152,10 +212,33 @@ public final class FileUploadTask implements Runnable
         {
             try
             {
+                if (journalEntry != null && journalEntry.isCommitted())
+                {
+            /* Codes_SRS_FILEUPLOADTASK_44_011: [If the upload is journaled as committed, the run shall not upload it again, and shall only notify the IoT Hub.] */
+                    logger.LogInfo("The upload of %s is already committed, only notifying the IoT Hub, method name is %s ", requestedBlobName, logger.getMethodName());
+                }
+                else
+                {
             /* Codes_SRS_FILEUPLOADTASK_21_019: [The run shall create a `CloudBlockBlob` using the `blobUri`.] */
-                CloudBlockBlob blob = new CloudBlockBlob(blobURI);
-            /* Codes_SRS_FILEUPLOADTASK_21_020: [The run shall upload the `inputStream` with the `streamLength` to the created `CloudBlockBlob`.] */
-                blob.upload(inputStream, streamLength);
+                    CloudBlockBlob blob = new CloudBlockBlob(blobURI);
+            /* Codes_SRS_FILEUPLOADTASK_21_020: [The run shall upload the `inputStream` with the `streamLength` to the created `CloudBlockBlob`, by using the blockBlobUploader.] */
+            /* Codes_SRS_FILEUPLOADTASK_44_002: [The run shall notify the IoT Hub of a successful upload only after the block list is committed.] */
+            /* Codes_SRS_FILEUPLOADTASK_44_006: [The run shall upload only the blocks that are not journaled as uploaded, and journal each uploaded block.] */
+                    if (path != null)
+                    {
+            /* Codes_SRS_FILEUPLOADTASK_44_010: [The run shall upload a file from its `path`, by using the blockBlobUploader.] */
+                        blockBlobUploader.upload(blob, path, streamLength, journalEntry);
+                    }
+                    else
+                    {
+                        blockBlobUploader.upload(blob, inputStream, streamLength, journalEntry);
+                    }
+                    if (journalEntry != null)
+                    {
+            /* Codes_SRS_FILEUPLOADTASK_44_007: [If the upload to blob succeed, the run shall journal it as committed.] */
+                        markCommitted(journalEntry);
+                    }
+                }
             /* Codes_SRS_FILEUPLOADTASK_21_021: [If the upload to blob succeed, the run shall create a notification the IoT Hub with `isSuccess` equals true, `statusCode` equals 0.] */
                 fileUploadStatusParser = new FileUploadStatusParser(correlationId, true, 0, "Succeed to upload to storage.");
                 resultStatus = IotHubStatusCode.OK;
@@ -165,15 +248,27 @@ public final class FileUploadTask implements Runnable
                 logger.LogError("File upload failed to upload the stream to the blob. " + e.toString());
             /* Codes_SRS_FILEUPLOADTASK_21_030: [If the upload to blob failed, the run shall call the `userCallback` reporting an error status `ERROR`.] */
                 resultStatus = IotHubStatusCode.ERROR;
+                if (journalEntry == null)
+                {
             /* Codes_SRS_FILEUPLOADTASK_21_022: [If the upload to blob failed, the run shall create a notification the IoT Hub with `isSuccess` equals false, `statusCode` equals -1.] */
-                fileUploadStatusParser = new FileUploadStatusParser(correlationId, false, -1, "Failed to upload to storage.");
+                    fileUploadStatusParser = new FileUploadStatusParser(correlationId, false, -1, "Failed to upload to storage.");
+                }
+            /* Codes_SRS_FILEUPLOADTASK_44_008: [If a journaled upload to blob failed, the run shall keep its journal and shall not notify the IoT Hub, so that the upload can be resumed with the same correlationId.] */
             }
             finally
             {
-                IotHubStatusCode notificationResultStatus = sendNotification(fileUploadStatusParser);
-                if (resultStatus == IotHubStatusCode.OK)
+                if (fileUploadStatusParser != null)
                 {
-                    resultStatus = notificationResultStatus;
+                    IotHubStatusCode notificationResultStatus = sendNotification(fileUploadStatusParser);
+                    if (resultStatus == IotHubStatusCode.OK)
+                    {
+                        resultStatus = notificationResultStatus;
+                        if (journalEntry != null && resultStatus == IotHubStatusCode.OK)
+                        {
+            /* Codes_SRS_FILEUPLOADTASK_44_012: [The run shall delete the journal of an upload only once the IoT Hub accepted its notification, so a failed notification is sent again by the next run.] */
+                            journalEntry.delete();
+                        }
+                    }
                 }
             }
         }
@@ -182,6 +277,64 @@ public final class FileUploadTask implements Runnable
         userCallback.execute(resultStatus, userCallbackContext);
     }
 
+    private FileUploadJournal.Entry findJournalEntry()
+    {
+        if (fileUploadJournal == null)
+        {
+            return null;
+        }
+
+        try
+        {
+            /* Codes_SRS_FILEUPLOADTASK_44_003: [If the upload is resumable, the run shall look for the journal of the upload of the same blob name, stream length and block size.] */
+            return fileUploadJournal.find(blobName, streamLength, blockBlobUploader.getBlockSize());
+        }
+        catch (IOException e)
+        {
+            logger.LogError("File upload failed to read its journal, the upload will start from the beginning. " + e.toString());
+            return null;
+        }
+    }
+
+    private FileUploadJournal.Entry updateJournalEntry(FileUploadJournal.Entry journalEntry, String requestedBlobName)
+    {
+        if (fileUploadJournal == null)
+        {
+            return null;
+        }
+
+        /* Codes_SRS_FILEUPLOADTASK_44_005: [If the upload is resumable, the run shall journal the blob URI and correlationId provided by the IoT Hub, keeping the uploaded blocks of a journaled upload of the same blob.] */
+        // A journal that cannot be written only makes this upload not resumable.
+        try
+        {
+            if (journalEntry == null)
+            {
+                return fileUploadJournal.create(requestedBlobName, streamLength, blockBlobUploader.getBlockSize(), blobURI, correlationId);
+            }
+
+            journalEntry.renew(blobURI, correlationId);
+            return journalEntry;
+        }
+        catch (IOException e)
+        {
+            logger.LogError("File upload failed to write its journal, the upload will not be resumable. " + e.toString());
+            return null;
+        }
+    }
+
+    private void markCommitted(FileUploadJournal.Entry journalEntry)
+    {
+        // Without the record, the next run finds every block uploaded and only commits the block list again.
+        try
+        {
+            journalEntry.committed();
+        }
+        catch (IOException e)
+        {
+            logger.LogError("File upload failed to journal the committed upload. " + e.toString());
+        }
+    }
+
     private void addBlobInformation(Message responseMessage) throws IllegalArgumentException, URISyntaxException, UnsupportedEncodingException
     {
         /* Codes_SRS_FILEUPLOADTASK_21_015: [If the iothub accepts the request, it shall provide a `responseMessage` with the blob information with a correlationId.] */
@@ -13,16 +13,12 @@ import com.microsoft.azure.sdk.iot.device.hsm.parser.TrustBundleResponse;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsMethod;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsRequest;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsResponse;
-import jnr.unixsocket.UnixSocketAddress;
-import jnr.unixsocket.UnixSocketChannel;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.StringReader;
+import java.io.InterruptedIOException;
 import java.net.*;
 import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
+import java.util.concurrent.*;
 
 public class HttpsHsmClient
 {
@@ -35,6 +31,9 @@ public class HttpsHsmClient
 
     private static final String API_VERSION_QUERY_STRING_PREFIX = "api-version=";
 
+    // the sign requests sent to the HSM and not answered yet, by url and body, shared by every client
+    private static final ConcurrentMap<String, FutureTask<SignResponse>> SIGN_REQUESTS_IN_PROGRESS = new ConcurrentHashMap<>();
+
     /**
      * Client object for sending sign requests to an HSM unit
      * @param baseUrl The base url of the HSM
@@ -101,15 +100,49 @@ public class HttpsHsmClient
     {
         // Codes_SRS_HSMHTTPCLIENT_34_002: [This function shall build an http request with the url in the format
         // <base url>/modules/<url encoded name>/genid/<url encoded gen id>/sign?api-version=<url encoded api version>.]
-        String uri = baseUrl != null ? baseUrl.replaceFirst("/*$", "") : "";
+        final String uri = baseUrl != null ? baseUrl.replaceFirst("/*$", "") : "";
         StringBuilder pathBuilder = new StringBuilder();
         pathBuilder.append("/modules/" + URLEncoder.encode(moduleName, "UTF-8"));
         pathBuilder.append("/genid/" + URLEncoder.encode(generationId, "UTF-8"));
         pathBuilder.append("/sign");
 
-        byte[] body = signRequest.toJson().getBytes();
-        
-        HttpsResponse response = sendRequestBasedOnScheme(HttpsMethod.POST, body, uri,pathBuilder.toString(), API_VERSION_QUERY_STRING_PREFIX + apiVersion);
+        final String path = pathBuilder.toString();
+        final String queryString = API_VERSION_QUERY_STRING_PREFIX + apiVersion;
+        final String json = signRequest.toJson();
+
+        // Codes_SRS_HSMHTTPCLIENT_44_001: [If the same sign request is already being sent to the HSM, this function
+        // shall wait for its response instead of sending the request again.]
+        String signRequestKey = uri + path + "?" + queryString + "\n" + json;
+        FutureTask<SignResponse> signTask = new FutureTask<>(new Callable<SignResponse>()
+        {
+            @Override
+            public SignResponse call() throws IOException, TransportException, HsmException
+            {
+                return sendSignRequest(uri, path, queryString, json.getBytes());
+            }
+        });
+
+        FutureTask<SignResponse> signTaskInProgress = SIGN_REQUESTS_IN_PROGRESS.putIfAbsent(signRequestKey, signTask);
+        if (signTaskInProgress == null)
+        {
+            try
+            {
+                signTask.run();
+            }
+            finally
+            {
+                SIGN_REQUESTS_IN_PROGRESS.remove(signRequestKey, signTask);
+            }
+
+            signTaskInProgress = signTask;
+        }
+
+        return getSignResponse(signTaskInProgress);
+    }
+
+    private SignResponse sendSignRequest(String uri, String path, String queryString, byte[] body) throws IOException, TransportException, HsmException
+    {
+        HttpsResponse response = sendRequestBasedOnScheme(HttpsMethod.POST, body, uri, path, queryString);
 
         int responseCode = response.getStatus();
         String responseBody = new String(response.getBody());
@@ -132,6 +165,47 @@ public class HttpsHsmClient
         }
     }
 
+    private static SignResponse getSignResponse(FutureTask<SignResponse> signTask) throws IOException, TransportException, HsmException
+    {
+        try
+        {
+            return signTask.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the HSM to sign");
+        }
+        catch (ExecutionException e)
+        {
+            // Codes_SRS_HSMHTTPCLIENT_44_002: [If the sign request failed, this function shall throw the exception of
+            // that failure to every caller waiting for its response.]
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            else if (cause instanceof TransportException)
+            {
+                throw (TransportException) cause;
+            }
+            else if (cause instanceof HsmException)
+            {
+                throw (HsmException) cause;
+            }
+            else if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            else if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+
+            throw new IOException(cause);
+        }
+    }
+
     /**
      * Retrieve a trust bundle from an hsm
      * @param apiVersion the api version to use
@@ -234,79 +308,25 @@ public class HttpsHsmClient
     }
 
     /**
-     * Send an HTTP request over a unix domain socket
+     * Send an HTTP request over a pooled keep-alive connection to a unix domain socket
      * @param httpsRequest the request to send
      * @return the response from the HSM unit
      * @throws IOException If the unix socket cannot be reached
      */
     private HttpsResponse sendHttpRequestUsingUnixSocket(HttpsRequest httpsRequest, String httpRequestPath, String httpRequestQueryString, String unixSocketAddress) throws IOException
     {
-        UnixSocketChannel channel = null;
-        HttpsResponse response = null;
-        try
+        // Codes_SRS_HSMHTTPCLIENT_44_003: [If the scheme of the provided url is Unix, this function shall send the
+        // http request on a keep-alive connection from the pool of connections to that unix socket, and shall read the
+        // response straight from that connection.]
+        byte[] requestBytes = HttpsRequestResponseSerializer.serializeRequest(httpsRequest, httpRequestPath, httpRequestQueryString, unixSocketAddress, true);
+        UnixSocketConnectionPool connectionPool = UnixSocketConnectionPool.forAddress(unixSocketAddress);
+
+        byte[] body = httpsRequest.getBody();
+        if (body != null && body.length > 0)
         {
-            //write to socket
-            byte[] requestBytes = HttpsRequestResponseSerializer.serializeRequest(httpsRequest, httpRequestPath, httpRequestQueryString, unixSocketAddress);
-            UnixSocketAddress address = new UnixSocketAddress(unixSocketAddress);
-            channel = UnixSocketChannel.open(address);
-
-            if (httpsRequest.getBody() != null)
-            {
-                //append http request body to the request bytes
-                ByteArrayOutputStream outputStream = new ByteArrayOutputStream( );
-                outputStream.write(requestBytes);
-                outputStream.write(httpsRequest.getBody());
-
-                channel.write(ByteBuffer.wrap(outputStream.toByteArray()));
-            }
-            else
-            {
-                channel.write(ByteBuffer.wrap(requestBytes));
-            }
-
-            //read response
-            String responseString = readResponseFromChannel(channel);
-            response = HttpsRequestResponseSerializer.deserializeResponse(new BufferedReader(new StringReader(responseString)));
-        }
-        finally
-        {
-            if (channel != null)
-            {
-                channel.close();
-            }
+            return connectionPool.send(ByteBuffer.wrap(requestBytes), ByteBuffer.wrap(body));
         }
 
-        return response;
-    }
-
-    private String readResponseFromChannel(UnixSocketChannel channel) throws IOException
-    {
-        ByteBuffer buf = ByteBuffer.allocateDirect(10);
-        String response = "";
-        int numRead = 0;
-        while (numRead >= 0)
-        {
-            // read() places read bytes at the buffer's position so the
-            // position should always be properly set before calling read()
-            // This method sets the position to 0
-            buf.rewind();
-
-            // Read bytes from the channel
-            numRead = channel.read(buf);
-
-            // The read() method also moves the position so in order to
-            // read the new bytes, the buffer's position must be
-            // set back to 0
-            buf.rewind();
-
-            // Read bytes from ByteBuffer; see also
-            // e159 Getting Bytes from a ByteBuffer
-            for (int i=0; i<numRead; i++)
-            {
-                response = response + new String(new byte[] {buf.get()}, StandardCharsets.US_ASCII);
-            }
-        }
-
-        return response;
+        return connectionPool.send(ByteBuffer.wrap(requestBytes));
     }
 }
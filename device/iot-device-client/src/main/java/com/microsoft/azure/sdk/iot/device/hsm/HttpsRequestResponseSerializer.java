@@ -9,8 +9,11 @@ import com.microsoft.azure.sdk.iot.device.transport.https.HttpsRequest;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsResponse;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 
@@ -26,6 +29,9 @@ public class HttpsRequestResponseSerializer
 
     private static final long MAXIMUM_HEADER_COUNT = 500;
 
+    private static final byte[] LINE_END = {'\r', '\n'};
+    private static final byte[] HEADERS_END = {'\r', '\n', '\r', '\n'};
+
     /**
      * Serialize the provided request
      *
@@ -37,6 +43,23 @@ public class HttpsRequestResponseSerializer
      * @throws IllegalArgumentException if the provided httpsRequest is null or has a null request url
      */
     public static byte[] serializeRequest(HttpsRequest httpsRequest, String path, String queryString, String host) throws IllegalArgumentException
+    {
+        return serializeRequest(httpsRequest, path, queryString, host, false);
+    }
+
+    /**
+     * Serialize the headers of the provided request, asking the HSM to keep the connection open or to close it
+     * after its response. The body of the request is not included
+     *
+     * @param httpsRequest the request to be serialized
+     * @param path the path for the request to invoke on (e.g. /trust-bundle)
+     * @param queryString the full querystring associated with the http request. Should not include the '?' character at the beginning
+     * @param host the host that the request is being made to
+     * @param keepAlive true if the connection should stay open after the response, false if it should be closed
+     * @return the serialized request
+     * @throws IllegalArgumentException if the provided httpsRequest is null or has a null request url
+     */
+    public static byte[] serializeRequest(HttpsRequest httpsRequest, String path, String queryString, String host, boolean keepAlive) throws IllegalArgumentException
     {
         if (httpsRequest == null)
         {
@@ -68,7 +91,9 @@ public class HttpsRequestResponseSerializer
         // <header>: <value1>; <value2>
         // .]
 
-        httpsRequest.setHeaderField("Connection", "close");
+        // Codes_SRS_HTTPREQUESTRESPONSESERIALIZER_44_001: [If keepAlive is true, this function shall serialize the
+        // Connection header with the value keep-alive instead of close.]
+        httpsRequest.setHeaderField("Connection", keepAlive ? "keep-alive" : "close");
 
         String updatedPath = preProcessRequestPath(path);
 
@@ -137,7 +162,103 @@ public class HttpsRequestResponseSerializer
             throw new IOException("Response is empty.");
         }
 
-        String[] statusLineParts = statusLine.split(SP);
+        String[] statusLineParts = splitStatusLine(statusLine);
+        int statusCode = parseStatusCode(statusLineParts);
+
+        Map<String, List<String>> headerFields = readHeaderFields(bufferedReader);
+        byte[] body = readBody(bufferedReader);
+        byte[] errorReason = statusLineParts[2].getBytes();
+
+        bufferedReader.close();
+
+        return new HttpsResponse(statusCode, body, headerFields, errorReason);
+    }
+
+    /**
+     * Deserialize the next response that an HSM party writes to the provided channel, reading it straight from the
+     * provided buffer. The bytes of the buffer between its position and its limit are the bytes already read from
+     * the channel, and the bytes read past the response are left there for the next response on the same connection
+     * @param channel the channel to read from. Will not be closed by this method
+     * @param buffer the buffer to read the channel into, in the state it was left by the previous call on this channel
+     * @return the deserialized response
+     * @throws IOException if the channel cannot be read from, or does not hold a valid response
+     */
+    public static HttpsResponse deserializeResponse(ReadableByteChannel channel, ByteBuffer buffer) throws IOException
+    {
+        if (channel == null || buffer == null)
+        {
+            // Codes_SRS_HTTPREQUESTRESPONSESERIALIZER_44_002: [If the provided channel or buffer is null, this function shall throw an IllegalArgumentException.]
+            throw new IllegalArgumentException("channel and buffer cannot be null");
+        }
+
+        // Codes_SRS_HTTPREQUESTRESPONSESERIALIZER_44_003: [This function shall read the status line and the headers
+        // of the response from the buffer, reading more bytes from the channel into it as needed.]
+        String head = readUntil(channel, buffer, HEADERS_END);
+        if (head == null || head.isEmpty())
+        {
+            throw new IOException("Response is empty.");
+        }
+
+        List<String> lines = Arrays.asList(head.split(CR + LF));
+        if (lines.size() > MAXIMUM_HEADER_COUNT)
+        {
+            throw new IOException("HSM provided too many http headers");
+        }
+
+        String[] statusLineParts = splitStatusLine(lines.get(0));
+        int statusCode = parseStatusCode(statusLineParts);
+        Map<String, List<String>> headerFields = parseHeaderFields(lines.subList(1, lines.size()));
+
+        // Codes_SRS_HTTPREQUESTRESPONSESERIALIZER_44_004: [This function shall read a chunked body if the response
+        // has a chunked Transfer-Encoding, a body of Content-Length bytes if it has a Content-Length, and the rest of
+        // the channel otherwise.]
+        byte[] body;
+        String transferEncoding = getHeaderValue(headerFields, "Transfer-Encoding");
+        String contentLength = getHeaderValue(headerFields, "Content-Length");
+        if (transferEncoding != null && transferEncoding.equalsIgnoreCase("chunked"))
+        {
+            body = readChunkedBody(channel, buffer);
+        }
+        else if (contentLength != null)
+        {
+            body = readBody(channel, buffer, parseLength(contentLength, 10));
+        }
+        else
+        {
+            body = readRemainingBody(channel, buffer);
+        }
+
+        return new HttpsResponse(statusCode, body, headerFields, statusLineParts[2].getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Get the trimmed value of a header of a deserialized response, ignoring the case of its name
+     * @param headerFields the headers of the response
+     * @param headerName the name of the header
+     * @return the value of the header, or null if the response does not have this header
+     */
+    static String getHeaderValue(Map<String, ?> headerFields, String headerName)
+    {
+        for (Map.Entry<String, ?> headerField : headerFields.entrySet())
+        {
+            if (headerName.equalsIgnoreCase(headerField.getKey()))
+            {
+                Object value = headerField.getValue();
+                if (value instanceof List)
+                {
+                    value = ((List) value).isEmpty() ? "" : ((List) value).get(0);
+                }
+
+                return value.toString().trim();
+            }
+        }
+
+        return null;
+    }
+
+    private static String[] splitStatusLine(String statusLine) throws IOException
+    {
+        String[] statusLineParts = statusLine.split(SP, 3);
         if (statusLineParts.length != 3)
         {
             // Codes_SRS_HTTPREQUESTRESPONSESERIALIZER_34_006: [If the buffered reader's first line does not have the version, status code, and error reason split by a space, this function shall throw an IOException.]
@@ -150,28 +271,21 @@ public class HttpsRequestResponseSerializer
             throw new IOException("Version is not valid " + statusLineParts[0] + ".");
         }
 
-        //don't care about version right now
-        String version = httpVersion[1];
+        return statusLineParts;
+    }
 
-        int statusCode;
+    private static int parseStatusCode(String[] statusLineParts) throws IOException
+    {
         try
         {
             String statusCodeString = statusLineParts[1];
-            statusCode = Integer.valueOf(statusCodeString);
+            return Integer.valueOf(statusCodeString);
         }
         catch (NumberFormatException e)
         {
             // Codes_SRS_HTTPREQUESTRESPONSESERIALIZER_34_007: [If the status code is not parsable into an int, this function shall throw an IOException.]
             throw new IOException("StatusCode is not valid " + statusLineParts[1] + ".");
         }
-
-        Map<String, List<String>> headerFields = readHeaderFields(bufferedReader);
-        byte[] body = readBody(bufferedReader);
-        byte[] errorReason = statusLineParts[2].getBytes();
-
-        bufferedReader.close();
-
-        return new HttpsResponse(statusCode, body, headerFields, errorReason);
     }
 
     private static String preProcessRequestPath(String path)
@@ -182,7 +296,6 @@ public class HttpsRequestResponseSerializer
 
     private static Map<String, List<String>> readHeaderFields(BufferedReader bufferedReader) throws IOException
     {
-        Map<String, List<String>> headerFields = new HashMap<>();
         Collection<String> headers = new ArrayList<>();
         String line = bufferedReader.readLine();
         while (line != null && !line.isEmpty())
@@ -196,6 +309,12 @@ public class HttpsRequestResponseSerializer
             }
         }
 
+        return parseHeaderFields(headers);
+    }
+
+    private static Map<String, List<String>> parseHeaderFields(Collection<String> headers) throws IOException
+    {
+        Map<String, List<String>> headerFields = new HashMap<>();
         for(String header : headers)
         {
             if (header == null || header.isEmpty())
@@ -234,4 +353,159 @@ public class HttpsRequestResponseSerializer
 
         return bodyString.getBytes();
     }
+
+    private static byte[] readChunkedBody(ReadableByteChannel channel, ByteBuffer buffer) throws IOException
+    {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        while (true)
+        {
+            String chunkSizeLine = readUntil(channel, buffer, LINE_END);
+            if (chunkSizeLine == null)
+            {
+                throw new IOException("Response ended before its last chunk.");
+            }
+
+            int extensionStart = chunkSizeLine.indexOf(';');
+            int chunkSize = parseLength(extensionStart < 0 ? chunkSizeLine : chunkSizeLine.substring(0, extensionStart), 16);
+            if (chunkSize == 0)
+            {
+                // skip the trailers, up to the empty line ending the response
+                String trailer = readUntil(channel, buffer, LINE_END);
+                while (trailer != null && !trailer.isEmpty())
+                {
+                    trailer = readUntil(channel, buffer, LINE_END);
+                }
+
+                return body.toByteArray();
+            }
+
+            body.write(readBody(channel, buffer, chunkSize));
+            if (!"".equals(readUntil(channel, buffer, LINE_END)))
+            {
+                throw new IOException("Chunk is not valid.");
+            }
+        }
+    }
+
+    private static byte[] readBody(ReadableByteChannel channel, ByteBuffer buffer, int length) throws IOException
+    {
+        byte[] body = new byte[length];
+        int bodyLength = 0;
+        while (bodyLength < length)
+        {
+            if (!buffer.hasRemaining() && !fill(channel, buffer))
+            {
+                throw new IOException("Response ended before its body.");
+            }
+
+            int readLength = Math.min(buffer.remaining(), length - bodyLength);
+            buffer.get(body, bodyLength, readLength);
+            bodyLength += readLength;
+        }
+
+        return body;
+    }
+
+    private static byte[] readRemainingBody(ReadableByteChannel channel, ByteBuffer buffer) throws IOException
+    {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        do
+        {
+            while (buffer.hasRemaining())
+            {
+                body.write(buffer.get());
+            }
+        }
+        while (fill(channel, buffer));
+
+        return body.toByteArray();
+    }
+
+    /**
+     * Read the buffer up to the provided delimiter, reading more bytes from the channel as needed
+     * @return the ascii string before the delimiter, which is consumed, or null if the channel ended before any byte
+     */
+    private static String readUntil(ReadableByteChannel channel, ByteBuffer buffer, byte[] delimiter) throws IOException
+    {
+        int searchStart = buffer.position();
+        while (true)
+        {
+            for (int i = searchStart; i + delimiter.length <= buffer.limit(); i++)
+            {
+                if (startsWith(buffer, i, delimiter))
+                {
+                    byte[] bytes = new byte[i - buffer.position()];
+                    buffer.get(bytes);
+                    buffer.position(buffer.position() + delimiter.length);
+                    return new String(bytes, StandardCharsets.US_ASCII);
+                }
+            }
+
+            int searchedLength = Math.max(0, buffer.remaining() - delimiter.length + 1);
+            if (!fill(channel, buffer))
+            {
+                if (!buffer.hasRemaining())
+                {
+                    return null;
+                }
+
+                throw new IOException("Response ended in the middle of a line.");
+            }
+
+            searchStart = buffer.position() + searchedLength;
+        }
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int index, byte[] prefix)
+    {
+        for (int i = 0; i < prefix.length; i++)
+        {
+            if (buffer.get(index + i) != prefix[i])
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Read more bytes from the channel at the end of the unread bytes of the buffer
+     * @return false if the channel has ended
+     */
+    private static boolean fill(ReadableByteChannel channel, ByteBuffer buffer) throws IOException
+    {
+        buffer.compact();
+        try
+        {
+            if (!buffer.hasRemaining())
+            {
+                throw new IOException("HSM provided http headers longer than " + buffer.capacity() + " bytes");
+            }
+
+            return channel.read(buffer) >= 0;
+        }
+        finally
+        {
+            buffer.flip();
+        }
+    }
+
+    private static int parseLength(String length, int radix) throws IOException
+    {
+        try
+        {
+            int parsedLength = Integer.parseInt(length.trim(), radix);
+            if (parsedLength >= 0)
+            {
+                return parsedLength;
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            // fall through to the exception below
+        }
+
+        throw new IOException("Length is not valid " + length + ".");
+    }
 }
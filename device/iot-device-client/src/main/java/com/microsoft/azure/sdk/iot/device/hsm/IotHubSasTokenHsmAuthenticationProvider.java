@@ -57,7 +57,20 @@ public class IotHubSasTokenHsmAuthenticationProvider extends IotHubSasTokenWithR
     public void refreshSasToken() throws IOException, TransportException
     {
         // Codes_SRS_MODULEAUTHENTICATIONWITHHSM_34_005: [This function shall create a new sas token and save it locally.]
-        this.sasToken = createNewSasToken(this.hostname, this.gatewayHostname, this.deviceId, this.moduleId, this.generationId, this.signatureProvider, this.tokenValidSecs);
+        this.sasToken = this.generateSasToken();
+    }
+
+    /**
+     * Create a new sas token using the HSM unit, without saving it
+     * @return the new sas token
+     * @throws IOException If the Hsm unit cannot be reached
+     * @throws TransportException If the Hsm unit cannot be reached
+     */
+    @Override
+    protected IotHubSasToken generateSasToken() throws IOException, TransportException
+    {
+        // Codes_SRS_MODULEAUTHENTICATIONWITHHSM_44_001: [This function shall create a new sas token signed by the HSM unit.]
+        return createNewSasToken(this.hostname, this.gatewayHostname, this.deviceId, this.moduleId, this.generationId, this.signatureProvider, this.tokenValidSecs);
     }
 
     /**
@@ -0,0 +1,204 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.device.hsm;
+
+import com.microsoft.azure.sdk.iot.device.CustomLogger;
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsResponse;
+import jnr.unixsocket.UnixSocketAddress;
+import jnr.unixsocket.UnixSocketChannel;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A small pool of keep-alive http connections to the unix domain socket of an HSM, shared by every client of that
+ * socket, so that requests to the HSM do not open a new socket each time
+ */
+final class UnixSocketConnectionPool
+{
+    private static final int MAXIMUM_CONNECTIONS = 4;
+    private static final long MAXIMUM_IDLE_MILLISECONDS = 30 * 1000;
+    private static final int RESPONSE_BUFFER_SIZE = 8 * 1024;
+
+    private static final ConcurrentMap<String, UnixSocketConnectionPool> POOLS = new ConcurrentHashMap<>();
+    private static final CustomLogger logger = new CustomLogger(UnixSocketConnectionPool.class);
+
+    private final String unixSocketAddress;
+    private final Semaphore connectionPermits = new Semaphore(MAXIMUM_CONNECTIONS, true);
+    private final BlockingDeque<Connection> idleConnections = new LinkedBlockingDeque<>();
+
+    private UnixSocketConnectionPool(String unixSocketAddress)
+    {
+        this.unixSocketAddress = unixSocketAddress;
+    }
+
+    /**
+     * Get the pool of connections to the provided unix socket, creating it the first time
+     * @param unixSocketAddress the path of the unix socket
+     * @return the pool shared by every client of this unix socket
+     */
+    static UnixSocketConnectionPool forAddress(String unixSocketAddress)
+    {
+        UnixSocketConnectionPool pool = POOLS.get(unixSocketAddress);
+        if (pool == null)
+        {
+            UnixSocketConnectionPool newPool = new UnixSocketConnectionPool(unixSocketAddress);
+            pool = POOLS.putIfAbsent(unixSocketAddress, newPool);
+            if (pool == null)
+            {
+                pool = newPool;
+            }
+        }
+
+        return pool;
+    }
+
+    /**
+     * Send an http request on a pooled connection and read its response, waiting for a connection if they are all
+     * busy. A pooled connection that turns out to be closed by the HSM is replaced by a new connection
+     * @param request the buffers holding the serialized request, sent in order
+     * @return the response to the request
+     * @throws IOException if the unix socket cannot be reached, or does not answer with a valid response
+     */
+    HttpsResponse send(ByteBuffer... request) throws IOException
+    {
+        try
+        {
+            this.connectionPermits.acquire();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a connection to " + this.unixSocketAddress);
+        }
+
+        try
+        {
+            Connection connection = pollIdleConnection();
+            if (connection != null)
+            {
+                try
+                {
+                    return exchange(connection, request);
+                }
+                catch (IOException e)
+                {
+                    // the HSM may have closed this connection while it was idle, so try again on a new one
+                    logger.LogDebug("Pooled connection to %s failed, retrying on a new connection: %s", this.unixSocketAddress, e.getMessage());
+                }
+            }
+
+            return exchange(new Connection(UnixSocketChannel.open(new UnixSocketAddress(this.unixSocketAddress))), request);
+        }
+        finally
+        {
+            this.connectionPermits.release();
+        }
+    }
+
+    private HttpsResponse exchange(Connection connection, ByteBuffer[] request) throws IOException
+    {
+        boolean keepAlive = false;
+        try
+        {
+            for (ByteBuffer buffer : request)
+            {
+                buffer.rewind();
+                while (buffer.hasRemaining())
+                {
+                    connection.channel.write(buffer);
+                }
+            }
+
+            HttpsResponse response = HttpsRequestResponseSerializer.deserializeResponse(connection.channel, connection.responseBuffer);
+            keepAlive = isKeepAlive(response);
+            return response;
+        }
+        finally
+        {
+            if (keepAlive)
+            {
+                connection.lastUsedMillis = System.currentTimeMillis();
+                this.idleConnections.offerFirst(connection);
+            }
+            else
+            {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Take the most recently used idle connection, closing the connections that stayed idle for too long
+     */
+    private Connection pollIdleConnection()
+    {
+        long oldestLastUsedMillis = System.currentTimeMillis() - MAXIMUM_IDLE_MILLISECONDS;
+        Connection expiredConnection = this.idleConnections.peekLast();
+        while (expiredConnection != null && expiredConnection.lastUsedMillis < oldestLastUsedMillis)
+        {
+            if (this.idleConnections.removeLastOccurrence(expiredConnection))
+            {
+                expiredConnection.close();
+            }
+
+            expiredConnection = this.idleConnections.peekLast();
+        }
+
+        return this.idleConnections.pollFirst();
+    }
+
+    /**
+     * A connection can be reused if the HSM did not ask to close it, and the end of the response body was known
+     * without waiting for the HSM to close it
+     */
+    private static boolean isKeepAlive(HttpsResponse response)
+    {
+        Map<String, String> headerFields = response.getHeaderFields();
+        if (headerFields == null || "close".equalsIgnoreCase(HttpsRequestResponseSerializer.getHeaderValue(headerFields, "Connection")))
+        {
+            return false;
+        }
+
+        return HttpsRequestResponseSerializer.getHeaderValue(headerFields, "Content-Length") != null
+                || "chunked".equalsIgnoreCase(HttpsRequestResponseSerializer.getHeaderValue(headerFields, "Transfer-Encoding"));
+    }
+
+    private static final class Connection
+    {
+        private final UnixSocketChannel channel;
+        private final ByteBuffer responseBuffer;
+        private long lastUsedMillis;
+
+        private Connection(UnixSocketChannel channel)
+        {
+            this.channel = channel;
+
+            // the unread bytes of the buffer are the ones between its position and its limit, none to begin with
+            this.responseBuffer = ByteBuffer.allocate(RESPONSE_BUFFER_SIZE);
+            this.responseBuffer.flip();
+        }
+
+        private void close()
+        {
+            try
+            {
+                this.channel.close();
+            }
+            catch (IOException e)
+            {
+                logger.LogDebug("Failed to close a connection to the HSM: %s", e.getMessage());
+            }
+        }
+    }
+}
@@ -43,6 +43,10 @@ public final class IotHubSendTask implements Runnable
             // Codes_SRS_IOTHUBSENDTASK_11_002: [The function shall send all messages on the transport queue.]
             this.transport.sendMessages();
 
+            logger.LogTrace("Now sending the results of the received messages");
+            // Codes_SRS_IOTHUBSENDTASK_44_001: [The function shall send the queued results of the received messages.]
+            this.transport.settleMessages();
+
             logger.LogTrace("Now invoking all queued callbacks");
             // Codes_SRS_IOTHUBSENDTASK_11_003: [The function shall invoke all callbacks on the transport's callback queue.]
             this.transport.invokeCallbacks();
@@ -8,10 +8,12 @@
 package com.microsoft.azure.sdk.iot.device.transport;
 
 import com.microsoft.azure.sdk.iot.device.*;
+import com.microsoft.azure.sdk.iot.device.auth.IotHubSasTokenAuthenticationProvider;
 import com.microsoft.azure.sdk.iot.device.exceptions.*;
 import com.microsoft.azure.sdk.iot.device.transport.amqps.AmqpsIotHubConnection;
 import com.microsoft.azure.sdk.iot.device.transport.amqps.exceptions.AmqpConnectionThrottledException;
 import com.microsoft.azure.sdk.iot.device.transport.amqps.exceptions.AmqpUnauthorizedAccessException;
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsAdaptiveReceivePolicy;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsIotHubConnection;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttIotHubConnection;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.exceptions.MqttUnauthorizedException;
@@ -20,7 +22,6 @@ import java.util.*;
 import java.util.concurrent.*;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
-import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 /**
  * Manages queueing of message sending, receiving and callbacks. Manages notifying users of connection status change updates
@@ -28,6 +29,7 @@ import static java.util.concurrent.TimeUnit.NANOSECONDS;
 public class IotHubTransport implements IotHubListener
 {
     private static final int MAX_MESSAGES_TO_SEND_PER_THREAD = 10;
+    private static final int MAX_SETTLEMENTS_PER_THREAD = 100;
     private IotHubConnectionStatus connectionStatus;
     private IotHubTransportConnection iotHubTransportConnection;
 
@@ -40,6 +42,12 @@ public class IotHubTransport implements IotHubListener
     /* Messages received from the IoT Hub */
     private final Queue<IotHubTransportMessage> receivedMessagesQueue = new ConcurrentLinkedQueue<>();
 
+    /* Results of the received messages waiting to be sent to the IoT Hub, in the order the callbacks ran. */
+    private final Deque<MessageSettlement> settlementsQueue = new ConcurrentLinkedDeque<>();
+
+    /* Polling schedule of the adaptive receive over HTTPS, null to receive one message per poll. */
+    private HttpsAdaptiveReceivePolicy httpsAdaptiveReceivePolicy;
+
     /* Messages whose callbacks that are waiting to be invoked. */
     private final Queue<IotHubTransportPacket> callbackPacketsQueue = new ConcurrentLinkedQueue<>();
 
@@ -59,6 +67,9 @@ public class IotHubTransport implements IotHubListener
 
     private int currentReconnectionAttempt;
     private long reconnectionAttemptStartTimeMillis;
+    private long reconnectionDelayMillis;
+    private volatile ReconnectionTask pendingReconnectionTask;
+    private final ReconnectionCoordinator reconnectionCoordinator;
     private ScheduledExecutorService taskScheduler;
 
     private final CustomLogger logger;
@@ -90,6 +101,8 @@ public class IotHubTransport implements IotHubListener
         this.connectionStatus = IotHubConnectionStatus.DISCONNECTED;
         this.currentReconnectionAttempt = 0;
 
+        this.reconnectionCoordinator = ReconnectionCoordinator.getInstance();
+
         this.logger = new CustomLogger(this.getClass());
     }
 
@@ -274,7 +287,17 @@ public class IotHubTransport implements IotHubListener
 
         this.deviceClientConfigs = new LinkedBlockingQueue<>(deviceClientConfigs);
         this.defaultConfig = this.deviceClientConfigs.peek();
-        this.taskScheduler = Executors.newScheduledThreadPool(1);
+        this.taskScheduler = createScheduledExecutorService(1);
+
+        //Codes_SRS_IOTHUBTRANSPORT_44_015: [This function shall start preparing the sas tokens of the devices in the background, so the connection only reads ready-made tokens when it renews them.]
+        for (DeviceClientConfig config : this.deviceClientConfigs)
+        {
+            IotHubSasTokenAuthenticationProvider sasTokenAuthentication = config.getSasTokenAuthentication();
+            if (sasTokenAuthentication != null)
+            {
+                sasTokenAuthentication.startSasTokenPreparation();
+            }
+        }
 
         //Codes_SRS_IOTHUBTRANSPORT_34_019: [This function shall open the invoke the method openConnection.]
         openConnection();
@@ -299,6 +322,14 @@ public class IotHubTransport implements IotHubListener
             throw new IllegalArgumentException("reason cannot be null");
         }
 
+        //Codes_SRS_IOTHUBTRANSPORT_44_019: [This function shall cancel the scheduled reconnection attempt.]
+        ReconnectionTask reconnectionTask = this.pendingReconnectionTask;
+        if (reconnectionTask != null)
+        {
+            reconnectionTask.cancel();
+            this.pendingReconnectionTask = null;
+        }
+
         this.cancelPendingPackets();
 
         //Codes_SRS_IOTHUBTRANSPORT_34_023: [This function shall invoke all callbacks.]
@@ -315,12 +346,30 @@ public class IotHubTransport implements IotHubListener
             this.scheduledExecutorService = null;
         }
 
+        //Codes_SRS_IOTHUBTRANSPORT_44_014: [This function shall try to send the queued results before closing the
+        // connection, and drop the ones that could not be sent.]
+        this.settleMessages();
+        this.settlementsQueue.clear();
+
         //Codes_SRS_IOTHUBTRANSPORT_34_024: [This function shall close the connection.]
         if (this.iotHubTransportConnection != null)
         {
             this.iotHubTransportConnection.close();
         }
 
+        if (this.deviceClientConfigs != null)
+        {
+            //Codes_SRS_IOTHUBTRANSPORT_44_016: [This function shall stop preparing the sas tokens of the devices.]
+            for (DeviceClientConfig config : this.deviceClientConfigs)
+            {
+                IotHubSasTokenAuthenticationProvider sasTokenAuthentication = config.getSasTokenAuthentication();
+                if (sasTokenAuthentication != null)
+                {
+                    sasTokenAuthentication.stopSasTokenPreparation();
+                }
+            }
+        }
+
         //Codes_SRS_IOTHUBTRANSPORT_34_025: [This function shall invoke updateStatus with status DISCONNECTED and the
         // supplied reason and cause.]
         this.updateStatus(IotHubConnectionStatus.DISCONNECTED, reason, cause);
@@ -471,6 +520,14 @@ public class IotHubTransport implements IotHubListener
         {
             if (this.iotHubTransportConnection instanceof HttpsIotHubConnection)
             {
+                if (this.httpsAdaptiveReceivePolicy != null)
+                {
+                    //Codes_SRS_IOTHUBTRANSPORT_44_002: [If this object's connection status is CONNECTED, is using HTTPS
+                    // and has an adaptive receive policy, this function shall invoke handleMessagesOverHttpAdaptively.]
+                    handleMessagesOverHttpAdaptively();
+                    return;
+                }
+
                 //Codes_SRS_IOTHUBTRANSPORT_34_047: [If this object's connection status is CONNECTED and is using HTTPS,
                 // this function shall invoke addReceivedMessagesOverHttpToReceivedQueue.]
                 addReceivedMessagesOverHttpToReceivedQueue();
@@ -486,6 +543,92 @@ public class IotHubTransport implements IotHubListener
         }
     }
 
+    /**
+     * Sends the results of the received messages whose callbacks already ran, in the order the callbacks ran. The
+     * results are sent by the send task, so the receive task never waits for an acknowledgement, and the results
+     * that queued up since the last run are sent in one pass.
+     */
+    public void settleMessages()
+    {
+        //Codes_SRS_IOTHUBTRANSPORT_44_010: [If this object's connection status is not CONNECTED, this function shall do nothing.]
+        if (this.connectionStatus != IotHubConnectionStatus.CONNECTED)
+        {
+            return;
+        }
+
+        int settled = 0;
+        MessageSettlement settlement = this.settlementsQueue.poll();
+        while (settlement != null)
+        {
+            try
+            {
+                //Codes_SRS_IOTHUBTRANSPORT_44_011: [This function shall send each queued result along the connection
+                // as the ack to the service, in the order they were queued.]
+                if (!this.iotHubTransportConnection.sendMessageResult(settlement.message, settlement.result))
+                {
+                    logger.LogWarn("The result %s of the message with hashcode %s could not be sent, method name is %s ",
+                            settlement.result, settlement.message.hashCode(), logger.getMethodName());
+                }
+            }
+            catch (IotHubServiceException e)
+            {
+                //Codes_SRS_IOTHUBTRANSPORT_44_012: [If the service rejects a result, this function shall drop it and
+                // continue with the next one.]
+                logger.LogError("The service rejected the result %s of the message with hashcode %s: %s", settlement.result,
+                        settlement.message.hashCode(), e.getMessage());
+            }
+            catch (TransportException e)
+            {
+                if (e.isRetryable())
+                {
+                    //Codes_SRS_IOTHUBTRANSPORT_44_013: [If the result could not be sent because of a retryable
+                    // exception, this function shall put it back at the head of the settlementsQueue and stop, so it
+                    // is sent again on the next call.]
+                    this.settlementsQueue.addFirst(settlement);
+                    logger.LogError("Sending the result of a received message failed, it will be sent again: %s", e.getMessage());
+                    logger.LogDebug("Exception on sending the result of a received message", e);
+                    return;
+                }
+
+                //Codes_SRS_IOTHUBTRANSPORT_44_021: [If the result could not be sent because of an exception that is
+                // not retryable, this function shall drop it and continue with the next one.]
+                logger.LogError("The result %s of the message with hashcode %s cannot be sent and is dropped: %s",
+                        settlement.result, settlement.message.hashCode(), e.getMessage());
+                logger.LogDebug("Exception on sending the result of a received message", e);
+            }
+            catch (RuntimeException e)
+            {
+                //Codes_SRS_IOTHUBTRANSPORT_44_022: [If sending a result throws a runtime exception, this function
+                // shall drop it and continue with the next one.]
+                logger.LogError("The result %s of the message with hashcode %s cannot be sent and is dropped: %s",
+                        settlement.result, settlement.message.hashCode(), e.getMessage());
+                logger.LogDebug("Exception on sending the result of a received message", e);
+            }
+
+            settled++;
+            if (settled >= MAX_SETTLEMENTS_PER_THREAD)
+            {
+                return;
+            }
+
+            settlement = this.settlementsQueue.poll();
+        }
+    }
+
+    /**
+     * Sets the polling schedule of the cloud to device messages over HTTPS. With a policy, each
+     * {@link #handleMessage()} fetches up to {@link HttpsAdaptiveReceivePolicy#getMaxMessagesPerPoll()} messages,
+     * invokes their callbacks, then sends their results back to back, and reports the number of fetched messages to
+     * the policy.
+     *
+     * @param httpsAdaptiveReceivePolicy the polling schedule, or {@code null} to receive one message per poll.
+     */
+    public void setHttpsAdaptiveReceivePolicy(HttpsAdaptiveReceivePolicy httpsAdaptiveReceivePolicy)
+    {
+        //Codes_SRS_IOTHUBTRANSPORT_44_001: [This function shall save the provided policy.]
+        this.httpsAdaptiveReceivePolicy = httpsAdaptiveReceivePolicy;
+    }
+
     /**
      * Returns {@code true} if the transport has no more messages to handle,
      * and {@code false} otherwise.
@@ -574,12 +717,11 @@ public class IotHubTransport implements IotHubListener
     }
 
     /**
-     * If the provided received message has a saved callback, this function shall execute that callback and send the ack
-     * to the service
+     * If the provided received message has a saved callback, this function shall execute that callback and queue its
+     * result to be sent to the service by {@link #settleMessages()}
      * @param receivedMessage the message to acknowledge
-     * @throws TransportException if any exception is encountered while sending the acknowledgement
      */
-    private void acknowledgeReceivedMessage(IotHubTransportMessage receivedMessage) throws TransportException
+    private void acknowledgeReceivedMessage(IotHubTransportMessage receivedMessage)
     {
         MessageCallback messageCallback = receivedMessage.getMessageCallback();
         Object messageCallbackContext = receivedMessage.getMessageCallbackContext();
@@ -590,19 +732,9 @@ public class IotHubTransport implements IotHubListener
             // transport message with the provided message and its saved callback context.]
             IotHubMessageResult result = messageCallback.execute(receivedMessage, messageCallbackContext);
 
-            try
-            {
-                //Codes_SRS_IOTHUBTRANSPORT_34_054: [This function shall send the message callback result along the
-                // connection as the ack to the service.]
-                this.iotHubTransportConnection.sendMessageResult(receivedMessage, result);
-            }
-            catch (TransportException e)
-            {
-                //Codes_SRS_IOTHUBTRANSPORT_34_055: [If an exception is thrown while acknowledging the received message,
-                // this function shall add the received message back into the receivedMessagesQueue and then rethrow the exception.]
-                this.receivedMessagesQueue.add(receivedMessage);
-                throw e;
-            }
+            //Codes_SRS_IOTHUBTRANSPORT_44_009: [This function shall add the message callback result to the
+            // settlementsQueue, to be sent as the ack to the service by settleMessages.]
+            this.settlementsQueue.add(new MessageSettlement(receivedMessage, result));
         }
     }
 
@@ -624,6 +756,41 @@ public class IotHubTransport implements IotHubListener
         }
     }
 
+    /**
+     * Fetches a batch of messages over HTTP and invokes the callbacks of all received messages. Their results are
+     * sent by {@link #settleMessages()}, one after the other, so the requests reuse the same keep-alive connection.
+     * @throws TransportException if an exception occurs while receiving the messages
+     */
+    private void handleMessagesOverHttpAdaptively() throws TransportException
+    {
+        List<IotHubTransportMessage> fetchedMessages;
+        try
+        {
+            //Codes_SRS_IOTHUBTRANSPORT_44_003: [The function shall fetch up to the policy maxMessagesPerPoll messages
+            // and add them to the receivedMessagesQueue.]
+            fetchedMessages = ((HttpsIotHubConnection) this.iotHubTransportConnection).receiveMessages(this.httpsAdaptiveReceivePolicy.getMaxMessagesPerPoll());
+        }
+        catch (TransportException e)
+        {
+            //Codes_SRS_IOTHUBTRANSPORT_44_004: [If the messages could not be fetched, the function shall report an
+            // empty poll to the policy and rethrow the exception.]
+            this.httpsAdaptiveReceivePolicy.onPollCompleted(0);
+            throw e;
+        }
+
+        //Codes_SRS_IOTHUBTRANSPORT_44_005: [The function shall report the number of fetched messages to the policy.]
+        this.httpsAdaptiveReceivePolicy.onPollCompleted(fetchedMessages.size());
+        this.receivedMessagesQueue.addAll(fetchedMessages);
+
+        //Codes_SRS_IOTHUBTRANSPORT_44_006: [The function shall acknowledge all the queued messages.]
+        IotHubTransportMessage receivedMessage = this.receivedMessagesQueue.poll();
+        while (receivedMessage != null)
+        {
+            this.acknowledgeReceivedMessage(receivedMessage);
+            receivedMessage = this.receivedMessagesQueue.poll();
+        }
+    }
+
     /**
      * Maps a given throwable to an IotHubConnectionStatusChangeReason
      * @param e the throwable to map to an IotHubConnectionStatusChangeReason
@@ -660,13 +827,31 @@ public class IotHubTransport implements IotHubListener
         return IotHubConnectionStatusChangeReason.COMMUNICATION_ERROR;
     }
 
+    /**
+     * Creates an executor for the tasks of this transport, on the shared threads of the client runtime if there is one
+     * @param poolSize the number of threads of the executor if this transport creates its own threads
+     * @return the executor
+     */
+    private ScheduledExecutorService createScheduledExecutorService(int poolSize)
+    {
+        ClientRuntime clientRuntime = this.defaultConfig.getClientRuntime();
+        if (clientRuntime != null)
+        {
+            //Codes_SRS_IOTHUBTRANSPORT_44_020: [If the config has a client runtime, the message retries and the
+            // connection shall be scheduled on the shared threads of the runtime instead of new threads.]
+            return clientRuntime.createExecutorService();
+        }
+
+        return Executors.newScheduledThreadPool(poolSize);
+    }
+
     /**
      * Creates a new iotHubTransportConnection instance, sets this object as its listener, and opens that connection
      * @throws TransportException
      */
     private void openConnection() throws TransportException
     {
-        scheduledExecutorService = Executors.newScheduledThreadPool(POOL_SIZE);
+        scheduledExecutorService = createScheduledExecutorService(POOL_SIZE);
 
         if (this.iotHubTransportConnection == null)
         {
@@ -705,7 +890,8 @@ public class IotHubTransport implements IotHubListener
     }
 
     /**
-     * Attempts to reconnect. By the end of this call, the state of this object shall be either CONNECTED or DISCONNECTED
+     * Starts reconnecting. By the end of this call, the state of this object shall be either DISCONNECTED_RETRYING,
+     * with a reconnection attempt scheduled, or DISCONNECTED
      * @param transportException
      */
     private void handleDisconnection(TransportException transportException)
@@ -731,9 +917,10 @@ public class IotHubTransport implements IotHubListener
     }
 
     /**
-     * Attempts to close and then re-open the connection until connection reestablished, retry policy expires, or a
-     * terminal exception is encountered. At the end of this call, the state of this object should be either
-     * CONNECTED or DISCONNECTED depending on how reconnection goes.
+     * Schedules the next attempt to close and then re-open the connection on the reconnection coordinator shared by
+     * every transport, unless the retry policy expired, the reconnection timed out, or a terminal exception was
+     * encountered, in which case this object is closed. Reconnection goes on until the connection is reestablished
+     * or this object is closed.
      */
     private void reconnect(TransportException transportException)
     {
@@ -749,7 +936,7 @@ public class IotHubTransport implements IotHubListener
 
         //Codes_SRS_IOTHUBTRANSPORT_34_066: [This function shall attempt to reconnect while this object's state is
         // DISCONNECTED_RETRYING, the operation hasn't timed out, and the last transport exception is retryable.]
-        while (this.connectionStatus == IotHubConnectionStatus.DISCONNECTED_RETRYING
+        if (this.connectionStatus == IotHubConnectionStatus.DISCONNECTED_RETRYING
                 && !hasReconnectOperationTimedOut
                 && transportException != null
                 && transportException.isRetryable())
@@ -757,19 +944,16 @@ public class IotHubTransport implements IotHubListener
             this.currentReconnectionAttempt++;
             RetryPolicy retryPolicy = this.defaultConfig.getRetryPolicy();
             retryDecision = retryPolicy .getRetryDecision(this.currentReconnectionAttempt, transportException);
-            if (!retryDecision.shouldRetry())
+            if (retryDecision.shouldRetry())
             {
-                break;
+                //Codes_SRS_IOTHUBTRANSPORT_44_017: [If the retry policy says to retry, this function shall schedule the
+                // next reconnection attempt on the reconnection coordinator, after the jittered delay the coordinator
+                // computes from the retry policy delay, and return without waiting for it.]
+                this.reconnectionDelayMillis = this.reconnectionCoordinator.getNextDelayMillis(retryDecision.getDuration(), this.reconnectionDelayMillis);
+                this.pendingReconnectionTask = new ReconnectionTask();
+                this.reconnectionCoordinator.schedule(this.pendingReconnectionTask, this.reconnectionDelayMillis);
+                return;
             }
-
-            //Want to sleep without interruption because the only interruptions expected are threads that add a message
-            // to the waiting list again. Those threads should wait until after reconnection finishes first because
-            // they will constantly fail until connection is re-established
-            IotHubTransport.sleepUninterruptibly(retryDecision.getDuration(), MILLISECONDS);
-
-            hasReconnectOperationTimedOut = this.hasOperationTimedOut(this.reconnectionAttemptStartTimeMillis);
-
-            transportException = singleReconnectAttempt();
         }
 
         // reconnection may have failed, so check last retry decision, check for timeout, and check if last exception
@@ -828,6 +1012,56 @@ public class IotHubTransport implements IotHubListener
         return null;
     }
 
+    /**
+     * A reconnection attempt, run by the reconnection coordinator unless this transport was closed since it was scheduled
+     */
+    private final class ReconnectionTask implements Runnable
+    {
+        private volatile boolean cancelled;
+
+        private void cancel()
+        {
+            this.cancelled = true;
+        }
+
+        @Override
+        public void run()
+        {
+            synchronized (reconnectionLock)
+            {
+                //Codes_SRS_IOTHUBTRANSPORT_44_018: [When the scheduled reconnection attempt runs, if it has not been
+                // cancelled and this object's state is still DISCONNECTED_RETRYING, it shall attempt to reconnect once
+                // and then invoke reconnect with the exception of that attempt.]
+                if (this.cancelled || connectionStatus != IotHubConnectionStatus.DISCONNECTED_RETRYING)
+                {
+                    return;
+                }
+
+                if (pendingReconnectionTask == this)
+                {
+                    pendingReconnectionTask = null;
+                }
+
+                reconnect(singleReconnectAttempt());
+            }
+        }
+    }
+
+    /**
+     * The result of a received message, waiting to be sent to the service
+     */
+    private static final class MessageSettlement
+    {
+        private final IotHubTransportMessage message;
+        private final IotHubMessageResult result;
+
+        MessageSettlement(IotHubTransportMessage message, IotHubMessageResult result)
+        {
+            this.message = message;
+            this.result = result;
+        }
+    }
+
     /**
      * Task for adding a packet back to the waiting queue. Used for delaying message retry
      */
@@ -1012,6 +1246,7 @@ public class IotHubTransport implements IotHubListener
                 //Codes_SRS_IOTHUBTRANSPORT_28_007: [This function shall reset currentReconnectionAttempt and reconnectionAttemptStartTimeMillis if connection status is changed to CONNECTED.]
                 this.currentReconnectionAttempt = 0;
                 this.reconnectionAttemptStartTimeMillis = 0;
+                this.reconnectionDelayMillis = 0;
             }
         }
     }
@@ -1095,41 +1330,6 @@ public class IotHubTransport implements IotHubListener
         }
     }
 
-    /**
-     * Sleep for a length of time without interruption
-     * @param sleepFor length of time to sleep for
-     * @param unit time unit associated with sleepFor
-     */
-    private static void sleepUninterruptibly(long sleepFor, TimeUnit unit)
-    {
-        boolean interrupted = false;
-        try
-        {
-            long remainingNanos = unit.toNanos(sleepFor);
-            long end = System.nanoTime() + remainingNanos;
-            while (true)
-            {
-                try
-                {
-                    NANOSECONDS.sleep(remainingNanos);
-                    return;
-                }
-                catch (InterruptedException e)
-                {
-                    interrupted = true;
-                    remainingNanos = end - System.nanoTime();
-                }
-            }
-        }
-        finally
-        {
-            if (interrupted)
-            {
-                Thread.currentThread().interrupt();
-            }
-        }
-    }
-
     /**
      * If Unauthorized exception occurs, but sas token has not expired, this function sets the provided
      * transportException as retryable
@@ -0,0 +1,190 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import java.util.concurrent.*;
+
+/**
+ * Schedules the reconnection attempts of every transport in the process, so that clients that lose their connection
+ * at the same time do not all reconnect at once. Each attempt is delayed with decorrelated jitter, admitted through a
+ * token bucket, and run on a small pool of threads shared by every transport instead of a thread sleeping per
+ * transport.
+ */
+public final class ReconnectionCoordinator
+{
+    private static final int DEFAULT_MAXIMUM_CONCURRENT_ATTEMPTS = 16;
+    private static final double DEFAULT_ATTEMPTS_PER_SECOND = 16;
+
+    private static final long MINIMUM_JITTER_MILLISECONDS = 100;
+    private static final long MAXIMUM_JITTERED_DELAY_MILLISECONDS = 60 * 1000;
+    private static final long ATTEMPT_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    private final int maximumConcurrentAttempts;
+    private final double tokensPerNanosecond;
+    private final Object tokenBucketLock = new Object();
+    private double tokens;
+    private long lastRefillNanos;
+
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService attemptExecutor;
+
+    /**
+     * Coordinator of the reconnection attempts
+     * @param maximumConcurrentAttempts the size of the token bucket, which is also the number of attempts that can run at once
+     * @param attemptsPerSecond the rate at which the token bucket refills
+     */
+    ReconnectionCoordinator(int maximumConcurrentAttempts, double attemptsPerSecond)
+    {
+        if (maximumConcurrentAttempts <= 0 || attemptsPerSecond <= 0)
+        {
+            // Codes_SRS_RECONNECTIONCOORDINATOR_44_001: [If the maximum number of concurrent attempts or the rate of
+            // attempts is not positive, the constructor shall throw an IllegalArgumentException.]
+            throw new IllegalArgumentException("The maximum number of concurrent attempts and the rate of attempts must be positive");
+        }
+
+        // Codes_SRS_RECONNECTIONCOORDINATOR_44_002: [The constructor shall start with a full token bucket.]
+        this.maximumConcurrentAttempts = maximumConcurrentAttempts;
+        this.tokensPerNanosecond = attemptsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = maximumConcurrentAttempts;
+        this.lastRefillNanos = System.nanoTime();
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("azure-iot-sdk-ReconnectionCoordinator"));
+
+        ThreadPoolExecutor attemptExecutor = new ThreadPoolExecutor(
+                maximumConcurrentAttempts,
+                maximumConcurrentAttempts,
+                ATTEMPT_THREAD_KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new DaemonThreadFactory("azure-iot-sdk-ReconnectionAttempt"));
+        attemptExecutor.allowCoreThreadTimeOut(true);
+        this.attemptExecutor = attemptExecutor;
+    }
+
+    /**
+     * @return the coordinator shared by every transport of the process
+     */
+    static ReconnectionCoordinator getInstance()
+    {
+        return DefaultReconnectionCoordinator.INSTANCE;
+    }
+
+    /**
+     * Compute the delay before the next reconnection attempt of a transport, spreading the attempts of the transports
+     * that lost their connection at the same time
+     * @param retryPolicyDelayMillis the delay chosen by the retry policy of the transport
+     * @param previousDelayMillis the previous delay computed for this transport, or 0 for its first attempt
+     * @return the delay before the next attempt
+     */
+    long getNextDelayMillis(long retryPolicyDelayMillis, long previousDelayMillis)
+    {
+        // Codes_SRS_RECONNECTIONCOORDINATOR_44_003: [This function shall return a random delay between the retry policy
+        // delay and three times the previous delay, with at least 100 milliseconds as the previous delay, and no more
+        // than a minute above the retry policy delay.]
+        long lowerBound = Math.max(0, retryPolicyDelayMillis);
+        long upperBound = Math.max(lowerBound, Math.min(lowerBound + MAXIMUM_JITTERED_DELAY_MILLISECONDS, Math.max(previousDelayMillis, MINIMUM_JITTER_MILLISECONDS) * 3));
+        if (upperBound == lowerBound)
+        {
+            return lowerBound;
+        }
+
+        return lowerBound + ThreadLocalRandom.current().nextLong(upperBound - lowerBound + 1);
+    }
+
+    /**
+     * Run a reconnection attempt after the provided delay, once the token bucket admits it
+     * @param attempt the reconnection attempt
+     * @param delayMillis the delay before the attempt
+     */
+    void schedule(final Runnable attempt, long delayMillis)
+    {
+        if (attempt == null)
+        {
+            // Codes_SRS_RECONNECTIONCOORDINATOR_44_004: [If the provided attempt is null, this function shall throw an IllegalArgumentException.]
+            throw new IllegalArgumentException("attempt cannot be null");
+        }
+
+        // Codes_SRS_RECONNECTIONCOORDINATOR_44_005: [This function shall admit the attempt after the provided delay,
+        // without blocking the calling thread.]
+        this.scheduler.schedule(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                admit(attempt);
+            }
+        }, Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+    }
+
+    private void admit(final Runnable attempt)
+    {
+        long waitNanos = takeToken();
+        if (waitNanos == 0)
+        {
+            // Codes_SRS_RECONNECTIONCOORDINATOR_44_006: [If the token bucket has a token, the attempt shall take it
+            // and run on the shared pool of attempt threads.]
+            this.attemptExecutor.execute(attempt);
+        }
+        else
+        {
+            // Codes_SRS_RECONNECTIONCOORDINATOR_44_007: [If the token bucket is empty, the attempt shall be admitted
+            // again after a random delay between the time until the next token and three times that time.]
+            this.scheduler.schedule(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    admit(attempt);
+                }
+            }, waitNanos + ThreadLocalRandom.current().nextLong(2 * waitNanos + 1), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Take a token from the bucket, refilled for the time since its last refill
+     * @return 0 if a token was taken, or the number of nanoseconds until the bucket has a token otherwise
+     */
+    private long takeToken()
+    {
+        synchronized (this.tokenBucketLock)
+        {
+            long now = System.nanoTime();
+            this.tokens = Math.min(this.maximumConcurrentAttempts, this.tokens + (now - this.lastRefillNanos) * this.tokensPerNanosecond);
+            this.lastRefillNanos = now;
+
+            if (this.tokens >= 1)
+            {
+                this.tokens--;
+                return 0;
+            }
+
+            return Math.max(1, (long) Math.ceil((1 - this.tokens) / this.tokensPerNanosecond));
+        }
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory
+    {
+        private final String threadName;
+
+        private DaemonThreadFactory(String threadName)
+        {
+            this.threadName = threadName;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+            Thread thread = new Thread(runnable, this.threadName);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    private static final class DefaultReconnectionCoordinator
+    {
+        private static final ReconnectionCoordinator INSTANCE = new ReconnectionCoordinator(DEFAULT_MAXIMUM_CONCURRENT_ATTEMPTS, DEFAULT_ATTEMPTS_PER_SECOND);
+    }
+}
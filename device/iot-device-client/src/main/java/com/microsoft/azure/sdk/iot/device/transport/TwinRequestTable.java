@@ -0,0 +1,296 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Correlates the twin requests sent to the IoT Hub with their responses.
+ *
+ * <p> Each request is saved with a deadline. The deadlines are kept in a timer wheel: every slot of the wheel holds
+ * the requests that expire during one tick, so expiring the requests costs a few slots per call whatever the number
+ * of pending requests. The wheel is advanced by every call to the table, and by {@link #expire()}.
+ *
+ * <p> The number of pending requests is bounded: when the table is full, {@link #put(String, Object)} refuses the
+ * request so that the caller can hold it back until some responses arrive or expire.
+ *
+ * @param <V> the type of the value saved with each request.
+ */
+public final class TwinRequestTable<V>
+{
+    /**
+     * Called with each request that expired without response.
+     *
+     * @param <V> the type of the value saved with each request.
+     */
+    public interface ExpirationListener<V>
+    {
+        void onExpired(String requestId, V value);
+    }
+
+    public static final long DEFAULT_REQUEST_TIMEOUT_MILLIS = 4 * 60 * 1000; //4 minutes
+    public static final int DEFAULT_MAX_PENDING_REQUESTS = 1000;
+
+    private static final int WHEEL_SIZE = 64;
+
+    private static final class Entry<V>
+    {
+        private final String requestId;
+        private final V value;
+        private final long deadlineTick;
+
+        private Entry(String requestId, V value, long deadlineTick)
+        {
+            this.requestId = requestId;
+            this.value = value;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    private final long requestTimeoutMillis;
+    private final long tickMillis;
+    private final int maxPendingRequests;
+    private final long startNanos = System.nanoTime();
+
+    private final Map<String, Entry<V>> entries = new HashMap<>();
+    private final List<Set<Entry<V>>> wheel = new ArrayList<>(WHEEL_SIZE);
+    private long currentTick;
+
+    private volatile ExpirationListener<V> expirationListener;
+
+    /**
+     * Constructor for a table with the default timeout and the default maximum number of pending requests.
+     */
+    public TwinRequestTable()
+    {
+        this(DEFAULT_REQUEST_TIMEOUT_MILLIS, DEFAULT_MAX_PENDING_REQUESTS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param requestTimeoutMillis the time a request may wait for its response, in milliseconds. Must be positive.
+     * @param maxPendingRequests the maximum number of requests waiting for their response. Must be positive.
+     * @throws IllegalArgumentException if any of the parameters is not positive.
+     */
+    public TwinRequestTable(long requestTimeoutMillis, int maxPendingRequests) throws IllegalArgumentException
+    {
+        // Codes_SRS_TWINREQUESTTABLE_44_001: [If the timeout or the maximum number of pending requests is not positive, the constructor shall throw IllegalArgumentException.]
+        if (requestTimeoutMillis <= 0 || maxPendingRequests <= 0)
+        {
+            throw new IllegalArgumentException("The request timeout and the maximum number of pending requests must be positive");
+        }
+
+        this.requestTimeoutMillis = requestTimeoutMillis;
+        this.tickMillis = Math.max(1, requestTimeoutMillis / (WHEEL_SIZE - 1));
+        this.maxPendingRequests = maxPendingRequests;
+        for (int i = 0; i < WHEEL_SIZE; i++)
+        {
+            this.wheel.add(new LinkedHashSet<Entry<V>>());
+        }
+        this.currentTick = nowMillis() / this.tickMillis;
+    }
+
+    /**
+     * Set the listener to call with each request that expires. Replaces the previous one.
+     *
+     * @param expirationListener the listener, can be {@code null}.
+     */
+    public void setExpirationListener(ExpirationListener<V> expirationListener)
+    {
+        this.expirationListener = expirationListener;
+    }
+
+    /**
+     * @return the interval between two ticks of the timer wheel, in milliseconds. Calling {@link #expire()} more
+     *         often than that has no effect.
+     */
+    public long getTickMillis()
+    {
+        return this.tickMillis;
+    }
+
+    /**
+     * Save a request until its response arrives or its deadline passes. A request saved with the id of a pending
+     * one replaces it.
+     *
+     * @param requestId the id that correlates the request with its response. Cannot be {@code null}.
+     * @param value the value to save with the request.
+     * @return {@code true} if the request was saved, {@code false} if the table is full.
+     * @throws IllegalArgumentException if the request id is {@code null}.
+     */
+    public boolean put(String requestId, V value) throws IllegalArgumentException
+    {
+        // Codes_SRS_TWINREQUESTTABLE_44_002: [If the request id is null, the function shall throw IllegalArgumentException.]
+        if (requestId == null)
+        {
+            throw new IllegalArgumentException("Request id cannot be null");
+        }
+
+        List<Entry<V>> expired;
+        boolean saved;
+        synchronized (this)
+        {
+            long now = nowMillis();
+            expired = advance(now);
+
+            Entry<V> previous = this.entries.remove(requestId);
+            if (previous != null)
+            {
+                slotOf(previous.deadlineTick).remove(previous);
+            }
+
+            // Codes_SRS_TWINREQUESTTABLE_44_003: [If the table holds maxPendingRequests requests, the function shall not save the request and return false.]
+            saved = this.entries.size() < this.maxPendingRequests;
+            if (saved)
+            {
+                // Codes_SRS_TWINREQUESTTABLE_44_004: [The function shall save the request with a deadline of the request timeout from now, and return true.]
+                long deadlineTick = (now + this.requestTimeoutMillis + this.tickMillis - 1) / this.tickMillis;
+                Entry<V> entry = new Entry<>(requestId, value, deadlineTick);
+                this.entries.put(requestId, entry);
+                slotOf(deadlineTick).add(entry);
+            }
+        }
+
+        notifyExpired(expired);
+        return saved;
+    }
+
+    /**
+     * Remove the request that a response correlates with.
+     *
+     * @param requestId the id of the request.
+     * @return the value saved with the request, or {@code null} if no request with this id is pending.
+     */
+    public V remove(String requestId)
+    {
+        if (requestId == null)
+        {
+            return null;
+        }
+
+        List<Entry<V>> expired;
+        Entry<V> entry;
+        synchronized (this)
+        {
+            expired = advance(nowMillis());
+
+            // Codes_SRS_TWINREQUESTTABLE_44_005: [The function shall remove the pending request with the provided id and return its value, or return null if no such request is pending.]
+            entry = this.entries.remove(requestId);
+            if (entry != null)
+            {
+                slotOf(entry.deadlineTick).remove(entry);
+            }
+        }
+
+        notifyExpired(expired);
+        return entry == null ? null : entry.value;
+    }
+
+    /**
+     * Remove the requests whose deadline passed, and call the expiration listener with each of them.
+     *
+     * @return the number of requests that expired.
+     */
+    public int expire()
+    {
+        List<Entry<V>> expired;
+        synchronized (this)
+        {
+            expired = advance(nowMillis());
+        }
+
+        notifyExpired(expired);
+        return expired.size();
+    }
+
+    /**
+     * @return the number of requests waiting for their response.
+     */
+    public synchronized int size()
+    {
+        return this.entries.size();
+    }
+
+    /**
+     * @return {@code true} if no request is waiting for its response.
+     */
+    public synchronized boolean isEmpty()
+    {
+        return this.entries.isEmpty();
+    }
+
+    /**
+     * Forget all the pending requests, without calling the expiration listener.
+     */
+    public synchronized void clear()
+    {
+        this.entries.clear();
+        for (Set<Entry<V>> slot : this.wheel)
+        {
+            slot.clear();
+        }
+    }
+
+    private List<Entry<V>> advance(long now)
+    {
+        List<Entry<V>> expired = new ArrayList<>();
+        long nowTick = now / this.tickMillis;
+        if (nowTick <= this.currentTick)
+        {
+            return expired;
+        }
+
+        // Codes_SRS_TWINREQUESTTABLE_44_006: [Every call shall first remove the requests whose deadline passed, and then call the expiration listener with each of them outside the table lock.]
+        long firstTick = Math.max(this.currentTick + 1, nowTick - WHEEL_SIZE + 1);
+        for (long tick = firstTick; tick <= nowTick; tick++)
+        {
+            Iterator<Entry<V>> iterator = slotOf(tick).iterator();
+            while (iterator.hasNext())
+            {
+                Entry<V> entry = iterator.next();
+                if (entry.deadlineTick <= nowTick)
+                {
+                    iterator.remove();
+                    this.entries.remove(entry.requestId);
+                    expired.add(entry);
+                }
+            }
+        }
+
+        this.currentTick = nowTick;
+        return expired;
+    }
+
+    private void notifyExpired(List<Entry<V>> expired)
+    {
+        ExpirationListener<V> listener = this.expirationListener;
+        if (listener == null)
+        {
+            return;
+        }
+
+        for (Entry<V> entry : expired)
+        {
+            listener.onExpired(entry.requestId, entry.value);
+        }
+    }
+
+    private Set<Entry<V>> slotOf(long tick)
+    {
+        return this.wheel.get((int) (tick % WHEEL_SIZE));
+    }
+
+    private long nowMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.startNanos);
+    }
+}
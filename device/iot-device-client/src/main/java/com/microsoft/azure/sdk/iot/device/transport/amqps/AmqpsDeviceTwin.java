@@ -8,6 +8,7 @@ import com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceOperations;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
 import com.microsoft.azure.sdk.iot.device.transport.TransportUtils;
+import com.microsoft.azure.sdk.iot.device.transport.TwinRequestTable;
 import org.apache.qpid.proton.amqp.Symbol;
 import org.apache.qpid.proton.amqp.messaging.*;
 import org.apache.qpid.proton.message.impl.MessageImpl;
@@ -48,7 +49,7 @@ public final class AmqpsDeviceTwin extends AmqpsDeviceOperations
     private static final String MESSAGE_ANNOTATION_FIELD_VALUE_NOTIFICATIONS_TWIN_PROPERTIES_DESIRED = "/notifications/twin/properties/desired";
     private static final String MESSAGE_ANNOTATION_FIELD_VALUE_PROPERTIES_DESIRED = "/properties/desired";
 
-    Map<String, DeviceOperations> correlationIdList;
+    TwinRequestTable<DeviceOperations> correlationIdList;
 
     private DeviceClientConfig deviceClientConfig;
 
@@ -71,8 +72,8 @@ public final class AmqpsDeviceTwin extends AmqpsDeviceOperations
         // Codes_SRS_AMQPSDEVICETWIN_12_007: [The constructor shall generate a UUID amd add it as a correlation ID to the amqpProperties.]
         this.amqpProperties.put(Symbol.getSymbol(CORRELATION_ID_KEY), Symbol.getSymbol(CORRELATION_ID_KEY_PREFIX +  UUID.randomUUID().toString()));
 
-        // Codes_SRS_AMQPSDEVICETWIN_12_009: [The constructor shall create a HashMap for correlationId list.]
-        this.correlationIdList = new HashMap<>();
+        // Codes_SRS_AMQPSDEVICETWIN_12_009: [The constructor shall create a twin request table for correlationId list.]
+        this.correlationIdList = new TwinRequestTable<>();
     }
 
     /**
@@ -258,9 +259,10 @@ public final class AmqpsDeviceTwin extends AmqpsDeviceOperations
             iotHubTransportMessage.setCorrelationId(properties.getCorrelationId().toString());
 
             // Codes_SRS_AMQPSDEVICETWIN_12_023: [The function shall find the proton correlation ID in the correlationIdList and if it is found, set the operation type to the related response.]
-            if (correlationIdList.containsKey(properties.getCorrelationId().toString()))
+            // Codes_SRS_AMQPSDEVICETWIN_12_043: [The function shall remove the correlation from the correlationId list.]
+            DeviceOperations deviceOperations = this.correlationIdList.remove(properties.getCorrelationId().toString());
+            if (deviceOperations != null)
             {
-                DeviceOperations deviceOperations = correlationIdList.get(properties.getCorrelationId().toString());
                 switch (deviceOperations)
                 {
                     case DEVICE_OPERATION_TWIN_GET_REQUEST:
@@ -280,8 +282,6 @@ public final class AmqpsDeviceTwin extends AmqpsDeviceOperations
                                 "Invalid device operation type in protonMessageToIoTHubMessage!",
                                 TransportException.IotHubService.TWIN);
                 }
-                // Codes_SRS_AMQPSDEVICETWIN_12_043: [The function shall remove the correlation from the correlationId list.]
-                this.correlationIdList.remove(properties.getCorrelationId().toString());
             }
         }
         else if (iotHubTransportMessage.getDeviceOperationType() == DEVICE_OPERATION_UNKNOWN)
@@ -315,7 +315,14 @@ public final class AmqpsDeviceTwin extends AmqpsDeviceOperations
             protonMessage.getProperties().setCorrelationId(UUID.fromString(deviceTwinMessage.getCorrelationId()));
 
             // Codes_SRS_AMQPSDEVICETWIN_12_045: [The function shall add the correlationId to the correlationIdList if it is not null.]
-            this.correlationIdList.put(deviceTwinMessage.getCorrelationId(), deviceTwinMessage.getDeviceOperationType());
+            if (!this.correlationIdList.put(deviceTwinMessage.getCorrelationId(), deviceTwinMessage.getDeviceOperationType()))
+            {
+                // Codes_SRS_AMQPSDEVICETWIN_44_001: [If the correlationId list is full, the function shall throw a retryable TransportException.]
+                TransportException transportException = new TransportException("Too many twin requests are waiting for their response");
+                transportException.setIotHubService(TransportException.IotHubService.TWIN);
+                transportException.setRetryable(true);
+                throw transportException;
+            }
         }
 
         Map<Symbol, Object> messageAnnotationsMap = new HashMap<>();
@@ -278,7 +278,17 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
 
         if (executorService == null)
         {
-            executorService = Executors.newFixedThreadPool(1);
+            ClientRuntime clientRuntime = this.deviceClientConfig.getClientRuntime();
+            if (clientRuntime != null)
+            {
+                // Codes_SRS_AMQPSIOTHUBCONNECTION_44_001: [If the config has a client runtime, the reactor shall run on
+                // an I/O thread of the runtime instead of a new thread.]
+                executorService = clientRuntime.createExecutorService();
+            }
+            else
+            {
+                executorService = Executors.newFixedThreadPool(1);
+            }
         }
 
         IotHubReactor iotHubReactor = new IotHubReactor(reactor);
@@ -0,0 +1,107 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.https;
+
+/**
+ * Polling schedule for cloud to device messages over HTTPS.
+ *
+ * <p> Each poll fetches up to {@code maxMessagesPerPoll} messages. While messages are flowing the next poll is
+ * scheduled after the minimum interval, or right away if the poll was full and more messages are likely waiting.
+ * Every poll that finds no message doubles the interval, up to the maximum interval.
+ */
+public final class HttpsAdaptiveReceivePolicy
+{
+    private final long minPollingIntervalMillis;
+    private final long maxPollingIntervalMillis;
+    private final int maxMessagesPerPoll;
+
+    private long idlePollingIntervalMillis;
+    private long nextPollDelayMillis;
+
+    /**
+     * Constructor.
+     *
+     * @param minPollingIntervalMillis the interval between polls while messages are flowing. Must be positive.
+     * @param maxPollingIntervalMillis the longest interval between polls when no message arrives. Cannot be smaller
+     *                                 than {@code minPollingIntervalMillis}.
+     * @param maxMessagesPerPoll the maximum number of messages fetched on each poll. Must be positive.
+     * @throws IllegalArgumentException if any of the parameters is out of range.
+     */
+    public HttpsAdaptiveReceivePolicy(long minPollingIntervalMillis, long maxPollingIntervalMillis, int maxMessagesPerPoll) throws IllegalArgumentException
+    {
+        // Codes_SRS_HTTPSADAPTIVERECEIVEPOLICY_44_001: [If minPollingIntervalMillis is not positive, or maxPollingIntervalMillis is smaller than it, the constructor shall throw IllegalArgumentException.]
+        if (minPollingIntervalMillis <= 0 || maxPollingIntervalMillis < minPollingIntervalMillis)
+        {
+            throw new IllegalArgumentException("The polling intervals must be positive and the maximum cannot be smaller than the minimum");
+        }
+
+        // Codes_SRS_HTTPSADAPTIVERECEIVEPOLICY_44_002: [If maxMessagesPerPoll is not positive, the constructor shall throw IllegalArgumentException.]
+        if (maxMessagesPerPoll <= 0)
+        {
+            throw new IllegalArgumentException("The number of messages per poll must be positive");
+        }
+
+        this.minPollingIntervalMillis = minPollingIntervalMillis;
+        this.maxPollingIntervalMillis = maxPollingIntervalMillis;
+        this.maxMessagesPerPoll = maxMessagesPerPoll;
+        this.idlePollingIntervalMillis = minPollingIntervalMillis;
+        this.nextPollDelayMillis = minPollingIntervalMillis;
+    }
+
+    /**
+     * @return the maximum number of messages fetched on each poll.
+     */
+    public int getMaxMessagesPerPoll()
+    {
+        return this.maxMessagesPerPoll;
+    }
+
+    /**
+     * Updates the schedule with the outcome of a poll.
+     *
+     * @param receivedMessages the number of messages the poll fetched.
+     * @return the delay before the next poll, in milliseconds.
+     */
+    public synchronized long onPollCompleted(int receivedMessages)
+    {
+        if (receivedMessages >= this.maxMessagesPerPoll)
+        {
+            // Codes_SRS_HTTPSADAPTIVERECEIVEPOLICY_44_003: [If the poll fetched maxMessagesPerPoll messages, the next poll shall happen right away and the idle interval shall be reset to the minimum.]
+            this.idlePollingIntervalMillis = this.minPollingIntervalMillis;
+            this.nextPollDelayMillis = 0;
+        }
+        else if (receivedMessages > 0)
+        {
+            // Codes_SRS_HTTPSADAPTIVERECEIVEPOLICY_44_004: [If the poll fetched some messages, the next poll shall happen after the minimum interval and the idle interval shall be reset to the minimum.]
+            this.idlePollingIntervalMillis = this.minPollingIntervalMillis;
+            this.nextPollDelayMillis = this.minPollingIntervalMillis;
+        }
+        else
+        {
+            // Codes_SRS_HTTPSADAPTIVERECEIVEPOLICY_44_005: [If the poll fetched no message, the next poll shall happen after the idle interval, and the idle interval shall be doubled up to the maximum interval.]
+            this.nextPollDelayMillis = this.idlePollingIntervalMillis;
+            this.idlePollingIntervalMillis = (this.idlePollingIntervalMillis > this.maxPollingIntervalMillis / 2) ?
+                    this.maxPollingIntervalMillis : this.idlePollingIntervalMillis * 2;
+        }
+
+        return this.nextPollDelayMillis;
+    }
+
+    /**
+     * @return the delay before the next poll, in milliseconds, as computed by the last {@link #onPollCompleted(int)}.
+     */
+    public synchronized long getNextPollDelayMillis()
+    {
+        return this.nextPollDelayMillis;
+    }
+
+    /**
+     * Starts over from the minimum interval, for instance when the connection is opened again.
+     */
+    public synchronized void reset()
+    {
+        this.idlePollingIntervalMillis = this.minPollingIntervalMillis;
+        this.nextPollDelayMillis = this.minPollingIntervalMillis;
+    }
+}
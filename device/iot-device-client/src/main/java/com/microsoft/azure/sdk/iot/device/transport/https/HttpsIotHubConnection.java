@@ -15,7 +15,9 @@ import javax.net.ssl.SSLContext;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ScheduledExecutorService;
@@ -267,6 +269,58 @@ public class HttpsIotHubConnection implements IotHubTransportConnection
         }
     }
 
+    /**
+     * Receives up to {@code maxMessages} IotHubTransportMessages, stopping at the first poll that finds no message.
+     * The GET requests are sent back to back, so they reuse the same keep-alive connection.
+     *
+     * @param maxMessages the maximum number of messages to receive. Must be positive.
+     * @return the received messages, in the order they were received. May be empty.
+     *
+     * @throws TransportException if the IoT Hub could not be reached before any message was received.
+     */
+    public List<IotHubTransportMessage> receiveMessages(int maxMessages) throws TransportException
+    {
+        // Codes_SRS_HTTPSIOTHUBCONNECTION_44_001: [If maxMessages is not positive, the function shall throw an IllegalArgumentException.]
+        if (maxMessages <= 0)
+        {
+            throw new IllegalArgumentException("maxMessages must be positive");
+        }
+
+        List<IotHubTransportMessage> messages = new ArrayList<>();
+        synchronized (HTTPS_CONNECTION_LOCK)
+        {
+            while (messages.size() < maxMessages)
+            {
+                IotHubTransportMessage message;
+                try
+                {
+                    message = this.receiveMessage();
+                }
+                catch (TransportException e)
+                {
+                    if (messages.isEmpty())
+                    {
+                        // Codes_SRS_HTTPSIOTHUBCONNECTION_44_003: [If the IoT Hub could not be reached before any message was received, the function shall throw the TransportException.]
+                        throw e;
+                    }
+
+                    // Codes_SRS_HTTPSIOTHUBCONNECTION_44_004: [If the IoT Hub could not be reached after some messages were received, the function shall return the received messages.]
+                    break;
+                }
+
+                if (message == null)
+                {
+                    break;
+                }
+
+                // Codes_SRS_HTTPSIOTHUBCONNECTION_44_002: [The function shall call receiveMessage until it returns null or maxMessages messages are received, and return the received messages in order.]
+                messages.add(message);
+            }
+        }
+
+        return messages;
+    }
+
     /**
      * Removes double quotes from the e-tag property.
      *
@@ -316,7 +316,7 @@ public final class HttpsSingleMessage implements HttpsMessage
     private static boolean isValidHttpsAppProperty(String name, String value)
     {
         String lowercaseName = name.toLowerCase();
-        return (MessageProperty.isValidAppProperty(name.toLowerCase(), value)
+        return (MessageProperty.isValidAppProperty(lowercaseName, value)
                 && lowercaseName.startsWith(HTTPS_APP_PROPERTY_PREFIX));
     }
 
@@ -333,7 +333,7 @@ public final class HttpsSingleMessage implements HttpsMessage
     private static boolean isValidHttpsSystemProperty(String name, String value)
     {
         String lowercaseName = name.toLowerCase();
-        return (MessageProperty.isValidSystemProperty(name.toLowerCase(), value)
+        return (MessageProperty.isValidSystemProperty(lowercaseName, value)
                 && lowercaseName.startsWith(HTTPS_SYSTEM_PROPERTY_PREFIX)
                 && !lowercaseName.startsWith(HTTPS_APP_PROPERTY_PREFIX));
     }
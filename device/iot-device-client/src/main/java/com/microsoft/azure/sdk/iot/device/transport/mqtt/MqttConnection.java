@@ -14,6 +14,7 @@ import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
 
 public class MqttConnection
 {
@@ -44,6 +45,23 @@ public class MqttConnection
      * @throws TransportException when Mqtt async client cannot be instantiated
      */
     MqttConnection(String serverURI, String clientId, String userName, String password, SSLContext iotHubSSLContext) throws TransportException, IllegalArgumentException
+    {
+        this(serverURI, clientId, userName, password, iotHubSSLContext, null);
+    }
+
+    /**
+     * Constructor to create MqttAsync Client with Paho, running its network threads and keep alive pings on the
+     * provided executor
+     * @param serverURI Uri to connect to
+     * @param clientId Client Id to connect to
+     * @param userName Username
+     * @param password password
+     * @param iotHubSSLContext SSLContext for the connection
+     * @param executorService the executor of the paho threads, or {@code null} for paho to create its own threads
+     * @throws IllegalArgumentException is thrown if any of the parameters are null or empty
+     * @throws TransportException when Mqtt async client cannot be instantiated
+     */
+    MqttConnection(String serverURI, String clientId, String userName, String password, SSLContext iotHubSSLContext, ScheduledExecutorService executorService) throws TransportException, IllegalArgumentException
     {
         if (serverURI == null || clientId == null || userName == null || iotHubSSLContext == null)
         {
@@ -60,7 +78,17 @@ public class MqttConnection
         try
         {
             //Codes_SRS_MQTTCONNECTION_25_004: [The constructor shall create an MqttAsync client and update the connection options using the provided serverUri, clientId, userName, password and sslContext.]
-            this.mqttAsyncClient = new MqttAsyncClient(serverURI, clientId, new MemoryPersistence());
+            if (executorService != null)
+            {
+                //Codes_SRS_MQTTCONNECTION_44_001: [If an executor is provided, the constructor shall create the MqttAsync
+                // client with that executor for its network threads and its keep alive pings.]
+                this.mqttAsyncClient = new MqttAsyncClient(serverURI, clientId, new MemoryPersistence(), new ScheduledExecutorPingSender(executorService), executorService);
+            }
+            else
+            {
+                this.mqttAsyncClient = new MqttAsyncClient(serverURI, clientId, new MemoryPersistence());
+            }
+
             this.mqttAsyncClient.setManualAcks(true);
             this.connectionOptions = new MqttConnectOptions();
             this.updateConnectionOptions(userName, password, iotHubSSLContext);
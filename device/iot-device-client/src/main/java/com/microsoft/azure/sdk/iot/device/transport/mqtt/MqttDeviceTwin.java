@@ -10,16 +10,16 @@ import com.microsoft.azure.sdk.iot.device.MessageType;
 import com.microsoft.azure.sdk.iot.device.exceptions.IotHubServiceException;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
+import com.microsoft.azure.sdk.iot.device.transport.TwinRequestTable;
 import org.apache.commons.lang3.tuple.Pair;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.regex.Pattern;
 
 public class MqttDeviceTwin extends Mqtt
 {
     private String subscribeTopic;
-    private final Map<String, DeviceOperations> requestMap = new HashMap<>();
+    private final TwinRequestTable<DeviceOperations> requestMap = new TwinRequestTable<>();
     private boolean isStarted = false;
     private final CustomLogger logger = new CustomLogger(this.getClass());
 
@@ -195,7 +195,17 @@ public class MqttDeviceTwin extends Mqtt
         }
 
         String publishTopic = buildTopic(message);
-        requestMap.put(message.getRequestId(), message.getDeviceOperationType());
+        if (message.getRequestId() != null)
+        {
+            //Codes_SRS_MQTTDEVICETWIN_44_001: [If the twin request table is full, send method shall throw a retryable TransportException without sending the message.]
+            if (!requestMap.put(message.getRequestId(), message.getDeviceOperationType()))
+            {
+                TransportException transportException = new TransportException("Too many twin requests are waiting for their response");
+                transportException.setIotHubService(TransportException.IotHubService.TWIN);
+                transportException.setRetryable(true);
+                throw transportException;
+            }
+        }
 
         //Codes_SRS_MqttMessaging_25_024: [send method shall publish a message to the IOT Hub on the publish topic by calling method publish().]
         if (message.getDeviceOperationType() == DeviceOperations.DEVICE_OPERATION_TWIN_SUBSCRIBE_DESIRED_PROPERTIES_REQUEST)
@@ -330,9 +340,11 @@ public class MqttDeviceTwin extends Mqtt
                                 //Codes_SRS_MQTTDEVICETWIN_25_040: [If the topic is of type response topic then this method shall parse further to look for request id which if found is set by calling setRequestId]
                                 String requestId = getRequestId(topicTokens[REQID_TOKEN]);
                                 message.setRequestId(requestId);
-                                if (requestMap.containsKey(requestId))
+                                //Codes_SRS_MQTTDEVICETWIN_44_002: [If the request id matches a pending request, this method shall remove it from the twin request table; a response to a request that expired is treated as unknown.]
+                                DeviceOperations requestOperation = requestMap.remove(requestId);
+                                if (requestOperation != null)
                                 {
-                                    switch (requestMap.remove(requestId))
+                                    switch (requestOperation)
                                     {
                                         case DEVICE_OPERATION_TWIN_GET_REQUEST:
                                             message.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_TWIN_GET_RESPONSE);
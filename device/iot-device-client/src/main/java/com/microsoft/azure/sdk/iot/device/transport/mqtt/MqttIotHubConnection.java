@@ -152,6 +152,11 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
 
                 this.iotHubUserName = this.config.getIotHubHostname() + "/" + clientId + "/" + API_VERSION + "&" + clientUserAgentIdentifier;
 
+                //Codes_SRS_MQTTIOTHUBCONNECTION_44_001: [If the config has a client runtime, the function shall run the
+                // MQTT network threads on the shared threads of the runtime.]
+                ClientRuntime clientRuntime = this.config.getClientRuntime();
+                ScheduledExecutorService pahoExecutorService = clientRuntime == null ? null : clientRuntime.createExecutorService();
+
                 String host = this.config.getGatewayHostname();
                 if (host == null || host.isEmpty())
                 {
@@ -162,14 +167,14 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
                     //Codes_SRS_MQTTIOTHUBCONNECTION_25_018: [The function shall establish an MQTT WS connection with a server uri as wss://<hostName>/$iothub/websocket?iothub-no-client-cert=true if websocket was enabled.]
                     final String wsServerUri = WS_SSL_PREFIX + host + WEBSOCKET_RAW_PATH + WEBSOCKET_QUERY ;
                     mqttConnection = new MqttConnection(wsServerUri,
-                            clientId, this.iotHubUserName, this.iotHubUserPassword, sslContext);
+                            clientId, this.iotHubUserName, this.iotHubUserPassword, sslContext, pahoExecutorService);
                 }
                 else
                 {
                     //Codes_SRS_MQTTIOTHUBCONNECTION_25_019: [The function shall establish an MQTT connection with a server uri as ssl://<hostName>:8883 if websocket was not enabled.]
                     final String serverUri = SSL_PREFIX + host + SSL_PORT_SUFFIX;
                     mqttConnection = new MqttConnection(serverUri,
-                            clientId, this.iotHubUserName, this.iotHubUserPassword, sslContext);
+                            clientId, this.iotHubUserName, this.iotHubUserPassword, sslContext, pahoExecutorService);
                 }
 
                 //Codes_SRS_MQTTIOTHUBCONNECTION_34_030: [This function shall instantiate this object's MqttMessaging object with this object as the listener.]
@@ -0,0 +1,274 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.device;
+
+import com.microsoft.azure.sdk.iot.device.ClientRuntime;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ClientRuntime.java
+ */
+public class ClientRuntimeTest
+{
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private ClientRuntime clientRuntime;
+
+    @After
+    public void closeClientRuntime()
+    {
+        if (clientRuntime != null)
+        {
+            clientRuntime.close();
+        }
+    }
+
+    private static Runnable countDown(final CountDownLatch latch, final Queue<String> threadNames)
+    {
+        return new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                threadNames.add(Thread.currentThread().getName());
+                latch.countDown();
+            }
+        };
+    }
+
+    // Tests_SRS_CLIENTRUNTIME_44_001: [If the number of scheduler threads is not positive, the constructor shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForNoSchedulerThreads()
+    {
+        //act
+        new ClientRuntime(0);
+    }
+
+    // Tests_SRS_CLIENTRUNTIME_44_002: [The constructor shall create a pool of the provided number of daemon
+    // scheduler threads, and a pool of daemon I/O threads that are kept for a minute after their last task.]
+    // Tests_SRS_CLIENTRUNTIME_44_003: [This function shall return an executor that runs the delayed and periodic
+    // tasks on the shared scheduler threads and the other tasks on the shared I/O threads.]
+    @Test
+    public void executorRunsScheduledTasksOnTheSchedulerAndOtherTasksOnTheIoThreads() throws InterruptedException
+    {
+        //arrange
+        clientRuntime = new ClientRuntime(1);
+        ScheduledExecutorService executorService = clientRuntime.createExecutorService();
+        CountDownLatch tasksRan = new CountDownLatch(2);
+        Queue<String> scheduledThreadNames = new ConcurrentLinkedQueue<>();
+        Queue<String> ioThreadNames = new ConcurrentLinkedQueue<>();
+
+        //act
+        executorService.schedule(countDown(tasksRan, scheduledThreadNames), 10, TimeUnit.MILLISECONDS);
+        executorService.execute(countDown(tasksRan, ioThreadNames));
+
+        //assert
+        assertTrue(tasksRan.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals("azure-iot-sdk-ClientRuntimeScheduler", scheduledThreadNames.peek());
+        assertEquals("azure-iot-sdk-ClientRuntimeIO", ioThreadNames.peek());
+    }
+
+    // Tests_SRS_CLIENTRUNTIME_44_003: [This function shall return an executor that runs the delayed and periodic
+    // tasks on the shared scheduler threads and the other tasks on the shared I/O threads.]
+    @Test
+    public void periodicTasksOfManyClientsShareTheSchedulerThreads() throws InterruptedException
+    {
+        //arrange
+        clientRuntime = new ClientRuntime(2);
+        CountDownLatch tasksRan = new CountDownLatch(100 * 3);
+        Queue<String> threadNames = new ConcurrentLinkedQueue<>();
+        List<ScheduledExecutorService> executorServices = new ArrayList<>();
+
+        //act
+        for (int i = 0; i < 100; i++)
+        {
+            ScheduledExecutorService executorService = clientRuntime.createExecutorService();
+            executorService.scheduleAtFixedRate(countDown(tasksRan, threadNames), 0, 5, TimeUnit.MILLISECONDS);
+            executorServices.add(executorService);
+        }
+
+        //assert
+        assertTrue(tasksRan.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(2, clientRuntime.getThreadCount());
+        assertTrue(clientRuntime.getStartedTaskCount() >= 100 * 3);
+        for (ScheduledExecutorService executorService : executorServices)
+        {
+            executorService.shutdown();
+        }
+    }
+
+    // Tests_SRS_CLIENTRUNTIME_44_004: [Shutting down the executor of a client shall cancel its periodic tasks
+    // and reject its new tasks, and shall not stop the shared threads.]
+    @Test
+    public void shutdownCancelsThePeriodicTasksOfItsClientOnly() throws InterruptedException
+    {
+        //arrange
+        clientRuntime = new ClientRuntime(1);
+        ScheduledExecutorService shutdownExecutorService = clientRuntime.createExecutorService();
+        ScheduledExecutorService otherExecutorService = clientRuntime.createExecutorService();
+        ScheduledFuture<?> periodicTask = shutdownExecutorService.scheduleWithFixedDelay(countDown(new CountDownLatch(1), new ConcurrentLinkedQueue<String>()), 0, 5, TimeUnit.MILLISECONDS);
+        CountDownLatch otherTaskRan = new CountDownLatch(1);
+
+        //act
+        shutdownExecutorService.shutdown();
+
+        //assert
+        assertTrue(periodicTask.isCancelled());
+        assertTrue(shutdownExecutorService.isShutdown());
+        assertTrue(shutdownExecutorService.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        try
+        {
+            shutdownExecutorService.execute(countDown(new CountDownLatch(1), new ConcurrentLinkedQueue<String>()));
+            fail("A shut down executor must reject new tasks");
+        }
+        catch (RejectedExecutionException e)
+        {
+            // expected
+        }
+
+        otherExecutorService.schedule(countDown(otherTaskRan, new ConcurrentLinkedQueue<String>()), 0, TimeUnit.MILLISECONDS);
+        assertTrue(otherTaskRan.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertFalse(otherExecutorService.isShutdown());
+    }
+
+    // Tests_SRS_CLIENTRUNTIME_44_005: [Shutting down the executor of a client now shall also cancel its
+    // pending tasks and interrupt its running tasks.]
+    // Tests_SRS_CLIENTRUNTIME_44_006: [Awaiting the termination of the executor of a client shall wait until
+    // the tasks of that client are done.]
+    @Test
+    public void shutdownNowInterruptsTheRunningTasksOfItsClient() throws Exception
+    {
+        //arrange
+        clientRuntime = new ClientRuntime(1);
+        ScheduledExecutorService executorService = clientRuntime.createExecutorService();
+        final CountDownLatch taskStarted = new CountDownLatch(1);
+        final CountDownLatch taskInterrupted = new CountDownLatch(1);
+        executorService.submit(new Callable<Void>()
+        {
+            @Override
+            public Void call() throws Exception
+            {
+                taskStarted.countDown();
+                try
+                {
+                    new CountDownLatch(1).await();
+                }
+                catch (InterruptedException e)
+                {
+                    taskInterrupted.countDown();
+                }
+
+                return null;
+            }
+        });
+        ScheduledFuture<?> pendingTask = executorService.schedule(countDown(new CountDownLatch(1), new ConcurrentLinkedQueue<String>()), 1, TimeUnit.HOURS);
+        assertTrue(taskStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertFalse(executorService.awaitTermination(10, TimeUnit.MILLISECONDS));
+
+        //act
+        executorService.shutdownNow();
+
+        //assert
+        assertTrue(taskInterrupted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(pendingTask.isCancelled());
+        assertTrue(executorService.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(executorService.isTerminated());
+    }
+
+    // Tests_SRS_CLIENTRUNTIME_44_007: [Each task shall record the time between the moment it was due and
+    // the moment it started.]
+    // Tests_SRS_CLIENTRUNTIME_44_008: [This function shall return the average time between the moment a task was
+    // due and the moment it started, or 0 if no task started.]
+    @Test
+    public void statisticsMeasureTheQueueingDelayOfTheTasks() throws InterruptedException
+    {
+        //arrange
+        clientRuntime = new ClientRuntime(1);
+        assertEquals(0, clientRuntime.getAverageQueueingDelayMillis(), 0);
+        ScheduledExecutorService executorService = clientRuntime.createExecutorService();
+        final CountDownLatch blockingTaskStarted = new CountDownLatch(1);
+        final CountDownLatch releaseBlockingTask = new CountDownLatch(1);
+        CountDownLatch queuedTaskRan = new CountDownLatch(1);
+        executorService.schedule(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                blockingTaskStarted.countDown();
+                try
+                {
+                    releaseBlockingTask.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, 0, TimeUnit.MILLISECONDS);
+        assertTrue(blockingTaskStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        //act
+        executorService.schedule(countDown(queuedTaskRan, new ConcurrentLinkedQueue<String>()), 0, TimeUnit.MILLISECONDS);
+        Thread.sleep(200);
+        releaseBlockingTask.countDown();
+
+        //assert
+        assertTrue(queuedTaskRan.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(2, clientRuntime.getStartedTaskCount());
+        assertTrue(clientRuntime.getMaximumQueueingDelayMillis() >= 200);
+        assertTrue(clientRuntime.getAverageQueueingDelayMillis() >= 100);
+
+        clientRuntime.resetStatistics();
+        assertEquals(0, clientRuntime.getStartedTaskCount());
+        assertEquals(0, clientRuntime.getMaximumQueueingDelayMillis());
+    }
+
+    @Test
+    public void tasksDoNotKeepTheThreadNamesTheySet() throws InterruptedException
+    {
+        //arrange
+        clientRuntime = new ClientRuntime(1);
+        ScheduledExecutorService executorService = clientRuntime.createExecutorService();
+        CountDownLatch tasksRan = new CountDownLatch(1);
+        Queue<String> threadNames = new ConcurrentLinkedQueue<>();
+
+        //act
+        executorService.schedule(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                Thread.currentThread().setName("renamed by the task");
+            }
+        }, 0, TimeUnit.MILLISECONDS);
+        executorService.schedule(countDown(tasksRan, threadNames), 10, TimeUnit.MILLISECONDS);
+
+        //assert
+        assertTrue(tasksRan.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals("azure-iot-sdk-ClientRuntimeScheduler", threadNames.peek());
+    }
+
+    // Tests_SRS_CLIENTRUNTIME_44_009: [This function shall stop the scheduler and I/O threads.]
+    @Test (expected = RejectedExecutionException.class)
+    public void closeStopsTheSharedThreads()
+    {
+        //arrange
+        clientRuntime = new ClientRuntime(1);
+        ScheduledExecutorService executorService = clientRuntime.createExecutorService();
+
+        //act
+        clientRuntime.close();
+
+        //assert
+        executorService.schedule(countDown(new CountDownLatch(1), new ConcurrentLinkedQueue<String>()), 0, TimeUnit.MILLISECONDS);
+    }
+}
@@ -6,6 +6,7 @@ package tests.unit.com.microsoft.azure.sdk.iot.device;
 import com.microsoft.azure.sdk.iot.device.*;
 import com.microsoft.azure.sdk.iot.device.DeviceTwin.Pair;
 import com.microsoft.azure.sdk.iot.device.auth.*;
+import com.microsoft.azure.sdk.iot.device.fileupload.BlockBlobUploader;
 import com.microsoft.azure.sdk.iot.device.transport.ExponentialBackoffWithJitter;
 import com.microsoft.azure.sdk.iot.device.transport.RetryPolicy;
 import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProvider;
@@ -943,6 +944,79 @@ public class DeviceClientConfigTest
         assertEquals(expectedOperationTimeout, actual);
     }
 
+    //Tests_SRS_DEVICECLIENTCONFIG_44_001: [If the block size is not positive or larger than the maximum block size, or the parallelism is not positive, this function shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setFileUploadBlockOptionsThrowsForBlockSizeTooLarge()
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+
+        //act
+        config.setFileUploadBlockOptions(BlockBlobUploader.MAX_BLOCK_SIZE + 1, 1);
+    }
+
+    //Tests_SRS_DEVICECLIENTCONFIG_44_001: [If the block size is not positive or larger than the maximum block size, or the parallelism is not positive, this function shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setFileUploadBlockOptionsThrowsForZeroParallelism()
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+
+        //act
+        config.setFileUploadBlockOptions(1024, 0);
+    }
+
+    //Tests_SRS_DEVICECLIENTCONFIG_44_002: [This function shall save the provided block size and parallelism.]
+    //Tests_SRS_DEVICECLIENTCONFIG_44_003: [This function shall return the saved block size, or 4MB by default.]
+    //Tests_SRS_DEVICECLIENTCONFIG_44_004: [This function shall return the saved parallelism, or 4 by default.]
+    @Test
+    public void setFileUploadBlockOptionsSavesOptions()
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+        assertEquals(BlockBlobUploader.DEFAULT_BLOCK_SIZE, config.getFileUploadBlockSize());
+        assertEquals(BlockBlobUploader.DEFAULT_PARALLELISM, config.getFileUploadParallelism());
+
+        //act
+        config.setFileUploadBlockOptions(1024, 8);
+
+        //assert
+        assertEquals(1024, config.getFileUploadBlockSize());
+        assertEquals(8, config.getFileUploadParallelism());
+    }
+
+    //Tests_SRS_DEVICECLIENTCONFIG_44_005: [This function shall save the provided journal directory.]
+    //Tests_SRS_DEVICECLIENTCONFIG_44_006: [This function shall return the saved journal directory, or null by default.]
+    @Test
+    public void setFileUploadJournalDirectorySavesDirectory()
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+        assertNull(config.getFileUploadJournalDirectory());
+
+        //act
+        config.setFileUploadJournalDirectory("someJournalDirectory");
+
+        //assert
+        assertEquals("someJournalDirectory", config.getFileUploadJournalDirectory());
+    }
+
+    //Tests_SRS_DEVICECLIENTCONFIG_44_007: [This function shall save the provided client runtime.]
+    //Tests_SRS_DEVICECLIENTCONFIG_44_008: [This function shall return the saved client runtime, or null by default.]
+    @Test
+    public void setClientRuntimeSavesClientRuntime(@Mocked final ClientRuntime mockedClientRuntime)
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+        assertNull(config.getClientRuntime());
+
+        //act
+        config.setClientRuntime(mockedClientRuntime);
+
+        //assert
+        assertEquals(mockedClientRuntime, config.getClientRuntime());
+    }
+
     //Tests_SRS_DEVICECLIENTCONFIG_34_040: [This function shall return the saved product info.]
     @Test
     public void getProductInfoReturnsSavedProductInfo()
@@ -18,6 +18,8 @@ import java.io.IOError;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import static com.microsoft.azure.sdk.iot.device.transport.amqps.IoTHubConnectionType.SINGLE_CLIENT;
 import static com.microsoft.azure.sdk.iot.device.transport.amqps.IoTHubConnectionType.USE_TRANSPORTCLIENT;
@@ -146,6 +148,37 @@ public class DeviceClientTest
         };
     }
 
+    // Tests_SRS_DEVICECLIENT_44_005: [The constructor shall save the client runtime in the config, so that the client runs on the threads of the runtime.]
+    @Test
+    public void constructorWithClientRuntimeSavesTheRuntimeInTheConfig(@Mocked final ClientRuntime mockClientRuntime) throws URISyntaxException
+    {
+        // arrange
+        final String connString = "HostName=iothub.device.com;CredentialType=SharedAccessKey;CredentialScope=Device;deviceId=testdevice;SharedAccessKey=adjkl234j52=;";
+
+        // act
+        new DeviceClient(connString, IotHubClientProtocol.MQTT, mockClientRuntime);
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockConfig.setClientRuntime(mockClientRuntime);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_DEVICECLIENT_44_004: [If the client runtime is null, the function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorWithNullClientRuntimeThrows() throws URISyntaxException
+    {
+        // arrange
+        final String connString = "HostName=iothub.device.com;CredentialType=SharedAccessKey;CredentialScope=Device;deviceId=testdevice;SharedAccessKey=adjkl234j52=;";
+
+        // act
+        new DeviceClient(connString, IotHubClientProtocol.MQTT, null);
+    }
+
     // Tests_SRS_DEVICECLIENT_34_058: [The constructor shall interpret the connection string as a set of key-value pairs delimited by ';', using the object IotHubConnectionString.]
     // Tests_SRS_DEVICECLIENT_12_013: [The constructor shall set the connection type to SINGLE_CLIENT.]
     // Tests_SRS_DEVICECLIENT_12_014: [The constructor shall set the transportClient to null.]
@@ -1601,6 +1634,52 @@ public class DeviceClientTest
         Deencapsulation.invoke(client, "uploadToBlobAsync", destinationBlobName, mockInputStream, streamLength, mockedStatusCB, mockedPropertyCB);
     }
 
+    /* Tests_SRS_DEVICECLIENT_44_002: [If there is no instance of the FileUpload, the uploadToBlobAsync shall create a new instance of the FileUpload.] */
+    /* Tests_SRS_DEVICECLIENT_44_003: [The uploadToBlobAsync shall start the file upload process, by calling uploadToBlobAsync on the FileUpload class with the `file`.] */
+    @Test
+    public void startFileUploadFromPathSucceeds(@Mocked final FileUpload mockedFileUpload,
+                                                @Mocked final IotHubEventCallback mockedStatusCB,
+                                                @Mocked final PropertyCallBack mockedPropertyCB) throws IOException, URISyntaxException, TransportException
+    {
+        //arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.AMQPS;
+        final String destinationBlobName = "valid/blob/name.txt";
+        final Path file = Paths.get("recordings", "name.txt");
+
+        //assert
+        new Expectations()
+        {
+            {
+                Deencapsulation.newInstance(FileUpload.class, mockConfig);
+                result = mockedFileUpload;
+                times = 1;
+                mockedFileUpload.uploadToBlobAsync(destinationBlobName, file, mockedStatusCB, mockedPropertyCB);
+                times = 2;
+            }
+        };
+        DeviceClient client = Deencapsulation.newInstance(DeviceClient.class, new Class[] {String.class, IotHubClientProtocol.class}, "some conn string", protocol);
+        Deencapsulation.setField(client, "logger", new CustomLogger(this.getClass()));
+        Deencapsulation.setField(client, "config", mockConfig);
+        client.uploadToBlobAsync(destinationBlobName, file, mockedStatusCB, mockedPropertyCB);
+
+        // act
+        client.uploadToBlobAsync(destinationBlobName, file, mockedStatusCB, mockedPropertyCB);
+    }
+
+    /* Tests_SRS_DEVICECLIENT_44_001: [If the `callback` is null, the `file` is null, or the `destinationBlobName` is null, empty, or not valid, the uploadToBlobAsync shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void startFileUploadNullPathThrows(@Mocked final IotHubEventCallback mockedStatusCB,
+                                              @Mocked final PropertyCallBack mockedPropertyCB) throws IOException, URISyntaxException, TransportException
+    {
+        //arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.AMQPS;
+        DeviceClient client = Deencapsulation.newInstance(DeviceClient.class, new Class[] {String.class, IotHubClientProtocol.class}, "some conn string", protocol);
+        Deencapsulation.setField(client, "config", mockConfig);
+
+        // act
+        client.uploadToBlobAsync("valid/blob/name.txt", (Path) null, mockedStatusCB, mockedPropertyCB);
+    }
+
     /* Tests_SRS_INTERNALCLIENT_21_045: [If the `callback` is null, the uploadToBlobAsync shall throw IllegalArgumentException.] */
     @Test (expected = IllegalArgumentException.class)
     public void startFileUploadNullCallbackThrows(@Mocked final InputStream mockInputStream,
@@ -9,6 +9,7 @@ import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubReceiveTask;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubSendTask;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransport;
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsAdaptiveReceivePolicy;
 import mockit.*;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -96,6 +97,8 @@ public class DeviceIOTest
                 result = mockIotHubSendTask;
                 new IotHubReceiveTask(transport);
                 result = mockIotHubReceiveTask;
+                mockConfig.getClientRuntime();
+                result = null;
                 executors.newScheduledThreadPool(2);
                 result = scheduledExecutorService;
             }
@@ -348,6 +351,152 @@ public class DeviceIOTest
         };
     }
 
+    /* Tests_SRS_DEVICE_IO_44_001: [If the client is open, the setHttpsAdaptiveReceivePolicy shall throw IllegalStateException.] */
+    @Test (expected = IllegalStateException.class)
+    public void setHttpsAdaptiveReceivePolicyThrowsIfOpen() throws IOException
+    {
+        // arrange
+        final Object deviceIO = newDeviceIO();
+        Deencapsulation.setField(deviceIO, "protocol", IotHubClientProtocol.HTTPS);
+        openDeviceIO(deviceIO, mockedTransport, mockExecutors, mockScheduler);
+
+        // act
+        Deencapsulation.invoke(deviceIO, "setHttpsAdaptiveReceivePolicy", new HttpsAdaptiveReceivePolicy(10, 100, 5));
+    }
+
+    /* Tests_SRS_DEVICE_IO_44_002: [If the protocol is not HTTPS and the policy is not null, the setHttpsAdaptiveReceivePolicy shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void setHttpsAdaptiveReceivePolicyThrowsIfNotHttps()
+    {
+        // arrange
+        final Object deviceIO = newDeviceIO();
+        Deencapsulation.setField(deviceIO, "protocol", IotHubClientProtocol.MQTT);
+
+        // act
+        Deencapsulation.invoke(deviceIO, "setHttpsAdaptiveReceivePolicy", new HttpsAdaptiveReceivePolicy(10, 100, 5));
+    }
+
+    /* Tests_SRS_DEVICE_IO_44_003: [If an adaptive receive policy is set, the open shall run the receive task right away, then after each run schedule the next one with the delay computed by the policy.] */
+    @Test
+    public void openWithAdaptiveReceivePolicySchedulesTheReceiveTaskWithThePolicyDelay() throws IOException
+    {
+        // arrange
+        final HttpsAdaptiveReceivePolicy policy = new HttpsAdaptiveReceivePolicy(10, 100, 5);
+        final Object deviceIO = newDeviceIO();
+        Deencapsulation.setField(deviceIO, "protocol", IotHubClientProtocol.HTTPS);
+        Deencapsulation.invoke(deviceIO, "setHttpsAdaptiveReceivePolicy", policy);
+        new Verifications()
+        {
+            {
+                mockedTransport.setHttpsAdaptiveReceivePolicy(policy);
+            }
+        };
+        openDeviceIO(deviceIO, mockedTransport, mockExecutors, mockScheduler);
+        final List<Runnable> scheduled = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                mockScheduler.schedule(withCapture(scheduled), 0, TimeUnit.MILLISECONDS);
+                times = 1;
+                mockScheduler.scheduleAtFixedRate(mockIotHubReceiveTask, anyLong, anyLong, (TimeUnit) any);
+                times = 0;
+            }
+        };
+        policy.onPollCompleted(1);
+
+        // act
+        scheduled.get(0).run();
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockIotHubReceiveTask.run();
+                times = 1;
+                mockScheduler.schedule(scheduled.get(0), 10, TimeUnit.MILLISECONDS);
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_DEVICE_IO_44_005: [If the config has a client runtime, the open shall schedule the send and receive tasks on the shared threads of the runtime instead of creating its own scheduler.] */
+    @Test
+    public void openWithClientRuntimeSchedulesTheTasksOnTheRuntime(@Mocked final ClientRuntime mockClientRuntime) throws IOException
+    {
+        // arrange
+        final Object deviceIO = newDeviceIO();
+        new NonStrictExpectations()
+        {
+            {
+                new IotHubSendTask(mockedTransport);
+                result = mockIotHubSendTask;
+                new IotHubReceiveTask(mockedTransport);
+                result = mockIotHubReceiveTask;
+                mockConfig.getClientRuntime();
+                result = mockClientRuntime;
+                mockClientRuntime.createExecutorService();
+                result = mockScheduler;
+            }
+        };
+
+        // act
+        Deencapsulation.invoke(deviceIO, "open");
+
+        // assert
+        assertEquals(mockScheduler, Deencapsulation.getField(deviceIO, "taskScheduler"));
+        new Verifications()
+        {
+            {
+                Executors.newScheduledThreadPool(anyInt);
+                times = 0;
+                mockScheduler.scheduleAtFixedRate(mockIotHubSendTask, 0, SEND_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+                times = 1;
+                mockScheduler.scheduleAtFixedRate(mockIotHubReceiveTask, 0, RECEIVE_PERIOD_MILLIS_AMQPS, TimeUnit.MILLISECONDS);
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_DEVICE_IO_44_004: [After the client is closed, the adaptive receive task shall not be scheduled again.] */
+    @Test
+    public void adaptiveReceiveTaskIsNotScheduledAgainAfterClose() throws IOException
+    {
+        // arrange
+        final HttpsAdaptiveReceivePolicy policy = new HttpsAdaptiveReceivePolicy(10, 100, 5);
+        final Object deviceIO = newDeviceIO();
+        Deencapsulation.setField(deviceIO, "protocol", IotHubClientProtocol.HTTPS);
+        Deencapsulation.invoke(deviceIO, "setHttpsAdaptiveReceivePolicy", policy);
+        new NonStrictExpectations()
+        {
+            {
+                mockScheduler.isShutdown();
+                result = true;
+            }
+        };
+        openDeviceIO(deviceIO, mockedTransport, mockExecutors, mockScheduler);
+        final List<Runnable> scheduled = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                mockScheduler.schedule(withCapture(scheduled), 0, TimeUnit.MILLISECONDS);
+            }
+        };
+
+        // act
+        scheduled.get(0).run();
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockIotHubReceiveTask.run();
+                times = 1;
+                mockScheduler.schedule((Runnable) any, 10, TimeUnit.MILLISECONDS);
+                times = 0;
+            }
+        };
+    }
+
     /* Tests_SRS_DEVICE_IO_21_015: [If an error occurs in opening the transport, the open shall throw an IOException.] */
     @Test (expected = IOException.class)
     public void openThrowsIOExceptionIfTransportOpenThrows() throws DeviceClientException
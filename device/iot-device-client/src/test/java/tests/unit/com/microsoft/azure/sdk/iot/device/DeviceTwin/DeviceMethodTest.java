@@ -13,7 +13,15 @@ import mockit.NonStrictExpectations;
 import mockit.Verifications;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
 import static com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceOperations.DEVICE_OPERATION_METHOD_RECEIVE_REQUEST;
+import static com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceOperations.DEVICE_OPERATION_METHOD_SEND_RESPONSE;
 import static com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceOperations.DEVICE_OPERATION_METHOD_SUBSCRIBE_REQUEST;
 import static com.microsoft.azure.sdk.iot.device.MessageType.DEVICE_METHODS;
 import static org.junit.Assert.*;
@@ -146,7 +154,7 @@ public class DeviceMethodTest
         DeviceMethod testMethod = new DeviceMethod(mockedDeviceIO, mockedConfig, mockedStatusCB, null);
 
         //act
-        testMethod.subscribeToDeviceMethod(null, null);
+        testMethod.subscribeToDeviceMethod((DeviceMethodCallback) null, null);
 
     }
 
@@ -420,4 +428,213 @@ public class DeviceMethodTest
 
     }
 
+
+    private static IotHubTransportMessage methodRequest(String methodName, String requestId)
+    {
+        IotHubTransportMessage request = new IotHubTransportMessage(new byte[0], DEVICE_METHODS);
+        request.setDeviceOperationType(DEVICE_OPERATION_METHOD_RECEIVE_REQUEST);
+        request.setMethodName(methodName);
+        request.setRequestId(requestId);
+        return request;
+    }
+
+    private List<IotHubTransportMessage> sentMethodResponses()
+    {
+        final List<Message> sent = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                mockedDeviceIO.sendEventAsync(withCapture(sent), (IotHubEventCallback) any, any, anyString);
+                minTimes = 0;
+            }
+        };
+
+        List<IotHubTransportMessage> responses = new ArrayList<>();
+        for (Message message : sent)
+        {
+            if (((IotHubTransportMessage) message).getDeviceOperationType() == DEVICE_OPERATION_METHOD_SEND_RESPONSE)
+            {
+                responses.add((IotHubTransportMessage) message);
+            }
+        }
+        return responses;
+    }
+
+    private static final class ManualExecutor implements Executor
+    {
+        final Queue<Runnable> tasks = new LinkedList<>();
+
+        @Override
+        public void execute(Runnable command)
+        {
+            tasks.add(command);
+        }
+    }
+
+    /*
+    **Tests_SRS_DEVICEMETHOD_44_001: [**If an asynchronous callback or a method dispatcher is set, the invocation shall be handed to the dispatcher, or run in place without one, and the message shall be marked as complete; the response shall be sent whenever the invocation completes it.**]**
+    **Tests_SRS_DEVICEMETHOD_44_002: [**The response of a dispatched invocation shall be sent with the request id of the invoking message and the status provided by the user.**]**
+     */
+    @Test
+    public void asyncCallbackResponsesAreSentWhenCompleted() throws IllegalArgumentException
+    {
+        //arrange
+        final List<DeviceMethodResponse> slowResponses = new ArrayList<>();
+        DeviceMethod testMethod = new DeviceMethod(mockedDeviceIO, mockedConfig, mockedStatusCB, null);
+        testMethod.subscribeToDeviceMethod(new AsyncDeviceMethodCallback()
+        {
+            @Override
+            public void call(String methodName, Object methodData, DeviceMethodResponse response, Object context)
+            {
+                if (methodName.equals("slow"))
+                {
+                    slowResponses.add(response);
+                }
+                else
+                {
+                    response.complete(new DeviceMethodData(200, "fast"));
+                }
+            }
+        }, null);
+        MessageCallback testDeviceMethodResponseMessageCallback = Deencapsulation.newInnerInstance("deviceMethodResponseCallback", testMethod);
+
+        //act
+        IotHubMessageResult slowResult = testDeviceMethodResponseMessageCallback.execute(methodRequest("slow", "1"), null);
+        IotHubMessageResult fastResult = testDeviceMethodResponseMessageCallback.execute(methodRequest("fast", "2"), null);
+
+        //assert
+        assertEquals(IotHubMessageResult.COMPLETE, slowResult);
+        assertEquals(IotHubMessageResult.COMPLETE, fastResult);
+        List<IotHubTransportMessage> responses = sentMethodResponses();
+        assertEquals(1, responses.size());
+        assertEquals("2", responses.get(0).getRequestId());
+        assertEquals("200", responses.get(0).getStatus());
+
+        //act
+        assertTrue(slowResponses.get(0).complete(new DeviceMethodData(201, "slow")));
+        assertFalse(slowResponses.get(0).complete(new DeviceMethodData(500, "again")));
+
+        //assert
+        List<IotHubTransportMessage> allResponses = sentMethodResponses();
+        assertEquals(2, allResponses.size());
+        assertEquals("1", allResponses.get(1).getRequestId());
+        assertEquals("201", allResponses.get(1).getStatus());
+    }
+
+    /*
+    **Tests_SRS_DEVICEMETHOD_44_006: [**The method shall save the dispatcher to be used by the following invocations.**]**
+     */
+    @Test
+    public void dispatcherLimitsConcurrentInvocationsPerMethod() throws IllegalArgumentException
+    {
+        //arrange
+        ManualExecutor executor = new ManualExecutor();
+        DeviceMethodDispatcher dispatcher = new DeviceMethodDispatcher(executor, DeviceMethodDispatcher.UNLIMITED);
+        dispatcher.setConcurrencyLimit("update", 1);
+        DeviceMethod testMethod = new DeviceMethod(mockedDeviceIO, mockedConfig, mockedStatusCB, null);
+        testMethod.setMethodDispatcher(dispatcher);
+        testMethod.subscribeToDeviceMethod(new AsyncDeviceMethodCallback()
+        {
+            @Override
+            public void call(String methodName, Object methodData, DeviceMethodResponse response, Object context)
+            {
+                response.complete(new DeviceMethodData(200, methodName));
+            }
+        }, null);
+        MessageCallback testDeviceMethodResponseMessageCallback = Deencapsulation.newInnerInstance("deviceMethodResponseCallback", testMethod);
+
+        //act
+        assertEquals(IotHubMessageResult.COMPLETE, testDeviceMethodResponseMessageCallback.execute(methodRequest("update", "1"), null));
+        assertEquals(IotHubMessageResult.COMPLETE, testDeviceMethodResponseMessageCallback.execute(methodRequest("update", "2"), null));
+        assertEquals(IotHubMessageResult.COMPLETE, testDeviceMethodResponseMessageCallback.execute(methodRequest("status", "3"), null));
+
+        //assert - the second update waits for the first one
+        assertEquals(2, executor.tasks.size());
+        executor.tasks.poll().run();
+        assertEquals(2, executor.tasks.size());
+        executor.tasks.poll().run();
+        executor.tasks.poll().run();
+        assertTrue(executor.tasks.isEmpty());
+        assertEquals(3, sentMethodResponses().size());
+    }
+
+    /*
+    **Tests_SRS_DEVICEMETHOD_44_003: [**If a dispatched invocation fails or completes without response data, the user shall be notified on the status callback as ERROR.**]**
+     */
+    @Test
+    public void dispatchedCallbackFailureNotifiesStatusCallback() throws IllegalArgumentException
+    {
+        //arrange
+        ManualExecutor executor = new ManualExecutor();
+        DeviceMethod testMethod = new DeviceMethod(mockedDeviceIO, mockedConfig, mockedStatusCB, null);
+        testMethod.setMethodDispatcher(new DeviceMethodDispatcher(executor, 4));
+        testMethod.subscribeToDeviceMethod(mockedDeviceMethodCB, null);
+        MessageCallback testDeviceMethodResponseMessageCallback = Deencapsulation.newInnerInstance("deviceMethodResponseCallback", testMethod);
+        new NonStrictExpectations()
+        {
+            {
+                mockedDeviceMethodCB.call(anyString, any, any);
+                result = new IllegalStateException("method failed");
+            }
+        };
+
+        //act
+        IotHubMessageResult result = testDeviceMethodResponseMessageCallback.execute(methodRequest("update", "1"), null);
+        executor.tasks.poll().run();
+
+        //assert
+        assertEquals(IotHubMessageResult.COMPLETE, result);
+        new Verifications()
+        {
+            {
+                mockedStatusCB.execute(IotHubStatusCode.ERROR, any);
+                times = 1;
+            }
+        };
+        assertTrue(sentMethodResponses().isEmpty());
+    }
+
+    /*
+    **Tests_SRS_DEVICEMETHOD_44_004: [**If the dispatcher rejects the invocation, the user shall be notified on the status callback as ERROR and the message shall be marked as rejected.**]**
+     */
+    @Test
+    public void rejectedInvocationIsRejected() throws IllegalArgumentException
+    {
+        //arrange
+        DeviceMethod testMethod = new DeviceMethod(mockedDeviceIO, mockedConfig, mockedStatusCB, null);
+        testMethod.setMethodDispatcher(new DeviceMethodDispatcher(new Executor()
+        {
+            @Override
+            public void execute(Runnable command)
+            {
+                throw new RejectedExecutionException();
+            }
+        }, DeviceMethodDispatcher.UNLIMITED));
+        testMethod.subscribeToDeviceMethod(mockedDeviceMethodCB, null);
+        MessageCallback testDeviceMethodResponseMessageCallback = Deencapsulation.newInnerInstance("deviceMethodResponseCallback", testMethod);
+
+        //act
+        IotHubMessageResult result = testDeviceMethodResponseMessageCallback.execute(methodRequest("update", "1"), null);
+
+        //assert
+        assertEquals(IotHubMessageResult.REJECT, result);
+        new Verifications()
+        {
+            {
+                mockedStatusCB.execute(IotHubStatusCode.ERROR, any);
+                times = 1;
+            }
+        };
+    }
+
+    /*
+    **Tests_SRS_DEVICEMETHOD_44_005: [**If asyncDeviceMethodCallback parameter is null then this method shall throw IllegalArgumentException**]**
+     */
+    @Test (expected = IllegalArgumentException.class)
+    public void subscribeToAsyncMethodsThrowsOnNullCallback() throws IllegalArgumentException
+    {
+        DeviceMethod testMethod = new DeviceMethod(mockedDeviceIO, mockedConfig, mockedStatusCB, null);
+
+        testMethod.subscribeToDeviceMethod((AsyncDeviceMethodCallback) null, null);
+    }
 }
@@ -9,15 +9,16 @@ import com.microsoft.azure.sdk.iot.deps.twin.TwinState;
 import com.microsoft.azure.sdk.iot.device.*;
 import com.microsoft.azure.sdk.iot.device.DeviceTwin.*;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
+import com.microsoft.azure.sdk.iot.device.transport.TwinRequestTable;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import mockit.*;
 import org.junit.Test;
 
 import java.io.IOException;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.*;
 
@@ -143,7 +144,7 @@ public class DeviceTwinTest
                 times = 1;
                 mockedDeviceTwinMessage.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_TWIN_GET_REQUEST);
                 times = 1;
-                mockedDeviceIO.sendEventAsync(mockedDeviceTwinMessage, (IotHubEventCallback)any , null, null);
+                mockedDeviceIO.sendEventAsync(mockedDeviceTwinMessage, (IotHubEventCallback)any , any, null);
                 times = 1;
             }
         };
@@ -177,7 +178,7 @@ public class DeviceTwinTest
                 times = 1;
                 mockedDeviceTwinMessage.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_TWIN_GET_REQUEST);
                 times = 1;
-                mockedDeviceIO.sendEventAsync(mockedDeviceTwinMessage, (IotHubEventCallback)any , null, null);
+                mockedDeviceIO.sendEventAsync(mockedDeviceTwinMessage, (IotHubEventCallback)any , any, null);
                 times = 1;
             }
         };
@@ -211,7 +212,7 @@ public class DeviceTwinTest
                 times = 1;
                 mockedDeviceTwinMessage.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_TWIN_GET_REQUEST);
                 times = 1;
-                mockedDeviceIO.sendEventAsync(mockedDeviceTwinMessage, (IotHubEventCallback)any , null, null);
+                mockedDeviceIO.sendEventAsync(mockedDeviceTwinMessage, (IotHubEventCallback)any , any, null);
                 times = 1;
             }
         };
@@ -408,7 +409,7 @@ public class DeviceTwinTest
                 times = 1;
                 mockedDeviceTwinMessage.setVersion((String)any);
                 times = 0;
-                mockedDeviceIO.sendEventAsync(mockedDeviceTwinMessage, (IotHubEventCallback)any , null, anyString);
+                mockedDeviceIO.sendEventAsync(mockedDeviceTwinMessage, (IotHubEventCallback)any , any, anyString);
                 times = 1;
                 mockedDeviceTwinMessage.setConnectionDeviceId(expectedDeviceId);
                 times = 1;
@@ -488,7 +489,7 @@ public class DeviceTwinTest
                 times = 1;
                 mockedDeviceTwinMessage.setVersion("10");
                 times = 1;
-                mockedDeviceIO.sendEventAsync(mockedDeviceTwinMessage, (IotHubEventCallback)any , null, anyString);
+                mockedDeviceIO.sendEventAsync(mockedDeviceTwinMessage, (IotHubEventCallback)any , any, anyString);
                 times = 1;
             }
         };
@@ -537,7 +538,7 @@ public class DeviceTwinTest
                 times = 1;
                 mockedDeviceTwinMessage.setVersion((String)any);
                 times = 0;
-                mockedDeviceIO.sendEventAsync(mockedDeviceTwinMessage, (IotHubEventCallback)any , null, anyString);
+                mockedDeviceIO.sendEventAsync(mockedDeviceTwinMessage, (IotHubEventCallback)any , any, anyString);
                 times = 1;
             }
         };
@@ -1363,4 +1364,628 @@ public class DeviceTwinTest
 
         // assert
     }
+
+    private static Set<Property> reportedProperties(Property... properties)
+    {
+        return new HashSet<>(Arrays.asList(properties));
+    }
+
+    /*
+     **Tests_SRS_DEVICETWIN_44_005: [**The method shall throw IllegalArgumentException if the flush interval or the maximum number of pending properties is not positive.**]**
+     */
+    @Test (expected = IllegalArgumentException.class)
+    public void enableReportedPropertiesCoalescingThrowsOnInvalidInterval()
+    {
+        DeviceTwin testTwin = new DeviceTwin(mockedDeviceIO, mockedConfig,
+                mockedStatusCB, null, mockedGenericPropertyCB, null);
+
+        testTwin.enableReportedPropertiesCoalescing(0, 10);
+    }
+
+    /*
+     **Tests_SRS_DEVICETWIN_44_003: [**If coalescing is enabled and the version is null, the method shall merge the properties with the pending ones instead of sending them.**]**
+     **Tests_SRS_DEVICETWIN_44_008: [**The method shall send the pending properties, if any, as a single PATCH.**]**
+     */
+    @Test
+    public void coalescedUpdatesAreSentAsSinglePatchOnFlush() throws IOException
+    {
+        // arrange
+        DeviceTwin testTwin = new DeviceTwin(mockedDeviceIO, mockedConfig,
+                mockedStatusCB, null, mockedGenericPropertyCB, null);
+        testTwin.enableReportedPropertiesCoalescing(60000, 100);
+        testTwin.updateReportedProperties(reportedProperties(new Property("prop1", 1)));
+        testTwin.updateReportedProperties(reportedProperties(new Property("prop1", 2), new Property("prop2", "value2")));
+
+        new Verifications()
+        {
+            {
+                mockedDeviceIO.sendEventAsync((Message) any, (IotHubEventCallback) any, any, anyString);
+                times = 0;
+            }
+        };
+
+        // act
+        testTwin.flushReportedProperties();
+
+        // assert
+        final List<Message> sentMessages = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                mockedDeviceIO.sendEventAsync(withCapture(sentMessages), (IotHubEventCallback) any, any, anyString);
+                times = 1;
+            }
+        };
+        JsonObject sentProperties = new JsonParser().parse(new String(sentMessages.get(0).getBytes())).getAsJsonObject();
+        assertEquals(2, sentProperties.entrySet().size());
+        assertEquals(2, sentProperties.get("prop1").getAsInt());
+        assertEquals("value2", sentProperties.get("prop2").getAsString());
+        testTwin.disableReportedPropertiesCoalescing();
+    }
+
+    /*
+     **Tests_SRS_DEVICETWIN_44_003: [**If coalescing is enabled and the version is null, the method shall merge the properties with the pending ones instead of sending them.**]**
+     */
+    @Test
+    public void coalescedUpdatesAreSentWhenMaxPendingPropertiesIsReached() throws IOException
+    {
+        // arrange
+        DeviceTwin testTwin = new DeviceTwin(mockedDeviceIO, mockedConfig,
+                mockedStatusCB, null, mockedGenericPropertyCB, null);
+        testTwin.enableReportedPropertiesCoalescing(60000, 2);
+
+        // act
+        testTwin.updateReportedProperties(reportedProperties(new Property("prop1", 1)));
+        testTwin.updateReportedProperties(reportedProperties(new Property("prop2", 2)));
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockedDeviceIO.sendEventAsync((Message) any, (IotHubEventCallback) any, any, anyString);
+                times = 1;
+            }
+        };
+        testTwin.disableReportedPropertiesCoalescing();
+    }
+
+    /*
+     **Tests_SRS_DEVICETWIN_44_003: [**If coalescing is enabled and the version is null, the method shall merge the properties with the pending ones instead of sending them.**]**
+     */
+    @Test
+    public void coalescedUpdatesAreSentWhenFlushIntervalElapses() throws Exception
+    {
+        // arrange
+        DeviceTwin testTwin = new DeviceTwin(mockedDeviceIO, mockedConfig,
+                mockedStatusCB, null, mockedGenericPropertyCB, null);
+        testTwin.enableReportedPropertiesCoalescing(10, 100);
+
+        // act
+        testTwin.updateReportedProperties(reportedProperties(new Property("prop1", 1)));
+        Thread.sleep(500);
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockedDeviceIO.sendEventAsync((Message) any, (IotHubEventCallback) any, any, anyString);
+                times = 1;
+            }
+        };
+        testTwin.disableReportedPropertiesCoalescing();
+    }
+
+    /*
+     **Tests_SRS_DEVICETWIN_44_004: [**If coalescing is enabled and the version is not null, the method shall flush the pending properties before sending the versioned update.**]**
+     */
+    @Test
+    public void versionedUpdateFlushesPendingPropertiesFirst() throws IOException
+    {
+        // arrange
+        DeviceTwin testTwin = new DeviceTwin(mockedDeviceIO, mockedConfig,
+                mockedStatusCB, null, mockedGenericPropertyCB, null);
+        testTwin.enableReportedPropertiesCoalescing(60000, 100);
+        testTwin.updateReportedProperties(reportedProperties(new Property("prop1", 1)));
+
+        // act
+        testTwin.updateReportedProperties(reportedProperties(new Property("prop2", 2)), 5);
+
+        // assert
+        final List<Message> sentMessages = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                mockedDeviceIO.sendEventAsync(withCapture(sentMessages), (IotHubEventCallback) any, any, anyString);
+                times = 2;
+            }
+        };
+        assertNull(((IotHubTransportMessage) sentMessages.get(0)).getVersion());
+        assertEquals("5", ((IotHubTransportMessage) sentMessages.get(1)).getVersion());
+        testTwin.disableReportedPropertiesCoalescing();
+    }
+
+    /*
+     **Tests_SRS_DEVICETWIN_44_007: [**The method shall flush the pending properties and stop coalescing the following updates.**]**
+     */
+    @Test
+    public void disableReportedPropertiesCoalescingFlushesPendingProperties() throws IOException
+    {
+        // arrange
+        DeviceTwin testTwin = new DeviceTwin(mockedDeviceIO, mockedConfig,
+                mockedStatusCB, null, mockedGenericPropertyCB, null);
+        testTwin.enableReportedPropertiesCoalescing(60000, 100);
+        testTwin.updateReportedProperties(reportedProperties(new Property("prop1", 1)));
+
+        // act
+        testTwin.disableReportedPropertiesCoalescing();
+        testTwin.updateReportedProperties(reportedProperties(new Property("prop2", 2)));
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockedDeviceIO.sendEventAsync((Message) any, (IotHubEventCallback) any, any, anyString);
+                times = 2;
+            }
+        };
+    }
+
+    /*
+     **Tests_SRS_DEVICETWIN_44_001: [**If the response matches a reported properties request sent with per caller callbacks, each of them shall be called with the response status.**]**
+     */
+    @Test
+    public void coalescedCallbacksAreCalledWithTheResponseStatus() throws IOException
+    {
+        // arrange
+        DeviceTwin testTwin = new DeviceTwin(mockedDeviceIO, mockedConfig,
+                mockedStatusCB, null, mockedGenericPropertyCB, null);
+        MessageCallback deviceTwinResponseMessageCallback = Deencapsulation.newInnerInstance("deviceTwinResponseMessageCallback", testTwin);
+        testTwin.enableReportedPropertiesCoalescing(60000, 100);
+        testTwin.updateReportedProperties(reportedProperties(new Property("prop1", 1)), null, mockedStatusCB, "context1");
+        testTwin.updateReportedProperties(reportedProperties(new Property("prop2", 2)), null, mockedStatusCB, "context2");
+        testTwin.flushReportedProperties();
+
+        final List<Message> sentMessages = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                mockedDeviceIO.sendEventAsync(withCapture(sentMessages), (IotHubEventCallback) any, any, anyString);
+            }
+        };
+        final IotHubTransportMessage testMessage = new IotHubTransportMessage(new byte[0], MessageType.DEVICE_TWIN);
+        testMessage.setStatus(String.valueOf(204));
+        testMessage.setRequestId(((IotHubTransportMessage) sentMessages.get(0)).getRequestId());
+        testMessage.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_TWIN_UPDATE_REPORTED_PROPERTIES_RESPONSE);
+
+        // act
+        deviceTwinResponseMessageCallback.execute(testMessage, null);
+        deviceTwinResponseMessageCallback.execute(testMessage, null);
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockedStatusCB.execute(IotHubStatusCode.OK_EMPTY, "context1");
+                times = 1;
+                mockedStatusCB.execute(IotHubStatusCode.OK_EMPTY, "context2");
+                times = 1;
+            }
+        };
+        testTwin.disableReportedPropertiesCoalescing();
+    }
+
+    /*
+     **Tests_SRS_DEVICETWIN_44_002: [**If a reported properties request sent with per caller callbacks could not be delivered, each of them shall be called with the delivery status.**]**
+     */
+    @Test
+    public void reportedPropertiesCallbackIsCalledWhenTheRequestIsNotDelivered() throws IOException
+    {
+        // arrange
+        DeviceTwin testTwin = new DeviceTwin(mockedDeviceIO, mockedConfig,
+                mockedStatusCB, null, mockedGenericPropertyCB, null);
+        testTwin.updateReportedProperties(reportedProperties(new Property("prop1", 1)), null, mockedStatusCB, "context1");
+
+        final List<IotHubEventCallback> requestCallbacks = new ArrayList<>();
+        final List<Object> requestContexts = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                mockedDeviceIO.sendEventAsync((Message) any, withCapture(requestCallbacks), withCapture(requestContexts), anyString);
+                times = 1;
+            }
+        };
+
+        // act
+        requestCallbacks.get(0).execute(IotHubStatusCode.ERROR, requestContexts.get(0));
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockedStatusCB.execute(IotHubStatusCode.ERROR, "context1");
+                times = 1;
+            }
+        };
+    }
+
+    private static void deliverTwinMessage(MessageCallback deviceTwinResponseMessageCallback, DeviceOperations operation, String json)
+    {
+        final IotHubTransportMessage testMessage = new IotHubTransportMessage(json.getBytes(), MessageType.DEVICE_TWIN);
+        testMessage.setStatus(String.valueOf(200));
+        testMessage.setDeviceOperationType(operation);
+        deviceTwinResponseMessageCallback.execute(testMessage, null);
+    }
+
+    private static final String FULL_TWIN_V3 =
+            "{\"desired\":{\"prop1\":1,\"nested\":{\"x\":1},\"$version\":3},\"reported\":{\"reported1\":\"value\",\"$version\":2}}";
+
+    /*
+     **Tests_SRS_DEVICETWIN_44_011: [**The method shall return the latest snapshot of the local twin without locking, or null if no full twin was received yet.**]**
+     */
+    @Test
+    public void getTwinSnapshotReturnsNullBeforeFullTwin()
+    {
+        DeviceTwin testTwin = new DeviceTwin(mockedDeviceIO, mockedConfig,
+                mockedStatusCB, null, mockedGenericPropertyCB, null);
+        MessageCallback deviceTwinResponseMessageCallback = Deencapsulation.newInnerInstance("deviceTwinResponseMessageCallback", testTwin);
+
+        // a patch without a full twin to apply it to is only dispatched
+        deliverTwinMessage(deviceTwinResponseMessageCallback, DeviceOperations.DEVICE_OPERATION_TWIN_SUBSCRIBE_DESIRED_PROPERTIES_RESPONSE,
+                "{\"prop1\":2,\"$version\":4}");
+
+        assertNull(testTwin.getTwinSnapshot());
+    }
+
+    /*
+     **Tests_SRS_DEVICETWIN_44_009: [**If the message is of type DEVICE_TWIN and DEVICE_OPERATION_TWIN_GET_RESPONSE and the status is ok, the local twin shall be replaced by the received twin, then the buffered desired properties patches that follow it shall be applied.**]**
+     */
+    @Test
+    public void fullTwinResponseCreatesSnapshot()
+    {
+        // arrange
+        DeviceTwin testTwin = new DeviceTwin(mockedDeviceIO, mockedConfig,
+                mockedStatusCB, null, mockedGenericPropertyCB, null);
+        MessageCallback deviceTwinResponseMessageCallback = Deencapsulation.newInnerInstance("deviceTwinResponseMessageCallback", testTwin);
+
+        // act
+        deliverTwinMessage(deviceTwinResponseMessageCallback, DeviceOperations.DEVICE_OPERATION_TWIN_GET_RESPONSE, FULL_TWIN_V3);
+
+        // assert
+        TwinSnapshot snapshot = testTwin.getTwinSnapshot();
+        assertEquals(3, (int) snapshot.getDesiredPropertiesVersion());
+        assertEquals(2, (int) snapshot.getReportedPropertiesVersion());
+        assertEquals(2, snapshot.getDesiredProperties().size());
+        assertEquals(1, ((Number) snapshot.getDesiredProperties().get("prop1")).intValue());
+        assertEquals("value", snapshot.getReportedProperties().get("reported1"));
+    }
+
+    /*
+     **Tests_SRS_DEVICETWIN_44_010: [**If the desired properties patch follows the version of the local twin, it shall be applied to the local twin; if it reveals a version gap, it shall be buffered and the full twin shall be requested, unless it already was.**]**
+     */
+    @Test
+    public void contiguousDesiredPatchIsAppliedToSnapshot()
+    {
+        // arrange
+        DeviceTwin testTwin = new DeviceTwin(mockedDeviceIO, mockedConfig,
+                mockedStatusCB, null, mockedGenericPropertyCB, null);
+        MessageCallback deviceTwinResponseMessageCallback = Deencapsulation.newInnerInstance("deviceTwinResponseMessageCallback", testTwin);
+        deliverTwinMessage(deviceTwinResponseMessageCallback, DeviceOperations.DEVICE_OPERATION_TWIN_GET_RESPONSE, FULL_TWIN_V3);
+        TwinSnapshot previousSnapshot = testTwin.getTwinSnapshot();
+
+        // act
+        deliverTwinMessage(deviceTwinResponseMessageCallback, DeviceOperations.DEVICE_OPERATION_TWIN_SUBSCRIBE_DESIRED_PROPERTIES_RESPONSE,
+                "{\"prop1\":null,\"prop2\":5,\"nested\":{\"y\":2},\"$version\":4}");
+        deliverTwinMessage(deviceTwinResponseMessageCallback, DeviceOperations.DEVICE_OPERATION_TWIN_SUBSCRIBE_DESIRED_PROPERTIES_RESPONSE,
+                "{\"prop2\":6,\"$version\":4}");
+
+        // assert
+        TwinSnapshot snapshot = testTwin.getTwinSnapshot();
+        assertEquals(4, (int) snapshot.getDesiredPropertiesVersion());
+        assertFalse(snapshot.getDesiredProperties().containsKey("prop1"));
+        assertEquals(5, ((Number) snapshot.getDesiredProperties().get("prop2")).intValue());
+        Map<?, ?> nested = (Map<?, ?>) snapshot.getDesiredProperties().get("nested");
+        assertEquals(2, nested.size());
+        assertEquals(1, ((Number) previousSnapshot.getDesiredProperties().get("prop1")).intValue());
+        new Verifications()
+        {
+            {
+                mockedDeviceIO.sendEventAsync((Message) any, (IotHubEventCallback) any, any, anyString);
+                times = 0;
+            }
+        };
+    }
+
+    /*
+     **Tests_SRS_DEVICETWIN_44_010: [**If the desired properties patch follows the version of the local twin, it shall be applied to the local twin; if it reveals a version gap, it shall be buffered and the full twin shall be requested, unless it already was.**]**
+     **Tests_SRS_DEVICETWIN_44_009: [**If the message is of type DEVICE_TWIN and DEVICE_OPERATION_TWIN_GET_RESPONSE and the status is ok, the local twin shall be replaced by the received twin, then the buffered desired properties patches that follow it shall be applied.**]**
+     */
+    @Test
+    public void desiredPatchVersionGapRequestsFullTwinOnce()
+    {
+        // arrange
+        DeviceTwin testTwin = new DeviceTwin(mockedDeviceIO, mockedConfig,
+                mockedStatusCB, null, mockedGenericPropertyCB, null);
+        MessageCallback deviceTwinResponseMessageCallback = Deencapsulation.newInnerInstance("deviceTwinResponseMessageCallback", testTwin);
+        deliverTwinMessage(deviceTwinResponseMessageCallback, DeviceOperations.DEVICE_OPERATION_TWIN_GET_RESPONSE, FULL_TWIN_V3);
+
+        // act
+        deliverTwinMessage(deviceTwinResponseMessageCallback, DeviceOperations.DEVICE_OPERATION_TWIN_SUBSCRIBE_DESIRED_PROPERTIES_RESPONSE,
+                "{\"prop2\":5,\"$version\":5}");
+        deliverTwinMessage(deviceTwinResponseMessageCallback, DeviceOperations.DEVICE_OPERATION_TWIN_SUBSCRIBE_DESIRED_PROPERTIES_RESPONSE,
+                "{\"prop3\":6,\"$version\":6}");
+
+        // assert
+        assertEquals(3, (int) testTwin.getTwinSnapshot().getDesiredPropertiesVersion());
+        final List<Message> sentMessages = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                mockedDeviceIO.sendEventAsync(withCapture(sentMessages), (IotHubEventCallback) any, any, anyString);
+                times = 1;
+            }
+        };
+        assertEquals(DeviceOperations.DEVICE_OPERATION_TWIN_GET_REQUEST, ((IotHubTransportMessage) sentMessages.get(0)).getDeviceOperationType());
+
+        // act - the full twin includes the missing patch
+        deliverTwinMessage(deviceTwinResponseMessageCallback, DeviceOperations.DEVICE_OPERATION_TWIN_GET_RESPONSE,
+                "{\"desired\":{\"prop1\":4,\"$version\":4},\"reported\":{\"$version\":2}}");
+
+        // assert - the buffered patches were applied on top of it
+        TwinSnapshot snapshot = testTwin.getTwinSnapshot();
+        assertEquals(6, (int) snapshot.getDesiredPropertiesVersion());
+        assertEquals(4, ((Number) snapshot.getDesiredProperties().get("prop1")).intValue());
+        assertEquals(5, ((Number) snapshot.getDesiredProperties().get("prop2")).intValue());
+        assertEquals(6, ((Number) snapshot.getDesiredProperties().get("prop3")).intValue());
+    }
+
+    private static final class RecordingPathCallback implements DesiredPropertyPathCallback
+    {
+        final List<String> paths = new ArrayList<>();
+        final List<Object> values = new ArrayList<>();
+        final List<Integer> versions = new ArrayList<>();
+        Object lock;
+        boolean calledUnderLock;
+
+        @Override
+        public void onDesiredPropertyPathChanged(String path, Object value, Integer version, Object context)
+        {
+            paths.add(path);
+            values.add(value);
+            versions.add(version);
+            calledUnderLock |= lock != null && Thread.holdsLock(lock);
+        }
+    }
+
+    /*
+     **Tests_SRS_DEVICETWIN_44_014: [**The method shall throw IllegalArgumentException if the path is null, empty or has an empty or invalid segment, or if the callback is null.**]**
+     */
+    @Test (expected = IllegalArgumentException.class)
+    public void subscribeDesiredPropertyPathThrowsOnEmptySegment()
+    {
+        DeviceTwin testTwin = new DeviceTwin(mockedDeviceIO, mockedConfig,
+                mockedStatusCB, null, mockedGenericPropertyCB, null);
+
+        testTwin.subscribeDesiredPropertyPath("config..rate", new RecordingPathCallback(), null);
+    }
+
+    /*
+     **Tests_SRS_DEVICETWIN_44_015: [**The method shall add the callback to the path index, replacing the context if the callback was already subscribed to the path, and subscribe to the desired properties notifications if not already subscribed.**]**
+     **Tests_SRS_DEVICETWIN_44_013: [**OnDesiredPropertyChange callback shall call the callbacks subscribed to the paths present in the desiredPropertyMap, or below a property it replaced or deleted.**]**
+     **Tests_SRS_DEVICETWIN_44_012: [**The property callbacks shall be called after the device twin lock is released.**]**
+     */
+    @Test
+    public void desiredPatchIsDispatchedOnlyToMatchingPaths()
+    {
+        // arrange
+        DeviceTwin testTwin = new DeviceTwin(mockedDeviceIO, mockedConfig,
+                mockedStatusCB, null, mockedGenericPropertyCB, null);
+        MessageCallback deviceTwinResponseMessageCallback = Deencapsulation.newInnerInstance("deviceTwinResponseMessageCallback", testTwin);
+        RecordingPathCallback rateCallback = new RecordingPathCallback();
+        rateCallback.lock = Deencapsulation.getField(testTwin, "DEVICE_TWIN_LOCK");
+        RecordingPathCallback otherCallback = new RecordingPathCallback();
+        testTwin.subscribeDesiredPropertyPath("config.sampling.rate", rateCallback, null);
+        testTwin.subscribeDesiredPropertyPath("config.other", otherCallback, null);
+
+        // act
+        deliverTwinMessage(deviceTwinResponseMessageCallback, DeviceOperations.DEVICE_OPERATION_TWIN_SUBSCRIBE_DESIRED_PROPERTIES_RESPONSE,
+                "{\"config\":{\"sampling\":{\"rate\":5}},\"$version\":2}");
+
+        // assert
+        assertEquals(1, rateCallback.paths.size());
+        assertEquals("config.sampling.rate", rateCallback.paths.get(0));
+        assertEquals(5, ((Number) rateCallback.values.get(0)).intValue());
+        assertEquals(2, (int) rateCallback.versions.get(0));
+        assertFalse(rateCallback.calledUnderLock);
+        assertTrue(otherCallback.paths.isEmpty());
+        new Verifications()
+        {
+            {
+                mockedGenericPropertyCB.PropertyCall(anyString, any, any);
+                times = 0;
+            }
+        };
+    }
+
+    /*
+     **Tests_SRS_DEVICETWIN_44_013: [**OnDesiredPropertyChange callback shall call the callbacks subscribed to the paths present in the desiredPropertyMap, or below a property it replaced or deleted.**]**
+     */
+    @Test
+    public void deletedAncestorIsDispatchedAsNullToPathsBelowIt()
+    {
+        // arrange
+        DeviceTwin testTwin = new DeviceTwin(mockedDeviceIO, mockedConfig,
+                mockedStatusCB, null, mockedGenericPropertyCB, null);
+        MessageCallback deviceTwinResponseMessageCallback = Deencapsulation.newInnerInstance("deviceTwinResponseMessageCallback", testTwin);
+        RecordingPathCallback rateCallback = new RecordingPathCallback();
+        RecordingPathCallback configCallback = new RecordingPathCallback();
+        testTwin.subscribeDesiredPropertyPath("config.sampling.rate", rateCallback, null);
+        testTwin.subscribeDesiredPropertyPath("config", configCallback, null);
+
+        // act
+        deliverTwinMessage(deviceTwinResponseMessageCallback, DeviceOperations.DEVICE_OPERATION_TWIN_SUBSCRIBE_DESIRED_PROPERTIES_RESPONSE,
+                "{\"config\":null,\"$version\":3}");
+
+        // assert
+        assertEquals(1, configCallback.paths.size());
+        assertNull(configCallback.values.get(0));
+        assertEquals(1, rateCallback.paths.size());
+        assertNull(rateCallback.values.get(0));
+    }
+
+    /*
+     **Tests_SRS_DEVICETWIN_44_016: [**The method shall remove the callback from the path index and return true if it was subscribed to the path.**]**
+     */
+    @Test
+    public void unsubscribedPathFallsBackToGenericCallback()
+    {
+        // arrange
+        DeviceTwin testTwin = new DeviceTwin(mockedDeviceIO, mockedConfig,
+                mockedStatusCB, null, mockedGenericPropertyCB, null);
+        MessageCallback deviceTwinResponseMessageCallback = Deencapsulation.newInnerInstance("deviceTwinResponseMessageCallback", testTwin);
+        RecordingPathCallback rateCallback = new RecordingPathCallback();
+        testTwin.subscribeDesiredPropertyPath("config.sampling.rate", rateCallback, null);
+
+        // act
+        assertTrue(testTwin.unsubscribeDesiredPropertyPath("config.sampling.rate", rateCallback));
+        assertFalse(testTwin.unsubscribeDesiredPropertyPath("config.sampling.rate", rateCallback));
+        deliverTwinMessage(deviceTwinResponseMessageCallback, DeviceOperations.DEVICE_OPERATION_TWIN_SUBSCRIBE_DESIRED_PROPERTIES_RESPONSE,
+                "{\"config\":{\"sampling\":{\"rate\":5}},\"$version\":2}");
+
+        // assert
+        assertTrue(rateCallback.paths.isEmpty());
+        new Verifications()
+        {
+            {
+                mockedGenericPropertyCB.PropertyCall("config", any, any);
+                times = 1;
+            }
+        };
+    }
+
+    private static void deliverTwinResponse(MessageCallback deviceTwinResponseMessageCallback, DeviceOperations operation,
+                                            String requestId, int status, String json)
+    {
+        final IotHubTransportMessage testMessage = new IotHubTransportMessage(json.getBytes(), MessageType.DEVICE_TWIN);
+        testMessage.setStatus(String.valueOf(status));
+        testMessage.setRequestId(requestId);
+        testMessage.setDeviceOperationType(operation);
+        deviceTwinResponseMessageCallback.execute(testMessage, null);
+    }
+
+    /*
+     **Tests_SRS_DEVICETWIN_44_017: [**If the response matches a pending twin request, the request shall be completed with the response status.**]**
+     */
+    @Test
+    public void getDeviceTwinFutureCompletesWithTheResponseStatus() throws Exception
+    {
+        // arrange
+        DeviceTwin testTwin = new DeviceTwin(mockedDeviceIO, mockedConfig,
+                mockedStatusCB, null, mockedGenericPropertyCB, null);
+        MessageCallback deviceTwinResponseMessageCallback = Deencapsulation.newInnerInstance("deviceTwinResponseMessageCallback", testTwin);
+        Future<IotHubStatusCode> future = testTwin.getDeviceTwinAsync();
+        assertFalse(future.isDone());
+
+        // act
+        deliverTwinResponse(deviceTwinResponseMessageCallback, DeviceOperations.DEVICE_OPERATION_TWIN_GET_RESPONSE, "0", 200, FULL_TWIN_V3);
+
+        // assert
+        assertTrue(future.isDone());
+        assertEquals(IotHubStatusCode.OK, future.get());
+        TwinRequestTable<?> pendingRequests = Deencapsulation.getField(testTwin, "pendingRequests");
+        assertTrue(pendingRequests.isEmpty());
+    }
+
+    /*
+     **Tests_SRS_DEVICETWIN_44_017: [**If the response matches a pending twin request, the request shall be completed with the response status.**]**
+     **Tests_SRS_DEVICETWIN_44_019: [**The method shall return a future completed with the status reported to the callback.**]**
+     */
+    @Test
+    public void updateReportedPropertiesFutureCompletesWithTheResponseStatus() throws Exception
+    {
+        // arrange
+        DeviceTwin testTwin = new DeviceTwin(mockedDeviceIO, mockedConfig,
+                mockedStatusCB, null, mockedGenericPropertyCB, null);
+        MessageCallback deviceTwinResponseMessageCallback = Deencapsulation.newInnerInstance("deviceTwinResponseMessageCallback", testTwin);
+        Future<IotHubStatusCode> first = testTwin.updateReportedPropertiesAsync(reportedProperties(new Property("prop1", 1)), null, mockedStatusCB, "context1");
+        Future<IotHubStatusCode> second = testTwin.updateReportedPropertiesAsync(reportedProperties(new Property("prop2", 2)), null, null, null);
+
+        // act
+        deliverTwinResponse(deviceTwinResponseMessageCallback, DeviceOperations.DEVICE_OPERATION_TWIN_UPDATE_REPORTED_PROPERTIES_RESPONSE, "1", 400, "");
+
+        // assert
+        assertFalse(first.isDone());
+        assertEquals(IotHubStatusCode.BAD_FORMAT, second.get());
+        deliverTwinResponse(deviceTwinResponseMessageCallback, DeviceOperations.DEVICE_OPERATION_TWIN_UPDATE_REPORTED_PROPERTIES_RESPONSE, "0", 204, "");
+        assertEquals(IotHubStatusCode.OK_EMPTY, first.get());
+        new Verifications()
+        {
+            {
+                mockedStatusCB.execute(IotHubStatusCode.OK_EMPTY, "context1");
+                times = 1;
+            }
+        };
+    }
+
+    /*
+     **Tests_SRS_DEVICETWIN_44_018: [**If no response to a twin request arrives within the request timeout, the request shall be completed with MESSAGE_EXPIRED.**]**
+     */
+    @Test
+    public void expiredRequestsCompleteWithMessageExpired() throws Exception
+    {
+        // arrange
+        DeviceTwin testTwin = new DeviceTwin(mockedDeviceIO, mockedConfig,
+                mockedStatusCB, null, mockedGenericPropertyCB, null);
+        Future<IotHubStatusCode> future = testTwin.updateReportedPropertiesAsync(reportedProperties(new Property("prop1", 1)), null, mockedStatusCB, "context1");
+        final List<Object> requestContexts = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                mockedDeviceIO.sendEventAsync((Message) any, (IotHubEventCallback) any, withCapture(requestContexts), anyString);
+                times = 1;
+            }
+        };
+        TwinRequestTable<Object> pendingRequests = Deencapsulation.getField(testTwin, "pendingRequests");
+        TwinRequestTable.ExpirationListener<Object> expirationListener = Deencapsulation.getField(pendingRequests, "expirationListener");
+
+        // act
+        expirationListener.onExpired("0", requestContexts.get(0));
+
+        // assert
+        assertEquals(IotHubStatusCode.MESSAGE_EXPIRED, future.get());
+        assertTrue(pendingRequests.isEmpty());
+        new Verifications()
+        {
+            {
+                mockedStatusCB.execute(IotHubStatusCode.MESSAGE_EXPIRED, "context1");
+                times = 1;
+            }
+        };
+    }
+
+    /*
+     **Tests_SRS_DEVICETWIN_44_020: [**If too many twin requests are waiting for their response, the request shall not be sent and shall be completed with THROTTLED.**]**
+     */
+    @Test
+    public void requestIsThrottledWhenTooManyRequestsArePending() throws Exception
+    {
+        // arrange
+        DeviceTwin testTwin = new DeviceTwin(mockedDeviceIO, mockedConfig,
+                mockedStatusCB, null, mockedGenericPropertyCB, null);
+        Deencapsulation.setField(testTwin, "pendingRequests", new TwinRequestTable<>(60000, 2));
+        Future<IotHubStatusCode> first = testTwin.getDeviceTwinAsync();
+
+        // act
+        Future<IotHubStatusCode> second = testTwin.getDeviceTwinAsync();
+
+        // assert
+        assertFalse(first.isDone());
+        assertEquals(IotHubStatusCode.THROTTLED, second.get());
+        new Verifications()
+        {
+            {
+                mockedDeviceIO.sendEventAsync((Message) any, (IotHubEventCallback) any, any, anyString);
+                times = 1;
+            }
+        };
+    }
 }
@@ -12,6 +12,7 @@ import com.microsoft.azure.sdk.iot.device.auth.IotHubSasTokenAuthenticationProvi
 import com.microsoft.azure.sdk.iot.device.fileupload.FileUpload;
 import com.microsoft.azure.sdk.iot.device.transport.ExponentialBackoffWithJitter;
 import com.microsoft.azure.sdk.iot.device.transport.RetryPolicy;
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsAdaptiveReceivePolicy;
 import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProvider;
 import com.microsoft.azure.sdk.iot.provisioning.security.exceptions.SecurityProviderException;
 import mockit.*;
@@ -23,6 +24,7 @@ import java.net.URISyntaxException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.*;
 
@@ -971,6 +973,219 @@ public class InternalClientTest
         };
     }
 
+    //Tests_SRS_INTERNALCLIENT_44_002: [This method shall update the reported properties by calling updateReportedProperties on the twin object with the callback and its context.]
+    @Test
+    public void sendRPWithCallbackSucceeds(@Mocked final DeviceTwin mockedDeviceTwin,
+                                           @Mocked final IotHubEventCallback mockedStatusCB,
+                                           @Mocked final PropertyCallBack mockedPropertyCB,
+                                           @Mocked final Set<Property> mockSet) throws IOException, URISyntaxException
+    {
+        //arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.AMQPS;
+        final Object context = new Object();
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.isOpen();
+                result = true;
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+        Deencapsulation.invoke(client, "open");
+        Deencapsulation.invoke(client, "startTwinInternal", new Class[] {IotHubEventCallback.class, Object.class, PropertyCallBack.class, Object.class}, mockedStatusCB, NULL_OBJECT, mockedPropertyCB, NULL_OBJECT);
+
+        //act
+        client.sendReportedProperties(mockSet, mockedStatusCB, context);
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockedDeviceTwin.updateReportedProperties(mockSet, null, mockedStatusCB, context);
+                times = 1;
+            }
+        };
+    }
+
+    //Tests_SRS_INTERNALCLIENT_44_024: [The function shall update the reported properties by calling updateReportedPropertiesAsync on the twin object, and return its future.]
+    @Test
+    public void sendRPAsyncReturnsTheFutureOfTheTwin(@Mocked final DeviceTwin mockedDeviceTwin,
+                                                     @Mocked final IotHubEventCallback mockedStatusCB,
+                                                     @Mocked final PropertyCallBack mockedPropertyCB,
+                                                     @Mocked final Set<Property> mockSet,
+                                                     @Mocked final Future<IotHubStatusCode> mockedFuture) throws IOException, URISyntaxException
+    {
+        //arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.AMQPS;
+        final Object context = new Object();
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.isOpen();
+                result = true;
+                mockedDeviceTwin.updateReportedPropertiesAsync(mockSet, null, mockedStatusCB, context);
+                result = mockedFuture;
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+        Deencapsulation.invoke(client, "open");
+        Deencapsulation.invoke(client, "startTwinInternal", new Class[] {IotHubEventCallback.class, Object.class, PropertyCallBack.class, Object.class}, mockedStatusCB, NULL_OBJECT, mockedPropertyCB, NULL_OBJECT);
+
+        //act
+        Future<IotHubStatusCode> future = client.sendReportedPropertiesAsync(mockSet, mockedStatusCB, context);
+
+        //assert
+        assertSame(mockedFuture, future);
+        new Verifications()
+        {
+            {
+                mockedDeviceTwin.updateReportedProperties((Set)any, (Integer)any, (IotHubEventCallback)any, any);
+                times = 0;
+            }
+        };
+    }
+
+    //Tests_SRS_INTERNALCLIENT_44_023: [If the version is negative, the function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void sendRPAsyncThrowsIfVersionIsNegative(@Mocked final DeviceTwin mockedDeviceTwin,
+                                                     @Mocked final IotHubEventCallback mockedStatusCB,
+                                                     @Mocked final PropertyCallBack mockedPropertyCB,
+                                                     @Mocked final Set<Property> mockSet) throws IOException, URISyntaxException
+    {
+        //arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.AMQPS;
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.isOpen();
+                result = true;
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+        Deencapsulation.invoke(client, "open");
+        Deencapsulation.invoke(client, "startTwinInternal", new Class[] {IotHubEventCallback.class, Object.class, PropertyCallBack.class, Object.class}, mockedStatusCB, NULL_OBJECT, mockedPropertyCB, NULL_OBJECT);
+
+        //act
+        client.sendReportedPropertiesAsync(mockSet, -1);
+    }
+
+    //Tests_SRS_INTERNALCLIENT_44_021: [If the client has not been open, the function shall throw an IOException.]
+    @Test (expected = IOException.class)
+    public void sendRPAsyncThrowsIfClientNotOpen(@Mocked final DeviceTwin mockedDeviceTwin,
+                                                 @Mocked final IotHubEventCallback mockedStatusCB,
+                                                 @Mocked final PropertyCallBack mockedPropertyCB,
+                                                 @Mocked final Set<Property> mockSet) throws IOException, URISyntaxException
+    {
+        //arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.AMQPS;
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.isOpen();
+                returns(true, false);
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+        Deencapsulation.invoke(client, "open");
+        Deencapsulation.invoke(client, "startTwinInternal", new Class[] {IotHubEventCallback.class, Object.class, PropertyCallBack.class, Object.class}, mockedStatusCB, NULL_OBJECT, mockedPropertyCB, NULL_OBJECT);
+
+        //act
+        client.sendReportedPropertiesAsync(mockSet);
+    }
+
+    //Tests_SRS_INTERNALCLIENT_44_004: [This method shall enable the coalescing on the twin object.]
+    //Tests_SRS_INTERNALCLIENT_44_006: [This method shall flush the pending reported properties of the twin object.]
+    //Tests_SRS_INTERNALCLIENT_44_005: [This method shall disable the coalescing on the twin object.]
+    @Test
+    public void reportedPropertiesCoalescingIsDelegatedToTheTwin(@Mocked final DeviceTwin mockedDeviceTwin,
+                                                                 @Mocked final IotHubEventCallback mockedStatusCB,
+                                                                 @Mocked final PropertyCallBack mockedPropertyCB) throws IOException, URISyntaxException
+    {
+        //arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.AMQPS;
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.isOpen();
+                result = true;
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+        Deencapsulation.invoke(client, "open");
+        Deencapsulation.invoke(client, "startTwinInternal", new Class[] {IotHubEventCallback.class, Object.class, PropertyCallBack.class, Object.class}, mockedStatusCB, NULL_OBJECT, mockedPropertyCB, NULL_OBJECT);
+
+        //act
+        client.enableReportedPropertiesCoalescing(100, 10);
+        client.flushReportedProperties();
+        client.disableReportedPropertiesCoalescing();
+
+        //assert
+        new VerificationsInOrder()
+        {
+            {
+                mockedDeviceTwin.enableReportedPropertiesCoalescing(100, 10);
+                times = 1;
+                mockedDeviceTwin.flushReportedProperties();
+                times = 1;
+                mockedDeviceTwin.disableReportedPropertiesCoalescing();
+                times = 1;
+            }
+        };
+    }
+
+    //Tests_SRS_INTERNALCLIENT_44_003: [If the client has not started twin before calling this method, the function shall throw an IOException.]
+    @Test (expected = IOException.class)
+    public void enableReportedPropertiesCoalescingThrowsIfCalledBeforeStartingTwin() throws IOException, URISyntaxException
+    {
+        //arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.AMQPS;
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+
+        //act
+        client.enableReportedPropertiesCoalescing(100, 10);
+    }
+
+    //Tests_SRS_INTERNALCLIENT_44_007: [If the client has not started twin before calling this method, the function shall throw an IOException.]
+    @Test (expected = IOException.class)
+    public void getTwinSnapshotThrowsIfCalledBeforeStartingTwin() throws IOException, URISyntaxException
+    {
+        //arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.AMQPS;
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+
+        //act
+        client.getTwinSnapshot();
+    }
+
+    //Tests_SRS_INTERNALCLIENT_44_008: [This method shall return the snapshot of the twin object.]
+    @Test
+    public void getTwinSnapshotReturnsTheTwinSnapshot(@Mocked final DeviceTwin mockedDeviceTwin,
+                                                      @Mocked final TwinSnapshot mockedTwinSnapshot,
+                                                      @Mocked final IotHubEventCallback mockedStatusCB,
+                                                      @Mocked final PropertyCallBack mockedPropertyCB) throws IOException, URISyntaxException
+    {
+        //arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.AMQPS;
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.isOpen();
+                result = true;
+                mockedDeviceTwin.getTwinSnapshot();
+                result = mockedTwinSnapshot;
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+        Deencapsulation.invoke(client, "open");
+        Deencapsulation.invoke(client, "startTwinInternal", new Class[] {IotHubEventCallback.class, Object.class, PropertyCallBack.class, Object.class}, mockedStatusCB, NULL_OBJECT, mockedPropertyCB, NULL_OBJECT);
+
+        //act
+        TwinSnapshot snapshot = client.getTwinSnapshot();
+
+        //assert
+        assertEquals(mockedTwinSnapshot, snapshot);
+    }
+
     /*
      **Tests_SRS_INTERNALCLIENT_25_032: [**If the client has not started twin before calling this method, the function shall throw an IOException.**]**
      */
@@ -1356,6 +1571,85 @@ public class InternalClientTest
         Deencapsulation.invoke(client, "subscribeToMethodsInternal", mockedDeviceMethodCB, null, null, null);
     }
 
+    //Tests_SRS_INTERNALCLIENT_44_015: [This method shall subscribe to the methods with the asynchronous callback by calling subscribeToDeviceMethod on the method object.]
+    //Tests_SRS_INTERNALCLIENT_44_016: [This method shall save the dispatcher and set it on the method object, if it exists.]
+    @Test
+    public void subscribeToAsyncDeviceMethodSucceedsWithDispatcher(@Mocked final IotHubEventCallback mockedStatusCB,
+                                                                   @Mocked final AsyncDeviceMethodCallback mockedDeviceMethodCB,
+                                                                   @Mocked final DeviceMethodDispatcher mockedDispatcher,
+                                                                   @Mocked final DeviceMethod mockedMethod) throws IOException, URISyntaxException
+    {
+        //arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.MQTT;
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.isOpen();
+                result = true;
+            }
+        };
+        final InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+        Deencapsulation.invoke(client, "open");
+        client.setMethodDispatcher(mockedDispatcher);
+
+        //act
+        Deencapsulation.invoke(client, "subscribeToMethodsInternal", new Class[] {AsyncDeviceMethodCallback.class, Object.class, IotHubEventCallback.class, Object.class}, mockedDeviceMethodCB, NULL_OBJECT, mockedStatusCB, NULL_OBJECT);
+
+        //assert
+        new VerificationsInOrder()
+        {
+            {
+                mockedMethod.setMethodDispatcher(mockedDispatcher);
+                times = 1;
+                mockedMethod.subscribeToDeviceMethod(mockedDeviceMethodCB, any);
+                times = 1;
+            }
+        };
+    }
+
+    //Tests_SRS_INTERNALCLIENT_44_014: [If either callback is null, the function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void subscribeToAsyncDeviceMethodThrowsIfStatusCallbackNull(@Mocked final AsyncDeviceMethodCallback mockedDeviceMethodCB)
+            throws IOException, URISyntaxException
+    {
+        //arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.MQTT;
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.isOpen();
+                result = true;
+            }
+        };
+        final InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+        Deencapsulation.invoke(client, "open");
+
+        //act
+        Deencapsulation.invoke(client, "subscribeToMethodsInternal", new Class[] {AsyncDeviceMethodCallback.class, Object.class, IotHubEventCallback.class, Object.class}, mockedDeviceMethodCB, null, null, null);
+    }
+
+    //Tests_SRS_INTERNALCLIENT_44_017: [This function shall set an adaptive receive policy with the provided parameters on its device IO instance.]
+    @Test
+    public void enableAdaptiveReceiveSetsThePolicyOnDeviceIO() throws URISyntaxException
+    {
+        //arrange
+        final InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, IotHubClientProtocol.HTTPS, SEND_PERIOD, RECEIVE_PERIOD);
+
+        //act
+        client.enableAdaptiveReceive(100, 60000, 10);
+
+        //assert
+        new Verifications()
+        {
+            {
+                HttpsAdaptiveReceivePolicy policy;
+                Deencapsulation.invoke(mockDeviceIO, "setHttpsAdaptiveReceivePolicy", new Class[] {HttpsAdaptiveReceivePolicy.class}, policy = withCapture());
+                assertEquals(10, policy.getMaxMessagesPerPoll());
+                assertEquals(100, policy.getNextPollDelayMillis());
+            }
+        };
+    }
+
     /*
     Tests_SRS_INTERNALCLIENT_25_039: [**This method shall update the deviceMethodCallback if called again, but it shall not subscribe twice.**]**
      */
@@ -1606,7 +1900,7 @@ public class InternalClientTest
         Deencapsulation.invoke(client, "getTwinInternal");
     }
 
-    //Tests_SRS_INTERNALCLIENT_21_042: [The function shall get all desired properties by calling getDeviceTwin.]
+    //Tests_SRS_INTERNALCLIENT_21_042: [The function shall get all desired properties by calling getDeviceTwinAsync.]
     @Test
     public void getDeviceTwinSuccess(final @Mocked DeviceTwin mockedDeviceTwin) throws URISyntaxException, IOException
     {
@@ -1631,7 +1925,7 @@ public class InternalClientTest
         new Verifications()
         {
             {
-                mockedDeviceTwin.getDeviceTwin();
+                mockedDeviceTwin.getDeviceTwinAsync();
                 times = 1;
             }
         };
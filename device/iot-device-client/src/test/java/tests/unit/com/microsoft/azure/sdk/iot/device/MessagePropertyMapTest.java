@@ -0,0 +1,104 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.device;
+
+import com.microsoft.azure.sdk.iot.device.MessageProperty;
+import mockit.Deencapsulation;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for MessagePropertyMap.java
+ */
+public class MessagePropertyMapTest
+{
+    private static Object createMap()
+    {
+        return Deencapsulation.newInstance("com.microsoft.azure.sdk.iot.device.MessagePropertyMap", new Class[] {});
+    }
+
+    // Tests_SRS_MESSAGEPROPERTYMAP_44_001: [If the name is null, the function shall return null.]
+    // Tests_SRS_MESSAGEPROPERTYMAP_44_002: [The function shall return the property whose name is equal to the provided one in a case-insensitive manner, or null if there is none.]
+    @Test
+    public void getFindsThePropertiesIgnoringCase()
+    {
+        //arrange
+        Object map = createMap();
+        Deencapsulation.invoke(map, "put", "Name", "value");
+
+        //act
+        MessageProperty property = Deencapsulation.invoke(map, "get", "NAME");
+
+        //assert
+        assertEquals("Name", property.getName());
+        assertEquals("value", property.getValue());
+        assertNull(Deencapsulation.invoke(map, "get", "other"));
+        assertNull(Deencapsulation.invoke(map, "get", new Class[] {String.class}, (String) null));
+    }
+
+    // Tests_SRS_MESSAGEPROPERTYMAP_44_003: [If the name and value constitute an invalid property, the function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void putThrowsForInvalidProperty()
+    {
+        //arrange
+        Object map = createMap();
+
+        //act
+        Deencapsulation.invoke(map, "put", "name", "\u00e9");
+    }
+
+    // Tests_SRS_MESSAGEPROPERTYMAP_44_004: [If there is a property with the same name in a case-insensitive manner, the function shall replace it and move it after the other properties.]
+    // Tests_SRS_MESSAGEPROPERTYMAP_44_007: [The function shall return the number of properties.]
+    @Test
+    public void putReplacesThePropertyWithTheSameNameAndMovesItLast()
+    {
+        //arrange
+        Object map = createMap();
+        Deencapsulation.invoke(map, "put", "first", "1");
+        Deencapsulation.invoke(map, "put", "second", "2");
+        Deencapsulation.invoke(map, "put", "third", "3");
+
+        //act
+        Deencapsulation.invoke(map, "put", "FIRST", "one");
+
+        //assert
+        MessageProperty[] properties = Deencapsulation.invoke(map, "toArray");
+        assertEquals(3, (int) Deencapsulation.invoke(map, "size"));
+        assertEquals("second", properties[0].getName());
+        assertEquals("third", properties[1].getName());
+        assertEquals("FIRST", properties[2].getName());
+        assertEquals("one", ((MessageProperty) Deencapsulation.invoke(map, "get", "first")).getValue());
+    }
+
+    // Tests_SRS_MESSAGEPROPERTYMAP_44_005: [The function shall add the property after the other properties.]
+    // Tests_SRS_MESSAGEPROPERTYMAP_44_006: [The function shall allocate the arrays of the map when the first property is added, and grow them when they are full.]
+    // Tests_SRS_MESSAGEPROPERTYMAP_44_008: [The function shall return a copy of the properties in insertion order.]
+    @Test
+    public void putKeepsTheInsertionOrderWhenTheMapGrows()
+    {
+        //arrange
+        final int propertyCount = 50;
+        Object map = createMap();
+        assertEquals(0, ((Object[]) Deencapsulation.getField(map, "properties")).length);
+
+        //act
+        for (int i = 0; i < propertyCount; i++)
+        {
+            Deencapsulation.invoke(map, "put", "property-" + i, "value-" + i);
+        }
+
+        //assert
+        MessageProperty[] properties = Deencapsulation.invoke(map, "toArray");
+        assertEquals(propertyCount, properties.length);
+        for (int i = 0; i < propertyCount; i++)
+        {
+            assertEquals("property-" + i, properties[i].getName());
+            assertEquals("value-" + i, ((MessageProperty) Deencapsulation.invoke(map, "get", "PROPERTY-" + i)).getValue());
+        }
+
+        properties[0] = null;
+        assertNotNull(((MessageProperty[]) Deencapsulation.invoke(map, "toArray"))[0]);
+    }
+}
@@ -102,6 +102,18 @@ public class MessagePropertyTest
         new MessageProperty(name, invalidValue);
     }
 
+    // Tests_SRS_MESSAGEPROPERTY_11_007: [The function shall return true if and only if the name and value only use characters in US-ASCII and the name is not a reserved property name.]
+    @Test
+    public void isValidAppPropertyAcceptsEveryAsciiCharacterOnly()
+    {
+        final String name = "test-name";
+
+        assertThat(MessageProperty.isValidAppProperty(name, ""), is(true));
+        assertThat(MessageProperty.isValidAppProperty(name, "\u0000 ~\u007F"), is(true));
+        assertThat(MessageProperty.isValidAppProperty(name, "value\u0080"), is(false));
+        assertThat(MessageProperty.isValidAppProperty("name\u00FF", "value"), is(false));
+    }
+
     // Tests_SRS_MESSAGEPROPERTY_11_006: [The function shall return true if and only if the property has the given name, where the names are compared in a case-insensitive manner.]
     @Test
     public void hasNameMatchesNameInCaseInsensitiveManner()
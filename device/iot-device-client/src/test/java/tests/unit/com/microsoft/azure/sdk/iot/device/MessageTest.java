@@ -177,6 +177,49 @@ public class MessageTest
         msg.setProperty(name, invalidValue);
     }
 
+    // Tests_SRS_MESSAGE_11_032: [The function shall return the value associated with the message property name, where the name can be either the HTTPS or AMQPS property name.]
+    // Tests_SRS_MESSAGE_11_033: [The function shall return a copy of the message properties.]
+    @Test
+    public void getPropertyFindsPropertiesIgnoringCaseAndKeepsTheirOrder()
+    {
+        final int propertyCount = 20;
+        Message msg = new Message(new byte[] { 0x61 });
+        for (int i = 0; i < propertyCount; i++)
+        {
+            msg.setProperty("Property-" + i, "value-" + i);
+        }
+
+        MessageProperty[] properties = msg.getProperties();
+        assertEquals(propertyCount, properties.length);
+        for (int i = 0; i < propertyCount; i++)
+        {
+            assertEquals("Property-" + i, properties[i].getName());
+            assertEquals("value-" + i, msg.getProperty("PROPERTY-" + i));
+        }
+        assertNull(msg.getProperty("property-" + propertyCount));
+        assertNull(msg.getProperty(null));
+    }
+
+    // Tests_SRS_MESSAGE_44_001: [If the message already has a property with the same name, compared in a case-insensitive manner, the function shall replace it and move it after the other properties.]
+    @Test
+    public void setPropertyReplacesThePropertyWithTheSameNameIgnoringCase()
+    {
+        Message msg = new Message(new byte[] { 0x61 });
+        msg.setProperty("first", "1");
+        msg.setProperty("second", "2");
+        msg.setProperty("third", "3");
+
+        msg.setProperty("SECOND", "two");
+
+        MessageProperty[] properties = msg.getProperties();
+        assertEquals(3, properties.length);
+        assertEquals("first", properties[0].getName());
+        assertEquals("third", properties[1].getName());
+        assertEquals("SECOND", properties[2].getName());
+        assertEquals("two", msg.getProperty("second"));
+        assertEquals("3", msg.getProperty("Third"));
+    }
+
     // Tests_SRS_MESSAGE_11_034: [If no value associated with the property name is found, the function shall return null.]
     @Test
     public void getPropertyRejectsNonexistentProperty(
@@ -166,6 +166,37 @@ public class ModuleClientTest
         assertNotNull(Deencapsulation.getField(client, "deviceIO"));
     }
 
+    //Tests_SRS_MODULECLIENT_44_002: [This function shall save the client runtime in the config, so that the client runs on the threads of the runtime.]
+    @Test
+    public void constructorWithClientRuntimeSavesTheRuntimeInTheConfig(@Mocked final ClientRuntime mockedClientRuntime) throws URISyntaxException, ModuleClientException
+    {
+        //arrange
+        baseExpectations();
+
+        //act
+        new ModuleClient("some connection string", IotHubClientProtocol.MQTT, mockedClientRuntime);
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockedDeviceClientConfig.setClientRuntime(mockedClientRuntime);
+                times = 1;
+            }
+        };
+    }
+
+    //Tests_SRS_MODULECLIENT_44_001: [If the client runtime is null, this function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorWithNullClientRuntimeThrows() throws URISyntaxException, ModuleClientException
+    {
+        //arrange
+        baseExpectations();
+
+        //act
+        new ModuleClient("some connection string", IotHubClientProtocol.MQTT, null);
+    }
+
     //Tests_SRS_MODULECLIENT_34_001: [If the provided outputName is null or empty, this function shall throw an IllegalArgumentException.]
     @Test (expected = IllegalArgumentException.class)
     public void sendEventAsyncWithOutputThrowsForEmptyOutputName() throws URISyntaxException, ModuleClientException
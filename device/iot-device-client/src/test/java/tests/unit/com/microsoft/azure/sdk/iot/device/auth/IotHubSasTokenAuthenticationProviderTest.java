@@ -34,6 +34,8 @@ public class IotHubSasTokenAuthenticationProviderTest
     IotHubSSLContext mockIotHubSSLContext;
     @Mocked
     IotHubSasToken mockSasToken;
+    @Mocked
+    IotHubSasToken mockPreparedSasToken;
 
     private static String expectedDeviceId = "deviceId";
     private static String expectedHostname = "hostname";
@@ -90,6 +92,44 @@ public class IotHubSasTokenAuthenticationProviderTest
         }
     }
 
+    private class refreshableSasTokenAuthenticationImplementation extends mockIotHubSasTokenAuthenticationImplementation
+    {
+        IotHubSasToken generatedSasToken;
+        IOException generationException;
+
+        @Override
+        public boolean canRefreshToken()
+        {
+            return true;
+        }
+
+        @Override
+        protected IotHubSasToken generateSasToken() throws IOException
+        {
+            if (generationException != null)
+            {
+                throw generationException;
+            }
+
+            return generatedSasToken;
+        }
+    }
+
+    private static void expectExpiryTimes(final IotHubSasToken savedSasToken, final long savedExpiryTime, final IotHubSasToken preparedSasToken, final long preparedExpiryTime)
+    {
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(preparedSasToken, "isExpired");
+                result = false;
+                Deencapsulation.invoke(preparedSasToken, "getExpiryTime");
+                result = preparedExpiryTime;
+                Deencapsulation.invoke(savedSasToken, "getExpiryTime");
+                result = savedExpiryTime;
+            }
+        };
+    }
+
     // Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_12_001: [This function shall return the tokenValidSecs as the number of seconds the current sas token valid for.]
     @Test
     public void getTokenValidSecs()
@@ -267,4 +307,118 @@ public class IotHubSasTokenAuthenticationProviderTest
         //assert
         assertFalse(result);
     }
+
+    //Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_44_001: [This function shall schedule the preparation of the next sas token on the scheduler shared by every provider, 10 seconds before the end of each renewal period.]
+    //Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_44_002: [If this provider cannot refresh its token, or already prepares it, this function shall do nothing.]
+    //Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_44_005: [This function shall cancel the preparation of the sas token, and drop the prepared token.]
+    @Test
+    public void startSasTokenPreparationSchedulesThePreparationOnce()
+    {
+        //arrange
+        IotHubSasTokenAuthenticationProvider sasAuth = new refreshableSasTokenAuthenticationImplementation();
+
+        //act
+        sasAuth.startSasTokenPreparation();
+        Object sasTokenPreparation = Deencapsulation.getField(sasAuth, "sasTokenPreparation");
+        sasAuth.startSasTokenPreparation();
+
+        //assert
+        assertNotNull(sasTokenPreparation);
+        assertSame(sasTokenPreparation, Deencapsulation.getField(sasAuth, "sasTokenPreparation"));
+        sasAuth.stopSasTokenPreparation();
+        assertNull(Deencapsulation.getField(sasAuth, "sasTokenPreparation"));
+    }
+
+    //Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_44_002: [If this provider cannot refresh its token, or already prepares it, this function shall do nothing.]
+    @Test
+    public void startSasTokenPreparationDoesNothingIfTheTokenCannotBeRefreshed()
+    {
+        //arrange
+        IotHubSasTokenAuthenticationProvider sasAuth = new mockIotHubSasTokenAuthenticationImplementation();
+
+        //act
+        sasAuth.startSasTokenPreparation();
+
+        //assert
+        assertNull(Deencapsulation.getField(sasAuth, "sasTokenPreparation"));
+    }
+
+    //Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_44_003: [This function shall save the prepared token as the current token, forget it, and return true.]
+    @Test
+    public void usePreparedSasTokenSavesThePreparedTokenOnce()
+    {
+        //arrange
+        refreshableSasTokenAuthenticationImplementation sasAuth = new refreshableSasTokenAuthenticationImplementation();
+        sasAuth.generatedSasToken = mockPreparedSasToken;
+        expectExpiryTimes(mockSasToken, 100L, mockPreparedSasToken, 200L);
+        sasAuth.startSasTokenPreparation();
+        Deencapsulation.invoke(sasAuth, "prepareSasToken");
+
+        //act
+        boolean used = Deencapsulation.invoke(sasAuth, "usePreparedSasToken");
+        boolean usedAgain = Deencapsulation.invoke(sasAuth, "usePreparedSasToken");
+
+        //assert
+        sasAuth.stopSasTokenPreparation();
+        assertTrue(used);
+        assertFalse(usedAgain);
+        assertSame(mockPreparedSasToken, Deencapsulation.getField(sasAuth, "sasToken"));
+    }
+
+    //Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_44_004: [If there is no prepared token, or it has expired or is older than the saved token, this function shall return false.]
+    @Test
+    public void usePreparedSasTokenIgnoresATokenOlderThanTheSavedToken()
+    {
+        //arrange
+        refreshableSasTokenAuthenticationImplementation sasAuth = new refreshableSasTokenAuthenticationImplementation();
+        sasAuth.generatedSasToken = mockPreparedSasToken;
+        expectExpiryTimes(mockSasToken, 200L, mockPreparedSasToken, 100L);
+        sasAuth.startSasTokenPreparation();
+        Deencapsulation.invoke(sasAuth, "prepareSasToken");
+
+        //act
+        boolean used = Deencapsulation.invoke(sasAuth, "usePreparedSasToken");
+
+        //assert
+        sasAuth.stopSasTokenPreparation();
+        assertFalse(used);
+        assertSame(mockSasToken, Deencapsulation.getField(sasAuth, "sasToken"));
+    }
+
+    //Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_44_004: [If there is no prepared token, or it has expired or is older than the saved token, this function shall return false.]
+    //Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_44_005: [This function shall cancel the preparation of the sas token, and drop the prepared token.]
+    @Test
+    public void usePreparedSasTokenReturnsFalseAfterThePreparationIsStopped()
+    {
+        //arrange
+        refreshableSasTokenAuthenticationImplementation sasAuth = new refreshableSasTokenAuthenticationImplementation();
+        sasAuth.generatedSasToken = mockPreparedSasToken;
+        expectExpiryTimes(mockSasToken, 100L, mockPreparedSasToken, 200L);
+        sasAuth.startSasTokenPreparation();
+        Deencapsulation.invoke(sasAuth, "prepareSasToken");
+        sasAuth.stopSasTokenPreparation();
+
+        //act
+        boolean used = Deencapsulation.invoke(sasAuth, "usePreparedSasToken");
+
+        //assert
+        assertFalse(used);
+    }
+
+    //Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_44_004: [If there is no prepared token, or it has expired or is older than the saved token, this function shall return false.]
+    @Test
+    public void prepareSasTokenOnlyLogsAFailureToGenerateTheToken()
+    {
+        //arrange
+        refreshableSasTokenAuthenticationImplementation sasAuth = new refreshableSasTokenAuthenticationImplementation();
+        sasAuth.generationException = new IOException("The HSM cannot be reached");
+        sasAuth.startSasTokenPreparation();
+
+        //act
+        Deencapsulation.invoke(sasAuth, "prepareSasToken");
+
+        //assert
+        sasAuth.stopSasTokenPreparation();
+        assertFalse((Boolean) Deencapsulation.invoke(sasAuth, "usePreparedSasToken"));
+    }
 }
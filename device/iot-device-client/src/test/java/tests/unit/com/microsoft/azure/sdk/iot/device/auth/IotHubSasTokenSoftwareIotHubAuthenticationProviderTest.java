@@ -23,6 +23,7 @@ import java.security.cert.CertificateException;
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 
 /**
  * Unit tests for IotHubSasTokenSoftwareAuthenticationProvider.java
@@ -169,6 +170,54 @@ public class IotHubSasTokenSoftwareIotHubAuthenticationProviderTest
         sasAuth.getRenewedSasToken(true, false);
     }
 
+    //Tests_SRS_IOTHUBSASTOKENSOFTWAREAUTHENTICATION_44_001: [If a sas token was prepared in the background, the saved sas token shall be renewed with it instead of a new token.]
+    @Test
+    public void getRenewedSasTokenUsesThePreparedToken(@Mocked final System mockSystem) throws IOException, TransportException
+    {
+        new MockUp<IotHubSasTokenAuthenticationProvider>()
+        {
+            @Mock public boolean shouldRefreshToken(boolean proactivelyRenew)
+            {
+                return false;
+            }
+
+            @Mock boolean usePreparedSasToken()
+            {
+                return true;
+            }
+        };
+
+        //assert
+        new Expectations()
+        {
+            {
+                new IotHubSasToken(expectedHostname, expectedDeviceId, expectedDeviceKey, null, expectedModuleId, anyLong);
+                result = mockSasToken;
+                times = 1;
+            }
+        };
+
+        //arrange
+        IotHubSasTokenAuthenticationProvider sasAuth = new IotHubSasTokenSoftwareAuthenticationProvider(expectedHostname, expectedGatewayHostname, expectedDeviceId, expectedModuleId, expectedDeviceKey, expectedSasToken);
+
+        //act
+        sasAuth.getRenewedSasToken(true, true);
+    }
+
+    //Tests_SRS_IOTHUBSASTOKENSOFTWAREAUTHENTICATION_44_002: [If there is no device key, generateSasToken shall return null.]
+    @Test
+    public void generateSasTokenWithoutDeviceKeyReturnsNull()
+    {
+        //arrange
+        IotHubSasTokenAuthenticationProvider sasAuth = new IotHubSasTokenSoftwareAuthenticationProvider(expectedHostname, expectedGatewayHostname, expectedDeviceId, expectedModuleId, null, expectedSasToken);
+
+        //act
+        Object sasToken = Deencapsulation.invoke(sasAuth, "generateSasToken");
+
+        //assert
+        assertNull(sasToken);
+    }
+
     @Test
     public void getRenewedSasTokenForciblyRenews(@Mocked final System mockSystem) throws IOException, TransportException
     {
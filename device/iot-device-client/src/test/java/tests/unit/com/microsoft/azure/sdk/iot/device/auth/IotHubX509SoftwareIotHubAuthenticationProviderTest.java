@@ -6,6 +6,7 @@
 package tests.unit.com.microsoft.azure.sdk.iot.device.auth;
 
 import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContext;
+import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContextCache;
 import com.microsoft.azure.sdk.iot.device.auth.*;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubAuthenticationProvider;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubX509SoftwareAuthenticationProvider;
@@ -19,6 +20,7 @@ import org.junit.Test;
 
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
+import java.security.GeneralSecurityException;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
@@ -58,6 +60,7 @@ public class IotHubX509SoftwareIotHubAuthenticationProviderTest
     }
 
     @Mocked IotHubSSLContext mockIotHubSSLContext;
+    @Mocked IotHubSSLContextCache mockIotHubSSLContextCache;
     @Mocked IotHubX509 mockIotHubX509;
     @Mocked SSLContext mockSSLContext;
 
@@ -151,9 +154,9 @@ public class IotHubX509SoftwareIotHubAuthenticationProviderTest
         assertEquals(mockSSLContext, actualSSLContext);
     }
 
-    // Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_34_019: [If this has a saved iotHubTrustedCert, this function shall generate a new IotHubSSLContext object with that saved cert as the trusted cert.]
+    // Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_34_019: [If this has a saved iotHubTrustedCert, this function shall get the shared IotHubSSLContext from the IotHubSSLContextCache with that saved cert as the trusted cert and with the saved public and private key combo.]
     @Test
-    public void generateSSLContextUsesSavedTrustedCert() throws CertificateException, NoSuchAlgorithmException, KeyStoreException, KeyManagementException, IOException, UnrecoverableKeyException
+    public void generateSSLContextUsesSavedTrustedCert() throws IOException, GeneralSecurityException
     {
         //arrange
         commonExpectations();
@@ -168,15 +171,15 @@ public class IotHubX509SoftwareIotHubAuthenticationProviderTest
         new Verifications()
         {
             {
-                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, String.class, String.class, boolean.class}, publicKeyCertificate, privateKey, expectedCert, false);
+                IotHubSSLContextCache.getSSLContext(publicKeyCertificate, privateKey, expectedCert, false);
                 times = 1;
             }
         };
     }
 
-    // Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_34_020: [If this has a saved path to a iotHubTrustedCert, this function shall generate a new IotHubSSLContext object with that saved cert path as the trusted cert.]
+    // Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_34_020: [If this has a saved path to a iotHubTrustedCert, this function shall get the shared IotHubSSLContext from the IotHubSSLContextCache with that saved cert path as the trusted cert and with the saved public and private key combo.]
     @Test
-    public void generateSSLContextUsesSavedTrustedCertPath() throws CertificateException, NoSuchAlgorithmException, KeyStoreException, KeyManagementException, IOException, UnrecoverableKeyException
+    public void generateSSLContextUsesSavedTrustedCertPath() throws IOException, GeneralSecurityException
     {
         //arrange
         commonExpectations();
@@ -191,15 +194,15 @@ public class IotHubX509SoftwareIotHubAuthenticationProviderTest
         new Verifications()
         {
             {
-                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, String.class, String.class, boolean.class}, publicKeyCertificate, privateKey, expectedCertPath, true);
+                IotHubSSLContextCache.getSSLContext(publicKeyCertificate, privateKey, expectedCertPath, true);
                 times = 1;
             }
         };
     }
 
-    // Tests_SRS_IOTHUBX509AUTHENTICATION_34_021: [If this has no saved iotHubTrustedCert or path, This function shall create and save a new IotHubSSLContext object with the saved public and private key combo.]
+    // Tests_SRS_IOTHUBX509AUTHENTICATION_34_021: [If this has no saved iotHubTrustedCert or path, This function shall get the shared IotHubSSLContext from the IotHubSSLContextCache with the default trusted certs and with the saved public and private key combo.]
     @Test
-    public void generateSSLContextUsesSavedKeys() throws CertificateException, UnrecoverableKeyException, NoSuchAlgorithmException, IOException, KeyManagementException, KeyStoreException
+    public void generateSSLContextUsesSavedKeys() throws IOException, GeneralSecurityException
     {
         //arrange
         commonExpectations();
@@ -212,7 +215,7 @@ public class IotHubX509SoftwareIotHubAuthenticationProviderTest
         new Verifications()
         {
             {
-                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, String.class}, publicKeyCertificate, privateKey);
+                IotHubSSLContextCache.getSSLContext(publicKeyCertificate, privateKey, null, false);
                 times = 1;
             }
         };
@@ -258,7 +261,7 @@ public class IotHubX509SoftwareIotHubAuthenticationProviderTest
 
     //Tests_SRS_IOTHUBX509SOFTWAREAUTHENTICATION_34_004: [If the security provider throws a SecurityProviderException while generating an SSLContext, this function shall throw an IOException.]
     @Test (expected = IOException.class)
-    public void getSSLContextThrowsIOExceptionIfExceptionEncountered() throws SecurityProviderException, IOException, TransportException
+    public void getSSLContextThrowsIOExceptionIfExceptionEncountered() throws SecurityProviderException, IOException, TransportException, GeneralSecurityException
     {
         //arrange
         IotHubAuthenticationProvider authentication = new IotHubX509SoftwareAuthenticationProvider(hostname, gatewayHostname, deviceId, moduleId, publicKeyCertificate, false, privateKey, false);
@@ -266,7 +269,7 @@ public class IotHubX509SoftwareIotHubAuthenticationProviderTest
         new NonStrictExpectations()
         {
             {
-                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, String.class});
+                IotHubSSLContextCache.getSSLContext(anyString, anyString, null, false);
                 result = mockIotHubSSLContext;
 
                 Deencapsulation.invoke(mockIotHubSSLContext, "getSSLContext");
@@ -281,7 +284,7 @@ public class IotHubX509SoftwareIotHubAuthenticationProviderTest
     //Tests_SRS_IOTHUBX509SOFTWAREAUTHENTICATION_34_003: [If this object's ssl context has not been generated yet, this function shall generate it from the saved security provider.]
     //Tests_SRS_IOTHUBX509SOFTWAREAUTHENTICATION_34_005: [This function shall return the saved IotHubSSLContext.]
     @Test
-    public void getSSLContextSuccess() throws IOException, TransportException
+    public void getSSLContextSuccess() throws IOException, TransportException, GeneralSecurityException
     {
         //arrange
         IotHubAuthenticationProvider authentication = new IotHubX509SoftwareAuthenticationProvider(hostname, gatewayHostname, deviceId, moduleId, publicKeyCertificate, false, privateKey, false);
@@ -289,7 +292,7 @@ public class IotHubX509SoftwareIotHubAuthenticationProviderTest
         new NonStrictExpectations()
         {
             {
-                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, String.class});
+                IotHubSSLContextCache.getSSLContext(anyString, anyString, null, false);
                 result = mockIotHubSSLContext;
 
                 Deencapsulation.invoke(mockIotHubSSLContext, "getSSLContext");
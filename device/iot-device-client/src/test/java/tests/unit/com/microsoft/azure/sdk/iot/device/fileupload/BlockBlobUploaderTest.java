@@ -0,0 +1,509 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.fileupload;
+
+import com.microsoft.azure.sdk.iot.deps.util.Base64;
+import com.microsoft.azure.sdk.iot.device.fileupload.BlockBlobUploader;
+import com.microsoft.azure.storage.AccessCondition;
+import com.microsoft.azure.storage.OperationContext;
+import com.microsoft.azure.storage.SendingRequestEvent;
+import com.microsoft.azure.storage.StorageException;
+import com.microsoft.azure.storage.StorageExtendedErrorInformation;
+import com.microsoft.azure.storage.blob.BlobRequestOptions;
+import com.microsoft.azure.storage.blob.BlockEntry;
+import com.microsoft.azure.storage.blob.CloudBlockBlob;
+import mockit.Deencapsulation;
+import mockit.Delegate;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import mockit.Verifications;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for block blob uploader class.
+ */
+public class BlockBlobUploaderTest
+{
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.UTF_8);
+    private static final int BLOCK_SIZE = 4;
+    private static final int PARALLELISM = 2;
+
+    @Mocked
+    private CloudBlockBlob mockCloudBlockBlob;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static final Class[] UPLOAD_FILE_PARAMETER_TYPES = {CloudBlockBlob.class, Path.class, long.class, BlockBlobUploader.Checkpoint.class};
+
+    private ExecutorService executor;
+
+    @Before
+    public void createExecutor()
+    {
+        executor = Executors.newFixedThreadPool(PARALLELISM);
+    }
+
+    @After
+    public void shutdownExecutor()
+    {
+        executor.shutdownNow();
+    }
+
+    private BlockBlobUploader createUploader(int blockSize, int parallelism, ExecutorService executor)
+    {
+        BlockBlobUploader blockBlobUploader = Deencapsulation.newInstance(BlockBlobUploader.class,
+                new Class[] {int.class, int.class, ExecutorService.class},
+                blockSize, parallelism, executor);
+        Deencapsulation.setField(blockBlobUploader, "retryDelayMillis", 0L);
+        return blockBlobUploader;
+    }
+
+    private static String blockId(int index)
+    {
+        return Base64.encodeBase64StringLocal(String.format("block-%06d", index).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String contentMd5(byte[] block) throws NoSuchAlgorithmException
+    {
+        return Base64.encodeBase64StringLocal(MessageDigest.getInstance("MD5").digest(block));
+    }
+
+    private Path createFile() throws IOException
+    {
+        Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, CONTENT);
+        return file;
+    }
+
+    private static StorageException storageException(int statusCode)
+    {
+        return new StorageException("", "", statusCode, new StorageExtendedErrorInformation(), new Exception());
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_44_001: [If the block size is not positive or larger than MAX_BLOCK_SIZE, the parallelism is not positive, or the executor is null, the constructor shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorBlockSizeTooLargeThrows()
+    {
+        // act
+        createUploader(BlockBlobUploader.MAX_BLOCK_SIZE + 1, PARALLELISM, executor);
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_44_001: [If the block size is not positive or larger than MAX_BLOCK_SIZE, the parallelism is not positive, or the executor is null, the constructor shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorZeroParallelismThrows()
+    {
+        // act
+        createUploader(BLOCK_SIZE, 0, executor);
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_44_001: [If the block size is not positive or larger than MAX_BLOCK_SIZE, the parallelism is not positive, or the executor is null, the constructor shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorNullExecutorThrows()
+    {
+        // act
+        createUploader(BLOCK_SIZE, PARALLELISM, null);
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_44_002: [If the stream needs more than MAX_BLOCKS blocks, the function shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void uploadTooManyBlocksThrows() throws IOException, StorageException
+    {
+        // arrange
+        BlockBlobUploader blockBlobUploader = createUploader(1, PARALLELISM, executor);
+
+        // act
+        Deencapsulation.invoke(blockBlobUploader, "upload", mockCloudBlockBlob, new ByteArrayInputStream(CONTENT), (long) BlockBlobUploader.MAX_BLOCKS + 1);
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_44_003: [The function shall read the stream into at most `parallelism` block buffers, and reuse the buffer of an uploaded block for the next block.] */
+    /* Tests_SRS_BLOCKBLOBUPLOADER_44_004: [The function shall upload each block with an id of the same length derived from its index, using the executor.] */
+    /* Tests_SRS_BLOCKBLOBUPLOADER_44_006: [Once every block is uploaded, the function shall commit the list of blocks in the order of the stream.] */
+    @Test
+    public void uploadSplitsTheStreamInBlocksAndCommitsThemInOrder() throws IOException, StorageException
+    {
+        // arrange
+        final Map<String, byte[]> uploadedBlocks = new ConcurrentHashMap<>();
+        new NonStrictExpectations()
+        {
+            {
+                mockCloudBlockBlob.uploadBlock(anyString, (InputStream) any, anyLong, (AccessCondition) any, (BlobRequestOptions) any, (OperationContext) any);
+                result = new Delegate()
+                {
+                    void uploadBlock(String blockId, InputStream sourceStream, long length, AccessCondition accessCondition, BlobRequestOptions options, OperationContext opContext) throws IOException
+                    {
+                        ByteArrayOutputStream block = new ByteArrayOutputStream();
+                        for (int b = sourceStream.read(); b >= 0; b = sourceStream.read())
+                        {
+                            block.write(b);
+                        }
+
+                        assertEquals(length, block.size());
+                        uploadedBlocks.put(blockId, block.toByteArray());
+                    }
+                };
+            }
+        };
+        BlockBlobUploader blockBlobUploader = createUploader(BLOCK_SIZE, PARALLELISM, executor);
+
+        // act
+        Deencapsulation.invoke(blockBlobUploader, "upload", mockCloudBlockBlob, new ByteArrayInputStream(CONTENT), (long) CONTENT.length);
+
+        // assert
+        assertArrayEquals("0123".getBytes(StandardCharsets.UTF_8), uploadedBlocks.get(blockId(0)));
+        assertArrayEquals("4567".getBytes(StandardCharsets.UTF_8), uploadedBlocks.get(blockId(1)));
+        assertArrayEquals("89".getBytes(StandardCharsets.UTF_8), uploadedBlocks.get(blockId(2)));
+        final List<Iterable<BlockEntry>> committed = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                mockCloudBlockBlob.commitBlockList(withCapture(committed));
+                times = 1;
+            }
+        };
+        List<String> committedIds = new ArrayList<>();
+        for (BlockEntry blockEntry : committed.get(0))
+        {
+            committedIds.add(blockEntry.getId());
+        }
+        assertEquals(Arrays.asList(blockId(0), blockId(1), blockId(2)), committedIds);
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_44_005: [If a block fails with a network error, a timeout or a server error, the function shall upload it again after an exponential backoff, up to 4 attempts.] */
+    @Test
+    public void uploadRetriesBlockAfterServerError() throws IOException, StorageException
+    {
+        // arrange
+        final AtomicInteger attempts = new AtomicInteger();
+        new NonStrictExpectations()
+        {
+            {
+                mockCloudBlockBlob.uploadBlock(anyString, (InputStream) any, anyLong, (AccessCondition) any, (BlobRequestOptions) any, (OperationContext) any);
+                result = new Delegate()
+                {
+                    void uploadBlock(String blockId, InputStream sourceStream, long length, AccessCondition accessCondition, BlobRequestOptions options, OperationContext opContext) throws StorageException
+                    {
+                        if (attempts.incrementAndGet() == 1)
+                        {
+                            throw storageException(503);
+                        }
+                    }
+                };
+            }
+        };
+        BlockBlobUploader blockBlobUploader = createUploader(CONTENT.length, PARALLELISM, executor);
+
+        // act
+        Deencapsulation.invoke(blockBlobUploader, "upload", mockCloudBlockBlob, new ByteArrayInputStream(CONTENT), (long) CONTENT.length);
+
+        // assert
+        assertEquals(2, attempts.get());
+        new Verifications()
+        {
+            {
+                mockCloudBlockBlob.commitBlockList((Iterable<BlockEntry>) any);
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_44_005: [If a block fails with a network error, a timeout or a server error, the function shall upload it again after an exponential backoff, up to 4 attempts.] */
+    /* Tests_SRS_BLOCKBLOBUPLOADER_44_007: [If a block cannot be read or uploaded, the function shall cancel the uploads in progress, and shall not commit the block list.] */
+    @Test
+    public void uploadDoesNotRetryBlockAfterClientError() throws IOException, StorageException
+    {
+        // arrange
+        final AtomicInteger attempts = new AtomicInteger();
+        new NonStrictExpectations()
+        {
+            {
+                mockCloudBlockBlob.uploadBlock(anyString, (InputStream) any, anyLong, (AccessCondition) any, (BlobRequestOptions) any, (OperationContext) any);
+                result = new Delegate()
+                {
+                    void uploadBlock(String blockId, InputStream sourceStream, long length, AccessCondition accessCondition, BlobRequestOptions options, OperationContext opContext) throws StorageException
+                    {
+                        attempts.incrementAndGet();
+                        throw storageException(403);
+                    }
+                };
+            }
+        };
+        BlockBlobUploader blockBlobUploader = createUploader(CONTENT.length, PARALLELISM, executor);
+
+        // act
+        try
+        {
+            Deencapsulation.invoke(blockBlobUploader, "upload", mockCloudBlockBlob, new ByteArrayInputStream(CONTENT), (long) CONTENT.length);
+            fail("Expected a StorageException");
+        }
+        catch (Exception expected)
+        {
+            assertTrue(expected instanceof StorageException);
+            assertEquals(403, ((StorageException) expected).getHttpStatusCode());
+        }
+
+        // assert
+        assertEquals(1, attempts.get());
+        new Verifications()
+        {
+            {
+                mockCloudBlockBlob.commitBlockList((Iterable<BlockEntry>) any);
+                times = 0;
+            }
+        };
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_44_007: [If a block cannot be read or uploaded, the function shall cancel the uploads in progress, and shall not commit the block list.] */
+    @Test
+    public void uploadShortStreamThrowsAndDoesNotCommit() throws StorageException
+    {
+        // arrange
+        BlockBlobUploader blockBlobUploader = createUploader(BLOCK_SIZE, PARALLELISM, executor);
+
+        // act
+        try
+        {
+            Deencapsulation.invoke(blockBlobUploader, "upload", mockCloudBlockBlob, new ByteArrayInputStream(CONTENT), (long) CONTENT.length + 1);
+            fail("Expected an EOFException");
+        }
+        catch (Exception expected)
+        {
+            assertTrue(expected instanceof EOFException);
+        }
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockCloudBlockBlob.commitBlockList((Iterable<BlockEntry>) any);
+                times = 0;
+            }
+        };
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_44_008: [If the checkpoint reports a block as uploaded, the function shall skip its bytes in the stream instead of uploading it again.] */
+    /* Tests_SRS_BLOCKBLOBUPLOADER_44_009: [The function shall report each uploaded block to the checkpoint, and only log a failure to record it.] */
+    @Test
+    public void uploadSkipsTheBlocksOfTheCheckpoint() throws IOException, StorageException
+    {
+        // arrange
+        final Map<String, byte[]> uploadedBlocks = new ConcurrentHashMap<>();
+        new NonStrictExpectations()
+        {
+            {
+                mockCloudBlockBlob.uploadBlock(anyString, (InputStream) any, anyLong, (AccessCondition) any, (BlobRequestOptions) any, (OperationContext) any);
+                result = new Delegate()
+                {
+                    void uploadBlock(String blockId, InputStream sourceStream, long length, AccessCondition accessCondition, BlobRequestOptions options, OperationContext opContext) throws IOException
+                    {
+                        byte[] block = new byte[(int) length];
+                        assertEquals(length, sourceStream.read(block));
+                        uploadedBlocks.put(blockId, block);
+                    }
+                };
+            }
+        };
+        final Set<String> recordedBlocks = Collections.synchronizedSet(new HashSet<String>());
+        BlockBlobUploader.Checkpoint checkpoint = new BlockBlobUploader.Checkpoint()
+        {
+            @Override
+            public boolean isUploaded(String blockId)
+            {
+                return blockId.equals(blockId(1));
+            }
+
+            @Override
+            public void uploaded(String blockId) throws IOException
+            {
+                recordedBlocks.add(blockId);
+                throw new IOException("The journal is full");
+            }
+        };
+        BlockBlobUploader blockBlobUploader = createUploader(BLOCK_SIZE, PARALLELISM, executor);
+
+        // act
+        Deencapsulation.invoke(blockBlobUploader, "upload", mockCloudBlockBlob, new ByteArrayInputStream(CONTENT), (long) CONTENT.length, checkpoint);
+
+        // assert
+        assertEquals(2, uploadedBlocks.size());
+        assertArrayEquals("0123".getBytes(StandardCharsets.UTF_8), uploadedBlocks.get(blockId(0)));
+        assertArrayEquals("89".getBytes(StandardCharsets.UTF_8), uploadedBlocks.get(blockId(2)));
+        assertEquals(new HashSet<>(Arrays.asList(blockId(0), blockId(2))), recordedBlocks);
+        final List<Iterable<BlockEntry>> committed = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                mockCloudBlockBlob.commitBlockList(withCapture(committed));
+                times = 1;
+            }
+        };
+        int committedBlocks = 0;
+        for (BlockEntry ignored : committed.get(0))
+        {
+            committedBlocks++;
+        }
+        assertEquals(3, committedBlocks);
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_44_010: [The function shall read the blocks of a file into at most `parallelism` direct block buffers, and reuse the buffer of an uploaded block for the next block.] */
+    /* Tests_SRS_BLOCKBLOBUPLOADER_44_012: [The function shall upload each block with a Content-MD5 header computed from its buffer.] */
+    @Test
+    public void uploadFileSendsEachBlockWithItsMd5() throws IOException, StorageException, NoSuchAlgorithmException
+    {
+        // arrange
+        final Map<String, byte[]> uploadedBlocks = new ConcurrentHashMap<>();
+        final Map<String, String> sentMd5s = new ConcurrentHashMap<>();
+        new NonStrictExpectations()
+        {
+            {
+                mockCloudBlockBlob.uploadBlock(anyString, (InputStream) any, anyLong, (AccessCondition) any, (BlobRequestOptions) any, (OperationContext) any);
+                result = new Delegate()
+                {
+                    void uploadBlock(String blockId, InputStream sourceStream, long length, AccessCondition accessCondition, BlobRequestOptions options, OperationContext opContext) throws IOException
+                    {
+                        // The storage SDK copies a stream that cannot be reset into a buffer of its own.
+                        assertTrue(sourceStream.markSupported());
+                        assertFalse(options.getUseTransactionalContentMD5());
+                        byte[] block = new byte[(int) length];
+                        assertEquals(length, sourceStream.read(block));
+                        assertEquals(-1, sourceStream.read());
+                        uploadedBlocks.put(blockId, block);
+
+                        HttpURLConnection connection = (HttpURLConnection) new URL("https://contoso.blob.core.windows.net/container/blob").openConnection();
+                        opContext.getSendingRequestEventHandler().fireEvent(new SendingRequestEvent(opContext, connection, null));
+                        sentMd5s.put(blockId, connection.getRequestProperty("Content-MD5"));
+                    }
+                };
+            }
+        };
+        BlockBlobUploader blockBlobUploader = createUploader(BLOCK_SIZE, PARALLELISM, executor);
+
+        // act
+        Deencapsulation.invoke(blockBlobUploader, "upload", UPLOAD_FILE_PARAMETER_TYPES, mockCloudBlockBlob, createFile(), (long) CONTENT.length, null);
+
+        // assert
+        assertArrayEquals("0123".getBytes(StandardCharsets.UTF_8), uploadedBlocks.get(blockId(0)));
+        assertArrayEquals("4567".getBytes(StandardCharsets.UTF_8), uploadedBlocks.get(blockId(1)));
+        assertArrayEquals("89".getBytes(StandardCharsets.UTF_8), uploadedBlocks.get(blockId(2)));
+        assertEquals(contentMd5("0123".getBytes(StandardCharsets.UTF_8)), sentMd5s.get(blockId(0)));
+        assertEquals(contentMd5("4567".getBytes(StandardCharsets.UTF_8)), sentMd5s.get(blockId(1)));
+        assertEquals(contentMd5("89".getBytes(StandardCharsets.UTF_8)), sentMd5s.get(blockId(2)));
+        new Verifications()
+        {
+            {
+                mockCloudBlockBlob.commitBlockList((Iterable<BlockEntry>) any);
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_44_010: [The function shall read the blocks of a file into at most `parallelism` direct block buffers, and reuse the buffer of an uploaded block for the next block.] */
+    @Test
+    public void uploadFileWithMoreBlocksThanParallelismReusesTheBuffers() throws IOException, StorageException
+    {
+        // arrange
+        final byte[] content = new byte[25 * BLOCK_SIZE - 1];
+        for (int i = 0; i < content.length; i++)
+        {
+            content[i] = (byte) i;
+        }
+        Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, content);
+        final Map<String, byte[]> uploadedBlocks = new ConcurrentHashMap<>();
+        new NonStrictExpectations()
+        {
+            {
+                mockCloudBlockBlob.uploadBlock(anyString, (InputStream) any, anyLong, (AccessCondition) any, (BlobRequestOptions) any, (OperationContext) any);
+                result = new Delegate()
+                {
+                    void uploadBlock(String blockId, InputStream sourceStream, long length, AccessCondition accessCondition, BlobRequestOptions options, OperationContext opContext) throws IOException
+                    {
+                        byte[] block = new byte[(int) length];
+                        assertEquals(length, sourceStream.read(block));
+                        uploadedBlocks.put(blockId, block);
+                    }
+                };
+            }
+        };
+        BlockBlobUploader blockBlobUploader = createUploader(BLOCK_SIZE, PARALLELISM, executor);
+
+        // act
+        Deencapsulation.invoke(blockBlobUploader, "upload", UPLOAD_FILE_PARAMETER_TYPES, mockCloudBlockBlob, file, (long) content.length, null);
+
+        // assert
+        assertEquals(25, uploadedBlocks.size());
+        for (int index = 0; index < 25; index++)
+        {
+            int offset = index * BLOCK_SIZE;
+            assertArrayEquals(Arrays.copyOfRange(content, offset, Math.min(offset + BLOCK_SIZE, content.length)), uploadedBlocks.get(blockId(index)));
+        }
+        new Verifications()
+        {
+            {
+                mockCloudBlockBlob.commitBlockList((Iterable<BlockEntry>) any);
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_BLOCKBLOBUPLOADER_44_011: [If the file is shorter than its length, the function shall throw EOFException.] */
+    @Test
+    public void uploadShortFileThrowsAndDoesNotCommit() throws IOException, StorageException
+    {
+        // arrange
+        BlockBlobUploader blockBlobUploader = createUploader(BLOCK_SIZE, PARALLELISM, executor);
+
+        // act
+        try
+        {
+            Deencapsulation.invoke(blockBlobUploader, "upload", UPLOAD_FILE_PARAMETER_TYPES, mockCloudBlockBlob, createFile(), (long) CONTENT.length + 1, null);
+            fail("Expected an EOFException");
+        }
+        catch (Exception expected)
+        {
+            assertTrue(expected instanceof EOFException);
+        }
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockCloudBlockBlob.uploadBlock(anyString, (InputStream) any, anyLong, (AccessCondition) any, (BlobRequestOptions) any, (OperationContext) any);
+                times = 0;
+                mockCloudBlockBlob.commitBlockList((Iterable<BlockEntry>) any);
+                times = 0;
+            }
+        };
+    }
+}
@@ -0,0 +1,260 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.fileupload;
+
+import com.microsoft.azure.sdk.iot.device.fileupload.FileUploadJournal;
+import mockit.Deencapsulation;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for file upload journal class.
+ */
+public class FileUploadJournalTest
+{
+    private static final String BLOB_NAME = "test-device1/image.jpg";
+    private static final long STREAM_LENGTH = 100;
+    private static final int BLOCK_SIZE = 4;
+    private static final String CORRELATION_ID = "somecorrelationid";
+    private static final String NEW_CORRELATION_ID = "someothercorrelationid";
+    private static final String BLOB_URI = "https://contoso.blob.core.windows.net/container/test-device1%2Fimage.jpg";
+    private static final String BLOCK_ID = "YmxvY2stMDAwMDAw";
+
+    private static final Class[] FIND_PARAMETER_TYPES = {String.class, long.class, int.class};
+    private static final Class[] CREATE_PARAMETER_TYPES = {String.class, long.class, int.class, URI.class, String.class};
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static URI blobUri(String expiry) throws URISyntaxException
+    {
+        return new URI(BLOB_URI + "?sv=2016-05-31&sr=b&sig=someSignature&se=" + expiry + "&sp=rw");
+    }
+
+    private FileUploadJournal createJournal(File directory)
+    {
+        return Deencapsulation.newInstance(FileUploadJournal.class, new Class[] {File.class}, directory);
+    }
+
+    private FileUploadJournal.Entry find(FileUploadJournal journal, long streamLength, int blockSize)
+    {
+        return Deencapsulation.invoke(journal, "find", FIND_PARAMETER_TYPES, BLOB_NAME, streamLength, blockSize);
+    }
+
+    private FileUploadJournal.Entry create(FileUploadJournal journal, URI blobUri)
+    {
+        return Deencapsulation.invoke(journal, "create", CREATE_PARAMETER_TYPES, BLOB_NAME, STREAM_LENGTH, BLOCK_SIZE, blobUri, CORRELATION_ID);
+    }
+
+    /* Tests_SRS_FILEUPLOADJOURNAL_44_001: [If the directory is null, the constructor shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorNullDirectoryThrows()
+    {
+        // act
+        createJournal(null);
+    }
+
+    /* Tests_SRS_FILEUPLOADJOURNAL_44_002: [The find shall return the journaled upload of the blob name, with its blob URI, correlation id and uploaded blocks.] */
+    /* Tests_SRS_FILEUPLOADJOURNAL_44_004: [The create shall save a journal of the upload without uploaded blocks, creating the directory if needed.] */
+    /* Tests_SRS_FILEUPLOADJOURNAL_44_008: [The uploaded shall add the block id to the uploaded blocks, and append it to the journal of the uploaded blocks.] */
+    /* Tests_SRS_FILEUPLOADJOURNAL_44_010: [The journal shall be written to a temporary file, synced to the storage, and moved over the previous journal.] */
+    @Test
+    public void findReturnsTheCreatedUploadWithItsUploadedBlocks() throws IOException, URISyntaxException
+    {
+        // arrange
+        File directory = new File(temporaryFolder.getRoot(), "journal");
+        URI blobUri = blobUri("2100-01-01T00%3A00%3A00Z");
+        FileUploadJournal.Entry created = create(createJournal(directory), blobUri);
+
+        // act
+        created.uploaded(BLOCK_ID);
+        FileUploadJournal.Entry found = find(createJournal(directory), STREAM_LENGTH, BLOCK_SIZE);
+
+        // assert
+        assertTrue(directory.isDirectory());
+        assertNotNull(found);
+        assertEquals(blobUri, Deencapsulation.invoke(found, "getBlobUri"));
+        assertEquals(CORRELATION_ID, Deencapsulation.invoke(found, "getCorrelationId"));
+        assertTrue(found.isUploaded(BLOCK_ID));
+        assertFalse(found.isUploaded("YmxvY2stMDAwMDAx"));
+        for (File file : directory.listFiles())
+        {
+            assertFalse(file.getName().endsWith(".tmp"));
+        }
+    }
+
+    /* Tests_SRS_FILEUPLOADJOURNAL_44_008: [The uploaded shall add the block id to the uploaded blocks, and append it to the journal of the uploaded blocks.] */
+    @Test
+    public void findIgnoresTheBlockIdTornByAPowerLoss() throws IOException, URISyntaxException
+    {
+        // arrange
+        FileUploadJournal journal = createJournal(temporaryFolder.getRoot());
+        FileUploadJournal.Entry created = create(journal, blobUri("2100-01-01T00%3A00%3A00Z"));
+        created.uploaded(BLOCK_ID);
+        created.uploaded("YmxvY2stMDAwMDAx");
+        File blocksFile = null;
+        for (File file : temporaryFolder.getRoot().listFiles())
+        {
+            if (file.getName().endsWith(".blocks"))
+            {
+                blocksFile = file;
+            }
+        }
+        assertNotNull(blocksFile);
+        try (OutputStream outputStream = new FileOutputStream(blocksFile, true))
+        {
+            outputStream.write("YmxvY2stMD".getBytes(StandardCharsets.UTF_8));
+        }
+
+        // act
+        FileUploadJournal.Entry found = find(journal, STREAM_LENGTH, BLOCK_SIZE);
+
+        // assert
+        assertTrue(found.isUploaded(BLOCK_ID));
+        assertTrue(found.isUploaded("YmxvY2stMDAwMDAx"));
+        assertFalse(found.isUploaded("YmxvY2stMD"));
+    }
+
+    /* Tests_SRS_FILEUPLOADJOURNAL_44_003: [If the journal file is not valid, or is for another stream length or block size, the find shall delete it and return null.] */
+    @Test
+    public void findDiscardsTheUploadOfAnotherStreamLength() throws URISyntaxException
+    {
+        // arrange
+        FileUploadJournal journal = createJournal(temporaryFolder.getRoot());
+        create(journal, blobUri("2100-01-01T00%3A00%3A00Z"));
+
+        // act
+        FileUploadJournal.Entry found = find(journal, STREAM_LENGTH + 1, BLOCK_SIZE);
+
+        // assert
+        assertNull(found);
+        assertNull(find(journal, STREAM_LENGTH, BLOCK_SIZE));
+        assertEquals(0, temporaryFolder.getRoot().listFiles().length);
+    }
+
+    /* Tests_SRS_FILEUPLOADJOURNAL_44_003: [If the journal file is not valid, or is for another stream length or block size, the find shall delete it and return null.] */
+    @Test
+    public void findDiscardsInvalidJournal() throws IOException, URISyntaxException
+    {
+        // arrange
+        FileUploadJournal journal = createJournal(temporaryFolder.getRoot());
+        create(journal, blobUri("2100-01-01T00%3A00%3A00Z"));
+        File journalFile = temporaryFolder.getRoot().listFiles()[0];
+        try (OutputStream outputStream = new FileOutputStream(journalFile))
+        {
+            outputStream.write("streamLength=notANumber".getBytes(StandardCharsets.UTF_8));
+        }
+
+        // act
+        FileUploadJournal.Entry found = find(journal, STREAM_LENGTH, BLOCK_SIZE);
+
+        // assert
+        assertNull(found);
+        assertFalse(journalFile.exists());
+    }
+
+    /* Tests_SRS_FILEUPLOADJOURNAL_44_005: [The isExpired shall return true if the SAS token of the blob URI expires in less than 5 minutes, or has no valid expiry.] */
+    @Test
+    public void isExpiredComparesTheSasExpiryWithNow() throws URISyntaxException
+    {
+        // arrange
+        FileUploadJournal journal = createJournal(temporaryFolder.getRoot());
+
+        // act
+        boolean future = Deencapsulation.invoke(create(journal, blobUri("2100-01-01T00%3A00%3A00Z")), "isExpired");
+        boolean futureDate = Deencapsulation.invoke(create(journal, blobUri("2100-01-01")), "isExpired");
+        boolean past = Deencapsulation.invoke(create(journal, blobUri("2000-01-01T00%3A00%3A00Z")), "isExpired");
+        boolean invalid = Deencapsulation.invoke(create(journal, blobUri("notADate")), "isExpired");
+        boolean missing = Deencapsulation.invoke(create(journal, new URI(BLOB_URI)), "isExpired");
+
+        // assert
+        assertFalse(future);
+        assertFalse(futureDate);
+        assertTrue(past);
+        assertTrue(invalid);
+        assertTrue(missing);
+    }
+
+    /* Tests_SRS_FILEUPLOADJOURNAL_44_007: [The renew shall save the new blob URI, its SAS expiry, and the new correlation id.] */
+    @Test
+    public void renewKeepsTheUploadedBlocksOfTheSameBlob() throws IOException, URISyntaxException
+    {
+        // arrange
+        FileUploadJournal journal = createJournal(temporaryFolder.getRoot());
+        FileUploadJournal.Entry entry = create(journal, blobUri("2000-01-01T00%3A00%3A00Z"));
+        entry.uploaded(BLOCK_ID);
+        URI renewedUri = blobUri("2100-01-01T00%3A00%3A00Z");
+
+        // act
+        Deencapsulation.invoke(entry, "renew", renewedUri, NEW_CORRELATION_ID);
+
+        // assert
+        FileUploadJournal.Entry found = find(journal, STREAM_LENGTH, BLOCK_SIZE);
+        assertEquals(renewedUri, Deencapsulation.invoke(found, "getBlobUri"));
+        assertEquals(NEW_CORRELATION_ID, Deencapsulation.invoke(found, "getCorrelationId"));
+        assertFalse((Boolean) Deencapsulation.invoke(found, "isExpired"));
+        assertTrue(found.isUploaded(BLOCK_ID));
+    }
+
+    /* Tests_SRS_FILEUPLOADJOURNAL_44_006: [If the new blob URI is for another blob, the renew shall forget the uploaded blocks.] */
+    @Test
+    public void renewForgetsTheUploadedBlocksOfAnotherBlob() throws IOException, URISyntaxException
+    {
+        // arrange
+        FileUploadJournal.Entry entry = create(createJournal(temporaryFolder.getRoot()), blobUri("2000-01-01T00%3A00%3A00Z"));
+        entry.uploaded(BLOCK_ID);
+
+        // act
+        Deencapsulation.invoke(entry, "renew", new URI(BLOB_URI + "2?se=2100-01-01"), NEW_CORRELATION_ID);
+
+        // assert
+        assertFalse(entry.isUploaded(BLOCK_ID));
+    }
+
+    /* Tests_SRS_FILEUPLOADJOURNAL_44_011: [The committed shall record that the block list is committed, and save the journal.] */
+    @Test
+    public void findReturnsTheCommittedState() throws IOException, URISyntaxException
+    {
+        // arrange
+        FileUploadJournal journal = createJournal(temporaryFolder.getRoot());
+        FileUploadJournal.Entry created = create(journal, blobUri("2100-01-01T00%3A00%3A00Z"));
+        assertFalse((Boolean) Deencapsulation.invoke(created, "isCommitted"));
+
+        // act
+        Deencapsulation.invoke(created, "committed");
+
+        // assert
+        FileUploadJournal.Entry found = find(journal, STREAM_LENGTH, BLOCK_SIZE);
+        assertTrue((Boolean) Deencapsulation.invoke(found, "isCommitted"));
+        assertEquals(CORRELATION_ID, Deencapsulation.invoke(found, "getCorrelationId"));
+    }
+
+    /* Tests_SRS_FILEUPLOADJOURNAL_44_009: [The delete shall delete the journal file, and only log a failure to delete it.] */
+    @Test
+    public void deleteRemovesTheJournal() throws IOException, URISyntaxException
+    {
+        // arrange
+        FileUploadJournal journal = createJournal(temporaryFolder.getRoot());
+        FileUploadJournal.Entry entry = create(journal, blobUri("2100-01-01T00%3A00%3A00Z"));
+        entry.uploaded(BLOCK_ID);
+
+        // act
+        Deencapsulation.invoke(entry, "delete");
+
+        // assert
+        assertNull(find(journal, STREAM_LENGTH, BLOCK_SIZE));
+        assertEquals(0, temporaryFolder.getRoot().listFiles().length);
+    }
+}
@@ -7,6 +7,8 @@ import com.microsoft.azure.sdk.iot.device.IotHubEventCallback;
 import com.microsoft.azure.sdk.iot.device.IotHubMethod;
 import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
 import com.microsoft.azure.sdk.iot.device.ResponseMessage;
+import com.microsoft.azure.sdk.iot.device.fileupload.BlockBlobUploader;
+import com.microsoft.azure.sdk.iot.device.fileupload.FileUploadJournal;
 import com.microsoft.azure.sdk.iot.device.fileupload.FileUploadTask;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsTransportManager;
@@ -23,6 +25,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -64,6 +68,21 @@ public class FileUploadTaskTest
     @Mocked
     private CloudBlockBlob mockCloudBlockBlob;
 
+    @Mocked
+    private BlockBlobUploader mockBlockBlobUploader;
+
+    @Mocked
+    private FileUploadJournal mockFileUploadJournal;
+
+    @Mocked
+    private FileUploadJournal.Entry mockJournalEntry;
+
+    private static final Class[] UPLOAD_PARAMETER_TYPES = {CloudBlockBlob.class, InputStream.class, long.class, BlockBlobUploader.Checkpoint.class};
+
+    private static final Class[] UPLOAD_FILE_PARAMETER_TYPES = {CloudBlockBlob.class, Path.class, long.class, BlockBlobUploader.Checkpoint.class};
+    private static final Class[] FILE_CONSTRUCTOR_PARAMETER_TYPES = {String.class, Path.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class};
+    private static final Path VALID_PATH = Paths.get("recordings", "image.jpg");
+
     private static final String VALID_BLOB_NAME = "test-device1/image.jpg";
     private static final String VALID_BLOB_NAME_URI = "test-device1%2Fimage.jpg";
     private static final String VALID_CORRELATION_ID = "somecorrelationid";
@@ -89,6 +108,8 @@ public class FileUploadTaskTest
     private static final String VALID_URI_STRING = "https://" + VALID_HOST_NAME + "/" + VALID_CONTAINER_NAME + "/" + VALID_BLOB_NAME_URI + VALID_SAS_TOKEN;
     private static final long VALID_STREAM_LENGTH = 100;
     private static final Map<String, Object> VALID_CALLBACK_CONTEXT = new HashMap<>();
+    private static final int VALID_BLOCK_SIZE = 4;
+    private static final Class[] FIND_PARAMETER_TYPES = {String.class, long.class, int.class};
 
 
 
@@ -189,6 +210,33 @@ public class FileUploadTaskTest
         };
     }
 
+    private void journalExpectations(final FileUploadJournal.Entry journalEntry, final boolean isExpired) throws IOException, URISyntaxException
+    {
+        final URI journaledUri = new URI(VALID_URI_STRING);
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockBlockBlobUploader, "getBlockSize");
+                result = VALID_BLOCK_SIZE;
+                Deencapsulation.invoke(mockFileUploadJournal, "find", FIND_PARAMETER_TYPES, VALID_BLOB_NAME, VALID_STREAM_LENGTH, VALID_BLOCK_SIZE);
+                result = journalEntry;
+                Deencapsulation.invoke(mockJournalEntry, "isExpired");
+                result = isExpired;
+                Deencapsulation.invoke(mockJournalEntry, "getBlobUri");
+                result = journaledUri;
+                Deencapsulation.invoke(mockJournalEntry, "getCorrelationId");
+                result = VALID_CORRELATION_ID;
+            }
+        };
+    }
+
+    private FileUploadTask createResumableTask()
+    {
+        return Deencapsulation.newInstance(FileUploadTask.class,
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, mockFileUploadJournal, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+    }
+
     private void expectSuccess(
             final String blobName, final String correlationId, final String hostName, final String containerName, final String sasToken,
             final String requestJson, final String responseJson, final String notificationJson)
@@ -210,8 +258,8 @@ public class FileUploadTaskTest
 
         // act
         Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                blobName, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                blobName, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
     }
 
     /* Tests_SRS_FILEUPLOADTASK_21_001: [If the `blobName` is null or empty, the constructor shall throw IllegalArgumentException.] */
@@ -223,8 +271,8 @@ public class FileUploadTaskTest
 
         // act
         Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                blobName, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                blobName, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
     }
 
     /* Tests_SRS_FILEUPLOADTASK_21_002: [If the `inputStream` is null, the constructor shall throw IllegalArgumentException.] */
@@ -235,8 +283,19 @@ public class FileUploadTaskTest
 
         // act
         Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, null, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, null, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+    }
+
+    /* Tests_SRS_FILEUPLOADTASK_44_009: [If the `path` is null, the constructor shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorNullPathThrows()
+    {
+        // arrange
+
+        // act
+        Deencapsulation.newInstance(FileUploadTask.class, FILE_CONSTRUCTOR_PARAMETER_TYPES,
+                VALID_BLOB_NAME, null, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
     }
 
     /* Tests_SRS_FILEUPLOADTASK_21_003: [If the `streamLength` is negative, the constructor shall throw IllegalArgumentException.] */
@@ -248,8 +307,8 @@ public class FileUploadTaskTest
 
         // act
         Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, streamLength, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, streamLength, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
     }
 
     /* Tests_SRS_FILEUPLOADTASK_21_004: [If the `httpsTransportManager` is null, the constructor shall throw IllegalArgumentException.] */
@@ -260,8 +319,20 @@ public class FileUploadTaskTest
 
         // act
         Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, null, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+    }
+
+    /* Tests_SRS_FILEUPLOADTASK_44_001: [If the `blockBlobUploader` is null, the constructor shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorNullBlockBlobUploaderThrows()
+    {
+        // arrange
+
+        // act
+        Deencapsulation.newInstance(FileUploadTask.class,
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, null, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
     }
 
     /* Tests_SRS_FILEUPLOADTASK_21_005: [If the `userCallback` is null, the constructor shall throw IllegalArgumentException.] */
@@ -272,8 +343,8 @@ public class FileUploadTaskTest
 
         // act
         Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, null, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, null, VALID_CALLBACK_CONTEXT);
     }
 
     /* Tests_SRS_FILEUPLOADTASK_21_006: [The constructor shall store all the provided parameters.] */
@@ -284,8 +355,8 @@ public class FileUploadTaskTest
 
         // act
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // assert
         assertEquals(Deencapsulation.getField(fileUploadTask, "blobName"), VALID_BLOB_NAME);
@@ -294,6 +365,7 @@ public class FileUploadTaskTest
         assertEquals(Deencapsulation.getField(fileUploadTask, "userCallback"), mockIotHubEventCallback);
         assertEquals(Deencapsulation.getField(fileUploadTask, "userCallbackContext"), VALID_CALLBACK_CONTEXT);
         assertEquals(Deencapsulation.getField(fileUploadTask, "httpsTransportManager"), mockHttpsTransportManager);
+        assertEquals(Deencapsulation.getField(fileUploadTask, "blockBlobUploader"), mockBlockBlobUploader);
     }
 
     /* Tests_SRS_FILEUPLOADTASK_21_007: [The run shall create a FileUpload request message, by using the FileUploadRequestParser.] */
@@ -304,8 +376,8 @@ public class FileUploadTaskTest
         expectSuccess(VALID_BLOB_NAME, VALID_CORRELATION_ID, VALID_HOST_NAME, VALID_CONTAINER_NAME, VALID_SAS_TOKEN,
                 VALID_REQUEST_JSON, VALID_RESPONSE_JSON, VALID_NOTIFICATION_JSON);
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -319,8 +391,8 @@ public class FileUploadTaskTest
         expectSuccess(VALID_BLOB_NAME, VALID_CORRELATION_ID, VALID_HOST_NAME, VALID_CONTAINER_NAME, VALID_SAS_TOKEN,
                 VALID_REQUEST_JSON, VALID_RESPONSE_JSON, VALID_NOTIFICATION_JSON);
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -344,8 +416,8 @@ public class FileUploadTaskTest
         expectSuccess(VALID_BLOB_NAME, VALID_CORRELATION_ID, VALID_HOST_NAME, VALID_CONTAINER_NAME, VALID_SAS_TOKEN,
                 VALID_REQUEST_JSON, VALID_RESPONSE_JSON, VALID_NOTIFICATION_JSON);
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -368,8 +440,8 @@ public class FileUploadTaskTest
         expectSuccess(VALID_BLOB_NAME, VALID_CORRELATION_ID, VALID_HOST_NAME, VALID_CONTAINER_NAME, VALID_SAS_TOKEN,
                 VALID_REQUEST_JSON, VALID_RESPONSE_JSON, VALID_NOTIFICATION_JSON);
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -393,8 +465,8 @@ public class FileUploadTaskTest
         expectSuccess(VALID_BLOB_NAME, VALID_CORRELATION_ID, VALID_HOST_NAME, VALID_CONTAINER_NAME, VALID_SAS_TOKEN,
                 VALID_REQUEST_JSON, VALID_RESPONSE_JSON, VALID_NOTIFICATION_JSON);
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -418,8 +490,8 @@ public class FileUploadTaskTest
         expectSuccess(VALID_BLOB_NAME, VALID_CORRELATION_ID, VALID_HOST_NAME, VALID_CONTAINER_NAME, VALID_SAS_TOKEN,
                 VALID_REQUEST_JSON, VALID_RESPONSE_JSON, VALID_NOTIFICATION_JSON);
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -447,8 +519,8 @@ public class FileUploadTaskTest
         expectSuccess(VALID_BLOB_NAME, VALID_CORRELATION_ID, VALID_HOST_NAME, VALID_CONTAINER_NAME, VALID_SAS_TOKEN,
                 VALID_REQUEST_JSON, VALID_RESPONSE_JSON, VALID_NOTIFICATION_JSON);
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -476,14 +548,14 @@ public class FileUploadTaskTest
         expectSuccess(VALID_BLOB_NAME, VALID_CORRELATION_ID, VALID_HOST_NAME, VALID_CONTAINER_NAME, VALID_SAS_TOKEN,
                 VALID_REQUEST_JSON, VALID_RESPONSE_JSON, VALID_NOTIFICATION_JSON);
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
     }
 
-    /* Tests_SRS_FILEUPLOADTASK_21_020: [The run shall upload the `inputStream` with the `streamLength` to the created `CloudBlockBlob`.] */
+    /* Tests_SRS_FILEUPLOADTASK_21_020: [The run shall upload the `inputStream` with the `streamLength` to the created `CloudBlockBlob`, by using the blockBlobUploader.] */
     @Test
     public void runUploadStreamToCloudBlockBlob() throws IOException, IllegalArgumentException, URISyntaxException, StorageException
     {
@@ -491,8 +563,8 @@ public class FileUploadTaskTest
         expectSuccess(VALID_BLOB_NAME, VALID_CORRELATION_ID, VALID_HOST_NAME, VALID_CONTAINER_NAME, VALID_SAS_TOKEN,
                 VALID_REQUEST_JSON, VALID_RESPONSE_JSON, VALID_NOTIFICATION_JSON);
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -501,7 +573,34 @@ public class FileUploadTaskTest
         new Verifications()
         {
             {
-                mockCloudBlockBlob.upload(mockInputStream, VALID_STREAM_LENGTH);
+                Deencapsulation.invoke(mockBlockBlobUploader, "upload", UPLOAD_PARAMETER_TYPES, mockCloudBlockBlob, mockInputStream, VALID_STREAM_LENGTH, null);
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_FILEUPLOADTASK_44_010: [The run shall upload a file from its `path`, by using the blockBlobUploader.] */
+    @Test
+    public void runUploadFileToCloudBlockBlob() throws IOException, IllegalArgumentException, URISyntaxException, StorageException
+    {
+        // arrange
+        expectSuccess(VALID_BLOB_NAME, VALID_CORRELATION_ID, VALID_HOST_NAME, VALID_CONTAINER_NAME, VALID_SAS_TOKEN,
+                VALID_REQUEST_JSON, VALID_RESPONSE_JSON, VALID_NOTIFICATION_JSON);
+        FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class, FILE_CONSTRUCTOR_PARAMETER_TYPES,
+                VALID_BLOB_NAME, VALID_PATH, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+
+        // act
+        Deencapsulation.invoke(fileUploadTask, "run");
+
+        // assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockBlockBlobUploader, "upload", UPLOAD_FILE_PARAMETER_TYPES, mockCloudBlockBlob, VALID_PATH, VALID_STREAM_LENGTH, null);
+                times = 1;
+                Deencapsulation.invoke(mockBlockBlobUploader, "upload", UPLOAD_PARAMETER_TYPES, mockCloudBlockBlob, (InputStream) any, anyLong, null);
+                times = 0;
+                mockIotHubEventCallback.execute(IotHubStatusCode.OK, VALID_CALLBACK_CONTEXT);
                 times = 1;
             }
         };
@@ -515,8 +614,8 @@ public class FileUploadTaskTest
         expectSuccess(VALID_BLOB_NAME, VALID_CORRELATION_ID, VALID_HOST_NAME, VALID_CONTAINER_NAME, VALID_SAS_TOKEN,
                 VALID_REQUEST_JSON, VALID_RESPONSE_JSON, VALID_NOTIFICATION_JSON);
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -530,8 +629,8 @@ public class FileUploadTaskTest
         expectSuccess(VALID_BLOB_NAME, VALID_CORRELATION_ID, VALID_HOST_NAME, VALID_CONTAINER_NAME, VALID_SAS_TOKEN,
                 VALID_REQUEST_JSON, VALID_RESPONSE_JSON, VALID_NOTIFICATION_JSON);
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -545,8 +644,8 @@ public class FileUploadTaskTest
         expectSuccess(VALID_BLOB_NAME, VALID_CORRELATION_ID, VALID_HOST_NAME, VALID_CONTAINER_NAME, VALID_SAS_TOKEN,
                 VALID_REQUEST_JSON, VALID_RESPONSE_JSON, VALID_NOTIFICATION_JSON);
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -569,8 +668,8 @@ public class FileUploadTaskTest
         expectSuccess(VALID_BLOB_NAME, VALID_CORRELATION_ID, VALID_HOST_NAME, VALID_CONTAINER_NAME, VALID_SAS_TOKEN,
                 VALID_REQUEST_JSON, VALID_RESPONSE_JSON, VALID_NOTIFICATION_JSON);
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -593,8 +692,8 @@ public class FileUploadTaskTest
         expectSuccess(VALID_BLOB_NAME, VALID_CORRELATION_ID, VALID_HOST_NAME, VALID_CONTAINER_NAME, VALID_SAS_TOKEN,
                 VALID_REQUEST_JSON, VALID_RESPONSE_JSON, VALID_NOTIFICATION_JSON);
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -623,8 +722,8 @@ public class FileUploadTaskTest
         };
 
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -657,8 +756,8 @@ public class FileUploadTaskTest
         };
 
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -693,8 +792,8 @@ public class FileUploadTaskTest
         };
 
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -726,8 +825,8 @@ public class FileUploadTaskTest
         };
 
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -759,8 +858,8 @@ public class FileUploadTaskTest
         };
 
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -794,8 +893,8 @@ public class FileUploadTaskTest
         };
 
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -829,8 +928,8 @@ public class FileUploadTaskTest
         };
 
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -864,8 +963,8 @@ public class FileUploadTaskTest
         };
 
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -901,8 +1000,8 @@ public class FileUploadTaskTest
         };
 
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -925,8 +1024,8 @@ public class FileUploadTaskTest
         };
 
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -960,8 +1059,8 @@ public class FileUploadTaskTest
         failedNotificationExpectations(VALID_CORRELATION_ID, VALID_NOTIFICATION_JSON);
 
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -990,15 +1089,15 @@ public class FileUploadTaskTest
             {
                 new CloudBlockBlob((URI) any);
                 result = mockCloudBlockBlob;
-                mockCloudBlockBlob.upload(mockInputStream, VALID_STREAM_LENGTH);
+                Deencapsulation.invoke(mockBlockBlobUploader, "upload", UPLOAD_PARAMETER_TYPES, mockCloudBlockBlob, mockInputStream, VALID_STREAM_LENGTH, null);
                 result = new StorageException("", "", 0, new StorageExtendedErrorInformation(), new Exception());
             }
         };
         failedNotificationExpectations(VALID_CORRELATION_ID, VALID_NOTIFICATION_JSON);
 
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -1007,7 +1106,7 @@ public class FileUploadTaskTest
         new Verifications()
         {
             {
-                mockCloudBlockBlob.upload(mockInputStream, VALID_STREAM_LENGTH);
+                Deencapsulation.invoke(mockBlockBlobUploader, "upload", UPLOAD_PARAMETER_TYPES, mockCloudBlockBlob, mockInputStream, VALID_STREAM_LENGTH, null);
                 times = 1;
                 mockIotHubEventCallback.execute(IotHubStatusCode.ERROR, VALID_CALLBACK_CONTEXT);
                 times = 1;
@@ -1033,8 +1132,8 @@ public class FileUploadTaskTest
         };
 
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -1071,8 +1170,8 @@ public class FileUploadTaskTest
         };
 
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -1102,8 +1201,8 @@ public class FileUploadTaskTest
         };
 
         FileUploadTask fileUploadTask = Deencapsulation.newInstance(FileUploadTask.class,
-                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
+                new Class[] {String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                VALID_BLOB_NAME, mockInputStream, VALID_STREAM_LENGTH, mockHttpsTransportManager, mockBlockBlobUploader, null, mockIotHubEventCallback, VALID_CALLBACK_CONTEXT);
 
         // act
         Deencapsulation.invoke(fileUploadTask, "run");
@@ -1120,4 +1219,221 @@ public class FileUploadTaskTest
         };
     }
 
+    /* Tests_SRS_FILEUPLOADTASK_44_003: [If the upload is resumable, the run shall look for the journal of the upload of the same blob name, stream length and block size.] */
+    /* Tests_SRS_FILEUPLOADTASK_44_004: [If the upload is journaled with a SAS token that is not expired, or as committed, the run shall resume it with the journaled blob URI and correlationId, without requesting a new blob to the IoT Hub.] */
+    /* Tests_SRS_FILEUPLOADTASK_44_006: [The run shall upload only the blocks that are not journaled as uploaded, and journal each uploaded block.] */
+    /* Tests_SRS_FILEUPLOADTASK_44_007: [If the upload to blob succeed, the run shall journal it as committed.] */
+    /* Tests_SRS_FILEUPLOADTASK_44_012: [The run shall delete the journal of an upload only once the IoT Hub accepted its notification, so a failed notification is sent again by the next run.] */
+    @Test
+    public void runResumesJournaledUploadWithoutRequestingBlob() throws IOException, IllegalArgumentException, URISyntaxException, StorageException
+    {
+        // arrange
+        journalExpectations(mockJournalEntry, false);
+        cloudExpectations();
+        notificationExpectations(VALID_CORRELATION_ID, VALID_NOTIFICATION_JSON);
+        new NonStrictExpectations()
+        {
+            {
+                mockResponseMessage.getStatus();
+                result = IotHubStatusCode.OK;
+            }
+        };
+        FileUploadTask fileUploadTask = createResumableTask();
+
+        // act
+        Deencapsulation.invoke(fileUploadTask, "run");
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockHttpsTransportManager.sendFileUploadMessage((IotHubTransportMessage) any);
+                times = 0;
+                Deencapsulation.invoke(mockBlockBlobUploader, "upload", UPLOAD_PARAMETER_TYPES, mockCloudBlockBlob, mockInputStream, VALID_STREAM_LENGTH, mockJournalEntry);
+                times = 1;
+                Deencapsulation.invoke(mockJournalEntry, "committed");
+                times = 1;
+                Deencapsulation.invoke(mockJournalEntry, "delete");
+                times = 1;
+                mockHttpsTransportManager.sendFileUploadNotification(mockMessageNotification);
+                times = 1;
+                mockIotHubEventCallback.execute(IotHubStatusCode.OK, VALID_CALLBACK_CONTEXT);
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_FILEUPLOADTASK_44_005: [If the upload is resumable, the run shall journal the blob URI and correlationId provided by the IoT Hub, keeping the uploaded blocks of a journaled upload of the same blob.] */
+    @Test
+    public void runRequestsNewBlobWhenJournaledSasIsExpired() throws IOException, IllegalArgumentException, URISyntaxException, StorageException
+    {
+        // arrange
+        expectSuccess(VALID_BLOB_NAME, VALID_CORRELATION_ID, VALID_HOST_NAME, VALID_CONTAINER_NAME, VALID_SAS_TOKEN,
+                VALID_REQUEST_JSON, VALID_RESPONSE_JSON, VALID_NOTIFICATION_JSON);
+        journalExpectations(mockJournalEntry, true);
+        FileUploadTask fileUploadTask = createResumableTask();
+
+        // act
+        Deencapsulation.invoke(fileUploadTask, "run");
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockHttpsTransportManager.sendFileUploadMessage(mockMessageRequest);
+                times = 1;
+                Deencapsulation.invoke(mockJournalEntry, "renew", new URI(VALID_URI_STRING), VALID_CORRELATION_ID);
+                times = 1;
+                Deencapsulation.invoke(mockBlockBlobUploader, "upload", UPLOAD_PARAMETER_TYPES, mockCloudBlockBlob, mockInputStream, VALID_STREAM_LENGTH, mockJournalEntry);
+                times = 1;
+                mockIotHubEventCallback.execute(IotHubStatusCode.OK, VALID_CALLBACK_CONTEXT);
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_FILEUPLOADTASK_44_005: [If the upload is resumable, the run shall journal the blob URI and correlationId provided by the IoT Hub, keeping the uploaded blocks of a journaled upload of the same blob.] */
+    @Test
+    public void runJournalsNewUpload() throws IOException, IllegalArgumentException, URISyntaxException, StorageException
+    {
+        // arrange
+        expectSuccess(VALID_BLOB_NAME, VALID_CORRELATION_ID, VALID_HOST_NAME, VALID_CONTAINER_NAME, VALID_SAS_TOKEN,
+                VALID_REQUEST_JSON, VALID_RESPONSE_JSON, VALID_NOTIFICATION_JSON);
+        journalExpectations(null, false);
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockFileUploadJournal, "create",
+                        new Class[] {String.class, long.class, int.class, URI.class, String.class},
+                        VALID_BLOB_NAME, VALID_STREAM_LENGTH, VALID_BLOCK_SIZE, new URI(VALID_URI_STRING), VALID_CORRELATION_ID);
+                result = mockJournalEntry;
+            }
+        };
+        FileUploadTask fileUploadTask = createResumableTask();
+
+        // act
+        Deencapsulation.invoke(fileUploadTask, "run");
+
+        // assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockFileUploadJournal, "create",
+                        new Class[] {String.class, long.class, int.class, URI.class, String.class},
+                        VALID_BLOB_NAME, VALID_STREAM_LENGTH, VALID_BLOCK_SIZE, new URI(VALID_URI_STRING), VALID_CORRELATION_ID);
+                times = 1;
+                Deencapsulation.invoke(mockBlockBlobUploader, "upload", UPLOAD_PARAMETER_TYPES, mockCloudBlockBlob, mockInputStream, VALID_STREAM_LENGTH, mockJournalEntry);
+                times = 1;
+                Deencapsulation.invoke(mockJournalEntry, "delete");
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_FILEUPLOADTASK_44_008: [If a journaled upload to blob failed, the run shall keep its journal and shall not notify the IoT Hub, so that the upload can be resumed with the same correlationId.] */
+    @Test
+    public void runKeepsJournalWhenJournaledUploadFails() throws IOException, IllegalArgumentException, URISyntaxException, StorageException
+    {
+        // arrange
+        journalExpectations(mockJournalEntry, false);
+        cloudExpectations();
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockBlockBlobUploader, "upload", UPLOAD_PARAMETER_TYPES, mockCloudBlockBlob, mockInputStream, VALID_STREAM_LENGTH, mockJournalEntry);
+                result = new StorageException("", "", 0, new StorageExtendedErrorInformation(), new Exception());
+            }
+        };
+        FileUploadTask fileUploadTask = createResumableTask();
+
+        // act
+        Deencapsulation.invoke(fileUploadTask, "run");
+
+        // assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockJournalEntry, "delete");
+                times = 0;
+                mockHttpsTransportManager.sendFileUploadNotification((IotHubTransportMessage) any);
+                times = 0;
+                mockIotHubEventCallback.execute(IotHubStatusCode.ERROR, VALID_CALLBACK_CONTEXT);
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_FILEUPLOADTASK_44_012: [The run shall delete the journal of an upload only once the IoT Hub accepted its notification, so a failed notification is sent again by the next run.] */
+    @Test
+    public void runKeepsCommittedJournalWhenNotificationFails() throws IOException, IllegalArgumentException, URISyntaxException, StorageException
+    {
+        // arrange
+        journalExpectations(mockJournalEntry, false);
+        cloudExpectations();
+        notificationExpectations(VALID_CORRELATION_ID, VALID_NOTIFICATION_JSON);
+        new NonStrictExpectations()
+        {
+            {
+                mockResponseMessage.getStatus();
+                result = IotHubStatusCode.SERVER_BUSY;
+            }
+        };
+        FileUploadTask fileUploadTask = createResumableTask();
+
+        // act
+        Deencapsulation.invoke(fileUploadTask, "run");
+
+        // assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockJournalEntry, "committed");
+                times = 1;
+                Deencapsulation.invoke(mockJournalEntry, "delete");
+                times = 0;
+                mockIotHubEventCallback.execute(IotHubStatusCode.SERVER_BUSY, VALID_CALLBACK_CONTEXT);
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_FILEUPLOADTASK_44_004: [If the upload is journaled with a SAS token that is not expired, or as committed, the run shall resume it with the journaled blob URI and correlationId, without requesting a new blob to the IoT Hub.] */
+    /* Tests_SRS_FILEUPLOADTASK_44_011: [If the upload is journaled as committed, the run shall not upload it again, and shall only notify the IoT Hub.] */
+    @Test
+    public void runOnlyNotifiesWhenJournaledUploadIsCommitted() throws IOException, IllegalArgumentException, URISyntaxException, StorageException
+    {
+        // arrange
+        journalExpectations(mockJournalEntry, true);
+        notificationExpectations(VALID_CORRELATION_ID, VALID_NOTIFICATION_JSON);
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockJournalEntry, "isCommitted");
+                result = true;
+                mockResponseMessage.getStatus();
+                result = IotHubStatusCode.OK;
+            }
+        };
+        FileUploadTask fileUploadTask = createResumableTask();
+
+        // act
+        Deencapsulation.invoke(fileUploadTask, "run");
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockHttpsTransportManager.sendFileUploadMessage((IotHubTransportMessage) any);
+                times = 0;
+                Deencapsulation.invoke(mockBlockBlobUploader, "upload", UPLOAD_PARAMETER_TYPES, mockCloudBlockBlob, mockInputStream, VALID_STREAM_LENGTH, mockJournalEntry);
+                times = 0;
+                mockHttpsTransportManager.sendFileUploadNotification(mockMessageNotification);
+                times = 1;
+                Deencapsulation.invoke(mockJournalEntry, "delete");
+                times = 1;
+                mockIotHubEventCallback.execute(IotHubStatusCode.OK, VALID_CALLBACK_CONTEXT);
+                times = 1;
+            }
+        };
+    }
 }
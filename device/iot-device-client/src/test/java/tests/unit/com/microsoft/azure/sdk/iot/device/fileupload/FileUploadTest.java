@@ -7,22 +7,31 @@ import com.microsoft.azure.sdk.iot.device.CustomLogger;
 import com.microsoft.azure.sdk.iot.device.DeviceClientConfig;
 import com.microsoft.azure.sdk.iot.device.IotHubEventCallback;
 import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
+import com.microsoft.azure.sdk.iot.device.fileupload.BlockBlobUploader;
 import com.microsoft.azure.sdk.iot.device.fileupload.FileUpload;
 import com.microsoft.azure.sdk.iot.device.fileupload.FileUploadInProgress;
+import com.microsoft.azure.sdk.iot.device.fileupload.FileUploadJournal;
 import com.microsoft.azure.sdk.iot.device.fileupload.FileUploadTask;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsTransportManager;
 import mockit.*;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 
 import static org.junit.Assert.assertNotNull;
 
@@ -56,6 +65,15 @@ public class FileUploadTest
     @Mocked
     private FileUploadInProgress mockFileUploadInProgress;
 
+    @Mocked
+    private ExecutorService mockBlockUploadExecutor;
+
+    @Mocked
+    private BlockBlobUploader mockBlockBlobUploader;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private void constructorExpectations()
     {
         new NonStrictExpectations()
@@ -65,6 +83,8 @@ public class FileUploadTest
                 result = mockHttpsTransportManager;
                 Executors.newScheduledThreadPool(10);
                 result = mockScheduler;
+                Executors.newCachedThreadPool((ThreadFactory) any);
+                result = mockBlockUploadExecutor;
             }
         };
     }
@@ -80,6 +100,7 @@ public class FileUploadTest
     /* Tests_SRS_FILEUPLOAD_21_002: [The constructor shall create a new instance of `HttpsTransportManager` with the provided `config`.] */
     /* Tests_SRS_FILEUPLOAD_21_012: [The constructor shall create an pool of 10 threads to execute the uploads in parallel.] */
     /* Tests_SRS_FILEUPLOAD_21_013: [The constructor shall create a list `fileUploadInProgressesSet` to control the pending uploads.] */
+    /* Tests_SRS_FILEUPLOAD_44_001: [The constructor shall create a pool of threads that grows on demand to upload the blocks of the uploads.] */
     @Test
     public void constructorSuccess(@Mocked final LinkedBlockingDeque<?> mockFileUploadInProgressQueue) throws IOException
     {
@@ -91,6 +112,8 @@ public class FileUploadTest
                 result = mockHttpsTransportManager;
                 Executors.newScheduledThreadPool(10);
                 result = mockScheduler;
+                Executors.newCachedThreadPool((ThreadFactory) any);
+                result = mockBlockUploadExecutor;
             }
         };
 
@@ -150,6 +173,7 @@ public class FileUploadTest
     /* Tests_SRS_FILEUPLOAD_21_009: [The uploadToBlobAsync shall create a `FileUploadTask` to control this file upload.] */
     /* Tests_SRS_FILEUPLOAD_21_010: [The uploadToBlobAsync shall schedule the task `FileUploadTask` to immediately start.] */
     /* Tests_SRS_FILEUPLOAD_21_016: [The uploadToBlobAsync shall create a `FileUploadInProgress` to store the fileUpload context.] */
+    /* Tests_SRS_FILEUPLOAD_44_002: [The uploadToBlobAsync shall upload the blocks with the block size and the parallelism of the config.] */
     @Test
     public void uploadToBlobAsyncSuccess() throws IOException
     {
@@ -167,14 +191,23 @@ public class FileUploadTest
             {
                 mockInputStream.available();
                 result = streamLength;
+                mockConfig.getFileUploadBlockSize();
+                result = 1024;
+                mockConfig.getFileUploadParallelism();
+                result = 2;
+                Deencapsulation.newInstance(BlockBlobUploader.class,
+                        new Class[] {int.class, int.class, ExecutorService.class},
+                        1024, 2, mockBlockUploadExecutor);
+                result = mockBlockBlobUploader;
+                times = 1;
                 Deencapsulation.newInstance(FileUploadInProgress.class,
                         new Class[] {IotHubEventCallback.class, Object.class},
                         mockIotHubEventCallback, context);
                 result = mockFileUploadInProgress;
                 times = 1;
                 Deencapsulation.newInstance(FileUploadTask.class,
-                        new Class[] { String.class, InputStream.class, long.class, HttpsTransportManager.class, IotHubEventCallback.class, Object.class},
-                        blobName, mockInputStream, streamLength, mockHttpsTransportManager, (IotHubEventCallback)any, mockFileUploadInProgress);
+                        new Class[] { String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                        blobName, mockInputStream, streamLength, mockHttpsTransportManager, mockBlockBlobUploader, null, (IotHubEventCallback)any, mockFileUploadInProgress);
                 result = mockFileUploadTask;
                 times = 1;
                 mockScheduler.submit(mockFileUploadTask);
@@ -186,6 +219,113 @@ public class FileUploadTest
         fileUpload.uploadToBlobAsync(blobName, mockInputStream, streamLength, mockIotHubEventCallback, context);
     }
 
+    /* Tests_SRS_FILEUPLOAD_44_004: [If the config has a file upload journal directory, the uploadToBlobAsync shall make the upload resumable with a journal in that directory.] */
+    @Test
+    public void uploadToBlobAsyncWithJournalDirectorySucceed(@Mocked final FileUploadJournal mockFileUploadJournal) throws IOException
+    {
+        // arrange
+        final String blobName = "validBlobName";
+        final long streamLength = 100;
+        final Map<String, Object> context = new HashMap<>();
+        final String journalDirectory = "someJournalDirectory";
+
+        constructorExpectations();
+        FileUpload fileUpload = new FileUpload(mockConfig);
+
+        // assert
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getFileUploadJournalDirectory();
+                result = journalDirectory;
+                Deencapsulation.newInstance(FileUploadJournal.class, new Class[] {File.class}, new File(journalDirectory));
+                result = mockFileUploadJournal;
+                times = 1;
+                Deencapsulation.newInstance(FileUploadInProgress.class,
+                        new Class[] {IotHubEventCallback.class, Object.class},
+                        mockIotHubEventCallback, context);
+                result = mockFileUploadInProgress;
+                Deencapsulation.newInstance(FileUploadTask.class,
+                        new Class[] { String.class, InputStream.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                        blobName, mockInputStream, streamLength, mockHttpsTransportManager, (BlockBlobUploader)any, mockFileUploadJournal, (IotHubEventCallback)any, mockFileUploadInProgress);
+                result = mockFileUploadTask;
+                times = 1;
+            }
+        };
+
+        // act
+        fileUpload.uploadToBlobAsync(blobName, mockInputStream, streamLength, mockIotHubEventCallback, context);
+    }
+
+    /* Tests_SRS_FILEUPLOAD_44_007: [The uploadToBlobAsync shall schedule a `FileUploadTask` that uploads the file with its size, with the same options as the upload of a stream.] */
+    @Test
+    public void uploadToBlobAsyncFileSucceed() throws IOException
+    {
+        // arrange
+        final String blobName = "validBlobName";
+        final Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, new byte[100]);
+        final Map<String, Object> context = new HashMap<>();
+
+        constructorExpectations();
+        FileUpload fileUpload = new FileUpload(mockConfig);
+
+        // assert
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getFileUploadBlockSize();
+                result = 1024;
+                mockConfig.getFileUploadParallelism();
+                result = 2;
+                Deencapsulation.newInstance(BlockBlobUploader.class,
+                        new Class[] {int.class, int.class, ExecutorService.class},
+                        1024, 2, mockBlockUploadExecutor);
+                result = mockBlockBlobUploader;
+                times = 1;
+                Deencapsulation.newInstance(FileUploadInProgress.class,
+                        new Class[] {IotHubEventCallback.class, Object.class},
+                        mockIotHubEventCallback, context);
+                result = mockFileUploadInProgress;
+                times = 1;
+                Deencapsulation.newInstance(FileUploadTask.class,
+                        new Class[] { String.class, Path.class, long.class, HttpsTransportManager.class, BlockBlobUploader.class, FileUploadJournal.class, IotHubEventCallback.class, Object.class},
+                        blobName, file, 100L, mockHttpsTransportManager, mockBlockBlobUploader, null, (IotHubEventCallback)any, mockFileUploadInProgress);
+                result = mockFileUploadTask;
+                times = 1;
+                mockScheduler.submit(mockFileUploadTask);
+                times = 1;
+            }
+        };
+
+        // act
+        fileUpload.uploadToBlobAsync(blobName, file, mockIotHubEventCallback, context);
+    }
+
+    /* Tests_SRS_FILEUPLOAD_44_005: [If the `blobName` is null or empty, the `path` is null, or the `userCallback` is null, the uploadToBlobAsync shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void uploadToBlobAsyncNullPathThrows() throws IOException
+    {
+        // arrange
+        constructorExpectations();
+        FileUpload fileUpload = new FileUpload(mockConfig);
+
+        // act
+        fileUpload.uploadToBlobAsync("validBlobName", (Path) null, mockIotHubEventCallback, null);
+    }
+
+    /* Tests_SRS_FILEUPLOAD_44_006: [If the size of the file cannot be read, the uploadToBlobAsync shall throw IOException.] */
+    @Test (expected = IOException.class)
+    public void uploadToBlobAsyncMissingFileThrows() throws IOException
+    {
+        // arrange
+        constructorExpectations();
+        FileUpload fileUpload = new FileUpload(mockConfig);
+
+        // act
+        fileUpload.uploadToBlobAsync("validBlobName", new File(temporaryFolder.getRoot(), "missing").toPath(), mockIotHubEventCallback, null);
+    }
+
     /* Tests_SRS_FILEUPLOAD_21_005: [If the `blobName` is null or empty, the uploadToBlobAsync shall throw IllegalArgumentException.] */
     @Test (expected = IllegalArgumentException.class)
     public void uploadToBlobAsyncNullBlobNameThrows() throws IOException
@@ -288,6 +428,7 @@ public class FileUploadTest
     }
 
     /* Tests_SRS_FILEUPLOAD_21_017: [The closeNow shall shutdown the thread pool by calling `shutdownNow`.] */
+    /* Tests_SRS_FILEUPLOAD_44_003: [The closeNow shall shutdown the pool of threads of the blocks by calling `shutdownNow`.] */
     @Test
     public void closeNowSuccess() throws IOException
     {
@@ -304,6 +445,8 @@ public class FileUploadTest
             {
                 mockScheduler.shutdownNow();
                 times = 1;
+                mockBlockUploadExecutor.shutdownNow();
+                times = 1;
             }
         };
 
@@ -198,6 +198,9 @@ public class HttpsHsmClientTest
     }
 
     // Tests_SRS_HSMHTTPCLIENT_34_006: [If the scheme of the provided url is Unix, this function shall send the http request using unix domain sockets.]
+    // Tests_SRS_HSMHTTPCLIENT_44_003: [If the scheme of the provided url is Unix, this function shall send the
+    // http request on a keep-alive connection from the pool of connections to that unix socket, and shall read the
+    // response straight from that connection.]
     @Test
     public void signSuccessWithUnix(@Mocked final URI mockedURI) throws IOException, TransportException, URISyntaxException, HsmException
     {
@@ -220,7 +223,7 @@ public class HttpsHsmClientTest
                 new HttpsRequest((URL) any, HttpsMethod.POST, expectedJson.getBytes(), anyString);
                 result = mockedHttpsRequest;
 
-                HttpsRequestResponseSerializer.serializeRequest(mockedHttpsRequest, anyString, anyString, anyString);
+                HttpsRequestResponseSerializer.serializeRequest(mockedHttpsRequest, anyString, anyString, anyString, true);
                 result = expectedMetaData;
 
                 mockedHttpsRequest.getBody();
@@ -232,13 +235,18 @@ public class HttpsHsmClientTest
                 UnixSocketChannel.open(mockedUnixSocketAddress);
                 result = mockedUnixSocketChannel;
 
-                mockedUnixSocketChannel.read((ByteBuffer) any);
-                result = -1;
-
-                Channels.newOutputStream(mockedUnixSocketChannel);
-                result = mockedOutputStream;
-
-                HttpsRequestResponseSerializer.deserializeResponse((BufferedReader) any);
+                mockedUnixSocketChannel.write((ByteBuffer) any);
+                result = new Delegate()
+                {
+                    int write(ByteBuffer buffer)
+                    {
+                        int written = buffer.remaining();
+                        buffer.position(buffer.limit());
+                        return written;
+                    }
+                };
+
+                HttpsRequestResponseSerializer.deserializeResponse(mockedUnixSocketChannel, (ByteBuffer) any);
                 result = mockedHttpsResponse;
 
                 mockedHttpsResponse.getStatus();
@@ -256,14 +264,14 @@ public class HttpsHsmClientTest
         new Verifications()
         {
             {
-                HttpsRequestResponseSerializer.serializeRequest(mockedHttpsRequest, anyString, anyString, anyString);
+                HttpsRequestResponseSerializer.serializeRequest(mockedHttpsRequest, anyString, anyString, anyString, true);
                 times = 1;
 
-                HttpsRequestResponseSerializer.deserializeResponse((BufferedReader) any);
+                HttpsRequestResponseSerializer.deserializeResponse(mockedUnixSocketChannel, (ByteBuffer) any);
                 times = 1;
 
                 mockedUnixSocketChannel.write((ByteBuffer) any);
-                times = 1;
+                times = 2;
 
                 mockedHttpsRequest.send();
                 times = 0;
@@ -0,0 +1,376 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.hsm;
+
+import com.microsoft.azure.sdk.iot.device.hsm.HttpsHsmClient;
+import com.microsoft.azure.sdk.iot.device.hsm.parser.SignRequest;
+import com.microsoft.azure.sdk.iot.device.hsm.parser.SignResponse;
+import jnr.unixsocket.UnixServerSocketChannel;
+import jnr.unixsocket.UnixSocketAddress;
+import jnr.unixsocket.UnixSocketChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.crypto.Mac;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the unix socket connections of HttpsHsmClient.java, against a stub HSM listening on a local unix socket
+ */
+public class HttpsHsmClientUnixSocketTest
+{
+    private static final String API_VERSION = "2018-06-28";
+    private static final String MODULE_NAME = "someModuleName";
+    private static final String GENERATION_ID = "gen1";
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private HsmStub hsmStub;
+    private HttpsHsmClient client;
+
+    @Before
+    public void startHsmStub() throws Exception
+    {
+        File socketFile = new File(temporaryFolder.getRoot(), "workload.sock");
+        hsmStub = new HsmStub(socketFile);
+        client = new HttpsHsmClient("unix://" + socketFile.getAbsolutePath());
+    }
+
+    @After
+    public void stopHsmStub() throws IOException
+    {
+        hsmStub.close();
+    }
+
+    private static SignRequest signRequest(String data) throws Exception
+    {
+        SignRequest signRequest = new SignRequest();
+        signRequest.setAlgo(Mac.getInstance("HmacSHA256"));
+        signRequest.setData(data.getBytes(StandardCharsets.UTF_8));
+        signRequest.setKeyId("primary");
+        return signRequest;
+    }
+
+    private SignResponse sign(String data) throws Exception
+    {
+        return client.sign(API_VERSION, MODULE_NAME, signRequest(data), GENERATION_ID);
+    }
+
+    // Tests_SRS_HSMHTTPCLIENT_44_003: [If the scheme of the provided url is Unix, this function shall send the
+    // http request on a keep-alive connection from the pool of connections to that unix socket, and shall read the
+    // response straight from that connection.]
+    // Tests_SRS_HTTPREQUESTRESPONSESERIALIZER_44_001: [If keepAlive is true, this function shall serialize the
+    // Connection header with the value keep-alive instead of close.]
+    @Test
+    public void signReusesTheConnectionToTheUnixSocket() throws Exception
+    {
+        //act
+        SignResponse firstResponse = sign("first data");
+        SignResponse secondResponse = sign("second data");
+
+        //assert
+        assertEquals("digest1", firstResponse.getDigest());
+        assertEquals("digest2", secondResponse.getDigest());
+        assertEquals(1, hsmStub.acceptedConnections.get());
+        assertEquals(2, hsmStub.requests.size());
+        for (String request : hsmStub.requests)
+        {
+            assertTrue(request.startsWith("POST /modules/" + MODULE_NAME + "/genid/" + GENERATION_ID + "/sign?api-version=" + API_VERSION + " HTTP/1.1\r\n"));
+            assertTrue(request.contains("Connection: keep-alive\r\n"));
+        }
+    }
+
+    // Tests_SRS_HSMHTTPCLIENT_44_003: [If the scheme of the provided url is Unix, this function shall send the
+    // http request on a keep-alive connection from the pool of connections to that unix socket, and shall read the
+    // response straight from that connection.]
+    @Test
+    public void signOpensANewConnectionWhenTheHsmClosesIt() throws Exception
+    {
+        //arrange
+        hsmStub.responseConnectionHeader = "Connection: close\r\n";
+
+        //act
+        sign("first data");
+        sign("second data");
+
+        //assert
+        assertEquals(2, hsmStub.acceptedConnections.get());
+    }
+
+    // Tests_SRS_HSMHTTPCLIENT_44_003: [If the scheme of the provided url is Unix, this function shall send the
+    // http request on a keep-alive connection from the pool of connections to that unix socket, and shall read the
+    // response straight from that connection.]
+    @Test
+    public void signRetriesOnANewConnectionWhenThePooledConnectionWasDropped() throws Exception
+    {
+        //arrange
+        hsmStub.dropConnectionAfterResponse = true;
+
+        //act
+        sign("first data");
+        SignResponse secondResponse = sign("second data");
+
+        //assert
+        assertEquals("digest2", secondResponse.getDigest());
+        assertEquals(2, hsmStub.acceptedConnections.get());
+    }
+
+    // Tests_SRS_HTTPREQUESTRESPONSESERIALIZER_44_004: [This function shall read a chunked body if the response
+    // has a chunked Transfer-Encoding, a body of Content-Length bytes if it has a Content-Length, and the rest of
+    // the channel otherwise.]
+    @Test
+    public void getTrustBundleReadsAChunkedResponseAndKeepsTheConnection() throws Exception
+    {
+        //arrange
+        hsmStub.chunked = true;
+
+        //act
+        String certificates = client.getTrustBundle(API_VERSION).getCertificates();
+        SignResponse signResponse = sign("some data");
+
+        //assert
+        assertEquals("some certificates", certificates);
+        assertEquals("digest2", signResponse.getDigest());
+        assertEquals(1, hsmStub.acceptedConnections.get());
+        assertTrue(hsmStub.requests.get(0).startsWith("GET /trust-bundle?api-version=" + API_VERSION + " HTTP/1.1\r\n"));
+    }
+
+    // Tests_SRS_HSMHTTPCLIENT_44_001: [If the same sign request is already being sent to the HSM, this function
+    // shall wait for its response instead of sending the request again.]
+    @Test
+    public void signSendsConcurrentIdenticalRequestsOnce() throws Exception
+    {
+        //arrange
+        hsmStub.responseGate = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        final List<Thread> waitingThreads = new CopyOnWriteArrayList<>();
+        Callable<SignResponse> signTask = new Callable<SignResponse>()
+        {
+            @Override
+            public SignResponse call() throws Exception
+            {
+                waitingThreads.add(Thread.currentThread());
+                return sign("same data");
+            }
+        };
+
+        try
+        {
+            //act
+            List<Future<SignResponse>> responses = new ArrayList<>();
+            responses.add(executor.submit(signTask));
+            assertTrue(hsmStub.requestReceived.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            responses.add(executor.submit(signTask));
+            responses.add(executor.submit(signTask));
+            awaitWaiting(waitingThreads, 3);
+            hsmStub.responseGate.countDown();
+
+            //assert
+            for (Future<SignResponse> response : responses)
+            {
+                assertEquals("digest1", response.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getDigest());
+            }
+
+            assertEquals(1, hsmStub.requests.size());
+        }
+        finally
+        {
+            hsmStub.responseGate.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitWaiting(List<Thread> threads, int threadCount) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+        while (System.currentTimeMillis() < deadline)
+        {
+            int waitingCount = 0;
+            for (Thread thread : threads)
+            {
+                if (thread.getState() == Thread.State.WAITING)
+                {
+                    waitingCount++;
+                }
+            }
+
+            // the first thread waits for the stub in a native read, the others wait for its response
+            if (threads.size() == threadCount && waitingCount == threadCount - 1)
+            {
+                return;
+            }
+
+            Thread.sleep(10);
+        }
+
+        fail("The sign requests did not wait for the request in progress");
+    }
+
+    /**
+     * A stub HSM answering every request on a local unix socket, on a thread per connection
+     */
+    private static class HsmStub implements Closeable
+    {
+        private final UnixServerSocketChannel serverChannel;
+        private final List<UnixSocketChannel> channels = new CopyOnWriteArrayList<>();
+        private final AtomicInteger acceptedConnections = new AtomicInteger();
+        private final List<String> requests = new CopyOnWriteArrayList<>();
+        private final CountDownLatch requestReceived = new CountDownLatch(1);
+
+        private volatile String responseConnectionHeader = "";
+        private volatile boolean dropConnectionAfterResponse;
+        private volatile boolean chunked;
+        private volatile CountDownLatch responseGate = new CountDownLatch(0);
+
+        private HsmStub(File socketFile) throws IOException
+        {
+            serverChannel = UnixServerSocketChannel.open();
+            serverChannel.socket().bind(new UnixSocketAddress(socketFile));
+            startThread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        while (true)
+                        {
+                            final UnixSocketChannel channel = serverChannel.accept();
+                            channels.add(channel);
+                            acceptedConnections.incrementAndGet();
+                            startThread(new Runnable()
+                            {
+                                @Override
+                                public void run()
+                                {
+                                    serve(channel);
+                                }
+                            });
+                        }
+                    }
+                    catch (IOException e)
+                    {
+                        // the stub was closed
+                    }
+                }
+            });
+        }
+
+        private static void startThread(Runnable runnable)
+        {
+            Thread thread = new Thread(runnable, "HsmStub");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void serve(UnixSocketChannel channel)
+        {
+            try
+            {
+                InputStream inputStream = Channels.newInputStream(channel);
+                OutputStream outputStream = Channels.newOutputStream(channel);
+                String request = readRequest(inputStream);
+                while (request != null)
+                {
+                    requests.add(request);
+                    requestReceived.countDown();
+                    responseGate.await();
+
+                    outputStream.write(response(request, requests.size()));
+                    outputStream.flush();
+                    if (dropConnectionAfterResponse || !responseConnectionHeader.isEmpty())
+                    {
+                        channel.close();
+                        return;
+                    }
+
+                    request = readRequest(inputStream);
+                }
+            }
+            catch (IOException | InterruptedException e)
+            {
+                // the client or the stub closed the connection
+            }
+        }
+
+        private static String readRequest(InputStream inputStream) throws IOException
+        {
+            StringBuilder head = new StringBuilder();
+            while (!head.toString().endsWith("\r\n\r\n"))
+            {
+                int read = inputStream.read();
+                if (read < 0)
+                {
+                    return null;
+                }
+
+                head.append((char) read);
+            }
+
+            int contentLength = 0;
+            for (String header : head.toString().split("\r\n"))
+            {
+                if (header.startsWith("Content-Length:"))
+                {
+                    contentLength = Integer.parseInt(header.substring("Content-Length:".length()).trim());
+                }
+            }
+
+            byte[] body = new byte[contentLength];
+            new DataInputStream(inputStream).readFully(body);
+            return head + new String(body, StandardCharsets.UTF_8);
+        }
+
+        private byte[] response(String request, int requestNumber)
+        {
+            String body = request.startsWith("GET /trust-bundle")
+                    ? "{\"certificate\":\"some certificates\"}"
+                    : "{\"digest\":\"digest" + requestNumber + "\"}";
+
+            StringBuilder response = new StringBuilder("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\n");
+            response.append(responseConnectionHeader);
+            if (chunked)
+            {
+                String firstChunk = body.substring(0, 5);
+                String lastChunk = body.substring(5);
+                response.append("Transfer-Encoding: chunked\r\n\r\n");
+                response.append(Integer.toHexString(firstChunk.length())).append("\r\n").append(firstChunk).append("\r\n");
+                response.append(Integer.toHexString(lastChunk.length())).append(";ext=1\r\n").append(lastChunk).append("\r\n");
+                response.append("0\r\n\r\n");
+            }
+            else
+            {
+                response.append("Content-Length: ").append(body.length()).append("\r\n\r\n").append(body);
+            }
+
+            return response.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            responseGate.countDown();
+            serverChannel.close();
+            for (UnixSocketChannel channel : channels)
+            {
+                channel.close();
+            }
+        }
+    }
+}
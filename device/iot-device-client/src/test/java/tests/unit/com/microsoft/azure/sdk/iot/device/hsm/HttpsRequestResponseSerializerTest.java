@@ -15,6 +15,7 @@ import mockit.*;
 import org.junit.Test;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
@@ -22,7 +23,11 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -341,4 +346,66 @@ public class HttpsRequestResponseSerializerTest
         //act
         HttpsRequestResponseSerializer.deserializeResponse(new BufferedReader(new StringReader(stringToDeserialize)));
     }
-}
\ No newline at end of file
+
+    // Tests_SRS_HTTPREQUESTRESPONSESERIALIZER_44_002: [If the provided channel or buffer is null, this function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void deserializeThrowsForNullChannel() throws IOException
+    {
+        //act
+        HttpsRequestResponseSerializer.deserializeResponse(null, ByteBuffer.allocate(16));
+    }
+
+    // Tests_SRS_HTTPREQUESTRESPONSESERIALIZER_44_003: [This function shall read the status line and the headers
+    // of the response from the buffer, reading more bytes from the channel into it as needed.]
+    // Tests_SRS_HTTPREQUESTRESPONSESERIALIZER_44_004: [This function shall read a chunked body if the response
+    // has a chunked Transfer-Encoding, a body of Content-Length bytes if it has a Content-Length, and the rest of
+    // the channel otherwise.]
+    @Test
+    public void deserializeFromChannelLeavesTheNextResponseInTheBuffer() throws IOException
+    {
+        //arrange
+        final Map<String, List<String>> firstHeaders = new HashMap<>();
+        firstHeaders.put("Content-Length", Collections.singletonList("5"));
+        final Map<String, List<String>> secondHeaders = new HashMap<>();
+        secondHeaders.put("header1", Collections.singletonList("value1"));
+        String responses =
+                "HTTP/1.1 200 OK\r\n" +
+                        "Content-Length:5\r\n" +
+                        "\r\n" +
+                        "first" +
+                        "HTTP/1.1 404 Not Found\r\n" +
+                        "header1:value1\r\n" +
+                        "\r\n" +
+                        "second";
+        ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(responses.getBytes()));
+        ByteBuffer buffer = ByteBuffer.allocate(48);
+        buffer.flip();
+
+        //act
+        HttpsRequestResponseSerializer.deserializeResponse(channel, buffer);
+        HttpsRequestResponseSerializer.deserializeResponse(channel, buffer);
+
+        //assert
+        new VerificationsInOrder()
+        {
+            {
+                new HttpsResponse(200, "first".getBytes(), firstHeaders, "OK".getBytes());
+                new HttpsResponse(404, "second".getBytes(), secondHeaders, "Not Found".getBytes());
+            }
+        };
+    }
+
+    // Tests_SRS_HTTPREQUESTRESPONSESERIALIZER_44_003: [This function shall read the status line and the headers
+    // of the response from the buffer, reading more bytes from the channel into it as needed.]
+    @Test (expected = IOException.class)
+    public void deserializeFromChannelThrowsIfHeadersDoNotFitTheBuffer() throws IOException
+    {
+        //arrange
+        String response = "HTTP/1.1 200 OK\r\nheader1:a header longer than the buffer\r\n\r\n";
+        ByteBuffer buffer = ByteBuffer.allocate(32);
+        buffer.flip();
+
+        //act
+        HttpsRequestResponseSerializer.deserializeResponse(Channels.newChannel(new ByteArrayInputStream(response.getBytes())), buffer);
+    }
+}
@@ -35,6 +35,21 @@ public class IotHubSendTaskTest
         };
     }
 
+    // Tests_SRS_IOTHUBSENDTASK_44_001: [The function shall send the queued results of the received messages.]
+    @Test
+    public void runSettlesReceivedMessages() throws DeviceClientException
+    {
+        IotHubSendTask sendTask = new IotHubSendTask(mockTransport);
+        sendTask.run();
+
+        new Verifications()
+        {
+            {
+                mockTransport.settleMessages();
+            }
+        };
+    }
+
     // Tests_SRS_IOTHUBSENDTASK_11_003: [The function shall invoke all callbacks on the transport's callback queue.]
     @Test
     public void runInvokesAllCallbacks()
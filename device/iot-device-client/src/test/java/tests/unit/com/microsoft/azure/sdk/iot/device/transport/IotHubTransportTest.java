@@ -4,6 +4,7 @@
 package tests.unit.com.microsoft.azure.sdk.iot.device.transport;
 
 import com.microsoft.azure.sdk.iot.device.*;
+import com.microsoft.azure.sdk.iot.device.auth.IotHubSasTokenAuthenticationProvider;
 import com.microsoft.azure.sdk.iot.device.exceptions.DeviceClientException;
 import com.microsoft.azure.sdk.iot.device.exceptions.IotHubServiceException;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
@@ -12,6 +13,7 @@ import com.microsoft.azure.sdk.iot.device.transport.*;
 import com.microsoft.azure.sdk.iot.device.transport.amqps.AmqpsIotHubConnection;
 import com.microsoft.azure.sdk.iot.device.transport.amqps.exceptions.AmqpConnectionThrottledException;
 import com.microsoft.azure.sdk.iot.device.transport.amqps.exceptions.AmqpUnauthorizedAccessException;
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsAdaptiveReceivePolicy;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsIotHubConnection;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttIotHubConnection;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.exceptions.MqttUnauthorizedException;
@@ -97,6 +99,9 @@ public class IotHubTransportTest
     @Mocked
     Executors mockExecutors;
 
+    @Mocked
+    ReconnectionCoordinator mockedReconnectionCoordinator;
+
     //Tests_SRS_IOTHUBTRANSPORT_34_001: [The constructor shall save the default config.]
     //Tests_SRS_IOTHUBTRANSPORT_34_003: [The constructor shall set the connection status as DISCONNECTED and the current retry attempt to 0.]
     @Test
@@ -581,6 +586,49 @@ public class IotHubTransportTest
         transport.open(configs);
     }
 
+    //Tests_SRS_IOTHUBTRANSPORT_44_015: [This function shall start preparing the sas tokens of the devices in the background, so the connection only reads ready-made tokens when it renews them.]
+    @Test
+    public void openStartsSasTokenPreparation(@Mocked final IotHubSasTokenAuthenticationProvider mockSasTokenAuthentication) throws DeviceClientException
+    {
+        //arrange
+        final IotHubTransport transport = new IotHubTransport(mockedConfig);
+        Deencapsulation.setField(transport, "connectionStatus", DISCONNECTED);
+        Collection<DeviceClientConfig> configs = new ArrayList<>();
+        configs.add(mockedConfig);
+
+        new MockUp<IotHubTransport>()
+        {
+            @Mock boolean isSasTokenExpired()
+            {
+                return false;
+            }
+
+            @Mock void openConnection()
+            {
+            }
+        };
+
+        new NonStrictExpectations()
+        {
+            {
+                mockedConfig.getSasTokenAuthentication();
+                result = mockSasTokenAuthentication;
+            }
+        };
+
+        //act
+        transport.open(configs);
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockSasTokenAuthentication.startSasTokenPreparation();
+                times = 1;
+            }
+        };
+    }
+
 
     //Tests_SRS_IOTHUBTRANSPORT_34_026: [If the supplied reason is null, this function shall throw an IllegalArgumentException.]
     @Test (expected = IllegalArgumentException.class)
@@ -663,6 +711,70 @@ public class IotHubTransportTest
         assertTrue(methodsCalled.toString().contains("invokeCallbacks"));
     }
 
+    //Tests_SRS_IOTHUBTRANSPORT_44_014: [This function shall try to send the queued results before closing the
+    // connection, and drop the ones that could not be sent.]
+    @Test
+    public void closeSettlesQueuedResultsBeforeClosingTheConnection() throws DeviceClientException
+    {
+        //arrange
+        IotHubTransport transport = transportWithQueuedResults(IotHubMessageResult.COMPLETE, IotHubMessageResult.ABANDON);
+        new NonStrictExpectations()
+        {
+            {
+                mockedIotHubTransportConnection.sendMessageResult(mockedTransportMessage, IotHubMessageResult.ABANDON);
+                result = mockedTransportException;
+            }
+        };
+
+        //act
+        transport.close(CLIENT_CLOSE, null);
+
+        //assert
+        Queue<Object> settlementsQueue = Deencapsulation.getField(transport, "settlementsQueue");
+        assertTrue(settlementsQueue.isEmpty());
+        new VerificationsInOrder()
+        {
+            {
+                mockedIotHubTransportConnection.sendMessageResult(mockedTransportMessage, IotHubMessageResult.COMPLETE);
+                mockedIotHubTransportConnection.sendMessageResult(mockedTransportMessage, IotHubMessageResult.ABANDON);
+                mockedIotHubTransportConnection.close();
+            }
+        };
+    }
+
+    //Tests_SRS_IOTHUBTRANSPORT_44_016: [This function shall stop preparing the sas tokens of the devices.]
+    @Test
+    public void closeStopsSasTokenPreparation(@Mocked final IotHubSasTokenAuthenticationProvider mockSasTokenAuthentication) throws DeviceClientException
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig);
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        Queue<DeviceClientConfig> deviceClientConfigs = new ConcurrentLinkedQueue<>();
+        deviceClientConfigs.add(mockedConfig);
+        Deencapsulation.setField(transport, "deviceClientConfigs", deviceClientConfigs);
+        Deencapsulation.setField(transport, "taskScheduler", mockedScheduledExecutorService);
+        Deencapsulation.setField(transport, "iotHubTransportConnection", mockedIotHubTransportConnection);
+        new NonStrictExpectations()
+        {
+            {
+                mockedConfig.getSasTokenAuthentication();
+                result = mockSasTokenAuthentication;
+            }
+        };
+
+        //act
+        transport.close(CLIENT_CLOSE, null);
+
+        //assert
+        new VerificationsInOrder()
+        {
+            {
+                mockedIotHubTransportConnection.close();
+                mockSasTokenAuthentication.stopSasTokenPreparation();
+            }
+        };
+    }
+
     //Tests_SRS_IOTHUBTRANSPORT_34_032: [If the provided exception is not a TransportException, this function shall return COMMUNICATION_ERROR.]
     @Test
     public void exceptionToStatusChangeReasonWithNonTransportException()
@@ -937,6 +1049,8 @@ public class IotHubTransportTest
             {
                 mockedConfig.getProtocol();
                 result = IotHubClientProtocol.AMQPS;
+                mockedConfig.getClientRuntime();
+                result = null;
                 Executors.newScheduledThreadPool(1);
                 result = mockedScheduledExecutorService;
                 new AmqpsIotHubConnection(mockedConfig);
@@ -975,6 +1089,8 @@ public class IotHubTransportTest
             {
                 mockedConfig.getProtocol();
                 result = IotHubClientProtocol.AMQPS_WS;
+                mockedConfig.getClientRuntime();
+                result = null;
                 Executors.newScheduledThreadPool(1);
                 result = mockedScheduledExecutorService;
                 new AmqpsIotHubConnection(mockedConfig);
@@ -999,6 +1115,46 @@ public class IotHubTransportTest
         };
     }
 
+    //Tests_SRS_IOTHUBTRANSPORT_44_020: [If the config has a client runtime, the message retries and the
+    // connection shall be scheduled on the shared threads of the runtime instead of new threads.]
+    @Test
+    public void openConnectionWithClientRuntimeUsesTheExecutorOfTheRuntime(@Mocked final ClientRuntime mockedClientRuntime) throws TransportException
+    {
+        //arrange
+        final IotHubTransport transport = new IotHubTransport(mockedConfig);
+        final Queue<DeviceClientConfig> configs = new ConcurrentLinkedQueue<>();
+        configs.add(mockedConfig);
+        Deencapsulation.setField(transport, "deviceClientConfigs", configs);
+        new Expectations(IotHubTransport.class)
+        {
+            {
+                mockedConfig.getProtocol();
+                result = IotHubClientProtocol.AMQPS;
+                mockedConfig.getClientRuntime();
+                result = mockedClientRuntime;
+                mockedClientRuntime.createExecutorService();
+                result = mockedScheduledExecutorService;
+                new AmqpsIotHubConnection(mockedConfig);
+                result = mockedAmqpsIotHubConnection;
+            }
+        };
+
+        //act
+        Deencapsulation.invoke(transport, "openConnection");
+
+        //assert
+        new Verifications()
+        {
+            {
+                Executors.newScheduledThreadPool(anyInt);
+                times = 0;
+
+                mockedAmqpsIotHubConnection.open(configs, mockedScheduledExecutorService);
+                times = 1;
+            }
+        };
+    }
+
     //Tests_SRS_IOTHUBTRANSPORT_34_043: [This function return true if and only if there are no packets in the waiting queue, in progress, or in the callbacks queue.]
     @Test
     public void isEmptyReturnsTrueIfAllQueuesEmpty()
@@ -1376,6 +1532,89 @@ public class IotHubTransportTest
         assertEquals("acknowledgeReceivedMessage", methodsCalled.toString());
     }
 
+    //Tests_SRS_IOTHUBTRANSPORT_44_002: [If this object's connection status is CONNECTED, is using HTTPS
+    // and has an adaptive receive policy, this function shall invoke handleMessagesOverHttpAdaptively.]
+    //Tests_SRS_IOTHUBTRANSPORT_44_003: [The function shall fetch up to the policy maxMessagesPerPoll messages
+    // and add them to the receivedMessagesQueue.]
+    //Tests_SRS_IOTHUBTRANSPORT_44_005: [The function shall report the number of fetched messages to the policy.]
+    //Tests_SRS_IOTHUBTRANSPORT_44_006: [The function shall acknowledge all the queued messages.]
+    @Test
+    public void handleMessageWithAdaptivePolicyAcknowledgesAllFetchedMessages() throws DeviceClientException
+    {
+        //arrange
+        final HttpsAdaptiveReceivePolicy policy = new HttpsAdaptiveReceivePolicy(100, 10000, 3);
+        final IotHubTransport transport = new IotHubTransport(mockedConfig);
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        Deencapsulation.setField(transport, "iotHubTransportConnection", mockedHttpsIotHubConnection);
+        transport.setHttpsAdaptiveReceivePolicy(policy);
+        new NonStrictExpectations()
+        {
+            {
+                mockedHttpsIotHubConnection.receiveMessages(3);
+                result = Arrays.asList(mockedTransportMessage, mockedTransportMessage);
+                mockedTransportMessage.getMessageCallback();
+                result = mockedMessageCallback;
+                mockedMessageCallback.execute((Message) any, any);
+                returns(IotHubMessageResult.COMPLETE, IotHubMessageResult.ABANDON);
+            }
+        };
+
+        //act
+        transport.handleMessage();
+
+        //assert
+        assertEquals(100, policy.getNextPollDelayMillis());
+        Queue<Object> settlementsQueue = Deencapsulation.getField(transport, "settlementsQueue");
+        assertEquals(2, settlementsQueue.size());
+        new Verifications()
+        {
+            {
+                mockedMessageCallback.execute((Message) any, any);
+                times = 2;
+                mockedHttpsIotHubConnection.receiveMessage();
+                times = 0;
+                mockedHttpsIotHubConnection.sendMessageResult((Message) any, (IotHubMessageResult) any);
+                times = 0;
+            }
+        };
+    }
+
+    //Tests_SRS_IOTHUBTRANSPORT_44_004: [If the messages could not be fetched, the function shall report an
+    // empty poll to the policy and rethrow the exception.]
+    @Test
+    public void handleMessageWithAdaptivePolicyReportsAnEmptyPollIfReceiveFails() throws DeviceClientException
+    {
+        //arrange
+        final HttpsAdaptiveReceivePolicy policy = new HttpsAdaptiveReceivePolicy(100, 10000, 3);
+        policy.onPollCompleted(0);
+        final IotHubTransport transport = new IotHubTransport(mockedConfig);
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        Deencapsulation.setField(transport, "iotHubTransportConnection", mockedHttpsIotHubConnection);
+        transport.setHttpsAdaptiveReceivePolicy(policy);
+        final TransportException receiveException = new TransportException("test");
+        new NonStrictExpectations()
+        {
+            {
+                mockedHttpsIotHubConnection.receiveMessages(anyInt);
+                result = receiveException;
+            }
+        };
+
+        //act
+        try
+        {
+            transport.handleMessage();
+            fail("handleMessage shall rethrow the exception");
+        }
+        catch (TransportException e)
+        {
+            assertEquals(receiveException, e);
+        }
+
+        //assert
+        assertEquals(200, policy.getNextPollDelayMillis());
+    }
+
     //Tests_SRS_IOTHUBTRANSPORT_34_049: [If the provided callback is null, this function shall throw an IllegalArgumentException.]
     @Test (expected = IllegalArgumentException.class)
     public void registerConnectionStateCallbackThrowsForNullCallback()
@@ -1451,10 +1690,10 @@ public class IotHubTransportTest
 
     //Tests_SRS_IOTHUBTRANSPORT_34_053: [This function shall execute the callback associate with the provided
     // transport message with the provided message and its saved callback context.]
-    //Tests_SRS_IOTHUBTRANSPORT_34_054: [This function shall send the message callback result along the
-    // connection as the ack to the service.]
+    //Tests_SRS_IOTHUBTRANSPORT_44_009: [This function shall add the message callback result to the
+    // settlementsQueue, to be sent as the ack to the service by settleMessages.]
     @Test
-    public void acknowledgeReceivedMessageSendsAck() throws TransportException
+    public void acknowledgeReceivedMessageQueuesTheResult() throws TransportException
     {
         //arrange
         IotHubTransport transport = new IotHubTransport(mockedConfig);
@@ -1478,57 +1717,219 @@ public class IotHubTransportTest
         Deencapsulation.invoke(transport, "acknowledgeReceivedMessage", mockedTransportMessage);
 
         //assert
+        Queue<Object> settlementsQueue = Deencapsulation.getField(transport, "settlementsQueue");
+        assertEquals(1, settlementsQueue.size());
         new Verifications()
         {
             {
-                mockedIotHubTransportConnection.sendMessageResult(mockedTransportMessage, IotHubMessageResult.COMPLETE);
-                times = 1;
+                mockedIotHubTransportConnection.sendMessageResult((Message) any, (IotHubMessageResult) any);
+                times = 0;
             }
         };
     }
 
-    //Tests_SRS_IOTHUBTRANSPORT_34_055: [If an exception is thrown while acknowledging the received message,
-    // this function shall add the received message back into the receivedMessagesQueue and then rethrow the exception.]
-    @Test
-    public void acknowledgeReceivedMessageReQueuesFailedMessages() throws TransportException
+    private IotHubTransport transportWithQueuedResults(final IotHubMessageResult... results)
     {
-        //arrange
         IotHubTransport transport = new IotHubTransport(mockedConfig);
-        final Object context = new Object();
         Deencapsulation.setField(transport, "iotHubTransportConnection", mockedIotHubTransportConnection);
-        new Expectations()
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        new NonStrictExpectations()
         {
             {
                 mockedTransportMessage.getMessageCallback();
                 result = mockedMessageCallback;
+                mockedMessageCallback.execute((Message) any, any);
+                returns(results[0], Arrays.copyOfRange(results, 1, results.length));
+            }
+        };
 
-                mockedTransportMessage.getMessageCallbackContext();
-                result = context;
+        for (int i = 0; i < results.length; i++)
+        {
+            Deencapsulation.invoke(transport, "acknowledgeReceivedMessage", mockedTransportMessage);
+        }
 
-                mockedMessageCallback.execute(mockedTransportMessage, context);
-                result = IotHubMessageResult.COMPLETE;
+        return transport;
+    }
+
+    //Tests_SRS_IOTHUBTRANSPORT_44_011: [This function shall send each queued result along the connection
+    // as the ack to the service, in the order they were queued.]
+    @Test
+    public void settleMessagesSendsTheQueuedResultsInOrder() throws TransportException
+    {
+        //arrange
+        IotHubTransport transport = transportWithQueuedResults(IotHubMessageResult.COMPLETE, IotHubMessageResult.REJECT);
+
+        //act
+        transport.settleMessages();
 
+        //assert
+        new VerificationsInOrder()
+        {
+            {
                 mockedIotHubTransportConnection.sendMessageResult(mockedTransportMessage, IotHubMessageResult.COMPLETE);
+                mockedIotHubTransportConnection.sendMessageResult(mockedTransportMessage, IotHubMessageResult.REJECT);
+            }
+        };
+        Queue<Object> settlementsQueue = Deencapsulation.getField(transport, "settlementsQueue");
+        assertTrue(settlementsQueue.isEmpty());
+    }
+
+    //Tests_SRS_IOTHUBTRANSPORT_44_010: [If this object's connection status is not CONNECTED, this function shall do nothing.]
+    @Test
+    public void settleMessagesDoesNothingIfNotConnected() throws TransportException
+    {
+        //arrange
+        IotHubTransport transport = transportWithQueuedResults(IotHubMessageResult.COMPLETE);
+        Deencapsulation.setField(transport, "connectionStatus", DISCONNECTED_RETRYING);
+
+        //act
+        transport.settleMessages();
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockedIotHubTransportConnection.sendMessageResult((Message) any, (IotHubMessageResult) any);
+                times = 0;
+            }
+        };
+        Queue<Object> settlementsQueue = Deencapsulation.getField(transport, "settlementsQueue");
+        assertEquals(1, settlementsQueue.size());
+    }
+
+    //Tests_SRS_IOTHUBTRANSPORT_44_013: [If the result could not be sent because of a retryable
+    // exception, this function shall put it back at the head of the settlementsQueue and stop, so it
+    // is sent again on the next call.]
+    @Test
+    public void settleMessagesKeepsTheFailedResultAtTheHeadOfTheQueue() throws TransportException
+    {
+        //arrange
+        IotHubTransport transport = transportWithQueuedResults(IotHubMessageResult.ABANDON, IotHubMessageResult.COMPLETE);
+        new NonStrictExpectations()
+        {
+            {
+                mockedTransportException.isRetryable();
+                result = true;
+                mockedIotHubTransportConnection.sendMessageResult((Message) any, (IotHubMessageResult) any);
                 result = mockedTransportException;
+                result = true;
             }
         };
 
-        boolean exceptionRethrown = false;
+        //act
+        transport.settleMessages();
+        transport.settleMessages();
+
+        //assert
+        new VerificationsInOrder()
+        {
+            {
+                mockedIotHubTransportConnection.sendMessageResult(mockedTransportMessage, IotHubMessageResult.ABANDON);
+                times = 2;
+                mockedIotHubTransportConnection.sendMessageResult(mockedTransportMessage, IotHubMessageResult.COMPLETE);
+                times = 1;
+            }
+        };
+        Queue<Object> settlementsQueue = Deencapsulation.getField(transport, "settlementsQueue");
+        assertTrue(settlementsQueue.isEmpty());
+    }
+
+    //Tests_SRS_IOTHUBTRANSPORT_44_012: [If the service rejects a result, this function shall drop it and
+    // continue with the next one.]
+    @Test
+    public void settleMessagesDropsTheResultsRejectedByTheService() throws TransportException
+    {
+        //arrange
+        IotHubTransport transport = transportWithQueuedResults(IotHubMessageResult.ABANDON, IotHubMessageResult.COMPLETE);
+        new NonStrictExpectations()
+        {
+            {
+                mockedIotHubTransportConnection.sendMessageResult(mockedTransportMessage, IotHubMessageResult.ABANDON);
+                result = mockedIothubServiceException;
+            }
+        };
 
         //act
-        try
+        transport.settleMessages();
+
+        //assert
+        new Verifications()
         {
-            Deencapsulation.invoke(transport, "acknowledgeReceivedMessage", mockedTransportMessage);
-        }
-        catch (Exception e)
+            {
+                mockedIotHubTransportConnection.sendMessageResult(mockedTransportMessage, IotHubMessageResult.ABANDON);
+                times = 1;
+                mockedIotHubTransportConnection.sendMessageResult(mockedTransportMessage, IotHubMessageResult.COMPLETE);
+                times = 1;
+            }
+        };
+        Queue<Object> settlementsQueue = Deencapsulation.getField(transport, "settlementsQueue");
+        assertTrue(settlementsQueue.isEmpty());
+    }
+
+    //Tests_SRS_IOTHUBTRANSPORT_44_021: [If the result could not be sent because of an exception that is
+    // not retryable, this function shall drop it and continue with the next one.]
+    @Test
+    public void settleMessagesDropsTheResultsThatCannotBeRetried() throws TransportException
+    {
+        //arrange
+        IotHubTransport transport = transportWithQueuedResults(IotHubMessageResult.ABANDON, IotHubMessageResult.COMPLETE, IotHubMessageResult.REJECT);
+        new NonStrictExpectations()
         {
-            exceptionRethrown = true;
-        }
+            {
+                mockedTransportException.isRetryable();
+                result = false;
+                mockedIotHubTransportConnection.sendMessageResult(mockedTransportMessage, IotHubMessageResult.ABANDON);
+                result = mockedTransportException;
+            }
+        };
+
+        //act
+        transport.settleMessages();
 
         //assert
-        assertTrue(exceptionRethrown);
-        Queue<IotHubTransportMessage> receivedMessagesQueue = Deencapsulation.getField(transport, "receivedMessagesQueue");
-        assertEquals(1, receivedMessagesQueue.size());
+        new VerificationsInOrder()
+        {
+            {
+                mockedIotHubTransportConnection.sendMessageResult(mockedTransportMessage, IotHubMessageResult.ABANDON);
+                times = 1;
+                mockedIotHubTransportConnection.sendMessageResult(mockedTransportMessage, IotHubMessageResult.COMPLETE);
+                times = 1;
+                mockedIotHubTransportConnection.sendMessageResult(mockedTransportMessage, IotHubMessageResult.REJECT);
+                times = 1;
+            }
+        };
+        Queue<Object> settlementsQueue = Deencapsulation.getField(transport, "settlementsQueue");
+        assertTrue(settlementsQueue.isEmpty());
+    }
+
+    //Tests_SRS_IOTHUBTRANSPORT_44_022: [If sending a result throws a runtime exception, this function
+    // shall drop it and continue with the next one.]
+    @Test
+    public void settleMessagesDropsTheResultsThatThrowRuntimeExceptions() throws TransportException
+    {
+        //arrange
+        IotHubTransport transport = transportWithQueuedResults(IotHubMessageResult.ABANDON, IotHubMessageResult.COMPLETE);
+        new NonStrictExpectations()
+        {
+            {
+                mockedIotHubTransportConnection.sendMessageResult(mockedTransportMessage, IotHubMessageResult.ABANDON);
+                result = new IllegalStateException("no etag");
+            }
+        };
+
+        //act
+        transport.settleMessages();
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockedIotHubTransportConnection.sendMessageResult(mockedTransportMessage, IotHubMessageResult.COMPLETE);
+                times = 1;
+            }
+        };
+        Queue<Object> settlementsQueue = Deencapsulation.getField(transport, "settlementsQueue");
+        assertTrue(settlementsQueue.isEmpty());
     }
 
     //Tests_SRS_IOTHUBTRANSPORT_34_056: [If the saved http transport connection can receive a message, add it to receivedMessagesQueue.]
@@ -2078,6 +2479,127 @@ public class IotHubTransportTest
         assertTrue(methodsCalled.toString().contains("updateStatus"));
     }
 
+    private IotHubTransport transportScheduling(final List<Runnable> scheduledTasks, final StringBuilder methodsCalled)
+    {
+        new MockUp<IotHubTransport>()
+        {
+            @Mock boolean hasOperationTimedOut(long time)
+            {
+                return false;
+            }
+
+            @Mock TransportException singleReconnectAttempt()
+            {
+                methodsCalled.append("singleReconnectAttempt");
+                return null;
+            }
+        };
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(ReconnectionCoordinator.class, "getInstance");
+                result = mockedReconnectionCoordinator;
+
+                mockedTransportException.isRetryable();
+                result = true;
+
+                mockedConfig.getRetryPolicy();
+                result = mockedRetryPolicy;
+
+                mockedRetryPolicy.getRetryDecision(anyInt, (TransportException) any);
+                result = mockedRetryDecision;
+
+                mockedRetryDecision.shouldRetry();
+                result = true;
+
+                mockedRetryDecision.getDuration();
+                result = 100L;
+
+                Deencapsulation.invoke(mockedReconnectionCoordinator, "getNextDelayMillis", 100L, 0L);
+                result = 250L;
+
+                Deencapsulation.invoke(mockedReconnectionCoordinator, "schedule", new Class[] {Runnable.class, long.class}, any, anyLong);
+                result = new Delegate()
+                {
+                    void schedule(Runnable attempt, long delayMillis)
+                    {
+                        scheduledTasks.add(attempt);
+                    }
+                };
+            }
+        };
+
+        IotHubTransport transport = new IotHubTransport(mockedConfig);
+        Deencapsulation.setField(transport, "connectionStatus", DISCONNECTED_RETRYING);
+        return transport;
+    }
+
+    //Tests_SRS_IOTHUBTRANSPORT_44_017: [If the retry policy says to retry, this function shall schedule the
+    // next reconnection attempt on the reconnection coordinator, after the jittered delay the coordinator
+    // computes from the retry policy delay, and return without waiting for it.]
+    @Test
+    public void reconnectSchedulesTheNextAttemptOnTheReconnectionCoordinator()
+    {
+        //arrange
+        final List<Runnable> scheduledTasks = new ArrayList<>();
+        final StringBuilder methodsCalled = new StringBuilder();
+        IotHubTransport transport = transportScheduling(scheduledTasks, methodsCalled);
+
+        //act
+        Deencapsulation.invoke(transport, "reconnect", mockedTransportException);
+
+        //assert
+        assertEquals(1, scheduledTasks.size());
+        assertEquals("", methodsCalled.toString());
+        assertEquals(250L, Deencapsulation.getField(transport, "reconnectionDelayMillis"));
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockedReconnectionCoordinator, "schedule", new Class[] {Runnable.class, long.class}, any, 250L);
+                times = 1;
+            }
+        };
+    }
+
+    //Tests_SRS_IOTHUBTRANSPORT_44_018: [When the scheduled reconnection attempt runs, if it has not been
+    // cancelled and this object's state is still DISCONNECTED_RETRYING, it shall attempt to reconnect once
+    // and then invoke reconnect with the exception of that attempt.]
+    @Test
+    public void scheduledReconnectionAttemptsToReconnectOnce()
+    {
+        //arrange
+        final List<Runnable> scheduledTasks = new ArrayList<>();
+        final StringBuilder methodsCalled = new StringBuilder();
+        IotHubTransport transport = transportScheduling(scheduledTasks, methodsCalled);
+        Deencapsulation.invoke(transport, "reconnect", mockedTransportException);
+
+        //act
+        scheduledTasks.get(0).run();
+
+        //assert
+        assertEquals("singleReconnectAttempt", methodsCalled.toString());
+        assertEquals(1, scheduledTasks.size());
+    }
+
+    //Tests_SRS_IOTHUBTRANSPORT_44_019: [This function shall cancel the scheduled reconnection attempt.]
+    @Test
+    public void closeCancelsTheScheduledReconnection() throws DeviceClientException
+    {
+        //arrange
+        final List<Runnable> scheduledTasks = new ArrayList<>();
+        final StringBuilder methodsCalled = new StringBuilder();
+        IotHubTransport transport = transportScheduling(scheduledTasks, methodsCalled);
+        Deencapsulation.invoke(transport, "reconnect", mockedTransportException);
+
+        //act
+        transport.close(CLIENT_CLOSE, null);
+        Deencapsulation.setField(transport, "connectionStatus", DISCONNECTED_RETRYING);
+        scheduledTasks.get(0).run();
+
+        //assert
+        assertEquals("", methodsCalled.toString());
+    }
+
     //Tests_SRS_IOTHUBTRANSPORT_28_008:[This function shall set the packet status to MESSAGE_EXPIRED if packet has expired.]
     //Tests_SRS_IOTHUBTRANSPORT_28_009:[This function shall add the expired packet to the Callback Queue.]
     @Test
@@ -0,0 +1,171 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.transport.ReconnectionCoordinator;
+import mockit.Deencapsulation;
+import org.junit.Test;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ReconnectionCoordinator.java
+ */
+public class ReconnectionCoordinatorTest
+{
+    private static final Class[] CONSTRUCTOR_PARAMETER_TYPES = {int.class, double.class};
+    private static final Class[] SCHEDULE_PARAMETER_TYPES = {Runnable.class, long.class};
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private static ReconnectionCoordinator createCoordinator(int maximumConcurrentAttempts, double attemptsPerSecond)
+    {
+        return Deencapsulation.newInstance(ReconnectionCoordinator.class, CONSTRUCTOR_PARAMETER_TYPES, maximumConcurrentAttempts, attemptsPerSecond);
+    }
+
+    private static long getNextDelayMillis(ReconnectionCoordinator coordinator, long retryPolicyDelayMillis, long previousDelayMillis)
+    {
+        return Deencapsulation.invoke(coordinator, "getNextDelayMillis", retryPolicyDelayMillis, previousDelayMillis);
+    }
+
+    // Tests_SRS_RECONNECTIONCOORDINATOR_44_001: [If the maximum number of concurrent attempts or the rate of
+    // attempts is not positive, the constructor shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForNoConcurrentAttempts()
+    {
+        //act
+        createCoordinator(0, 1);
+    }
+
+    // Tests_SRS_RECONNECTIONCOORDINATOR_44_001: [If the maximum number of concurrent attempts or the rate of
+    // attempts is not positive, the constructor shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForNoAttemptsPerSecond()
+    {
+        //act
+        createCoordinator(1, 0);
+    }
+
+    // Tests_SRS_RECONNECTIONCOORDINATOR_44_003: [This function shall return a random delay between the retry policy
+    // delay and three times the previous delay, with at least 100 milliseconds as the previous delay, and no more
+    // than a minute above the retry policy delay.]
+    @Test
+    public void getNextDelayMillisIsDecorrelatedJitterAboveTheRetryPolicyDelay()
+    {
+        //arrange
+        ReconnectionCoordinator coordinator = createCoordinator(1, 1);
+
+        for (int i = 0; i < 1000; i++)
+        {
+            //act
+            long firstDelay = getNextDelayMillis(coordinator, 0, 0);
+            long nextDelay = getNextDelayMillis(coordinator, 100, 1000);
+            long longPolicyDelay = getNextDelayMillis(coordinator, 5000, 100);
+            long cappedDelay = getNextDelayMillis(coordinator, 0, 100000);
+
+            //assert
+            assertTrue(firstDelay >= 0 && firstDelay <= 300);
+            assertTrue(nextDelay >= 100 && nextDelay <= 3000);
+            assertEquals(5000, longPolicyDelay);
+            assertTrue(cappedDelay >= 0 && cappedDelay <= 60000);
+        }
+    }
+
+    // Tests_SRS_RECONNECTIONCOORDINATOR_44_004: [If the provided attempt is null, this function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void scheduleThrowsForNullAttempt()
+    {
+        //act
+        Deencapsulation.invoke(createCoordinator(1, 1), "schedule", SCHEDULE_PARAMETER_TYPES, null, 0L);
+    }
+
+    // Tests_SRS_RECONNECTIONCOORDINATOR_44_002: [The constructor shall start with a full token bucket.]
+    // Tests_SRS_RECONNECTIONCOORDINATOR_44_005: [This function shall admit the attempt after the provided delay,
+    // without blocking the calling thread.]
+    // Tests_SRS_RECONNECTIONCOORDINATOR_44_006: [If the token bucket has a token, the attempt shall take it
+    // and run on the shared pool of attempt threads.]
+    @Test
+    public void scheduleRunsTheAttemptOnAnAttemptThreadAfterTheDelay() throws InterruptedException
+    {
+        //arrange
+        ReconnectionCoordinator coordinator = createCoordinator(1, 1);
+        final CountDownLatch attemptRan = new CountDownLatch(1);
+        final Queue<String> attemptThreads = new ConcurrentLinkedQueue<>();
+        long startNanos = System.nanoTime();
+
+        //act
+        Deencapsulation.invoke(coordinator, "schedule", SCHEDULE_PARAMETER_TYPES, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                attemptThreads.add(Thread.currentThread().getName());
+                attemptRan.countDown();
+            }
+        }, 100L);
+
+        //assert
+        assertTrue(attemptRan.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - startNanos >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals("azure-iot-sdk-ReconnectionAttempt", attemptThreads.peek());
+    }
+
+    // Tests_SRS_RECONNECTIONCOORDINATOR_44_007: [If the token bucket is empty, the attempt shall be admitted
+    // again after a random delay between the time until the next token and three times that time.]
+    @Test
+    public void scheduleDelaysTheAttemptsThatTheTokenBucketCannotAdmit() throws InterruptedException
+    {
+        //arrange
+        ReconnectionCoordinator coordinator = createCoordinator(2, 10);
+        final CountDownLatch attemptsRan = new CountDownLatch(3);
+        final Queue<Long> attemptNanos = new ConcurrentLinkedQueue<>();
+        Runnable attempt = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                attemptNanos.add(System.nanoTime());
+                attemptsRan.countDown();
+            }
+        };
+        long startNanos = System.nanoTime();
+
+        //act
+        for (int i = 0; i < 3; i++)
+        {
+            Deencapsulation.invoke(coordinator, "schedule", SCHEDULE_PARAMETER_TYPES, attempt, 0L);
+        }
+
+        //assert
+        assertTrue(attemptsRan.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        int delayedAttempts = 0;
+        for (long nanos : attemptNanos)
+        {
+            if (nanos - startNanos >= TimeUnit.MILLISECONDS.toNanos(50))
+            {
+                delayedAttempts++;
+            }
+        }
+
+        assertTrue(delayedAttempts >= 1);
+    }
+
+    @Test
+    public void getInstanceReturnsTheSharedCoordinator()
+    {
+        //act
+        ReconnectionCoordinator first = Deencapsulation.invoke(ReconnectionCoordinator.class, "getInstance");
+        ReconnectionCoordinator second = Deencapsulation.invoke(ReconnectionCoordinator.class, "getInstance");
+
+        //assert
+        assertNotNull(first);
+        assertSame(first, second);
+    }
+}
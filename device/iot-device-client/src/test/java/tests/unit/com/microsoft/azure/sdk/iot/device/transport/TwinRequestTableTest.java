@@ -0,0 +1,155 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.transport.TwinRequestTable;
+import mockit.Deencapsulation;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for TwinRequestTable.
+ */
+public class TwinRequestTableTest
+{
+    private static void advanceClock(TwinRequestTable<?> table, long millis)
+    {
+        long startNanos = Deencapsulation.getField(table, "startNanos");
+        Deencapsulation.setField(table, "startNanos", startNanos - TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private static final class RecordingListener implements TwinRequestTable.ExpirationListener<String>
+    {
+        private final List<String> requestIds = new ArrayList<>();
+        private final List<String> values = new ArrayList<>();
+
+        @Override
+        public void onExpired(String requestId, String value)
+        {
+            this.requestIds.add(requestId);
+            this.values.add(value);
+        }
+    }
+
+    // Tests_SRS_TWINREQUESTTABLE_44_001: [If the timeout or the maximum number of pending requests is not positive, the constructor shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnNonPositiveTimeout()
+    {
+        new TwinRequestTable<String>(0, 10);
+    }
+
+    // Tests_SRS_TWINREQUESTTABLE_44_001: [If the timeout or the maximum number of pending requests is not positive, the constructor shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnNonPositiveMaxPendingRequests()
+    {
+        new TwinRequestTable<String>(1000, 0);
+    }
+
+    // Tests_SRS_TWINREQUESTTABLE_44_002: [If the request id is null, the function shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void putThrowsOnNullRequestId()
+    {
+        new TwinRequestTable<String>().put(null, "value");
+    }
+
+    // Tests_SRS_TWINREQUESTTABLE_44_004: [The function shall save the request with a deadline of the request timeout from now, and return true.]
+    // Tests_SRS_TWINREQUESTTABLE_44_005: [The function shall remove the pending request with the provided id and return its value, or return null if no such request is pending.]
+    @Test
+    public void removeReturnsTheValueOfThePendingRequestOnce()
+    {
+        TwinRequestTable<String> table = new TwinRequestTable<>(1000, 10);
+
+        assertTrue(table.put("1", "get"));
+        assertTrue(table.put("2", "patch"));
+
+        assertEquals("patch", table.remove("2"));
+        assertNull(table.remove("2"));
+        assertNull(table.remove(null));
+        assertEquals(1, table.size());
+        assertEquals("get", table.remove("1"));
+        assertTrue(table.isEmpty());
+    }
+
+    // Tests_SRS_TWINREQUESTTABLE_44_003: [If the table holds maxPendingRequests requests, the function shall not save the request and return false.]
+    @Test
+    public void putRefusesRequestsWhenFull()
+    {
+        TwinRequestTable<String> table = new TwinRequestTable<>(1000, 2);
+        assertTrue(table.put("1", "a"));
+        assertTrue(table.put("2", "b"));
+
+        assertFalse(table.put("3", "c"));
+        assertTrue(table.put("2", "replaced"));
+        assertEquals(2, table.size());
+
+        table.remove("1");
+        assertTrue(table.put("3", "c"));
+        assertEquals("replaced", table.remove("2"));
+    }
+
+    // Tests_SRS_TWINREQUESTTABLE_44_006: [Every call shall first remove the requests whose deadline passed, and then call the expiration listener with each of them outside the table lock.]
+    @Test
+    public void requestsExpireAfterTheTimeout()
+    {
+        TwinRequestTable<String> table = new TwinRequestTable<>(6300, 10);
+        RecordingListener listener = new RecordingListener();
+        table.setExpirationListener(listener);
+        table.put("1", "a");
+        advanceClock(table, 3000);
+        table.put("2", "b");
+
+        advanceClock(table, 3000);
+        assertEquals(0, table.expire());
+
+        advanceClock(table, table.getTickMillis() * 2 + 300);
+        assertEquals(1, table.expire());
+        assertEquals("1", listener.requestIds.get(0));
+        assertEquals("a", listener.values.get(0));
+        assertNull(table.remove("1"));
+
+        advanceClock(table, 3000);
+        assertTrue(table.put("3", "c"));
+        assertEquals(2, listener.requestIds.size());
+        assertEquals("2", listener.requestIds.get(1));
+        assertEquals(1, table.size());
+    }
+
+    // Tests_SRS_TWINREQUESTTABLE_44_006: [Every call shall first remove the requests whose deadline passed, and then call the expiration listener with each of them outside the table lock.]
+    @Test
+    public void requestsExpireAfterAGapLongerThanTheWheel()
+    {
+        TwinRequestTable<String> table = new TwinRequestTable<>(1000, 10);
+        RecordingListener listener = new RecordingListener();
+        table.setExpirationListener(listener);
+        table.put("1", "a");
+        table.put("2", "b");
+
+        advanceClock(table, 60000);
+
+        assertNull(table.remove("2"));
+        assertEquals(2, listener.requestIds.size());
+        assertTrue(table.isEmpty());
+    }
+
+    // Tests_SRS_TWINREQUESTTABLE_44_005: [The function shall remove the pending request with the provided id and return its value, or return null if no such request is pending.]
+    @Test
+    public void removedRequestsDoNotExpire()
+    {
+        TwinRequestTable<String> table = new TwinRequestTable<>(1000, 10);
+        RecordingListener listener = new RecordingListener();
+        table.setExpirationListener(listener);
+        table.put("1", "a");
+        table.remove("1");
+
+        advanceClock(table, 5000);
+
+        assertEquals(0, table.expire());
+        assertTrue(listener.requestIds.isEmpty());
+    }
+}
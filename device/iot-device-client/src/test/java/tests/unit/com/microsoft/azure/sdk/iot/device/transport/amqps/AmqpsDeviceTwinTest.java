@@ -8,6 +8,7 @@ import com.microsoft.azure.sdk.iot.device.*;
 import com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceOperations;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
+import com.microsoft.azure.sdk.iot.device.transport.TwinRequestTable;
 import com.microsoft.azure.sdk.iot.device.transport.amqps.*;
 import mockit.Deencapsulation;
 import mockit.Mocked;
@@ -154,7 +155,7 @@ public class AmqpsDeviceTwinTest
         assertTrue(amqpsProperties.containsKey(Symbol.getSymbol(API_VERSION_KEY)));
         assertTrue(amqpsProperties.containsKey(Symbol.getSymbol(CORRELATION_ID_KEY)));
 
-        Map<String, DeviceOperations> correlationIdList = Deencapsulation.getField(amqpsDeviceTwin, "correlationIdList");
+        TwinRequestTable<DeviceOperations> correlationIdList = Deencapsulation.getField(amqpsDeviceTwin, "correlationIdList");
         assertNotNull(correlationIdList);
     }
 
@@ -852,7 +853,6 @@ public class AmqpsDeviceTwinTest
     @Test
     public void convertFromProtonPropertiesCorrelationIdGetRequest(
             @Mocked final Properties mockProperties,
-            @Mocked final Map<String, DeviceOperations> mockCorrelationIdList,
             @Mocked final DeviceClientConfig mockDeviceClientConfig
     ) throws IOException
     {
@@ -871,7 +871,9 @@ public class AmqpsDeviceTwinTest
         amqpsMessage.setProperties(mockProperties);
 
         AmqpsDeviceTwin amqpsDeviceTwin = Deencapsulation.newInstance(AmqpsDeviceTwin.class, mockDeviceClientConfig);
-        Deencapsulation.setField(amqpsDeviceTwin, "correlationIdList", mockCorrelationIdList);
+        final TwinRequestTable<DeviceOperations> correlationIdList = new TwinRequestTable<>();
+        correlationIdList.put(correlationId, DEVICE_OPERATION_TWIN_GET_REQUEST);
+        Deencapsulation.setField(amqpsDeviceTwin, "correlationIdList", correlationIdList);
         Deencapsulation.invoke(amqpsDeviceTwin, "openLinks", mockSession);
 
         new NonStrictExpectations()
@@ -880,11 +882,6 @@ public class AmqpsDeviceTwinTest
                 mockProperties.getCorrelationId();
                 result = correlationId;
 
-                mockCorrelationIdList.containsKey(correlationId.toString());
-                result = true;
-                mockCorrelationIdList.get(correlationId.toString());
-                result = DEVICE_OPERATION_TWIN_GET_REQUEST;
-
                 mockProperties.getMessageId();
                 result = null;
                 mockProperties.getTo();
@@ -921,7 +918,6 @@ public class AmqpsDeviceTwinTest
     @Test
     public void convertFromProtonPropertiesCorrelationIdUpdateReportedPropertiesRequest(
             @Mocked final Properties mockProperties,
-            @Mocked final Map<String, DeviceOperations> mockCorrelationIdList,
             @Mocked final DeviceClientConfig mockDeviceClientConfig
     ) throws IOException
     {
@@ -940,7 +936,9 @@ public class AmqpsDeviceTwinTest
         amqpsMessage.setProperties(mockProperties);
 
         AmqpsDeviceTwin amqpsDeviceTwin = Deencapsulation.newInstance(AmqpsDeviceTwin.class, mockDeviceClientConfig);
-        Deencapsulation.setField(amqpsDeviceTwin, "correlationIdList", mockCorrelationIdList);
+        final TwinRequestTable<DeviceOperations> correlationIdList = new TwinRequestTable<>();
+        correlationIdList.put(correlationId, DEVICE_OPERATION_TWIN_UPDATE_REPORTED_PROPERTIES_REQUEST);
+        Deencapsulation.setField(amqpsDeviceTwin, "correlationIdList", correlationIdList);
         Deencapsulation.invoke(amqpsDeviceTwin, "openLinks", mockSession);
 
         new NonStrictExpectations()
@@ -949,11 +947,6 @@ public class AmqpsDeviceTwinTest
                 mockProperties.getCorrelationId();
                 result = correlationId;
 
-                mockCorrelationIdList.containsKey(correlationId.toString());
-                result = true;
-                mockCorrelationIdList.get(correlationId.toString());
-                result = DEVICE_OPERATION_TWIN_UPDATE_REPORTED_PROPERTIES_REQUEST;
-
                 mockProperties.getMessageId();
                 result = null;
                 mockProperties.getTo();
@@ -990,7 +983,6 @@ public class AmqpsDeviceTwinTest
     @Test
     public void convertFromProtonPropertiesCorrelationIdSubscribeDesiredPropertiesRequest(
             @Mocked final Properties mockProperties,
-            @Mocked final Map<String, DeviceOperations> mockCorrelationIdList,
             @Mocked final DeviceClientConfig mockDeviceClientConfig
     ) throws IOException
     {
@@ -1009,7 +1001,9 @@ public class AmqpsDeviceTwinTest
         amqpsMessage.setProperties(mockProperties);
 
         AmqpsDeviceTwin amqpsDeviceTwin = Deencapsulation.newInstance(AmqpsDeviceTwin.class, mockDeviceClientConfig);
-        Deencapsulation.setField(amqpsDeviceTwin, "correlationIdList", mockCorrelationIdList);
+        final TwinRequestTable<DeviceOperations> correlationIdList = new TwinRequestTable<>();
+        correlationIdList.put(correlationId, DEVICE_OPERATION_TWIN_SUBSCRIBE_DESIRED_PROPERTIES_REQUEST);
+        Deencapsulation.setField(amqpsDeviceTwin, "correlationIdList", correlationIdList);
         Deencapsulation.invoke(amqpsDeviceTwin, "openLinks", mockSession);
 
         new NonStrictExpectations()
@@ -1018,11 +1012,6 @@ public class AmqpsDeviceTwinTest
                 mockProperties.getCorrelationId();
                 result = correlationId;
 
-                mockCorrelationIdList.containsKey(correlationId.toString());
-                result = true;
-                mockCorrelationIdList.get(correlationId.toString());
-                result = DEVICE_OPERATION_TWIN_SUBSCRIBE_DESIRED_PROPERTIES_REQUEST;
-
                 mockProperties.getMessageId();
                 result = null;
                 mockProperties.getTo();
@@ -1059,7 +1048,6 @@ public class AmqpsDeviceTwinTest
     @Test
     public void convertFromProtonPropertiesCorrelationIdUnSubscribeDesiredPropertiesRequest(
             @Mocked final Properties mockProperties,
-            @Mocked final Map<String, DeviceOperations> mockCorrelationIdList,
             @Mocked final DeviceClientConfig mockDeviceClientConfig
     ) throws IOException
     {
@@ -1078,7 +1066,9 @@ public class AmqpsDeviceTwinTest
         amqpsMessage.setProperties(mockProperties);
 
         AmqpsDeviceTwin amqpsDeviceTwin = Deencapsulation.newInstance(AmqpsDeviceTwin.class, mockDeviceClientConfig);
-        Deencapsulation.setField(amqpsDeviceTwin, "correlationIdList", mockCorrelationIdList);
+        final TwinRequestTable<DeviceOperations> correlationIdList = new TwinRequestTable<>();
+        correlationIdList.put(correlationId, DEVICE_OPERATION_TWIN_UNSUBSCRIBE_DESIRED_PROPERTIES_REQUEST);
+        Deencapsulation.setField(amqpsDeviceTwin, "correlationIdList", correlationIdList);
         Deencapsulation.invoke(amqpsDeviceTwin, "openLinks", mockSession);
 
         new NonStrictExpectations()
@@ -1087,11 +1077,6 @@ public class AmqpsDeviceTwinTest
                 mockProperties.getCorrelationId();
                 result = correlationId;
 
-                mockCorrelationIdList.containsKey(correlationId.toString());
-                result = true;
-                mockCorrelationIdList.get(correlationId.toString());
-                result = DEVICE_OPERATION_TWIN_UNSUBSCRIBE_DESIRED_PROPERTIES_REQUEST;
-
                 mockProperties.getMessageId();
                 result = null;
                 mockProperties.getTo();
@@ -1128,7 +1113,6 @@ public class AmqpsDeviceTwinTest
     @Test
     public void convertFromProtonPropertiesCorrelationIdRemoves(
             @Mocked final Properties mockProperties,
-            @Mocked final Map<String, DeviceOperations> mockCorrelationIdList,
             @Mocked final DeviceClientConfig mockDeviceClientConfig
     ) throws IOException
     {
@@ -1147,7 +1131,9 @@ public class AmqpsDeviceTwinTest
         amqpsMessage.setProperties(mockProperties);
 
         AmqpsDeviceTwin amqpsDeviceTwin = Deencapsulation.newInstance(AmqpsDeviceTwin.class, mockDeviceClientConfig);
-        Deencapsulation.setField(amqpsDeviceTwin, "correlationIdList", mockCorrelationIdList);
+        final TwinRequestTable<DeviceOperations> correlationIdList = new TwinRequestTable<>();
+        correlationIdList.put(correlationId, DEVICE_OPERATION_TWIN_UNSUBSCRIBE_DESIRED_PROPERTIES_REQUEST);
+        Deencapsulation.setField(amqpsDeviceTwin, "correlationIdList", correlationIdList);
         Deencapsulation.invoke(amqpsDeviceTwin, "openLinks", mockSession);
 
         new NonStrictExpectations()
@@ -1156,11 +1142,6 @@ public class AmqpsDeviceTwinTest
                 mockProperties.getCorrelationId();
                 result = correlationId;
 
-                mockCorrelationIdList.containsKey(correlationId.toString());
-                result = true;
-                mockCorrelationIdList.get(correlationId.toString());
-                result = DEVICE_OPERATION_TWIN_UNSUBSCRIBE_DESIRED_PROPERTIES_REQUEST;
-
                 mockProperties.getMessageId();
                 result = null;
                 mockProperties.getTo();
@@ -1184,13 +1165,7 @@ public class AmqpsDeviceTwinTest
         Object actualMessageContext = Deencapsulation.getField(amqpsConvertFromProtonReturnValue, "messageContext");
 
         //assert
-        new Verifications()
-        {
-            {
-                mockCorrelationIdList.remove(correlationId.toString());
-                times = 1;
-            }
-        };
+        assertTrue(correlationIdList.isEmpty());
 
         assertNotNull(actualMessage);
         assertEquals(correlationId, (actualMessage).getCorrelationId());
@@ -1463,7 +1438,6 @@ public class AmqpsDeviceTwinTest
     @Test
     public void convertToProtonSetsProperties(
             @Mocked final Properties mockProperties,
-            @Mocked final Map<String, DeviceOperations> mockCorrelationIdList,
             @Mocked final IotHubTransportMessage mockIotHubTransportMessage,
             @Mocked final MessageImpl mockMessageImpl,
             @Mocked final UUID mockUUID
@@ -1474,7 +1448,8 @@ public class AmqpsDeviceTwinTest
         final String correlationId = "correlationId";
 
         AmqpsDeviceTwin amqpsDeviceTwin = Deencapsulation.newInstance(AmqpsDeviceTwin.class, mockDeviceClientConfig);
-        Deencapsulation.setField(amqpsDeviceTwin, "correlationIdList", mockCorrelationIdList);
+        final TwinRequestTable<DeviceOperations> correlationIdList = new TwinRequestTable<>();
+        Deencapsulation.setField(amqpsDeviceTwin, "correlationIdList", correlationIdList);
         Deencapsulation.invoke(amqpsDeviceTwin, "openLinks", mockSession);
 
         new NonStrictExpectations()
@@ -1503,13 +1478,12 @@ public class AmqpsDeviceTwinTest
                 times = 1;
                 mockProperties.setCorrelationId(any);
                 times = 2;
-                mockCorrelationIdList.put(anyString, (DeviceOperations) any);
-                times = 1;
                 mockMessageImpl.setProperties(mockProperties);
                 times = 1;
             }
         };
 
+        assertEquals(1, correlationIdList.size());
         assertNotNull(amqpsConvertToProtonReturnValue);
         assertNotNull(Deencapsulation.invoke(amqpsConvertToProtonReturnValue, "getMessageImpl"));
         assertEquals(MessageType.DEVICE_TWIN, Deencapsulation.invoke(amqpsConvertToProtonReturnValue, "getMessageType"));
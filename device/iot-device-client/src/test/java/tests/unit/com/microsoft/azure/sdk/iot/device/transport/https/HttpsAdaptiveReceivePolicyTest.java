@@ -0,0 +1,101 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.transport.https;
+
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsAdaptiveReceivePolicy;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for HttpsAdaptiveReceivePolicy.
+ */
+public class HttpsAdaptiveReceivePolicyTest
+{
+    // Tests_SRS_HTTPSADAPTIVERECEIVEPOLICY_44_001: [If minPollingIntervalMillis is not positive, or maxPollingIntervalMillis is smaller than it, the constructor shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnNonPositiveMinimumInterval()
+    {
+        new HttpsAdaptiveReceivePolicy(0, 1000, 10);
+    }
+
+    // Tests_SRS_HTTPSADAPTIVERECEIVEPOLICY_44_001: [If minPollingIntervalMillis is not positive, or maxPollingIntervalMillis is smaller than it, the constructor shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnMaximumSmallerThanMinimum()
+    {
+        new HttpsAdaptiveReceivePolicy(1000, 999, 10);
+    }
+
+    // Tests_SRS_HTTPSADAPTIVERECEIVEPOLICY_44_002: [If maxMessagesPerPoll is not positive, the constructor shall throw IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnNonPositiveMaxMessages()
+    {
+        new HttpsAdaptiveReceivePolicy(100, 1000, 0);
+    }
+
+    // Tests_SRS_HTTPSADAPTIVERECEIVEPOLICY_44_005: [If the poll fetched no message, the next poll shall happen after the idle interval, and the idle interval shall be doubled up to the maximum interval.]
+    @Test
+    public void emptyPollsBackOffExponentiallyUpToTheMaximum()
+    {
+        // arrange
+        HttpsAdaptiveReceivePolicy policy = new HttpsAdaptiveReceivePolicy(100, 500, 10);
+
+        // act - assert
+        assertEquals(100, policy.onPollCompleted(0));
+        assertEquals(200, policy.onPollCompleted(0));
+        assertEquals(400, policy.onPollCompleted(0));
+        assertEquals(500, policy.onPollCompleted(0));
+        assertEquals(500, policy.onPollCompleted(0));
+        assertEquals(500, policy.getNextPollDelayMillis());
+    }
+
+    // Tests_SRS_HTTPSADAPTIVERECEIVEPOLICY_44_005: [If the poll fetched no message, the next poll shall happen after the idle interval, and the idle interval shall be doubled up to the maximum interval.]
+    @Test
+    public void emptyPollsDoNotOverflowWithAHugeMaximum()
+    {
+        // arrange
+        HttpsAdaptiveReceivePolicy policy = new HttpsAdaptiveReceivePolicy(Long.MAX_VALUE / 2 + 1, Long.MAX_VALUE, 10);
+
+        // act
+        policy.onPollCompleted(0);
+
+        // assert
+        assertEquals(Long.MAX_VALUE, policy.onPollCompleted(0));
+    }
+
+    // Tests_SRS_HTTPSADAPTIVERECEIVEPOLICY_44_003: [If the poll fetched maxMessagesPerPoll messages, the next poll shall happen right away and the idle interval shall be reset to the minimum.]
+    // Tests_SRS_HTTPSADAPTIVERECEIVEPOLICY_44_004: [If the poll fetched some messages, the next poll shall happen after the minimum interval and the idle interval shall be reset to the minimum.]
+    @Test
+    public void receivedMessagesResetTheBackOff()
+    {
+        // arrange
+        HttpsAdaptiveReceivePolicy policy = new HttpsAdaptiveReceivePolicy(100, 10000, 10);
+        policy.onPollCompleted(0);
+        policy.onPollCompleted(0);
+        policy.onPollCompleted(0);
+
+        // act - assert
+        assertEquals(0, policy.onPollCompleted(10));
+        assertEquals(100, policy.onPollCompleted(0));
+        policy.onPollCompleted(0);
+        assertEquals(100, policy.onPollCompleted(3));
+        assertEquals(100, policy.onPollCompleted(0));
+    }
+
+    @Test
+    public void resetStartsOverFromTheMinimum()
+    {
+        // arrange
+        HttpsAdaptiveReceivePolicy policy = new HttpsAdaptiveReceivePolicy(100, 10000, 10);
+        policy.onPollCompleted(0);
+        policy.onPollCompleted(0);
+
+        // act
+        policy.reset();
+
+        // assert
+        assertEquals(100, policy.getNextPollDelayMillis());
+        assertEquals(100, policy.onPollCompleted(0));
+    }
+}
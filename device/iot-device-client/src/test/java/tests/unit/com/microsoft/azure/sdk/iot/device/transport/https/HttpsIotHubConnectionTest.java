@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.net.URL;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -1113,6 +1114,101 @@ public class HttpsIotHubConnectionTest
         conn.receiveMessage();
     }
 
+    // Tests_SRS_HTTPSIOTHUBCONNECTION_44_001: [If maxMessages is not positive, the function shall throw an IllegalArgumentException.]
+    @Test(expected = IllegalArgumentException.class)
+    public void receiveMessagesThrowsOnNonPositiveMaxMessages() throws TransportException
+    {
+        HttpsIotHubConnection conn = new HttpsIotHubConnection(mockConfig);
+        conn.receiveMessages(0);
+    }
+
+    // Tests_SRS_HTTPSIOTHUBCONNECTION_44_002: [The function shall call receiveMessage until it returns null or maxMessages messages are received, and return the received messages in order.]
+    @Test
+    public void receiveMessagesStopsOnTheFirstEmptyPoll(@Mocked final IotHubTransportMessage secondMessage) throws TransportException
+    {
+        final HttpsIotHubConnection conn = new HttpsIotHubConnection(mockConfig);
+        new NonStrictExpectations(conn)
+        {
+            {
+                conn.receiveMessage();
+                returns(mockedTransportMessage, secondMessage, null);
+            }
+        };
+
+        List<IotHubTransportMessage> messages = conn.receiveMessages(5);
+
+        assertEquals(2, messages.size());
+        assertThat(messages.get(0), is(mockedTransportMessage));
+        assertThat(messages.get(1), is(secondMessage));
+        new Verifications()
+        {
+            {
+                conn.receiveMessage();
+                times = 3;
+            }
+        };
+    }
+
+    // Tests_SRS_HTTPSIOTHUBCONNECTION_44_002: [The function shall call receiveMessage until it returns null or maxMessages messages are received, and return the received messages in order.]
+    @Test
+    public void receiveMessagesStopsAtMaxMessages() throws TransportException
+    {
+        final HttpsIotHubConnection conn = new HttpsIotHubConnection(mockConfig);
+        new NonStrictExpectations(conn)
+        {
+            {
+                conn.receiveMessage();
+                result = mockedTransportMessage;
+            }
+        };
+
+        List<IotHubTransportMessage> messages = conn.receiveMessages(2);
+
+        assertEquals(2, messages.size());
+        new Verifications()
+        {
+            {
+                conn.receiveMessage();
+                times = 2;
+            }
+        };
+    }
+
+    // Tests_SRS_HTTPSIOTHUBCONNECTION_44_003: [If the IoT Hub could not be reached before any message was received, the function shall throw the TransportException.]
+    @Test(expected = TransportException.class)
+    public void receiveMessagesThrowsIfFirstPollFails() throws TransportException
+    {
+        final HttpsIotHubConnection conn = new HttpsIotHubConnection(mockConfig);
+        new NonStrictExpectations(conn)
+        {
+            {
+                conn.receiveMessage();
+                result = new TransportException();
+            }
+        };
+
+        conn.receiveMessages(2);
+    }
+
+    // Tests_SRS_HTTPSIOTHUBCONNECTION_44_004: [If the IoT Hub could not be reached after some messages were received, the function shall return the received messages.]
+    @Test
+    public void receiveMessagesReturnsTheReceivedMessagesIfALaterPollFails() throws TransportException
+    {
+        final HttpsIotHubConnection conn = new HttpsIotHubConnection(mockConfig);
+        new NonStrictExpectations(conn)
+        {
+            {
+                conn.receiveMessage();
+                result = mockedTransportMessage;
+                result = new TransportException();
+            }
+        };
+
+        List<IotHubTransportMessage> messages = conn.receiveMessages(3);
+
+        assertEquals(1, messages.size());
+    }
+
     // Tests_SRS_HTTPSIOTHUBCONNECTION_11_024: [If the result is COMPLETE, the function shall send a request to the URL 'https://[iotHubHostname]/devices/[deviceId]/messages/devicebound/[eTag]?api-version=2016-02-03'.]
     // Tests_SRS_HTTPSIOTHUBCONNECTION_34_069: [If the IoT Hub status code in the response is OK_EMPTY or OK, the function shall remove the sent eTag from its map and return true.]
     @Test
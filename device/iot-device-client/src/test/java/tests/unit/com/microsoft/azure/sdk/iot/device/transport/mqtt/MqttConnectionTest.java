@@ -21,6 +21,7 @@ import javax.net.ssl.SSLContext;
 import java.io.IOException;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
 
 import static org.junit.Assert.*;
 
@@ -113,6 +114,42 @@ public class MqttConnectionTest
         assertNotNull(actualLock);
     }
 
+    //Tests_SRS_MQTTCONNECTION_44_001: [If an executor is provided, the constructor shall create the MqttAsync client with that executor for its network threads and its keep alive pings.]
+    @Test
+    public void constructorWithExecutorRunsPahoOnTheExecutor(@Mocked final ScheduledExecutorService mockExecutorService,
+                                                             @Mocked final ScheduledExecutorPingSender mockPingSender) throws Exception
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                new MemoryPersistence();
+                result = mockMemoryPersistence;
+                new ScheduledExecutorPingSender(mockExecutorService);
+                result = mockPingSender;
+                new MqttConnectOptions();
+                result = mockMqttConnectionOptions;
+            }
+        };
+
+        //act
+        Deencapsulation.newInstance(MqttConnection.class,
+                new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ScheduledExecutorService.class},
+                SERVER_URI, CLIENT_ID, USER_NAME, PWORD, mockIotHubSSLContext, mockExecutorService);
+
+        //assert
+        baseConstructorVerifications();
+        new Verifications()
+        {
+            {
+                new MqttAsyncClient(SERVER_URI, CLIENT_ID, mockMemoryPersistence, mockPingSender, mockExecutorService);
+                times = 1;
+                new MqttAsyncClient(SERVER_URI, CLIENT_ID, mockMemoryPersistence);
+                times = 0;
+            }
+        };
+    }
+
     @Test (expected = ProtocolException.class)
     public void constructorThrowsOnAsyncClientFailure() throws Exception
     {
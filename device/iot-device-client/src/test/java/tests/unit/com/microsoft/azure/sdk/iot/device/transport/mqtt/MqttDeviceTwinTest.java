@@ -9,6 +9,7 @@ import com.microsoft.azure.sdk.iot.device.MessageType;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 import com.microsoft.azure.sdk.iot.device.exceptions.IotHubServiceException;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
+import com.microsoft.azure.sdk.iot.device.transport.TwinRequestTable;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.Mqtt;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttConnection;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttDeviceTwin;
@@ -160,6 +161,54 @@ public class MqttDeviceTwinTest
             }
         };
     }
+    /*
+    **Tests_SRS_MQTTDEVICETWIN_44_001: [If the twin request table is full, send method shall throw a retryable TransportException without sending the message.]
+     */
+    @Test
+    public void sendThrowsRetryableExceptionWhenTooManyRequestsArePending(@Mocked final Mqtt mockMqtt, @Mocked final IotHubTransportMessage mockMessage) throws TransportException
+    {
+        //arrange
+        final byte[] actualPayload = {0x61, 0x62, 0x63};
+        MqttDeviceTwin testTwin = new MqttDeviceTwin(mockedMqttConnection, "", new HashMap<Integer, Message>());
+        testTwin.start();
+        TwinRequestTable<DeviceOperations> requestMap = new TwinRequestTable<>(60000, 1);
+        requestMap.put("pending", DEVICE_OPERATION_TWIN_GET_REQUEST);
+        Deencapsulation.setField(testTwin, "requestMap", requestMap);
+        new NonStrictExpectations()
+        {
+            {
+                mockMessage.getBytes();
+                result = actualPayload;
+                mockMessage.getMessageType();
+                result = MessageType.DEVICE_TWIN;
+                mockMessage.getDeviceOperationType();
+                result = DEVICE_OPERATION_TWIN_GET_REQUEST;
+                mockMessage.getRequestId();
+                result = mockReqId;
+            }
+        };
+
+        //act
+        try
+        {
+            testTwin.send(mockMessage);
+            fail("send should have thrown");
+        }
+        catch (TransportException e)
+        {
+            //assert
+            assertTrue(e.isRetryable());
+        }
+
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockMqtt, "publish", anyString, mockMessage);
+                times = 0;
+            }
+        };
+    }
+
     /*
     **Tests_SRS_MQTTDEVICETWIN_25_025: [send method shall throw an IllegalArgumentException if message contains a null or empty request id if the operation is of type DEVICE_OPERATION_TWIN_GET_REQUEST.]
      */
@@ -507,7 +556,7 @@ public class MqttDeviceTwinTest
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
             Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
-            Map<String, DeviceOperations> requestMap = new HashMap<>();
+            TwinRequestTable<DeviceOperations> requestMap = new TwinRequestTable<>();
             requestMap.put(mockReqId, DEVICE_OPERATION_TWIN_GET_REQUEST);
             Deencapsulation.setField(testTwin, "requestMap", requestMap);
 
@@ -547,7 +596,7 @@ public class MqttDeviceTwinTest
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
             Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
 
-            Map<String, DeviceOperations> requestMap = new HashMap<>();
+            TwinRequestTable<DeviceOperations> requestMap = new TwinRequestTable<>();
             requestMap.put(mockReqId, DEVICE_OPERATION_TWIN_UPDATE_REPORTED_PROPERTIES_REQUEST);
             Deencapsulation.setField(testTwin, "requestMap", requestMap);
 
@@ -679,7 +728,7 @@ public class MqttDeviceTwinTest
             Deencapsulation.setField(testTwin, "stateLock", new Object());
 
 
-            Map<String, DeviceOperations> requestMap = new HashMap<>();
+            TwinRequestTable<DeviceOperations> requestMap = new TwinRequestTable<>();
             requestMap.put(mockReqId, DEVICE_OPERATION_TWIN_GET_REQUEST);
             Deencapsulation.setField(testTwin, "requestMap", requestMap);
 
@@ -714,7 +763,7 @@ public class MqttDeviceTwinTest
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
             Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
 
-            Map<String, DeviceOperations> requestMap = new HashMap<>();
+            TwinRequestTable<DeviceOperations> requestMap = new TwinRequestTable<>();
             requestMap.put(mockReqId, DEVICE_OPERATION_TWIN_GET_REQUEST);
             Deencapsulation.setField(testTwin, "requestMap", requestMap);
             Deencapsulation.setField(testTwin, "stateLock", new Object());
@@ -753,7 +802,7 @@ public class MqttDeviceTwinTest
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
             Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
 
-            Map<String, DeviceOperations> requestMap = new HashMap<>();
+            TwinRequestTable<DeviceOperations> requestMap = new TwinRequestTable<>();
             requestMap.put(mockReqId, DEVICE_OPERATION_TWIN_GET_REQUEST);
             Deencapsulation.setField(testTwin, "requestMap", requestMap);
 
@@ -792,7 +841,7 @@ public class MqttDeviceTwinTest
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
             Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
-            Map<String, DeviceOperations> requestMap = new HashMap<>();
+            TwinRequestTable<DeviceOperations> requestMap = new TwinRequestTable<>();
             requestMap.put(mockReqId, DEVICE_OPERATION_TWIN_GET_REQUEST);
             Deencapsulation.setField(testTwin, "requestMap", requestMap);
 
@@ -830,7 +879,7 @@ public class MqttDeviceTwinTest
             Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
             Deencapsulation.setField(testTwin, "stateLock", new Object());
 
-            Map<String, DeviceOperations> requestMap = new HashMap<>();
+            TwinRequestTable<DeviceOperations> requestMap = new TwinRequestTable<>();
             requestMap.put(mockReqId, DEVICE_OPERATION_TWIN_GET_REQUEST);
             Deencapsulation.setField(testTwin, "requestMap", requestMap);
 
@@ -880,7 +929,7 @@ public class MqttDeviceTwinTest
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
             Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
 
-            Map<String, DeviceOperations> requestMap = new HashMap<>();
+            TwinRequestTable<DeviceOperations> requestMap = new TwinRequestTable<>();
             requestMap.put(mockReqId, DEVICE_OPERATION_TWIN_UPDATE_REPORTED_PROPERTIES_REQUEST);
             Deencapsulation.setField(testTwin, "requestMap", requestMap);
             Deencapsulation.setField(testTwin, "stateLock", new Object());
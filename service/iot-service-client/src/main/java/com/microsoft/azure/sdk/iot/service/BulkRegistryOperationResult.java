@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+import com.microsoft.azure.sdk.iot.deps.serializer.BulkRegistryOperationResultParser;
+import com.microsoft.azure.sdk.iot.deps.serializer.DeviceRegistryOperationErrorParser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of a bulk device registry operation. Devices that are not listed in {@link #getErrors()} were
+ * processed successfully.
+ */
+public class BulkRegistryOperationResult
+{
+    private boolean isSuccessful;
+    private List<DeviceRegistryOperationError> errors;
+
+    /**
+     * Creates an empty, successful result that chunk results can be merged into.
+     */
+    BulkRegistryOperationResult()
+    {
+        this.isSuccessful = true;
+        this.errors = new ArrayList<>();
+    }
+
+    /**
+     * Constructs a BulkRegistryOperationResult object based off of a BulkRegistryOperationResultParser object
+     * @param parser the object to base the constructed object on
+     */
+    BulkRegistryOperationResult(BulkRegistryOperationResultParser parser)
+    {
+        //Codes_SRS_SERVICE_SDK_JAVA_BULK_REGISTRY_OPERATION_RESULT_44_001: [If the provided parser is null, an IllegalArgumentException shall be thrown.]
+        if (parser == null)
+        {
+            throw new IllegalArgumentException("The parser may not be null");
+        }
+
+        //Codes_SRS_SERVICE_SDK_JAVA_BULK_REGISTRY_OPERATION_RESULT_44_002: [This constructor shall copy the isSuccessful flag and every error of the provided parser.]
+        this.isSuccessful = parser.getIsSuccessful();
+        this.errors = new ArrayList<>();
+        for (DeviceRegistryOperationErrorParser errorParser : parser.getErrors())
+        {
+            this.errors.add(new DeviceRegistryOperationError(errorParser));
+        }
+    }
+
+    /**
+     * Merges the result of another chunk of the same bulk operation into this one.
+     * @param other the result to merge
+     */
+    void merge(BulkRegistryOperationResult other)
+    {
+        //Codes_SRS_SERVICE_SDK_JAVA_BULK_REGISTRY_OPERATION_RESULT_44_003: [This method shall only be successful if both results were successful, and shall append the errors of the other result.]
+        this.isSuccessful = this.isSuccessful && other.isSuccessful;
+        this.errors.addAll(other.errors);
+    }
+
+    /**
+     * Getter for the overall status of the operation.
+     * @return true if every device was processed successfully, false otherwise.
+     */
+    public boolean getIsSuccessful()
+    {
+        return isSuccessful;
+    }
+
+    /**
+     * Getter for the per device errors of the operation.
+     * @return The unmodifiable list of errors, empty if every device was processed successfully.
+     */
+    public List<DeviceRegistryOperationError> getErrors()
+    {
+        return Collections.unmodifiableList(errors);
+    }
+}
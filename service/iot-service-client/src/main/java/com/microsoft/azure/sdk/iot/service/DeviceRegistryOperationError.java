@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+import com.microsoft.azure.sdk.iot.deps.serializer.DeviceRegistryOperationErrorParser;
+
+/**
+ * The error reported by the IoT Hub for a single device of a bulk registry operation.
+ */
+public class DeviceRegistryOperationError
+{
+    private String deviceId;
+    private String errorCode;
+    private String errorStatus;
+
+    /**
+     * Constructs a DeviceRegistryOperationError object based off of a DeviceRegistryOperationErrorParser object
+     * @param parser the object to base the constructed object on
+     */
+    DeviceRegistryOperationError(DeviceRegistryOperationErrorParser parser)
+    {
+        //Codes_SRS_SERVICE_SDK_JAVA_DEVICE_REGISTRY_OPERATION_ERROR_44_001: [If the provided parser is null, an IllegalArgumentException shall be thrown.]
+        if (parser == null)
+        {
+            throw new IllegalArgumentException("The parser may not be null");
+        }
+
+        //Codes_SRS_SERVICE_SDK_JAVA_DEVICE_REGISTRY_OPERATION_ERROR_44_002: [This constructor shall copy the deviceId, errorCode and errorStatus of the provided parser.]
+        this.deviceId = parser.getDeviceId();
+        this.errorCode = parser.getErrorCode();
+        this.errorStatus = parser.getErrorStatus();
+    }
+
+    /**
+     * Getter for the id of the device that the operation failed for.
+     * @return The device id.
+     */
+    public String getDeviceId()
+    {
+        return deviceId;
+    }
+
+    /**
+     * Getter for the IoT Hub error code, for instance "DeviceAlreadyExists".
+     * @return The error code.
+     */
+    public String getErrorCode()
+    {
+        return errorCode;
+    }
+
+    /**
+     * Getter for the human readable description of the error.
+     * @return The error status.
+     */
+    public String getErrorStatus()
+    {
+        return errorStatus;
+    }
+}
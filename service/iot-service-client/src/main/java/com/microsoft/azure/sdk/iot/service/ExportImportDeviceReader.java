@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+import com.microsoft.azure.sdk.iot.deps.serializer.ExportImportDeviceParser;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Streaming reader for the devices blob used by {@link RegistryManager#exportDevices(String, Boolean)} and
+ * {@link RegistryManager#importDevices(String, String)}. The blob holds one json serialized device per line, and
+ * this reader parses one line at a time so that memory usage does not depend on the size of the blob.
+ */
+public class ExportImportDeviceReader implements Iterator<ExportImportDevice>, Closeable
+{
+    private final BufferedReader reader;
+    private String nextLine;
+    private boolean endOfStream;
+
+    /**
+     * Creates a reader over the provided stream of json lines. The stream is closed when this reader is closed.
+     * @param inputStream the stream to read the devices from
+     * @throws IllegalArgumentException if the provided inputStream is null
+     */
+    public ExportImportDeviceReader(InputStream inputStream) throws IllegalArgumentException
+    {
+        //Codes_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_READER_44_001: [If the provided inputStream is null, an IllegalArgumentException shall be thrown.]
+        if (inputStream == null)
+        {
+            throw new IllegalArgumentException("inputStream cannot be null");
+        }
+
+        this.reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Checks if another device can be read from the stream.
+     * @return true if there is at least one more device to read
+     * @throws UncheckedIOException if the stream could not be read
+     */
+    @Override
+    public boolean hasNext() throws UncheckedIOException
+    {
+        //Codes_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_READER_44_002: [This method shall skip blank lines and return true only if a non blank line is available.]
+        while (this.nextLine == null && !this.endOfStream)
+        {
+            String line;
+            try
+            {
+                line = this.reader.readLine();
+            }
+            catch (IOException e)
+            {
+                //Codes_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_READER_44_003: [If the stream cannot be read, an UncheckedIOException shall be thrown.]
+                throw new UncheckedIOException(e);
+            }
+
+            if (line == null)
+            {
+                this.endOfStream = true;
+            }
+            else if (!line.trim().isEmpty())
+            {
+                this.nextLine = line;
+            }
+        }
+
+        return this.nextLine != null;
+    }
+
+    /**
+     * Reads the next device from the stream.
+     * @return the next device
+     * @throws NoSuchElementException if there are no more devices in the stream
+     * @throws IllegalArgumentException if the next line is not a valid serialized device
+     */
+    @Override
+    public ExportImportDevice next() throws NoSuchElementException, IllegalArgumentException
+    {
+        if (!hasNext())
+        {
+            //Codes_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_READER_44_004: [If there are no more devices in the stream, a NoSuchElementException shall be thrown.]
+            throw new NoSuchElementException("There are no more devices in the stream");
+        }
+
+        String line = this.nextLine;
+        this.nextLine = null;
+
+        //Codes_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_READER_44_005: [This method shall parse the next line into an ExportImportDevice and return it.]
+        //Codes_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_READER_44_007: [If the next line is not a valid serialized device, an IllegalArgumentException shall be thrown.]
+        return new ExportImportDevice(new ExportImportDeviceParser(line));
+    }
+
+    /**
+     * Closes the underlying stream.
+     * @throws IOException if the stream could not be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        //Codes_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_READER_44_006: [This method shall close the underlying stream.]
+        this.reader.close();
+    }
+}
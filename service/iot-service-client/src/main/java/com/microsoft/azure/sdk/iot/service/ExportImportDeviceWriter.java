@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Streaming writer for the devices blob used by {@link RegistryManager#importDevices(String, String)}. Every
+ * accepted device is written as one json line. When created with a parallelism greater than one, devices are
+ * serialized on a pool of threads while a bounded window of pending devices keeps the output in acceptance order
+ * and the memory usage constant.
+ */
+public class ExportImportDeviceWriter implements Consumer<ExportImportDevice>, Closeable, Flushable
+{
+    private static final char LINE_SEPARATOR = '\n';
+    private static final int PENDING_DEVICES_PER_THREAD = 64;
+
+    private final BufferedWriter writer;
+    private final ExecutorService executor;
+    private final Queue<Future<String>> pendingDevices;
+    private final int maxPendingDevices;
+
+    /**
+     * Creates a writer that serializes devices on the calling thread.
+     * @param outputStream the stream to write the devices to
+     * @throws IllegalArgumentException if the provided outputStream is null
+     */
+    public ExportImportDeviceWriter(OutputStream outputStream) throws IllegalArgumentException
+    {
+        this(outputStream, 1);
+    }
+
+    /**
+     * Creates a writer that serializes devices on the provided number of threads.
+     * @param outputStream the stream to write the devices to. It is closed when this writer is closed.
+     * @param parallelism the number of threads used to serialize devices, 1 to serialize on the calling thread
+     * @throws IllegalArgumentException if the provided outputStream is null or the parallelism is less than 1
+     */
+    public ExportImportDeviceWriter(OutputStream outputStream, int parallelism) throws IllegalArgumentException
+    {
+        //Codes_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_WRITER_44_001: [If the provided outputStream is null, an IllegalArgumentException shall be thrown.]
+        if (outputStream == null)
+        {
+            throw new IllegalArgumentException("outputStream cannot be null");
+        }
+
+        //Codes_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_WRITER_44_002: [If the provided parallelism is less than 1, an IllegalArgumentException shall be thrown.]
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        this.pendingDevices = new ArrayDeque<>();
+        this.maxPendingDevices = parallelism * PENDING_DEVICES_PER_THREAD;
+
+        //Codes_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_WRITER_44_003: [If the provided parallelism is greater than 1, this writer shall serialize devices on a fixed pool of that many threads.]
+        this.executor = parallelism > 1 ? Executors.newFixedThreadPool(parallelism) : null;
+    }
+
+    /**
+     * Writes the provided device as one json line.
+     * @param device the device to write
+     * @throws IllegalArgumentException if the provided device is null
+     * @throws IllegalStateException if the provided device cannot be serialized
+     * @throws UncheckedIOException if the stream could not be written
+     */
+    @Override
+    public void accept(ExportImportDevice device) throws IllegalArgumentException, IllegalStateException, UncheckedIOException
+    {
+        //Codes_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_WRITER_44_004: [If the provided device is null, an IllegalArgumentException shall be thrown.]
+        if (device == null)
+        {
+            throw new IllegalArgumentException("device cannot be null");
+        }
+
+        try
+        {
+            if (this.executor == null)
+            {
+                //Codes_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_WRITER_44_005: [This method shall write the json representation of the provided device followed by a line separator.]
+                writeLine(device.toExportImportDeviceParser().toJson());
+            }
+            else
+            {
+                //Codes_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_WRITER_44_006: [If this writer serializes in parallel, this method shall wait for the oldest pending device once the window of pending devices is full.]
+                if (this.pendingDevices.size() >= this.maxPendingDevices)
+                {
+                    writePendingDevice();
+                }
+
+                this.pendingDevices.add(this.executor.submit(() -> device.toExportImportDeviceParser().toJson()));
+            }
+        }
+        catch (IOException e)
+        {
+            //Codes_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_WRITER_44_007: [If the stream cannot be written, an UncheckedIOException shall be thrown.]
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes every pending device and flushes the underlying stream.
+     * @throws IOException if the stream could not be written
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        //Codes_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_WRITER_44_008: [This method shall write every pending device in acceptance order and flush the underlying stream.]
+        while (!this.pendingDevices.isEmpty())
+        {
+            writePendingDevice();
+        }
+
+        this.writer.flush();
+    }
+
+    /**
+     * Writes every pending device, stops the serialization threads and closes the underlying stream.
+     * @throws IOException if the stream could not be written or closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            //Codes_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_WRITER_44_009: [This method shall shut down the serialization threads and close the underlying stream, even if flushing failed.]
+            if (this.executor != null)
+            {
+                this.executor.shutdownNow();
+            }
+
+            this.writer.close();
+        }
+    }
+
+    private void writePendingDevice() throws IOException
+    {
+        Future<String> pendingDevice = this.pendingDevices.remove();
+        try
+        {
+            writeLine(pendingDevice.get());
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while serializing a device", e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw new IOException("Failed to serialize a device", e.getCause());
+        }
+    }
+
+    private void writeLine(String json) throws IOException
+    {
+        this.writer.write(json);
+        this.writer.write(LINE_SEPARATOR);
+    }
+}
@@ -6,6 +6,7 @@
 package com.microsoft.azure.sdk.iot.service;
 
 import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpReceive;
+import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSubscription;
 
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
@@ -23,6 +24,10 @@ public class FeedbackReceiver extends Receiver
 
     private String deviceId;
     private AmqpReceive amqpReceive;
+    private String hostName;
+    private String userName;
+    private String sasToken;
+    private IotHubServiceClientProtocol iotHubServiceClientProtocol;
 
     /**
      * Constructor to verify initialization parameters
@@ -60,6 +65,10 @@ public class FeedbackReceiver extends Receiver
         this.deviceId = deviceId;
         // Codes_SRS_SERVICE_SDK_JAVA_FEEDBACKRECEIVER_12_003: [The constructor shall create a new instance of AmqpReceive object]
         this.amqpReceive = new AmqpReceive(hostName, userName, sasToken, iotHubServiceClientProtocol);
+        this.hostName = hostName;
+        this.userName = userName;
+        this.sasToken = sasToken;
+        this.iotHubServiceClientProtocol = iotHubServiceClientProtocol;
     }
 
     /**
@@ -95,6 +104,10 @@ public class FeedbackReceiver extends Receiver
                 
         // Codes_SRS_SERVICE_SDK_JAVA_FEEDBACKRECEIVER_12_003: [The constructor shall create a new instance of AmqpReceive object]
         this.amqpReceive = new AmqpReceive(hostName, userName, sasToken, iotHubServiceClientProtocol);
+        this.hostName = hostName;
+        this.userName = userName;
+        this.sasToken = sasToken;
+        this.iotHubServiceClientProtocol = iotHubServiceClientProtocol;
     }
         
     /**
@@ -160,6 +173,53 @@ public class FeedbackReceiver extends Receiver
         return this.amqpReceive.receive(timeoutMs);
     }
 
+    /**
+     * Subscribe to the feedback endpoint. Unlike {@link #receive(long)}, a single AMQP receiver link is kept open
+     * until the returned subscription is closed, and every received FeedbackBatch is delivered to the handler on
+     * the subscription thread. At most linkCredit batches are delivered before they are completed or abandoned.
+     *
+     * @param handler The handler to deliver the received FeedbackBatch objects to
+     * @param linkCredit The maximum number of batches that may be delivered but not yet completed or abandoned
+     * @return The subscription, to be closed when feedback is no longer needed
+     * @throws IOException This exception is thrown if the subscription could not be opened
+     * @throws IllegalArgumentException This exception is thrown if the handler is null or the link credit is not positive
+     */
+    public ReceiveSubscription subscribe(ReceivedMessageHandler<FeedbackBatch> handler, int linkCredit) throws IOException, IllegalArgumentException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_FEEDBACKRECEIVER_44_001: [The function shall throw IllegalArgumentException if the handler is null or the link credit is not positive]
+        if (handler == null)
+        {
+            throw new IllegalArgumentException("handler cannot be null");
+        }
+        if (linkCredit <= 0)
+        {
+            throw new IllegalArgumentException("linkCredit must be greater than 0");
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_FEEDBACKRECEIVER_44_002: [The function shall open an AmqpSubscription on the feedback endpoint that parses every message into a FeedbackBatch and delivers it to the handler]
+        AmqpSubscription amqpSubscription = new AmqpSubscription(this.hostName, this.userName, this.sasToken, this.iotHubServiceClientProtocol,
+                AmqpSubscription.FEEDBACK_ENDPOINT, AmqpSubscription.FEEDBACK_LINK_NAME, linkCredit,
+                (feedbackJson, completion) ->
+                {
+                    FeedbackBatch feedbackBatch;
+                    try
+                    {
+                        feedbackBatch = FeedbackBatchMessage.parse(feedbackJson);
+                    }
+                    catch (RuntimeException e)
+                    {
+                        // The parser reports malformed JSON, records and dates with different runtime exceptions.
+                        // Codes_SRS_SERVICE_SDK_JAVA_FEEDBACKRECEIVER_44_003: [Feedback batches that cannot be parsed shall be completed without being delivered to the handler]
+                        completion.complete();
+                        return;
+                    }
+
+                    handler.onMessageReceived(feedbackBatch, completion);
+                });
+        amqpSubscription.open();
+        return new ReceiveSubscription(amqpSubscription);
+    }
+
     /**
      * Async wrapper for open() operation
      *
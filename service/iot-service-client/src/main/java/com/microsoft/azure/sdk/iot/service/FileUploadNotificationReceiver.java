@@ -5,7 +5,9 @@
 
 package com.microsoft.azure.sdk.iot.service;
 
+import com.microsoft.azure.sdk.iot.deps.serializer.FileUploadNotificationParser;
 import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpFileUploadNotificationReceive;
+import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSubscription;
 
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
@@ -17,6 +19,10 @@ public class FileUploadNotificationReceiver extends Receiver
     private final long DEFAULT_TIMEOUT_MS = 60000;
     private final ExecutorService executor = Executors.newFixedThreadPool(3);
     private AmqpFileUploadNotificationReceive amqpFileUploadNotificationReceive;
+    private String hostName;
+    private String userName;
+    private String sasToken;
+    private IotHubServiceClientProtocol iotHubServiceClientProtocol;
 
     /**
      * Constructor to verify initialization parameters
@@ -48,6 +54,59 @@ public class FileUploadNotificationReceiver extends Receiver
 
         // Codes_SRS_SERVICE_SDK_JAVA_FILEUPLOADNOTIFICATIONRECEIVER_25_002: [** The constructor shall create a new instance of AmqpFileUploadNotificationReceive object **]**
         this.amqpFileUploadNotificationReceive = new AmqpFileUploadNotificationReceive(hostName, userName, sasToken, iotHubServiceClientProtocol);
+        this.hostName = hostName;
+        this.userName = userName;
+        this.sasToken = sasToken;
+        this.iotHubServiceClientProtocol = iotHubServiceClientProtocol;
+    }
+
+    /**
+     * Subscribe to the file upload notification endpoint. Unlike {@link #receive(long)}, a single AMQP receiver link
+     * is kept open until the returned subscription is closed, and every received FileUploadNotification is delivered
+     * to the handler on the subscription thread. At most linkCredit notifications are delivered before they are
+     * completed or abandoned. Notifications that cannot be parsed are completed without being delivered.
+     *
+     * @param handler The handler to deliver the received FileUploadNotification objects to
+     * @param linkCredit The maximum number of notifications that may be delivered but not yet completed or abandoned
+     * @return The subscription, to be closed when notifications are no longer needed
+     * @throws IOException This exception is thrown if the subscription could not be opened
+     * @throws IllegalArgumentException This exception is thrown if the handler is null or the link credit is not positive
+     */
+    public ReceiveSubscription subscribe(ReceivedMessageHandler<FileUploadNotification> handler, int linkCredit) throws IOException, IllegalArgumentException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_FILEUPLOADNOTIFICATIONRECEIVER_44_001: [The function shall throw IllegalArgumentException if the handler is null or the link credit is not positive]
+        if (handler == null)
+        {
+            throw new IllegalArgumentException("handler cannot be null");
+        }
+        if (linkCredit <= 0)
+        {
+            throw new IllegalArgumentException("linkCredit must be greater than 0");
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_FILEUPLOADNOTIFICATIONRECEIVER_44_002: [The function shall open an AmqpSubscription on the file notification endpoint that parses every message into a FileUploadNotification and delivers it to the handler]
+        AmqpSubscription amqpSubscription = new AmqpSubscription(this.hostName, this.userName, this.sasToken, this.iotHubServiceClientProtocol,
+                AmqpSubscription.FILE_NOTIFICATION_ENDPOINT, AmqpSubscription.FILE_NOTIFICATION_LINK_NAME, linkCredit,
+                (notificationJson, completion) ->
+                {
+                    FileUploadNotification notification;
+                    try
+                    {
+                        FileUploadNotificationParser parser = new FileUploadNotificationParser(notificationJson);
+                        notification = new FileUploadNotification(parser.getDeviceId(), parser.getBlobUri(), parser.getBlobName(),
+                                parser.getLastUpdatedTime(), parser.getBlobSizeInBytesTag(), parser.getEnqueuedTimeUtc());
+                    }
+                    catch (IOException | IllegalArgumentException e)
+                    {
+                        // Codes_SRS_SERVICE_SDK_JAVA_FILEUPLOADNOTIFICATIONRECEIVER_44_003: [Notifications that cannot be parsed shall be completed without being delivered to the handler]
+                        completion.complete();
+                        return;
+                    }
+
+                    handler.onMessageReceived(notification, completion);
+                });
+        amqpSubscription.open();
+        return new ReceiveSubscription(amqpSubscription);
     }
 
     /**
@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+/**
+ * Settles a message delivered through a {@link ReceiveSubscription}. Exactly one of the methods should be called for
+ * every delivered message; only the first call has an effect. The methods may be called from any thread.
+ */
+public interface MessageCompletion
+{
+    /**
+     * Accept the message. The IoT Hub removes it from the endpoint.
+     */
+    void complete();
+
+    /**
+     * Release the message. The IoT Hub makes it available for delivery again.
+     */
+    void abandon();
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSubscription;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A long lived subscription to one of the service bound endpoints of the IoT Hub, as returned by
+ * {@link FeedbackReceiver#subscribe(ReceivedMessageHandler, int)} and
+ * {@link FileUploadNotificationReceiver#subscribe(ReceivedMessageHandler, int)}. A single AMQP receiver link stays
+ * open, and is re-established if the connection drops, until this subscription is closed.
+ */
+public class ReceiveSubscription implements Closeable
+{
+    private final AmqpSubscription amqpSubscription;
+
+    ReceiveSubscription(AmqpSubscription amqpSubscription)
+    {
+        this.amqpSubscription = amqpSubscription;
+    }
+
+    /**
+     * Close the receiver link and the connection. Messages that were delivered but not yet settled are made
+     * available again by the IoT Hub.
+     *
+     * @throws IOException This exception is thrown if the subscription thread could not be stopped
+     */
+    @Override
+    public void close() throws IOException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_RECEIVESUBSCRIPTION_44_001: [The function shall close the underlying AMQP subscription]
+        this.amqpSubscription.close();
+    }
+}
@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+/**
+ * Callback for the messages delivered through a {@link ReceiveSubscription}.
+ * @param <T> the type of the delivered messages, for instance {@link FeedbackBatch} or {@link FileUploadNotification}
+ */
+public interface ReceivedMessageHandler<T>
+{
+    /**
+     * Called on the subscription thread for every received message. The message stays unsettled, and counts against
+     * the link credit of the subscription, until the provided completion is used.
+     * @param message the received message
+     * @param completion the completion used to settle the message
+     */
+    void onMessageReceived(T message, MessageCompletion completion);
+}
@@ -6,8 +6,10 @@
 package com.microsoft.azure.sdk.iot.service;
 
 import com.google.gson.JsonSyntaxException;
+import com.microsoft.azure.sdk.iot.deps.serializer.BulkRegistryOperationResultParser;
 import com.microsoft.azure.sdk.iot.deps.serializer.ConfigurationParser;
 import com.microsoft.azure.sdk.iot.deps.serializer.DeviceParser;
+import com.microsoft.azure.sdk.iot.deps.serializer.ExportImportDeviceParser;
 import com.microsoft.azure.sdk.iot.deps.serializer.JobPropertiesParser;
 import com.microsoft.azure.sdk.iot.deps.serializer.RegistryStatisticsParser;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
@@ -26,8 +28,10 @@ import java.io.StringReader;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -38,6 +42,8 @@ public class RegistryManager
 {
     private final Integer DEFAULT_HTTP_TIMEOUT_MS = 24000;
     private static final int EXECUTOR_THREAD_POOL_SIZE = 10;
+    private static final int MAX_DEVICES_PER_BULK_OPERATION = 100;
+    private static final int BULK_OPERATION_PARTIAL_FAILURE_STATUS = 400;
     private ExecutorService executor;
     private IotHubConnectionString iotHubConnectionString;
 
@@ -591,6 +597,221 @@ public class RegistryManager
         return future;
     }
 
+    /**
+     * Create the provided devices in bulk. The devices are sent to the IoT Hub in chunks of up to 100 devices, and
+     * the chunks are sent concurrently.
+     *
+     * @param devices The devices to create
+     * @return The merged result of every chunk, listing the devices that could not be created
+     * @throws IOException This exception is thrown if the IO operation failed
+     * @throws IotHubException This exception is thrown if the response verification failed
+     * @throws IllegalArgumentException This exception is thrown if the provided devices are null, empty or contain a null device
+     */
+    public BulkRegistryOperationResult addDevices(Collection<ExportImportDevice> devices) throws IOException, IotHubException, IllegalArgumentException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_001: [The function shall send the devices with the import mode Create]
+        return bulkDeviceOperation(devices, ImportMode.Create);
+    }
+
+    /**
+     * Update the provided devices in bulk. The devices are sent to the IoT Hub in chunks of up to 100 devices, and
+     * the chunks are sent concurrently.
+     *
+     * @param devices The devices to update
+     * @param forceUpdate True if the devices shall be updated regardless of their eTag
+     * @return The merged result of every chunk, listing the devices that could not be updated
+     * @throws IOException This exception is thrown if the IO operation failed
+     * @throws IotHubException This exception is thrown if the response verification failed
+     * @throws IllegalArgumentException This exception is thrown if the provided devices are null, empty or contain a null device
+     */
+    public BulkRegistryOperationResult updateDevices(Collection<ExportImportDevice> devices, boolean forceUpdate) throws IOException, IotHubException, IllegalArgumentException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_002: [The function shall send the devices with the import mode Update if forceUpdate is true, and UpdateIfMatchETag otherwise]
+        return bulkDeviceOperation(devices, forceUpdate ? ImportMode.Update : ImportMode.UpdateIfMatchETag);
+    }
+
+    /**
+     * Remove the provided devices in bulk. The devices are sent to the IoT Hub in chunks of up to 100 devices, and
+     * the chunks are sent concurrently.
+     *
+     * @param devices The devices to remove
+     * @param forceRemove True if the devices shall be removed regardless of their eTag
+     * @return The merged result of every chunk, listing the devices that could not be removed
+     * @throws IOException This exception is thrown if the IO operation failed
+     * @throws IotHubException This exception is thrown if the response verification failed
+     * @throws IllegalArgumentException This exception is thrown if the provided devices are null, empty or contain a null device
+     */
+    public BulkRegistryOperationResult removeDevices(Collection<ExportImportDevice> devices, boolean forceRemove) throws IOException, IotHubException, IllegalArgumentException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_003: [The function shall send the devices with the import mode Delete if forceRemove is true, and DeleteIfMatchETag otherwise]
+        return bulkDeviceOperation(devices, forceRemove ? ImportMode.Delete : ImportMode.DeleteIfMatchETag);
+    }
+
+    /**
+     * Split the provided devices into chunks, send every chunk concurrently on this object's executor and merge the results
+     *
+     * @param devices The devices to send
+     * @param importMode The import mode to apply to every device
+     * @return The merged result of every chunk
+     * @throws IOException This exception is thrown if the IO operation failed
+     * @throws IotHubException This exception is thrown if the response verification failed
+     */
+    private BulkRegistryOperationResult bulkDeviceOperation(Collection<ExportImportDevice> devices, ImportMode importMode) throws IOException, IotHubException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_004: [The function shall throw IllegalArgumentException if the provided devices are null, empty or contain a null device]
+        if (devices == null || devices.isEmpty())
+        {
+            throw new IllegalArgumentException("devices cannot be null or empty");
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_005: [The function shall split the devices into chunks of at most 100 devices and serialize each chunk into a json array]
+        List<String> chunkPayloads = new ArrayList<>();
+        StringBuilder chunk = null;
+        int devicesInChunk = 0;
+        for (ExportImportDevice device : devices)
+        {
+            if (device == null)
+            {
+                throw new IllegalArgumentException("devices cannot contain a null device");
+            }
+
+            ExportImportDeviceParser parser = device.toExportImportDeviceParser();
+            parser.setImportMode(importMode.toString());
+
+            if (chunk == null)
+            {
+                chunk = new StringBuilder("[");
+            }
+            else
+            {
+                chunk.append(',');
+            }
+            chunk.append(parser.toJson());
+
+            if (++devicesInChunk == MAX_DEVICES_PER_BULK_OPERATION)
+            {
+                chunkPayloads.add(chunk.append(']').toString());
+                chunk = null;
+                devicesInChunk = 0;
+            }
+        }
+
+        if (chunk != null)
+        {
+            chunkPayloads.add(chunk.append(']').toString());
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_006: [The function shall send every chunk concurrently on this object's executor service]
+        List<CompletableFuture<BulkRegistryOperationResult>> futures = new ArrayList<>();
+        for (String chunkPayload : chunkPayloads)
+        {
+            final CompletableFuture<BulkRegistryOperationResult> future = new CompletableFuture<>();
+            executor.submit(() ->
+            {
+                try
+                {
+                    future.complete(sendBulkDeviceOperation(chunkPayload));
+                }
+                catch (IOException | IotHubException | RuntimeException e)
+                {
+                    future.completeExceptionally(e);
+                }
+            });
+            futures.add(future);
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_007: [The function shall wait for every chunk to complete and merge their results in chunk order]
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_008: [If any chunk failed, the function shall rethrow the exception of the first failed chunk once every chunk has completed]
+        BulkRegistryOperationResult result = new BulkRegistryOperationResult();
+        Throwable firstFailure = null;
+        for (CompletableFuture<BulkRegistryOperationResult> future : futures)
+        {
+            try
+            {
+                result.merge(future.get());
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the bulk registry operation to complete", e);
+            }
+            catch (ExecutionException e)
+            {
+                if (firstFailure == null)
+                {
+                    firstFailure = e.getCause();
+                }
+            }
+        }
+
+        if (firstFailure instanceof IOException)
+        {
+            throw (IOException) firstFailure;
+        }
+        else if (firstFailure instanceof IotHubException)
+        {
+            throw (IotHubException) firstFailure;
+        }
+        else if (firstFailure instanceof RuntimeException)
+        {
+            throw (RuntimeException) firstFailure;
+        }
+
+        return result;
+    }
+
+    /**
+     * Send a single chunk of a bulk registry operation and verify the response
+     *
+     * @param chunkPayload The json array of devices to send
+     * @return The result of the chunk
+     * @throws IOException This exception is thrown if the IO operation failed
+     * @throws IotHubException This exception is thrown if the response verification failed
+     */
+    private BulkRegistryOperationResult sendBulkDeviceOperation(String chunkPayload) throws IOException, IotHubException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_009: [The function shall get the URL for the bulk registry operation]
+        URL url = iotHubConnectionString.getUrlDevices();
+
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_010: [The function shall create a new SAS token for the bulk registry operation]
+        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_011: [The function shall send a new HTTP POST request with the chunk as the body]
+        HttpRequest request = CreateRequest(url, HttpMethod.POST, chunkPayload.getBytes(StandardCharsets.UTF_8), sasTokenString);
+        HttpResponse response = request.send();
+
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_012: [If the response status is 400 and its body lists per device errors, the function shall return them instead of throwing]
+        if (response.getStatus() == BULK_OPERATION_PARTIAL_FAILURE_STATUS
+                && response.getErrorReason() != null
+                && response.getErrorReason().length > 0)
+        {
+            try
+            {
+                BulkRegistryOperationResultParser parser = new BulkRegistryOperationResultParser(new String(response.getErrorReason(), StandardCharsets.UTF_8));
+                if (!parser.getErrors().isEmpty())
+                {
+                    return new BulkRegistryOperationResult(parser);
+                }
+            }
+            catch (IllegalArgumentException e)
+            {
+                // not a bulk result, the response verification below reports the error
+            }
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_013: [The function shall verify the response status and throw proper Exception]
+        IotHubExceptionManager.httpResponseVerification(response);
+
+        // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_014: [The function shall create a new BulkRegistryOperationResult object from the response and return it]
+        if (response.getBody() == null || response.getBody().length == 0)
+        {
+            return new BulkRegistryOperationResult();
+        }
+
+        String bodyStr = new String(response.getBody(), StandardCharsets.UTF_8);
+        return new BulkRegistryOperationResult(new BulkRegistryOperationResultParser(bodyStr));
+    }
+
     /**
      * Get device statistics
      *
@@ -32,6 +32,7 @@ public class JobClient
     private final static byte[] EMPTY_JSON = "{}".getBytes();
 
     private IotHubConnectionString iotHubConnectionString = null;
+    private JobTracker jobTracker = null;
 
     /**
      * Static constructor to create instance from connection string
@@ -211,7 +212,7 @@ public class JobClient
      * @throws IOException if the function cannot create a URL for the job, or the IO failed on request
      * @throws IotHubException if the http request failed
      */
-    public synchronized JobResult getJob(String jobId)
+    public JobResult getJob(String jobId)
             throws IllegalArgumentException, IOException, IotHubException
     {
         URL url;
@@ -241,6 +242,35 @@ public class JobClient
         return new JobResult(response.getBody());
     }
 
+    /**
+     * Watch a job on the iotHub, reporting its status changes and progress to the listener. All the jobs watched
+     * through this client share a single polling thread, and each job is polled adaptively: quickly while it is
+     * changing, less and less often while it is not. Use a {@link JobTracker} directly to control the number of
+     * threads and the poll intervals.
+     *
+     * @param jobId Unique Job Id for this job
+     * @param listener the listener to report the changes of the job to
+     * @return the watch, that completes when the job reaches a terminal status
+     * @throws IllegalArgumentException if the jobId or the listener is invalid, or the job is already watched
+     */
+    public JobWatch watch(String jobId, JobStatusListener listener) throws IllegalArgumentException
+    {
+        /* Codes_SRS_JOBCLIENT_44_001: [The watch shall create a JobTracker for this client the first time it is called.] */
+        JobTracker tracker;
+        synchronized (this)
+        {
+            if (this.jobTracker == null)
+            {
+                this.jobTracker = new JobTracker(this);
+            }
+
+            tracker = this.jobTracker;
+        }
+
+        /* Codes_SRS_JOBCLIENT_44_002: [The watch shall track the job with the JobTracker of this client and return its watch.] */
+        return tracker.track(jobId, listener);
+    }
+
     /**
      * Cancel a current jod on the IoTHub
      *
@@ -0,0 +1,38 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.service.jobs;
+
+/**
+ * Listener for the changes observed on a job watched by a {@link JobTracker}. All the calls for the same job are
+ * made in order, from one of the tracker threads.
+ */
+public interface JobStatusListener
+{
+    /**
+     * Called the first time the job is read, and every time its status changes afterwards.
+     *
+     * @param jobResult the job as last read from the IoT Hub
+     * @param previousStatus the status the job had before, or {@code null} the first time the job is read
+     */
+    void onJobStatusChanged(JobResult jobResult, JobStatus previousStatus);
+
+    /**
+     * Called when the job statistics change while its status stays the same.
+     *
+     * @param jobResult the job as last read from the IoT Hub
+     */
+    default void onJobProgress(JobResult jobResult)
+    {
+    }
+
+    /**
+     * Called when the job could not be read. The tracker keeps polling the job, unless the job does not exist.
+     *
+     * @param jobId the id of the job that could not be read
+     * @param exception the reason why the job could not be read
+     */
+    default void onJobWatchError(String jobId, Exception exception)
+    {
+    }
+}
@@ -0,0 +1,209 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.service.jobs;
+
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubNotFoundException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks many jobs on a small, shared scheduler instead of one polling thread per job.
+ * <p>
+ * Each job is polled adaptively: right after its status or statistics change it is polled again at the minimum
+ * interval, and every poll that observes no change doubles the interval up to the maximum. Scheduled jobs are not
+ * polled before their start time. Changes are reported to the {@link JobStatusListener} of each job.
+ */
+public final class JobTracker implements Closeable
+{
+    public static final long DEFAULT_MIN_POLL_INTERVAL_MILLIS = 1000;
+    public static final long DEFAULT_MAX_POLL_INTERVAL_MILLIS = 30000;
+    public static final int DEFAULT_THREAD_COUNT = 1;
+
+    private static final AtomicInteger TRACKER_COUNT = new AtomicInteger();
+
+    private final JobClient jobClient;
+    private final long minPollIntervalMillis;
+    private final long maxPollIntervalMillis;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, JobWatch> watches = new ConcurrentHashMap<>();
+
+    /**
+     * Create a tracker with a single thread and the default poll intervals.
+     *
+     * @param jobClient the client used to read the jobs
+     * @throws IllegalArgumentException if jobClient is {@code null}
+     */
+    public JobTracker(JobClient jobClient) throws IllegalArgumentException
+    {
+        this(jobClient, DEFAULT_THREAD_COUNT, DEFAULT_MIN_POLL_INTERVAL_MILLIS, DEFAULT_MAX_POLL_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Create a tracker.
+     *
+     * @param jobClient the client used to read the jobs
+     * @param threadCount the number of threads polling the jobs
+     * @param minPollIntervalMillis the interval between polls of a job that just changed
+     * @param maxPollIntervalMillis the largest interval between polls of a job that does not change
+     * @throws IllegalArgumentException if jobClient is {@code null}, threadCount or minPollIntervalMillis is not
+     * positive, or maxPollIntervalMillis is smaller than minPollIntervalMillis
+     */
+    public JobTracker(JobClient jobClient, int threadCount, long minPollIntervalMillis, long maxPollIntervalMillis) throws IllegalArgumentException
+    {
+        /* Codes_SRS_JOBTRACKER_44_001: [The constructor shall throw IllegalArgumentException if the jobClient is null, the thread count or the minimum interval is not positive, or the maximum interval is smaller than the minimum interval.] */
+        if (jobClient == null)
+        {
+            throw new IllegalArgumentException("null jobClient");
+        }
+
+        if (threadCount <= 0 || minPollIntervalMillis <= 0 || maxPollIntervalMillis < minPollIntervalMillis)
+        {
+            throw new IllegalArgumentException("Invalid thread count or poll intervals");
+        }
+
+        this.jobClient = jobClient;
+        this.minPollIntervalMillis = minPollIntervalMillis;
+        this.maxPollIntervalMillis = maxPollIntervalMillis;
+
+        /* Codes_SRS_JOBTRACKER_44_002: [The constructor shall create a scheduler with the given number of daemon threads.] */
+        final String threadNamePrefix = "azure-iot-sdk-JobTracker-" + TRACKER_COUNT.incrementAndGet() + "-";
+        final AtomicInteger threadCounter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable ->
+        {
+            Thread thread = new Thread(runnable, threadNamePrefix + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.scheduler = Executors.newScheduledThreadPool(threadCount, threadFactory);
+    }
+
+    /**
+     * Start watching a job.
+     *
+     * @param jobId the id of the job to watch
+     * @param listener the listener to report the changes of the job to
+     * @return the watch, that completes when the job reaches a terminal status
+     * @throws IllegalArgumentException if the jobId is {@code null} or empty, the listener is {@code null}, or the
+     * job is already watched by this tracker
+     * @throws IllegalStateException if the tracker is closed
+     */
+    public JobWatch track(String jobId, JobStatusListener listener) throws IllegalArgumentException, IllegalStateException
+    {
+        /* Codes_SRS_JOBTRACKER_44_003: [The track shall throw IllegalArgumentException if the jobId is null or empty, or the listener is null.] */
+        if (jobId == null || jobId.isEmpty())
+        {
+            throw new IllegalArgumentException("null jobId");
+        }
+
+        if (listener == null)
+        {
+            throw new IllegalArgumentException("null listener");
+        }
+
+        /* Codes_SRS_JOBTRACKER_44_004: [The track shall throw IllegalStateException if the tracker is closed.] */
+        if (this.scheduler.isShutdown())
+        {
+            throw new IllegalStateException("The JobTracker is closed");
+        }
+
+        /* Codes_SRS_JOBTRACKER_44_005: [The track shall throw IllegalArgumentException if the job is already watched.] */
+        JobWatch watch = new JobWatch(jobId, listener, this, this.minPollIntervalMillis);
+        if (this.watches.putIfAbsent(jobId, watch) != null)
+        {
+            throw new IllegalArgumentException("The job " + jobId + " is already tracked");
+        }
+
+        /* Codes_SRS_JOBTRACKER_44_006: [The track shall poll the job immediately.] */
+        schedule(watch, 0);
+        return watch;
+    }
+
+    /**
+     * @return the number of jobs being watched
+     */
+    public int getTrackedJobCount()
+    {
+        return this.watches.size();
+    }
+
+    /**
+     * Stop watching all the jobs and release the tracker threads.
+     */
+    @Override
+    public void close()
+    {
+        /* Codes_SRS_JOBTRACKER_44_007: [The close shall stop the scheduler and cancel the completion of every watch.] */
+        this.scheduler.shutdownNow();
+        for (JobWatch watch : this.watches.values())
+        {
+            watch.getCompletion().cancel(false);
+        }
+
+        this.watches.clear();
+    }
+
+    void remove(JobWatch watch)
+    {
+        this.watches.remove(watch.getJobId(), watch);
+    }
+
+    private void schedule(JobWatch watch, long delayMillis)
+    {
+        try
+        {
+            this.scheduler.schedule(() -> poll(watch), delayMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (RejectedExecutionException e)
+        {
+            // the tracker was closed concurrently
+            watch.getCompletion().completeExceptionally(new CancellationException("The JobTracker is closed"));
+        }
+    }
+
+    private void poll(JobWatch watch)
+    {
+        if (watch.isDone())
+        {
+            return;
+        }
+
+        long nextPollMillis;
+        try
+        {
+            /* Codes_SRS_JOBTRACKER_44_008: [The poll shall read the job and report it to its watch.] */
+            nextPollMillis = watch.update(this.jobClient.getJob(watch.getJobId()), this.minPollIntervalMillis, this.maxPollIntervalMillis);
+        }
+        catch (IotHubNotFoundException e)
+        {
+            /* Codes_SRS_JOBTRACKER_44_009: [If the job does not exist, the poll shall complete the watch exceptionally.] */
+            watch.fail(e);
+            nextPollMillis = -1;
+        }
+        catch (IOException | IotHubException | RuntimeException e)
+        {
+            /* Codes_SRS_JOBTRACKER_44_010: [If the job could not be read, the poll shall report the error and back off.] */
+            nextPollMillis = watch.error(e, this.maxPollIntervalMillis);
+        }
+
+        if (nextPollMillis < 0 || watch.isDone())
+        {
+            remove(watch);
+        }
+        else
+        {
+            schedule(watch, nextPollMillis);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.service.jobs;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A job watched by a {@link JobTracker}. The watch ends when the job reaches a terminal status (completed, failed
+ * or cancelled), when the job cannot be found, or when it is closed.
+ */
+public final class JobWatch implements Closeable
+{
+    private static final EnumSet<JobStatus> TERMINAL_STATUSES = EnumSet.of(JobStatus.completed, JobStatus.failed, JobStatus.cancelled);
+
+    private final String jobId;
+    private final JobStatusListener listener;
+    private final JobTracker jobTracker;
+    private final CompletableFuture<JobResult> completion = new CompletableFuture<>();
+
+    // only accessed from the poll of this job, which never runs concurrently with itself
+    private JobStatus lastStatus;
+    private int[] lastStatistics;
+    private long pollIntervalMillis;
+
+    private volatile JobResult latestResult;
+
+    JobWatch(String jobId, JobStatusListener listener, JobTracker jobTracker, long pollIntervalMillis)
+    {
+        this.jobId = jobId;
+        this.listener = listener;
+        this.jobTracker = jobTracker;
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    /**
+     * @return the id of the watched job
+     */
+    public String getJobId()
+    {
+        return this.jobId;
+    }
+
+    /**
+     * @return the job as last read from the IoT Hub, or {@code null} if it was not read yet
+     */
+    public JobResult getLatestResult()
+    {
+        return this.latestResult;
+    }
+
+    /**
+     * @return a future completed with the job once it reaches a terminal status, completed exceptionally if the
+     * job cannot be found, and cancelled if the watch is closed first
+     */
+    public CompletableFuture<JobResult> getCompletion()
+    {
+        return this.completion;
+    }
+
+    /**
+     * Stop watching the job. The completion is cancelled if the job did not reach a terminal status yet.
+     */
+    @Override
+    public void close()
+    {
+        /* Codes_SRS_JOBWATCH_44_001: [The close shall stop polling the job and cancel the completion if it is not done.] */
+        this.completion.cancel(false);
+        this.jobTracker.remove(this);
+    }
+
+    boolean isDone()
+    {
+        return this.completion.isDone();
+    }
+
+    /**
+     * Report a new read of the job to the listener and compute when it should be read next.
+     *
+     * @return the delay before the next poll, in milliseconds
+     */
+    long update(JobResult jobResult, long minPollIntervalMillis, long maxPollIntervalMillis)
+    {
+        this.latestResult = jobResult;
+        JobStatus status = jobResult.getJobStatus();
+        int[] statistics = toArray(jobResult.getJobStatistics());
+
+        /* Codes_SRS_JOBWATCH_44_002: [The update shall notify a status change, or a progress if only the statistics changed.] */
+        boolean statusChanged = this.lastStatus == null || status != this.lastStatus;
+        boolean statisticsChanged = !Arrays.equals(statistics, this.lastStatistics);
+        JobStatus previousStatus = this.lastStatus;
+        this.lastStatus = status;
+        this.lastStatistics = statistics;
+
+        try
+        {
+            if (statusChanged)
+            {
+                this.listener.onJobStatusChanged(jobResult, previousStatus);
+            }
+            else if (statisticsChanged)
+            {
+                this.listener.onJobProgress(jobResult);
+            }
+        }
+        catch (RuntimeException e)
+        {
+            // a faulty listener must not stop the tracker
+        }
+
+        /* Codes_SRS_JOBWATCH_44_003: [The update shall complete the watch when the job reaches a terminal status.] */
+        if (status != null && TERMINAL_STATUSES.contains(status))
+        {
+            this.completion.complete(jobResult);
+            return -1;
+        }
+
+        /* Codes_SRS_JOBWATCH_44_004: [The update shall poll again at the minimum interval after a change, and double the interval, up to the maximum, while nothing changes.] */
+        if (statusChanged || statisticsChanged)
+        {
+            this.pollIntervalMillis = minPollIntervalMillis;
+        }
+        else
+        {
+            this.pollIntervalMillis = Math.min(this.pollIntervalMillis * 2, maxPollIntervalMillis);
+        }
+
+        /* Codes_SRS_JOBWATCH_44_005: [The update shall not poll a scheduled job again before its start time, up to the maximum interval.] */
+        Date startTime = jobResult.getStartTime();
+        if (status == JobStatus.scheduled && startTime != null)
+        {
+            long untilStart = startTime.getTime() - System.currentTimeMillis();
+            if (untilStart > this.pollIntervalMillis)
+            {
+                return Math.min(untilStart, maxPollIntervalMillis);
+            }
+        }
+
+        return this.pollIntervalMillis;
+    }
+
+    /**
+     * Report a failed read of the job to the listener.
+     *
+     * @return the delay before the next poll, in milliseconds
+     */
+    long error(Exception exception, long maxPollIntervalMillis)
+    {
+        /* Codes_SRS_JOBWATCH_44_006: [The error shall notify the listener and double the poll interval, up to the maximum.] */
+        try
+        {
+            this.listener.onJobWatchError(this.jobId, exception);
+        }
+        catch (RuntimeException e)
+        {
+            // a faulty listener must not stop the tracker
+        }
+
+        this.pollIntervalMillis = Math.min(this.pollIntervalMillis * 2, maxPollIntervalMillis);
+        return this.pollIntervalMillis;
+    }
+
+    void fail(Exception exception)
+    {
+        try
+        {
+            this.listener.onJobWatchError(this.jobId, exception);
+        }
+        catch (RuntimeException e)
+        {
+            // a faulty listener must not stop the tracker
+        }
+
+        this.completion.completeExceptionally(exception);
+    }
+
+    private static int[] toArray(JobStatistics statistics)
+    {
+        if (statistics == null)
+        {
+            return null;
+        }
+
+        return new int[]
+                {
+                        statistics.getDeviceCount(),
+                        statistics.getFailedCount(),
+                        statistics.getSucceededCount(),
+                        statistics.getRunningCount(),
+                        statistics.getPendingCount()
+                };
+    }
+}
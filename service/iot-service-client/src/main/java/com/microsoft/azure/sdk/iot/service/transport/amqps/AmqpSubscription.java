@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.amqps;
+
+import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.engine.BaseHandler;
+import org.apache.qpid.proton.engine.Event;
+import org.apache.qpid.proton.reactor.Reactor;
+
+import java.io.IOException;
+
+/**
+ * Owns the Proton reactor and the thread of a long lived receive subscription. The reactor keeps running until
+ * {@link #close()} is called: a periodic timer task applies the completions requested by the user, replenishes the
+ * link credit, and reopens the connection after it was lost.
+ */
+public class AmqpSubscription extends BaseHandler
+{
+    public static final String FEEDBACK_ENDPOINT = "/messages/servicebound/feedback";
+    public static final String FEEDBACK_LINK_NAME = "feedbacksubscription";
+    public static final String FILE_NOTIFICATION_ENDPOINT = "/messages/serviceBound/filenotifications";
+    public static final String FILE_NOTIFICATION_LINK_NAME = "filenotificationsubscription";
+
+    private static final int SETTLEMENT_INTERVAL_MILLISECONDS = 100;
+    private static final int RECONNECT_DELAY_MILLISECONDS = 5000;
+    private static final int CLOSE_TIMEOUT_MILLISECONDS = 10000;
+    private static final String THREAD_NAME = "azure-iot-sdk-AmqpSubscription";
+
+    private final AmqpSubscriptionHandler amqpSubscriptionHandler;
+    private Reactor reactor;
+    private Thread reactorThread;
+    private volatile boolean closeRequested = false;
+    private long reconnectAtMilliseconds = 0;
+
+    /**
+     * Constructor to set up connection parameters
+     * @param hostName The address string of the service (example: AAA.BBB.CCC)
+     * @param userName The username string to use SASL authentication (example: user@sas.service)
+     * @param sasToken The SAS token string
+     * @param iotHubServiceClientProtocol protocol to use
+     * @param endpoint The service bound endpoint to receive from
+     * @param linkName The name of the receiver link
+     * @param linkCredit The maximum number of deliveries that may be unsettled at any time
+     * @param amqpSubscriptionEvent callback to delegate the received messages to the user API
+     */
+    public AmqpSubscription(String hostName, String userName, String sasToken, IotHubServiceClientProtocol iotHubServiceClientProtocol,
+                            String endpoint, String linkName, int linkCredit, AmqpSubscriptionEvent amqpSubscriptionEvent)
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTION_44_001: [The constructor shall create an AmqpSubscriptionHandler with the provided parameters]
+        this.amqpSubscriptionHandler = new AmqpSubscriptionHandler(hostName, userName, sasToken, iotHubServiceClientProtocol,
+                endpoint, linkName, linkCredit, amqpSubscriptionEvent);
+    }
+
+    /**
+     * Start the reactor on a dedicated thread
+     * @throws IOException This exception is thrown if the reactor could not be created, or if the subscription is already open
+     */
+    public synchronized void open() throws IOException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTION_44_002: [The function shall throw IOException if the subscription was already opened]
+        if (this.reactorThread != null)
+        {
+            throw new IOException("The subscription has already been opened");
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTION_44_003: [The function shall create a Proton reactor and run it on a new daemon thread]
+        this.reactor = Proton.reactor(this);
+        this.reactorThread = new Thread(() -> this.reactor.run(), THREAD_NAME);
+        this.reactorThread.setDaemon(true);
+        this.reactorThread.start();
+    }
+
+    /**
+     * Event handler for the reactor init event
+     * @param event The proton event object
+     */
+    @Override
+    public void onReactorInit(Event event)
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTION_44_004: [The event handler shall open a connection handled by the AmqpSubscriptionHandler and schedule the settlement timer]
+        event.getReactor().connection(this.amqpSubscriptionHandler);
+        event.getReactor().schedule(SETTLEMENT_INTERVAL_MILLISECONDS, this);
+    }
+
+    /**
+     * Event handler for the settlement timer
+     * @param event The proton event object
+     */
+    @Override
+    public void onTimerTask(Event event)
+    {
+        if (this.closeRequested)
+        {
+            // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTION_44_005: [If close was requested, the event handler shall apply the pending completions, close the connection and stop rescheduling itself]
+            this.amqpSubscriptionHandler.processPendingSettlements();
+            this.amqpSubscriptionHandler.closeConnection();
+            return;
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTION_44_006: [The event handler shall apply the pending completions]
+        this.amqpSubscriptionHandler.processPendingSettlements();
+
+        // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTION_44_007: [If the connection was lost, the event handler shall open a new connection once the reconnect delay has elapsed]
+        if (this.amqpSubscriptionHandler.isConnectionLost())
+        {
+            long now = System.currentTimeMillis();
+            if (this.reconnectAtMilliseconds == 0)
+            {
+                this.reconnectAtMilliseconds = now + RECONNECT_DELAY_MILLISECONDS;
+            }
+            else if (now >= this.reconnectAtMilliseconds)
+            {
+                this.reconnectAtMilliseconds = 0;
+                event.getReactor().connection(this.amqpSubscriptionHandler);
+            }
+        }
+
+        event.getReactor().schedule(SETTLEMENT_INTERVAL_MILLISECONDS, this);
+    }
+
+    /**
+     * Close the connection and wait for the reactor thread to finish
+     * @throws IOException This exception is thrown if the reactor thread did not finish in time
+     */
+    public synchronized void close() throws IOException
+    {
+        if (this.reactorThread == null)
+        {
+            return;
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTION_44_008: [The function shall request the reactor to close the connection and wait for the reactor thread to finish]
+        this.closeRequested = true;
+        this.reactor.wakeup();
+        try
+        {
+            this.reactorThread.join(CLOSE_TIMEOUT_MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing the subscription", e);
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTION_44_009: [The function shall throw IOException if the reactor thread did not finish in time]
+        if (this.reactorThread.isAlive())
+        {
+            throw new IOException("The subscription did not close in time");
+        }
+
+        this.reactor.free();
+    }
+}
@@ -0,0 +1,13 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.amqps;
+
+import com.microsoft.azure.sdk.iot.service.MessageCompletion;
+
+public interface AmqpSubscriptionEvent
+{
+    public void onMessageReceived(String messageJson, MessageCompletion completion);
+}
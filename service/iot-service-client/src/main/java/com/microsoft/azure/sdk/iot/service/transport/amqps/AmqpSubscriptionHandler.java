@@ -0,0 +1,384 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.amqps;
+
+import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContext;
+import com.microsoft.azure.sdk.iot.deps.ws.impl.WebSocketImpl;
+import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
+import com.microsoft.azure.sdk.iot.service.MessageCompletion;
+import com.microsoft.azure.sdk.iot.service.transport.TransportUtils;
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.amqp.Binary;
+import org.apache.qpid.proton.amqp.Symbol;
+import org.apache.qpid.proton.amqp.messaging.Accepted;
+import org.apache.qpid.proton.amqp.messaging.AmqpValue;
+import org.apache.qpid.proton.amqp.messaging.Data;
+import org.apache.qpid.proton.amqp.messaging.Modified;
+import org.apache.qpid.proton.amqp.messaging.Rejected;
+import org.apache.qpid.proton.amqp.messaging.Released;
+import org.apache.qpid.proton.amqp.messaging.Source;
+import org.apache.qpid.proton.amqp.messaging.Target;
+import org.apache.qpid.proton.amqp.transport.DeliveryState;
+import org.apache.qpid.proton.engine.*;
+import org.apache.qpid.proton.engine.impl.TransportInternal;
+import org.apache.qpid.proton.reactor.Handshaker;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Instance of the QPID-Proton-J BaseHandler class that keeps a single receiver link open on a service bound
+ * endpoint. Unlike {@link AmqpFeedbackReceivedHandler}, deliveries are not settled when they arrive: link credit is
+ * granted up front, every delivery is handed to the subscription event with a completion, and the completion is
+ * applied (and the credit replenished) the next time the owning {@link AmqpSubscription} calls
+ * {@link #processPendingSettlements()} on the reactor thread.
+ */
+public class AmqpSubscriptionHandler extends BaseHandler
+{
+    private static final String SEND_PORT_AMQPS = ":5671";
+    private static final String SEND_PORT_AMQPS_WS = ":443";
+    private static final String WEBSOCKET_PATH = "/$iothub/websocket";
+    private static final String WEBSOCKET_SUB_PROTOCOL = "AMQPWSB10";
+
+    private final String hostName;
+    private final String webSocketHostName;
+    private final String userName;
+    private final String sasToken;
+    private final IotHubServiceClientProtocol iotHubServiceClientProtocol;
+    private final String endpoint;
+    private final String linkName;
+    private final int linkCredit;
+    private final AmqpSubscriptionEvent amqpSubscriptionEvent;
+
+    private final Queue<PendingSettlement> pendingSettlements = new ConcurrentLinkedQueue<>();
+    private Connection connection;
+    private Receiver receiver;
+    private boolean connectionLost = false;
+    private Exception savedException;
+
+    /**
+     * Constructor to set up connection parameters and initialize the handshaker for transport
+     * @param hostName The address string of the service (example: AAA.BBB.CCC)
+     * @param userName The username string to use SASL authentication (example: user@sas.service)
+     * @param sasToken The SAS token string
+     * @param iotHubServiceClientProtocol protocol to use
+     * @param endpoint The service bound endpoint to receive from
+     * @param linkName The name of the receiver link
+     * @param linkCredit The maximum number of deliveries that may be unsettled at any time
+     * @param amqpSubscriptionEvent callback to delegate the received messages to the user API
+     */
+    public AmqpSubscriptionHandler(String hostName, String userName, String sasToken, IotHubServiceClientProtocol iotHubServiceClientProtocol,
+                                   String endpoint, String linkName, int linkCredit, AmqpSubscriptionEvent amqpSubscriptionEvent)
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_001: [The constructor shall throw IllegalArgumentException if any of the parameters are null or empty, or if the link credit is not positive]
+        if (hostName == null || userName == null || sasToken == null || iotHubServiceClientProtocol == null || endpoint == null
+                || linkName == null || amqpSubscriptionEvent == null || hostName.isEmpty() || userName.isEmpty() || sasToken.isEmpty())
+        {
+            throw new IllegalArgumentException("Input parameters cannot be null or empty");
+        }
+
+        if (linkCredit <= 0)
+        {
+            throw new IllegalArgumentException("linkCredit must be greater than 0");
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_002: [The constructor shall copy all input parameters to private member variables for event processing]
+        this.iotHubServiceClientProtocol = iotHubServiceClientProtocol;
+        this.webSocketHostName = hostName;
+        if (this.iotHubServiceClientProtocol == IotHubServiceClientProtocol.AMQPS_WS)
+        {
+            this.hostName = hostName + SEND_PORT_AMQPS_WS;
+        }
+        else
+        {
+            this.hostName = hostName + SEND_PORT_AMQPS;
+        }
+
+        this.userName = userName;
+        this.sasToken = sasToken;
+        this.endpoint = endpoint;
+        this.linkName = linkName;
+        this.linkCredit = linkCredit;
+        this.amqpSubscriptionEvent = amqpSubscriptionEvent;
+
+        // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_003: [The constructor shall initialize a new Handshaker (Proton) object, and shall not add a FlowController since link credit is managed by this handler]
+        add(new Handshaker());
+    }
+
+    @Override
+    public void onConnectionBound(Event event)
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_004: [The event handler shall set the SASL PLAIN authentication and the VERIFY_PEER ssl domain on the Transport, and shall add a web socket layer for AMQPS_WS]
+        Transport transport = event.getConnection().getTransport();
+        if (transport != null)
+        {
+            if (this.iotHubServiceClientProtocol == IotHubServiceClientProtocol.AMQPS_WS)
+            {
+                WebSocketImpl webSocket = new WebSocketImpl();
+                webSocket.configure(this.webSocketHostName, WEBSOCKET_PATH, 0, WEBSOCKET_SUB_PROTOCOL, null, null);
+                ((TransportInternal)transport).addTransportLayer(webSocket);
+            }
+            Sasl sasl = transport.sasl();
+            sasl.plain(this.userName, this.sasToken);
+
+            SslDomain domain = Proton.sslDomain();
+            domain.init(SslDomain.Mode.CLIENT);
+            domain.setPeerAuthentication(SslDomain.VerifyMode.VERIFY_PEER);
+
+            try
+            {
+                domain.setSslContext(new IotHubSSLContext().getSSLContext());
+            }
+            catch (Exception e)
+            {
+                this.savedException = e;
+            }
+
+            transport.ssl(domain);
+        }
+    }
+
+    @Override
+    public void onConnectionInit(Event event)
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_005: [The event handler shall open the Connection, a Session and a Receiver, and shall grant the configured link credit to the Receiver]
+        this.connection = event.getConnection();
+        this.connection.setHostname(this.hostName);
+
+        Session session = this.connection.session();
+
+        Map<Symbol, Object> properties = new HashMap<>();
+        properties.put(Symbol.getSymbol(TransportUtils.versionIdentifierKey), TransportUtils.USER_AGENT_STRING);
+        this.receiver = session.receiver(this.linkName);
+        this.receiver.setProperties(properties);
+
+        this.connection.open();
+        session.open();
+        this.receiver.open();
+        this.receiver.flow(this.linkCredit);
+        this.connectionLost = false;
+    }
+
+    @Override
+    public void onLinkInit(Event event)
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_006: [The event handler shall set the source and target of the Receiver to the configured endpoint]
+        Link link = event.getLink();
+        if (link.getName().equals(this.linkName))
+        {
+            Target target = new Target();
+            target.setAddress(this.endpoint);
+            Source source = new Source();
+            source.setAddress(this.endpoint);
+            link.setTarget(target);
+            link.setSource(source);
+        }
+    }
+
+    @Override
+    public void onDelivery(Event event)
+    {
+        Receiver recv = (Receiver) event.getLink();
+        Delivery delivery = recv.current();
+        if (delivery != null && delivery.isReadable() && !delivery.isPartial() && recv.getName().equals(this.linkName))
+        {
+            // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_007: [The event handler shall read and decode the delivery without settling it]
+            int size = delivery.pending();
+            byte[] buffer = new byte[size];
+            int read = recv.recv(buffer, 0, buffer.length);
+            recv.advance();
+
+            DeliveryCompletion completion = new DeliveryCompletion(delivery);
+            org.apache.qpid.proton.message.Message message = Proton.message();
+            try
+            {
+                message.decode(buffer, 0, read);
+            }
+            catch (RuntimeException e)
+            {
+                // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_016: [If the delivery cannot be decoded, the event handler shall reject it without calling the subscription event]
+                // a message that cannot be decoded never will be, so it must not be delivered again
+                completion.settle(new Rejected());
+                return;
+            }
+
+            // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_008: [The event handler shall call the subscription event with the message body and a completion bound to the delivery]
+            try
+            {
+                this.amqpSubscriptionEvent.onMessageReceived(getBodyAsString(message), completion);
+            }
+            catch (Exception e)
+            {
+                // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_017: [If the subscription event throws, the event handler shall settle the delivery as Modified with delivery failed, unless it was already completed or abandoned]
+                // proton can't handle exceptions thrown from user code. Releasing the message would deliver it again
+                // right away, while a failed delivery counts towards the maximum delivery count of the IoT Hub.
+                Modified modified = new Modified();
+                modified.setDeliveryFailed(true);
+                completion.settle(modified);
+            }
+        }
+    }
+
+    @Override
+    public void onLinkRemoteClose(Event event)
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_009: [If the link, the connection or the transport is closed remotely or fails, the event handler shall close the connection locally and flag it as lost]
+        connectionLost(event.getConnection());
+    }
+
+    @Override
+    public void onConnectionRemoteClose(Event event)
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_009: [If the link, the connection or the transport is closed remotely or fails, the event handler shall close the connection locally and flag it as lost]
+        connectionLost(event.getConnection());
+    }
+
+    @Override
+    public void onTransportError(Event event)
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_009: [If the link, the connection or the transport is closed remotely or fails, the event handler shall close the connection locally and flag it as lost]
+        connectionLost(event.getConnection());
+    }
+
+    /**
+     * Apply every completion requested since the last call, and replenish one unit of link credit per settled
+     * delivery of the current link. Must be called on the reactor thread.
+     */
+    void processPendingSettlements()
+    {
+        PendingSettlement pendingSettlement;
+        int settledOnCurrentLink = 0;
+        while ((pendingSettlement = this.pendingSettlements.poll()) != null)
+        {
+            // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_010: [The function shall drop the settlements of deliveries that belong to a previous link]
+            if (this.receiver == null || pendingSettlement.delivery.getLink() != this.receiver)
+            {
+                continue;
+            }
+
+            // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_011: [The function shall apply the requested outcome to each delivery and settle it]
+            pendingSettlement.delivery.disposition(pendingSettlement.outcome);
+            pendingSettlement.delivery.settle();
+            settledOnCurrentLink++;
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_012: [The function shall grant one unit of link credit for every settled delivery]
+        if (settledOnCurrentLink > 0 && !this.connectionLost)
+        {
+            this.receiver.flow(settledOnCurrentLink);
+        }
+    }
+
+    /**
+     * Close the receiver link and its connection. Must be called on the reactor thread.
+     */
+    void closeConnection()
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_013: [The function shall close the Receiver, its Session and the Connection if they were opened]
+        if (this.receiver != null)
+        {
+            this.receiver.close();
+            this.receiver.getSession().close();
+        }
+
+        if (this.connection != null)
+        {
+            this.connection.close();
+        }
+
+        this.receiver = null;
+        this.connection = null;
+    }
+
+    /**
+     * @return true if the connection was lost and the owner should open a new one
+     */
+    boolean isConnectionLost()
+    {
+        return this.connectionLost;
+    }
+
+    /**
+     * @return the exception encountered while opening the last connection, or null if there was none
+     */
+    Exception getSavedException()
+    {
+        return this.savedException;
+    }
+
+    private void connectionLost(Connection lostConnection)
+    {
+        if (lostConnection != null && lostConnection == this.connection)
+        {
+            closeConnection();
+            this.connectionLost = true;
+        }
+    }
+
+    private static String getBodyAsString(org.apache.qpid.proton.message.Message message)
+    {
+        if (message.getBody() instanceof Data)
+        {
+            Binary binary = ((Data) message.getBody()).getValue();
+            return new String(binary.getArray(), binary.getArrayOffset(), binary.getLength(), StandardCharsets.UTF_8);
+        }
+        else if (message.getBody() instanceof AmqpValue)
+        {
+            return String.valueOf(((AmqpValue) message.getBody()).getValue());
+        }
+
+        return null;
+    }
+
+    private static final class PendingSettlement
+    {
+        private final Delivery delivery;
+        private final DeliveryState outcome;
+
+        private PendingSettlement(Delivery delivery, DeliveryState outcome)
+        {
+            this.delivery = delivery;
+            this.outcome = outcome;
+        }
+    }
+
+    private final class DeliveryCompletion implements MessageCompletion
+    {
+        private final Delivery delivery;
+        private final AtomicBoolean settled = new AtomicBoolean(false);
+
+        private DeliveryCompletion(Delivery delivery)
+        {
+            this.delivery = delivery;
+        }
+
+        @Override
+        public void complete()
+        {
+            // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_014: [Completing a message shall queue the Accepted outcome for its delivery, only once]
+            settle(Accepted.getInstance());
+        }
+
+        @Override
+        public void abandon()
+        {
+            // Codes_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_015: [Abandoning a message shall queue the Released outcome for its delivery, only once]
+            settle(Released.getInstance());
+        }
+
+        private void settle(DeliveryState outcome)
+        {
+            if (this.settled.compareAndSet(false, true))
+            {
+                pendingSettlements.add(new PendingSettlement(this.delivery, outcome));
+            }
+        }
+    }
+}
@@ -6,11 +6,11 @@
 package com.microsoft.azure.sdk.iot.service.transport.http;
 
 import javax.net.ssl.HttpsURLConnection;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.ProtocolException;
 import java.net.URL;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -62,6 +62,9 @@ public class HttpConnection
         // Codes_SRS_SERVICE_SDK_JAVA_HTTPCONNECTION_12_001: [The constructor shall open a connection to the given URL.]
         // Coses_SRS_SERVICE_SDK_JAVA_HTTPCONNECTION_12_002: [The constructor shall throw an IOException if the connection was unable to be opened.]
         this.connection = (HttpsURLConnection) url.openConnection();
+
+        // Codes_SRS_SERVICE_SDK_JAVA_HTTPCONNECTION_44_001: [The constructor shall use the socket factory shared by the HttpConnectionPool, so that keep-alive connections and TLS sessions are reused across requests.]
+        this.connection.setSSLSocketFactory(HttpConnectionPool.getInstance().getSocketFactory());
         // Codes_SRS_SERVICE_SDK_JAVA_HTTPCONNECTION_12_003: [The constructor shall set the HTTPS method to the given method.]
 
         if (method == HttpMethod.PATCH)
@@ -283,23 +286,16 @@ public class HttpConnection
     protected static byte[] readInputStream(InputStream stream)
             throws IOException
     {
-        ArrayList<Byte> byteBuffer = new ArrayList<>();
+        ByteArrayOutputStream byteBuffer = new ByteArrayOutputStream();
         int nextByte = -1;
-        // read(byte[]) reads the byte into the buffer and returns the number
-        // of bytes read, or -1 if the end of the stream has been reached.
+        // the stream is buffered by the connection, so reading one byte at a time is cheap as long as the
+        // bytes are not boxed. It must be read to the end for the connection to be kept alive.
         while ((nextByte = stream.read()) > -1)
         {
-            byteBuffer.add((byte) nextByte);
-        }
-
-        int bufferSize = byteBuffer.size();
-        byte[] byteArray = new byte[bufferSize];
-        for (int i = 0; i < bufferSize; ++i)
-        {
-            byteArray[i] = byteBuffer.get(i);
+            byteBuffer.write(nextByte);
         }
 
-        return byteArray;
+        return byteBuffer.toByteArray();
     }
 
     protected HttpConnection()
@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.http;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process wide pool shared by every {@link HttpRequest} of the service client (RegistryManager, DeviceTwin,
+ * DeviceMethod, JobClient, ...).
+ * <p>
+ * The connections themselves are kept alive by the JDK keep-alive cache, which only reuses a connection when it
+ * was created by the same SSLSocketFactory instance. The pool therefore hands the same factory, built from a
+ * single shared SSLContext, to every connection, so that keep-alive connections and cached TLS sessions are
+ * reused instead of paying a full handshake per request. It also bounds the number of requests in flight per
+ * host, and keeps statistics about the requests and connections it has seen.
+ * <p>
+ * The pool only bounds the requests in flight; how many idle connections are kept alive per host is decided by the
+ * JDK keep-alive cache, from the http.maxConnections system property (5 by default). The JDK reads that property
+ * once, so to keep alive as many connections as {@link #setMaxConnectionsPerHost(int)} allows in flight, set it on
+ * the command line, e.g. -Dhttp.maxConnections=20. Connections released over that number are closed, and the next
+ * requests to the host open new ones.
+ */
+public final class HttpConnectionPool
+{
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 20;
+
+    private static final HttpConnectionPool INSTANCE = new HttpConnectionPool();
+
+    private final Map<String, HostPermits> hostPermits = new ConcurrentHashMap<>();
+    private volatile int maxConnectionsPerHost = DEFAULT_MAX_CONNECTIONS_PER_HOST;
+    private volatile SSLSocketFactory socketFactory;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicInteger activeRequestCount = new AtomicInteger();
+    private final AtomicInteger peakActiveRequestCount = new AtomicInteger();
+    private final AtomicLong connectionsOpenedCount = new AtomicLong();
+    private final AtomicLong waitCount = new AtomicLong();
+    private final AtomicLong totalWaitTimeNanos = new AtomicLong();
+
+    HttpConnectionPool()
+    {
+    }
+
+    /**
+     * @return the pool shared by all the HTTP requests of the service client
+     */
+    public static HttpConnectionPool getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Set the maximum number of requests that may be in flight to a single host. Requests over the limit wait for a
+     * connection to be released. This does not change how many idle connections the JDK keeps alive per host, which
+     * is set by the http.maxConnections system property.
+     *
+     * @param maxConnectionsPerHost the maximum number of connections per host
+     * @throws IllegalArgumentException if maxConnectionsPerHost is not positive
+     */
+    public void setMaxConnectionsPerHost(int maxConnectionsPerHost) throws IllegalArgumentException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_HTTPCONNECTIONPOOL_44_001: [The function shall throw IllegalArgumentException if the maximum number of connections is not positive.]
+        if (maxConnectionsPerHost <= 0)
+        {
+            throw new IllegalArgumentException("maxConnectionsPerHost must be greater than 0");
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_HTTPCONNECTIONPOOL_44_002: [The function shall apply the new limit to every host, waking up the requests that may now proceed.]
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        for (HostPermits permits : this.hostPermits.values())
+        {
+            permits.limitChanged();
+        }
+    }
+
+    /**
+     * @return the maximum number of requests that may be in flight to a single host
+     */
+    public int getMaxConnectionsPerHost()
+    {
+        return this.maxConnectionsPerHost;
+    }
+
+    /**
+     * Replace the SSLContext shared by all the connections. Connections kept alive for the previous context are not
+     * reused afterwards.
+     *
+     * @param sslContext the SSLContext to create the connections from
+     * @throws IllegalArgumentException if sslContext is null
+     */
+    public void setSSLContext(SSLContext sslContext) throws IllegalArgumentException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_HTTPCONNECTIONPOOL_44_003: [The function shall throw IllegalArgumentException if the SSLContext is null.]
+        if (sslContext == null)
+        {
+            throw new IllegalArgumentException("sslContext cannot be null");
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_HTTPCONNECTIONPOOL_44_004: [The function shall create a single socket factory from the SSLContext, to be shared by all the following connections.]
+        this.socketFactory = new PooledSSLSocketFactory(sslContext.getSocketFactory());
+    }
+
+    /**
+     * @return a snapshot of the pool counters
+     */
+    public HttpConnectionPoolStatistics getStatistics()
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_HTTPCONNECTIONPOOL_44_005: [The function shall return a snapshot of the pool counters.]
+        return new HttpConnectionPoolStatistics(
+                this.requestCount.get(),
+                this.activeRequestCount.get(),
+                this.peakActiveRequestCount.get(),
+                this.connectionsOpenedCount.get(),
+                this.waitCount.get(),
+                TimeUnit.NANOSECONDS.toMillis(this.totalWaitTimeNanos.get()));
+    }
+
+    /**
+     * @return the socket factory shared by all the connections, wrapping the JVM default one if no SSLContext was set
+     */
+    SSLSocketFactory getSocketFactory()
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_HTTPCONNECTIONPOOL_44_006: [If no SSLContext was set, the function shall wrap the default HTTPS socket factory once.]
+        SSLSocketFactory factory = this.socketFactory;
+        if (factory == null)
+        {
+            synchronized (this)
+            {
+                if (this.socketFactory == null)
+                {
+                    this.socketFactory = new PooledSSLSocketFactory(HttpsURLConnection.getDefaultSSLSocketFactory());
+                }
+
+                factory = this.socketFactory;
+            }
+        }
+
+        return factory;
+    }
+
+    /**
+     * Wait until a request may be sent to the given host.
+     *
+     * @param host the host the request is sent to
+     * @throws InterruptedIOException if the thread was interrupted while waiting
+     */
+    void acquire(String host) throws InterruptedIOException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_HTTPCONNECTIONPOOL_44_007: [The function shall block while the maximum number of requests to the host are in flight, and shall count the requests that had to wait.]
+        HostPermits permits = this.hostPermits.computeIfAbsent(host == null ? "" : host, key -> new HostPermits());
+        long waitedNanos = permits.acquire();
+        if (waitedNanos > 0)
+        {
+            this.waitCount.incrementAndGet();
+            this.totalWaitTimeNanos.addAndGet(waitedNanos);
+        }
+
+        this.requestCount.incrementAndGet();
+        int active = this.activeRequestCount.incrementAndGet();
+        this.peakActiveRequestCount.accumulateAndGet(active, Math::max);
+    }
+
+    /**
+     * Release the connection acquired for the given host.
+     *
+     * @param host the host the request was sent to
+     */
+    void release(String host)
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_HTTPCONNECTIONPOOL_44_008: [The function shall let the next waiting request to the host proceed.]
+        HostPermits permits = this.hostPermits.get(host == null ? "" : host);
+        if (permits != null)
+        {
+            this.activeRequestCount.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    private final class HostPermits
+    {
+        private int inUse;
+
+        private synchronized long acquire() throws InterruptedIOException
+        {
+            if (this.inUse < maxConnectionsPerHost)
+            {
+                this.inUse++;
+                return 0;
+            }
+
+            long start = System.nanoTime();
+            try
+            {
+                while (this.inUse >= maxConnectionsPerHost)
+                {
+                    this.wait();
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for an HTTP connection");
+            }
+
+            this.inUse++;
+            return Math.max(1, System.nanoTime() - start);
+        }
+
+        private synchronized void release()
+        {
+            this.inUse--;
+            this.notify();
+        }
+
+        private synchronized void limitChanged()
+        {
+            this.notifyAll();
+        }
+    }
+
+    /**
+     * Delegating socket factory that counts the TLS connections it opens.
+     */
+    private final class PooledSSLSocketFactory extends SSLSocketFactory
+    {
+        private final SSLSocketFactory delegate;
+
+        private PooledSSLSocketFactory(SSLSocketFactory delegate)
+        {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites()
+        {
+            return this.delegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites()
+        {
+            return this.delegate.getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket() throws IOException
+        {
+            return opened(this.delegate.createSocket());
+        }
+
+        @Override
+        public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException
+        {
+            return opened(this.delegate.createSocket(socket, host, port, autoClose));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException
+        {
+            return opened(this.delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException
+        {
+            return opened(this.delegate.createSocket(host, port, localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException
+        {
+            return opened(this.delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException
+        {
+            return opened(this.delegate.createSocket(address, port, localAddress, localPort));
+        }
+
+        private Socket opened(Socket socket)
+        {
+            connectionsOpenedCount.incrementAndGet();
+            return socket;
+        }
+    }
+}
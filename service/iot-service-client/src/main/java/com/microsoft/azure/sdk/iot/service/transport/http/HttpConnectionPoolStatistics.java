@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.http;
+
+/**
+ * Immutable snapshot of the counters kept by the {@link HttpConnectionPool}.
+ */
+public final class HttpConnectionPoolStatistics
+{
+    private final long requestCount;
+    private final int activeRequestCount;
+    private final int peakActiveRequestCount;
+    private final long connectionsOpenedCount;
+    private final long waitCount;
+    private final long totalWaitTimeMillis;
+
+    HttpConnectionPoolStatistics(long requestCount, int activeRequestCount, int peakActiveRequestCount, long connectionsOpenedCount,
+                                 long waitCount, long totalWaitTimeMillis)
+    {
+        this.requestCount = requestCount;
+        this.activeRequestCount = activeRequestCount;
+        this.peakActiveRequestCount = peakActiveRequestCount;
+        this.connectionsOpenedCount = connectionsOpenedCount;
+        this.waitCount = waitCount;
+        this.totalWaitTimeMillis = totalWaitTimeMillis;
+    }
+
+    /**
+     * @return the number of requests sent through the pool
+     */
+    public long getRequestCount()
+    {
+        return requestCount;
+    }
+
+    /**
+     * @return the number of requests in flight when the snapshot was taken
+     */
+    public int getActiveRequestCount()
+    {
+        return activeRequestCount;
+    }
+
+    /**
+     * @return the highest number of requests that were in flight at the same time
+     */
+    public int getPeakActiveRequestCount()
+    {
+        return peakActiveRequestCount;
+    }
+
+    /**
+     * @return the number of TLS connections opened, each of which required a handshake
+     */
+    public long getConnectionsOpenedCount()
+    {
+        return connectionsOpenedCount;
+    }
+
+    /**
+     * @return the number of requests that were sent over an already open keep-alive connection
+     */
+    public long getReusedConnectionCount()
+    {
+        return Math.max(0, requestCount - connectionsOpenedCount);
+    }
+
+    /**
+     * @return the number of requests that had to wait because the per host connection limit was reached
+     */
+    public long getWaitCount()
+    {
+        return waitCount;
+    }
+
+    /**
+     * @return the total time, in milliseconds, that requests spent waiting for a connection
+     */
+    public long getTotalWaitTimeMillis()
+    {
+        return totalWaitTimeMillis;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "requests=" + requestCount + ", active=" + activeRequestCount + ", peakActive=" + peakActiveRequestCount
+                + ", connectionsOpened=" + connectionsOpenedCount + ", reused=" + getReusedConnectionCount()
+                + ", waits=" + waitCount + ", totalWaitMillis=" + totalWaitTimeMillis;
+    }
+}
@@ -17,6 +17,9 @@ public class HttpRequest
     /** The underlying HTTPS connection stream. */
     protected final HttpConnection connection;
 
+    /** The host the request is sent to, used to bound the connections per host. */
+    private final String host;
+
     /**
      * Constructor. Takes a URL as an argument and returns an HTTPS request that
      * is ready to be sent.
@@ -36,6 +39,7 @@ public class HttpRequest
         // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_12_003: [The function shall use the given HTTPS method (i.e. GET) as the request method.]
         // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_12_004: [If an IOException occurs in setting up the HTTPS connection, the function shall throw an IOException.]
         this.connection = new HttpConnection(url, method);
+        this.host = url.getAuthority();
         this.connection.setRequestHeader("User-Agent", TransportUtils.javaServiceClientIdentifier + TransportUtils.serviceVersion);
         // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_12_002: [The function shall write the body to the connection.]
         this.connection.writeOutput(body);
@@ -55,6 +59,8 @@ public class HttpRequest
         byte[] responseBody = new byte[0];
         byte[] errorReason = new byte[0];
         Map<String, List<String>> headerFields;
+        HttpConnectionPool pool = HttpConnectionPool.getInstance();
+        pool.acquire(this.host);
         try
         {
             // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_12_005: [The function shall send an HTTPS request as formatted in the constructor.]
@@ -81,6 +87,11 @@ public class HttpRequest
             // can be reused later.
             errorReason = this.connection.readError();
         }
+        finally
+        {
+            // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_44_001: [The function shall hold a connection of the HttpConnectionPool for the request host until the response has been read.]
+            pool.release(this.host);
+        }
 
         // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_12_006: [The function shall return the HTTPS response received, including the status code, body, header fields, and error reason (if any).]
         return new HttpResponse(responseStatus, responseBody, headerFields,
@@ -121,5 +132,6 @@ public class HttpRequest
     protected HttpRequest()
     {
         this.connection = null;
+        this.host = null;
     }
 }
@@ -0,0 +1,149 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.service;
+
+import com.microsoft.azure.sdk.iot.service.DeviceStatus;
+import com.microsoft.azure.sdk.iot.service.ExportImportDevice;
+import com.microsoft.azure.sdk.iot.service.ExportImportDeviceReader;
+import com.microsoft.azure.sdk.iot.service.ImportMode;
+import com.microsoft.azure.sdk.iot.service.auth.AuthenticationType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Code coverage:
+ * 100% Methods
+ * 94% lines
+ */
+public class ExportImportDeviceReaderTest
+{
+    private static final String DEVICE_LINE_FORMAT =
+            "{\"id\":\"%s\",\"eTag\":\"MA==\",\"status\":\"enabled\",\"importMode\":\"Create\"," +
+            "\"authentication\":{\"symmetricKey\":{\"primaryKey\":\"AAAAAAAAAAAAAAAAAAAAAA==\",\"secondaryKey\":\"AAAAAAAAAAAAAAAAAAAAAA==\"},\"type\":\"sas\"}}";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    // Tests_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_READER_44_001: [If the provided inputStream is null, an IllegalArgumentException shall be thrown.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForNullStream()
+    {
+        // act
+        new ExportImportDeviceReader(null);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_READER_44_002: [This method shall skip blank lines and return true only if a non blank line is available.]
+    // Tests_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_READER_44_005: [This method shall parse the next line into an ExportImportDevice and return it.]
+    // Tests_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_READER_44_006: [This method shall close the underlying stream.]
+    @Test
+    public void readsEveryDeviceFromLocalFile() throws IOException
+    {
+        // arrange
+        final int deviceCount = 1000;
+        File blob = temporaryFolder.newFile("devices.txt");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < deviceCount; i++)
+        {
+            content.append(String.format(DEVICE_LINE_FORMAT, "device" + i)).append('\n');
+            if (i % 100 == 0)
+            {
+                content.append('\n');
+            }
+        }
+        Files.write(blob.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+
+        // act
+        int readCount = 0;
+        try (ExportImportDeviceReader reader = new ExportImportDeviceReader(new FileInputStream(blob)))
+        {
+            while (reader.hasNext())
+            {
+                ExportImportDevice device = reader.next();
+
+                // assert
+                assertEquals("device" + readCount, device.getId());
+                assertEquals(DeviceStatus.Enabled, device.getStatus());
+                assertEquals(ImportMode.Create, device.getImportMode());
+                assertEquals(AuthenticationType.SAS, device.getAuthenticationFinal().getAuthenticationType());
+                readCount++;
+            }
+        }
+
+        // assert
+        assertEquals(deviceCount, readCount);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_READER_44_004: [If there are no more devices in the stream, a NoSuchElementException shall be thrown.]
+    @Test (expected = NoSuchElementException.class)
+    public void nextThrowsAtEndOfStream() throws IOException
+    {
+        // arrange
+        ExportImportDeviceReader reader = new ExportImportDeviceReader(new ByteArrayInputStream("\n\n".getBytes(StandardCharsets.UTF_8)));
+        assertFalse(reader.hasNext());
+
+        // act
+        reader.next();
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_READER_44_002: [This method shall skip blank lines and return true only if a non blank line is available.]
+    @Test
+    public void hasNextDoesNotConsumeDevices()
+    {
+        // arrange
+        byte[] content = String.format(DEVICE_LINE_FORMAT, "device").getBytes(StandardCharsets.UTF_8);
+        ExportImportDeviceReader reader = new ExportImportDeviceReader(new ByteArrayInputStream(content));
+
+        // act
+        assertTrue(reader.hasNext());
+        assertTrue(reader.hasNext());
+
+        // assert
+        assertEquals("device", reader.next().getId());
+        assertFalse(reader.hasNext());
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_READER_44_007: [If the next line is not a valid serialized device, an IllegalArgumentException shall be thrown.]
+    @Test (expected = IllegalArgumentException.class)
+    public void nextThrowsForInvalidLine()
+    {
+        // arrange
+        ExportImportDeviceReader reader = new ExportImportDeviceReader(new ByteArrayInputStream("{\"notADevice\":1}".getBytes(StandardCharsets.UTF_8)));
+
+        // act
+        reader.next();
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_READER_44_003: [If the stream cannot be read, an UncheckedIOException shall be thrown.]
+    @Test (expected = UncheckedIOException.class)
+    public void hasNextThrowsIfTheStreamCannotBeRead()
+    {
+        // arrange
+        ExportImportDeviceReader reader = new ExportImportDeviceReader(new InputStream()
+        {
+            @Override
+            public int read() throws IOException
+            {
+                throw new IOException("connection reset");
+            }
+        });
+
+        // act
+        reader.hasNext();
+    }
+}
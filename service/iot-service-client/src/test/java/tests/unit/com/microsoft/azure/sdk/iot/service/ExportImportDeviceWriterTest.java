@@ -0,0 +1,154 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.service;
+
+import com.microsoft.azure.sdk.iot.service.DeviceStatus;
+import com.microsoft.azure.sdk.iot.service.ExportImportDevice;
+import com.microsoft.azure.sdk.iot.service.ExportImportDeviceReader;
+import com.microsoft.azure.sdk.iot.service.ExportImportDeviceWriter;
+import com.microsoft.azure.sdk.iot.service.ImportMode;
+import com.microsoft.azure.sdk.iot.service.auth.AuthenticationType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Code coverage:
+ * 100% Methods
+ * 92% lines
+ */
+public class ExportImportDeviceWriterTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    // Tests_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_WRITER_44_001: [If the provided outputStream is null, an IllegalArgumentException shall be thrown.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForNullStream()
+    {
+        // act
+        new ExportImportDeviceWriter(null);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_WRITER_44_002: [If the provided parallelism is less than 1, an IllegalArgumentException shall be thrown.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForInvalidParallelism()
+    {
+        // act
+        new ExportImportDeviceWriter(new ByteArrayOutputStream(), 0);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_WRITER_44_004: [If the provided device is null, an IllegalArgumentException shall be thrown.]
+    @Test (expected = IllegalArgumentException.class)
+    public void acceptThrowsForNullDevice()
+    {
+        // act
+        new ExportImportDeviceWriter(new ByteArrayOutputStream()).accept(null);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_WRITER_44_005: [This method shall write the json representation of the provided device followed by a line separator.]
+    // Tests_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_WRITER_44_008: [This method shall write every pending device in acceptance order and flush the underlying stream.]
+    @Test
+    public void writesOneLinePerDevice() throws IOException
+    {
+        // arrange
+        File blob = temporaryFolder.newFile("devices.txt");
+
+        // act
+        try (ExportImportDeviceWriter writer = new ExportImportDeviceWriter(new FileOutputStream(blob)))
+        {
+            for (int i = 0; i < 10; i++)
+            {
+                writer.accept(createDevice("device" + i));
+            }
+        }
+
+        // assert
+        List<String> lines = Files.readAllLines(blob.toPath(), StandardCharsets.UTF_8);
+        assertEquals(10, lines.size());
+        for (int i = 0; i < lines.size(); i++)
+        {
+            assertEquals(0, lines.get(i).indexOf("{\"id\":\"device" + i + "\""));
+        }
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_WRITER_44_003: [If the provided parallelism is greater than 1, this writer shall serialize devices on a fixed pool of that many threads.]
+    // Tests_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_WRITER_44_006: [If this writer serializes in parallel, this method shall wait for the oldest pending device once the window of pending devices is full.]
+    // Tests_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_WRITER_44_009: [This method shall shut down the serialization threads and close the underlying stream, even if flushing failed.]
+    @Test
+    public void parallelWriteRoundTripsThroughLocalFileInOrder() throws IOException
+    {
+        // arrange
+        final int deviceCount = 5000;
+        File blob = temporaryFolder.newFile("devices.txt");
+
+        // act
+        try (ExportImportDeviceWriter writer = new ExportImportDeviceWriter(new FileOutputStream(blob), 4))
+        {
+            for (int i = 0; i < deviceCount; i++)
+            {
+                writer.accept(createDevice("device" + i));
+            }
+        }
+
+        // assert
+        int readCount = 0;
+        try (ExportImportDeviceReader reader = new ExportImportDeviceReader(new FileInputStream(blob)))
+        {
+            while (reader.hasNext())
+            {
+                ExportImportDevice device = reader.next();
+                assertEquals("device" + readCount, device.getId());
+                assertEquals(ImportMode.CreateOrUpdate, device.getImportMode());
+                assertEquals(DeviceStatus.Disabled, device.getStatus());
+                readCount++;
+            }
+            assertFalse(reader.hasNext());
+        }
+        assertEquals(deviceCount, readCount);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_EXPORT_IMPORT_DEVICE_WRITER_44_007: [If the stream cannot be written, an UncheckedIOException shall be thrown.]
+    @Test (expected = UncheckedIOException.class)
+    public void acceptThrowsIfTheStreamCannotBeWritten()
+    {
+        // arrange
+        ExportImportDeviceWriter writer = new ExportImportDeviceWriter(new OutputStream()
+        {
+            @Override
+            public void write(int b) throws IOException
+            {
+                throw new IOException("connection reset");
+            }
+        });
+
+        // act
+        for (int i = 0; i < 1000; i++)
+        {
+            writer.accept(createDevice("device" + i));
+        }
+    }
+
+    private static ExportImportDevice createDevice(String deviceId)
+    {
+        ExportImportDevice device = new ExportImportDevice(deviceId, AuthenticationType.CERTIFICATE_AUTHORITY);
+        device.setImportMode(ImportMode.CreateOrUpdate);
+        device.setStatus(DeviceStatus.Disabled);
+        return device;
+    }
+}
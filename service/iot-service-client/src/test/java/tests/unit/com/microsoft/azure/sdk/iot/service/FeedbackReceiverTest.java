@@ -8,16 +8,25 @@ package tests.unit.com.microsoft.azure.sdk.iot.service;
 import com.microsoft.azure.sdk.iot.service.FeedbackBatch;
 import com.microsoft.azure.sdk.iot.service.FeedbackReceiver;
 import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
+import com.microsoft.azure.sdk.iot.service.MessageCompletion;
+import com.microsoft.azure.sdk.iot.service.ReceiveSubscription;
 import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpReceive;
+import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSubscription;
+import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSubscriptionEvent;
 import mockit.Deencapsulation;
 import mockit.Expectations;
 import mockit.Mocked;
+import mockit.Verifications;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 public class FeedbackReceiverTest
 {
@@ -751,4 +760,76 @@ public class FeedbackReceiverTest
         CompletableFuture<FeedbackBatch> completableFuture = feedbackReceiver.receiveAsync(timeoutMs);
         completableFuture.get();
     }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_FEEDBACKRECEIVER_44_001: [The function shall throw IllegalArgumentException if the handler is null or the link credit is not positive]
+    @Test (expected = IllegalArgumentException.class)
+    public void subscribe_throws_on_null_handler() throws Exception
+    {
+        // Arrange
+        FeedbackReceiver feedbackReceiver = new FeedbackReceiver("xxx", "xxx", "xxx", IotHubServiceClientProtocol.AMQPS);
+        // Act
+        feedbackReceiver.subscribe(null, 10);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_FEEDBACKRECEIVER_44_001: [The function shall throw IllegalArgumentException if the handler is null or the link credit is not positive]
+    @Test (expected = IllegalArgumentException.class)
+    public void subscribe_throws_on_negative_link_credit() throws Exception
+    {
+        // Arrange
+        FeedbackReceiver feedbackReceiver = new FeedbackReceiver("xxx", "xxx", "xxx", IotHubServiceClientProtocol.AMQPS);
+        // Act
+        feedbackReceiver.subscribe((feedbackBatch, completion) -> completion.complete(), -1);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_FEEDBACKRECEIVER_44_002: [The function shall open an AmqpSubscription on the feedback endpoint that parses every message into a FeedbackBatch and delivers it to the handler]
+    @Test
+    public void subscribe_opens_subscription_on_feedback_endpoint(@Mocked final AmqpSubscription amqpSubscription) throws Exception
+    {
+        // Arrange
+        FeedbackReceiver feedbackReceiver = new FeedbackReceiver("xxx", "xxx", "xxx", IotHubServiceClientProtocol.AMQPS);
+        // Act
+        ReceiveSubscription subscription = feedbackReceiver.subscribe((feedbackBatch, completion) -> completion.complete(), 10);
+        // Assert
+        assertNotNull(subscription);
+        new Verifications()
+        {
+            {
+                new AmqpSubscription("xxx", "xxx", "xxx", IotHubServiceClientProtocol.AMQPS, AmqpSubscription.FEEDBACK_ENDPOINT,
+                        AmqpSubscription.FEEDBACK_LINK_NAME, 10, (AmqpSubscriptionEvent) any);
+                times = 1;
+                amqpSubscription.open();
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_FEEDBACKRECEIVER_44_003: [Feedback batches that cannot be parsed shall be completed without being delivered to the handler]
+    @Test
+    public void subscribe_completes_feedback_that_cannot_be_parsed(@Mocked final AmqpSubscription amqpSubscription, @Mocked final MessageCompletion completion) throws Exception
+    {
+        // Arrange
+        FeedbackReceiver feedbackReceiver = new FeedbackReceiver("xxx", "xxx", "xxx", IotHubServiceClientProtocol.AMQPS);
+        final List<FeedbackBatch> receivedBatches = new ArrayList<>();
+        feedbackReceiver.subscribe((feedbackBatch, messageCompletion) -> receivedBatches.add(feedbackBatch), 10);
+        final List<AmqpSubscriptionEvent> events = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                new AmqpSubscription(anyString, anyString, anyString, (IotHubServiceClientProtocol) any, anyString, anyString, anyInt, withCapture(events));
+            }
+        };
+
+        // Act
+        events.get(0).onMessageReceived("[{\"enqueuedTimeUtc\": \"notATime\"}]", completion);
+
+        // Assert
+        assertTrue(receivedBatches.isEmpty());
+        new Verifications()
+        {
+            {
+                completion.complete();
+                times = 1;
+            }
+        };
+    }
 }
@@ -8,7 +8,10 @@ package tests.unit.com.microsoft.azure.sdk.iot.service;
 import com.microsoft.azure.sdk.iot.service.FileUploadNotification;
 import com.microsoft.azure.sdk.iot.service.FileUploadNotificationReceiver;
 import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
+import com.microsoft.azure.sdk.iot.service.ReceiveSubscription;
 import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpFileUploadNotificationReceive;
+import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSubscription;
+import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSubscriptionEvent;
 import mockit.Deencapsulation;
 import mockit.Mocked;
 import mockit.Verifications;
@@ -17,6 +20,8 @@ import org.junit.Test;
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
 
+import static org.junit.Assert.assertNotNull;
+
 public class FileUploadNotificationReceiverTest
 {
     @Mocked
@@ -360,4 +365,50 @@ public class FileUploadNotificationReceiverTest
         };
 
     }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_FILEUPLOADNOTIFICATIONRECEIVER_44_001: [The function shall throw IllegalArgumentException if the handler is null or the link credit is not positive]
+    @Test (expected = IllegalArgumentException.class)
+    public void subscribeThrowsOnNullHandler() throws Exception
+    {
+        // Arrange
+        FileUploadNotificationReceiver fileUploadNotificationReceiver = Deencapsulation.newInstance(FileUploadNotificationReceiver.class, "xxx", "xxx", "xxx", IotHubServiceClientProtocol.AMQPS);
+
+        // Act
+        fileUploadNotificationReceiver.subscribe(null, 10);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_FILEUPLOADNOTIFICATIONRECEIVER_44_001: [The function shall throw IllegalArgumentException if the handler is null or the link credit is not positive]
+    @Test (expected = IllegalArgumentException.class)
+    public void subscribeThrowsOnZeroLinkCredit() throws Exception
+    {
+        // Arrange
+        FileUploadNotificationReceiver fileUploadNotificationReceiver = Deencapsulation.newInstance(FileUploadNotificationReceiver.class, "xxx", "xxx", "xxx", IotHubServiceClientProtocol.AMQPS);
+
+        // Act
+        fileUploadNotificationReceiver.subscribe((notification, completion) -> completion.complete(), 0);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_FILEUPLOADNOTIFICATIONRECEIVER_44_002: [The function shall open an AmqpSubscription on the file notification endpoint that parses every message into a FileUploadNotification and delivers it to the handler]
+    @Test
+    public void subscribeOpensSubscriptionOnFileNotificationEndpoint(@Mocked final AmqpSubscription amqpSubscription) throws Exception
+    {
+        // Arrange
+        FileUploadNotificationReceiver fileUploadNotificationReceiver = Deencapsulation.newInstance(FileUploadNotificationReceiver.class, "xxx", "xxx", "xxx", IotHubServiceClientProtocol.AMQPS);
+
+        // Act
+        ReceiveSubscription subscription = fileUploadNotificationReceiver.subscribe((notification, completion) -> completion.complete(), 10);
+
+        // Assert
+        assertNotNull(subscription);
+        new Verifications()
+        {
+            {
+                new AmqpSubscription("xxx", "xxx", "xxx", IotHubServiceClientProtocol.AMQPS, AmqpSubscription.FILE_NOTIFICATION_ENDPOINT,
+                        AmqpSubscription.FILE_NOTIFICATION_LINK_NAME, 10, (AmqpSubscriptionEvent) any);
+                times = 1;
+                amqpSubscription.open();
+                times = 1;
+            }
+        };
+    }
 }
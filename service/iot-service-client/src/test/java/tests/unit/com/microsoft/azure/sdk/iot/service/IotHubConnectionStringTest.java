@@ -597,6 +597,29 @@ public class IotHubConnectionStringTest
         assertTrue(actual.equals(expected));
     }
 
+    /*
+    ** Tests_SRS_SERVICE_SDK_JAVA_IOTHUBCONNECTIONSTRING_44_001: [The function shall create a URL object from the object properties using the following format: https:hostname/devices?api-version=201X-XX-XX]
+     */
+    @Test
+    public void getUrlDevicesSucceeds() throws IOException
+    {
+        // arrange
+        final String iotHubName = "b.c.d";
+        final String hostName = "HOSTNAME." + iotHubName;
+        final String sharedAccessKeyName = "ACCESSKEYNAME";
+        final String policyName = "SharedAccessKey";
+        final String sharedAccessKey = "1234567890abcdefghijklmnopqrstvwxyz=";
+        final String connectionString = "HostName=" + hostName + ";SharedAccessKeyName=" + sharedAccessKeyName + ";" + policyName + "=" + sharedAccessKey;
+        final IotHubConnectionString iotHubConnectionString = IotHubConnectionStringBuilder.createConnectionString(connectionString);
+        final String expected = "https://HOSTNAME.b.c.d/devices?" + URL_API_VERSION;
+
+        // act
+        String actual = iotHubConnectionString.getUrlDevices().toString();
+
+        // assert
+        assertEquals(expected, actual);
+    }
+
     /*
     ** Tests_SRS_SERVICE_SDK_JAVA_IOTHUBCONNECTIONSTRING_15_009: [The function shall create a URL object from the object properties using the following format: https:hostname/jobs/jobId?api-version=201X-XX-XX.]
      */
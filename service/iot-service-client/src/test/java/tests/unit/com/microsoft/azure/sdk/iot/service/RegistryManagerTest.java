@@ -10,6 +10,7 @@ import com.microsoft.azure.sdk.iot.deps.serializer.ConfigurationParser;
 import com.microsoft.azure.sdk.iot.deps.serializer.DeviceParser;
 import com.microsoft.azure.sdk.iot.service.*;
 import com.microsoft.azure.sdk.iot.service.Module;
+import com.microsoft.azure.sdk.iot.service.auth.AuthenticationType;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubExceptionManager;
@@ -2303,6 +2304,177 @@ public class RegistryManagerTest
         };
     }
 
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_004: [The function shall throw IllegalArgumentException if the provided devices are null, empty or contain a null device]
+    @Test (expected = IllegalArgumentException.class)
+    public void addDevices_null_devices_throws() throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString);
+
+        registryManager.addDevices(null);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_004: [The function shall throw IllegalArgumentException if the provided devices are null, empty or contain a null device]
+    @Test (expected = IllegalArgumentException.class)
+    public void addDevices_empty_devices_throws() throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString);
+
+        registryManager.addDevices(new ArrayList<ExportImportDevice>());
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_004: [The function shall throw IllegalArgumentException if the provided devices are null, empty or contain a null device]
+    @Test (expected = IllegalArgumentException.class)
+    public void removeDevices_null_device_throws() throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString);
+        List<ExportImportDevice> devices = new ArrayList<>();
+        devices.add(new ExportImportDevice("someDevice", AuthenticationType.CERTIFICATE_AUTHORITY));
+        devices.add(null);
+
+        registryManager.removeDevices(devices, true);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_001: [The function shall send the devices with the import mode Create]
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_005: [The function shall split the devices into chunks of at most 100 devices and serialize each chunk into a json array]
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_006: [The function shall send every chunk concurrently on this object's executor service]
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_009: [The function shall get the URL for the bulk registry operation]
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_011: [The function shall send a new HTTP POST request with the chunk as the body]
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_013: [The function shall verify the response status and throw proper Exception]
+    @Test
+    public void addDevices_chunks_devices() throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        List<ExportImportDevice> devices = new ArrayList<>();
+        for (int i = 0; i < 250; i++)
+        {
+            devices.add(new ExportImportDevice("device" + i, AuthenticationType.CERTIFICATE_AUTHORITY));
+        }
+
+        new NonStrictExpectations()
+        {
+            {
+                IotHubConnectionStringBuilder.createConnectionString(connectionString);
+                result = iotHubConnectionString;
+                iotHubConnectionString.getUrlDevices();
+                result = mockUrl;
+                mockHttpRequest.send();
+                result = mockHttpResponse;
+                mockHttpResponse.getBody();
+                result = "{\"isSuccessful\":true,\"errors\":[],\"warnings\":[]}".getBytes();
+            }
+        };
+
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString);
+
+        BulkRegistryOperationResult result = registryManager.addDevices(devices);
+
+        final List<byte[]> payloads = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                new HttpRequest(mockUrl, HttpMethod.POST, withCapture(payloads));
+                times = 3;
+                mockHttpRequest.send();
+                times = 3;
+                mockIotHubExceptionManager.httpResponseVerification(mockHttpResponse);
+                times = 3;
+            }
+        };
+
+        int totalDevices = 0;
+        for (byte[] payload : payloads)
+        {
+            String payloadJson = new String(payload);
+            assertTrue(payloadJson.startsWith("["));
+            assertTrue(payloadJson.endsWith("]"));
+            assertTrue(payloadJson.contains("\"importMode\":\"Create\""));
+            totalDevices += payloadJson.split("\"importMode\"").length - 1;
+        }
+        assertEquals(250, totalDevices);
+        assertTrue(result.getIsSuccessful());
+        assertTrue(result.getErrors().isEmpty());
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_003: [The function shall send the devices with the import mode Delete if forceRemove is true, and DeleteIfMatchETag otherwise]
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_012: [If the response status is 400 and its body lists per device errors, the function shall return them instead of throwing]
+    @Test
+    public void removeDevices_returns_per_device_errors() throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        List<ExportImportDevice> devices = new ArrayList<>();
+        devices.add(new ExportImportDevice("device1", AuthenticationType.CERTIFICATE_AUTHORITY));
+        devices.add(new ExportImportDevice("device2", AuthenticationType.CERTIFICATE_AUTHORITY));
+
+        new NonStrictExpectations()
+        {
+            {
+                IotHubConnectionStringBuilder.createConnectionString(connectionString);
+                result = iotHubConnectionString;
+                iotHubConnectionString.getUrlDevices();
+                result = mockUrl;
+                mockHttpRequest.send();
+                result = mockHttpResponse;
+                mockHttpResponse.getStatus();
+                result = 400;
+                mockHttpResponse.getErrorReason();
+                result = ("{\"isSuccessful\":false,\"errors\":[{\"deviceId\":\"device2\",\"errorCode\":\"PreconditionFailed\"," +
+                        "\"errorStatus\":\"ETag mismatch\"}],\"warnings\":[]}").getBytes();
+            }
+        };
+
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString);
+
+        BulkRegistryOperationResult result = registryManager.removeDevices(devices, false);
+
+        final List<byte[]> payloads = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                new HttpRequest(mockUrl, HttpMethod.POST, withCapture(payloads));
+                times = 1;
+                mockIotHubExceptionManager.httpResponseVerification((HttpResponse) any);
+                times = 0;
+            }
+        };
+
+        assertTrue(new String(payloads.get(0)).contains("\"importMode\":\"DeleteIfMatchETag\""));
+        assertFalse(result.getIsSuccessful());
+        assertEquals(1, result.getErrors().size());
+        assertEquals("device2", result.getErrors().get(0).getDeviceId());
+        assertEquals("PreconditionFailed", result.getErrors().get(0).getErrorCode());
+        assertEquals("ETag mismatch", result.getErrors().get(0).getErrorStatus());
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_44_008: [If any chunk failed, the function shall rethrow the exception of the first failed chunk once every chunk has completed]
+    @Test (expected = IotHubException.class)
+    public void updateDevices_rethrows_chunk_failure() throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        List<ExportImportDevice> devices = new ArrayList<>();
+        devices.add(new ExportImportDevice("device1", AuthenticationType.CERTIFICATE_AUTHORITY));
+
+        new NonStrictExpectations()
+        {
+            {
+                IotHubConnectionStringBuilder.createConnectionString(connectionString);
+                result = iotHubConnectionString;
+                iotHubConnectionString.getUrlDevices();
+                result = mockUrl;
+                mockHttpRequest.send();
+                result = mockHttpResponse;
+                IotHubExceptionManager.httpResponseVerification(mockHttpResponse);
+                result = new IotHubException();
+            }
+        };
+
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString);
+
+        registryManager.updateDevices(devices, true);
+    }
+
     private void commonExpectations(String connectionString, String deviceId) throws Exception
     {
         new NonStrictExpectations()
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service.jobs;
+
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubNotFoundException;
+import com.microsoft.azure.sdk.iot.service.jobs.JobClient;
+import com.microsoft.azure.sdk.iot.service.jobs.JobResult;
+import com.microsoft.azure.sdk.iot.service.jobs.JobStatistics;
+import com.microsoft.azure.sdk.iot.service.jobs.JobStatus;
+import com.microsoft.azure.sdk.iot.service.jobs.JobStatusListener;
+import com.microsoft.azure.sdk.iot.service.jobs.JobTracker;
+import com.microsoft.azure.sdk.iot.service.jobs.JobWatch;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for JobTracker and JobWatch
+ */
+public class JobTrackerTest
+{
+    private static final String JOB_ID = "validJobId";
+    private static final long MIN_POLL_MILLIS = 5;
+    private static final long MAX_POLL_MILLIS = 20;
+
+    @Mocked
+    JobClient mockedJobClient;
+
+    @Mocked
+    JobResult mockedJobResult;
+
+    @Mocked
+    JobStatistics mockedJobStatistics;
+
+    private static class RecordingListener implements JobStatusListener
+    {
+        final List<JobStatus> previousStatuses = Collections.synchronizedList(new ArrayList<>());
+        final List<Exception> errors = Collections.synchronizedList(new ArrayList<>());
+        volatile int progressCount;
+
+        @Override
+        public void onJobStatusChanged(JobResult jobResult, JobStatus previousStatus)
+        {
+            previousStatuses.add(previousStatus);
+        }
+
+        @Override
+        public void onJobProgress(JobResult jobResult)
+        {
+            progressCount++;
+        }
+
+        @Override
+        public void onJobWatchError(String jobId, Exception exception)
+        {
+            errors.add(exception);
+        }
+    }
+
+    private JobTracker createTracker()
+    {
+        return new JobTracker(mockedJobClient, 1, MIN_POLL_MILLIS, MAX_POLL_MILLIS);
+    }
+
+    /* Tests_SRS_JOBTRACKER_44_001: [The constructor shall throw IllegalArgumentException if the jobClient is null, the thread count or the minimum interval is not positive, or the maximum interval is smaller than the minimum interval.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnNullJobClient()
+    {
+        new JobTracker(null);
+    }
+
+    /* Tests_SRS_JOBTRACKER_44_001: [The constructor shall throw IllegalArgumentException if the jobClient is null, the thread count or the minimum interval is not positive, or the maximum interval is smaller than the minimum interval.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnMaxIntervalSmallerThanMin()
+    {
+        new JobTracker(mockedJobClient, 1, 100, 10);
+    }
+
+    /* Tests_SRS_JOBTRACKER_44_003: [The track shall throw IllegalArgumentException if the jobId is null or empty, or the listener is null.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void trackThrowsOnNullListener()
+    {
+        try (JobTracker tracker = createTracker())
+        {
+            tracker.track(JOB_ID, null);
+        }
+    }
+
+    /* Tests_SRS_JOBTRACKER_44_004: [The track shall throw IllegalStateException if the tracker is closed.] */
+    @Test (expected = IllegalStateException.class)
+    public void trackThrowsOnClosedTracker()
+    {
+        JobTracker tracker = createTracker();
+        tracker.close();
+        tracker.track(JOB_ID, new RecordingListener());
+    }
+
+    /* Tests_SRS_JOBTRACKER_44_005: [The track shall throw IllegalArgumentException if the job is already watched.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void trackThrowsOnDuplicateJob() throws Exception
+    {
+        new NonStrictExpectations()
+        {
+            {
+                mockedJobResult.getJobStatus();
+                result = JobStatus.running;
+            }
+        };
+
+        try (JobTracker tracker = createTracker())
+        {
+            tracker.track(JOB_ID, new RecordingListener());
+            tracker.track(JOB_ID, new RecordingListener());
+        }
+    }
+
+    /* Tests_SRS_JOBTRACKER_44_006: [The track shall poll the job immediately.] */
+    /* Tests_SRS_JOBTRACKER_44_008: [The poll shall read the job and report it to its watch.] */
+    /* Tests_SRS_JOBWATCH_44_002: [The update shall notify a status change, or a progress if only the statistics changed.] */
+    /* Tests_SRS_JOBWATCH_44_003: [The update shall complete the watch when the job reaches a terminal status.] */
+    @Test
+    public void watchReportsTransitionsAndCompletes() throws Exception
+    {
+        // arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockedJobClient.getJob(JOB_ID);
+                result = mockedJobResult;
+                mockedJobResult.getJobStatus();
+                returns(JobStatus.queued, JobStatus.running, JobStatus.running, JobStatus.running, JobStatus.completed);
+                mockedJobResult.getJobStatistics();
+                result = mockedJobStatistics;
+                mockedJobStatistics.getSucceededCount();
+                returns(0, 0, 1, 1, 2);
+            }
+        };
+        RecordingListener listener = new RecordingListener();
+
+        // act
+        JobResult finalResult;
+        JobWatch watch;
+        try (JobTracker tracker = createTracker())
+        {
+            watch = tracker.track(JOB_ID, listener);
+            finalResult = watch.getCompletion().get(10, TimeUnit.SECONDS);
+            Thread.sleep(50);
+
+            // assert
+            assertEquals(0, tracker.getTrackedJobCount());
+        }
+
+        // assert
+        assertSame(mockedJobResult, finalResult);
+        assertSame(mockedJobResult, watch.getLatestResult());
+        assertNull(listener.previousStatuses.get(0));
+        assertEquals(3, listener.previousStatuses.size());
+        assertEquals(JobStatus.queued, listener.previousStatuses.get(1));
+        assertEquals(JobStatus.running, listener.previousStatuses.get(2));
+        assertEquals(1, listener.progressCount);
+    }
+
+    /* Tests_SRS_JOBTRACKER_44_009: [If the job does not exist, the poll shall complete the watch exceptionally.] */
+    @Test
+    public void watchFailsWhenJobDoesNotExist() throws Exception
+    {
+        // arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockedJobClient.getJob(JOB_ID);
+                result = new IotHubNotFoundException();
+            }
+        };
+        RecordingListener listener = new RecordingListener();
+
+        // act
+        try (JobTracker tracker = createTracker())
+        {
+            JobWatch watch = tracker.track(JOB_ID, listener);
+            watch.getCompletion().get(10, TimeUnit.SECONDS);
+            fail("the watch should have completed exceptionally");
+        }
+        catch (ExecutionException e)
+        {
+            // assert
+            assertTrue(e.getCause() instanceof IotHubNotFoundException);
+            assertEquals(1, listener.errors.size());
+        }
+    }
+
+    /* Tests_SRS_JOBTRACKER_44_010: [If the job could not be read, the poll shall report the error and back off.] */
+    /* Tests_SRS_JOBWATCH_44_006: [The error shall notify the listener and double the poll interval, up to the maximum.] */
+    @Test
+    public void watchKeepsPollingAfterTransientError() throws Exception
+    {
+        // arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockedJobClient.getJob(JOB_ID);
+                result = new IOException("transient");
+                result = mockedJobResult;
+                mockedJobResult.getJobStatus();
+                result = JobStatus.failed;
+            }
+        };
+        RecordingListener listener = new RecordingListener();
+
+        // act
+        JobResult finalResult;
+        try (JobTracker tracker = createTracker())
+        {
+            finalResult = tracker.track(JOB_ID, listener).getCompletion().get(10, TimeUnit.SECONDS);
+        }
+
+        // assert
+        assertSame(mockedJobResult, finalResult);
+        assertEquals(1, listener.errors.size());
+        assertTrue(listener.errors.get(0) instanceof IOException);
+    }
+
+    /* Tests_SRS_JOBTRACKER_44_007: [The close shall stop the scheduler and cancel the completion of every watch.] */
+    /* Tests_SRS_JOBWATCH_44_001: [The close shall stop polling the job and cancel the completion if it is not done.] */
+    @Test
+    public void closeCancelsPendingWatches() throws Exception
+    {
+        // arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockedJobClient.getJob(JOB_ID);
+                result = mockedJobResult;
+                mockedJobResult.getJobStatus();
+                result = JobStatus.running;
+            }
+        };
+        JobTracker tracker = createTracker();
+        JobWatch watch = tracker.track(JOB_ID, new RecordingListener());
+        JobWatch otherWatch = tracker.track("otherJobId", new RecordingListener());
+
+        // act
+        otherWatch.close();
+        assertEquals(1, tracker.getTrackedJobCount());
+        tracker.close();
+
+        // assert
+        assertEquals(0, tracker.getTrackedJobCount());
+        try
+        {
+            watch.getCompletion().get(10, TimeUnit.SECONDS);
+            fail("the watch should have been cancelled");
+        }
+        catch (CancellationException e)
+        {
+            // expected
+        }
+        assertTrue(otherWatch.getCompletion().isCancelled());
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service.transport.amqps;
+
+import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
+import com.microsoft.azure.sdk.iot.service.MessageCompletion;
+import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSubscriptionEvent;
+import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSubscriptionHandler;
+import mockit.Deencapsulation;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import mockit.Verifications;
+import mockit.integration.junit4.JMockit;
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.amqp.messaging.Accepted;
+import org.apache.qpid.proton.amqp.messaging.AmqpValue;
+import org.apache.qpid.proton.amqp.messaging.Modified;
+import org.apache.qpid.proton.amqp.messaging.Rejected;
+import org.apache.qpid.proton.amqp.messaging.Released;
+import org.apache.qpid.proton.amqp.transport.DeliveryState;
+import org.apache.qpid.proton.codec.DecodeException;
+import org.apache.qpid.proton.engine.*;
+import org.apache.qpid.proton.message.Message;
+import org.apache.qpid.proton.reactor.FlowController;
+import org.apache.qpid.proton.reactor.Handshaker;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** Unit tests for AmqpSubscriptionHandler */
+@RunWith(JMockit.class)
+public class AmqpSubscriptionHandlerTest
+{
+    @Mocked Handshaker handshaker;
+    @Mocked FlowController flowController;
+    @Mocked Proton proton;
+    @Mocked Message message;
+    @Mocked Connection connection;
+    @Mocked Session session;
+    @Mocked Event event;
+    @Mocked Receiver receiver;
+    @Mocked Delivery delivery;
+
+    private static final String HOST_NAME = "aaa";
+    private static final String USER_NAME = "bbb";
+    private static final String SAS_TOKEN = "ccc";
+    private static final String ENDPOINT = "/messages/servicebound/feedback";
+    private static final String LINK_NAME = "feedbacksubscription";
+    private static final int LINK_CREDIT = 5;
+
+    private final List<MessageCompletion> completions = new ArrayList<>();
+    private final List<String> bodies = new ArrayList<>();
+    private final AmqpSubscriptionEvent amqpSubscriptionEvent = (messageJson, completion) ->
+    {
+        bodies.add(messageJson);
+        completions.add(completion);
+    };
+
+    private AmqpSubscriptionHandler createHandler()
+    {
+        return new AmqpSubscriptionHandler(HOST_NAME, USER_NAME, SAS_TOKEN, IotHubServiceClientProtocol.AMQPS, ENDPOINT, LINK_NAME, LINK_CREDIT, amqpSubscriptionEvent);
+    }
+
+    private void receiveOneMessage(AmqpSubscriptionHandler handler)
+    {
+        new NonStrictExpectations()
+        {
+            {
+                event.getLink();
+                result = receiver;
+                receiver.current();
+                result = delivery;
+                delivery.isReadable();
+                result = true;
+                delivery.isPartial();
+                result = false;
+                receiver.getName();
+                result = LINK_NAME;
+                message.getBody();
+                result = new AmqpValue("body");
+                delivery.getLink();
+                result = receiver;
+            }
+        };
+
+        handler.onDelivery(event);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_001: [The constructor shall throw IllegalArgumentException if any of the parameters are null or empty, or if the link credit is not positive]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnNullEvent()
+    {
+        new AmqpSubscriptionHandler(HOST_NAME, USER_NAME, SAS_TOKEN, IotHubServiceClientProtocol.AMQPS, ENDPOINT, LINK_NAME, LINK_CREDIT, null);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_001: [The constructor shall throw IllegalArgumentException if any of the parameters are null or empty, or if the link credit is not positive]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnEmptyHostName()
+    {
+        new AmqpSubscriptionHandler("", USER_NAME, SAS_TOKEN, IotHubServiceClientProtocol.AMQPS, ENDPOINT, LINK_NAME, LINK_CREDIT, amqpSubscriptionEvent);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_001: [The constructor shall throw IllegalArgumentException if any of the parameters are null or empty, or if the link credit is not positive]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnZeroLinkCredit()
+    {
+        new AmqpSubscriptionHandler(HOST_NAME, USER_NAME, SAS_TOKEN, IotHubServiceClientProtocol.AMQPS, ENDPOINT, LINK_NAME, 0, amqpSubscriptionEvent);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_002: [The constructor shall copy all input parameters to private member variables for event processing]
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_003: [The constructor shall initialize a new Handshaker (Proton) object, and shall not add a FlowController since link credit is managed by this handler]
+    @Test
+    public void constructorCopiesParametersAndAddsOnlyHandshaker()
+    {
+        // Act
+        AmqpSubscriptionHandler handler = createHandler();
+
+        // Assert
+        assertEquals(HOST_NAME + ":5671", Deencapsulation.getField(handler, "hostName"));
+        assertEquals(LINK_CREDIT, (int) Deencapsulation.getField(handler, "linkCredit"));
+        new Verifications()
+        {
+            {
+                new Handshaker();
+                times = 1;
+                new FlowController();
+                times = 0;
+            }
+        };
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_005: [The event handler shall open the Connection, a Session and a Receiver, and shall grant the configured link credit to the Receiver]
+    @Test
+    public void onConnectionInitOpensReceiverAndGrantsLinkCredit()
+    {
+        // Arrange
+        AmqpSubscriptionHandler handler = createHandler();
+        new NonStrictExpectations()
+        {
+            {
+                event.getConnection();
+                result = connection;
+                connection.session();
+                result = session;
+                session.receiver(LINK_NAME);
+                result = receiver;
+            }
+        };
+
+        // Act
+        handler.onConnectionInit(event);
+
+        // Assert
+        new Verifications()
+        {
+            {
+                connection.open();
+                session.open();
+                receiver.open();
+                receiver.flow(LINK_CREDIT);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_007: [The event handler shall read and decode the delivery without settling it]
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_008: [The event handler shall call the subscription event with the message body and a completion bound to the delivery]
+    @Test
+    public void onDeliveryCallsEventWithoutSettling()
+    {
+        // Arrange
+        AmqpSubscriptionHandler handler = createHandler();
+
+        // Act
+        receiveOneMessage(handler);
+
+        // Assert
+        assertEquals(1, completions.size());
+        assertEquals("body", bodies.get(0));
+        new Verifications()
+        {
+            {
+                delivery.settle();
+                times = 0;
+                delivery.disposition((org.apache.qpid.proton.amqp.transport.DeliveryState) any);
+                times = 0;
+            }
+        };
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_011: [The function shall apply the requested outcome to each delivery and settle it]
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_012: [The function shall grant one unit of link credit for every settled delivery]
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_014: [Completing a message shall queue the Accepted outcome for its delivery, only once]
+    @Test
+    public void processPendingSettlementsAcceptsCompletedDeliveryAndReplenishesCredit()
+    {
+        // Arrange
+        AmqpSubscriptionHandler handler = createHandler();
+        Deencapsulation.setField(handler, "receiver", receiver);
+        receiveOneMessage(handler);
+        completions.get(0).complete();
+        completions.get(0).abandon();
+
+        // Act
+        Deencapsulation.invoke(handler, "processPendingSettlements");
+
+        // Assert
+        new Verifications()
+        {
+            {
+                delivery.disposition(Accepted.getInstance());
+                times = 1;
+                delivery.disposition(Released.getInstance());
+                times = 0;
+                delivery.settle();
+                times = 1;
+                receiver.flow(1);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_015: [Abandoning a message shall queue the Released outcome for its delivery, only once]
+    @Test
+    public void processPendingSettlementsReleasesAbandonedDelivery()
+    {
+        // Arrange
+        AmqpSubscriptionHandler handler = createHandler();
+        Deencapsulation.setField(handler, "receiver", receiver);
+        receiveOneMessage(handler);
+        completions.get(0).abandon();
+
+        // Act
+        Deencapsulation.invoke(handler, "processPendingSettlements");
+
+        // Assert
+        new Verifications()
+        {
+            {
+                delivery.disposition(Released.getInstance());
+                times = 1;
+                delivery.settle();
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_017: [If the subscription event throws, the event handler shall settle the delivery as Modified with delivery failed, unless it was already completed or abandoned]
+    @Test
+    public void onDeliveryFailsTheDeliveryWhenTheEventThrows()
+    {
+        // Arrange
+        AmqpSubscriptionHandler handler = new AmqpSubscriptionHandler(HOST_NAME, USER_NAME, SAS_TOKEN, IotHubServiceClientProtocol.AMQPS, ENDPOINT, LINK_NAME, LINK_CREDIT,
+                (messageJson, completion) ->
+                {
+                    throw new IllegalStateException("handler failure");
+                });
+        Deencapsulation.setField(handler, "receiver", receiver);
+        receiveOneMessage(handler);
+
+        // Act
+        Deencapsulation.invoke(handler, "processPendingSettlements");
+
+        // Assert
+        final List<DeliveryState> outcomes = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                delivery.disposition(withCapture(outcomes));
+                times = 1;
+                delivery.settle();
+                times = 1;
+            }
+        };
+        assertTrue(outcomes.get(0) instanceof Modified);
+        assertTrue(((Modified) outcomes.get(0)).getDeliveryFailed());
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_016: [If the delivery cannot be decoded, the event handler shall reject it without calling the subscription event]
+    @Test
+    public void onDeliveryRejectsTheDeliveryThatCannotBeDecoded()
+    {
+        // Arrange
+        AmqpSubscriptionHandler handler = createHandler();
+        Deencapsulation.setField(handler, "receiver", receiver);
+        new NonStrictExpectations()
+        {
+            {
+                message.decode((byte[]) any, anyInt, anyInt);
+                result = new DecodeException("not an AMQP message");
+            }
+        };
+        receiveOneMessage(handler);
+
+        // Act
+        Deencapsulation.invoke(handler, "processPendingSettlements");
+
+        // Assert
+        assertTrue(completions.isEmpty());
+        final List<DeliveryState> outcomes = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                delivery.disposition(withCapture(outcomes));
+                times = 1;
+                delivery.settle();
+                times = 1;
+            }
+        };
+        assertTrue(outcomes.get(0) instanceof Rejected);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_010: [The function shall drop the settlements of deliveries that belong to a previous link]
+    @Test
+    public void processPendingSettlementsDropsDeliveriesOfPreviousLink(@Mocked final Receiver newReceiver)
+    {
+        // Arrange
+        AmqpSubscriptionHandler handler = createHandler();
+        receiveOneMessage(handler);
+        completions.get(0).complete();
+        Deencapsulation.setField(handler, "receiver", newReceiver);
+
+        // Act
+        Deencapsulation.invoke(handler, "processPendingSettlements");
+
+        // Assert
+        new Verifications()
+        {
+            {
+                delivery.settle();
+                times = 0;
+                newReceiver.flow(anyInt);
+                times = 0;
+            }
+        };
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSUBSCRIPTIONHANDLER_44_009: [If the link, the connection or the transport is closed remotely or fails, the event handler shall close the connection locally and flag it as lost]
+    @Test
+    public void onConnectionRemoteCloseFlagsConnectionLost()
+    {
+        // Arrange
+        AmqpSubscriptionHandler handler = createHandler();
+        Deencapsulation.setField(handler, "connection", connection);
+        new NonStrictExpectations()
+        {
+            {
+                event.getConnection();
+                result = connection;
+            }
+        };
+        assertFalse((boolean) Deencapsulation.invoke(handler, "isConnectionLost"));
+
+        // Act
+        handler.onConnectionRemoteClose(event);
+
+        // Assert
+        assertTrue((boolean) Deencapsulation.invoke(handler, "isConnectionLost"));
+        new Verifications()
+        {
+            {
+                connection.close();
+                times = 1;
+            }
+        };
+    }
+}
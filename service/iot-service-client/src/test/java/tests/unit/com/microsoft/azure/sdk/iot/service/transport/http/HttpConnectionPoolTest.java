@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service.transport.http;
+
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpConnectionPool;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpConnectionPoolStatistics;
+import mockit.Deencapsulation;
+import org.junit.Test;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/** Unit tests for HttpConnectionPool. */
+public class HttpConnectionPoolTest
+{
+    private static final String HOST = "aaa.azure-devices.net";
+
+    private static HttpConnectionPool createPool()
+    {
+        return Deencapsulation.newInstance(HttpConnectionPool.class);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPCONNECTIONPOOL_44_001: [The function shall throw IllegalArgumentException if the maximum number of connections is not positive.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setMaxConnectionsPerHostThrowsOnZero()
+    {
+        createPool().setMaxConnectionsPerHost(0);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPCONNECTIONPOOL_44_003: [The function shall throw IllegalArgumentException if the SSLContext is null.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setSSLContextThrowsOnNull()
+    {
+        createPool().setSSLContext(null);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPCONNECTIONPOOL_44_004: [The function shall create a single socket factory from the SSLContext, to be shared by all the following connections.]
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPCONNECTIONPOOL_44_006: [If no SSLContext was set, the function shall wrap the default HTTPS socket factory once.]
+    @Test
+    public void getSocketFactoryReturnsSameInstanceUntilContextChanges() throws Exception
+    {
+        // Arrange
+        HttpConnectionPool pool = createPool();
+
+        // Act
+        SSLSocketFactory first = Deencapsulation.invoke(pool, "getSocketFactory");
+        SSLSocketFactory second = Deencapsulation.invoke(pool, "getSocketFactory");
+        pool.setSSLContext(SSLContext.getDefault());
+        SSLSocketFactory third = Deencapsulation.invoke(pool, "getSocketFactory");
+
+        // Assert
+        assertSame(first, second);
+        assertNotEquals(first, third);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPCONNECTIONPOOL_44_005: [The function shall return a snapshot of the pool counters.]
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPCONNECTIONPOOL_44_008: [The function shall let the next waiting request to the host proceed.]
+    @Test
+    public void statisticsCountRequests()
+    {
+        // Arrange
+        HttpConnectionPool pool = createPool();
+
+        // Act
+        Deencapsulation.invoke(pool, "acquire", HOST);
+        Deencapsulation.invoke(pool, "acquire", HOST);
+        HttpConnectionPoolStatistics whileActive = pool.getStatistics();
+        Deencapsulation.invoke(pool, "release", HOST);
+        Deencapsulation.invoke(pool, "release", HOST);
+        HttpConnectionPoolStatistics afterRelease = pool.getStatistics();
+
+        // Assert
+        assertEquals(2, whileActive.getRequestCount());
+        assertEquals(2, whileActive.getActiveRequestCount());
+        assertEquals(0, afterRelease.getActiveRequestCount());
+        assertEquals(2, afterRelease.getPeakActiveRequestCount());
+        assertEquals(0, afterRelease.getWaitCount());
+        assertEquals(2, afterRelease.getReusedConnectionCount());
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPCONNECTIONPOOL_44_007: [The function shall block while the maximum number of requests to the host are in flight, and shall count the requests that had to wait.]
+    @Test
+    public void acquireBlocksAtLimitUntilRelease() throws Exception
+    {
+        // Arrange
+        final HttpConnectionPool pool = createPool();
+        pool.setMaxConnectionsPerHost(1);
+        Deencapsulation.invoke(pool, "acquire", HOST);
+        final CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread(() ->
+        {
+            Deencapsulation.invoke(pool, "acquire", HOST);
+            acquired.countDown();
+        });
+
+        // Act
+        waiter.start();
+        boolean acquiredBeforeRelease = acquired.await(200, TimeUnit.MILLISECONDS);
+        Deencapsulation.invoke(pool, "release", HOST);
+        boolean acquiredAfterRelease = acquired.await(5, TimeUnit.SECONDS);
+        waiter.join();
+
+        // Assert
+        assertFalse(acquiredBeforeRelease);
+        assertTrue(acquiredAfterRelease);
+        assertEquals(1, pool.getStatistics().getWaitCount());
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPCONNECTIONPOOL_44_007: [The function shall block while the maximum number of requests to the host are in flight, and shall count the requests that had to wait.]
+    @Test
+    public void acquireDoesNotBlockOtherHosts()
+    {
+        // Arrange
+        HttpConnectionPool pool = createPool();
+        pool.setMaxConnectionsPerHost(1);
+        Deencapsulation.invoke(pool, "acquire", HOST);
+
+        // Act
+        Deencapsulation.invoke(pool, "acquire", "bbb.azure-devices.net");
+
+        // Assert
+        assertEquals(2, pool.getStatistics().getActiveRequestCount());
+        assertEquals(0, pool.getStatistics().getWaitCount());
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPCONNECTIONPOOL_44_002: [The function shall apply the new limit to every host, waking up the requests that may now proceed.]
+    @Test
+    public void raisingLimitWakesWaitingRequests() throws Exception
+    {
+        // Arrange
+        final HttpConnectionPool pool = createPool();
+        pool.setMaxConnectionsPerHost(1);
+        Deencapsulation.invoke(pool, "acquire", HOST);
+        final CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread(() ->
+        {
+            Deencapsulation.invoke(pool, "acquire", HOST);
+            acquired.countDown();
+        });
+        waiter.start();
+
+        // Act
+        pool.setMaxConnectionsPerHost(2);
+
+        // Assert
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        waiter.join();
+        assertEquals(2, pool.getStatistics().getActiveRequestCount());
+    }
+}
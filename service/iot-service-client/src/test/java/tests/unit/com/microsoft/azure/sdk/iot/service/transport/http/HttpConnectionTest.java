@@ -6,7 +6,9 @@
 package tests.unit.com.microsoft.azure.sdk.iot.service.transport.http;
 
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpConnection;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpConnectionPool;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
+import mockit.Deencapsulation;
 import mockit.Mocked;
 import mockit.NonStrictExpectations;
 import mockit.Verifications;
@@ -16,6 +18,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
@@ -65,6 +68,35 @@ public class HttpConnectionTest
         };
     }
 
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPCONNECTION_44_001: [The constructor shall use the socket factory shared by the HttpConnectionPool, so that keep-alive connections and TLS sessions are reused across requests.]
+    @Test
+    public void constructorUsesSharedSocketFactory() throws IOException
+    {
+        // Arrange
+        final HttpMethod httpMethod = HttpMethod.GET;
+        new NonStrictExpectations()
+        {
+            {
+                mockUrl.getProtocol();
+                result = "https";
+                mockUrl.openConnection();
+                result = mockUrlConn;
+            }
+        };
+        // Act
+        new HttpConnection(mockUrl, httpMethod);
+        new HttpConnection(mockUrl, httpMethod);
+        // Assert
+        final SSLSocketFactory sharedFactory = Deencapsulation.invoke(HttpConnectionPool.getInstance(), "getSocketFactory");
+        new Verifications()
+        {
+            {
+                mockUrlConn.setSSLSocketFactory(sharedFactory);
+                times = 2;
+            }
+        };
+    }
+
     // Tests_SRS_SERVICE_SDK_JAVA_HTTPSCONNECTION_12_002: [The constructor shall throw an IOException if the connection was unable to be opened.]
     // Assert
     @Test(expected = IOException.class)